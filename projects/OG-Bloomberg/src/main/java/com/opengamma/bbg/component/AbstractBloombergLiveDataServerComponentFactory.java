@@ -39,7 +39,7 @@ import com.opengamma.livedata.entitlement.LiveDataEntitlementChecker;
 import com.opengamma.livedata.resolver.DistributionSpecificationResolver;
 import com.opengamma.livedata.server.LiveDataServerMBean;
 import com.opengamma.livedata.server.StandardLiveDataServer;
-import com.opengamma.livedata.server.distribution.JmsSenderFactory;
+import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.provider.livedata.LiveDataMetaData;
 import com.opengamma.provider.livedata.LiveDataServerTypes;
 import com.opengamma.transport.ByteArrayFudgeMessageSender;
@@ -96,7 +96,7 @@ public abstract class AbstractBloombergLiveDataServerComponentFactory extends Ab
     // plugins
     DistributionSpecificationResolver distSpecResolver = realServer.getDefaultDistributionSpecificationResolver();
     LiveDataEntitlementChecker entitlementChecker = initEntitlementChecker(distSpecResolver);
-    JmsSenderFactory senderFactory = new JmsSenderFactory(getJmsConnector());
+    MarketDataSenderFactory senderFactory = initMarketDataSenderFactory(repo);
 
     realServer.setDistributionSpecificationResolver(distSpecResolver);
     realServer.setEntitlementChecker(entitlementChecker);
@@ -9,14 +9,31 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.joda.beans.Bean;
 import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaBean;
 import org.joda.beans.MetaProperty;
 import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.Resource;
@@ -26,6 +43,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.OpenGammaClock;
 import com.opengamma.util.PlatformConfigUtils;
 import com.opengamma.util.ResourceUtils;
@@ -71,6 +89,10 @@ public class ComponentManager {
    * The key identifying the the inclusion of another file.
    */
   static final String MANAGER_INCLUDE = "MANAGER.INCLUDE";
+  /**
+   * The key identifying the number of threads used to initialize components.
+   */
+  static final String MANAGER_INIT_THREADS = "MANAGER.INIT.THREADS";
 
   /**
    * The component repository.
@@ -88,6 +110,10 @@ public class ComponentManager {
    * The component INI, updated as configuration is discovered.
    */
   private ComponentConfig _configIni = new ComponentConfig();
+  /**
+   * The time taken to initialize each component group, in milliseconds.
+   */
+  private final Map<String, Long> _initTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
 
   /**
    * Creates an instance that does not log.
@@ -153,6 +179,52 @@ public class ComponentManager {
     return _configIni;
   }
 
+  /**
+   * Gets the time taken to initialize each component group.
+   * 
+   * @return the initialization times in milliseconds keyed by group name, in order of completion, not null
+   */
+  public Map<String, Long> getInitTimes() {
+    synchronized (_initTimes) {
+      return new LinkedHashMap<String, Long>(_initTimes);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of threads used to initialize components.
+   * <p>
+   * This is the "MANAGER.INIT.THREADS" property, defaulting to one.
+   * 
+   * @return the number of threads
+   */
+  public int getInitThreads() {
+    String threads = getProperties().getValue(MANAGER_INIT_THREADS);
+    if (threads == null) {
+      return 1;
+    }
+    try {
+      return Integer.parseInt(threads.trim());
+    } catch (NumberFormatException ex) {
+      throw new ComponentConfigException("Invalid value for " + MANAGER_INIT_THREADS + ": " + threads, ex);
+    }
+  }
+
+  /**
+   * Sets the number of threads used to initialize components.
+   * <p>
+   * With one thread, the default, the component groups are initialized in the order they appear in the INI file.
+   * With more than one, a group is initialized as soon as every component it references with a "::" property
+   * is in the repository, so independent groups are initialized concurrently. A factory that finds components
+   * in the repository by other means must only be used with a single thread.
+   * 
+   * @param initThreads  the number of threads, one or more
+   */
+  public void setInitThreads(int initThreads) {
+    ArgumentChecker.isTrue(initThreads > 0, "initThreads");
+    getProperties().put(MANAGER_INIT_THREADS, Integer.toString(initThreads));
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Sets the server name property.
@@ -316,11 +388,213 @@ public class ComponentManager {
    * Initializes the component definitions from the config.
    */
   protected void initComponents() {
+    long startInstant = System.nanoTime();
+    LinkedHashMap<String, ConfigProperties> groups = new LinkedHashMap<String, ConfigProperties>();
     for (String groupName : _configIni.getGroups()) {
       ConfigProperties groupData = _configIni.getGroup(groupName);
       if (groupData.containsKey("factory")) {
-        initComponent(groupName, groupData);
+        groups.put(groupName, groupData);
+      }
+    }
+    int threads = getInitThreads();
+    if (threads <= 1 || groups.size() <= 1) {
+      for (Entry<String, ConfigProperties> group : groups.entrySet()) {
+        initComponent(group.getKey(), group.getValue());
+      }
+    } else {
+      initComponentsConcurrently(groups, threads);
+    }
+    long endInstant = System.nanoTime();
+    logInitTimes(threads, (endInstant - startInstant) / 1000000L);
+  }
+
+  /**
+   * Initializes the component definitions concurrently.
+   * <p>
+   * Each group waits for the components it references to be registered by other groups.
+   * A reference marked optional waits for every group before it in the config to complete,
+   * which is when it would have been resolved if the groups were initialized in order.
+   * 
+   * @param groups  the groups to initialize, in config order, not null
+   * @param threads  the maximum number of groups to initialize at once
+   * @throws ComponentConfigException if a group fails or a reference cannot be resolved
+   */
+  protected void initComponentsConcurrently(LinkedHashMap<String, ConfigProperties> groups, int threads) {
+    _logger.logInfo("--- Initializing " + groups.size() + " components using " + threads + " threads ---");
+    List<String> order = new ArrayList<String>(groups.keySet());
+    Map<String, List<ComponentReference>> references = new HashMap<String, List<ComponentReference>>();
+    for (Entry<String, ConfigProperties> group : groups.entrySet()) {
+      references.put(group.getKey(), findComponentReferences(group.getValue()));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadPoolFactory("ComponentInit"));
+    CompletionService<String> completion = new ExecutorCompletionService<String>(executor);
+    List<String> pending = new ArrayList<String>(order);
+    Set<String> completed = new HashSet<String>();
+    int running = 0;
+    try {
+      while (pending.isEmpty() == false || running > 0) {
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+          final String groupName = it.next();
+          boolean earlierComplete = completed.containsAll(order.subList(0, order.indexOf(groupName)));
+          if (findUnresolved(references.get(groupName), earlierComplete).isEmpty()) {
+            it.remove();
+            final ConfigProperties groupData = groups.get(groupName);
+            completion.submit(new Callable<String>() {
+              @Override
+              public String call() {
+                getRepository().pushThreadLocal();
+                initComponent(groupName, groupData);
+                return groupName;
+              }
+            });
+            running++;
+          }
+        }
+        if (running == 0) {
+          throw unresolvedReferences(pending, references);
+        }
+        Future<String> done = completion.take();
+        running--;
+        try {
+          completed.add(done.get());
+        } catch (ExecutionException ex) {
+          Throwable cause = ex.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new ComponentConfigException("Failed to init component factory", cause);
+        }
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ComponentConfigException("Interrupted while initializing components", ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Finds the component references in a group's config.
+   * <p>
+   * These are the values using the double colon format handled by {@link #setPropertyComponentRef}.
+   * 
+   * @param groupConfig  the config data, not null
+   * @return the references, not null
+   */
+  private List<ComponentReference> findComponentReferences(ConfigProperties groupConfig) {
+    Map<String, String> config = groupConfig.toMap();
+    MetaBean metaBean = null;
+    try {
+      Class<?> cls = getClass().getClassLoader().loadClass(config.get("factory"));
+      if (Bean.class.isAssignableFrom(cls)) {
+        metaBean = JodaBeanUtils.metaBean(cls);
+      }
+    } catch (ClassNotFoundException | RuntimeException | LinkageError ex) {
+      // reported when the group is initialized
+    }
+    List<ComponentReference> references = new ArrayList<ComponentReference>();
+    for (Entry<String, String> entry : config.entrySet()) {
+      String value = entry.getValue();
+      if (value == null || value.contains("::") == false) {
+        continue;
+      }
+      String type = StringUtils.substringBefore(value, "::");
+      String classifier = StringUtils.substringAfter(value, "::");
+      boolean optional = false;
+      if (classifier.endsWith("?")) {
+        optional = true;
+        classifier = classifier.substring(0, classifier.length() - 1).trim();
+      }
+      if (type.length() == 0) {
+        if (metaBean == null || metaBean.metaPropertyExists(entry.getKey()) == false) {
+          continue;  // reported when the group is initialized
+        }
+        type = metaBean.metaProperty(entry.getKey()).propertyType().getName();
+      }
+      references.add(new ComponentReference(entry.getKey(), value, type, classifier, optional));
+    }
+    return references;
+  }
+
+  /**
+   * Finds the references that are not yet in the repository.
+   * 
+   * @param references  the references, not null
+   * @param earlierComplete  whether all earlier groups have completed, so optional references need not wait
+   * @return the unresolved references, not null
+   */
+  private List<ComponentReference> findUnresolved(List<ComponentReference> references, boolean earlierComplete) {
+    List<ComponentReference> unresolved = new ArrayList<ComponentReference>();
+    for (ComponentReference reference : references) {
+      if ((reference._optional && earlierComplete) == false && getRepository().findInfo(reference._type, reference._classifier) == null) {
+        unresolved.add(reference);
+      }
+    }
+    return unresolved;
+  }
+
+  /**
+   * Creates the exception for groups that cannot be initialized.
+   * 
+   * @param pending  the groups that have not been initialized, not null
+   * @param references  the references of each group, not null
+   * @return the exception, not null
+   */
+  private ComponentConfigException unresolvedReferences(List<String> pending, Map<String, List<ComponentReference>> references) {
+    StringBuilder buf = new StringBuilder("Unable to find component reference, either missing or circular:");
+    for (String groupName : pending) {
+      buf.append(" '").append(groupName).append("' requires ").append(findUnresolved(references.get(groupName), false)).append(';');
+    }
+    return new ComponentConfigException(buf.substring(0, buf.length() - 1));
+  }
+
+  /**
+   * Logs the time taken to initialize the components.
+   * 
+   * @param threads  the number of threads used
+   * @param millis  the total time taken
+   */
+  protected void logInitTimes(int threads, long millis) {
+    List<Entry<String, Long>> times = new ArrayList<Entry<String, Long>>(getInitTimes().entrySet());
+    Collections.sort(times, new Comparator<Entry<String, Long>>() {
+      @Override
+      public int compare(Entry<String, Long> o1, Entry<String, Long> o2) {
+        return o2.getValue().compareTo(o1.getValue());
+      }
+    });
+    _logger.logDebug("--- Component initialization times ---");
+    long total = 0;
+    for (Entry<String, Long> time : times) {
+      _logger.logDebug(" " + time.getKey() + " = " + time.getValue() + "ms");
+      total += time.getValue();
+    }
+    _logger.logInfo("--- Initialized " + times.size() + " components in " + millis + "ms (" + total + "ms in total using " + threads + " threads) ---");
+  }
+
+  /**
+   * A component reference from a group's config.
+   */
+  private static final class ComponentReference {
+    private final String _key;
+    private final String _value;
+    private final String _type;
+    private final String _classifier;
+    private final boolean _optional;
+
+    ComponentReference(String key, String value, String type, String classifier, boolean optional) {
+      _key = key;
+      _value = value;
+      _type = type;
+      _classifier = classifier;
+      _optional = optional;
+    }
+
+    @Override
+    public String toString() {
+      return _key + " = " + _value;
     }
   }
 
@@ -361,7 +635,9 @@ public class ComponentManager {
     }
     
     long endInstant = System.nanoTime();
-    _logger.logInfo("--- Initialized " + groupName + " in " + ((endInstant - startInstant) / 1000000L) + "ms ---");
+    long millis = (endInstant - startInstant) / 1000000L;
+    _initTimes.put(groupName, millis);
+    _logger.logInfo("--- Initialized " + groupName + " in " + millis + "ms ---");
   }
 
   //-------------------------------------------------------------------------
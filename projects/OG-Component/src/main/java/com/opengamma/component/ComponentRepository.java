@@ -445,7 +445,9 @@ public class ComponentRepository implements Lifecycle, ServletContextAware {
       } catch (Exception ex) {
         throw new OpenGammaRuntimeException(ex.getMessage(), ex);
       }
-      _initialized.add(object);
+      synchronized (_initialized) {
+        _initialized.add(object);
+      }
     }
   }
 
@@ -455,9 +457,11 @@ public class ComponentRepository implements Lifecycle, ServletContextAware {
    * @return true if initialized
    */
   private boolean isInitialized(InitializingBean object) {
-    for (InitializingBean initialized : _initialized) {
-      if (initialized == object) {
-        return true;
+    synchronized (_initialized) {
+      for (InitializingBean initialized : _initialized) {
+        if (initialized == object) {
+          return true;
+        }
       }
     }
     return false;
@@ -710,12 +714,14 @@ public class ComponentRepository implements Lifecycle, ServletContextAware {
     if (lifecycleObject instanceof Phased) {
       phase = ((Phased) lifecycleObject).getPhase();
     }
-    List<Lifecycle> list = _lifecycles.get(phase);
-    if (list == null) {
-      list = new ArrayList<>();
-      _lifecycles.put(phase, list);
+    synchronized (_lifecycles) {
+      List<Lifecycle> list = _lifecycles.get(phase);
+      if (list == null) {
+        list = new ArrayList<>();
+        _lifecycles.put(phase, list);
+      }
+      list.add(lifecycleObject);
     }
-    list.add(lifecycleObject);
   }
 
   //-------------------------------------------------------------------------
@@ -750,7 +756,9 @@ public class ComponentRepository implements Lifecycle, ServletContextAware {
    * @param servletContextAware  the object that requires a servlet context, not null
    */
   private void registerServletContextAware0(ServletContextAware servletContextAware) {
-    _servletContextAware.add(servletContextAware);
+    synchronized (_servletContextAware) {
+      _servletContextAware.add(servletContextAware);
+    }
   }
 
   //-------------------------------------------------------------------------
@@ -794,7 +802,9 @@ public class ComponentRepository implements Lifecycle, ServletContextAware {
    * @param managedResource  the object that should be treated as an MBean, not null
    */
   private void registerMBean0(Object managedResource, ObjectName name) {
-    _managedResources.put(name, managedResource);
+    synchronized (_managedResources) {
+      _managedResources.put(name, managedResource);
+    }
   }
 
   /**
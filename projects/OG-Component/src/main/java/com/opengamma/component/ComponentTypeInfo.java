@@ -5,8 +5,8 @@
  */
 package com.opengamma.component;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.joda.beans.Bean;
 import org.joda.beans.BeanBuilder;
@@ -40,7 +40,7 @@ public class ComponentTypeInfo extends DirectBean {
    * The component info.
    */
   @PropertyDefinition(validate = "notNull")
-  private final Map<String, ComponentInfo> _infoMap = new HashMap<String, ComponentInfo>();
+  private final Map<String, ComponentInfo> _infoMap = new ConcurrentHashMap<String, ComponentInfo>();
 
   /**
    * Creates an instance.
@@ -363,7 +363,7 @@ public class OpenGammaComponentServer {
    * @param manager the component manager
    */
   protected void serverStarting(final ComponentManager manager) {
-    OpenGammaComponentServerMonitor.create(manager.getRepository());
+    OpenGammaComponentServerMonitor.create(manager);
   }
 
   /**
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,7 @@ public final class OpenGammaComponentServerMonitor extends Thread {
   }
 
   private ComponentRepository _repo;
+  private ComponentManager _manager;
   private String _secret;
   private DatagramSocket _socket;
 
@@ -39,11 +41,13 @@ public final class OpenGammaComponentServerMonitor extends Thread {
    * Creates an instance.
    * 
    * @param repo  the repository, not null
+   * @param manager  the manager that initialized the repository, null if not known
    * @param secret  the secret phrase, not null
    * @param port  the port number
    */
-  private OpenGammaComponentServerMonitor(ComponentRepository repo, String secret, int port) {
+  private OpenGammaComponentServerMonitor(ComponentRepository repo, ComponentManager manager, String secret, int port) {
     _repo = repo;
+    _manager = manager;
     _secret = secret;
     
     setDaemon(true);
@@ -84,6 +88,8 @@ public final class OpenGammaComponentServerMonitor extends Thread {
         handleStop();
       } else if (command.equals("exit")) {
         handleExit();
+      } else if (command.equals("timings")) {
+        handleTimings();
       } else {
         s_logger.debug("Unknown command \"{}\"", command);
       }
@@ -105,6 +111,16 @@ public final class OpenGammaComponentServerMonitor extends Thread {
     System.exit(0);
   }
 
+  private void handleTimings() {
+    if (_manager == null) {
+      s_logger.info("Component initialization times not available");
+      return;
+    }
+    for (Map.Entry<String, Long> time : _manager.getInitTimes().entrySet()) {
+      s_logger.info("Initialized {} in {}ms", time.getKey(), time.getValue());
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Creates the monitor based on a {@link ComponentRepository}.
@@ -112,10 +128,28 @@ public final class OpenGammaComponentServerMonitor extends Thread {
    * @param repo  the repository, not null
    */
   public static void create(ComponentRepository repo) {
+    create(repo, null);
+  }
+
+  /**
+   * Creates the monitor based on a {@link ComponentManager}.
+   * <p>
+   * The "timings" command will log the time taken to initialize each component.
+   * 
+   * @param manager  the manager, not null
+   */
+  public static void create(ComponentManager manager) {
+    create(manager.getRepository(), manager);
+  }
+
+  private static void create(ComponentRepository repo, ComponentManager manager) {
     String secret = System.getProperty(SECRET_PROPERTY);
     if (secret != null) {
       String port = System.getProperty(PORT_PROPERTY, Integer.toString(DEFAULT_PORT));
-      create(repo, secret, Integer.parseInt(port));
+      OpenGammaComponentServerMonitor monitor = new OpenGammaComponentServerMonitor(repo, manager, secret, Integer.parseInt(port));
+      if (monitor.isReady()) {
+        monitor.start();
+      }
     }
   }
 
@@ -127,7 +161,7 @@ public final class OpenGammaComponentServerMonitor extends Thread {
    * @param port  the port number
    */
   public static void create(ComponentRepository repo, String secret, int port) {
-    OpenGammaComponentServerMonitor monitor = new OpenGammaComponentServerMonitor(repo, secret, port);
+    OpenGammaComponentServerMonitor monitor = new OpenGammaComponentServerMonitor(repo, null, secret, port);
     if (monitor.isReady()) {
       monitor.start();
     }
@@ -137,7 +171,7 @@ public final class OpenGammaComponentServerMonitor extends Thread {
   /**
    * Main method acting as a client of the monitor.
    * <p>
-   * A single argument may be passed, either "stop" or "exit".
+   * A single argument may be passed, either "stop", "exit" or "timings".
    * The default is "exit" (which is a hard stop).
    * 
    * @param args  the arguments
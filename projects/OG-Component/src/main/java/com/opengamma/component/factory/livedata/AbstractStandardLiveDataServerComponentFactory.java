@@ -30,6 +30,9 @@ import com.opengamma.livedata.server.HeartbeatReceiver;
 import com.opengamma.livedata.server.LiveDataServer;
 import com.opengamma.livedata.server.StandardLiveDataServer;
 import com.opengamma.livedata.server.SubscriptionRequestReceiver;
+import com.opengamma.livedata.server.distribution.ConflatingMarketDataSenderFactory;
+import com.opengamma.livedata.server.distribution.JmsSenderFactory;
+import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.provider.livedata.LiveDataMetaData;
 import com.opengamma.provider.livedata.LiveDataMetaDataProvider;
 import com.opengamma.provider.livedata.impl.DataLiveDataMetaDataProviderResource;
@@ -108,6 +111,24 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
    */
   @PropertyDefinition
   private int _jmsSubscriptionQueueMaxConcurrentConsumers = 1;
+  /**
+   * The maximum number of specifications from a subscription request to process together.
+   * <p>
+   * Large requests, such as those made on start-up, are split into chunks of this size which
+   * are pipelined, so market data for the first chunks ticks before the whole request is handled.
+   * Defaults to 0, processing each request in one go.
+   */
+  @PropertyDefinition
+  private int _subscriptionChunkSize;
+  /**
+   * The interval, in milliseconds, at which conflated ticks are published.
+   * <p>
+   * When positive, the server publishes conflated ticks to the conflated topics, for clients
+   * that only need the latest values, as well as publishing every tick as normal.
+   * Defaults to 0, publishing no conflated ticks.
+   */
+  @PropertyDefinition
+  private long _conflationInterval;
   
   /**
    * The subscription queue name, null if not used.
@@ -118,6 +139,9 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
   @Override
   public void init(ComponentRepository repo, LinkedHashMap<String, String> configuration) throws Exception {
     StandardLiveDataServer server = initServer(repo);
+    if (getSubscriptionChunkSize() > 0) {
+      server.setSubscriptionChunkSize(getSubscriptionChunkSize());
+    }
     final ComponentInfo info = new ComponentInfo(LiveDataServer.class, getClassifier());
     repo.registerComponent(info, server);
 
@@ -139,6 +163,28 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
    */
   protected abstract StandardLiveDataServer initServer(ComponentRepository repo);
 
+  /**
+   * Creates the factory for the senders that distribute market data from the server.
+   * <p>
+   * Every tick is sent by JMS. If a conflation interval is set, conflated ticks are
+   * also sent to the conflated topics, and the conflating factory is registered with
+   * the repository so that it flushes while running.
+   * 
+   * @param repo the repository, not null
+   * @return the sender factory, not null
+   */
+  protected MarketDataSenderFactory initMarketDataSenderFactory(ComponentRepository repo) {
+    JmsSenderFactory senderFactory = new JmsSenderFactory(getJmsConnector());
+    if (getConflationInterval() <= 0) {
+      return senderFactory;
+    }
+    JmsSenderFactory conflatedSenderFactory = new JmsSenderFactory(getJmsConnector());
+    conflatedSenderFactory.setConflated(true);
+    ConflatingMarketDataSenderFactory conflatingSenderFactory = new ConflatingMarketDataSenderFactory(conflatedSenderFactory, senderFactory, getConflationInterval());
+    repo.registerLifecycle(conflatingSenderFactory);
+    return conflatingSenderFactory;
+  }
+
   /**
    * Publishes the server by JMS.
    * 
@@ -549,6 +595,56 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
     return metaBean().jmsSubscriptionQueueMaxConcurrentConsumers().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the maximum number of specifications from a subscription request to process together.
+   * @return the value of the property
+   */
+  public int getSubscriptionChunkSize() {
+    return _subscriptionChunkSize;
+  }
+
+  /**
+   * Sets the maximum number of specifications from a subscription request to process together.
+   * @param subscriptionChunkSize  the new value of the property
+   */
+  public void setSubscriptionChunkSize(int subscriptionChunkSize) {
+    this._subscriptionChunkSize = subscriptionChunkSize;
+  }
+
+  /**
+   * Gets the the {@code subscriptionChunkSize} property.
+   * @return the property, not null
+   */
+  public final Property<Integer> subscriptionChunkSize() {
+    return metaBean().subscriptionChunkSize().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the interval, in milliseconds, at which conflated ticks are published.
+   * @return the value of the property
+   */
+  public long getConflationInterval() {
+    return _conflationInterval;
+  }
+
+  /**
+   * Sets the interval, in milliseconds, at which conflated ticks are published.
+   * @param conflationInterval  the new value of the property
+   */
+  public void setConflationInterval(long conflationInterval) {
+    this._conflationInterval = conflationInterval;
+  }
+
+  /**
+   * Gets the the {@code conflationInterval} property.
+   * @return the property, not null
+   */
+  public final Property<Long> conflationInterval() {
+    return metaBean().conflationInterval().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   @Override
   public boolean equals(Object obj) {
@@ -567,6 +663,8 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
           JodaBeanUtils.equal(getJmsSubscriptionQueuePrefix(), other.getJmsSubscriptionQueuePrefix()) &&
           (getJmsSubscriptionQueueConcurrentConsumers() == other.getJmsSubscriptionQueueConcurrentConsumers()) &&
           (getJmsSubscriptionQueueMaxConcurrentConsumers() == other.getJmsSubscriptionQueueMaxConcurrentConsumers()) &&
+          (getSubscriptionChunkSize() == other.getSubscriptionChunkSize()) &&
+          (getConflationInterval() == other.getConflationInterval()) &&
           super.equals(obj);
     }
     return false;
@@ -585,12 +683,14 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsSubscriptionQueuePrefix());
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsSubscriptionQueueConcurrentConsumers());
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsSubscriptionQueueMaxConcurrentConsumers());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getSubscriptionChunkSize());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getConflationInterval());
     return hash ^ super.hashCode();
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(352);
+    StringBuilder buf = new StringBuilder(384);
     buf.append("AbstractStandardLiveDataServerComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -614,6 +714,8 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
     buf.append("jmsSubscriptionQueuePrefix").append('=').append(JodaBeanUtils.toString(getJmsSubscriptionQueuePrefix())).append(',').append(' ');
     buf.append("jmsSubscriptionQueueConcurrentConsumers").append('=').append(JodaBeanUtils.toString(getJmsSubscriptionQueueConcurrentConsumers())).append(',').append(' ');
     buf.append("jmsSubscriptionQueueMaxConcurrentConsumers").append('=').append(JodaBeanUtils.toString(getJmsSubscriptionQueueMaxConcurrentConsumers())).append(',').append(' ');
+    buf.append("subscriptionChunkSize").append('=').append(JodaBeanUtils.toString(getSubscriptionChunkSize())).append(',').append(' ');
+    buf.append("conflationInterval").append('=').append(JodaBeanUtils.toString(getConflationInterval())).append(',').append(' ');
   }
 
   //-----------------------------------------------------------------------
@@ -676,6 +778,16 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
      */
     private final MetaProperty<Integer> _jmsSubscriptionQueueMaxConcurrentConsumers = DirectMetaProperty.ofReadWrite(
         this, "jmsSubscriptionQueueMaxConcurrentConsumers", AbstractStandardLiveDataServerComponentFactory.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code subscriptionChunkSize} property.
+     */
+    private final MetaProperty<Integer> _subscriptionChunkSize = DirectMetaProperty.ofReadWrite(
+        this, "subscriptionChunkSize", AbstractStandardLiveDataServerComponentFactory.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code conflationInterval} property.
+     */
+    private final MetaProperty<Long> _conflationInterval = DirectMetaProperty.ofReadWrite(
+        this, "conflationInterval", AbstractStandardLiveDataServerComponentFactory.class, Long.TYPE);
     /**
      * The meta-properties.
      */
@@ -690,7 +802,9 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
         "jmsHeartbeatTopic",
         "jmsSubscriptionQueuePrefix",
         "jmsSubscriptionQueueConcurrentConsumers",
-        "jmsSubscriptionQueueMaxConcurrentConsumers");
+        "jmsSubscriptionQueueMaxConcurrentConsumers",
+        "subscriptionChunkSize",
+        "conflationInterval");
 
     /**
      * Restricted constructor.
@@ -721,6 +835,10 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
           return _jmsSubscriptionQueueConcurrentConsumers;
         case 311428262:  // jmsSubscriptionQueueMaxConcurrentConsumers
           return _jmsSubscriptionQueueMaxConcurrentConsumers;
+        case -1855180943:  // subscriptionChunkSize
+          return _subscriptionChunkSize;
+        case -1228394990:  // conflationInterval
+          return _conflationInterval;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -823,6 +941,22 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
       return _jmsSubscriptionQueueMaxConcurrentConsumers;
     }
 
+    /**
+     * The meta-property for the {@code subscriptionChunkSize} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Integer> subscriptionChunkSize() {
+      return _subscriptionChunkSize;
+    }
+
+    /**
+     * The meta-property for the {@code conflationInterval} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Long> conflationInterval() {
+      return _conflationInterval;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
@@ -847,6 +981,10 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
           return ((AbstractStandardLiveDataServerComponentFactory) bean).getJmsSubscriptionQueueConcurrentConsumers();
         case 311428262:  // jmsSubscriptionQueueMaxConcurrentConsumers
           return ((AbstractStandardLiveDataServerComponentFactory) bean).getJmsSubscriptionQueueMaxConcurrentConsumers();
+        case -1855180943:  // subscriptionChunkSize
+          return ((AbstractStandardLiveDataServerComponentFactory) bean).getSubscriptionChunkSize();
+        case -1228394990:  // conflationInterval
+          return ((AbstractStandardLiveDataServerComponentFactory) bean).getConflationInterval();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -884,6 +1022,12 @@ public abstract class AbstractStandardLiveDataServerComponentFactory extends Abs
         case 311428262:  // jmsSubscriptionQueueMaxConcurrentConsumers
           ((AbstractStandardLiveDataServerComponentFactory) bean).setJmsSubscriptionQueueMaxConcurrentConsumers((Integer) newValue);
           return;
+        case -1855180943:  // subscriptionChunkSize
+          ((AbstractStandardLiveDataServerComponentFactory) bean).setSubscriptionChunkSize((Integer) newValue);
+          return;
+        case -1228394990:  // conflationInterval
+          ((AbstractStandardLiveDataServerComponentFactory) bean).setConflationInterval((Long) newValue);
+          return;
       }
       super.propertySet(bean, propertyName, newValue, quiet);
     }
@@ -88,6 +88,14 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
    */
   @PropertyDefinition
   private String _jmsMarketDataAvailabilityTopic;
+  /**
+   * Whether the live data clients receive conflated ticks rather than every tick, default false.
+   * <p>
+   * The live data servers must publish conflated ticks, by setting a conflation interval
+   * on their component factory, or the clients will receive no ticks.
+   */
+  @PropertyDefinition
+  private boolean _conflatedTicks;
   
   @Override
   public void init(ComponentRepository repo, LinkedHashMap<String, String> configuration) throws Exception {
@@ -148,7 +156,7 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
    * @return the client
    */
   protected LiveDataClient createLiveDataClient(LiveDataMetaDataProvider provider) {
-    return createLiveDataClient(provider, getJmsConnector());
+    return createLiveDataClient(provider, getJmsConnector(), isConflatedTicks());
   }
   
   /**
@@ -158,8 +166,20 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
    * @param jmsConnector the JMS connector, not null
    * @return the client
    */
-  @SuppressWarnings("deprecation")
   public static LiveDataClient createLiveDataClient(LiveDataMetaDataProvider provider, JmsConnector jmsConnector) {
+    return createLiveDataClient(provider, jmsConnector, false);
+  }
+
+  /**
+   * Creates a live data client based on the information in the remote metadata.
+   * 
+   * @param provider the metadata provider, null returns null
+   * @param jmsConnector the JMS connector, not null
+   * @param conflatedTicks whether the client should receive conflated ticks rather than every tick
+   * @return the client
+   */
+  @SuppressWarnings("deprecation")
+  public static LiveDataClient createLiveDataClient(LiveDataMetaDataProvider provider, JmsConnector jmsConnector, boolean conflatedTicks) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     LiveDataMetaData metaData = provider.metaData();
     URI jmsUri = metaData.getJmsBrokerUri();
@@ -191,6 +211,7 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
     final JmsLiveDataClient liveDataClient = new JmsLiveDataClient(fudgeSubscriptionRequestSender,
         fudgeEntitlementRequestSender, jmsConnector, OpenGammaFudgeContext.getInstance(), JmsLiveDataClient.DEFAULT_NUM_SESSIONS);
     liveDataClient.setFudgeContext(OpenGammaFudgeContext.getInstance());
+    liveDataClient.setConflated(conflatedTicks);
     if (metaData.getJmsHeartbeatTopic() != null) {
       JmsByteArrayMessageSender jmsHeartbeatSender = new JmsByteArrayMessageSender(metaData.getJmsHeartbeatTopic(), jmsTemplate);
       liveDataClient.setHeartbeatMessageSender(jmsHeartbeatSender);
@@ -349,6 +370,31 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
     return metaBean().jmsMarketDataAvailabilityTopic().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets whether the live data clients receive conflated ticks rather than every tick, default false.
+   * @return the value of the property
+   */
+  public boolean isConflatedTicks() {
+    return _conflatedTicks;
+  }
+
+  /**
+   * Sets whether the live data clients receive conflated ticks rather than every tick, default false.
+   * @param conflatedTicks  the new value of the property
+   */
+  public void setConflatedTicks(boolean conflatedTicks) {
+    this._conflatedTicks = conflatedTicks;
+  }
+
+  /**
+   * Gets the the {@code conflatedTicks} property.
+   * @return the property, not null
+   */
+  public final Property<Boolean> conflatedTicks() {
+    return metaBean().conflatedTicks().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   @Override
   public LiveMarketDataProviderFactoryComponentFactory clone() {
@@ -366,6 +412,7 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
           JodaBeanUtils.equal(getJmsConnector(), other.getJmsConnector()) &&
           JodaBeanUtils.equal(getDefaultProviders(), other.getDefaultProviders()) &&
           JodaBeanUtils.equal(getJmsMarketDataAvailabilityTopic(), other.getJmsMarketDataAvailabilityTopic()) &&
+          (isConflatedTicks() == other.isConflatedTicks()) &&
           super.equals(obj);
     }
     return false;
@@ -378,12 +425,13 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsConnector());
     hash = hash * 31 + JodaBeanUtils.hashCode(getDefaultProviders());
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsMarketDataAvailabilityTopic());
+    hash = hash * 31 + JodaBeanUtils.hashCode(isConflatedTicks());
     return hash ^ super.hashCode();
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(160);
+    StringBuilder buf = new StringBuilder(192);
     buf.append("LiveMarketDataProviderFactoryComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -401,6 +449,7 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
     buf.append("jmsConnector").append('=').append(JodaBeanUtils.toString(getJmsConnector())).append(',').append(' ');
     buf.append("defaultProviders").append('=').append(JodaBeanUtils.toString(getDefaultProviders())).append(',').append(' ');
     buf.append("jmsMarketDataAvailabilityTopic").append('=').append(JodaBeanUtils.toString(getJmsMarketDataAvailabilityTopic())).append(',').append(' ');
+    buf.append("conflatedTicks").append('=').append(JodaBeanUtils.toString(isConflatedTicks())).append(',').append(' ');
   }
 
   //-----------------------------------------------------------------------
@@ -433,6 +482,11 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
      */
     private final MetaProperty<String> _jmsMarketDataAvailabilityTopic = DirectMetaProperty.ofReadWrite(
         this, "jmsMarketDataAvailabilityTopic", LiveMarketDataProviderFactoryComponentFactory.class, String.class);
+    /**
+     * The meta-property for the {@code conflatedTicks} property.
+     */
+    private final MetaProperty<Boolean> _conflatedTicks = DirectMetaProperty.ofReadWrite(
+        this, "conflatedTicks", LiveMarketDataProviderFactoryComponentFactory.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
@@ -441,7 +495,8 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
         "classifier",
         "jmsConnector",
         "defaultProviders",
-        "jmsMarketDataAvailabilityTopic");
+        "jmsMarketDataAvailabilityTopic",
+        "conflatedTicks");
 
     /**
      * Restricted constructor.
@@ -460,6 +515,8 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
           return _defaultProviders;
         case 108776830:  // jmsMarketDataAvailabilityTopic
           return _jmsMarketDataAvailabilityTopic;
+        case 1111892156:  // conflatedTicks
+          return _conflatedTicks;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -512,6 +569,14 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
       return _jmsMarketDataAvailabilityTopic;
     }
 
+    /**
+     * The meta-property for the {@code conflatedTicks} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Boolean> conflatedTicks() {
+      return _conflatedTicks;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
@@ -524,6 +589,8 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
           return ((LiveMarketDataProviderFactoryComponentFactory) bean).getDefaultProviders();
         case 108776830:  // jmsMarketDataAvailabilityTopic
           return ((LiveMarketDataProviderFactoryComponentFactory) bean).getJmsMarketDataAvailabilityTopic();
+        case 1111892156:  // conflatedTicks
+          return ((LiveMarketDataProviderFactoryComponentFactory) bean).isConflatedTicks();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -543,6 +610,9 @@ public class LiveMarketDataProviderFactoryComponentFactory extends AbstractCompo
         case 108776830:  // jmsMarketDataAvailabilityTopic
           ((LiveMarketDataProviderFactoryComponentFactory) bean).setJmsMarketDataAvailabilityTopic((String) newValue);
           return;
+        case 1111892156:  // conflatedTicks
+          ((LiveMarketDataProviderFactoryComponentFactory) bean).setConflatedTicks((Boolean) newValue);
+          return;
       }
       super.propertySet(bean, propertyName, newValue, quiet);
     }
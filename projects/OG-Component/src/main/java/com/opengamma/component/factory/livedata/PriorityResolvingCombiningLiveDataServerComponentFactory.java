@@ -37,7 +37,7 @@ import com.opengamma.livedata.resolver.DistributionSpecificationResolver;
 import com.opengamma.livedata.server.LiveDataServerMBean;
 import com.opengamma.livedata.server.StandardLiveDataServer;
 import com.opengamma.livedata.server.combining.PriorityResolvingCombiningLiveDataServer;
-import com.opengamma.livedata.server.distribution.JmsSenderFactory;
+import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.provider.livedata.LiveDataMetaData;
 import com.opengamma.provider.livedata.LiveDataMetaDataProvider;
 import com.opengamma.provider.livedata.LiveDataServerTypes;
@@ -109,7 +109,7 @@ public class PriorityResolvingCombiningLiveDataServerComponentFactory extends Ab
     
     LiveDataEntitlementChecker entitlementChecker = new PermissiveLiveDataEntitlementChecker();
     
-    JmsSenderFactory senderFactory = new JmsSenderFactory(getJmsConnector());
+    MarketDataSenderFactory senderFactory = initMarketDataSenderFactory(repo);
     
     server.setDistributionSpecificationResolver(resolver);
     server.setEntitlementChecker(entitlementChecker);
@@ -91,7 +91,7 @@ public class RestComponents extends DirectBean {
    * @param info  the managed component info, not null
    * @param instance  the JAX-RS singleton instance, not null
    */
-  public void publish(ComponentInfo info, Object instance) {
+  public synchronized void publish(ComponentInfo info, Object instance) {
     ArgumentChecker.notNull(info, "info");
     ArgumentChecker.notNull(instance, "instance");
     if (info.getUri() != null) {
@@ -110,7 +110,7 @@ public class RestComponents extends DirectBean {
    * 
    * @param instance  the JAX-RS singleton instance, not null
    */
-  public void publishHelper(Object instance) {
+  public synchronized void publishHelper(Object instance) {
     ArgumentChecker.notNull(instance, "instance");
     
     getHelpers().add(instance);
@@ -124,7 +124,7 @@ public class RestComponents extends DirectBean {
    * 
    * @param singletonInstance  the unmanaged singleton instance, not null
    */
-  public void publishResource(Object singletonInstance) {
+  public synchronized void publishResource(Object singletonInstance) {
     ArgumentChecker.notNull(singletonInstance, "singletonInstance");
     
     getRootResourceSingletons().add(singletonInstance);
@@ -138,7 +138,7 @@ public class RestComponents extends DirectBean {
    * 
    * @param factory  the factory for creating the resource per request, not null
    */
-  public void publishResource(RestResourceFactory factory) {
+  public synchronized void publishResource(RestResourceFactory factory) {
     ArgumentChecker.notNull(factory, "factory");
     
     getRootResourceFactories().add(factory);
@@ -151,7 +151,7 @@ public class RestComponents extends DirectBean {
    * 
    * @param info  the component information, not null
    */
-  public void republish(ComponentInfo info) {
+  public synchronized void republish(ComponentInfo info) {
     ArgumentChecker.notNull(info, "info");
     
     getRemoteComponents().add(info);
@@ -9,6 +9,7 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.testng.annotations.Test;
@@ -50,6 +51,30 @@ public class ComponentManagerTest {
     assertEquals(3, list.size());
   }
 
+  @Test
+  public void test_loadInit_ini_parallel() {
+    ComponentManager mgr = new ComponentManager("testserver");
+    mgr.setInitThreads(4);
+    mgr.load("classpath:com/opengamma/component/test-success.ini");
+    mgr.init();
+    assertEquals(4, mgr.getInitThreads());
+    assertEquals("two", mgr.getConfigIni().getGroup("one").getValue("alpha"));
+    List<?> list = mgr.getRepository().getInstance(List.class, "two");
+    assertEquals(3, list.size());
+    assertEquals(2, mgr.getInitTimes().size());
+  }
+
+  @Test
+  public void test_loadInit_ini_parallelOutOfOrder() {
+    ComponentManager mgr = new ComponentManager("testserver");
+    mgr.setInitThreads(2);
+    mgr.load("classpath:com/opengamma/component/test-parallel.ini");
+    mgr.init();
+    List<?> list = mgr.getRepository().getInstance(List.class, "two");
+    assertEquals(3, list.size());
+    assertTrue(mgr.getInitTimes().keySet().containsAll(Arrays.asList("one", "two")));
+  }
+
   //-------------------------------------------------------------------------
   @Test(expectedExceptions = ComponentConfigException.class)
   public void test_load_badFileType() {
@@ -88,6 +113,21 @@ public class ComponentManagerTest {
     }
   }
 
+  @Test(expectedExceptions = ComponentConfigException.class)
+  public void test_loadInit_missingComponent_parallel() {
+    ComponentManager mgr = new ComponentManager("testserver");
+    mgr.setInitThreads(4);
+    mgr.load("classpath:com/opengamma/component/test-missingcomponentref.ini");
+    try {
+      mgr.init();
+    } catch (ComponentConfigException ex) {
+      assertTrue(ex.getMessage().contains("Unable to find component reference"));
+      assertTrue(ex.getMessage().contains("three"));
+      assertTrue(ex.getMessage().contains("epsilon"));
+      throw ex;
+    }
+  }
+
   @Test(expectedExceptions = ComponentConfigException.class)
   public void test_loadInit_duplicateGroup() {
     ComponentManager mgr = new ComponentManager("testserver");
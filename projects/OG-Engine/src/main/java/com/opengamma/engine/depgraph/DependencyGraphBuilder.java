@@ -83,6 +83,12 @@ public final class DependencyGraphBuilder implements Cancelable {
    */
   private static final int MAX_ADDITIONAL_THREADS = Integer.parseInt(System.getProperty("DependencyGraphBuilder.maxAdditionalThreads", "-1"));
 
+  /**
+   * Uses a work-stealing run queue, with a deque for each building thread, by default instead of a single shared queue. This scales better when many threads are used for graph building. This is
+   * false by default but can be controlled by the {@code DependencyGraphBuilder.workStealing} property.
+   */
+  private static final boolean WORK_STEALING = System.getProperty("DependencyGraphBuilder.workStealing", "FALSE").equalsIgnoreCase("TRUE");
+
   /**
    * Writes the dependency graph structure (in ASCII) out after each graph build completes. Graphs are written to the user's temporary folder with the name {@code dependencyGraph} and a numeric suffix
    * from the builder's object ID. The default value is off but can be controlled by the {@code DependencyGraphBuilder.dumpDependencyGraph} property.
@@ -105,6 +111,12 @@ public final class DependencyGraphBuilder implements Cancelable {
   /** Profiler for monitoring the {@link #abortLoops} operation. */
   private static final Profiler s_abortLoops = Profiler.create(DependencyGraphBuilder.class, "abortLoops");
 
+  /** Profiler counting the tasks deferred by {@link #buildGraph} because of contention with another thread. */
+  private static final Profiler s_deferred = Profiler.create(DependencyGraphBuilder.class, "deferred");
+
+  /** Profiler for monitoring the {@link #publishTargetReferences} operation. */
+  private static final Profiler s_publishTargetReferences = Profiler.create(DependencyGraphBuilder.class, "publishTargetReferences");
+
   /** The object id of this DependencyGraphBuilder (used in logs) */
   private final int _objectId = s_nextObjectId.incrementAndGet();
 
@@ -154,6 +166,9 @@ public final class DependencyGraphBuilder implements Cancelable {
   // The resolve task is NOT ref-counted (it is only used for parent comparisons), but the value producer is
   private final ConcurrentMap<ValueSpecification, MapEx<ResolveTask, ResolvedValueProducer>> _specifications = new ConcurrentHashMap<ValueSpecification, MapEx<ResolveTask, ResolvedValueProducer>>();
 
+  /** The target references resolved so far, published from the thread contexts in batches */
+  private final ConcurrentMap<ComputationTargetReference, ComputationTargetSpecification> _targetReferences = new ConcurrentHashMap<ComputationTargetReference, ComputationTargetSpecification>();
+
   /**
    * Number of additional threads to launch while requirements are being added or the graph is being built. The total number of threads used for graph construction may be up to this value or may be
    * one higher as a thread blocked on graph construction in the call to {@link #getDependencyGraph} will join in with the remaining construction.
@@ -177,7 +192,7 @@ public final class DependencyGraphBuilder implements Cancelable {
   }
 
   public static RunQueueFactory getDefaultRunQueueFactory() {
-    return RunQueueFactory.getConcurrentLinkedQueue();
+    return WORK_STEALING ? RunQueueFactory.getWorkStealing() : RunQueueFactory.getConcurrentLinkedQueue();
   }
 
   public DependencyGraphBuilder() {
@@ -371,6 +386,30 @@ public final class DependencyGraphBuilder implements Cancelable {
     return specification;
   }
 
+  /**
+   * Fetches a target reference resolution published by another thread's context.
+   * 
+   * @param reference the reference to look up, not null
+   * @return the resolved specification, or null if none has been published
+   */
+  protected ComputationTargetSpecification getPublishedTargetReference(final ComputationTargetReference reference) {
+    return _targetReferences.get(reference);
+  }
+
+  /**
+   * Publishes target reference resolutions made by a thread's context so that other threads do not need to resolve them again.
+   * 
+   * @param resolutions the resolutions to publish, not null
+   */
+  protected void publishTargetReferences(final Map<ComputationTargetReference, ComputationTargetSpecification> resolutions) {
+    s_publishTargetReferences.begin();
+    try {
+      _targetReferences.putAll(resolutions);
+    } finally {
+      s_publishTargetReferences.end();
+    }
+  }
+
   protected MapEx<ResolveTask, ResolvedValueProducer> getTasks(final ValueSpecification valueSpecification) {
     return _specifications.get(valueSpecification);
   }
@@ -718,6 +757,7 @@ public final class DependencyGraphBuilder implements Cancelable {
     if (!task.tryRun(context)) {
       // A concurrency limit was hit. Post the job into the contention buffer and try and take another from the run queue.
       do {
+        s_deferred.tick();
         _deferredQueue.add(task);
         task = _runQueue.take();
         if (task == null) {
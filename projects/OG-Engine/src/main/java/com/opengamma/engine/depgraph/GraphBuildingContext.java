@@ -44,9 +44,22 @@ import com.opengamma.util.tuple.Pairs;
 
   private static final int MAX_CALLBACK_DEPTH = 16;
 
+  /**
+   * The number of target reference resolutions to hold before publishing them to the builder.
+   */
+  private static final int PUBLISH_BATCH_SIZE = 256;
+
+  /**
+   * The number of entries to hold in each of the local caches before discarding them all.
+   */
+  private static final int LOCAL_CACHE_SIZE = 4096;
+
   private final DependencyGraphBuilder _builder;
   private Map<ExceptionWrapper, ExceptionWrapper> _exceptions;
   private int _stackDepth;
+  private final Map<ComputationTargetReference, ComputationTargetSpecification> _targetReferences = new HashMap<ComputationTargetReference, ComputationTargetSpecification>();
+  private Map<ComputationTargetReference, ComputationTargetSpecification> _unpublishedTargetReferences;
+  private final Map<ValueSpecification, ValueSpecification> _simplifiedSpecifications = new HashMap<ValueSpecification, ValueSpecification>();
 
   public GraphBuildingContext(final DependencyGraphBuilder builder) {
     _builder = builder;
@@ -509,8 +522,43 @@ import com.opengamma.util.tuple.Pairs;
     getBuilder().addResolvedValue(resolvedValue);
   }
 
+  /**
+   * Resolves a target reference, caching the result in this context and publishing it to the builder in batches for other threads to use.
+   * 
+   * @param reference the reference to resolve, not null
+   * @return the resolved specification, or null if it cannot be resolved
+   */
   public ComputationTargetSpecification resolveTargetReference(final ComputationTargetReference reference) {
-    return getBuilder().resolveTargetReference(reference);
+    ComputationTargetSpecification specification = _targetReferences.get(reference);
+    if (specification != null) {
+      return specification;
+    }
+    specification = getBuilder().getPublishedTargetReference(reference);
+    if (specification == null) {
+      specification = getBuilder().resolveTargetReference(reference);
+      if (specification == null) {
+        return null;
+      }
+      if (_unpublishedTargetReferences == null) {
+        _unpublishedTargetReferences = new HashMap<ComputationTargetReference, ComputationTargetSpecification>();
+      }
+      _unpublishedTargetReferences.put(reference, specification);
+      if (_unpublishedTargetReferences.size() >= PUBLISH_BATCH_SIZE) {
+        publishTargetReferences();
+      }
+    }
+    if (_targetReferences.size() >= LOCAL_CACHE_SIZE) {
+      _targetReferences.clear();
+    }
+    _targetReferences.put(reference, specification);
+    return specification;
+  }
+
+  private void publishTargetReferences() {
+    if (_unpublishedTargetReferences != null) {
+      getBuilder().publishTargetReferences(_unpublishedTargetReferences);
+      _unpublishedTargetReferences = null;
+    }
   }
 
   /**
@@ -522,13 +570,23 @@ import com.opengamma.util.tuple.Pairs;
    * @return the possibly simplified specification, not null
    */
   public ValueSpecification simplifyType(final ValueSpecification valueSpec) {
+    ValueSpecification result = _simplifiedSpecifications.get(valueSpec);
+    if (result != null) {
+      return result;
+    }
     final ComputationTargetSpecification oldTargetSpec = valueSpec.getTargetSpecification();
     final ComputationTargetSpecification newTargetSpec = ComputationTargetResolverUtils.simplifyType(oldTargetSpec, getCompilationContext().getComputationTargetResolver());
     if (newTargetSpec == oldTargetSpec) {
-      return MemoryUtils.instance(valueSpec);
+      result = MemoryUtils.instance(valueSpec);
     } else {
-      return MemoryUtils.instance(new ValueSpecification(valueSpec.getValueName(), newTargetSpec, valueSpec.getProperties()));
+      result = MemoryUtils.instance(new ValueSpecification(valueSpec.getValueName(), newTargetSpec, valueSpec.getProperties()));
     }
+    // Avoids the shared instance cache for specifications this thread sees repeatedly
+    if (_simplifiedSpecifications.size() >= LOCAL_CACHE_SIZE) {
+      _simplifiedSpecifications.clear();
+    }
+    _simplifiedSpecifications.put(valueSpec, result);
+    return result;
   }
 
   /**
@@ -629,6 +687,7 @@ import com.opengamma.util.tuple.Pairs;
    * @param context the other context
    */
   public synchronized void mergeThreadContext(final GraphBuildingContext context) {
+    context.publishTargetReferences();
     if (_exceptions == null) {
       _exceptions = new HashMap<ExceptionWrapper, ExceptionWrapper>();
     }
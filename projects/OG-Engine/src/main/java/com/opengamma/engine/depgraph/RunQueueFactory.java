@@ -111,4 +111,19 @@ public abstract class RunQueueFactory {
     };
   }
 
+  /**
+   * Creates queues that give each building thread its own LIFO deque and let threads with nothing to do take the oldest tasks from another
+   * thread's deque. This avoids contention on a single queue when many threads are used for graph building.
+   * 
+   * @return the factory instance
+   */
+  public static RunQueueFactory getWorkStealing() {
+    return new RunQueueFactory() {
+      @Override
+      protected RunQueue createRunQueue() {
+        return new WorkStealingRunQueue();
+      }
+    };
+  }
+
 }
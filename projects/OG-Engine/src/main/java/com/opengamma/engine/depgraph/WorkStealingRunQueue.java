@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.collect.Iterators;
+import com.opengamma.util.test.Profiler;
+
+/**
+ * Run queue implementation that gives each thread its own deque. A thread adds to and takes from the tail of its own deque, giving the same
+ * LIFO ordering as {@link StackRunQueue}, and only when that is empty takes from the head of another thread's deque. The threads building a
+ * graph therefore do not contend on a single queue, and work that is stolen is the oldest, and typically the largest, part of another thread's
+ * backlog.
+ */
+/* package */final class WorkStealingRunQueue implements RunQueue {
+
+  /** Profiler counting tasks taken from another thread's deque. */
+  private static final Profiler s_steal = Profiler.create(WorkStealingRunQueue.class, "steal");
+  /** Profiler counting takes that found every deque empty. */
+  private static final Profiler s_stealMiss = Profiler.create(WorkStealingRunQueue.class, "stealMiss");
+
+  private final List<Deque<ContextRunnable>> _deques = new CopyOnWriteArrayList<Deque<ContextRunnable>>();
+
+  private final ThreadLocal<Deque<ContextRunnable>> _local = new ThreadLocal<Deque<ContextRunnable>>() {
+    @Override
+    protected Deque<ContextRunnable> initialValue() {
+      final Deque<ContextRunnable> deque = new ConcurrentLinkedDeque<ContextRunnable>();
+      _deques.add(deque);
+      return deque;
+    }
+  };
+
+  @Override
+  public boolean isEmpty() {
+    for (Deque<ContextRunnable> deque : _deques) {
+      if (!deque.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Deque<ContextRunnable> deque : _deques) {
+      size += deque.size();
+    }
+    return size;
+  }
+
+  @Override
+  public Iterator<ContextRunnable> iterator() {
+    final List<Iterator<ContextRunnable>> iterators = new ArrayList<Iterator<ContextRunnable>>(_deques.size());
+    for (Deque<ContextRunnable> deque : _deques) {
+      iterators.add(deque.iterator());
+    }
+    return Iterators.concat(iterators.iterator());
+  }
+
+  @Override
+  public void add(final ContextRunnable runnable) {
+    _local.get().addLast(runnable);
+  }
+
+  @Override
+  public ContextRunnable take() {
+    final Deque<ContextRunnable> local = _local.get();
+    ContextRunnable runnable = local.pollLast();
+    if (runnable != null) {
+      return runnable;
+    }
+    final int count = _deques.size();
+    if (count > 1) {
+      // Start at a random deque so that idle threads spread out over the busy ones
+      final int start = ThreadLocalRandom.current().nextInt(count);
+      for (int i = 0; i < count; i++) {
+        final Deque<ContextRunnable> deque = _deques.get((start + i) % count);
+        if (deque != local) {
+          runnable = deque.pollFirst();
+          if (runnable != null) {
+            s_steal.tick();
+            return runnable;
+          }
+        }
+      }
+    }
+    s_stealMiss.tick();
+    return null;
+  }
+
+}
@@ -6,6 +6,7 @@
 package com.opengamma.engine.function;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Queue;
@@ -27,6 +28,10 @@ import com.opengamma.util.tuple.Pairs;
 
 /**
  * Implements a {@link FunctionRepositoryCompiler} that caches the results of previous compilations so that a minimal compilation is performed each time.
+ * <p>
+ * Whole repositories are cached for the instants they were compiled at. The compiled form of each function is also cached, independently
+ * of the repository it was compiled for, so that a function which has not been re-initialized is only recompiled when none of its earlier
+ * compilations is valid at the requested instant.
  */
 public class CachingFunctionRepositoryCompiler implements FunctionRepositoryCompiler {
 
@@ -61,6 +66,41 @@ public class CachingFunctionRepositoryCompiler implements FunctionRepositoryComp
   private long _functionInitId;
   private final ConcurrentMap<Pair<FunctionRepository, Instant>, Callable<CompiledFunctionRepository>> _activeCompilations =
       new ConcurrentHashMap<Pair<FunctionRepository, Instant>, Callable<CompiledFunctionRepository>>();
+  private final ConcurrentMap<String, CompiledFunctions> _compiledFunctions = new ConcurrentHashMap<String, CompiledFunctions>();
+  /**
+   * Counts the calls to {@link #invalidate}. A compilation that started before the most recent invalidation is not cached.
+   */
+  private volatile long _invalidations;
+
+  /**
+   * The compiled forms of a single function definition instance, most recent first.
+   */
+  private static final class CompiledFunctions {
+
+    private final FunctionDefinition _function;
+    private final ArrayDeque<CompiledFunctionDefinition> _compiled = new ArrayDeque<CompiledFunctionDefinition>();
+
+    private CompiledFunctions(final FunctionDefinition function) {
+      _function = function;
+    }
+
+    private synchronized CompiledFunctionDefinition find(final Instant atInstant) {
+      for (CompiledFunctionDefinition compiled : _compiled) {
+        if (isValid(compiled, atInstant)) {
+          return compiled;
+        }
+      }
+      return null;
+    }
+
+    private synchronized void add(final CompiledFunctionDefinition compiled, final int limit) {
+      _compiled.addFirst(compiled);
+      while (_compiled.size() > limit) {
+        _compiled.removeLast();
+      }
+    }
+
+  }
 
   public synchronized void setCacheSize(final int cacheSize) {
     _cacheSize = cacheSize;
@@ -81,6 +121,90 @@ public class CachingFunctionRepositoryCompiler implements FunctionRepositoryComp
     return _activeEntries;
   }
 
+  /**
+   * Tests whether a compiled function definition is valid at the given instant.
+   * 
+   * @param compiled the compiled definition, not null
+   * @param atInstant the instant, not null
+   * @return true if the definition can be used at the instant
+   */
+  protected static boolean isValid(final CompiledFunctionDefinition compiled, final Instant atInstant) {
+    final Instant validFrom = compiled.getEarliestInvocationTime();
+    if ((validFrom != null) && validFrom.isAfter(atInstant)) {
+      return false;
+    }
+    final Instant validUntil = compiled.getLatestInvocationTime();
+    return (validUntil == null) || !validUntil.isBefore(atInstant);
+  }
+
+  /**
+   * Discards the cached compilations of function definitions that are about to be (re-)initialized.
+   * 
+   * @param functions the functions being initialized, not null
+   */
+  public void invalidate(final Collection<FunctionDefinition> functions) {
+    synchronized (_compiledFunctions) {
+      _invalidations++;
+      for (FunctionDefinition function : functions) {
+        final CompiledFunctions compiled = _compiledFunctions.get(function.getUniqueId());
+        if ((compiled != null) && (compiled._function == function)) {
+          _compiledFunctions.remove(function.getUniqueId(), compiled);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a function to a repository from an earlier compilation of the same definition instance, if one is valid at the given instant.
+   * 
+   * @param compiled the repository being compiled, not null
+   * @param function the function to add, not null
+   * @param atInstant the instant the repository is being compiled for, not null
+   * @return true if the function was added, false if it must be compiled
+   */
+  protected boolean addFunctionFromCompiledFunctions(final InMemoryCompiledFunctionRepository compiled, final FunctionDefinition function, final Instant atInstant) {
+    final CompiledFunctions previous = _compiledFunctions.get(function.getUniqueId());
+    if ((previous == null) || (previous._function != function)) {
+      return false;
+    }
+    final CompiledFunctionDefinition compiledFunction = previous.find(atInstant);
+    if (compiledFunction == null) {
+      return false;
+    }
+    compiled.addFunction(compiledFunction);
+    return true;
+  }
+
+  /**
+   * Compiles a single function definition, caching the compiled form for reuse by later compilations.
+   * <p>
+   * The compiled form is not cached if {@link #invalidate} was called while it was being compiled, as it may have been produced from the
+   * state of the function before it was re-initialized.
+   * 
+   * @param context the compilation context, not null
+   * @param function the function to compile, not null
+   * @param atInstant the instant to compile for, not null
+   * @return the compiled definition, not null
+   */
+  protected CompiledFunctionDefinition compileFunction(final FunctionCompilationContext context, final FunctionDefinition function, final Instant atInstant) {
+    s_logger.debug("Compiling {}", function);
+    final long invalidations = _invalidations;
+    final CompiledFunctionDefinition compiled = function.compile(context, atInstant);
+    synchronized (_compiledFunctions) {
+      if (_invalidations != invalidations) {
+        s_logger.debug("Not caching compilation of {} started before invalidation", function);
+        return compiled;
+      }
+      CompiledFunctions cached = _compiledFunctions.get(function.getUniqueId());
+      if ((cached == null) || (cached._function != function)) {
+        cached = new CompiledFunctions(function);
+        _compiledFunctions.put(function.getUniqueId(), cached);
+      }
+      cached.add(compiled, getCacheSize());
+    }
+    return compiled;
+  }
+
   protected boolean addFunctionFromCachedRepository(final InMemoryCompiledFunctionRepository before, final InMemoryCompiledFunctionRepository after, final InMemoryCompiledFunctionRepository compiled,
       final FunctionDefinition function, final Instant atInstant) {
     if (before != null) {
@@ -139,16 +263,17 @@ public class CachingFunctionRepositoryCompiler implements FunctionRepositoryComp
       }
 
     });
+    int reused = 0;
     for (final FunctionDefinition function : functions.getAllFunctions()) {
-      if (addFunctionFromCachedRepository(before, after, compiled, function, atInstant)) {
+      if (addFunctionFromCachedRepository(before, after, compiled, function, atInstant) || addFunctionFromCompiledFunctions(compiled, function, atInstant)) {
+        reused++;
         continue;
       }
       jobs.execute(new Callable<CompiledFunctionDefinition>() {
         @Override
         public CompiledFunctionDefinition call() throws Exception {
           try {
-            s_logger.debug("Compiling {}", function);
-            return function.compile(context, atInstant);
+            return compileFunction(context, function, atInstant);
           } catch (final Exception e) {
             s_logger.warn("Compiling {} threw {}", function.getShortName(), e);
             throw e;
@@ -165,6 +290,7 @@ public class CachingFunctionRepositoryCompiler implements FunctionRepositoryComp
     if (failures.get() != 0) {
       s_logger.error("Encountered {} errors while compiling repository", failures);
     }
+    s_logger.info("Compiled function repository for {} reusing {} earlier compilations", atInstant, reused);
     return compiled;
   }
 
@@ -263,9 +389,18 @@ public class CachingFunctionRepositoryCompiler implements FunctionRepositoryComp
     return compiled;
   }
 
+  /**
+   * Discards the cached repositories if the functions have been re-initialized since they were compiled.
+   * <p>
+   * The cached compilations of individual functions are kept; those of any functions that were re-initialized will have been discarded by
+   * {@link #invalidate}.
+   * 
+   * @param initId the current function initialization identifier
+   */
   protected synchronized void clearInvalidCache(final Long initId) {
     if ((initId != null) && (_functionInitId != initId)) {
       getCompilationCache().clear();
+      getActiveCacheEntries().clear();
       _functionInitId = initId;
     }
   }
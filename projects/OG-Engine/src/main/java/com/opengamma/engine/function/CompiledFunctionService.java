@@ -228,6 +228,10 @@ public class CompiledFunctionService implements Lifecycle {
     });
     getFunctionCompilationContext().setFunctionReinitializer(_reinitializer);
     getFunctionCompilationContext().setFunctionInitId(initId);
+    if (getFunctionRepositoryCompiler() instanceof CachingFunctionRepositoryCompiler) {
+      // Earlier compilations of the functions being initialized may no longer be valid
+      ((CachingFunctionRepositoryCompiler) getFunctionRepositoryCompiler()).invalidate(functions);
+    }
     synchronized (initialized) {
       for (final FunctionDefinition definition : functions) {
         initialized.remove(definition);
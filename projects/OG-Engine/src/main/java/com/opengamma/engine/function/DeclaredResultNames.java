@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.function;
+
+import java.util.Set;
+
+import com.opengamma.util.PublicAPI;
+
+/**
+ * Optional interface for a {@link CompiledFunctionDefinition} that can state, without a target, the names of all the values it might produce.
+ * <p>
+ * A function resolver can use this to skip functions that cannot produce a requested value without calling {@link CompiledFunctionDefinition#getResults(FunctionCompilationContext, com.opengamma.engine.ComputationTarget)}
+ * on every target. The declaration is a maximal set; the results for an actual target may be any subset of it.
+ */
+@PublicAPI
+public interface DeclaredResultNames {
+
+  /**
+   * Returns the names of every value the function might produce on any target it can apply to.
+   *
+   * @param context the function compilation context, not null
+   * @return the value names, or null if these can't be determined without a target
+   */
+  Set<String> getResultValueNames(FunctionCompilationContext context);
+
+}
@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 
+import com.opengamma.engine.function.config.FunctionConfiguration;
 import com.opengamma.engine.view.ViewProcessor;
 import com.opengamma.util.ArgumentChecker;
 
@@ -27,6 +28,7 @@ public class InMemoryFunctionRepository implements FunctionRepository {
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryFunctionRepository.class);
 
   private final Map<String, FunctionDefinition> _functions = new HashMap<String, FunctionDefinition>();
+  private final Map<String, FunctionConfiguration> _configurations = new HashMap<String, FunctionConfiguration>();
   private final AtomicInteger _nextIdentifier = new AtomicInteger();
 
   public InMemoryFunctionRepository() {
@@ -78,6 +80,22 @@ public class InMemoryFunctionRepository implements FunctionRepository {
   }
 
   public synchronized void addFunction(FunctionDefinition function) {
+    add(function);
+  }
+
+  /**
+   * Adds a function that was created from a configuration entry, recording the entry so that the repository's content can be compared with
+   * that of another repository built from the same configuration.
+   *
+   * @param function the function, not null
+   * @param configuration the configuration the function was created from, not null
+   */
+  public synchronized void addFunction(final FunctionDefinition function, final FunctionConfiguration configuration) {
+    ArgumentChecker.notNull(configuration, "configuration");
+    _configurations.put(add(function), configuration);
+  }
+
+  private String add(FunctionDefinition function) {
     ArgumentChecker.notNull(function, "Function definition");
     if (function.getUniqueId() == null) {
       if (function instanceof AbstractFunction) {
@@ -89,12 +107,14 @@ public class InMemoryFunctionRepository implements FunctionRepository {
       function = new IdentifiedFunction(function, createId(function.getShortName()));
     }
     _functions.put(function.getUniqueId(), function);
+    return function.getUniqueId();
   }
 
   public synchronized void replaceFunction(String functionIdentifier, FunctionDefinition function) {
     ArgumentChecker.notNull(functionIdentifier, "functionIdentifier");
     ArgumentChecker.notNull(function, "function");
     _functions.remove(functionIdentifier);
+    _configurations.remove(functionIdentifier);
     addFunction(function);
   }
 
@@ -108,6 +128,16 @@ public class InMemoryFunctionRepository implements FunctionRepository {
     return _functions.get(uniqueId);
   }
 
+  /**
+   * Returns the configuration entry a function was created from.
+   *
+   * @param uniqueId the unique identifier of the function, not null
+   * @return the configuration, or null if the function was not added with one
+   */
+  public synchronized FunctionConfiguration getFunctionConfiguration(final String uniqueId) {
+    return _configurations.get(uniqueId);
+  }
+
   /**
    * This method is primarily useful for testing, as otherwise it will be done explicitly by the {@link ViewProcessor} on startup.
    * 
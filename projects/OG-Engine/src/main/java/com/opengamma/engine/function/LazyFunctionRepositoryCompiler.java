@@ -65,7 +65,7 @@ public class LazyFunctionRepositoryCompiler extends CachingFunctionRepositoryCom
       final InMemoryCompiledFunctionRepository before, final InMemoryCompiledFunctionRepository after, final PoolExecutor executorService) {
     final Repository compiled = new Repository(context, atInstant);
     for (final FunctionDefinition function : functions.getAllFunctions()) {
-      if (addFunctionFromCachedRepository(before, after, compiled, function, atInstant)) {
+      if (addFunctionFromCachedRepository(before, after, compiled, function, atInstant) || addFunctionFromCompiledFunctions(compiled, function, atInstant)) {
         continue;
       }
       compiled.addUncompiledFunction(function);
@@ -150,7 +150,7 @@ public abstract class FunctionRepositoryFactory implements ChangeProvider {
     try {
       final Class<?> definitionClass = ReflectionUtils.loadClass(functionConfig.getDefinitionClassName());
       final AbstractFunction functionDefinition = createParameterizedFunction(definitionClass, functionConfig.getParameter());
-      repository.addFunction(functionDefinition);
+      repository.addFunction(functionDefinition, functionConfig);
     } catch (final RuntimeException ex) {
       s_logger.error("Unable to add function definition {}, ignoring", functionConfig);
       s_logger.info("Caught exception", ex);
@@ -207,7 +207,7 @@ public abstract class FunctionRepositoryFactory implements ChangeProvider {
     try {
       final Class<?> definitionClass = ReflectionUtils.loadClass(functionConfig.getDefinitionClassName());
       final AbstractFunction functionDefinition = createStaticFunction(definitionClass);
-      repository.addFunction(functionDefinition);
+      repository.addFunction(functionDefinition, functionConfig);
     } catch (final RuntimeException ex) {
       s_logger.error("Unable to add function definition {}, ignoring", functionConfig);
       s_logger.info("Caught exception", ex);
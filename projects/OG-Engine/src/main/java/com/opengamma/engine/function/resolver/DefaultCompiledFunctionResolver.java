@@ -17,7 +17,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +31,7 @@ import com.opengamma.engine.ComputationTargetResolver;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.MemoryUtils;
 import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.DeclaredResultNames;
 import com.opengamma.engine.function.FunctionCompilationContext;
 import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.function.blacklist.FunctionBlacklistQuery;
@@ -41,8 +44,6 @@ import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.id.UniqueIdentifiable;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.function.BinaryOperator;
-import com.opengamma.util.tuple.Pair;
-import com.opengamma.util.tuple.Pairs;
 import com.opengamma.util.tuple.Triple;
 
 /**
@@ -218,7 +219,120 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
 
   }
 
-  private static class FoldedCompiledRuleBundle extends ArrayList<Collection<ResolutionRule>> implements Iterable<Collection<ResolutionRule>> {
+  /**
+   * Holds the rules for a target type in blocks of descending priority order, once the rules have been compiled. The rules are also indexed by the names of the values they can produce so that a
+   * resolution only needs to consider rules that might satisfy it.
+   */
+  private static class CompiledRuleBundle extends ArrayList<Collection<ResolutionRule>> implements Iterable<Collection<ResolutionRule>> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * All of the rules, in priority order, or null if the index has not been built.
+     */
+    private ResolutionRule[] _rules;
+    /**
+     * The value names declared by each rule's function, null for any that can't be declared without a target.
+     */
+    private Set<String>[] _valueNames;
+    /**
+     * The indices of rules that might produce each value name, in priority order.
+     */
+    private final ConcurrentMap<String, int[]> _candidates = new ConcurrentHashMap<String, int[]>();
+
+    public CompiledRuleBundle() {
+    }
+
+    public CompiledRuleBundle(final Iterable<Collection<ResolutionRule>> rules) {
+      for (Collection<ResolutionRule> priorityRules : rules) {
+        add(priorityRules);
+      }
+    }
+
+    /**
+     * Returns all of the rules in priority order.
+     * 
+     * @param context the compilation context to query declared function results with, not null
+     * @return the rules, not null
+     */
+    public synchronized ResolutionRule[] getRules(final FunctionCompilationContext context) {
+      if (_rules == null) {
+        int count = 0;
+        for (Collection<ResolutionRule> priorityRules : this) {
+          count += priorityRules.size();
+        }
+        final ResolutionRule[] rules = new ResolutionRule[count];
+        @SuppressWarnings("unchecked")
+        final Set<String>[] valueNames = new Set[count];
+        int declared = 0;
+        count = 0;
+        for (Collection<ResolutionRule> priorityRules : this) {
+          for (ResolutionRule rule : priorityRules) {
+            rules[count] = rule;
+            valueNames[count] = getDeclaredResultNames(rule, context);
+            if (valueNames[count] != null) {
+              declared++;
+            }
+            count++;
+          }
+        }
+        s_logger.debug("{} of {} rules declare their result names", declared, count);
+        _valueNames = valueNames;
+        _rules = rules;
+      }
+      return _rules;
+    }
+
+    /**
+     * Returns the indices of the rules that might produce a value, in priority order. These are the rules which declare the value name and any which do not declare their result names.
+     * 
+     * @param valueName the value name, not null
+     * @param context the compilation context to query declared function results with, not null
+     * @return the indices into the array from {@link #getRules}, not null
+     */
+    public int[] getCandidates(final String valueName, final FunctionCompilationContext context) {
+      int[] candidates = _candidates.get(valueName);
+      if (candidates == null) {
+        candidates = createCandidates(valueName, context);
+        final int[] existing = _candidates.putIfAbsent(valueName, candidates);
+        if (existing != null) {
+          candidates = existing;
+        }
+      }
+      return candidates;
+    }
+
+    private synchronized int[] createCandidates(final String valueName, final FunctionCompilationContext context) {
+      final ResolutionRule[] rules = getRules(context);
+      final int[] candidates = new int[rules.length];
+      int count = 0;
+      for (int i = 0; i < rules.length; i++) {
+        if ((_valueNames[i] == null) || _valueNames[i].contains(valueName)) {
+          candidates[count++] = i;
+        }
+      }
+      return Arrays.copyOf(candidates, count);
+    }
+
+    private static Set<String> getDeclaredResultNames(final ResolutionRule rule, final FunctionCompilationContext context) {
+      final CompiledFunctionDefinition function = rule.getParameterizedFunction().getFunction();
+      if (function instanceof DeclaredResultNames) {
+        try {
+          final Set<String> valueNames = ((DeclaredResultNames) function).getResultValueNames(context);
+          if (valueNames != null) {
+            return new HashSet<String>(valueNames);
+          }
+        } catch (RuntimeException e) {
+          s_logger.warn("Couldn't get declared result names from {}: {}", function, e.getMessage());
+          s_logger.debug("Caught exception", e);
+        }
+      }
+      return null;
+    }
+
+  }
+
+  private static class FoldedCompiledRuleBundle extends CompiledRuleBundle {
 
     private static final long serialVersionUID = 1L;
 
@@ -304,11 +418,6 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
    */
   private final ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>> _type2Rules = new ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>>(s_foldRules);
 
-  /**
-   * The total number of unique rules.
-   */
-  private int _ruleCount;
-
   /**
    * The compilation context.
    */
@@ -317,7 +426,7 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
   /**
    * Cache of targets. The values are weak so that when the function iterators drop out of scope as the requirements on the target are resolved the entry can be dropped.
    */
-  private final ConcurrentMap<ComputationTargetSpecification, Pair<ResolutionRule[], Collection<ValueSpecification>[]>> _targetCache = new MapMaker().weakValues().makeMap();
+  private final ConcurrentMap<ComputationTargetSpecification, TargetRules> _targetCache = new MapMaker().weakValues().makeMap();
 
   /**
    * Function definition lookup.
@@ -435,6 +544,9 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
 
   /**
    * Processes the rules into data structures used for resolution. After calling this method, no further rules must be added using {@link #addRule} or {@link #addRules}.
+   * <p>
+   * The rules for each target type are indexed by the value names their functions declare through {@link DeclaredResultNames}. A resolution only considers the rules that declare the requested value
+   * name and the rules that cannot declare their results in advance.
    */
   public void compileRules() {
     final Iterator<Map.Entry<ComputationTargetType, Iterable<Collection<ResolutionRule>>>> itr = _type2Rules.entries().iterator();
@@ -443,18 +555,18 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
       final Map.Entry<ComputationTargetType, Iterable<Collection<ResolutionRule>>> e = itr.next();
       final Iterable<Collection<ResolutionRule>> v = e.getValue();
       if (v instanceof ChainedRuleBundle) {
-        final Iterable<Collection<ResolutionRule>> rules = ((ChainedRuleBundle) v).prioritize();
-        if (rules != null) {
+        final Iterable<Collection<ResolutionRule>> prioritized = ((ChainedRuleBundle) v).prioritize();
+        if (prioritized != null) {
+          final CompiledRuleBundle rules = new CompiledRuleBundle(prioritized);
           e.setValue(rules);
-          for (Collection<ResolutionRule> rule : rules) {
-            count += rule.size();
-          }
+          // Query the declared result names now rather than during graph construction
+          count += rules.getRules(getFunctionCompilationContext()).length;
         } else {
           itr.remove();
         }
       }
     }
-    _ruleCount = count;
+    s_logger.debug("Compiled {} rules", count);
   }
 
   @Override
@@ -505,7 +617,79 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
     }
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * The rules that apply to a target, and the results of those that have been considered so far. The results of a rule are only calculated when a value it might produce is requested.
+   * <p>
+   * The results are held in an array indexed by rule which is only allocated when the first rule is considered, so targets that are never resolved don't
+   * pay for it. The slots are set atomically so that they can be read without locking.
+   */
+  private static final class TargetRules {
+
+    private static final Collection<ValueSpecification> NO_RESULTS = Collections.emptySet();
+
+    private final CompiledRuleBundle _bundle;
+    private final ResolutionRule[] _rules;
+    private volatile AtomicReferenceArray<Collection<ValueSpecification>> _results;
+
+    private TargetRules(final CompiledRuleBundle bundle, final FunctionCompilationContext context) {
+      _bundle = bundle;
+      _rules = bundle.getRules(context);
+    }
+
+    public ResolutionRule getRule(final int index) {
+      return _rules[index];
+    }
+
+    public int[] getCandidates(final String valueName, final FunctionCompilationContext context) {
+      return _bundle.getCandidates(valueName, context);
+    }
+
+    private AtomicReferenceArray<Collection<ValueSpecification>> getResultsArray() {
+      AtomicReferenceArray<Collection<ValueSpecification>> results = _results;
+      if (results == null) {
+        synchronized (this) {
+          results = _results;
+          if (results == null) {
+            results = new AtomicReferenceArray<Collection<ValueSpecification>>(_rules.length);
+            _results = results;
+          }
+        }
+      }
+      return results;
+    }
+
+    /**
+     * Returns the results of a rule, calculating them if this is the first time the rule has been considered for the target.
+     * 
+     * @param index the index of the rule
+     * @param adjustedTarget the target, adjusted for the rule, not null
+     * @param context the compilation context, not null
+     * @return the results, or null if the rule produces none
+     */
+    public Collection<ValueSpecification> getResults(final int index, final ComputationTarget adjustedTarget, final FunctionCompilationContext context) {
+      final AtomicReferenceArray<Collection<ValueSpecification>> considered = getResultsArray();
+      Collection<ValueSpecification> results = considered.get(index);
+      if (results == null) {
+        results = NO_RESULTS;
+        try {
+          final Set<ValueSpecification> ruleResults = _rules[index].getResults(adjustedTarget, context);
+          if ((ruleResults != null) && !ruleResults.isEmpty()) {
+            results = reduceMemory(ruleResults, context.getComputationTargetResolver());
+          }
+        } catch (RuntimeException e) {
+          s_logger.error("Couldn't process rule {} for {}: {}", new Object[] {_rules[index], adjustedTarget, e.getMessage() });
+          s_logger.info("Caught exception", e);
+        }
+        if (!considered.compareAndSet(index, null, results)) {
+          // another thread considered the rule first
+          results = considered.get(index);
+        }
+      }
+      return (results == NO_RESULTS) ? null : results;
+    }
+
+  }
+
   @Override
   public Iterator<Triple<ParameterizedFunction, ValueSpecification, Collection<ValueSpecification>>> resolveFunction(final String valueName, final ComputationTarget target,
       final ValueProperties constraints) {
@@ -513,44 +697,21 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
     // TODO [PLAT-2286] Don't key the cache by target specification as the contexts may vary. E.g. the (PORTFOLIO_NODE/POSITION, node0, pos0) target
     // will have considered all the rules for (POSITION, pos0). We want to share this, not duplicate the effort (and the storage)
     final ComputationTargetSpecification targetSpecification = MemoryUtils.instance(ComputationTargetResolverUtils.simplifyType(target.toSpecification(), resolver));
-    Pair<ResolutionRule[], Collection<ValueSpecification>[]> cached = _targetCache.get(targetSpecification);
+    TargetRules cached = _targetCache.get(targetSpecification);
     if (cached == null) {
-      int resolutions = 0;
-      ResolutionRule[] resolutionRules = new ResolutionRule[_ruleCount];
-      Collection<ValueSpecification>[] resolutionResults = new Collection[_ruleCount];
       final Iterable<Collection<ResolutionRule>> typeRules = _type2Rules.get(target.getType());
-      if (typeRules != null) {
-        try {
-          final Map<ComputationTargetType, ComputationTarget> adjusted = new HashMap<ComputationTargetType, ComputationTarget>();
-          for (Collection<ResolutionRule> rules : typeRules) {
-            assert resolutions + rules.size() <= resolutionRules.length;
-            for (ResolutionRule rule : rules) {
-              final ComputationTarget adjustedTarget = rule.adjustTarget(adjusted, target);
-              if (adjustedTarget != null) {
-                final Set<ValueSpecification> results = rule.getResults(adjustedTarget, getFunctionCompilationContext());
-                if ((results != null) && !results.isEmpty()) {
-                  resolutionRules[resolutions] = rule;
-                  resolutionResults[resolutions] = reduceMemory(results, resolver);
-                  resolutions++;
-                }
-              }
-            }
-          }
-        } catch (RuntimeException e) {
-          s_logger.error("Couldn't process rules for {}: {}", target, e.getMessage());
-          s_logger.info("Caught exception", e);
-          // Now have an incomplete rule set for the target, possibly even an empty one
-        }
+      final CompiledRuleBundle bundle;
+      if (typeRules instanceof CompiledRuleBundle) {
+        bundle = (CompiledRuleBundle) typeRules;
+      } else if (typeRules != null) {
+        // Rules have not been compiled; use them in their arbitrary order
+        bundle = new CompiledRuleBundle(typeRules);
       } else {
         s_logger.warn("No rules for target type {}", target);
+        bundle = new CompiledRuleBundle();
       }
-      // TODO: the array of rules is probably getting duplicated for each similar target (e.g. all swaps probably use the same rules)
-      if (resolutions != resolutionRules.length) {
-        resolutionRules = Arrays.copyOf(resolutionRules, resolutions);
-        resolutionResults = Arrays.copyOf(resolutionResults, resolutions);
-      }
-      cached = (Pair<ResolutionRule[], Collection<ValueSpecification>[]>) (Pair<?, ?>) Pairs.of(resolutionRules, resolutionResults);
-      final Pair<ResolutionRule[], Collection<ValueSpecification>[]> existing = _targetCache.putIfAbsent(targetSpecification, cached);
+      cached = new TargetRules(bundle, getFunctionCompilationContext());
+      final TargetRules existing = _targetCache.putIfAbsent(targetSpecification, cached);
       if (existing != null) {
         cached = existing;
       }
@@ -567,35 +728,38 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
     private final ComputationTargetSpecification _target;
     private final String _valueName;
     private final ValueProperties _constraints;
-    private final Pair<ResolutionRule[], Collection<ValueSpecification>[]> _values;
+    private final TargetRules _rules;
+    private final int[] _candidates;
     private int _itr;
     private Triple<ParameterizedFunction, ValueSpecification, Collection<ValueSpecification>> _next;
 
     private It(final String valueName, final ComputationTargetSpecification targetSpecification, final ValueProperties constraints, final ComputationTarget target,
-        final FunctionCompilationContext context, final Pair<ResolutionRule[], Collection<ValueSpecification>[]> values) {
+        final FunctionCompilationContext context, final TargetRules rules) {
       _context = context;
       _target = targetSpecification;
       _valueName = valueName;
       _constraints = constraints;
-      _values = values;
+      _rules = rules;
+      _candidates = rules.getCandidates(valueName, context);
       findNext(target);
     }
 
     private void findNext(final ComputationTarget target) {
-      final ResolutionRule[] rules = _values.getFirst();
-      final Collection<ValueSpecification>[] resultSets = _values.getSecond();
       final FunctionBlacklistQuery blacklist = _context.getGraphBuildingBlacklist();
-      while (_itr < rules.length) {
-        final ResolutionRule rule = rules[_itr];
+      while (_itr < _candidates.length) {
+        final int index = _candidates[_itr];
+        final ResolutionRule rule = _rules.getRule(index);
         if (!blacklist.isBlacklisted(rule.getParameterizedFunction(), _target)) {
           final ComputationTarget adjustedTarget = rule.adjustTarget(target);
           if (adjustedTarget != null) {
-            final Collection<ValueSpecification> resultSet = resultSets[_itr];
-            final ValueSpecification result = rule.getResult(_valueName, adjustedTarget, _constraints, resultSet);
-            if (result != null) {
-              _next = Triple.of(rule.getParameterizedFunction(), result, resultSet);
-              _itr++;
-              return;
+            final Collection<ValueSpecification> resultSet = _rules.getResults(index, adjustedTarget, _context);
+            if (resultSet != null) {
+              final ValueSpecification result = rule.getResult(_valueName, adjustedTarget, _constraints, resultSet);
+              if (result != null) {
+                _next = Triple.of(rule.getParameterizedFunction(), result, resultSet);
+                _itr++;
+                return;
+              }
             }
           }
         }
@@ -5,6 +5,9 @@
  */
 package com.opengamma.engine.view;
 
+import java.io.File;
+
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +33,7 @@ import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.engine.view.permission.ViewPortfolioPermissionProvider;
 import com.opengamma.engine.view.worker.SingleThreadViewProcessWorkerFactory;
 import com.opengamma.engine.view.worker.ViewProcessWorkerFactory;
+import com.opengamma.engine.view.worker.cache.FileViewExecutionCache;
 import com.opengamma.engine.view.worker.cache.InMemoryViewExecutionCache;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCache;
 import com.opengamma.util.ArgumentChecker;
@@ -60,6 +64,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   private OverrideOperationCompiler _overrideOperationCompiler = new DummyOverrideOperationCompiler();
   private ViewResultListenerFactory _batchViewClientFactory;
   private ViewExecutionCache _viewExecutionCache = new InMemoryViewExecutionCache();
+  private String _viewExecutionCacheDirectory;
   private int _permissionCheckInterval;
   private boolean _useAutoStartViews;
 
@@ -184,6 +189,20 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
     _viewExecutionCache = viewExecutionCache;
   }
 
+  public String getViewExecutionCacheDirectory() {
+    return _viewExecutionCacheDirectory;
+  }
+
+  /**
+   * Sets a directory to keep compiled view definitions in so that they survive a restart. If set, a {@link FileViewExecutionCache} is used in
+   * place of the view execution cache.
+   *
+   * @param viewExecutionCacheDirectory the directory, null or empty to use the view execution cache
+   */
+  public void setViewExecutionCacheDirectory(final String viewExecutionCacheDirectory) {
+    _viewExecutionCacheDirectory = viewExecutionCacheDirectory;
+  }
+
   public void setUseAutoStartViews(boolean useAutoStartViews) {
     _useAutoStartViews = useAutoStartViews;
   }
@@ -208,6 +227,14 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
     ArgumentChecker.notNullInjected(getViewExecutionCache(), "viewExecutionCache");
   }
 
+  protected ViewExecutionCache createViewExecutionCache() {
+    if (StringUtils.isBlank(getViewExecutionCacheDirectory())) {
+      return getViewExecutionCache();
+    }
+    s_logger.info("Using view execution cache in {}", getViewExecutionCacheDirectory());
+    return new FileViewExecutionCache(new File(getViewExecutionCacheDirectory()), getFunctionCompilationService());
+  }
+
   @Override
   public ViewProcessor createObject() {
     checkInjectedInputs();
@@ -228,7 +255,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
         getOverrideOperationCompiler(),
         getViewResultListenerFactory(),
         getViewProcessWorkerFactory(),
-        getViewExecutionCache(),
+        createViewExecutionCache(),
         _permissionCheckInterval,
         _useAutoStartViews);
   }
@@ -1360,6 +1360,10 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
                 // TODO: [PLAT-2237, PLAT-1623, PLAT-2240] Get rid of this
                 break;
               }
+              if (!compiledViewDefinition.getCompiledCalculationConfigurationsMap().keySet().containsAll(getViewDefinition().getAllCalculationConfigurationNames())) {
+                // Only some of the graphs could be reused (e.g. from a persistent cache after the view definition changed); compile the missing ones
+                previousGraphs = getPreviousGraphs(previousGraphs, compiledViewDefinition);
+              }
               final Map<ComputationTargetReference, UniqueId> resolvedIdentifiers = compiledViewDefinition.getResolvedIdentifiers();
               // TODO: The check below works well for the historical valuation case, but if the resolver v/c is different for two workers in the
               // group for an otherwise identical cache key then including it in the caching detail may become necessary to handle those cases.
@@ -0,0 +1,573 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphExplorer;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionDefinition;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.FunctionRepository;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A {@link ViewExecutionCache} that keeps compiled view definitions in a local directory so that they survive a restart of the engine.
+ * <p>
+ * Each entry is written to its own file as a compressed serialization of the dependency graphs and target resolutions. An entry read back
+ * from disk is only used if it was compiled against the same function repository and its portfolio can still be resolved. The resolver
+ * version/correction is kept as it was, so the view process worker will check the resolutions against the current version and recompile
+ * anything that has changed. When the view definition has changed since the entry was written, the graphs of calculation configurations
+ * that are unchanged are kept and the worker only compiles the others.
+ * <p>
+ * Entries are written by a background thread so that the view compilation storing them is not held up by the disk. If a view definition is
+ * recompiled before its previous compilation has been written, only the latest is written.
+ */
+public class FileViewExecutionCache implements ViewExecutionCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(FileViewExecutionCache.class);
+
+  private static final String FILE_SUFFIX = ".cvd";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final File _directory;
+
+  private final ComputationTargetResolver _targetResolver;
+
+  private final CompiledFunctionService _functions;
+
+  private final ConcurrentMap<ViewExecutionCacheKey, CompiledViewDefinitionWithGraphs> _compiledViewDefinitionsFrontCache = new MapMaker().weakValues().makeMap();
+
+  /**
+   * The files holding each entry.
+   */
+  private final ConcurrentMap<ViewExecutionCacheKey, File> _files = new ConcurrentHashMap<ViewExecutionCacheKey, File>();
+
+  /**
+   * The compilation identifiers of the entries last written, used to avoid rewriting an entry that has only had its resolver version/correction
+   * advanced.
+   */
+  private final ConcurrentMap<ViewExecutionCacheKey, String> _written = new ConcurrentHashMap<ViewExecutionCacheKey, String>();
+
+  /**
+   * The compiled view definitions waiting to be written.
+   */
+  private final ConcurrentMap<ViewExecutionCacheKey, CompiledViewDefinitionWithGraphs> _pendingWrites = new ConcurrentHashMap<ViewExecutionCacheKey, CompiledViewDefinitionWithGraphs>();
+
+  private final Executor _writer;
+
+  private FunctionRepository _fingerprintRepository;
+
+  private String _fingerprint;
+
+  /**
+   * Creates a new instance, indexing any entries already in the directory.
+   *
+   * @param directory the directory to hold the cache files, not null
+   * @param targetResolver the target resolver for portfolio and view definition objects, not null
+   * @param functions the compiled function service the view definitions are compiled against, not null
+   */
+  public FileViewExecutionCache(final File directory, final ComputationTargetResolver targetResolver, final CompiledFunctionService functions) {
+    this(directory, targetResolver, functions, Executors.newSingleThreadExecutor(new NamedThreadPoolFactory("FileViewExecutionCache", true)));
+  }
+
+  /**
+   * Creates a new instance, indexing any entries already in the directory.
+   *
+   * @param directory the directory to hold the cache files, not null
+   * @param targetResolver the target resolver for portfolio and view definition objects, not null
+   * @param functions the compiled function service the view definitions are compiled against, not null
+   * @param writer the executor to write entries with, not null
+   */
+  public FileViewExecutionCache(final File directory, final ComputationTargetResolver targetResolver, final CompiledFunctionService functions, final Executor writer) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(targetResolver, "targetResolver");
+    ArgumentChecker.notNull(functions, "functions");
+    ArgumentChecker.notNull(writer, "writer");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create cache directory " + directory);
+    }
+    _directory = directory;
+    _targetResolver = targetResolver;
+    _functions = functions;
+    _writer = writer;
+    index();
+  }
+
+  /**
+   * Creates a new instance, indexing any entries already in the directory.
+   *
+   * @param directory the directory to hold the cache files, not null
+   * @param cfs the compiled function service, holding a computation target resolver, not null
+   */
+  public FileViewExecutionCache(final File directory, final CompiledFunctionService cfs) {
+    this(directory, cfs.getFunctionCompilationContext().getRawComputationTargetResolver(), cfs);
+  }
+
+  /**
+   * For testing only.
+   */
+  /* package */void clearFrontCache() {
+    _compiledViewDefinitionsFrontCache.clear();
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public ComputationTargetResolver getTargetResolver() {
+    return _targetResolver;
+  }
+
+  public CompiledFunctionService getFunctions() {
+    return _functions;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The state of a compiled view definition as written to disk.
+   */
+  /* package */static final class Entry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] _viewDefinition;
+    private final VersionCorrection _versionCorrection;
+    private final String _compilationId;
+    private final Collection<DependencyGraph> _graphs;
+    private final Map<ComputationTargetReference, UniqueId> _resolutions;
+    private final UniqueId _portfolio;
+    private final long _functionInitId;
+    private final Collection<CompiledViewCalculationConfiguration> _calcConfigs;
+    private final Instant _validFrom;
+    private final Instant _validTo;
+
+    public Entry(final CompiledViewDefinitionWithGraphs viewDef) {
+      final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+      _viewDefinition = fudgeContext.toByteArray(fudgeContext.toFudgeMsg(viewDef.getViewDefinition()).getMessage());
+      _versionCorrection = viewDef.getResolverVersionCorrection();
+      _compilationId = viewDef.getCompilationIdentifier();
+      final Collection<DependencyGraphExplorer> graphs = viewDef.getDependencyGraphExplorers();
+      _graphs = new ArrayList<DependencyGraph>(graphs.size());
+      for (DependencyGraphExplorer explorer : graphs) {
+        _graphs.add(explorer.getWholeGraph());
+      }
+      _resolutions = new HashMap<ComputationTargetReference, UniqueId>(viewDef.getResolvedIdentifiers());
+      _portfolio = (viewDef.getPortfolio() != null) ? viewDef.getPortfolio().getUniqueId() : null;
+      _functionInitId = ((CompiledViewDefinitionWithGraphsImpl) viewDef).getFunctionInitId();
+      _calcConfigs = new ArrayList<CompiledViewCalculationConfiguration>(viewDef.getCompiledCalculationConfigurations());
+      _validFrom = viewDef.getValidFrom();
+      _validTo = viewDef.getValidTo();
+    }
+
+    /**
+     * Returns the view definition the entry was compiled from. This is not Java serializable so is held in its Fudge encoded form.
+     *
+     * @return the view definition, not null
+     */
+    public ViewDefinition getViewDefinition() {
+      final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+      return new FudgeDeserializer(fudgeContext).fudgeMsgToObject(ViewDefinition.class, fudgeContext.deserialize(_viewDefinition).getMessage());
+    }
+
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns a stable fingerprint of the current function repository. Graphs refer to functions by their identifiers so can only be used
+   * against a repository that assigns the same identifiers to the same functions, created with the same parameters.
+   * <p>
+   * The fingerprint covers each function's identifier, class, name and default parameters and, if the repository was built from a function
+   * configuration, the configuration entry the function was created from.
+   *
+   * @return the fingerprint, or null if the function repository has not been initialized
+   */
+  protected synchronized String getFunctionRepositoryFingerprint() {
+    final FunctionRepository repository = getFunctions().getFunctionRepository();
+    if (repository == null) {
+      return null;
+    }
+    if (repository != _fingerprintRepository) {
+      final List<String> functions = new ArrayList<String>();
+      for (FunctionDefinition function : repository.getAllFunctions()) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(function.getUniqueId()).append('\t').append(function.getClass().getName()).append('\t').append(function.getShortName());
+        sb.append('\t').append(getParametersFingerprint(function.getDefaultParameters()));
+        if (repository instanceof InMemoryFunctionRepository) {
+          sb.append('\t').append(((InMemoryFunctionRepository) repository).getFunctionConfiguration(function.getUniqueId()));
+        }
+        functions.add(sb.toString());
+      }
+      Collections.sort(functions);
+      final Hasher hasher = Hashing.sha1().newHasher();
+      for (String function : functions) {
+        hasher.putString(function, UTF8).putByte((byte) '\n');
+      }
+      _fingerprint = hasher.hash().toString();
+      _fingerprintRepository = repository;
+    }
+    return _fingerprint;
+  }
+
+  private static String getParametersFingerprint(final FunctionParameters parameters) {
+    if (parameters == null) {
+      return "null";
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(parameters);
+    } catch (IOException e) {
+      // Not serializable after all; the string form is the best we can do
+      return parameters.getClass().getName() + ":" + parameters;
+    }
+    return Hashing.sha1().hashBytes(bytes.toByteArray()).toString();
+  }
+
+  private void index() {
+    final File[] files = getDirectory().listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.getName().endsWith(TEMP_SUFFIX)) {
+        // Left over from an interrupted write
+        delete(file);
+      } else if (file.getName().endsWith(FILE_SUFFIX)) {
+        try (ObjectInputStream in = open(file)) {
+          final ViewExecutionCacheKey key = (ViewExecutionCacheKey) in.readObject();
+          _files.put(key, file);
+          s_logger.debug("Found CompiledViewDefinitionWithGraphs for {} in {}", key, file);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+          s_logger.warn("Discarding unreadable cache file {}: {}", file, e.getMessage());
+          delete(file);
+        }
+      }
+    }
+    s_logger.info("Found {} CompiledViewDefinitionWithGraphs in {}", _files.size(), getDirectory());
+  }
+
+  private static void delete(final File file) {
+    if (!file.delete() && file.exists()) {
+      s_logger.warn("Couldn't delete {}", file);
+    }
+  }
+
+  private static ObjectInputStream open(final File file) throws IOException {
+    final InputStream raw = new FileInputStream(file);
+    try {
+      final ObjectInputStream in = new ObjectInputStream(new InflaterInputStream(new BufferedInputStream(raw)));
+      final int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported format version " + version);
+      }
+      return in;
+    } catch (IOException | RuntimeException e) {
+      raw.close();
+      throw e;
+    }
+  }
+
+  private File createFile(final ViewExecutionCacheKey key) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't serialize " + key, e);
+    }
+    return new File(getDirectory(), Hashing.sha1().hashBytes(bytes.toByteArray()).toString() + FILE_SUFFIX);
+  }
+
+  private void write(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final String functions = getFunctionRepositoryFingerprint();
+    if (functions == null) {
+      s_logger.debug("Not writing {} before the function repository is initialized", key);
+      return;
+    }
+    File file = _files.get(key);
+    File temp = null;
+    try {
+      if (file == null) {
+        file = createFile(key);
+      }
+      temp = File.createTempFile("cvd", TEMP_SUFFIX, getDirectory());
+      try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeObject(key);
+        out.writeUTF(functions);
+        out.writeObject(new Entry(viewDefinition));
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      _files.put(key, file);
+      s_logger.debug("Wrote CompiledViewDefinitionWithGraphs for {} to {}", key, file);
+    } catch (IOException | RuntimeException e) {
+      s_logger.warn("Couldn't write CompiledViewDefinitionWithGraphs for {}: {}", key, e.getMessage());
+      if (temp != null) {
+        delete(temp);
+      }
+    }
+  }
+
+  /**
+   * Schedules a compiled view definition to be written, replacing any earlier compilation for the key that has not yet been written.
+   *
+   * @param key the key, not null
+   * @param viewDefinition the compiled view definition, not null
+   */
+  private void scheduleWrite(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    if (_pendingWrites.put(key, viewDefinition) != null) {
+      // The write already scheduled will pick up this compilation
+      return;
+    }
+    _writer.execute(new Runnable() {
+      @Override
+      public void run() {
+        final CompiledViewDefinitionWithGraphs pending = _pendingWrites.remove(key);
+        if (pending != null) {
+          write(key, pending);
+        }
+      }
+    });
+  }
+
+  private Entry read(final File file) {
+    try (ObjectInputStream in = open(file)) {
+      in.readObject();
+      final String functions = in.readUTF();
+      if (!functions.equals(getFunctionRepositoryFingerprint())) {
+        s_logger.info("Function repository has changed since {} was written", file);
+        return null;
+      }
+      return (Entry) in.readObject();
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      s_logger.warn("Couldn't read cache file {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  private ComputationTarget resolve(final ComputationTargetSpecification spec, final VersionCorrection versionCorrection) {
+    try {
+      return getTargetResolver().resolve(spec, versionCorrection);
+    } catch (RuntimeException e) {
+      s_logger.warn("Couldn't resolve {}: {}", spec, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Recreates the compiled view definition for a key from an entry, discarding the graphs of any calculation configurations that have changed.
+   *
+   * @param key the key the compiled view definition is for, not null
+   * @param entry the entry read from disk, not null
+   * @param written true if the entry was written by this instance, false if it was from an earlier process
+   * @return the compiled view definition, or null if none of the entry can be used
+   */
+  private CompiledViewDefinitionWithGraphs restore(final ViewExecutionCacheKey key, final Entry entry, final boolean written) {
+    final ComputationTarget viewDefinitionTarget = resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), key.getViewDefinitionId()), VersionCorrection.LATEST);
+    if (viewDefinitionTarget == null) {
+      s_logger.info("View definition for {} is no longer available", key);
+      return null;
+    }
+    final ViewDefinition viewDefinition = (ViewDefinition) viewDefinitionTarget.getValue();
+    final ViewDefinition previousViewDefinition = entry.getViewDefinition();
+    if (!ObjectUtils.equals(viewDefinition.getPortfolioId(), previousViewDefinition.getPortfolioId())) {
+      s_logger.info("Portfolio for {} has changed", key);
+      return null;
+    }
+    Portfolio portfolio = null;
+    if (entry._portfolio != null) {
+      final ComputationTarget portfolioTarget = resolve(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, entry._portfolio), entry._versionCorrection);
+      if (portfolioTarget == null) {
+        s_logger.info("Portfolio {} for {} is no longer available", entry._portfolio, key);
+        return null;
+      }
+      portfolio = (Portfolio) portfolioTarget.getValue();
+    }
+    final Collection<DependencyGraph> graphs = new ArrayList<DependencyGraph>(entry._graphs.size());
+    final Set<String> calcConfigNames = new HashSet<String>();
+    for (DependencyGraph graph : entry._graphs) {
+      final String calcConfigName = graph.getCalculationConfigurationName();
+      final ViewCalculationConfiguration calcConfig = viewDefinition.getCalculationConfiguration(calcConfigName);
+      if ((calcConfig != null) && calcConfig.equals(previousViewDefinition.getCalculationConfiguration(calcConfigName))) {
+        graphs.add(graph);
+        calcConfigNames.add(calcConfigName);
+      } else {
+        s_logger.info("Discarding stale {} graph for {}", calcConfigName, key);
+      }
+    }
+    if (graphs.isEmpty()) {
+      return null;
+    }
+    final Collection<CompiledViewCalculationConfiguration> calcConfigs = new ArrayList<CompiledViewCalculationConfiguration>(calcConfigNames.size());
+    for (CompiledViewCalculationConfiguration calcConfig : entry._calcConfigs) {
+      if (calcConfigNames.contains(calcConfig.getName())) {
+        calcConfigs.add(calcConfig);
+      }
+    }
+    long functionInitId = entry._functionInitId;
+    if (!written) {
+      // The function repository is equivalent to the one the graphs were built from but will have been initialized with a different identifier
+      final Long currentInitId = getFunctions().getFunctionCompilationContext().getFunctionInitId();
+      if (currentInitId != null) {
+        functionInitId = currentInitId;
+      }
+    }
+    return new CompiledViewDefinitionWithGraphsImpl(entry._versionCorrection, entry._compilationId, viewDefinition, graphs, entry._resolutions, portfolio, functionInitId, calcConfigs,
+        entry._validFrom, entry._validTo);
+  }
+
+  /**
+   * Finds the most recently written entry for another version of the view definition in a key.
+   *
+   * @param key the key to match, not null
+   * @return the file holding the entry, or null if there is none
+   */
+  private File findPreviousVersion(final ViewExecutionCacheKey key) {
+    final ViewExecutionCacheKey latest = key.toLatest();
+    File previous = null;
+    for (Map.Entry<ViewExecutionCacheKey, File> file : _files.entrySet()) {
+      if (latest.equals(file.getKey().toLatest())) {
+        if ((previous == null) || (file.getValue().lastModified() > previous.lastModified())) {
+          previous = file.getValue();
+        }
+      }
+    }
+    return previous;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public CompiledViewDefinitionWithGraphs getCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key) {
+    CompiledViewDefinitionWithGraphs graphs = _compiledViewDefinitionsFrontCache.get(key);
+    if (graphs != null) {
+      s_logger.debug("Front cache hit CompiledViewDefinitionWithGraphs for {}", key);
+      return graphs;
+    }
+    final File file = _files.get(key);
+    if (file != null) {
+      final Entry entry = read(file);
+      if (entry != null) {
+        graphs = restore(key, entry, _written.containsKey(key));
+      }
+      if (graphs == null) {
+        s_logger.info("Discarding CompiledViewDefinitionWithGraphs for {}", key);
+        _files.remove(key, file);
+        delete(file);
+      }
+    } else {
+      final File previous = findPreviousVersion(key);
+      if (previous != null) {
+        final Entry entry = read(previous);
+        if (entry != null) {
+          graphs = restore(key, entry, false);
+        }
+      }
+    }
+    if (graphs != null) {
+      s_logger.debug("Disk cache hit CompiledViewDefinitionWithGraphs for {}", key);
+      final CompiledViewDefinitionWithGraphs existing = _compiledViewDefinitionsFrontCache.putIfAbsent(key, graphs);
+      if (existing != null) {
+        graphs = existing;
+      }
+    } else {
+      s_logger.debug("Disk cache miss CompiledViewDefinitionWithGraphs for {}", key);
+    }
+    return graphs;
+  }
+
+  @Override
+  public void setCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final CompiledViewDefinitionWithGraphs existing = _compiledViewDefinitionsFrontCache.put(key, viewDefinition);
+    if (existing == viewDefinition) {
+      return;
+    }
+    final String compilationId = viewDefinition.getCompilationIdentifier();
+    if ((compilationId != null) && compilationId.equals(_written.get(key)) && _files.containsKey(key)) {
+      // Only the resolver version/correction has changed; the worker will revalidate the stored form against the newer one after a restart
+      s_logger.debug("Already stored CompiledViewDefinitionWithGraphs {} for {}", compilationId, key);
+      return;
+    }
+    s_logger.info("Storing CompiledViewDefinitionWithGraphs for {}", key);
+    if (compilationId != null) {
+      _written.put(key, compilationId);
+    }
+    scheduleWrite(key, viewDefinition);
+  }
+
+  @Override
+  public void clear() {
+    _compiledViewDefinitionsFrontCache.clear();
+    s_logger.info("Clearing all CompiledViewDefinitionWithGraphs");
+    _pendingWrites.clear();
+    for (ViewExecutionCacheKey key : new ArrayList<ViewExecutionCacheKey>(_files.keySet())) {
+      final File file = _files.remove(key);
+      if (file != null) {
+        delete(file);
+      }
+    }
+    _written.clear();
+  }
+
+}
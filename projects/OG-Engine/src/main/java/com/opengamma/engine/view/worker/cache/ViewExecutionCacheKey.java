@@ -54,6 +54,27 @@ public final class ViewExecutionCacheKey implements Serializable {
     return new ViewExecutionCacheKey(viewDefinition.getUniqueId(), marketDataProvider.getAvailabilityHintKey(), getMarketDataSelectorCacheHintKey(graphManipulations));
   }
 
+  /**
+   * Returns the unique identifier of the view definition the key was created for.
+   * 
+   * @return the view definition identifier, not null
+   */
+  /* package */UniqueId getViewDefinitionId() {
+    return _viewDefinitionId;
+  }
+
+  /**
+   * Returns a key that matches this one for any version of the same view definition.
+   * 
+   * @return the key, not null
+   */
+  /* package */ViewExecutionCacheKey toLatest() {
+    if (_viewDefinitionId.isLatest()) {
+      return this;
+    }
+    return new ViewExecutionCacheKey(_viewDefinitionId.toLatest(), _marketDataProvider, _scenarioManipulations);
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (o == this) {
@@ -6,9 +6,12 @@
 package com.opengamma.engine.function;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotSame;
 import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -168,4 +171,65 @@ public class CachingFunctionRepositoryCompilerTest {
     }
   }
 
+  public void testReinitialize() {
+    TestLifecycle.begin();
+    try {
+      final InMemoryFunctionRepository functions = new InMemoryFunctionRepository();
+      final MockFunction alwaysValid = new MockFunction("always valid", null, null);
+      final MockFunction validUntil = new MockFunction("valid until", null, 30L);
+      functions.addFunction(alwaysValid);
+      functions.addFunction(validUntil);
+      final CachingFunctionRepositoryCompiler compiler = new CachingFunctionRepositoryCompiler();
+      final FunctionCompilationContext context = new FunctionCompilationContext();
+      context.setRawComputationTargetResolver(new DefaultComputationTargetResolver());
+      final CompiledFunctionService cfs = new CompiledFunctionService(functions, compiler, context);
+      TestLifecycle.register(cfs);
+      cfs.initialize(1L);
+      final Instant timestamp = Instant.now();
+      final CompiledFunctionRepository compiledFunctionsNow = cfs.compileFunctionRepository(timestamp);
+      assertEquals(1, alwaysValid._compileCount.get());
+      assertEquals(1, validUntil._compileCount.get());
+
+      // Nothing re-initialized, so the earlier compilations are used for the new repository
+      cfs.reinitializeIfNeeded(2L);
+      final CompiledFunctionRepository compiledFunctionsReinitialized = cfs.compileFunctionRepository(timestamp.plusMillis(31L));
+      assertNotSame(compiledFunctionsNow, compiledFunctionsReinitialized);
+      assertSame(compiledFunctionsNow.getDefinition(alwaysValid.getUniqueId()), compiledFunctionsReinitialized.getDefinition(alwaysValid.getUniqueId()));
+      assertEquals(1, alwaysValid._compileCount.get());
+      assertEquals(2, validUntil._compileCount.get());
+
+      // Everything initialized again, so everything is recompiled
+      cfs.initialize(3L);
+      cfs.compileFunctionRepository(timestamp);
+      assertEquals(2, alwaysValid._compileCount.get());
+      assertEquals(3, validUntil._compileCount.get());
+    } finally {
+      TestLifecycle.end();
+    }
+  }
+
+  public void testInvalidateDuringCompile() {
+    final CachingFunctionRepositoryCompiler compiler = new CachingFunctionRepositoryCompiler();
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    final MockFunction function = new MockFunction("invalidated", null, null) {
+      @Override
+      public CompiledFunctionDefinition compile(final FunctionCompilationContext context, final Instant atInstant) {
+        final CompiledFunctionDefinition compiled = super.compile(context, atInstant);
+        if (_compileCount.get() == 1) {
+          // The function is re-initialized while the first compilation is running
+          compiler.invalidate(Collections.<FunctionDefinition>singleton(this));
+        }
+        return compiled;
+      }
+    };
+    final Instant timestamp = Instant.now();
+    compiler.compileFunction(context, function, timestamp);
+    assertFalse(compiler.addFunctionFromCompiledFunctions(new InMemoryCompiledFunctionRepository(context), function, timestamp));
+    final CompiledFunctionDefinition compiled = compiler.compileFunction(context, function, timestamp);
+    final InMemoryCompiledFunctionRepository repository = new InMemoryCompiledFunctionRepository(context);
+    assertTrue(compiler.addFunctionFromCompiledFunctions(repository, function, timestamp));
+    assertSame(compiled, repository.getDefinition(function.getUniqueId()));
+    assertEquals(2, function._compileCount.get());
+  }
+
 }
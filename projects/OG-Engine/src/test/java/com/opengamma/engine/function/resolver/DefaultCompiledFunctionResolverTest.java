@@ -7,6 +7,7 @@ package com.opengamma.engine.function.resolver;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -31,6 +32,7 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.DefaultComputationTargetResolver;
 import com.opengamma.engine.function.AbstractFunction;
 import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.DeclaredResultNames;
 import com.opengamma.engine.function.FunctionCompilationContext;
 import com.opengamma.engine.function.FunctionInvoker;
 import com.opengamma.engine.function.ParameterizedFunction;
@@ -467,4 +469,55 @@ public class DefaultCompiledFunctionResolverTest {
     assertEquals(itr.next().getFirst(), pfn1);
   }
 
+
+  private static class DeclaringTestFunction extends PrimitiveTestFunction implements DeclaredResultNames {
+
+    private final Set<String> _declared;
+    private int _getResultsCalls;
+
+    public DeclaringTestFunction(final String valueName, final boolean declare) {
+      super(valueName);
+      _declared = declare ? Collections.singleton(valueName) : null;
+    }
+
+    @Override
+    public Set<String> getResultValueNames(final FunctionCompilationContext context) {
+      return _declared;
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      _getResultsCalls++;
+      return super.getResults(context, target);
+    }
+
+  }
+
+  public void testDeclaredResultNames() {
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("scheme", "test_target"));
+    final DeclaringTestFunction declaresA = new DeclaringTestFunction("A", true);
+    final DeclaringTestFunction declaresB = new DeclaringTestFunction("B", true);
+    final DeclaringTestFunction undeclaredA = new DeclaringTestFunction("A", false);
+    final ParameterizedFunction pfnDeclaresA = function(declaresA, "1");
+    final ParameterizedFunction pfnDeclaresB = function(declaresB, "2");
+    final ParameterizedFunction pfnUndeclaredA = function(undeclaredA, "3");
+    final DefaultCompiledFunctionResolver resolver = new DefaultCompiledFunctionResolver(createFunctionCompilationContext());
+    resolver.addRule(new ResolutionRule(pfnDeclaresA, ApplyToAllTargets.INSTANCE, 1));
+    resolver.addRule(new ResolutionRule(pfnDeclaresB, ApplyToAllTargets.INSTANCE, 3));
+    resolver.addRule(new ResolutionRule(pfnUndeclaredA, ApplyToAllTargets.INSTANCE, 2));
+    resolver.compileRules();
+    Iterator<Triple<ParameterizedFunction, ValueSpecification, Collection<ValueSpecification>>> itr = resolver.resolveFunction("A", target, ValueProperties.none());
+    // Priority order is kept across declared and undeclared rules
+    assertSame(itr.next().getFirst(), pfnUndeclaredA);
+    assertSame(itr.next().getFirst(), pfnDeclaresA);
+    assertFalse(itr.hasNext());
+    // The function declaring only B was never asked for its results
+    assertEquals(declaresB._getResultsCalls, 0);
+    assertEquals(declaresA._getResultsCalls, 1);
+    assertEquals(undeclaredA._getResultsCalls, 1);
+    itr = resolver.resolveFunction("B", target, ValueProperties.none());
+    assertSame(itr.next().getFirst(), pfnDeclaresB);
+    assertFalse(itr.hasNext());
+  }
+
 }
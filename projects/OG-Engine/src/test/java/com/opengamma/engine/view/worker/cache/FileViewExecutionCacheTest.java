@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.config.ParameterizedFunctionConfiguration;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetRequirement;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.test.PrimitiveTestFunction;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfigurationImpl;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link FileViewExecutionCache} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class FileViewExecutionCacheTest {
+
+  private final Instant _now = Instant.now();
+  private File _directory;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    _directory = Files.createTempDirectory("FileViewExecutionCacheTest").toFile();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    final File[] files = _directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    _directory.delete();
+  }
+
+  private Portfolio createPortfolio() {
+    return new SimplePortfolio(UniqueId.of("Portfolio", "0", "V"), "Portfolio");
+  }
+
+  private ViewDefinition createViewDefinition(final String version, final String otherRequirement) {
+    final ViewDefinition viewDefinition = new ViewDefinition("TestView", UniqueId.of("Portfolio", "0"), "TestUser");
+    viewDefinition.setUniqueId(UniqueId.of("View", "0", version));
+    viewDefinition.addViewCalculationConfiguration(new ViewCalculationConfiguration(viewDefinition, "Default"));
+    final ViewCalculationConfiguration other = new ViewCalculationConfiguration(viewDefinition, "Other");
+    other.addSpecificRequirement(new ValueRequirement(otherRequirement, ComputationTargetSpecification.NULL, ValueProperties.none()));
+    viewDefinition.addViewCalculationConfiguration(other);
+    return viewDefinition;
+  }
+
+  private DependencyGraph createDependencyGraph(final String calcConfigName) {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder(calcConfigName);
+    final NodeBuilder n1 = gb.addNode("Foo", ComputationTargetSpecification.NULL);
+    n1.addTerminalOutput("Foo");
+    final NodeBuilder n2 = gb.addNode("Bar", ComputationTargetSpecification.NULL);
+    n1.addInput(n2.addOutput("Bar"));
+    return gb.buildGraph();
+  }
+
+  private CompiledViewDefinitionWithGraphs createCompiledViewDefinitionWithGraphs(final String compilationId) {
+    final Collection<DependencyGraph> graphs = new ArrayList<DependencyGraph>();
+    final Collection<CompiledViewCalculationConfiguration> calcConfigs = new ArrayList<CompiledViewCalculationConfiguration>();
+    for (String calcConfigName : new String[] {"Default", "Other" }) {
+      final DependencyGraph graph = createDependencyGraph(calcConfigName);
+      graphs.add(graph);
+      calcConfigs.add(CompiledViewCalculationConfigurationImpl.of(graph));
+    }
+    final Map<ComputationTargetReference, UniqueId> resolutions = ImmutableMap.<ComputationTargetReference, UniqueId>of(new ComputationTargetRequirement(ComputationTargetType.SECURITY,
+        ExternalId.of("Security", "Foo")), UniqueId.of("Sec", "0"));
+    return new CompiledViewDefinitionWithGraphsImpl(VersionCorrection.of(_now, _now), compilationId, createViewDefinition("1", "Foo"), graphs, resolutions, createPortfolio(), 1L,
+        calcConfigs, null, null);
+  }
+
+  private CompiledFunctionService createFunctions(final long initId, final String... functions) {
+    final InMemoryFunctionRepository repository = new InMemoryFunctionRepository();
+    for (String function : functions) {
+      repository.addFunction(new PrimitiveTestFunction(function));
+    }
+    return createFunctions(initId, repository);
+  }
+
+  private CompiledFunctionService createParameterizedFunctions(final long initId, final String parameter, final String... functions) {
+    final InMemoryFunctionRepository repository = new InMemoryFunctionRepository();
+    for (String function : functions) {
+      repository.addFunction(new PrimitiveTestFunction(function),
+          new ParameterizedFunctionConfiguration(PrimitiveTestFunction.class.getName(), Collections.singleton(parameter)));
+    }
+    return createFunctions(initId, repository);
+  }
+
+  private CompiledFunctionService createFunctions(final long initId, final InMemoryFunctionRepository repository) {
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    context.setFunctionInitId(initId);
+    final CompiledFunctionService cfs = Mockito.mock(CompiledFunctionService.class);
+    Mockito.when(cfs.getFunctionRepository()).thenReturn(repository);
+    Mockito.when(cfs.getFunctionCompilationContext()).thenReturn(context);
+    return cfs;
+  }
+
+  private FileViewExecutionCache createCache(final CompiledFunctionService functions) {
+    return createCache(functions, MoreExecutors.sameThreadExecutor());
+  }
+
+  private FileViewExecutionCache createCache(final CompiledFunctionService functions, final Executor writer) {
+    final ComputationTargetResolver targetResolver = Mockito.mock(ComputationTargetResolver.class);
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, UniqueId.of("Portfolio", "0", "V")), VersionCorrection.of(_now, _now)))
+        .thenReturn(new ComputationTarget(ComputationTargetType.PORTFOLIO, createPortfolio()));
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), UniqueId.of("View", "0", "1")), VersionCorrection.LATEST))
+        .thenReturn(new ComputationTarget(ComputationTargetType.of(ViewDefinition.class), createViewDefinition("1", "Foo")));
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), UniqueId.of("View", "0", "2")), VersionCorrection.LATEST))
+        .thenReturn(new ComputationTarget(ComputationTargetType.of(ViewDefinition.class), createViewDefinition("2", "Bar")));
+    return new FileViewExecutionCache(_directory, targetResolver, functions, writer);
+  }
+
+  private static ViewExecutionCacheKey key(final String version) {
+    return new ViewExecutionCacheKey(UniqueId.of("View", "0", version), "Foo", "No-op");
+  }
+
+  //-------------------------------------------------------------------------
+  public void testCaching() {
+    final FileViewExecutionCache cache = createCache(createFunctions(1L, "A", "B"));
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs("1");
+    // Miss
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key("1")));
+    // Store
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), object);
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key("1")), object);
+    // Hit the file, written by this instance so the function initialization identifier is unchanged
+    cache.clearFrontCache();
+    final CompiledViewDefinitionWithGraphs cachedObject = cache.getCompiledViewDefinitionWithGraphs(key("1"));
+    assertNotNull(cachedObject);
+    assertEquals(((CompiledViewDefinitionWithGraphsImpl) cachedObject).getFunctionInitId(), 1L);
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key("1")), cachedObject);
+  }
+
+  public void testRestart() {
+    createCache(createFunctions(1L, "A", "B")).setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    final FileViewExecutionCache cache = createCache(createFunctions(2L, "A", "B"));
+    final CompiledViewDefinitionWithGraphs object = cache.getCompiledViewDefinitionWithGraphs(key("1"));
+    assertNotNull(object);
+    assertEquals(((CompiledViewDefinitionWithGraphsImpl) object).getFunctionInitId(), 2L);
+    assertEquals(object.getResolverVersionCorrection(), VersionCorrection.of(_now, _now));
+    assertEquals(object.getCompiledCalculationConfigurationsMap().keySet(), ImmutableSet.of("Default", "Other"));
+    assertEquals(object.getResolvedIdentifiers(), createCompiledViewDefinitionWithGraphs("1").getResolvedIdentifiers());
+    assertEquals(object.getPortfolio(), createPortfolio());
+  }
+
+  public void testRestartWithDifferentFunctions() {
+    createCache(createFunctions(1L, "A", "B")).setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    final FileViewExecutionCache cache = createCache(createFunctions(2L, "A", "C"));
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key("1")));
+    assertEquals(_directory.list().length, 0);
+  }
+
+  public void testRestartWithDifferentFunctionParameters() {
+    createCache(createParameterizedFunctions(1L, "X", "A", "B")).setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    assertNotNull(createCache(createParameterizedFunctions(2L, "X", "A", "B")).getCompiledViewDefinitionWithGraphs(key("1")));
+    final FileViewExecutionCache cache = createCache(createParameterizedFunctions(3L, "Y", "A", "B"));
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key("1")));
+    assertEquals(_directory.list().length, 0);
+  }
+
+  public void testPartialReuse() {
+    createCache(createFunctions(1L, "A", "B")).setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    final FileViewExecutionCache cache = createCache(createFunctions(2L, "A", "B"));
+    // Version 2 of the view definition only changes the "Other" configuration
+    final CompiledViewDefinitionWithGraphs object = cache.getCompiledViewDefinitionWithGraphs(key("2"));
+    assertNotNull(object);
+    assertEquals(object.getViewDefinition().getUniqueId(), UniqueId.of("View", "0", "2"));
+    assertEquals(object.getCompiledCalculationConfigurationsMap().keySet(), ImmutableSet.of("Default"));
+    assertEquals(object.getDependencyGraphExplorers().size(), 1);
+    // The entry for the previous version is kept
+    assertNotNull(cache.getCompiledViewDefinitionWithGraphs(key("1")));
+  }
+
+  public void testResolverUpdateNotRewritten() {
+    final FileViewExecutionCache cache = createCache(createFunctions(1L, "A", "B"));
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs("1");
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), object);
+    final File file = _directory.listFiles()[0];
+    file.setLastModified(0);
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), object.withResolverVersionCorrection(VersionCorrection.LATEST));
+    assertEquals(file.lastModified(), 0);
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("2"));
+    assertFalse(file.lastModified() == 0);
+  }
+
+  public void testWriteInBackground() {
+    final Queue<Runnable> writes = new ArrayDeque<Runnable>();
+    final FileViewExecutionCache cache = createCache(createFunctions(1L, "A", "B"), new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        writes.add(command);
+      }
+    });
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs("2");
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), object);
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key("1")), object);
+    assertEquals(_directory.list().length, 0);
+    // Only the latest compilation is written
+    assertEquals(writes.size(), 1);
+    writes.remove().run();
+    assertEquals(_directory.list().length, 1);
+    final CompiledViewDefinitionWithGraphs cachedObject = createCache(createFunctions(2L, "A", "B")).getCompiledViewDefinitionWithGraphs(key("1"));
+    assertEquals(cachedObject.getCompilationIdentifier(), "2");
+  }
+
+  public void testClear() {
+    final FileViewExecutionCache cache = createCache(createFunctions(1L, "A", "B"));
+    cache.setCompiledViewDefinitionWithGraphs(key("1"), createCompiledViewDefinitionWithGraphs("1"));
+    assertEquals(_directory.list().length, 1);
+    cache.clear();
+    assertEquals(_directory.list().length, 0);
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key("1")));
+  }
+
+}
@@ -40,6 +40,8 @@ import com.opengamma.financial.view.HistoricalViewEvaluationTarget;
 import com.opengamma.financial.view.ViewEvaluationFunction;
 import com.opengamma.id.UniqueId;
 import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesFrame;
 
 /**
  * Iterates a view client over a window of historical data to get time series of values from which a covariance matrix can be constructed. The target will identify the item(s) for which data should be
@@ -117,6 +119,52 @@ public abstract class SampledCovarianceMatrixFunction extends AbstractFunction.N
       labels = Arrays.copyOf(labels, len);
     }
     // The time-series must all have corresponding dates - delete any points which are not common to all time-series
+    if (isAllLocalDate(timeSeries)) {
+      timeSeries = intersectionLocalDate(timeSeries);
+    } else {
+      timeSeries = intersection(timeSeries);
+    }
+    // Keys will just be sequential numbers
+    final Double[] keys = new Double[len];
+    for (int i = 0; i < timeSeries.length; i++) {
+      keys[i] = (double) i;
+    }
+    // Calculate the co-variance matrix
+    final DoubleMatrix2D unlabelled = calculator.evaluate(timeSeries);
+    // Label it
+    return new DoubleLabelledMatrix2D(keys, labels, keys, labels, unlabelled.getData());
+  }
+
+  private static boolean isAllLocalDate(final DoubleTimeSeries<?>[] timeSeries) {
+    for (DoubleTimeSeries<?> series : timeSeries) {
+      if (!(series instanceof LocalDateDoubleTimeSeries)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Aligns date based time-series in a single pass, avoiding the repeated shuffling of the general case.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends Comparable<? super T>> DoubleTimeSeries<T>[] intersectionLocalDate(final DoubleTimeSeries<T>[] timeSeries) {
+    final LocalDateDoubleTimeSeries[] localDateSeries = new LocalDateDoubleTimeSeries[timeSeries.length];
+    System.arraycopy(timeSeries, 0, localDateSeries, 0, timeSeries.length);
+    final LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(localDateSeries);
+    if (frame.isEmpty()) {
+      throw new IllegalArgumentException("Time series union is empty");
+    }
+    final DoubleTimeSeries<T>[] result = new DoubleTimeSeries[timeSeries.length];
+    for (int i = 0; i < timeSeries.length; i++) {
+      result[i] = (DoubleTimeSeries<T>) frame.getColumn(i);
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Comparable<? super T>> DoubleTimeSeries<T>[] intersection(DoubleTimeSeries<T>[] timeSeries) {
+    final int len = timeSeries.length;
     final Comparable<? super T>[][] times = new Comparable[len][];
     final double[][] values = new double[len][];
     for (int i = 0; i < len; i++) {
@@ -175,17 +223,9 @@ public abstract class SampledCovarianceMatrixFunction extends AbstractFunction.N
       }
     }
     if (newTimeSeries != null) {
-      timeSeries = newTimeSeries;
+      return newTimeSeries;
     }
-    // Keys will just be sequential numbers
-    final Double[] keys = new Double[len];
-    for (int i = 0; i < timeSeries.length; i++) {
-      keys[i] = (double) i;
-    }
-    // Calculate the co-variance matrix
-    final DoubleMatrix2D unlabelled = calculator.evaluate(timeSeries);
-    // Label it
-    return new DoubleLabelledMatrix2D(keys, labels, keys, labels, unlabelled.getData());
+    return timeSeries;
   }
 
   // CompiledFunctionDefinition
@@ -19,6 +19,7 @@ import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.function.AbstractFunction;
 import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.DeclaredResultNames;
 import com.opengamma.engine.function.FunctionCompilationContext;
 import com.opengamma.engine.function.FunctionExecutionContext;
 import com.opengamma.engine.function.FunctionInputs;
@@ -35,7 +36,7 @@ import com.opengamma.financial.analytics.OpenGammaFunctionExclusions;
 /**
  * Abstract function for injecting default properties into the dependency graph.
  */
-public abstract class DefaultPropertyFunction extends AbstractFunction.NonCompiledInvoker implements OpenGammaFunctionExclusions {
+public abstract class DefaultPropertyFunction extends AbstractFunction.NonCompiledInvoker implements OpenGammaFunctionExclusions, DeclaredResultNames {
 
   private static final Logger s_logger = LoggerFactory.getLogger(DefaultPropertyFunction.class);
 
@@ -153,6 +154,8 @@ public abstract class DefaultPropertyFunction extends AbstractFunction.NonCompil
      * @param propertyName the property name a default is available for, not null
      */
     public void addAllValuesPropertyName(final String propertyName) {
+      // The value names depend on the target, even if there is no results provider to query now
+      _targetUsed = true;
       final ComputationTargetResults resultsProvider = getContext().getComputationTargetResults();
       if (resultsProvider == null) {
         return;
@@ -218,6 +221,28 @@ public abstract class DefaultPropertyFunction extends AbstractFunction.NonCompil
     return defaults.getValueName2PropertyNames().keySet();
   }
 
+  /**
+   * Returns the value names defaults are defined for, if the defaults do not depend on the target.
+   * 
+   * @param context the function compilation context, not null
+   * @return the value names, or null if the defaults depend on the target
+   */
+  @Override
+  public Set<String> getResultValueNames(final FunctionCompilationContext context) {
+    final PropertyDefaults defaults = new PropertyDefaults(context, null);
+    try {
+      getDefaults(defaults);
+    } catch (RuntimeException e) {
+      // Most likely the implementation expected a target
+      s_logger.debug("Can't get value names for {} without a target: {}", this, e.getMessage());
+      return null;
+    }
+    if (defaults.isTargetUsed()) {
+      return null;
+    }
+    return defaults.getValueName2PropertyNames().keySet();
+  }
+
   /**
    * Returns the default value(s) to set for the property. If a default value is not available, must return null.
    * 
@@ -57,6 +57,11 @@ public class DistributedLiveDataClient extends AbstractLiveDataClient implements
    */
   private static final long TIMEOUT = 1800000;
 
+  /**
+   * The maximum number of subscriptions to send in one request, zero for no limit.
+   */
+  private volatile int _subscriptionChunkSize;
+
   public DistributedLiveDataClient(FudgeRequestSender subscriptionRequestSender, FudgeRequestSender entitlementRequestSender) {
     this(subscriptionRequestSender, entitlementRequestSender, OpenGammaFudgeContext.getInstance());
   }
@@ -72,6 +77,28 @@ public class DistributedLiveDataClient extends AbstractLiveDataClient implements
     _entitlementChecker = new DistributedEntitlementChecker(entitlementRequestSender, fudgeContext);
   }
 
+  /**
+   * Gets the maximum number of subscriptions sent to the server in one request.
+   *
+   * @return the chunk size, zero if all the subscriptions made together are sent in one request
+   */
+  public int getSubscriptionChunkSize() {
+    return _subscriptionChunkSize;
+  }
+
+  /**
+   * Sets the maximum number of subscriptions sent to the server in one request.
+   * <p>
+   * Larger sets of subscriptions are sent as several requests, and the listeners are notified
+   * of the results for each request as soon as its response is received.
+   *
+   * @param subscriptionChunkSize the chunk size, zero to send all the subscriptions made together in one request
+   */
+  public void setSubscriptionChunkSize(int subscriptionChunkSize) {
+    ArgumentChecker.notNegative(subscriptionChunkSize, "subscriptionChunkSize");
+    _subscriptionChunkSize = subscriptionChunkSize;
+  }
+
   /**
    * @return the subscriptionRequestSender
    */
@@ -102,11 +129,8 @@ public class DistributedLiveDataClient extends AbstractLiveDataClient implements
     UserPrincipal user = null;
     SubscriptionType type = null;
 
-    List<LiveDataSpecification> specs = Lists.newArrayListWithCapacity(subHandles.size());
     for (SubscriptionHandle subHandle : subHandles) {
 
-      specs.add(subHandle.getRequestedSpecification());
-
       if (user == null) {
         user = subHandle.getUser();
       } else if (!user.equals(subHandle.getUser())) {
@@ -120,6 +144,20 @@ public class DistributedLiveDataClient extends AbstractLiveDataClient implements
       }
     }
 
+    // Send in chunks so the responses for the first chunks arrive without waiting for the whole request
+    final List<SubscriptionHandle> handles = new ArrayList<>(subHandles);
+    final int chunkSize = (getSubscriptionChunkSize() > 0) ? getSubscriptionChunkSize() : handles.size();
+    for (List<SubscriptionHandle> chunk : Lists.partition(handles, chunkSize)) {
+      sendSubscriptionRequest(user, type, chunk);
+    }
+  }
+
+  private void sendSubscriptionRequest(UserPrincipal user, SubscriptionType type, Collection<SubscriptionHandle> subHandles) {
+    List<LiveDataSpecification> specs = Lists.newArrayListWithCapacity(subHandles.size());
+    for (SubscriptionHandle subHandle : subHandles) {
+      specs.add(subHandle.getRequestedSpecification());
+    }
+
     // Build request message
     LiveDataSubscriptionRequest subReqMessage = new LiveDataSubscriptionRequest(user, type, specs);
     FudgeMsg requestMessage = subReqMessage.toFudgeMsg(new FudgeSerializer(getFudgeContext()));
@@ -29,6 +29,7 @@ import org.springframework.context.Lifecycle;
 import org.springframework.jms.support.JmsUtils;
 
 import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.livedata.server.DistributionSpecification;
 import com.opengamma.transport.ByteArrayFudgeMessageReceiver;
 import com.opengamma.transport.FudgeRequestSender;
 import com.opengamma.transport.jms.JmsByteArrayMessageDispatcher;
@@ -75,6 +76,11 @@ public class JmsLiveDataClient extends DistributedLiveDataClient implements Life
 
   private AtomicBoolean _running = new AtomicBoolean(false);
 
+  /**
+   * Whether to listen to the conflated tick topics rather than receiving every tick.
+   */
+  private volatile boolean _conflated;
+
   private ExecutorService _executor;
 
   public JmsLiveDataClient(FudgeRequestSender subscriptionRequestSender,
@@ -123,6 +129,26 @@ public class JmsLiveDataClient extends DistributedLiveDataClient implements Life
     return _jmsConnector;
   }
 
+  /**
+   * Checks whether the client listens to the conflated tick topics.
+   * 
+   * @return true if receiving conflated ticks
+   */
+  public boolean isConflated() {
+    return _conflated;
+  }
+
+  /**
+   * Sets whether the client listens to the conflated tick topics published by a server using a
+   * {@link com.opengamma.livedata.server.distribution.ConflatingMarketDataSenderFactory}, rather than
+   * receiving every tick. This only affects subscriptions started after the call.
+   * 
+   * @param conflated  true to receive conflated ticks
+   */
+  public void setConflated(boolean conflated) {
+    _conflated = conflated;
+  }
+
   @Override
   public synchronized void startReceivingTicks(Collection<String> tickDistributionSpecifications) {
     super.startReceivingTicks(tickDistributionSpecifications);
@@ -197,7 +223,8 @@ public class JmsLiveDataClient extends DistributedLiveDataClient implements Life
     Map<String, Runnable> ret = new HashMap<String, Runnable>();
     for (final String tickDistributionSpecification : specs) {
       try {
-        Topic topic = session.createTopic(tickDistributionSpecification);
+        String topicName = isConflated() ? DistributionSpecification.getConflatedJmsTopic(tickDistributionSpecification) : tickDistributionSpecification;
+        Topic topic = session.createTopic(topicName);
 
         final MessageConsumer messageConsumer = session.createConsumer(topic);
         messageConsumer.setMessageListener(jmsDispatcher);
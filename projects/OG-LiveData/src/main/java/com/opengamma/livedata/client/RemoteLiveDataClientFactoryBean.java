@@ -34,6 +34,7 @@ public class RemoteLiveDataClientFactoryBean extends SingletonFactoryBean<Distri
   private String _entitlementTopic;
   private String _heartbeatTopic;
   private int _maxConcurrentRequests = Integer.MAX_VALUE;
+  private boolean _conflated;
 
   public void setJmsConnector(final JmsConnector jmsConnector) {
     _jmsConnector = jmsConnector;
@@ -89,6 +90,24 @@ public class RemoteLiveDataClientFactoryBean extends SingletonFactoryBean<Distri
     return _maxConcurrentRequests;
   }
 
+  /**
+   * Sets whether the client should receive conflated ticks rather than every tick.
+   * 
+   * @param conflated true to receive conflated ticks
+   */
+  public void setConflated(final boolean conflated) {
+    _conflated = conflated;
+  }
+
+  /**
+   * Returns whether the client receives conflated ticks rather than every tick.
+   * 
+   * @return true if receiving conflated ticks
+   */
+  public boolean isConflated() {
+    return _conflated;
+  }
+
   @Override
   protected DistributedLiveDataClient createObject() {
     final JmsTemplate jmsTemplate = getJmsConnector().getJmsTemplateTopic();
@@ -102,6 +121,7 @@ public class RemoteLiveDataClientFactoryBean extends SingletonFactoryBean<Distri
     final JmsLiveDataClient liveDataClient = new JmsLiveDataClient(fudgeSubscriptionRequestSender, fudgeEntitlementRequestSender, getJmsConnector(), OpenGammaFudgeContext.getInstance(),
         JmsLiveDataClient.DEFAULT_NUM_SESSIONS);
     liveDataClient.setFudgeContext(OpenGammaFudgeContext.getInstance());
+    liveDataClient.setConflated(isConflated());
     if (getHeartbeatTopic() != null) {
       JmsByteArrayMessageSender jmsHeartbeatSender = new JmsByteArrayMessageSender(getHeartbeatTopic(), jmsTemplate);
       liveDataClient.setHeartbeatMessageSender(jmsHeartbeatSender);
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Batched equivalent of {@link FireHoseRecordProcessor}.
+ * <p>
+ * One thread reads from a {@link ChannelFactory} connection into a reusable direct buffer and
+ * decodes records in place, while another hands the decoded records to the processor. Records
+ * are passed between the threads, and to the processor, a batch at a time rather than one by one.
+ * 
+ * @param <TRecord> The type of the actual record that will be processed.
+ */
+public class BatchFireHoseRecordProcessor<TRecord> implements Lifecycle {
+  private static final Logger s_logger = LoggerFactory.getLogger(BatchFireHoseRecordProcessor.class);
+
+  /**
+   * The size of the internal queue, in batches.
+   * Each batch holds the records decoded from one read of the channel, so this
+   * is generally a much larger number of records than {@link FireHoseRecordProcessor#QUEUE_CAPACITY}.
+   */
+  public static final int QUEUE_CAPACITY = 256;
+
+  private final BlockingQueue<Object> _queue = new LinkedBlockingQueue<Object>(QUEUE_CAPACITY);
+
+  private final BatchRecordConsumptionJob _recordConsumptionJob;
+  private final BatchRecordProcessingJob _recordProcessingJob;
+  private Thread _recordConsumptionThread;
+  private Thread _recordDispatchThread;
+
+  public BatchFireHoseRecordProcessor(
+      ChannelFactory channelFactory,
+      RecordBufferDecoder.Factory<TRecord> decoderFactory,
+      BatchRecordProcessor<TRecord> recordProcessor) {
+    ArgumentChecker.notNull(channelFactory, "channelFactory");
+    ArgumentChecker.notNull(decoderFactory, "decoderFactory");
+    ArgumentChecker.notNull(recordProcessor, "recordProcessor");
+    _recordConsumptionJob = new BatchRecordConsumptionJob(channelFactory, decoderFactory, _queue);
+    _recordProcessingJob = new BatchRecordProcessingJob(_queue, recordProcessor);
+  }
+
+  public BatchFireHoseRecordProcessor(
+      ChannelFactory channelFactory,
+      RecordBufferDecoder.Factory<TRecord> decoderFactory,
+      RecordProcessor<TRecord> recordProcessor) {
+    this(channelFactory, decoderFactory, BatchRecordProcessingJob.of(recordProcessor));
+  }
+
+  /**
+   * Gets the number of records decoded so far.
+   * 
+   * @return the record count
+   */
+  public long getRecordCount() {
+    return _recordConsumptionJob.getRecordCount();
+  }
+
+  /**
+   * Gets the number of bytes read so far.
+   * 
+   * @return the byte count
+   */
+  public long getByteCount() {
+    return _recordConsumptionJob.getByteCount();
+  }
+
+  /**
+   * Sets whether processing should stop, rather than reconnect, when the end of the stream is reached.
+   * 
+   * @param terminateAtEndOfStream true to stop at the end of the stream
+   */
+  public void setTerminateAtEndOfStream(boolean terminateAtEndOfStream) {
+    _recordConsumptionJob.setTerminateAtEndOfStream(terminateAtEndOfStream);
+  }
+
+  /**
+   * Waits for the dispatch thread to finish, for example after the end of the stream has been reached.
+   * 
+   * @param timeoutMillis the maximum time to wait, in milliseconds
+   * @return true if the dispatch thread has finished
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitCompletion(long timeoutMillis) throws InterruptedException {
+    final Thread dispatchThread;
+    synchronized (this) {
+      dispatchThread = _recordDispatchThread;
+    }
+    if (dispatchThread == null) {
+      return true;
+    }
+    dispatchThread.join(timeoutMillis);
+    return !dispatchThread.isAlive();
+  }
+
+  // --------------------------------------------------------------------------
+  // SPRING LIFECYCLE METHODS
+  // --------------------------------------------------------------------------
+  @Override
+  public synchronized void start() {
+    if (isRunning()) {
+      return;
+    }
+
+    _recordConsumptionThread = new Thread(_recordConsumptionJob, "BatchFireHoseRecordProcessor Consumption");
+    _recordConsumptionThread.setDaemon(false);
+    _recordConsumptionThread.start();
+
+    _recordDispatchThread = new Thread(_recordProcessingJob, "BatchFireHoseRecordProcessor Dispatch");
+    _recordDispatchThread.setDaemon(false);
+    _recordDispatchThread.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (_recordConsumptionThread != null) {
+      try {
+        _recordConsumptionJob.terminate();
+        _recordConsumptionThread.join(10000L);
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        s_logger.warn("Interrupted while killing record consumption thread", e);
+      }
+      _recordConsumptionThread = null;
+    }
+    if (_recordDispatchThread != null) {
+      try {
+        _recordProcessingJob.terminate();
+        _recordDispatchThread.join(10000L);
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        s_logger.warn("Interrupted while killing record processing/dispatch thread", e);
+      }
+      _recordDispatchThread = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    if ((_recordConsumptionThread != null)
+        && _recordConsumptionThread.isAlive()
+        && (_recordDispatchThread != null)
+        && _recordDispatchThread.isAlive()) {
+      return true;
+    }
+    return false;
+  }
+
+}
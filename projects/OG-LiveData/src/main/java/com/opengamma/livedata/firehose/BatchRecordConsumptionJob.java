@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Decodes records read from a channel and writes them to a queue, in batches, so that another thread can
+ * process them. This is the batched equivalent of {@link RecordConsumptionJob}.
+ * <p/>
+ * Data is read into a direct buffer that is reused for the life of the job. Each read is followed by a
+ * single call to the decoder, which parses every complete record in place, and the records decoded are
+ * put on the queue as one {@link List}. Any partial record is moved to the start of the buffer to be
+ * completed by the next read. The buffer grows if a single record does not fit in it.
+ */
+public class BatchRecordConsumptionJob implements Runnable {
+  private static final Logger s_logger = LoggerFactory.getLogger(BatchRecordConsumptionJob.class);
+
+  /**
+   * The default size of the read buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final ChannelFactory _channelFactory;
+  private final RecordBufferDecoder.Factory<?> _decoderFactory;
+  private final BlockingQueue<Object> _queue;
+
+  private ByteBuffer _buffer;
+  private ReadableByteChannel _channel;
+  private RecordBufferDecoder<?> _decoder;
+  private volatile boolean _terminateAtEndOfStream;
+  private final AtomicBoolean _terminated = new AtomicBoolean(false);
+  private final AtomicLong _recordCount = new AtomicLong();
+  private final AtomicLong _byteCount = new AtomicLong();
+
+  public BatchRecordConsumptionJob(
+      final ChannelFactory channelFactory,
+      final RecordBufferDecoder.Factory<?> decoderFactory,
+      final BlockingQueue<Object> queue) {
+    this(channelFactory, decoderFactory, queue, DEFAULT_BUFFER_SIZE);
+  }
+
+  public BatchRecordConsumptionJob(
+      final ChannelFactory channelFactory,
+      final RecordBufferDecoder.Factory<?> decoderFactory,
+      final BlockingQueue<Object> queue,
+      final int bufferSize) {
+    ArgumentChecker.notNull(channelFactory, "channelFactory");
+    ArgumentChecker.notNull(decoderFactory, "decoderFactory");
+    ArgumentChecker.notNull(queue, "queue");
+    ArgumentChecker.isTrue(bufferSize > 0, "bufferSize must be positive");
+    _channelFactory = channelFactory;
+    _decoderFactory = decoderFactory;
+    _queue = queue;
+    _buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  public BlockingQueue<Object> getQueue() {
+    return _queue;
+  }
+
+  /**
+   * Sets whether the job should terminate, rather than reconnect, when the end of the stream is
+   * reached. This is typically used when replaying a file.
+   * 
+   * @param terminateAtEndOfStream true to terminate at the end of the stream
+   */
+  public void setTerminateAtEndOfStream(final boolean terminateAtEndOfStream) {
+    _terminateAtEndOfStream = terminateAtEndOfStream;
+  }
+
+  /**
+   * Gets the number of records decoded so far.
+   * 
+   * @return the record count
+   */
+  public long getRecordCount() {
+    return _recordCount.get();
+  }
+
+  /**
+   * Gets the number of bytes read so far.
+   * 
+   * @return the byte count
+   */
+  public long getByteCount() {
+    return _byteCount.get();
+  }
+
+  /**
+   * Gets the current size of the read buffer.
+   * 
+   * @return the buffer size in bytes
+   */
+  public int getBufferSize() {
+    return _buffer.capacity();
+  }
+
+  /**
+   * Reads and decodes records until the connection fails, the stream ends or the job is terminated.
+   * 
+   * @return true if the end of the stream was reached
+   */
+  protected boolean loopWhileConnected() {
+    _buffer.clear();
+    try {
+      while (!_terminated.get()) {
+        final int bytes = _channel.read(_buffer);
+        if (bytes < 0) {
+          if (_buffer.position() > 0) {
+            s_logger.warn("Discarding {} bytes of partial record at end of stream", _buffer.position());
+          }
+          return true;
+        }
+        _byteCount.addAndGet(bytes);
+        _buffer.flip();
+        final List<Object> batch = new ArrayList<Object>();
+        _decoder.decode(_buffer, batch);
+        if ((_buffer.position() == 0) && (_buffer.limit() == _buffer.capacity())) {
+          growBuffer();
+        } else {
+          _buffer.compact();
+        }
+        if (!batch.isEmpty()) {
+          s_logger.debug("Received {} records", batch.size());
+          _recordCount.addAndGet(batch.size());
+          try {
+            _queue.put(batch);
+          } catch (InterruptedException e) {
+            s_logger.warn("Unable to add {} new records to the queue.", batch.size());
+          }
+        }
+      }
+    } catch (IOException e) {
+      s_logger.warn("I/O exception caught - {}", e.toString());
+      s_logger.debug("I/O exception", e);
+    }
+    return false;
+  }
+
+  /**
+   * Replaces the full buffer, which holds a single incomplete record, with one twice the size.
+   */
+  private void growBuffer() {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(_buffer.capacity() * 2);
+    buffer.put(_buffer);
+    s_logger.info("Increased read buffer to {} bytes", buffer.capacity());
+    _buffer = buffer;
+  }
+
+  protected void establishConnection() {
+    _channel = null;
+    _decoder = null;
+
+    ReadableByteChannel channel = null;
+    try {
+      channel = _channelFactory.openChannel();
+    } catch (Exception e) {
+      s_logger.warn("Unable to open channel using {}", _channelFactory);
+      return;
+    }
+    assert channel != null;
+    _channel = channel;
+    _decoder = _decoderFactory.newInstance();
+  }
+
+  protected void tearDownConnection() {
+    try {
+      _channel.close();
+    } catch (Exception e) {
+      s_logger.warn("Unable to tear down connection after IOException during read.", e);
+    }
+
+    _channel = null;
+    _decoder = null;
+  }
+
+  @Override
+  public void run() {
+    while (!_terminated.get()) {
+      establishConnection();
+      if (_decoder == null) {
+        // We failed in establishing the connection. Keep trying in case
+        // this is a sporadic issue.
+        s_logger.warn("Unable to establish a connection. Looping.");
+        continue;
+      }
+
+      final boolean endOfStream = loopWhileConnected();
+
+      tearDownConnection();
+
+      if (endOfStream && _terminateAtEndOfStream) {
+        terminate();
+      }
+    }
+    try {
+      _queue.put(FireHoseRecordProcessor.EOF_INDICATOR);
+    } catch (InterruptedException e) {
+      s_logger.warn("Unable to add end of stream indicator to the queue.");
+    }
+  }
+
+  public void terminate() {
+    _terminated.set(true);
+  }
+
+}
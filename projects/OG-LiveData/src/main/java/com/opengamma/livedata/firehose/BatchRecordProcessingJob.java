@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A job, to be run by a {@link Thread}, that hands batches of records written by a
+ * {@link BatchRecordConsumptionJob} off to a {@link BatchRecordProcessor}.
+ * <p>
+ * The job finishes when it is terminated or when it receives {@link FireHoseRecordProcessor#EOF_INDICATOR}.
+ */
+public class BatchRecordProcessingJob implements Runnable {
+  private static final Logger s_logger = LoggerFactory.getLogger(BatchRecordProcessingJob.class);
+
+  private final BlockingQueue<Object> _queue;
+  @SuppressWarnings("rawtypes")
+  private final BatchRecordProcessor _recordProcessor;
+  private final AtomicBoolean _terminated = new AtomicBoolean(false);
+
+  public BatchRecordProcessingJob(
+      final BlockingQueue<Object> queue,
+      final BatchRecordProcessor<?> recordProcessor) {
+    ArgumentChecker.notNull(queue, "queue");
+    ArgumentChecker.notNull(recordProcessor, "recordProcessor");
+    _queue = queue;
+    _recordProcessor = recordProcessor;
+  }
+
+  public BatchRecordProcessingJob(
+      final BlockingQueue<Object> queue,
+      final RecordProcessor<?> recordProcessor) {
+    this(queue, of(recordProcessor));
+  }
+
+  /**
+   * Adapts a record processor so that it can be used with batches. Each record is passed to the
+   * underlying processor in turn, and a failure to process one record does not affect the others.
+   * 
+   * @param <TRecord> the type of the records
+   * @param recordProcessor the processor to adapt, not null
+   * @return the batch processor, not null
+   */
+  public static <TRecord> BatchRecordProcessor<TRecord> of(final RecordProcessor<TRecord> recordProcessor) {
+    ArgumentChecker.notNull(recordProcessor, "recordProcessor");
+    return new BatchRecordProcessor<TRecord>() {
+      @Override
+      public void process(final List<TRecord> records) {
+        for (TRecord record : records) {
+          try {
+            recordProcessor.process(record);
+          } catch (Exception e) {
+            s_logger.warn("Unable to process record", e);
+          }
+        }
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public void run() {
+    while (!_terminated.get()) {
+      Object batch = null;
+      try {
+        batch = _queue.poll(5L, TimeUnit.SECONDS);
+      } catch (InterruptedException ie) {
+        Thread.interrupted();
+      }
+      if (batch == null) {
+        // Just continue. If we've been interrupted, we need to catch the termination message.
+        continue;
+      }
+      if (batch == FireHoseRecordProcessor.EOF_INDICATOR) {
+        s_logger.info("End of stream reached");
+        return;
+      }
+
+      try {
+        _recordProcessor.process((List<Object>) batch);
+      } catch (Exception e) {
+        s_logger.warn("Unable to process batch of records", e);
+      }
+    }
+  }
+
+  public void terminate() {
+    _terminated.set(true);
+  }
+
+}
@@ -0,0 +1,24 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.util.List;
+
+/**
+ * A simple interface that allows for processing of a batch of records.
+ * This is the batched equivalent of {@link RecordProcessor}.
+ * 
+ * @param <TRecord> The type of the records to process.
+ */
+public interface BatchRecordProcessor<TRecord> {
+
+  /**
+   * Process the records, in the order they were received.
+   * @param records The records to process, not empty
+   */
+  void process(List<TRecord> records);
+
+}
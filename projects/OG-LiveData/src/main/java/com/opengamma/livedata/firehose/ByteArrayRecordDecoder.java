@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Length prefixed decoder that copies each record's payload into a byte array.
+ */
+public class ByteArrayRecordDecoder extends LengthPrefixedRecordDecoder<byte[]> {
+
+  /**
+   * Factory for {@link ByteArrayRecordDecoder} instances.
+   */
+  public static class Factory implements RecordBufferDecoder.Factory<byte[]> {
+
+    @Override
+    public RecordBufferDecoder<byte[]> newInstance() {
+      return new ByteArrayRecordDecoder();
+    }
+
+  }
+
+  @Override
+  protected byte[] decodeRecord(final ByteBuffer record) {
+    final byte[] data = new byte[record.remaining()];
+    record.get(data);
+    return data;
+  }
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A simple interface that can establish a {@link ReadableByteChannel} on demand.
+ * <p>
+ * This is the channel based equivalent of {@link InputStreamFactory}, used for
+ * batched ingestion where records are parsed in place from a reusable buffer.
+ */
+public interface ChannelFactory {
+
+  /**
+   * Open a connection.
+   * In the case that a connection cannot be made, this method <em>must</em>
+   * throw an unchecked exception rather than returning null.
+   * The channel returned must be in blocking mode.
+   * @return A valid connection.
+   */
+  ReadableByteChannel openChannel();
+
+  /**
+   * Obtain a description of the underlying connection.
+   * For example, if the factory is backed by a file, it might return
+   * the file name. If it's based on a socket, it might describe the connection
+   * parameters.
+   * @return A description for the factory.
+   */
+  String getDescription();
+
+}
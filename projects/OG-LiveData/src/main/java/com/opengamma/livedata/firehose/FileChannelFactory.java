@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link ChannelFactory} that opens a {@link File}.
+ */
+public class FileChannelFactory implements ChannelFactory {
+  private static final Logger s_logger = LoggerFactory.getLogger(FileChannelFactory.class);
+  private final File _inputFile;
+  private final String _description;
+
+  public FileChannelFactory(String fileName) {
+    this(new File(fileName));
+  }
+
+  public FileChannelFactory(File inputFile) {
+    ArgumentChecker.notNull(inputFile, "inputFile");
+    _inputFile = inputFile;
+
+    _description = "File[" + _inputFile.getAbsolutePath() + "]";
+  }
+
+  @Override
+  public ReadableByteChannel openChannel() {
+    s_logger.info("Opening channel to {}", _inputFile.getAbsolutePath());
+    try {
+      return FileChannel.open(_inputFile.toPath(), StandardOpenOption.READ);
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Unable to open file " + _inputFile.getAbsolutePath(), ex);
+    }
+  }
+
+  @Override
+  public String getDescription() {
+    return _description;
+  }
+
+}
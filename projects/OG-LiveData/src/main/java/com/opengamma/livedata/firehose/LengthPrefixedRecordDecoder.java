@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Decoder for streams where each record is preceded by its length as a four byte big-endian integer.
+ * <p>
+ * The record boundaries are found in place. Each record is presented to {@link #decodeRecord} as a
+ * view of the shared buffer, with the position and limit set to the record's payload, so no bytes
+ * are copied unless the sub-class chooses to.
+ * 
+ * @param <Record> the record representation
+ */
+public abstract class LengthPrefixedRecordDecoder<Record> implements RecordBufferDecoder<Record> {
+
+  /**
+   * The default maximum record length, used to detect a corrupt stream.
+   */
+  public static final int DEFAULT_MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+  private static final int PREFIX_LENGTH = 4;
+
+  private final int _maxRecordLength;
+
+  protected LengthPrefixedRecordDecoder() {
+    this(DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  protected LengthPrefixedRecordDecoder(final int maxRecordLength) {
+    ArgumentChecker.notNegative(maxRecordLength, "maxRecordLength");
+    _maxRecordLength = maxRecordLength;
+  }
+
+  @Override
+  public void decode(final ByteBuffer buffer, final Collection<? super Record> records) throws IOException {
+    final int limit = buffer.limit();
+    while (buffer.remaining() >= PREFIX_LENGTH) {
+      final int start = buffer.position();
+      final int length = buffer.getInt(start);
+      if ((length < 0) || (length > _maxRecordLength)) {
+        throw new IOException("Invalid record length " + length + " at offset " + start);
+      }
+      final int end = start + PREFIX_LENGTH + length;
+      if (end > limit) {
+        break;
+      }
+      buffer.limit(end).position(start + PREFIX_LENGTH);
+      try {
+        final Record record = decodeRecord(buffer);
+        if (record != null) {
+          records.add(record);
+        }
+      } finally {
+        buffer.limit(limit).position(end);
+      }
+    }
+  }
+
+  /**
+   * Decodes a single record. The buffer is only valid for the duration of the call.
+   * 
+   * @param record the record payload, between the buffer's position and limit, not null
+   * @return the decoded record, null to discard it
+   * @throws IOException if the record is malformed
+   */
+  protected abstract Record decodeRecord(ByteBuffer record) throws IOException;
+
+}
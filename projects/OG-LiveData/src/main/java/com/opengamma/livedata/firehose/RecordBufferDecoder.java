@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Abstraction of a buffer based stream decoder. This is the batched equivalent of {@link RecordStream}.
+ * <p>
+ * Rather than pulling one record at a time from an input stream, the decoder is handed a buffer
+ * holding whatever bytes have been read so far. It locates record boundaries in place and decodes
+ * every complete record, leaving any trailing partial record in the buffer to be completed by the
+ * next read. The buffer is reused, so a decoded record must not keep a reference to it.
+ * 
+ * @param <Record> the record representation
+ */
+public interface RecordBufferDecoder<Record> {
+
+  /**
+   * Factory interface for constructing new decoders, one per connection.
+   * 
+   * @param <Record> the record representation
+   */
+  interface Factory<Record> {
+
+    RecordBufferDecoder<Record> newInstance();
+
+  }
+
+  /**
+   * Decodes all complete records in the buffer.
+   * <p>
+   * On entry the buffer's position is at the start of a record and its limit at the end of the
+   * data read. On exit the position must be at the start of the first incomplete record, or equal
+   * to the limit if there is none.
+   * 
+   * @param buffer the buffer to decode from, not null
+   * @param records the collection to add the decoded records to, not null
+   * @throws IOException if the data is malformed
+   */
+  void decode(ByteBuffer buffer, Collection<? super Record> records) throws IOException;
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+package com.opengamma.livedata.firehose;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays a stream captured by {@link RecordNetworkStream} through the batched ingestion path
+ * as fast as it can be read, and reports the number of records decoded and dispatched per second.
+ * <p>
+ * Arguments are the capture file and, optionally, the name of a {@link RecordBufferDecoder.Factory}
+ * class for the capture's format, which defaults to {@link ByteArrayRecordDecoder.Factory}.
+ */
+public class ReplayRecordStream {
+  private static final Logger s_logger = LoggerFactory.getLogger(ReplayRecordStream.class);
+
+  public static void main(final String[] args) throws Exception { // CSIGNORE
+    final String file = args[0];
+    final RecordBufferDecoder.Factory<?> decoderFactory;
+    if (args.length > 1) {
+      decoderFactory = (RecordBufferDecoder.Factory<?>) Class.forName(args[1]).newInstance();
+    } else {
+      decoderFactory = new ByteArrayRecordDecoder.Factory();
+    }
+    final Result result = replay(new FileChannelFactory(file), decoderFactory);
+    System.out.println(result);
+  }
+
+  /**
+   * Replays the stream from the channel factory once, until the end of the stream.
+   * 
+   * @param <TRecord> the record type
+   * @param channelFactory the source of the stream, not null
+   * @param decoderFactory the decoder for the stream, not null
+   * @return the result, not null
+   * @throws IOException if the replay does not complete
+   */
+  public static <TRecord> Result replay(final ChannelFactory channelFactory, final RecordBufferDecoder.Factory<TRecord> decoderFactory) throws IOException {
+    final AtomicLong dispatched = new AtomicLong();
+    final BatchFireHoseRecordProcessor<TRecord> processor = new BatchFireHoseRecordProcessor<TRecord>(channelFactory, decoderFactory,
+        new BatchRecordProcessor<TRecord>() {
+          @Override
+          public void process(final List<TRecord> records) {
+            dispatched.addAndGet(records.size());
+          }
+        });
+    processor.setTerminateAtEndOfStream(true);
+    final long start = System.nanoTime();
+    processor.start();
+    try {
+      while (!processor.awaitCompletion(1000L)) {
+        s_logger.info("Replayed {} records so far", dispatched.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted during replay", e);
+    } finally {
+      processor.stop();
+    }
+    return new Result(processor.getRecordCount(), dispatched.get(), processor.getByteCount(), System.nanoTime() - start);
+  }
+
+  /**
+   * The outcome of a replay.
+   */
+  public static final class Result {
+
+    private final long _recordCount;
+    private final long _dispatchedCount;
+    private final long _byteCount;
+    private final long _elapsedNanos;
+
+    private Result(final long recordCount, final long dispatchedCount, final long byteCount, final long elapsedNanos) {
+      _recordCount = recordCount;
+      _dispatchedCount = dispatchedCount;
+      _byteCount = byteCount;
+      _elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of records decoded.
+     * @return the record count
+     */
+    public long getRecordCount() {
+      return _recordCount;
+    }
+
+    /**
+     * Gets the number of records handed to the processor.
+     * @return the dispatched record count
+     */
+    public long getDispatchedCount() {
+      return _dispatchedCount;
+    }
+
+    /**
+     * Gets the number of bytes read.
+     * @return the byte count
+     */
+    public long getByteCount() {
+      return _byteCount;
+    }
+
+    /**
+     * Gets the elapsed time of the replay.
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+      return _elapsedNanos;
+    }
+
+    /**
+     * Gets the end-to-end throughput.
+     * @return the number of records dispatched per second
+     */
+    public double getRecordsPerSecond() {
+      return _elapsedNanos > 0 ? _dispatchedCount * 1e9 / _elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+      return "Replayed " + _dispatchedCount + " of " + _recordCount + " records (" + _byteCount + " bytes) in "
+          + (_elapsedNanos / 1000000L) + "ms, " + Math.round(getRecordsPerSecond()) + " records/s";
+    }
+
+  }
+
+}
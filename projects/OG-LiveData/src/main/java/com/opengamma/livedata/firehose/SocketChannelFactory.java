@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link ChannelFactory} that connects to a remote socket.
+ */
+public class SocketChannelFactory implements ChannelFactory {
+  private static final Logger s_logger = LoggerFactory.getLogger(SocketChannelFactory.class);
+  /**
+   * Time in ms to wait on initial connect.
+   * Set to 5sec to allow the outer loop to work correctly.
+   */
+  private static final int CONNECT_TIMEOUT = 5000;
+
+  private final InetAddress _host;
+  private final int _port;
+  private final String _description;
+
+  public SocketChannelFactory(String hostName, int port) throws UnknownHostException {
+    this(InetAddress.getByName(hostName), port);
+  }
+
+  public SocketChannelFactory(InetAddress host, int port) {
+    ArgumentChecker.notNull(host, "host");
+    ArgumentChecker.notNegative(port, "port");
+    _host = host;
+    _port = port;
+
+    _description = "SocketChannel[" + _host + ":" + port + "]";
+  }
+
+  /**
+   * Gets the host.
+   * @return the host
+   */
+  public InetAddress getHost() {
+    return _host;
+  }
+
+  /**
+   * Gets the port.
+   * @return the port
+   */
+  public int getPort() {
+    return _port;
+  }
+
+  @Override
+  public ReadableByteChannel openChannel() {
+    SocketChannel channel = null;
+    try {
+      channel = SocketChannel.open();
+      channel.socket().connect(new InetSocketAddress(_host, _port), CONNECT_TIMEOUT);
+      s_logger.info("Connected to {}:{}", _host, _port);
+      return channel;
+    } catch (IOException ioe) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ioe2) {
+          s_logger.debug("Unable to close channel in case of error. This is almost certainly fine because the socket isn't bound", ioe2);
+        }
+      }
+      s_logger.warn("Unable to open a connection to " + _host + ":" + _port, ioe);
+      throw new OpenGammaRuntimeException("Unable to open a connection to " + _host + ":" + _port, ioe);
+    }
+  }
+
+  @Override
+  public String getDescription() {
+    return _description;
+  }
+
+}
@@ -0,0 +1,708 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeFieldType;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.UnmodifiableFudgeField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A normalization rule set compiled into a single-pass field transformer.
+ * <p>
+ * Interpreting a {@link NormalizationRuleSet} copies the incoming message and lets each rule
+ * rebuild or modify it, and several rules build the whole field history as a message to read
+ * a couple of values from it. The compiled form instead assigns every field name referenced by
+ * the rules a slot, loads the incoming message into the slots once, applies the rules to the
+ * slots and allocates only the normalized message at the end. Field history is read and written
+ * a field at a time.
+ * <p>
+ * The standard rules ({@link FieldFilter}, {@link RequiredFieldFilter}, {@link FieldNameChange},
+ * {@link UnitChange}, {@link MarketValueCalculator}, {@link ImpliedVolatilityCalculator},
+ * {@link DividendYieldCalculator}, {@link NextDividendDateCalculator} and {@link FieldHistoryUpdater})
+ * are compiled. Any other rule, including subclasses of the standard rules, is applied to a
+ * message built from the slots at that point of the chain.
+ * <p>
+ * The output is identical to that of the interpreted rule set. Where a message would end up with
+ * more than one field with the same name, which the slots cannot represent, the remaining rules
+ * are interpreted for that message.
+ * <p>
+ * This class is thread-safe. The working slots are held per thread.
+ */
+public final class CompiledNormalizationRuleSet {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(CompiledNormalizationRuleSet.class);
+
+  /** Step result: carry on with the next step. */
+  private static final int CONTINUE = 0;
+  /** Step result: the message is rejected. */
+  private static final int REJECT = 1;
+  /** Step result: interpret the rules from this step, starting from the message built from the slots. */
+  private static final int INTERPRET = 2;
+  /** Step result: interpret the rules after this step, starting from the frame's raw message. */
+  private static final int INTERPRET_NEXT = 3;
+
+  /**
+   * The rule set that was compiled.
+   */
+  private final NormalizationRuleSet _ruleSet;
+  /**
+   * The rules, in order.
+   */
+  private final NormalizationRule[] _rules;
+  /**
+   * The compiled steps, one per rule.
+   */
+  private final Step[] _steps;
+  /**
+   * The slot index of each referenced field name.
+   */
+  private final Map<String, Integer> _slots;
+  /**
+   * The referenced field names, indexed by slot.
+   */
+  private final String[] _names;
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _context;
+  /**
+   * The Fudge type of double values added by the rules.
+   */
+  private final FudgeFieldType _doubleType;
+  /**
+   * The working slots of each thread.
+   */
+  private final ThreadLocal<Frame> _frame = new ThreadLocal<Frame>() {
+    @Override
+    protected Frame initialValue() {
+      return new Frame(_names.length);
+    }
+  };
+
+  /**
+   * Compiles a rule set.
+   *
+   * @param ruleSet  the rule set to compile, not null
+   * @param rules  the rules of the rule set, in order, not null
+   */
+  CompiledNormalizationRuleSet(NormalizationRuleSet ruleSet, List<NormalizationRule> rules) {
+    ArgumentChecker.notNull(ruleSet, "ruleSet");
+    ArgumentChecker.notNull(rules, "rules");
+    _ruleSet = ruleSet;
+    _rules = rules.toArray(new NormalizationRule[rules.size()]);
+    _context = OpenGammaFudgeContext.getInstance();
+    _doubleType = _context.getTypeDictionary().getByJavaType(Double.class);
+    _slots = new HashMap<String, Integer>();
+    _steps = new Step[_rules.length];
+    for (int i = 0; i < _rules.length; i++) {
+      _steps[i] = compile(_rules[i]);
+    }
+    _names = new String[_slots.size()];
+    for (Map.Entry<String, Integer> entry : _slots.entrySet()) {
+      _names[entry.getValue()] = entry.getKey();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the rule set that was compiled.
+   *
+   * @return the rule set, not null
+   */
+  public NormalizationRuleSet getRuleSet() {
+    return _ruleSet;
+  }
+
+  /**
+   * Gets a normalized message.
+   * <p>
+   * The result is the same as {@link NormalizationRuleSet#getNormalizedMessage}.
+   *
+   * @param msg  message received from underlying market data API in its native format, not null
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory  history of field values, not null
+   * @return the normalized message, null if one of the normalization rules rejected the message
+   */
+  public MutableFudgeMsg getNormalizedMessage(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    Frame frame = _frame.get();
+    MutableFudgeMsg normalizedMsg;
+    if (frame.load(msg)) {
+      normalizedMsg = execute(frame, securityUniqueId, fieldHistory);
+    } else {
+      normalizedMsg = interpret(_context.newMessage(msg), 0, securityUniqueId, fieldHistory);
+    }
+    frame.clear();
+    s_logger.debug("Applying compiled rule set {} to message {} produced normalized message {}", new Object[] {_ruleSet.getId(), msg, normalizedMsg});
+    return normalizedMsg;
+  }
+
+  private MutableFudgeMsg execute(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    for (int i = 0; i < _steps.length; i++) {
+      switch (_steps[i].apply(frame, securityUniqueId, fieldHistory)) {
+        case CONTINUE:
+          break;
+        case REJECT:
+          s_logger.debug("Rule {} in rule set {} rejected message", _rules[i], _ruleSet.getId());
+          return null;
+        case INTERPRET:
+          return interpret(frame.toMessage(), i, securityUniqueId, fieldHistory);
+        case INTERPRET_NEXT:
+          return interpret(frame.getRawMessage(), i + 1, securityUniqueId, fieldHistory);
+        default:
+          throw new IllegalStateException();
+      }
+    }
+    return frame.toMessage();
+  }
+
+  private MutableFudgeMsg interpret(MutableFudgeMsg msg, int fromRule, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    MutableFudgeMsg normalizedMsg = msg;
+    for (int i = fromRule; i < _rules.length; i++) {
+      normalizedMsg = _rules[i].apply(normalizedMsg, securityUniqueId, fieldHistory);
+      if (normalizedMsg == null) {
+        s_logger.debug("Rule {} in rule set {} rejected message", _rules[i], _ruleSet.getId());
+        return null;
+      }
+    }
+    return normalizedMsg;
+  }
+
+  //-------------------------------------------------------------------------
+  private int slot(String name) {
+    Integer slot = _slots.get(name);
+    if (slot == null) {
+      slot = _slots.size();
+      _slots.put(name, slot);
+    }
+    return slot;
+  }
+
+  private int[] slots(Collection<String> names) {
+    int[] slots = new int[names.size()];
+    int i = 0;
+    for (String name : names) {
+      slots[i++] = slot(name);
+    }
+    return slots;
+  }
+
+  private Step compile(NormalizationRule rule) {
+    // only the exact standard classes are compiled, subclasses may change the behaviour
+    Class<?> ruleClass = rule.getClass();
+    if (ruleClass == FieldFilter.class) {
+      return new FieldFilterStep(slots(((FieldFilter) rule).getFieldsToAccept()));
+    } else if (ruleClass == RequiredFieldFilter.class) {
+      return new RequiredFieldFilterStep(slots(((RequiredFieldFilter) rule).getRequiredFieldNames()));
+    } else if (ruleClass == FieldNameChange.class) {
+      FieldNameChange change = (FieldNameChange) rule;
+      return new FieldNameChangeStep(slot(change.getFrom()), slot(change.getTo()));
+    } else if (ruleClass == UnitChange.class) {
+      UnitChange change = (UnitChange) rule;
+      return new UnitChangeStep(slots(change.getFields()), change.getMultiplier());
+    } else if (ruleClass == MarketValueCalculator.class) {
+      return new MarketValueStep();
+    } else if (ruleClass == ImpliedVolatilityCalculator.class) {
+      return new ImpliedVolatilityStep();
+    } else if (ruleClass == DividendYieldCalculator.class) {
+      return new DividendYieldStep();
+    } else if (ruleClass == NextDividendDateCalculator.class) {
+      return new NextDividendDateStep();
+    } else if (ruleClass == FieldHistoryUpdater.class) {
+      return new FieldHistoryUpdaterStep();
+    }
+    return new RuleStep(rule);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A compiled rule.
+   */
+  private interface Step {
+    int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory);
+  }
+
+  /**
+   * The fields of a message being normalized.
+   * <p>
+   * Fields with a referenced name are held in slots, other fields in a list. Each field
+   * records its position in the message, fields added by the rules go to the end.
+   */
+  private final class Frame {
+    private final Object[] _values;
+    private final FudgeFieldType[] _types;
+    /** Whether the field was added with its type inferred from the value. */
+    private final boolean[] _inferred;
+    /** The position of each slot in the message, zero if absent. */
+    private final int[] _order;
+    private final List<FudgeField> _others = new ArrayList<FudgeField>();
+    private int[] _otherOrder = new int[16];
+    private int _nextOrder;
+    private int[] _sorted;
+    private MutableFudgeMsg _rawMessage;
+
+    Frame(int size) {
+      _values = new Object[size];
+      _types = new FudgeFieldType[size];
+      _inferred = new boolean[size];
+      _order = new int[size];
+      _sorted = new int[size];
+    }
+
+    /**
+     * Loads a message, returning false if it cannot be held in the slots.
+     */
+    boolean load(FudgeMsg msg) {
+      clear();
+      for (FudgeField field : msg) {
+        String name = field.getName();
+        Integer slot = (name != null) ? _slots.get(name) : null;
+        if (slot == null) {
+          addOther(field);
+        } else if (isPresent(slot) || field.getOrdinal() != null) {
+          // repeated fields and ordinals can't be held in the slots
+          return false;
+        } else {
+          set(slot, field.getType(), field.getValue(), false);
+        }
+      }
+      return true;
+    }
+
+    void clear() {
+      for (int i = 0; i < _order.length; i++) {
+        _order[i] = 0;
+        _values[i] = null;
+      }
+      _others.clear();
+      _nextOrder = 0;
+      _rawMessage = null;
+    }
+
+    private void addOther(FudgeField field) {
+      if (_others.size() == _otherOrder.length) {
+        int[] otherOrder = new int[_otherOrder.length * 2];
+        System.arraycopy(_otherOrder, 0, otherOrder, 0, _otherOrder.length);
+        _otherOrder = otherOrder;
+      }
+      _otherOrder[_others.size()] = ++_nextOrder;
+      _others.add(field);
+    }
+
+    boolean isPresent(int slot) {
+      return _order[slot] != 0;
+    }
+
+    Object getValue(int slot) {
+      return _values[slot];
+    }
+
+    /**
+     * Gets the value of a slot as a double, following {@link FudgeMsg#getDouble(String)}.
+     */
+    Double getDouble(int slot) {
+      Object value = _values[slot];
+      if (value instanceof Number) {
+        return ((Number) value).doubleValue();
+      }
+      return null;
+    }
+
+    /**
+     * Sets a slot, placing the field at the end of the message.
+     */
+    void set(int slot, FudgeFieldType type, Object value, boolean inferred) {
+      _values[slot] = value;
+      _types[slot] = type;
+      _inferred[slot] = inferred;
+      _order[slot] = ++_nextOrder;
+    }
+
+    /**
+     * Adds a double field at the end of the message, as {@code MutableFudgeMsg.add(String, Object)} would.
+     */
+    void setDouble(int slot, double value) {
+      set(slot, _doubleType, value, true);
+    }
+
+    void remove(int slot) {
+      _order[slot] = 0;
+      _values[slot] = null;
+    }
+
+    void removeOthers() {
+      _others.clear();
+    }
+
+    boolean isEmpty() {
+      if (!_others.isEmpty()) {
+        return false;
+      }
+      for (int order : _order) {
+        if (order != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    MutableFudgeMsg getRawMessage() {
+      return _rawMessage;
+    }
+
+    void setRawMessage(MutableFudgeMsg rawMessage) {
+      _rawMessage = rawMessage;
+    }
+
+    /**
+     * Writes the fields to the history store.
+     */
+    void writeHistory(FieldHistoryStore fieldHistory) {
+      // the history keeps the last field with each name so the order only matters for the other fields
+      for (FudgeField field : _others) {
+        fieldHistory.liveDataReceived(field);
+      }
+      for (int slot = 0; slot < _order.length; slot++) {
+        if (isPresent(slot)) {
+          fieldHistory.liveDataReceived(UnmodifiableFudgeField.of(_types[slot], _values[slot], _names[slot]));
+        }
+      }
+    }
+
+    /**
+     * Builds the message, with the fields in order.
+     */
+    MutableFudgeMsg toMessage() {
+      int count = 0;
+      for (int slot = 0; slot < _order.length; slot++) {
+        if (_order[slot] != 0) {
+          // insertion sort by position, there are only a few fields
+          int i = count++;
+          while (i > 0 && _order[_sorted[i - 1]] > _order[slot]) {
+            _sorted[i] = _sorted[i - 1];
+            i--;
+          }
+          _sorted[i] = slot;
+        }
+      }
+      MutableFudgeMsg msg = _context.newMessage();
+      int other = 0;
+      int next = 0;
+      while (other < _others.size() || next < count) {
+        if (next == count || (other < _others.size() && _otherOrder[other] < _order[_sorted[next]])) {
+          msg.add(_others.get(other++));
+        } else {
+          int slot = _sorted[next++];
+          if (_inferred[slot]) {
+            msg.add(_names[slot], _values[slot]);
+          } else {
+            msg.add(_names[slot], null, _types[slot], _values[slot]);
+          }
+        }
+      }
+      return msg;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private static Double getLastKnownDouble(FieldHistoryStore fieldHistory, String fieldName) {
+    FudgeField field = fieldHistory.getLastKnownValue(fieldName);
+    if (field != null && field.getValue() instanceof Number) {
+      return ((Number) field.getValue()).doubleValue();
+    }
+    return null;
+  }
+
+  /**
+   * See {@link FieldFilter}.
+   */
+  private static final class FieldFilterStep implements Step {
+    private final int[] _acceptedSlots;
+
+    FieldFilterStep(int[] acceptedSlots) {
+      _acceptedSlots = acceptedSlots;
+    }
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      // the accepted names are all slots, so any other field is rejected
+      frame.removeOthers();
+      for (int slot = 0; slot < frame._order.length; slot++) {
+        if (frame.isPresent(slot) && !isAccepted(slot)) {
+          frame.remove(slot);
+        }
+      }
+      return frame.isEmpty() ? REJECT : CONTINUE;
+    }
+
+    private boolean isAccepted(int slot) {
+      for (int accepted : _acceptedSlots) {
+        if (accepted == slot) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * See {@link RequiredFieldFilter}.
+   */
+  private static final class RequiredFieldFilterStep implements Step {
+    private final int[] _requiredSlots;
+
+    RequiredFieldFilterStep(int[] requiredSlots) {
+      _requiredSlots = requiredSlots;
+    }
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      for (int slot : _requiredSlots) {
+        if (!frame.isPresent(slot)) {
+          return REJECT;
+        }
+      }
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link FieldNameChange}.
+   */
+  private static final class FieldNameChangeStep implements Step {
+    private final int _from;
+    private final int _to;
+
+    FieldNameChangeStep(int from, int to) {
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      if (!frame.isPresent(_from)) {
+        return CONTINUE;
+      }
+      if (_from != _to && frame.isPresent(_to)) {
+        return INTERPRET;
+      }
+      FudgeFieldType type = frame._types[_from];
+      Object value = frame.getValue(_from);
+      frame.remove(_from);
+      frame.set(_to, type, value, false);
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link UnitChange}.
+   */
+  private static final class UnitChangeStep implements Step {
+    private final int[] _slots;
+    private final double _multiplier;
+
+    UnitChangeStep(int[] slots, double multiplier) {
+      _slots = slots;
+      _multiplier = multiplier;
+    }
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      for (int slot : _slots) {
+        Double value = frame.getDouble(slot);
+        if (value != null) {
+          frame.setDouble(slot, value * _multiplier);
+        }
+      }
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link FieldHistoryUpdater}.
+   */
+  private static final class FieldHistoryUpdaterStep implements Step {
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      frame.writeHistory(fieldHistory);
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * Applies a rule that is not compiled to a message built from the slots.
+   */
+  private final class RuleStep implements Step {
+    private final NormalizationRule _rule;
+
+    RuleStep(NormalizationRule rule) {
+      _rule = rule;
+    }
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      MutableFudgeMsg msg = _rule.apply(frame.toMessage(), securityUniqueId, fieldHistory);
+      if (msg == null) {
+        return REJECT;
+      }
+      if (frame.load(msg)) {
+        return CONTINUE;
+      }
+      frame.setRawMessage(msg);
+      return INTERPRET_NEXT;
+    }
+  }
+
+  /**
+   * See {@link MarketValueCalculator}.
+   */
+  private final class MarketValueStep implements Step {
+    private final int _bid = slot(MarketDataRequirementNames.BID);
+    private final int _ask = slot(MarketDataRequirementNames.ASK);
+    private final int _last = slot(MarketDataRequirementNames.LAST);
+    private final int _mid = slot(MarketDataRequirementNames.MID);
+    private final int _close = slot(MarketDataRequirementNames.CLOSE);
+    private final int _marketValue = slot(MarketDataRequirementNames.MARKET_VALUE);
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      if (frame.isPresent(_marketValue)) {
+        return INTERPRET;
+      }
+      Double bid = frame.getDouble(_bid);
+      if (bid == null) {
+        bid = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.BID);
+      }
+      Double ask = frame.getDouble(_ask);
+      if (ask == null) {
+        ask = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.ASK);
+      }
+      Double marketValue = MarketValueCalculator.getMarketValue(bid, ask, frame.getDouble(_last), frame.getDouble(_mid), frame.getDouble(_close));
+      if (marketValue == null) {
+        marketValue = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.MARKET_VALUE);
+      }
+      if (marketValue != null) {
+        frame.setDouble(_marketValue, marketValue);
+      }
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link ImpliedVolatilityCalculator}.
+   */
+  private final class ImpliedVolatilityStep implements Step {
+    private final int _best = slot(MarketDataRequirementNames.BEST_IMPLIED_VOLATILITY);
+    private final int _mid = slot(MarketDataRequirementNames.MID_IMPLIED_VOLATILITY);
+    private final int _last = slot(MarketDataRequirementNames.LAST_IMPLIED_VOLATILITY);
+    private final int _bid = slot(MarketDataRequirementNames.BID_IMPLIED_VOLATILITY);
+    private final int _ask = slot(MarketDataRequirementNames.ASK_IMPLIED_VOLATILITY);
+    private final int _impliedVolatility = slot(MarketDataRequirementNames.IMPLIED_VOLATILITY);
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      if (frame.isPresent(_impliedVolatility)) {
+        return INTERPRET;
+      }
+      Double impliedVolatility = frame.getDouble(_best);
+      if (impliedVolatility == null) {
+        impliedVolatility = frame.getDouble(_mid);
+      }
+      if (impliedVolatility == null) {
+        impliedVolatility = frame.getDouble(_last);
+      }
+      if (impliedVolatility == null) {
+        Double bid = frame.getDouble(_bid);
+        Double ask = frame.getDouble(_ask);
+        if (bid != null && ask != null) {
+          impliedVolatility = (bid + ask) / 2;
+        }
+      }
+      if (impliedVolatility == null) {
+        impliedVolatility = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.IMPLIED_VOLATILITY);
+      }
+      if (impliedVolatility != null) {
+        frame.setDouble(_impliedVolatility, impliedVolatility);
+      }
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link DividendYieldCalculator}.
+   */
+  private final class DividendYieldStep implements Step {
+    private final int _annualDividend = slot(MarketDataRequirementNames.ANNUAL_DIVIDEND);
+    private final int _marketValue = slot(MarketDataRequirementNames.MARKET_VALUE);
+    private final int _dividendYield = slot(MarketDataRequirementNames.DIVIDEND_YIELD);
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      Double annualDividend = frame.getDouble(_annualDividend);
+      if (annualDividend == null) {
+        annualDividend = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.ANNUAL_DIVIDEND);
+      }
+      if (annualDividend == null) {
+        return CONTINUE;
+      }
+      if (frame.isPresent(_dividendYield)) {
+        return INTERPRET;
+      }
+      Double spot = frame.getDouble(_marketValue);
+      if (spot == null) {
+        spot = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.MARKET_VALUE);
+      }
+      Double dividendYield;
+      if (spot != null && spot != 0.0) {
+        dividendYield = annualDividend / spot;
+      } else {
+        dividendYield = getLastKnownDouble(fieldHistory, MarketDataRequirementNames.DIVIDEND_YIELD);
+      }
+      if (dividendYield != null) {
+        frame.setDouble(_dividendYield, dividendYield);
+      }
+      return CONTINUE;
+    }
+  }
+
+  /**
+   * See {@link NextDividendDateCalculator}.
+   */
+  private final class NextDividendDateStep implements Step {
+    private final int _nextDividendDate = slot(MarketDataRequirementNames.NEXT_DIVIDEND_DATE);
+
+    @Override
+    public int apply(Frame frame, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      if (frame.getValue(_nextDividendDate) == null) {
+        if (frame.isPresent(_nextDividendDate)) {
+          return INTERPRET;
+        }
+        FudgeField lastKnown = fieldHistory.getLastKnownValue(MarketDataRequirementNames.NEXT_DIVIDEND_DATE);
+        if (lastKnown != null && lastKnown.getValue() != null) {
+          frame.set(_nextDividendDate, lastKnown.getType(), lastKnown.getValue(), true);
+        }
+      }
+      return CONTINUE;
+    }
+  }
+
+}
@@ -46,6 +46,15 @@ public class FieldFilter implements NormalizationRule {
     _context = fudgeContext;
   }
 
+  /**
+   * Gets the names of the fields accepted by this filter.
+   * 
+   * @return the field names, not null
+   */
+  Collection<String> getFieldsToAccept() {
+    return _fieldsToAccept;
+  }
+
   /**
    * @return the context
    */
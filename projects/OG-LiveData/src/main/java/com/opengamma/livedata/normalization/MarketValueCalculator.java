@@ -56,55 +56,67 @@ public class MarketValueCalculator implements NormalizationRule {
       ask = lkv.getDouble(MarketDataRequirementNames.ASK);
     }
     
+    Double marketValue = getMarketValue(
+        bid,
+        ask,
+        msg.getDouble(MarketDataRequirementNames.LAST),
+        msg.getDouble(MarketDataRequirementNames.MID),
+        msg.getDouble(MarketDataRequirementNames.CLOSE));
+    if (marketValue != null) {
+      msg.add(MarketDataRequirementNames.MARKET_VALUE, marketValue);
+      return msg;
+    }
+    
+    // Fall back to last known market value
+    return lastKnownMarketValue(msg, fieldHistory);
+  }
+
+  /**
+   * Calculates a best estimate of the current value of a security, as described in
+   * {@link #apply(MutableFudgeMsg, String, FieldHistoryStore)}, without falling back to
+   * the last known market value.
+   * 
+   * @param bid  the bid, from the message or history, null if not known
+   * @param ask  the ask, from the message or history, null if not known
+   * @param last  the last price from the message, null if not present
+   * @param mid  the mid price from the message, null if not present
+   * @param close  the close price from the message, null if not present
+   * @return the market value, null if it cannot be calculated
+   */
+  static Double getMarketValue(Double bid, Double ask, Double last, Double mid, Double close) {
     // If we have seen bid & ask in the past, use bid & ask midpoint.
     if (bid != null && ask != null) {
       
       // Too big of a spread for midpoint to be meaningful?
       if (Math.abs(bid) > TOLERANCE && (getRelativeSpread(bid, ask) > MAX_ACCEPTABLE_SPREAD_TO_USE_MIDPOINT)) {
         // Try to resort to last, though if this fails use midpoint anyway.
-        Double last = msg.getDouble(MarketDataRequirementNames.LAST);
-        
         if (last != null) {
           // Ok, last was found. But let's make sure that it's within the bid/ask boundaries.
           if (last < bid) {
-            msg.add(MarketDataRequirementNames.MARKET_VALUE, bid);
+            return bid;
           } else if (last > ask) {
-            msg.add(MarketDataRequirementNames.MARKET_VALUE, ask);
+            return ask;
           } else {
-            msg.add(MarketDataRequirementNames.MARKET_VALUE, last);
+            return last;
           }
-          return msg;
         }
       }
       
-      double marketValue = (bid + ask) / 2.0;
-      msg.add(MarketDataRequirementNames.MARKET_VALUE, marketValue);
-      return msg;
+      return (bid + ask) / 2.0;
     }
     // Use a "MID" if we've been given one (should this take priority before the BID/ASK sum?) // TODO: Review - Consider Indices in Activ...
-    Double mid = msg.getDouble(MarketDataRequirementNames.MID);
     if (mid != null) {
-      msg.add(MarketDataRequirementNames.MARKET_VALUE, mid);
-      return msg;
+      return mid;
     }
     // Use "LAST" if we've been given one
-    Double last = msg.getDouble(MarketDataRequirementNames.LAST);
     if (last != null) {
-      msg.add(MarketDataRequirementNames.MARKET_VALUE, last);
-      return msg;
+      return last;
     }
- // Use "CLOSE" if we've been given one
-    Double close = msg.getDouble(MarketDataRequirementNames.CLOSE);
-    if (close != null) {
-      msg.add(MarketDataRequirementNames.MARKET_VALUE, close);
-      return msg;
-    }    
-    
-    // Fall back to last known market value
-    return lastKnownMarketValue(msg, fieldHistory);
+    // Use "CLOSE" if we've been given one
+    return close;
   }
 
-  private double getRelativeSpread(Double bid, Double ask) {
+  private static double getRelativeSpread(Double bid, Double ask) {
     return Math.abs(ask - bid) / Math.abs(ask);
   }
   
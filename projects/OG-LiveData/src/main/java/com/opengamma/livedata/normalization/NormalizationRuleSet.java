@@ -30,6 +30,7 @@ public class NormalizationRuleSet {
   private final String _id;
   private final String _jmsTopicSuffix;
   private final List<NormalizationRule> _rules;
+  private final CompiledNormalizationRuleSet _compiled;
   
   /* Useful for tests */
   public NormalizationRuleSet(String id) {
@@ -56,12 +57,13 @@ public class NormalizationRuleSet {
     }
     
     _rules = new ArrayList<NormalizationRule>(rules);    
+    _compiled = new CompiledNormalizationRuleSet(this, _rules);
   }
   
   /**
    * Gets a normalized message.
    * This is done by applying the set of normalization rules
-   * to the raw message. 
+   * to the raw message, using the compiled form of the rule set.
    * 
    * @param msg message received from underlying market data API in its native format.
    * @param securityUniqueId  the data provider's unique ID of the security, not null
@@ -70,6 +72,21 @@ public class NormalizationRuleSet {
    * rejected the message.
    */
   public FudgeMsg getNormalizedMessage(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    return _compiled.getNormalizedMessage(msg, securityUniqueId, fieldHistory);
+  }
+
+  /**
+   * Gets a normalized message by applying each normalization rule in turn.
+   * <p>
+   * This gives the same result as {@link #getNormalizedMessage} but is slower.
+   * 
+   * @param msg message received from underlying market data API in its native format.
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory history of field values  
+   * @return the normalized message. Null if one of the normalization rules
+   * rejected the message.
+   */
+  public FudgeMsg getInterpretedMessage(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
     MutableFudgeMsg normalizedMsg = OpenGammaFudgeContext.getInstance().newMessage(msg);
     for (NormalizationRule rule : _rules) {
       normalizedMsg = rule.apply(normalizedMsg, securityUniqueId, fieldHistory);
@@ -83,6 +100,15 @@ public class NormalizationRuleSet {
     return normalizedMsg;
   }
   
+  /**
+   * Gets the compiled form of this normalization rule set.
+   * 
+   * @return the compiled rule set, not null
+   */
+  public CompiledNormalizationRuleSet getCompiled() {
+    return _compiled;
+  }
+
   /**
    * Gets the ID of this normalization rule set.
    * 
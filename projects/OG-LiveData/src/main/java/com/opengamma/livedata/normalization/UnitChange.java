@@ -39,6 +39,24 @@ public class UnitChange implements NormalizationRule {
     _multiplier = multiplier;
   }
   
+  /**
+   * Gets the names of the fields to multiply.
+   * 
+   * @return the field names, not null
+   */
+  Set<String> getFields() {
+    return _fields;
+  }
+
+  /**
+   * Gets the multiplier.
+   * 
+   * @return the multiplier
+   */
+  double getMultiplier() {
+    return _multiplier;
+  }
+
   @Override
   public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
     return multiplyFields(msg, _fields, _multiplier);
@@ -78,6 +78,12 @@ public abstract class CombiningLiveDataServer extends StandardLiveDataServer {
     // No-op; the underlyings will have their own
   }
 
+  @Override
+  public int getSubscriptionChunkSize() {
+    // Requests are split by server in subscriptionRequestMadeImpl; the underlyings will chunk their own
+    return 0;
+  }
+
   @Override
   public Collection<LiveDataSubscriptionResponse> subscribe(Collection<LiveDataSpecification> liveDataSpecificationsFromClient, final boolean persistent) {
     return subscribeByServer(
@@ -23,6 +23,11 @@ import com.opengamma.util.ArgumentChecker;
  */
 public class DistributionSpecification {
 
+  /**
+   * The suffix appended to the JMS topic to form the topic carrying conflated ticks.
+   */
+  public static final String CONFLATED_TOPIC_SUFFIX = ".Conflated";
+
   /**
    * The market data that is being distributed, such as AAPL equity.
    */
@@ -80,6 +85,26 @@ public class DistributionSpecification {
     return _jmsTopic;
   }
 
+  /**
+   * Gets the JMS topic that conflated ticks for this data are published to.
+   * 
+   * @return the conflated JMS topic, not null
+   */
+  public String getConflatedJmsTopic() {
+    return getConflatedJmsTopic(_jmsTopic);
+  }
+
+  /**
+   * Gets the JMS topic that conflated ticks are published to for a tick distribution topic.
+   * 
+   * @param jmsTopic  the unconflated JMS topic, not null
+   * @return the conflated JMS topic, not null
+   */
+  public static String getConflatedJmsTopic(String jmsTopic) {
+    ArgumentChecker.notNull(jmsTopic, "jmsTopic");
+    return jmsTopic + CONFLATED_TOPIC_SUFFIX;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Converts this specification to a {@code LiveDataSpecification}.
@@ -76,6 +76,27 @@ public class FieldHistoryStore {
     }
   }
 
+  /**
+   * Handles the arrival of a single field, storing it in history.
+   * 
+   * @param field  the received field, not null
+   */
+  public synchronized void liveDataReceived(FudgeField field) {
+    _lastKnownValues.put(field.getName(), UnmodifiableFudgeField.of(field));
+  }
+
+  /**
+   * Gets the last known value of a single field.
+   * <p>
+   * This avoids building the whole history as a message when only a few fields are needed.
+   * 
+   * @param fieldName  the field name, not null
+   * @return the last known field, null if there is no history for the field
+   */
+  public synchronized FudgeField getLastKnownValue(String fieldName) {
+    return _lastKnownValues.get(fieldName);
+  }
+
   /**
    * Gets the state of the history store as a single message.
    * 
@@ -138,6 +138,57 @@ public class LiveDataServerMBean {
     }
   }
 
+  @ManagedAttribute(description = "The maximum number of specifications from a subscription request processed together, 0 if requests are not split.")
+  public int getSubscriptionChunkSize() {
+    try {
+      return getServer().getSubscriptionChunkSize();
+    } catch (RuntimeException e) {
+      s_logger.error("getSubscriptionChunkSize() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "The number of specifications received in subscription requests in the server's lifetime.")
+  public long getNumSubscriptionsRequested() {
+    try {
+      return getServer().getNumSubscriptionsRequested();
+    } catch (RuntimeException e) {
+      s_logger.error("getNumSubscriptionsRequested() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "The number of specifications from subscription requests that have been responded to.")
+  public long getNumSubscriptionsProcessed() {
+    try {
+      return getServer().getNumSubscriptionsProcessed();
+    } catch (RuntimeException e) {
+      s_logger.error("getNumSubscriptionsProcessed() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "The number of specifications from subscription requests still being processed,"
+      + " for example during start-up.")
+  public long getNumSubscriptionsPending() {
+    try {
+      return getServer().getNumSubscriptionsPending();
+    } catch (RuntimeException e) {
+      s_logger.error("getNumSubscriptionsPending() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
+  @ManagedAttribute(description = "The number of chunks of subscription requests still being processed.")
+  public int getNumSubscriptionChunksPending() {
+    try {
+      return getServer().getNumSubscriptionChunksPending();
+    } catch (RuntimeException e) {
+      s_logger.error("getNumSubscriptionChunksPending() failed", e);
+      throw new RuntimeException(e.getMessage());
+    }
+  }
+
   @ManagedOperation(description = "Subscribes to market data. The subscription will be non-persistent."
       + " If the server already subscribes to the given market data, this method is a "
       + " no-op. Returns the name of the JMS topic market data will be published on.")
@@ -12,11 +12,18 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -29,12 +36,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.Lifecycle;
 import org.threeten.bp.Instant;
 
+import com.google.common.collect.Lists;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ExternalScheme;
 import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.livedata.entitlement.LiveDataEntitlementChecker;
 import com.opengamma.livedata.entitlement.PermissiveLiveDataEntitlementChecker;
 import com.opengamma.livedata.msg.LiveDataSubscriptionRequest;
@@ -53,6 +62,7 @@ import com.opengamma.livedata.server.mxbean.DistributorTrace;
 import com.opengamma.livedata.server.mxbean.SubscriptionTrace;
 import com.opengamma.livedata.server.mxbean.SubscriptionTracer;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.PerformanceCounter;
 import com.opengamma.util.PublicAPI;
 
@@ -65,6 +75,11 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(StandardLiveDataServer.class);
 
+  /**
+   * The number of threads used to prepare chunks of a subscription request, if no executor is set.
+   */
+  private static final int DEFAULT_SUBSCRIPTION_THREADS = 2;
+
   private volatile MarketDataSenderFactory _marketDataSenderFactory = new EmptyMarketDataSenderFactory();
   private final Collection<SubscriptionListener> _subscriptionListeners = new CopyOnWriteArrayList<>();
 
@@ -102,6 +117,21 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    */
   private final ExpirationManager _expirationManager = new ExpirationManager(this);
 
+  /**
+   * The maximum number of specifications from a subscription request to process together, zero to process each request in one go.
+   */
+  private volatile int _subscriptionChunkSize;
+
+  /**
+   * The executor used to prepare chunks of a subscription request ahead of subscribing to them, created on first use if not set.
+   */
+  private ExecutorService _subscriptionExecutor;
+  private boolean _ownsSubscriptionExecutor;
+
+  private final AtomicLong _numSubscriptionsRequested = new AtomicLong(0);
+  private final AtomicLong _numSubscriptionsProcessed = new AtomicLong(0);
+  private final AtomicInteger _numSubscriptionChunksPending = new AtomicInteger(0);
+
   /**
    * Creates an instance.
    * 
@@ -263,6 +293,59 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     _lkvStoreProvider = lkvStoreProvider;
   }
 
+  /**
+   * Gets the maximum number of specifications from a subscription request that are processed together.
+   *
+   * @return the chunk size, zero if each request is processed in one go
+   */
+  public int getSubscriptionChunkSize() {
+    return _subscriptionChunkSize;
+  }
+
+  /**
+   * Sets the maximum number of specifications from a subscription request that are processed together.
+   * <p>
+   * Large requests are split into chunks of this size, which are pipelined so that the responses for
+   * the first chunks, and the market data for them, are available before the whole request has been handled.
+   *
+   * @param subscriptionChunkSize the chunk size, zero to process each request in one go
+   */
+  public void setSubscriptionChunkSize(int subscriptionChunkSize) {
+    ArgumentChecker.notNegative(subscriptionChunkSize, "subscriptionChunkSize");
+    _subscriptionChunkSize = subscriptionChunkSize;
+  }
+
+  /**
+   * Gets the executor used to prepare chunks of a subscription request, creating a default one if none has been set.
+   * <p>
+   * A default executor is shut down when the server is stopped.
+   *
+   * @return the executor, not null
+   */
+  public synchronized ExecutorService getSubscriptionExecutor() {
+    if (_subscriptionExecutor == null) {
+      _subscriptionExecutor = Executors.newFixedThreadPool(DEFAULT_SUBSCRIPTION_THREADS, new NamedThreadPoolFactory("LiveDataSubscription", true));
+      _ownsSubscriptionExecutor = true;
+    }
+    return _subscriptionExecutor;
+  }
+
+  /**
+   * Sets the executor used to prepare chunks of a subscription request.
+   * <p>
+   * The caller remains responsible for shutting down the executor.
+   *
+   * @param subscriptionExecutor the executor, not null
+   */
+  public synchronized void setSubscriptionExecutor(ExecutorService subscriptionExecutor) {
+    ArgumentChecker.notNull(subscriptionExecutor, "subscriptionExecutor");
+    if (_ownsSubscriptionExecutor) {
+      _subscriptionExecutor.shutdown();
+      _ownsSubscriptionExecutor = false;
+    }
+    _subscriptionExecutor = subscriptionExecutor;
+  }
+
   //-------------------------------------------------------------------------
 
   /**
@@ -270,6 +353,8 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    * <p>
    * This returns a map from identifier to subscription handle. The map must contain an entry for each input <code>uniqueId</code>. Failure to subscribe to any <code>uniqueId</code> should result in
    * an exception being thrown.
+   * <p>
+   * This is called holding the subscription lock, so it is never called concurrently.
    *
    * @param uniqueIds the collection of identifiers to subscribe to, may be empty, not null
    * @return the subscription handles corresponding to the identifiers, not null
@@ -446,6 +531,11 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
       disconnect();
       stopExpirationManager();
     }
+    if (_ownsSubscriptionExecutor) {
+      _subscriptionExecutor.shutdown();
+      _subscriptionExecutor = null;
+      _ownsSubscriptionExecutor = false;
+    }
   }
 
   public synchronized void connect() {
@@ -521,7 +611,23 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   public Collection<LiveDataSubscriptionResponse> subscribe(
       Collection<LiveDataSpecification> liveDataSpecificationsFromClient, boolean persistent) {
     ArgumentChecker.notNull(liveDataSpecificationsFromClient, "Subscriptions to be created");
+    return subscribe(liveDataSpecificationsFromClient, getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient), persistent);
+  }
 
+  /**
+   * Subscribes to market data using distribution specifications that have already been resolved.
+   * <p>
+   * The subscriptions are made holding the subscription lock, so the underlying snapshot and subscribe calls for
+   * different requests are never made concurrently and a request for a specification that is already being
+   * subscribed sees the outcome of that subscription.
+   *
+   * @param liveDataSpecificationsFromClient the specifications to subscribe to, not null
+   * @param distrSpecs the distribution specification for each requested specification, not null
+   * @param persistent See {@link MarketDataDistributor#isPersistent()}
+   * @return the responses, not null
+   */
+  protected Collection<LiveDataSubscriptionResponse> subscribe(Collection<LiveDataSpecification> liveDataSpecificationsFromClient,
+      Map<LiveDataSpecification, DistributionSpecification> distrSpecs, boolean persistent) {
     s_logger.info("Subscribe requested for {}, persistent = {}", liveDataSpecificationsFromClient, persistent);
 
     verifyConnectionOk();
@@ -533,7 +639,6 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     _subscriptionLock.lock();
     try {
       final long distributionExpiryTime = System.currentTimeMillis() + getExpirationManager().getTimeoutExtension();
-      Map<LiveDataSpecification, DistributionSpecification> distrSpecs = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
       for (LiveDataSpecification specFromClient : liveDataSpecificationsFromClient) {
         // this is the only place where subscribe() can 'partially' fail
         final DistributionSpecification distributionSpec = distrSpecs.get(specFromClient);
@@ -683,7 +788,19 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    */
   public Collection<LiveDataSubscriptionResponse> snapshot(Collection<LiveDataSpecification> liveDataSpecificationsFromClient) {
     ArgumentChecker.notNull(liveDataSpecificationsFromClient, "Snapshots to be obtained");
+    return snapshot(liveDataSpecificationsFromClient, getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient));
+  }
 
+  /**
+   * Returns a snapshot of the requested market data, using distribution specifications that have already been resolved.
+   *
+   * @param liveDataSpecificationsFromClient What snapshot(s) are being requested. Not empty
+   * @param resolved the distribution specification for each requested specification, not null
+   * @return Responses to snapshot requests. Some, or even all, of them might be failures.
+   * @throws RuntimeException If no snapshot could be obtained due to unexpected error.
+   */
+  protected Collection<LiveDataSubscriptionResponse> snapshot(Collection<LiveDataSpecification> liveDataSpecificationsFromClient,
+      Map<LiveDataSpecification, DistributionSpecification> resolved) {
     s_logger.info("Snapshot requested for {}", liveDataSpecificationsFromClient);
 
     verifyConnectionOk();
@@ -693,7 +810,6 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     Collection<String> snapshotsToActuallyDo = new ArrayList<>();
     Map<String, LiveDataSpecification> securityUniqueId2LiveDataSpecificationFromClient = new HashMap<>();
 
-    Map<LiveDataSpecification, DistributionSpecification> resolved = getDistributionSpecificationResolver().resolve(liveDataSpecificationsFromClient);
     for (LiveDataSpecification liveDataSpecificationFromClient : liveDataSpecificationsFromClient) {
       DistributionSpecification distributionSpec = resolved.get(liveDataSpecificationFromClient);
       LiveDataSpecification fullyQualifiedSpec = distributionSpec.getFullyQualifiedLiveDataSpecification();
@@ -778,20 +894,114 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    * @return the response sent back to the client of this server, not null
    */
   public LiveDataSubscriptionResponseMsg subscriptionRequestMade(LiveDataSubscriptionRequest subscriptionRequest) {
+    return subscriptionRequestMade(subscriptionRequest, null);
+  }
+
+  /**
+   * Processes a market data subscription request, notifying a listener as the responses become available.
+   * <p>
+   * A request larger than the {@link #getSubscriptionChunkSize() subscription chunk size} is processed in chunks.
+   * Resolution, entitlement checks and snapshots for the chunks run on the {@link #getSubscriptionExecutor() subscription
+   * executor} while earlier chunks are subscribed. The subscriptions are made in turn on the calling thread, holding the
+   * subscription lock as for any other request, and the listener receives the responses for each chunk as soon as that
+   * chunk is complete.
+   *
+   * @param subscriptionRequest the request from the client telling what to subscribe to, not null
+   * @param listener the listener to notify as responses become available, null for none
+   * @return the responses to the whole request, not null
+   */
+  public LiveDataSubscriptionResponseMsg subscriptionRequestMade(LiveDataSubscriptionRequest subscriptionRequest, SubscriptionResponseListener listener) {
+    final int requested = subscriptionRequest.getSpecifications().size();
+    _numSubscriptionsRequested.addAndGet(requested);
+    final int chunkSize = getSubscriptionChunkSize();
+    if ((chunkSize > 0) && (requested > chunkSize)) {
+      return subscriptionRequestMadeInChunks(subscriptionRequest, chunkSize, listener);
+    }
+    LiveDataSubscriptionResponseMsg response;
     try {
-      return subscriptionRequestMadeImpl(subscriptionRequest);
+      response = subscriptionRequestMadeImpl(subscriptionRequest);
 
     } catch (Exception ex) {
       s_logger.error("Failed to subscribe to " + subscriptionRequest, ex);
+      response = buildErrorResponseMsg(subscriptionRequest.getUser(), subscriptionRequest.getSpecifications(), ex);
+    } finally {
+      _numSubscriptionsProcessed.addAndGet(requested);
+    }
+    notifyResponseListener(listener, response);
+    return response;
+  }
+
+  private LiveDataSubscriptionResponseMsg subscriptionRequestMadeInChunks(final LiveDataSubscriptionRequest subscriptionRequest, final int chunkSize,
+      final SubscriptionResponseListener listener) {
+    final UserPrincipal user = subscriptionRequest.getUser();
+    final SubscriptionType type = subscriptionRequest.getType();
+    final List<List<LiveDataSpecification>> chunks = Lists.partition(new ArrayList<>(subscriptionRequest.getSpecifications()), chunkSize);
+    s_logger.info("Processing subscription request for {} specifications in {} chunks", subscriptionRequest.getSpecifications().size(), chunks.size());
+    _numSubscriptionChunksPending.addAndGet(chunks.size());
+
+    // resolve, entitle and snapshot each chunk in the background, ahead of the subscriptions
+    final ExecutorService executor = getSubscriptionExecutor();
+    final List<Future<PreparedSubscriptionRequest>> prepared = new ArrayList<>(chunks.size());
+    for (final List<LiveDataSpecification> chunk : chunks) {
+      prepared.add(executor.submit(new Callable<PreparedSubscriptionRequest>() {
+        @Override
+        public PreparedSubscriptionRequest call() {
+          final PreparedSubscriptionRequest request = prepareSubscriptionRequest(new LiveDataSubscriptionRequest(user, type, chunk));
+          processSnapshots(request);
+          return request;
+        }
+      }));
+    }
 
-      ArrayList<LiveDataSubscriptionResponse> responses = new ArrayList<>();
-      for (LiveDataSpecification requestedSpecification : subscriptionRequest.getSpecifications()) {
-        responses.add(buildErrorResponse(requestedSpecification, ex));
+    // subscribe each chunk in turn; the subscriptions share the subscription lock so gain nothing from running in parallel
+    final ArrayList<LiveDataSubscriptionResponse> responses = new ArrayList<>(subscriptionRequest.getSpecifications().size());
+    for (int i = 0; i < chunks.size(); i++) {
+      final List<LiveDataSpecification> chunk = chunks.get(i);
+      LiveDataSubscriptionResponseMsg chunkResponse;
+      try {
+        final PreparedSubscriptionRequest request = prepared.get(i).get();
+        processSubscriptions(request);
+        chunkResponse = new LiveDataSubscriptionResponseMsg(user, request.getResponses());
+
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        prepared.get(i).cancel(true);
+        chunkResponse = buildErrorResponseMsg(user, chunk, ex);
+      } catch (ExecutionException ex) {
+        s_logger.error("Failed to subscribe to chunk " + i + " of " + subscriptionRequest, ex.getCause());
+        chunkResponse = buildErrorResponseMsg(user, chunk, ex.getCause());
+      } catch (Exception ex) {
+        s_logger.error("Failed to subscribe to chunk " + i + " of " + subscriptionRequest, ex);
+        chunkResponse = buildErrorResponseMsg(user, chunk, ex);
+      } finally {
+        _numSubscriptionsProcessed.addAndGet(chunk.size());
+        _numSubscriptionChunksPending.decrementAndGet();
       }
-      return new LiveDataSubscriptionResponseMsg(subscriptionRequest.getUser(), responses);
+      responses.addAll(chunkResponse.getResponses());
+      notifyResponseListener(listener, chunkResponse);
+    }
+    return new LiveDataSubscriptionResponseMsg(user, responses);
+  }
+
+  private void notifyResponseListener(SubscriptionResponseListener listener, LiveDataSubscriptionResponseMsg responses) {
+    if (listener == null) {
+      return;
+    }
+    try {
+      listener.responsesAvailable(responses);
+    } catch (RuntimeException e) {
+      s_logger.error("Listener " + listener + " failed", e);
     }
   }
 
+  private LiveDataSubscriptionResponseMsg buildErrorResponseMsg(UserPrincipal user, Collection<LiveDataSpecification> specifications, Throwable throwable) {
+    ArrayList<LiveDataSubscriptionResponse> responses = new ArrayList<>();
+    for (LiveDataSpecification requestedSpecification : specifications) {
+      responses.add(buildErrorResponse(requestedSpecification, throwable));
+    }
+    return new LiveDataSubscriptionResponseMsg(user, responses);
+  }
+
   /**
    * Handles a subscription request.
    *
@@ -799,12 +1009,27 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
    * @return the response, not null
    */
   protected LiveDataSubscriptionResponseMsg subscriptionRequestMadeImpl(LiveDataSubscriptionRequest subscriptionRequest) {
-    final boolean persistent = subscriptionRequest.getType().equals(SubscriptionType.PERSISTENT);
-    final ArrayList<LiveDataSubscriptionResponse> responses = new ArrayList<>();
+    final PreparedSubscriptionRequest request = prepareSubscriptionRequest(subscriptionRequest);
+    processSnapshots(request);
+    processSubscriptions(request);
+    return new LiveDataSubscriptionResponseMsg(subscriptionRequest.getUser(), request.getResponses());
+  }
+
+  /**
+   * Resolves the distribution specifications for a subscription request and checks the user's entitlements,
+   * sorting the specifications into snapshots and subscriptions.
+   *
+   * @param subscriptionRequest the request, not null
+   * @return the request, ready for the snapshots and subscriptions to be made, not null
+   */
+  protected PreparedSubscriptionRequest prepareSubscriptionRequest(LiveDataSubscriptionRequest subscriptionRequest) {
+    final PreparedSubscriptionRequest request = new PreparedSubscriptionRequest(subscriptionRequest);
+    final ArrayList<LiveDataSubscriptionResponse> responses = request.getResponses();
 
     // build and check the distribution specifications
     Map<LiveDataSpecification, DistributionSpecification> distributionSpecifications = getDistributionSpecificationResolver().resolve(
         subscriptionRequest.getSpecifications());
+    request.getDistributionSpecifications().putAll(distributionSpecifications);
     ArrayList<LiveDataSpecification> distributable = new ArrayList<>();
     for (LiveDataSpecification requestedSpecification : subscriptionRequest.getSpecifications()) {
       try {
@@ -827,8 +1052,6 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     }
 
     // check entitlement and sort into snapshots/subscriptions
-    ArrayList<LiveDataSpecification> snapshots = new ArrayList<>();
-    ArrayList<LiveDataSpecification> subscriptions = new ArrayList<>();
     Map<LiveDataSpecification, Boolean> entitled = getSubscriptionEntitlementChecker().isEntitled(subscriptionRequest.getUser(),
                                                                                                   distributable);
     for (Entry<LiveDataSpecification, Boolean> entry : entitled.entrySet()) {
@@ -846,9 +1069,9 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
 
         // Pass to the right bucket by type
         if (subscriptionRequest.getType() == SubscriptionType.SNAPSHOT) {
-          snapshots.add(requestedSpecification);
+          request.getSnapshots().add(requestedSpecification);
         } else {
-          subscriptions.add(requestedSpecification);
+          request.getSubscriptions().add(requestedSpecification);
         }
 
       } catch (Exception ex) {
@@ -856,47 +1079,129 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
         responses.add(buildErrorResponse(requestedSpecification, ex));
       }
     }
+    return request;
+  }
 
-    // handle snapshots
-    if (!snapshots.isEmpty()) {
-      try {
-        responses.addAll(snapshot(snapshots));
+  /**
+   * Obtains the snapshots for a prepared request, adding the responses to it.
+   *
+   * @param request the request, not null
+   */
+  protected void processSnapshots(PreparedSubscriptionRequest request) {
+    final ArrayList<LiveDataSpecification> snapshots = request.getSnapshots();
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    final ArrayList<LiveDataSubscriptionResponse> responses = request.getResponses();
+    try {
+      responses.addAll(snapshot(snapshots, request.getDistributionSpecifications()));
 
-      } catch (Exception ex) {
-        s_logger.error("Error obtaining snapshots for {}: {}", snapshots, ex.getMessage());
-        if (s_logger.isDebugEnabled()) {
-          s_logger.debug("Underlying exception in snapshot error " + snapshots, ex);
-        }
-        // REVIEW kirk 2012-07-20 -- This doesn't really look like an InternalError,
-        // but we have no way to discriminate in the response from doSnapshot at the moment.
-        for (LiveDataSpecification requestedSpecification : snapshots) {
-          String errorMsg = "Problem obtaining snapshot: " + ex.getMessage();
-          responses.add(buildErrorMessageResponse(requestedSpecification,
-                                                  LiveDataSubscriptionResult.INTERNAL_ERROR,
-                                                  errorMsg));
-        }
+    } catch (Exception ex) {
+      s_logger.error("Error obtaining snapshots for {}: {}", snapshots, ex.getMessage());
+      if (s_logger.isDebugEnabled()) {
+        s_logger.debug("Underlying exception in snapshot error " + snapshots, ex);
+      }
+      // REVIEW kirk 2012-07-20 -- This doesn't really look like an InternalError,
+      // but we have no way to discriminate in the response from doSnapshot at the moment.
+      for (LiveDataSpecification requestedSpecification : snapshots) {
+        String errorMsg = "Problem obtaining snapshot: " + ex.getMessage();
+        responses.add(buildErrorMessageResponse(requestedSpecification,
+                                                LiveDataSubscriptionResult.INTERNAL_ERROR,
+                                                errorMsg));
       }
     }
+    snapshots.clear();
+  }
 
-    // handle subscriptions
-    if (!subscriptions.isEmpty()) {
-      try {
-        responses.addAll(subscribe(subscriptions, persistent));
+  /**
+   * Makes the subscriptions for a prepared request, adding the responses to it.
+   *
+   * @param request the request, not null
+   */
+  protected void processSubscriptions(PreparedSubscriptionRequest request) {
+    final ArrayList<LiveDataSpecification> subscriptions = request.getSubscriptions();
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    final ArrayList<LiveDataSubscriptionResponse> responses = request.getResponses();
+    try {
+      responses.addAll(subscribe(subscriptions, request.getDistributionSpecifications(), request.isPersistent()));
 
-      } catch (Exception ex) {
-        s_logger.error("Error obtaining subscriptions for {}: {}",
-                       subscriptions,
-                       (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName()));
-        if (s_logger.isDebugEnabled()) {
-          s_logger.debug("Underlying exception in subscription error " + subscriptions, ex);
-        }
-        for (LiveDataSpecification requestedSpecification : subscriptions) {
-          responses.add(buildErrorResponse(requestedSpecification, ex));
-        }
+    } catch (Exception ex) {
+      s_logger.error("Error obtaining subscriptions for {}: {}",
+                     subscriptions,
+                     (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName()));
+      if (s_logger.isDebugEnabled()) {
+        s_logger.debug("Underlying exception in subscription error " + subscriptions, ex);
       }
+      for (LiveDataSpecification requestedSpecification : subscriptions) {
+        responses.add(buildErrorResponse(requestedSpecification, ex));
+      }
+    }
+    subscriptions.clear();
+  }
+
+  /**
+   * A subscription request that has been resolved and entitlement checked, sorted into the
+   * snapshots and subscriptions still to be made, with the responses produced so far.
+   */
+  protected static final class PreparedSubscriptionRequest {
+
+    private final boolean _persistent;
+    private final ArrayList<LiveDataSubscriptionResponse> _responses = new ArrayList<>();
+    private final ArrayList<LiveDataSpecification> _snapshots = new ArrayList<>();
+    private final ArrayList<LiveDataSpecification> _subscriptions = new ArrayList<>();
+    private final Map<LiveDataSpecification, DistributionSpecification> _distributionSpecifications = new HashMap<>();
+
+    private PreparedSubscriptionRequest(LiveDataSubscriptionRequest subscriptionRequest) {
+      _persistent = subscriptionRequest.getType().equals(SubscriptionType.PERSISTENT);
+    }
+
+    /**
+     * Gets whether the subscriptions are persistent.
+     *
+     * @return true if persistent
+     */
+    public boolean isPersistent() {
+      return _persistent;
+    }
+
+    /**
+     * Gets the responses produced so far.
+     *
+     * @return the responses, not null
+     */
+    public ArrayList<LiveDataSubscriptionResponse> getResponses() {
+      return _responses;
+    }
+
+    /**
+     * Gets the specifications still to be snapshotted.
+     *
+     * @return the specifications, not null
+     */
+    public ArrayList<LiveDataSpecification> getSnapshots() {
+      return _snapshots;
+    }
+
+    /**
+     * Gets the specifications still to be subscribed to.
+     *
+     * @return the specifications, not null
+     */
+    public ArrayList<LiveDataSpecification> getSubscriptions() {
+      return _subscriptions;
+    }
+
+    /**
+     * Gets the resolved distribution specifications, keyed by requested specification.
+     *
+     * @return the distribution specifications, not null
+     */
+    public Map<LiveDataSpecification, DistributionSpecification> getDistributionSpecifications() {
+      return _distributionSpecifications;
     }
 
-    return new LiveDataSubscriptionResponseMsg(subscriptionRequest.getUser(), responses);
   }
 
   //-------------------------------------------------------------------------
@@ -1090,6 +1395,34 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     return _numMarketDataUpdatesReceived.get();
   }
 
+  /**
+   * @return The number of specifications received in subscription requests
+   */
+  public long getNumSubscriptionsRequested() {
+    return _numSubscriptionsRequested.get();
+  }
+
+  /**
+   * @return The number of specifications from subscription requests that have been responded to
+   */
+  public long getNumSubscriptionsProcessed() {
+    return _numSubscriptionsProcessed.get();
+  }
+
+  /**
+   * @return The number of specifications from subscription requests that are still to be responded to
+   */
+  public long getNumSubscriptionsPending() {
+    return _numSubscriptionsRequested.get() - _numSubscriptionsProcessed.get();
+  }
+
+  /**
+   * @return The number of chunks of subscription requests that are still to be responded to
+   */
+  public int getNumSubscriptionChunksPending() {
+    return _numSubscriptionChunksPending.get();
+  }
+
   /**
    * @return The approximate rate of live data updates received, or -1 if tracking is disabled
    */
@@ -0,0 +1,25 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import com.opengamma.livedata.msg.LiveDataSubscriptionResponseMsg;
+
+/**
+ * Receives the responses to a subscription request as they become available.
+ * <p>
+ * When a large request is processed in chunks, this is called once for each chunk,
+ * in the order of the chunks in the request.
+ */
+public interface SubscriptionResponseListener {
+
+  /**
+   * Called when the responses for part, or all, of a request are available.
+   * 
+   * @param responses  the responses for the part of the request just processed, not null
+   */
+  void responsesAvailable(LiveDataSubscriptionResponseMsg responses);
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@link MarketDataSender} that conflates successive updates before passing them on.
+ * <p>
+ * Updates received between two calls to {@link #flush()} are merged field by field into
+ * a single latest-value message, which is passed to the underlying sender when flushed.
+ * The sequence number of the merged message is that of the last update merged into it,
+ * so the sequence numbers seen by the underlying sender remain strictly increasing.
+ * <p>
+ * Flushing is driven externally, normally on a timer by {@link ConflatingMarketDataSenderFactory},
+ * or on demand by a consumer that is about to use the data.
+ */
+public class ConflatingMarketDataSender implements MarketDataSender {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingMarketDataSender.class);
+
+  /**
+   * The underlying sender.
+   */
+  private final MarketDataSender _underlying;
+  /**
+   * The fields received since the last flush.
+   */
+  private final FieldHistoryStore _pending = new FieldHistoryStore();
+  /**
+   * The sequence number of the last update received, guarded by this.
+   */
+  private long _lastSequenceNumber = -1;
+  /**
+   * The sequence number of the last update sent, guarded by this.
+   */
+  private long _lastSentSequenceNumber = -1;
+  /**
+   * The number of updates received, guarded by this.
+   */
+  private long _numUpdatesReceived;
+  /**
+   * The number of conflated messages sent, guarded by this.
+   */
+  private long _numMessagesSent;
+  /**
+   * The lock held while flushing.
+   */
+  private final Object _flushLock = new Object();
+
+  /**
+   * Creates an instance.
+   *
+   * @param underlying  the sender to pass conflated updates to, not null
+   */
+  public ConflatingMarketDataSender(MarketDataSender underlying) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying sender.
+   *
+   * @return the sender, not null
+   */
+  public MarketDataSender getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public MarketDataDistributor getDistributor() {
+    return _underlying.getDistributor();
+  }
+
+  /**
+   * Gets the number of updates received.
+   *
+   * @return the number of updates
+   */
+  public synchronized long getNumUpdatesReceived() {
+    return _numUpdatesReceived;
+  }
+
+  /**
+   * Gets the number of conflated messages passed to the underlying sender.
+   *
+   * @return the number of messages
+   */
+  public synchronized long getNumMessagesSent() {
+    return _numMessagesSent;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public synchronized void sendMarketData(LiveDataValueUpdateBean data) {
+    _pending.liveDataReceived(data.getFields());
+    _lastSequenceNumber = Math.max(_lastSequenceNumber, data.getSequenceNumber());
+    _numUpdatesReceived++;
+  }
+
+  /**
+   * Sends any updates received since the last flush as a single message.
+   * <p>
+   * Nothing is sent if no updates have been received since the last flush.
+   *
+   * @return true if a message was sent
+   */
+  public boolean flush() {
+    // the flush lock keeps sends in sequence order without blocking incoming updates during the send
+    synchronized (_flushLock) {
+      final LiveDataValueUpdateBean data;
+      synchronized (this) {
+        if (_pending.isEmpty() || _lastSequenceNumber <= _lastSentSequenceNumber) {
+          return false;
+        }
+        data = new LiveDataValueUpdateBean(
+            _lastSequenceNumber,
+            getDistributor().getDistributionSpec().getFullyQualifiedLiveDataSpecification(),
+            _pending.getLastKnownValues());
+        _pending.clear();
+        _lastSentSequenceNumber = _lastSequenceNumber;
+        _numMessagesSent++;
+      }
+      s_logger.debug("{}: Sending conflated update {}", this, data);
+      _underlying.sendMarketData(data);
+      return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ConflatingMarketDataSender[" + _underlying + "]";
+  }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Factory creating senders that deliver conflated ticks, optionally alongside unconflated ones.
+ * <p>
+ * Each sender created by the conflated factory is wrapped in a {@link ConflatingMarketDataSender}.
+ * While running, all conflating senders are flushed on a fixed interval. Consumers can also
+ * request an immediate flush using {@link #flush()}. An interval of zero disables the timer,
+ * so conflated data is only sent on demand.
+ * <p>
+ * Senders created by the unconflated factory, if any, receive every tick as before. This
+ * allows consumers that need the full stream to keep it while others, such as clients that
+ * only re-value on view cycles, listen to the conflated stream.
+ */
+public class ConflatingMarketDataSenderFactory implements MarketDataSenderFactory, Lifecycle {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingMarketDataSenderFactory.class);
+
+  /**
+   * The default conflation interval, in milliseconds.
+   */
+  public static final long DEFAULT_CONFLATION_INTERVAL = 500;
+
+  /**
+   * A {@code WeakHashMap} is used here so the senders can be garbage collected
+   * automatically when they're no longer used.
+   */
+  private final Set<ConflatingMarketDataSender> _allActiveSenders =
+      Collections.newSetFromMap(new WeakHashMap<ConflatingMarketDataSender, Boolean>());
+  /**
+   * The factory for senders that receive conflated data.
+   */
+  private final MarketDataSenderFactory _conflatedFactory;
+  /**
+   * The factory for senders that receive every tick, null if none.
+   */
+  private final MarketDataSenderFactory _unconflatedFactory;
+  /**
+   * The conflation interval in milliseconds, zero to flush on demand only.
+   */
+  private final long _conflationInterval;
+  /**
+   * Whether the factory is running.
+   */
+  private boolean _running;
+  /**
+   * The timer, null if not running or flushing on demand only.
+   */
+  private Timer _timer;
+
+  /**
+   * Creates an instance sending conflated data only, using the default interval.
+   *
+   * @param conflatedFactory  the factory for the senders receiving conflated data, not null
+   */
+  public ConflatingMarketDataSenderFactory(MarketDataSenderFactory conflatedFactory) {
+    this(conflatedFactory, null, DEFAULT_CONFLATION_INTERVAL);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param conflatedFactory  the factory for the senders receiving conflated data, not null
+   * @param unconflatedFactory  the factory for the senders receiving every tick, null if none
+   * @param conflationIntervalMillis  the conflation interval in milliseconds, zero to flush on demand only
+   */
+  public ConflatingMarketDataSenderFactory(MarketDataSenderFactory conflatedFactory, MarketDataSenderFactory unconflatedFactory,
+      long conflationIntervalMillis) {
+    ArgumentChecker.notNull(conflatedFactory, "conflatedFactory");
+    ArgumentChecker.notNegative(conflationIntervalMillis, "conflationIntervalMillis");
+    _conflatedFactory = conflatedFactory;
+    _unconflatedFactory = unconflatedFactory;
+    _conflationInterval = conflationIntervalMillis;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the conflation interval.
+   *
+   * @return the interval in milliseconds, zero if data is only flushed on demand
+   */
+  public long getConflationInterval() {
+    return _conflationInterval;
+  }
+
+  @Override
+  public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+    Collection<MarketDataSender> senders = new ArrayList<MarketDataSender>();
+    if (_unconflatedFactory != null) {
+      senders.addAll(_unconflatedFactory.create(distributor));
+    }
+    Collection<MarketDataSender> underlyingSenders = _conflatedFactory.create(distributor);
+    synchronized (_allActiveSenders) {
+      for (MarketDataSender underlying : underlyingSenders) {
+        ConflatingMarketDataSender sender = new ConflatingMarketDataSender(underlying);
+        _allActiveSenders.add(sender);
+        senders.add(sender);
+      }
+    }
+    s_logger.debug("Created conflating senders for {}", distributor);
+    return senders;
+  }
+
+  /**
+   * Flushes all conflating senders, sending any updates received since the last flush.
+   *
+   * @return the number of messages sent
+   */
+  public int flush() {
+    Collection<ConflatingMarketDataSender> senders;
+    synchronized (_allActiveSenders) {
+      senders = new ArrayList<ConflatingMarketDataSender>(_allActiveSenders);
+    }
+    int sent = 0;
+    for (ConflatingMarketDataSender sender : senders) {
+      try {
+        if (sender.flush()) {
+          sent++;
+        }
+      } catch (RuntimeException e) {
+        s_logger.error(sender + " failed", e);
+      }
+    }
+    return sent;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public synchronized boolean isRunning() {
+    return _running;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (_running) {
+      return;
+    }
+    _running = true;
+    if (_conflationInterval == 0) {
+      return;
+    }
+    _timer = new Timer("ConflatingMarketDataSenderFactory Timer", true);
+    _timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, _conflationInterval, _conflationInterval);
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!_running) {
+      return;
+    }
+    _running = false;
+    if (_timer != null) {
+      _timer.cancel();
+      _timer = null;
+    }
+    // don't lose the updates received since the last flush
+    flush();
+  }
+
+}
@@ -50,6 +50,10 @@ public class JmsSender implements MarketDataSender {
    * The distributor.
    */
   private final MarketDataDistributor _distributor;
+  /**
+   * The JMS topic the data is published to.
+   */
+  private final String _destinationName;
   /**
    * The field value history.
    */
@@ -75,12 +79,27 @@ public class JmsSender implements MarketDataSender {
    * @param fudgeContext  the Fudge context, not null
    */
   public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext) {
+    this(jmsConnector, distributor, fudgeContext, distributor.getDistributionSpec().getJmsTopic());
+  }
+
+  /**
+   * Creates an instance publishing to an explicit topic rather than the one named by
+   * the distribution specification, for example the topic carrying conflated ticks.
+   * 
+   * @param jmsConnector  the JMS connector, not null
+   * @param distributor  the distributor, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param destinationName  the JMS topic to publish to, not null
+   */
+  public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext, String destinationName) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     ArgumentChecker.notNull(distributor, "Market data distributor");
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(destinationName, "destinationName");
     _jmsConnector = jmsConnector;
     _fudgeContext = fudgeContext;
     _distributor = distributor;
+    _destinationName = destinationName;
   }
 
   //-------------------------------------------------------------------------
@@ -118,10 +137,9 @@ public class JmsSender implements MarketDataSender {
     s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
     
     FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
-    String destinationName = distributionSpec.getJmsTopic();
     final byte[] bytes = _fudgeContext.toByteArray(fudgeMsg);
     
-    _jmsConnector.getJmsTemplateTopic().send(destinationName, new MessageCreator() {
+    _jmsConnector.getJmsTemplateTopic().send(_destinationName, new MessageCreator() {
       @Override
       public Message createMessage(Session session) throws JMSException {
         // TODO kirk 2009-10-30 -- We want to put stuff in the properties as well I think.
@@ -179,7 +197,7 @@ public class JmsSender implements MarketDataSender {
 
   @Override
   public String toString() {
-    return "JmsSender[" + _distributor.getDistributionSpec().toString() +  "]";    
+    return "JmsSender[" + _distributor.getDistributionSpec().toString() + ", " + _destinationName + "]";    
   }
 
 }
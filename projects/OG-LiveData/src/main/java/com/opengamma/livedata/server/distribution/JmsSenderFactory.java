@@ -42,6 +42,10 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
    * The Fudge context.
    */
   private FudgeContext _fudgeContext;
+  /**
+   * Whether the senders publish to the conflated topics.
+   */
+  private boolean _conflated;
   /**
    * The executor.
    */
@@ -105,6 +109,26 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
     _fudgeContext = fudgeContext;
   }
 
+  /**
+   * Checks whether the created senders publish to the conflated topics.
+   * 
+   * @return true if publishing to the conflated topics
+   */
+  public boolean isConflated() {
+    return _conflated;
+  }
+
+  /**
+   * Sets whether the created senders publish to the conflated topics rather than the
+   * normal tick topics. Typically used as the underlying factory of a
+   * {@link ConflatingMarketDataSenderFactory}.
+   * 
+   * @param conflated  true to publish to the conflated topics
+   */
+  public void setConflated(boolean conflated) {
+    _conflated = conflated;
+  }
+
   //-------------------------------------------------------------------------
   public synchronized void transportInterrupted() {
     s_logger.warn("JMS transport interrupted; notifying {} senders", _allActiveSenders.size());
@@ -133,7 +157,12 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
   @Override
   public synchronized Collection<MarketDataSender> create(MarketDataDistributor distributor) {
     s_logger.debug("Created JmsSender for {}", distributor);
-    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext());
+    JmsSender sender;
+    if (isConflated()) {
+      sender = new JmsSender(_jmsConnector, distributor, getFudgeContext(), distributor.getDistributionSpec().getConflatedJmsTopic());
+    } else {
+      sender = new JmsSender(_jmsConnector, distributor, getFudgeContext());
+    }
     _allActiveSenders.add(sender);
     return Collections.<MarketDataSender>singleton(sender);
   }
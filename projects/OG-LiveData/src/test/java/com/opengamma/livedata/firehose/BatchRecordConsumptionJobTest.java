@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.firehose;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BatchRecordConsumptionJobTest {
+
+  private static List<byte[]> records(int count) {
+    Random random = new Random(1L);
+    List<byte[]> records = new ArrayList<byte[]>();
+    for (int i = 0; i < count; i++) {
+      byte[] record = new byte[random.nextInt(10) == 0 ? random.nextInt(200) : random.nextInt(20)];
+      random.nextBytes(record);
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static File capture(List<byte[]> records) throws IOException {
+    File file = File.createTempFile("BatchRecordConsumptionJobTest", ".dat");
+    file.deleteOnExit();
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+      for (byte[] record : records) {
+        output.writeInt(record.length);
+        output.write(record);
+      }
+    }
+    return file;
+  }
+
+  @SuppressWarnings("unchecked")
+  public void readsAllRecordsAcrossBufferBoundaries() throws IOException {
+    List<byte[]> records = records(1000);
+    File file = capture(records);
+    BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+    BatchRecordConsumptionJob job = new BatchRecordConsumptionJob(new FileChannelFactory(file), new ByteArrayRecordDecoder.Factory(), queue, 16);
+    job.setTerminateAtEndOfStream(true);
+    job.run();
+
+    List<Object> received = new ArrayList<Object>();
+    Object batch;
+    while ((batch = queue.poll()) != FireHoseRecordProcessor.EOF_INDICATOR) {
+      assertTrue(((List<Object>) batch).size() > 0);
+      received.addAll((List<Object>) batch);
+    }
+    assertTrue(queue.isEmpty());
+    assertEquals(records.size(), received.size());
+    for (int i = 0; i < records.size(); i++) {
+      assertTrue(Arrays.equals(records.get(i), (byte[]) received.get(i)));
+    }
+    assertEquals(records.size(), job.getRecordCount());
+    assertEquals(file.length(), job.getByteCount());
+    // the largest record doesn't fit in the initial buffer
+    assertTrue(job.getBufferSize() > 16);
+  }
+
+  public void decodesInPlace() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(32);
+    buffer.putInt(3).put(new byte[] {1, 2, 3 }).putInt(4).put((byte) 4);
+    buffer.flip();
+    List<byte[]> records = new ArrayList<byte[]>();
+    new ByteArrayRecordDecoder().decode(buffer, records);
+    assertEquals(1, records.size());
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3 }, records.get(0)));
+    // position at the start of the partial record, limit unchanged
+    assertEquals(7, buffer.position());
+    assertEquals(12, buffer.limit());
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void invalidLength() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    buffer.putInt(-1);
+    buffer.flip();
+    new ByteArrayRecordDecoder().decode(buffer, new ArrayList<byte[]>());
+  }
+
+  public void replay() throws IOException {
+    List<byte[]> records = records(5000);
+    File file = capture(records);
+    ReplayRecordStream.Result result = ReplayRecordStream.replay(new FileChannelFactory(file), new ByteArrayRecordDecoder.Factory());
+    assertEquals(records.size(), result.getRecordCount());
+    assertEquals(records.size(), result.getDispatchedCount());
+    assertEquals(file.length(), result.getByteCount());
+  }
+
+  public void recordProcessorAdapter() {
+    final List<Object> processed = new ArrayList<Object>();
+    BatchRecordProcessor<Object> processor = BatchRecordProcessingJob.of(new RecordProcessor<Object>() {
+      @Override
+      public void process(Object record) {
+        if (record == null) {
+          throw new IllegalArgumentException();
+        }
+        processed.add(record);
+      }
+    });
+    processor.process(Arrays.<Object>asList("A", null, "B"));
+    assertEquals(Arrays.<Object>asList("A", "B"), processed);
+    assertSame(processed.get(0), "A");
+  }
+
+}
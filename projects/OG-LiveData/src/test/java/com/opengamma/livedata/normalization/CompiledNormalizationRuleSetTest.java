@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Differential test of the compiled normalization rules against the interpreted ones.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CompiledNormalizationRuleSetTest {
+
+  private static final String[] RAW_FIELDS = {
+    "BID", "ASK", "LAST_PRICE", "PX_SETTLE", "VOLUME", "EQY_DVD_YLD_EST", "OPT_IMPLIED_VOLATILITY_MID_RT",
+    "OPT_IMPLIED_VOLATILITY_BID_RT", "OPT_IMPLIED_VOLATILITY_ASK_RT", "YLD_YTM_MID", "RT_EXCH_MARKET_STATUS",
+    MarketDataRequirementNames.ANNUAL_DIVIDEND, MarketDataRequirementNames.CLOSE, MarketDataRequirementNames.MID };
+
+  private static List<NormalizationRule> standardRules() {
+    List<NormalizationRule> rules = new ArrayList<NormalizationRule>();
+    rules.add(new FieldNameChange("BID", MarketDataRequirementNames.BID));
+    rules.add(new FieldNameChange("ASK", MarketDataRequirementNames.ASK));
+    rules.add(new FieldNameChange("LAST_PRICE", MarketDataRequirementNames.LAST));
+    rules.add(new FieldNameChange("PX_SETTLE", MarketDataRequirementNames.SETTLE_PRICE));
+    rules.add(new FieldNameChange("VOLUME", MarketDataRequirementNames.VOLUME));
+    rules.add(new FieldNameChange("OPT_IMPLIED_VOLATILITY_BID_RT", MarketDataRequirementNames.BID_IMPLIED_VOLATILITY));
+    rules.add(new FieldNameChange("OPT_IMPLIED_VOLATILITY_ASK_RT", MarketDataRequirementNames.ASK_IMPLIED_VOLATILITY));
+    rules.add(new FieldNameChange("OPT_IMPLIED_VOLATILITY_MID_RT", MarketDataRequirementNames.MID_IMPLIED_VOLATILITY));
+    rules.add(new FieldNameChange("YLD_YTM_MID", MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID));
+    rules.add(new FieldNameChange("EQY_DVD_YLD_EST", MarketDataRequirementNames.DIVIDEND_YIELD));
+    rules.add(new MarketValueCalculator());
+    rules.add(new UnitChange(0.01, MarketDataRequirementNames.DIVIDEND_YIELD, MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID));
+    rules.add(new ImpliedVolatilityCalculator());
+    rules.add(new NextDividendDateCalculator());
+    rules.add(new FieldHistoryUpdater());
+    rules.add(new FieldFilter(
+        MarketDataRequirementNames.MARKET_VALUE,
+        MarketDataRequirementNames.SETTLE_PRICE,
+        MarketDataRequirementNames.VOLUME,
+        MarketDataRequirementNames.IMPLIED_VOLATILITY,
+        MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID,
+        MarketDataRequirementNames.DIVIDEND_YIELD,
+        MarketDataRequirementNames.NEXT_DIVIDEND_DATE));
+    rules.add(new RequiredFieldFilter(MarketDataRequirementNames.MARKET_VALUE));
+    return rules;
+  }
+
+  /**
+   * Generates a reproducible tape of ticks, including the awkward cases: partial updates,
+   * repeated fields, ordinals, unnamed fields and non-numeric values.
+   */
+  private static List<FudgeMsg> ticks(long seed, int count) {
+    Random random = new Random(seed);
+    List<FudgeMsg> ticks = new ArrayList<FudgeMsg>();
+    double price = 100;
+    for (int i = 0; i < count; i++) {
+      price += random.nextGaussian();
+      MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+      for (String field : RAW_FIELDS) {
+        if (random.nextInt(3) == 0) {
+          if (field.equals("RT_EXCH_MARKET_STATUS")) {
+            msg.add(field, random.nextBoolean() ? "ACTV" : "CLSD");
+          } else if (field.equals("VOLUME")) {
+            msg.add(field, random.nextInt(100000));
+          } else {
+            msg.add(field, price + random.nextGaussian() * (random.nextInt(10) == 0 ? 50 : 0.1));
+          }
+        }
+      }
+      switch (random.nextInt(40)) {
+        case 0:
+          msg.add("BID", price);
+          break;
+        case 1:
+          msg.add(MarketDataRequirementNames.MARKET_VALUE, price);
+          break;
+        case 2:
+          msg.add("ASK", 7, price);
+          break;
+        case 3:
+          msg.add(null, 3, "unnamed");
+          break;
+        case 4:
+          msg.add(MarketDataRequirementNames.NEXT_DIVIDEND_DATE, "2015-06-30");
+          break;
+        case 5:
+          msg.add(MarketDataRequirementNames.IMPLIED_VOLATILITY, 0.2);
+          break;
+        default:
+          break;
+      }
+      ticks.add(msg);
+    }
+    return ticks;
+  }
+
+  private static void assertSameMessage(FudgeMsg expected, FudgeMsg actual) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    List<FudgeField> expectedFields = expected.getAllFields();
+    List<FudgeField> actualFields = actual.getAllFields();
+    assertEquals(expectedFields.size(), actualFields.size());
+    for (int i = 0; i < expectedFields.size(); i++) {
+      assertEquals(expectedFields.get(i).getName(), actualFields.get(i).getName());
+      assertEquals(expectedFields.get(i).getOrdinal(), actualFields.get(i).getOrdinal());
+      assertEquals(expectedFields.get(i).getType(), actualFields.get(i).getType());
+      assertEquals(expectedFields.get(i).getValue(), actualFields.get(i).getValue());
+    }
+  }
+
+  private static void assertSameHistory(FieldHistoryStore expected, FieldHistoryStore actual) {
+    FudgeMsg expectedValues = expected.getLastKnownValues();
+    FudgeMsg actualValues = actual.getLastKnownValues();
+    assertEquals(expectedValues.getNumFields(), actualValues.getNumFields());
+    for (FudgeField field : expectedValues) {
+      if (field.getName() != null) {
+        assertEquals(field.getValue(), actualValues.getValue(field.getName()));
+      }
+    }
+  }
+
+  private static void assertSameOutput(NormalizationRuleSet ruleSet, List<FudgeMsg> ticks) {
+    FieldHistoryStore interpretedHistory = new FieldHistoryStore();
+    FieldHistoryStore compiledHistory = new FieldHistoryStore();
+    for (FudgeMsg tick : ticks) {
+      FudgeMsg expected = ruleSet.getInterpretedMessage(tick, "123", interpretedHistory);
+      FudgeMsg actual = ruleSet.getCompiled().getNormalizedMessage(tick, "123", compiledHistory);
+      assertSameMessage(expected, actual);
+      assertSameHistory(interpretedHistory, compiledHistory);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  public void standardRuleSet() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet("Test", "", standardRules());
+    assertSameOutput(ruleSet, ticks(1L, 5000));
+  }
+
+  public void uncompiledRule() {
+    List<NormalizationRule> rules = standardRules();
+    // an arbitrary rule, applied to the message built at that point
+    rules.add(10, new NormalizationRule() {
+      @Override
+      public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+        if (msg.hasField("RT_EXCH_MARKET_STATUS") && "CLSD".equals(msg.getString("RT_EXCH_MARKET_STATUS"))) {
+          return null;
+        }
+        Double bid = msg.getDouble(MarketDataRequirementNames.BID);
+        if (bid != null && bid < 100) {
+          msg.add(MarketDataRequirementNames.BID, bid);
+        }
+        return msg;
+      }
+    });
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet("Test", "", rules);
+    assertSameOutput(ruleSet, ticks(2L, 5000));
+  }
+
+  public void subclassedRuleNotCompiled() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet("Test", new FieldFilter("Foo") {
+      @Override
+      public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+        return msg;
+      }
+    });
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("Bar", 2.0);
+    FudgeMsg normalized = ruleSet.getNormalizedMessage(msg, "123", new FieldHistoryStore());
+    assertEquals(2.0, normalized.getDouble("Bar"), 0d);
+  }
+
+  public void emptyRuleSet() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet("Test");
+    assertSameOutput(ruleSet, ticks(3L, 500));
+  }
+
+}
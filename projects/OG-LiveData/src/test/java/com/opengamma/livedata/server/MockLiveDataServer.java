@@ -7,6 +7,7 @@ package com.opengamma.livedata.server;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,8 +28,8 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 public class MockLiveDataServer extends StandardLiveDataServer {
 
   private final ExternalScheme _domain;
-  private final List<String> _subscriptions = new ArrayList<String>();
-  private final List<String> _unsubscriptions = new ArrayList<String>();
+  private final List<String> _subscriptions = Collections.synchronizedList(new ArrayList<String>());
+  private final List<String> _unsubscriptions = Collections.synchronizedList(new ArrayList<String>());
   private volatile int _numConnections; // = 0;
   private volatile int _numDisconnections; // = 0;
   private final Map<String, FudgeMsg> _uniqueId2MarketData;
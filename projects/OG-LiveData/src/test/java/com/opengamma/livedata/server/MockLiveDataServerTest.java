@@ -12,7 +12,11 @@ import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import net.sf.ehcache.CacheManager;
 
@@ -240,4 +244,59 @@ public class MockLiveDataServerTest {
     assertFalse(_server.unsubscribe("testsub"));
   }
 
+  public void chunkedSubscription() {
+    UserPrincipal user = new UserPrincipal("mark", "1.1.1.1");
+    List<LiveDataSpecification> requestedSpecs = new ArrayList<LiveDataSpecification>();
+    for (int i = 0; i < 25; i++) {
+      requestedSpecs.add(new LiveDataSpecification(StandardRules.getNoNormalization().getId(), ExternalId.of(_domain, "chunk" + i)));
+    }
+    LiveDataSubscriptionRequest request = new LiveDataSubscriptionRequest(user, SubscriptionType.NON_PERSISTENT, requestedSpecs);
+    _server.setSubscriptionChunkSize(10);
+
+    final List<LiveDataSubscriptionResponseMsg> chunks = new ArrayList<LiveDataSubscriptionResponseMsg>();
+    LiveDataSubscriptionResponseMsg response = _server.subscriptionRequestMade(request, new SubscriptionResponseListener() {
+      @Override
+      public void responsesAvailable(LiveDataSubscriptionResponseMsg responses) {
+        chunks.add(responses);
+      }
+    });
+
+    assertEquals(3, chunks.size());
+    assertEquals(new HashSet<LiveDataSpecification>(requestedSpecs.subList(0, 10)), requestedSpecifications(chunks.get(0)));
+    assertEquals(new HashSet<LiveDataSpecification>(requestedSpecs.subList(10, 20)), requestedSpecifications(chunks.get(1)));
+    assertEquals(new HashSet<LiveDataSpecification>(requestedSpecs.subList(20, 25)), requestedSpecifications(chunks.get(2)));
+    assertEquals(25, response.getResponses().size());
+    assertEquals(new HashSet<LiveDataSpecification>(requestedSpecs), requestedSpecifications(response));
+    for (LiveDataSubscriptionResponse chunkResponse : response.getResponses()) {
+      assertEquals(LiveDataSubscriptionResult.SUCCESS, chunkResponse.getSubscriptionResult());
+    }
+    // the chunks are subscribed in turn, one at a time
+    List<String> subscribed = _server.getActualSubscriptions();
+    assertEquals(25, subscribed.size());
+    assertEquals(uniqueIds(requestedSpecs.subList(0, 10)), new HashSet<String>(subscribed.subList(0, 10)));
+    assertEquals(uniqueIds(requestedSpecs.subList(10, 20)), new HashSet<String>(subscribed.subList(10, 20)));
+    assertEquals(uniqueIds(requestedSpecs.subList(20, 25)), new HashSet<String>(subscribed.subList(20, 25)));
+    assertEquals(25, _server.getNumActiveSubscriptions());
+    assertEquals(25, _server.getNumSubscriptionsRequested());
+    assertEquals(25, _server.getNumSubscriptionsProcessed());
+    assertEquals(0, _server.getNumSubscriptionsPending());
+    assertEquals(0, _server.getNumSubscriptionChunksPending());
+  }
+
+  private Set<String> uniqueIds(List<LiveDataSpecification> specifications) {
+    Set<String> uniqueIds = new HashSet<String>();
+    for (LiveDataSpecification specification : specifications) {
+      uniqueIds.add(specification.getIdentifier(_domain));
+    }
+    return uniqueIds;
+  }
+
+  private static Set<LiveDataSpecification> requestedSpecifications(LiveDataSubscriptionResponseMsg responses) {
+    Set<LiveDataSpecification> specifications = new HashSet<LiveDataSpecification>();
+    for (LiveDataSubscriptionResponse response : responses.getResponses()) {
+      specifications.add(response.getRequestedSpecification());
+    }
+    return specifications;
+  }
+
 }
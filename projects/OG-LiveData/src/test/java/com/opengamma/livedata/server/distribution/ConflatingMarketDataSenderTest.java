@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ConflatingMarketDataSenderTest {
+
+  public void conflatesUpdates() {
+    CollectingSenderFactory conflated = new CollectingSenderFactory();
+    CollectingSenderFactory unconflated = new CollectingSenderFactory();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(conflated, unconflated, 0);
+    MarketDataDistributor mdd = MarketDataDistributorTest.getTestDistributor(factory);
+
+    mdd.distributeLiveData(msg("BID", 1.0, "ASK", 2.0));
+    mdd.distributeLiveData(msg("BID", 1.5));
+    mdd.distributeLiveData(msg("LAST", 1.7));
+
+    assertEquals(3, unconflated.getUpdates().size());
+    assertTrue(conflated.getUpdates().isEmpty());
+
+    assertEquals(1, factory.flush());
+    assertEquals(1, conflated.getUpdates().size());
+    LiveDataValueUpdateBean update = conflated.getUpdates().get(0);
+    assertEquals(2, update.getSequenceNumber());
+    assertEquals(3, update.getFields().getNumFields());
+    assertEquals(1.5, update.getFields().getDouble("BID"), 0d);
+    assertEquals(2.0, update.getFields().getDouble("ASK"), 0d);
+    assertEquals(1.7, update.getFields().getDouble("LAST"), 0d);
+
+    // nothing new to send
+    assertEquals(0, factory.flush());
+    assertEquals(1, conflated.getUpdates().size());
+  }
+
+  public void sequenceNumbersIncrease() {
+    CollectingSenderFactory conflated = new CollectingSenderFactory();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(conflated, null, 0);
+    MarketDataDistributor mdd = MarketDataDistributorTest.getTestDistributor(factory);
+
+    mdd.distributeLiveData(msg("BID", 1.0));
+    factory.flush();
+    mdd.distributeLiveData(msg("BID", 2.0));
+    mdd.distributeLiveData(msg("BID", 3.0));
+    factory.flush();
+    mdd.distributeLiveData(msg("BID", 4.0));
+    factory.flush();
+
+    List<LiveDataValueUpdateBean> updates = conflated.getUpdates();
+    assertEquals(3, updates.size());
+    assertEquals(0, updates.get(0).getSequenceNumber());
+    assertEquals(2, updates.get(1).getSequenceNumber());
+    assertEquals(3.0, updates.get(1).getFields().getDouble("BID"), 0d);
+    assertEquals(3, updates.get(2).getSequenceNumber());
+  }
+
+  public void stopFlushesPendingUpdates() {
+    CollectingSenderFactory conflated = new CollectingSenderFactory();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(conflated, null, 60000);
+    factory.start();
+    assertTrue(factory.isRunning());
+    MarketDataDistributor mdd = MarketDataDistributorTest.getTestDistributor(factory);
+
+    mdd.distributeLiveData(msg("BID", 1.0));
+    factory.stop();
+    assertFalse(factory.isRunning());
+    assertEquals(1, conflated.getUpdates().size());
+  }
+
+  //-------------------------------------------------------------------------
+  private static MutableFudgeMsg msg(Object... namesAndValues) {
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      msg.add((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return msg;
+  }
+
+  private static class CollectingSenderFactory implements MarketDataSenderFactory {
+
+    private final List<LiveDataValueUpdateBean> _updates = new ArrayList<LiveDataValueUpdateBean>();
+
+    @Override
+    public Collection<MarketDataSender> create(final MarketDataDistributor distributor) {
+      return Collections.<MarketDataSender>singleton(new MarketDataSender() {
+
+        @Override
+        public void sendMarketData(LiveDataValueUpdateBean data) {
+          _updates.add(data);
+        }
+
+        @Override
+        public MarketDataDistributor getDistributor() {
+          return distributor;
+        }
+      });
+    }
+
+    public List<LiveDataValueUpdateBean> getUpdates() {
+      return _updates;
+    }
+  }
+
+}
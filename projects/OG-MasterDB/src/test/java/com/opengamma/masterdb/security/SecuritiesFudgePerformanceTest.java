@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.security;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.master.security.ManageableSecurity;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test the Fudge round trip performance of the securities, as encoded by {@link com.opengamma.util.fudgemsg.DirectBeanFudgeBuilder}.
+ * Run against an earlier revision to compare builder implementations.
+ */
+@Test(groups = TestGroup.UNIT, enabled = false)
+public class SecuritiesFudgePerformanceTest extends SecurityTestCase {
+
+  private static final int WARMUP = 200;
+  private static final int ITERATIONS = 1000;
+
+  private long _totalWrite;
+  private long _totalRead;
+
+  @AfterClass
+  public void tearDown() {
+    System.out.println("Total write: " + (_totalWrite / 1000000L) + "ms, read: " + (_totalRead / 1000000L) + "ms");
+  }
+
+  @Override
+  protected <T extends ManageableSecurity> void assertSecurity(final Class<T> securityClass, final T security) {
+    final FudgeContext context = OpenGammaFudgeContext.getInstance();
+    FudgeMsg msg = null;
+    T cycled = null;
+    for (int i = 0; i < WARMUP; i++) {
+      msg = new FudgeSerializer(context).objectToFudgeMsg(security);
+      cycled = new FudgeDeserializer(context).fudgeMsgToObject(securityClass, msg);
+    }
+    assertEquals(security, cycled);
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      msg = new FudgeSerializer(context).objectToFudgeMsg(security);
+    }
+    final long write = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      cycled = new FudgeDeserializer(context).fudgeMsgToObject(securityClass, msg);
+    }
+    final long read = System.nanoTime() - start;
+    _totalWrite += write;
+    _totalRead += read;
+    System.out.println(securityClass.getSimpleName() + " write: " + (write / ITERATIONS) + "ns, read: " + (read / ITERATIONS) + "ns");
+  }
+
+}
@@ -8,6 +8,9 @@ package com.opengamma.timeseries;
 import java.util.Arrays;
 import java.util.List;
 
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesFrame;
+
 /**
  * Bulk operations on time-series.
  */
@@ -31,6 +34,16 @@ public class BulkTimeSeriesOperations {
       }
       return results;
     }
+    if (isAllLocalDate(inputs)) {
+      // align all the series in one pass rather than pairwise
+      LocalDateDoubleTimeSeries[] localDateInputs = new LocalDateDoubleTimeSeries[inputs.length];
+      System.arraycopy(inputs, 0, localDateInputs, 0, inputs.length);
+      LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(localDateInputs);
+      for (int i = 0; i < inputs.length; i++) {
+        results[i] = (DoubleTimeSeries<E>) frame.getColumn(i);
+      }
+      return results;
+    }
     DoubleTimeSeries<E> intersection = inputs[0];
     for (int i = 1; i < inputs.length; i++) {
       intersection = intersection.intersectionFirstValue(inputs[i]);
@@ -41,6 +54,15 @@ public class BulkTimeSeriesOperations {
     return results;
   }
 
+  private static boolean isAllLocalDate(DoubleTimeSeries<?>[] inputs) {
+    for (DoubleTimeSeries<?> input : inputs) {
+      if (!(input instanceof LocalDateDoubleTimeSeries)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Calculates the intersection of the input time-series.
    * <p>
@@ -0,0 +1,632 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators;
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.BinaryOperator;
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+
+/**
+ * An immutable set of {@code LocalDate} double time-series aligned on a shared date axis.
+ * <p>
+ * The frame holds one date array shared by all the columns and a single column-major block of
+ * values, so the value for column {@code c} at row {@code r} is at index {@code c * rowCount + r}.
+ * Once the series have been aligned, operations work directly on the arrays without any further
+ * date matching and without creating intermediate time-series.
+ * <p>
+ * A frame is normally created using {@link #intersection(LocalDateDoubleTimeSeries...)} which
+ * aligns any number of series in a single merge pass.
+ */
+public final class LocalDateDoubleTimeSeriesFrame implements Serializable {
+
+  /** Serialization version. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The dates, shared by all columns.
+   */
+  private final int[] _dates;
+  /**
+   * The values, column-major.
+   */
+  private final double[] _values;
+  /**
+   * The number of columns.
+   */
+  private final int _columnCount;
+
+  //-------------------------------------------------------------------------
+  /**
+   * Obtains a frame containing the dates common to all the input series.
+   * <p>
+   * Column {@code i} of the frame holds the values of series {@code i} on the common dates.
+   * The series are aligned in a single pass over all of them.
+   *
+   * @param series  the series to align, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame intersection(LocalDateDoubleTimeSeries... series) {
+    Objects.requireNonNull(series, "series");
+    int columnCount = series.length;
+    int[][] times = new int[columnCount][];
+    double[][] values = new double[columnCount][];
+    int maxRows = Integer.MAX_VALUE;
+    for (int i = 0; i < columnCount; i++) {
+      Objects.requireNonNull(series[i], "series");
+      times[i] = series[i].timesArrayFast();
+      values[i] = series[i].valuesArrayFast();
+      maxRows = Math.min(maxRows, times[i].length);
+    }
+    if (columnCount == 0) {
+      return new LocalDateDoubleTimeSeriesFrame(new int[0], new double[0], 0);
+    }
+    int[] dates = new int[maxRows];
+    int[] positions = new int[columnCount];
+    int rows = 0;
+    int[] rowIndex = new int[columnCount * maxRows];
+    merge:
+    while (true) {
+      // find the latest of the current dates, then advance every series to it
+      int target = Integer.MIN_VALUE;
+      for (int i = 0; i < columnCount; i++) {
+        if (positions[i] >= times[i].length) {
+          break merge;
+        }
+        target = Math.max(target, times[i][positions[i]]);
+      }
+      boolean matched = true;
+      for (int i = 0; i < columnCount; i++) {
+        int[] columnTimes = times[i];
+        int pos = positions[i];
+        while (pos < columnTimes.length && columnTimes[pos] < target) {
+          pos++;
+        }
+        positions[i] = pos;
+        if (pos >= columnTimes.length) {
+          break merge;
+        }
+        if (columnTimes[pos] != target) {
+          matched = false;
+        }
+      }
+      if (matched) {
+        dates[rows] = target;
+        for (int i = 0; i < columnCount; i++) {
+          rowIndex[i * maxRows + rows] = positions[i]++;
+        }
+        rows++;
+      }
+    }
+    double[] block = new double[columnCount * rows];
+    for (int i = 0; i < columnCount; i++) {
+      double[] columnValues = values[i];
+      int offset = i * rows;
+      int indexOffset = i * maxRows;
+      for (int r = 0; r < rows; r++) {
+        block[offset + r] = columnValues[rowIndex[indexOffset + r]];
+      }
+    }
+    return new LocalDateDoubleTimeSeriesFrame(Arrays.copyOf(dates, rows), block, columnCount);
+  }
+
+  /**
+   * Obtains a frame containing the dates common to all the input series.
+   *
+   * @param series  the series to align, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame intersection(List<? extends LocalDateDoubleTimeSeries> series) {
+    Objects.requireNonNull(series, "series");
+    return intersection(series.toArray(new LocalDateDoubleTimeSeries[series.size()]));
+  }
+
+  /**
+   * Obtains a frame from a date axis and matching columns of values.
+   *
+   * @param dates  the dates, in ascending order, not null
+   * @param columns  the values of each column, each the same length as the dates, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame of(LocalDate[] dates, double[][] columns) {
+    Objects.requireNonNull(dates, "dates");
+    int[] times = new int[dates.length];
+    for (int i = 0; i < dates.length; i++) {
+      times[i] = LocalDateToIntConverter.convertToInt(dates[i]);
+    }
+    return of(times, columns);
+  }
+
+  /**
+   * Obtains a frame from a date axis and matching columns of values.
+   *
+   * @param dates  the dates, in ascending order, not null
+   * @param columns  the values of each column, each the same length as the dates, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame of(int[] dates, double[][] columns) {
+    Objects.requireNonNull(dates, "dates");
+    Objects.requireNonNull(columns, "columns");
+    for (int i = 0; i < dates.length; i++) {
+      LocalDateToIntConverter.checkValid(dates[i]);
+      if (i > 0 && dates[i - 1] >= dates[i]) {
+        throw new IllegalArgumentException("Dates must be in ascending order");
+      }
+    }
+    int rows = dates.length;
+    double[] block = new double[columns.length * rows];
+    for (int i = 0; i < columns.length; i++) {
+      Objects.requireNonNull(columns[i], "columns");
+      if (columns[i].length != rows) {
+        throw new IllegalArgumentException("Column " + i + " has " + columns[i].length + " values but there are " + rows + " dates");
+      }
+      System.arraycopy(columns[i], 0, block, i * rows, rows);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(dates.clone(), block, columns.length);
+  }
+
+  /**
+   * Creates an instance, without copying the arrays.
+   *
+   * @param dates  the dates, not null
+   * @param values  the column-major values, not null
+   * @param columnCount  the number of columns
+   */
+  private LocalDateDoubleTimeSeriesFrame(int[] dates, double[] values, int columnCount) {
+    _dates = dates;
+    _values = values;
+    _columnCount = columnCount;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of rows, which is the number of dates.
+   *
+   * @return the number of rows
+   */
+  public int rowCount() {
+    return _dates.length;
+  }
+
+  /**
+   * Gets the number of columns.
+   *
+   * @return the number of columns
+   */
+  public int columnCount() {
+    return _columnCount;
+  }
+
+  /**
+   * Checks if the frame has no rows.
+   *
+   * @return true if there are no dates
+   */
+  public boolean isEmpty() {
+    return _dates.length == 0;
+  }
+
+  /**
+   * Gets the date at the specified row.
+   *
+   * @param row  the row index
+   * @return the date, not null
+   */
+  public LocalDate getDate(int row) {
+    return LocalDateToIntConverter.convertToLocalDate(getDateFast(row));
+  }
+
+  /**
+   * Gets the date at the specified row as an {@code int}.
+   *
+   * @param row  the row index
+   * @return the date
+   */
+  public int getDateFast(int row) {
+    return _dates[row];
+  }
+
+  /**
+   * Gets a copy of the date axis.
+   *
+   * @return the dates, not null
+   */
+  public int[] datesArrayFast() {
+    return _dates.clone();
+  }
+
+  /**
+   * Gets the value at the specified row and column.
+   *
+   * @param row  the row index
+   * @param column  the column index
+   * @return the value
+   */
+  public double getValue(int row, int column) {
+    if (row < 0 || row >= _dates.length) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of range");
+    }
+    return _values[checkColumn(column) * _dates.length + row];
+  }
+
+  /**
+   * Gets a copy of the values of a column.
+   *
+   * @param column  the column index
+   * @return the values, not null
+   */
+  public double[] columnValues(int column) {
+    int offset = checkColumn(column) * _dates.length;
+    return Arrays.copyOfRange(_values, offset, offset + _dates.length);
+  }
+
+  /**
+   * Gets a column as a time-series.
+   *
+   * @param column  the column index
+   * @return the time-series, not null
+   */
+  public LocalDateDoubleTimeSeries getColumn(int column) {
+    return ImmutableLocalDateDoubleTimeSeries.of(_dates, columnValues(column));
+  }
+
+  /**
+   * Gets all the columns as time-series.
+   *
+   * @return the time-series, one per column, not null
+   */
+  public LocalDateDoubleTimeSeries[] getColumns() {
+    LocalDateDoubleTimeSeries[] columns = new LocalDateDoubleTimeSeries[_columnCount];
+    for (int i = 0; i < _columnCount; i++) {
+      columns[i] = getColumn(i);
+    }
+    return columns;
+  }
+
+  private int checkColumn(int column) {
+    if (column < 0 || column >= _columnCount) {
+      throw new IndexOutOfBoundsException("Column " + column + " is out of range");
+    }
+    return column;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Applies a unary operator to every value.
+   *
+   * @param operator  the operator, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame operate(UnaryOperator operator) {
+    Objects.requireNonNull(operator, "operator");
+    double[] values = new double[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = operator.operate(_values[i]);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(_dates, values, _columnCount);  // immutable, so can share dates
+  }
+
+  /**
+   * Applies a binary operator to every value and a constant.
+   *
+   * @param other  the constant second argument to the operator
+   * @param operator  the operator, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame operate(double other, BinaryOperator operator) {
+    Objects.requireNonNull(operator, "operator");
+    double[] values = new double[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = operator.operate(_values[i], other);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(_dates, values, _columnCount);
+  }
+
+  /**
+   * Applies a binary operator to each column and a per-column constant.
+   *
+   * @param other  the constant second argument for each column, not null
+   * @param operator  the operator, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame operateColumns(double[] other, BinaryOperator operator) {
+    Objects.requireNonNull(other, "other");
+    Objects.requireNonNull(operator, "operator");
+    if (other.length != _columnCount) {
+      throw new IllegalArgumentException("Expected " + _columnCount + " values but got " + other.length);
+    }
+    int rows = _dates.length;
+    double[] values = new double[_values.length];
+    for (int c = 0; c < _columnCount; c++) {
+      double b = other[c];
+      for (int i = c * rows; i < (c + 1) * rows; i++) {
+        values[i] = operator.operate(_values[i], b);
+      }
+    }
+    return new LocalDateDoubleTimeSeriesFrame(_dates, values, _columnCount);
+  }
+
+  /**
+   * Applies a binary operator to the matching values of this frame and another.
+   * <p>
+   * The frames must have the same dates and number of columns.
+   *
+   * @param other  the frame providing the second argument to the operator, not null
+   * @param operator  the operator, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame operate(LocalDateDoubleTimeSeriesFrame other, BinaryOperator operator) {
+    Objects.requireNonNull(other, "other");
+    Objects.requireNonNull(operator, "operator");
+    if (other._columnCount != _columnCount || !Arrays.equals(other._dates, _dates)) {
+      throw new IllegalArgumentException("Frames are not aligned");
+    }
+    double[] values = new double[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = operator.operate(_values[i], other._values[i]);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(_dates, values, _columnCount);
+  }
+
+  /**
+   * Adds a constant to every value.
+   *
+   * @param amount  the amount
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame add(double amount) {
+    return operate(amount, DoubleTimeSeriesOperators.ADD_OPERATOR);
+  }
+
+  /**
+   * Adds the matching values of another frame.
+   *
+   * @param other  the frame, with the same dates and columns, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame add(LocalDateDoubleTimeSeriesFrame other) {
+    return operate(other, DoubleTimeSeriesOperators.ADD_OPERATOR);
+  }
+
+  /**
+   * Subtracts a constant from every value.
+   *
+   * @param amount  the amount
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame subtract(double amount) {
+    return operate(amount, DoubleTimeSeriesOperators.SUBTRACT_OPERATOR);
+  }
+
+  /**
+   * Subtracts the matching values of another frame.
+   *
+   * @param other  the frame, with the same dates and columns, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame subtract(LocalDateDoubleTimeSeriesFrame other) {
+    return operate(other, DoubleTimeSeriesOperators.SUBTRACT_OPERATOR);
+  }
+
+  /**
+   * Multiplies every value by a constant.
+   *
+   * @param amount  the amount
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame multiply(double amount) {
+    return operate(amount, DoubleTimeSeriesOperators.MULTIPLY_OPERATOR);
+  }
+
+  /**
+   * Multiplies by the matching values of another frame.
+   *
+   * @param other  the frame, with the same dates and columns, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame multiply(LocalDateDoubleTimeSeriesFrame other) {
+    return operate(other, DoubleTimeSeriesOperators.MULTIPLY_OPERATOR);
+  }
+
+  /**
+   * Divides every value by a constant.
+   *
+   * @param amount  the amount
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame divide(double amount) {
+    return operate(amount, DoubleTimeSeriesOperators.DIVIDE_OPERATOR);
+  }
+
+  /**
+   * Divides by the matching values of another frame.
+   *
+   * @param other  the frame, with the same dates and columns, not null
+   * @return the new frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame divide(LocalDateDoubleTimeSeriesFrame other) {
+    return operate(other, DoubleTimeSeriesOperators.DIVIDE_OPERATOR);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Sums the columns on each row, giving a single time-series.
+   * <p>
+   * This is typically used to aggregate P&amp;L series that have already been aligned.
+   *
+   * @return the row totals, not null
+   */
+  public LocalDateDoubleTimeSeries rowSums() {
+    int rows = _dates.length;
+    double[] sums = new double[rows];
+    for (int c = 0; c < _columnCount; c++) {
+      int offset = c * rows;
+      for (int r = 0; r < rows; r++) {
+        sums[r] += _values[offset + r];
+      }
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(_dates, sums);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Shifts each column forward by a number of rows.
+   * <p>
+   * The value at row {@code r} of the result is the value at row {@code r - periods} of this frame.
+   * The first {@code periods} rows, which have no earlier value, are dropped.
+   *
+   * @param periods  the number of rows to lag by, not negative
+   * @return the lagged frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame lag(int periods) {
+    if (periods < 0) {
+      throw new IllegalArgumentException("Periods must not be negative");
+    }
+    int rows = _dates.length;
+    int newRows = Math.max(rows - periods, 0);
+    double[] values = new double[_columnCount * newRows];
+    for (int c = 0; c < _columnCount; c++) {
+      System.arraycopy(_values, c * rows, values, c * newRows, newRows);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(Arrays.copyOfRange(_dates, rows - newRows, rows), values, _columnCount);
+  }
+
+  /**
+   * Calculates the simple return of each column between consecutive rows.
+   * <p>
+   * The value at row {@code r} is {@code x[r] / x[r - 1] - 1}, dated at row {@code r}.
+   * The first row, which has no previous value, is dropped.
+   *
+   * @return the frame of returns, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame simpleReturns() {
+    return returns(false);
+  }
+
+  /**
+   * Calculates the continuously compounded return of each column between consecutive rows.
+   * <p>
+   * The value at row {@code r} is {@code ln(x[r] / x[r - 1])}, dated at row {@code r}.
+   * The first row, which has no previous value, is dropped.
+   *
+   * @return the frame of returns, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame logReturns() {
+    return returns(true);
+  }
+
+  private LocalDateDoubleTimeSeriesFrame returns(boolean log) {
+    int rows = _dates.length;
+    int newRows = Math.max(rows - 1, 0);
+    double[] values = new double[_columnCount * newRows];
+    for (int c = 0; c < _columnCount; c++) {
+      int offset = c * rows;
+      int newOffset = c * newRows;
+      for (int r = 0; r < newRows; r++) {
+        double ratio = _values[offset + r + 1] / _values[offset + r];
+        values[newOffset + r] = log ? Math.log(ratio) : ratio - 1;
+      }
+    }
+    return new LocalDateDoubleTimeSeriesFrame(Arrays.copyOfRange(_dates, rows - newRows, rows), values, _columnCount);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the sum of each column over a rolling window of rows.
+   * <p>
+   * Each result is dated at the last row of its window, so the first {@code window - 1}
+   * rows are dropped.
+   *
+   * @param window  the number of rows in the window, greater than zero
+   * @return the frame of rolling sums, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rollingSum(int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be greater than zero");
+    }
+    int rows = _dates.length;
+    int newRows = Math.max(rows - window + 1, 0);
+    double[] values = new double[_columnCount * newRows];
+    for (int c = 0; c < _columnCount; c++) {
+      int offset = c * rows;
+      int newOffset = c * newRows;
+      for (int r = 0; r < newRows; r++) {
+        // summed afresh for each window to avoid the drift of a running total
+        double sum = 0;
+        for (int i = offset + r; i < offset + r + window; i++) {
+          sum += _values[i];
+        }
+        values[newOffset + r] = sum;
+      }
+    }
+    return new LocalDateDoubleTimeSeriesFrame(Arrays.copyOfRange(_dates, rows - newRows, rows), values, _columnCount);
+  }
+
+  /**
+   * Calculates the mean of each column over a rolling window of rows.
+   * <p>
+   * Each result is dated at the last row of its window, so the first {@code window - 1}
+   * rows are dropped.
+   *
+   * @param window  the number of rows in the window, greater than zero
+   * @return the frame of rolling means, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rollingMean(int window) {
+    return rollingSum(window).divide(window);
+  }
+
+  /**
+   * Gets the frame restricted to a range of rows.
+   *
+   * @param fromRow  the first row, inclusive
+   * @param toRow  the last row, exclusive
+   * @return the sub-frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rows(int fromRow, int toRow) {
+    int rows = _dates.length;
+    if (fromRow < 0 || toRow > rows || fromRow > toRow) {
+      throw new IndexOutOfBoundsException("Invalid row range " + fromRow + " to " + toRow);
+    }
+    int newRows = toRow - fromRow;
+    double[] values = new double[_columnCount * newRows];
+    for (int c = 0; c < _columnCount; c++) {
+      System.arraycopy(_values, c * rows + fromRow, values, c * newRows, newRows);
+    }
+    return new LocalDateDoubleTimeSeriesFrame(Arrays.copyOfRange(_dates, fromRow, toRow), values, _columnCount);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof LocalDateDoubleTimeSeriesFrame) {
+      LocalDateDoubleTimeSeriesFrame other = (LocalDateDoubleTimeSeriesFrame) obj;
+      return _columnCount == other._columnCount &&
+          Arrays.equals(_dates, other._dates) &&
+          Arrays.equals(_values, other._values);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return _columnCount ^ Arrays.hashCode(_dates) ^ Arrays.hashCode(_values);
+  }
+
+  @Override
+  public String toString() {
+    return "LocalDateDoubleTimeSeriesFrame[" + _dates.length + " rows, " + _columnCount + " columns]";
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.timeseries.DoubleTimeSeriesOperators;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class LocalDateDoubleTimeSeriesFrameTest {
+
+  private static final LocalDate D1 = LocalDate.of(2015, 1, 5);
+  private static final LocalDate D2 = LocalDate.of(2015, 1, 6);
+  private static final LocalDate D3 = LocalDate.of(2015, 1, 7);
+  private static final LocalDate D4 = LocalDate.of(2015, 1, 8);
+  private static final LocalDate D5 = LocalDate.of(2015, 1, 9);
+
+  private static LocalDateDoubleTimeSeriesFrame frame() {
+    return LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D1, D2, D3, D4 }, new double[][] {
+      {1, 2, 4, 8 },
+      {10, 20, 30, 40 } });
+  }
+
+  //-------------------------------------------------------------------------
+  public void intersection() {
+    LocalDateDoubleTimeSeries one = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D5 }, new double[] {1, 2, 3, 5 });
+    LocalDateDoubleTimeSeries two = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D3, D4, D5 }, new double[] {20, 30, 40, 50 });
+    LocalDateDoubleTimeSeries three = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D3, D5 }, new double[] {100, 300, 500 });
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(one, two, three);
+    assertEquals(2, frame.rowCount());
+    assertEquals(3, frame.columnCount());
+    assertEquals(D3, frame.getDate(0));
+    assertEquals(D5, frame.getDate(1));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D3, D5 }, new double[] {3, 5 }), frame.getColumn(0));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D3, D5 }, new double[] {30, 50 }), frame.getColumn(1));
+    assertEquals(500d, frame.getValue(1, 2), 0d);
+  }
+
+  public void intersectionEmpty() {
+    LocalDateDoubleTimeSeries one = ImmutableLocalDateDoubleTimeSeries.of(D1, 1);
+    LocalDateDoubleTimeSeries two = ImmutableLocalDateDoubleTimeSeries.of(D2, 2);
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(one, two);
+    assertTrue(frame.isEmpty());
+    assertEquals(2, frame.columnCount());
+    assertTrue(LocalDateDoubleTimeSeriesFrame.intersection(one, ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES).isEmpty());
+  }
+
+  @SuppressWarnings("unchecked")
+  public void intersectionMatchesPairwise() {
+    Random random = new Random(1L);
+    LocalDateDoubleTimeSeries[] series = new LocalDateDoubleTimeSeries[20];
+    for (int i = 0; i < series.length; i++) {
+      LocalDateDoubleTimeSeriesBuilder builder = ImmutableLocalDateDoubleTimeSeries.builder();
+      for (int d = 0; d < 1000; d++) {
+        if (random.nextInt(20) != 0) {
+          builder.put(D1.plusDays(d), random.nextDouble());
+        }
+      }
+      series[i] = builder.build();
+    }
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(series);
+    DoubleTimeSeries<LocalDate> common = series[0];
+    for (int i = 1; i < series.length; i++) {
+      common = common.intersectionFirstValue(series[i]);
+    }
+    assertEquals(common.size(), frame.rowCount());
+    for (int i = 0; i < series.length; i++) {
+      assertEquals(series[i].intersectionFirstValue(common), frame.getColumn(i));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void ofMismatchedColumn() {
+    LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D1, D2 }, new double[][] {{1, 2 }, {1 } });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void ofUnorderedDates() {
+    LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D2, D1 }, new double[][] {{1, 2 } });
+  }
+
+  //-------------------------------------------------------------------------
+  public void arithmetic() {
+    LocalDateDoubleTimeSeriesFrame frame = frame();
+    assertEquals(LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D1, D2, D3, D4 }, new double[][] {
+      {2, 4, 8, 16 },
+      {20, 40, 60, 80 } }), frame.multiply(2));
+    assertEquals(LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D1, D2, D3, D4 }, new double[][] {
+      {2, 4, 8, 16 },
+      {20, 40, 60, 80 } }), frame.add(frame));
+    assertEquals(0d, frame.subtract(frame).getValue(3, 1), 0d);
+    assertEquals(1d, frame.divide(frame).getValue(2, 0), 0d);
+    assertEquals(39d, frame.subtract(1).getValue(3, 1), 0d);
+    assertEquals(4d, frame.operateColumns(new double[] {1, 10 }, DoubleTimeSeriesOperators.DIVIDE_OPERATOR).getValue(3, 1), 0d);
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D4 }, new double[] {11, 22, 34, 48 }), frame.rowSums());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void arithmeticNotAligned() {
+    frame().add(frame().rows(1, 3));
+  }
+
+  public void lag() {
+    LocalDateDoubleTimeSeriesFrame lagged = frame().lag(1);
+    assertEquals(LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D2, D3, D4 }, new double[][] {
+      {1, 2, 4 },
+      {10, 20, 30 } }), lagged);
+    assertEquals(frame(), frame().lag(0));
+    assertTrue(frame().lag(5).isEmpty());
+  }
+
+  public void returns() {
+    LocalDateDoubleTimeSeriesFrame returns = frame().simpleReturns();
+    assertEquals(3, returns.rowCount());
+    assertEquals(D2, returns.getDate(0));
+    assertEquals(1d, returns.getValue(2, 0), 0d);
+    assertEquals(0.5, returns.getValue(1, 1), 0d);
+    assertEquals(40d / 30d - 1, returns.getValue(2, 1), 0d);
+    LocalDateDoubleTimeSeriesFrame logReturns = frame().logReturns();
+    assertEquals(Math.log(2), logReturns.getValue(0, 0), 1e-15);
+    assertEquals(Math.log(40d / 30d), logReturns.getValue(2, 1), 1e-15);
+  }
+
+  public void rolling() {
+    LocalDateDoubleTimeSeriesFrame sums = frame().rollingSum(2);
+    assertEquals(LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D2, D3, D4 }, new double[][] {
+      {3, 6, 12 },
+      {30, 50, 70 } }), sums);
+    LocalDateDoubleTimeSeriesFrame means = frame().rollingMean(4);
+    assertEquals(1, means.rowCount());
+    assertEquals(D4, means.getDate(0));
+    assertEquals(3.75, means.getValue(0, 0), 0d);
+    assertEquals(25d, means.getValue(0, 1), 0d);
+  }
+
+  public void rows() {
+    LocalDateDoubleTimeSeriesFrame window = frame().rows(1, 3);
+    assertEquals(LocalDateDoubleTimeSeriesFrame.of(new LocalDate[] {D2, D3 }, new double[][] {
+      {2, 4 },
+      {20, 30 } }), window);
+  }
+
+}
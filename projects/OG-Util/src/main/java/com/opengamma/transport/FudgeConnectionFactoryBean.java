@@ -10,6 +10,7 @@ import java.util.concurrent.ExecutorService;
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 
+import com.opengamma.transport.socket.NioSocketFudgeConnection;
 import com.opengamma.transport.socket.SocketEndPointDescriptionProvider;
 import com.opengamma.transport.socket.SocketFudgeConnection;
 import com.opengamma.util.ArgumentChecker;
@@ -23,6 +24,7 @@ public class FudgeConnectionFactoryBean extends SingletonFactoryBean<FudgeConnec
   private FudgeContext _fudgeContext;
   private ExecutorService _executorService;
   private EndPointDescriptionProvider _endPointDescriptionProvider;
+  private Boolean _nioTransport;
 
   public void setFudgeContext(final FudgeContext fudgeContext) {
     _fudgeContext = fudgeContext;
@@ -48,6 +50,26 @@ public class FudgeConnectionFactoryBean extends SingletonFactoryBean<FudgeConnec
     return _endPointDescriptionProvider;
   }
 
+  /**
+   * Sets whether socket connections use the NIO transport, overriding the transport advertised by the end point.
+   * 
+   * @param nioTransport true to use the NIO transport, false to use the blocking transport, null to use the transport advertised by the end point
+   */
+  public void setNioTransport(final Boolean nioTransport) {
+    _nioTransport = nioTransport;
+  }
+
+  public Boolean getNioTransport() {
+    return _nioTransport;
+  }
+
+  private boolean isNioTransport(final FudgeMsg endPoint) {
+    if (getNioTransport() != null) {
+      return getNioTransport();
+    }
+    return SocketEndPointDescriptionProvider.TRANSPORT_NIO.equals(endPoint.getString(SocketEndPointDescriptionProvider.TRANSPORT_KEY));
+  }
+
   private FudgeMsg resolveEndPointDescription() {
     if (_endPointDescriptionProvider != null) {
       ArgumentChecker.notNull(getFudgeContext(), "fudgeContext");
@@ -62,6 +84,12 @@ public class FudgeConnectionFactoryBean extends SingletonFactoryBean<FudgeConnec
     final FudgeMsg endPoint = resolveEndPointDescription();
     ArgumentChecker.notNull(endPoint, "endPointDescription");
     if (SocketEndPointDescriptionProvider.TYPE_VALUE.equals(endPoint.getString(SocketEndPointDescriptionProvider.TYPE_KEY))) {
+      if (isNioTransport(endPoint)) {
+        final NioSocketFudgeConnection connection = (getExecutorService() != null) ? new NioSocketFudgeConnection(getFudgeContext(), getExecutorService()) : new NioSocketFudgeConnection(
+            getFudgeContext());
+        connection.setServer(endPoint);
+        return connection;
+      }
       final SocketFudgeConnection connection = (getExecutorService() != null) ? new SocketFudgeConnection(getFudgeContext(), getExecutorService()) : new SocketFudgeConnection(getFudgeContext());
       connection.setServer(endPoint);
       return connection;
@@ -105,8 +105,7 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
   public synchronized void start() {
     s_logger.info("Binding to {}:{}", getBindAddress(), getPortNumber());
     try {
-      // NOTE kirk 2010-05-12 -- Backlog of 50 from ServerSocket.
-      _serverSocket = new ServerSocket(getPortNumber(), 50, getBindAddress());
+      _serverSocket = createServerSocket();
       if (getPortNumber() == 0) {
         s_logger.info("Received inbound port {}", _serverSocket.getLocalPort());
       }
@@ -144,6 +143,17 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
     _started = false;
   }
 
+  /**
+   * Creates the server socket, bound to the port number and address.
+   * 
+   * @return the bound server socket, not null
+   * @throws IOException if the socket could not be bound
+   */
+  protected ServerSocket createServerSocket() throws IOException {
+    // NOTE kirk 2010-05-12 -- Backlog of 50 from ServerSocket.
+    return new ServerSocket(getPortNumber(), 50, getBindAddress());
+  }
+
   protected boolean exceptionForcedByClose(final Exception e) {
     return (e instanceof SocketException) && "Socket closed".equals(e.getMessage());
   }
@@ -0,0 +1,504 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeDataOutputStreamWriter;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.fudgemsg.wire.FudgeRuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+
+/**
+ * A {@link FudgeConnection} over a non-blocking socket channel, serviced by a {@link NioSocketSelector}.
+ * <p>
+ * Messages are encoded on the sending thread and queued. The selector thread coalesces queued messages into its write buffer so
+ * concurrent senders never block on the socket or on each other. Received messages are decoded directly from the selector's read
+ * buffer and are only copied if they span more than one read. They are never dispatched on the selector thread, where a slow receiver
+ * would hold up every other connection on that selector. If an executor service is given each message is submitted to it; otherwise
+ * the messages are dispatched in the order received from a shared pool.
+ * <p>
+ * The size of each received message is checked against a maximum frame size before any buffer is allocated for it. A message larger
+ * than this closes the connection.
+ * <p>
+ * The wire format is the same as {@link SocketFudgeConnection} and {@link ServerSocketFudgeConnectionReceiver} so either end can use
+ * either transport.
+ */
+public class NioFudgeConnection implements FudgeConnection {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioFudgeConnection.class);
+
+  /**
+   * The size of a Fudge envelope header. The last four bytes of the header are the size of the whole envelope.
+   */
+  /* package */static final int HEADER_SIZE = 8;
+
+  /**
+   * The default maximum size of a received message.
+   */
+  public static final int DEFAULT_MAX_FRAME_SIZE = 128 * 1024 * 1024;
+
+  /**
+   * Pool for dispatching received messages from connections that don't have an executor service.
+   */
+  private static final ExecutorService s_dispatcher = Executors.newCachedThreadPool(new NamedThreadPoolFactory("NioFudgeConnection-dispatch", true));
+
+  private static final ThreadLocal<MessageEncoder> s_encoder = new ThreadLocal<MessageEncoder>() {
+    @Override
+    protected MessageEncoder initialValue() {
+      return new MessageEncoder();
+    }
+  };
+
+  private final FudgeContext _fudgeContext;
+  private final NioSocketSelector _selector;
+  private final SocketChannel _channel;
+  private final ExecutorService _executorService;
+  private final String _remoteAddress;
+  private final Queue<ByteBuffer> _pending = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicBoolean _writeScheduled = new AtomicBoolean();
+  private final AtomicBoolean _closed = new AtomicBoolean();
+  private final Queue<FudgeMsgEnvelope> _received = new ConcurrentLinkedQueue<FudgeMsgEnvelope>();
+  private final AtomicBoolean _dispatching = new AtomicBoolean();
+  private final Runnable _dispatchReceived = new Runnable() {
+    @Override
+    public void run() {
+      dispatchReceived();
+    }
+  };
+  private final FudgeMessageSender _sender = new FudgeMessageSender() {
+
+    @Override
+    public FudgeContext getFudgeContext() {
+      return _fudgeContext;
+    }
+
+    @Override
+    public void send(final FudgeMsg message) {
+      NioFudgeConnection.this.send(message);
+    }
+
+    @Override
+    public String toString() {
+      return _remoteAddress;
+    }
+
+  };
+
+  private volatile FudgeMessageReceiver _receiver;
+  private volatile FudgeConnectionStateListener _listener;
+  private volatile int _maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+  // Only used by the selector thread
+  private SelectionKey _key;
+  private ByteBuffer _partial;
+
+  /**
+   * Creates a connection. It must be registered with the selector before messages will be read or written.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param selector the selector that will service the connection, not null
+   * @param channel the connected channel, not null
+   * @param executorService the executor service to dispatch received messages with, null to dispatch them in order from a shared pool
+   */
+  public NioFudgeConnection(final FudgeContext fudgeContext, final NioSocketSelector selector, final SocketChannel channel, final ExecutorService executorService) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(selector, "selector");
+    ArgumentChecker.notNull(channel, "channel");
+    _fudgeContext = fudgeContext;
+    _selector = selector;
+    _channel = channel;
+    _executorService = executorService;
+    _remoteAddress = String.valueOf(channel.socket().getRemoteSocketAddress());
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Sets the largest message that will be accepted. The connection is closed if a larger one is received.
+   *
+   * @param maxFrameSize the maximum message size, in bytes
+   */
+  public void setMaxFrameSize(final int maxFrameSize) {
+    ArgumentChecker.isTrue(maxFrameSize >= HEADER_SIZE, "maxFrameSize");
+    _maxFrameSize = maxFrameSize;
+  }
+
+  public int getMaxFrameSize() {
+    return _maxFrameSize;
+  }
+
+  public boolean isClosed() {
+    return _closed.get();
+  }
+
+  /**
+   * Closes the channel. The state listener is not notified.
+   *
+   * @return true if the connection was closed by this call, false if it was already closed
+   */
+  public boolean close() {
+    if (!_closed.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      _channel.close();
+    } catch (IOException e) {
+      s_logger.warn("Unable to close channel to {}", _remoteAddress);
+    }
+    _pending.clear();
+    _received.clear();
+    return true;
+  }
+
+  /**
+   * Called for a received message if no receiver has been set. The default implementation discards it.
+   *
+   * @param envelope the message envelope, not null
+   */
+  protected void unhandledMessage(final FudgeMsgEnvelope envelope) {
+    s_logger.warn("No receiver set on {} - message discarded", this);
+  }
+
+  private void send(final FudgeMsg message) {
+    if (isClosed()) {
+      throw new FudgeRuntimeIOException(new ClosedChannelException());
+    }
+    _pending.add(s_encoder.get().encode(_fudgeContext, message));
+    if (_writeScheduled.compareAndSet(false, true)) {
+      _selector.requestWrite(this);
+    }
+  }
+
+  private void dispatch(final FudgeMessageReceiver receiver, final FudgeMsgEnvelope envelope) {
+    try {
+      receiver.messageReceived(_fudgeContext, envelope);
+    } catch (Exception e) {
+      s_logger.warn("Unable to dispatch message to receiver", e);
+    }
+  }
+
+  private void dispatch(final FudgeMsgEnvelope envelope) {
+    final FudgeMessageReceiver receiver = _receiver;
+    if (receiver == null) {
+      try {
+        unhandledMessage(envelope);
+      } catch (Exception e) {
+        s_logger.warn("Unable to handle message", e);
+      }
+    } else {
+      dispatch(receiver, envelope);
+    }
+  }
+
+  /**
+   * Dispatches queued messages in the order they were received. Only one thread runs this for a connection at any time.
+   */
+  private void dispatchReceived() {
+    do {
+      FudgeMsgEnvelope envelope = _received.poll();
+      while (envelope != null) {
+        dispatch(envelope);
+        envelope = _received.poll();
+      }
+      _dispatching.set(false);
+      // Check for a message queued after the loop above but before the flag was cleared
+    } while (!_received.isEmpty() && _dispatching.compareAndSet(false, true));
+  }
+
+  private void received(final ByteBuffer frame) {
+    final FudgeMsgEnvelope envelope = _fudgeContext.createMessageReader(new BufferInputStream(frame)).nextMessageEnvelope();
+    if (_executorService != null) {
+      _executorService.execute(new Runnable() {
+        @Override
+        public void run() {
+          dispatch(envelope);
+        }
+      });
+    } else {
+      _received.add(envelope);
+      if (_dispatching.compareAndSet(false, true)) {
+        s_dispatcher.execute(_dispatchReceived);
+      }
+    }
+  }
+
+  private int frameSize(final ByteBuffer buffer, final int offset) throws IOException {
+    final int size = buffer.getInt(offset + 4);
+    if (size < HEADER_SIZE) {
+      throw new IOException("Invalid Fudge envelope size " + size);
+    }
+    if (size > _maxFrameSize) {
+      throw new IOException("Fudge envelope size " + size + " exceeds maximum frame size " + _maxFrameSize);
+    }
+    return size;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Registers the channel with the selector. Called from the selector thread.
+   *
+   * @param selector the selector, not null
+   * @param writeBuffer the selector's write buffer, not null
+   * @throws IOException if the channel could not be registered
+   */
+  /* package */void register(final Selector selector, final ByteBuffer writeBuffer) throws IOException {
+    if (isClosed()) {
+      return;
+    }
+    _channel.configureBlocking(false);
+    _key = _channel.register(selector, SelectionKey.OP_READ, this);
+    if (_writeScheduled.get()) {
+      write(writeBuffer);
+    }
+  }
+
+  /**
+   * Reads from the channel and dispatches any complete messages. Called from the selector thread. A message larger than the maximum
+   * frame size fails the read, which closes the connection.
+   *
+   * @param buffer the selector's read buffer, not null
+   * @throws IOException if the read fails
+   */
+  /* package */void read(final ByteBuffer buffer) throws IOException {
+    buffer.clear();
+    if (_channel.read(buffer) < 0) {
+      s_logger.info("Connection closed by {}", _remoteAddress);
+      failed(null);
+      return;
+    }
+    buffer.flip();
+    while (buffer.hasRemaining() && !isClosed()) {
+      if (_partial == null) {
+        if (buffer.remaining() >= HEADER_SIZE) {
+          final int size = frameSize(buffer, buffer.position());
+          if (buffer.remaining() >= size) {
+            // Whole message is in the buffer
+            final ByteBuffer frame = buffer.slice();
+            frame.limit(size);
+            buffer.position(buffer.position() + size);
+            received(frame);
+            continue;
+          }
+          _partial = ByteBuffer.allocate(size);
+        } else {
+          _partial = ByteBuffer.allocate(HEADER_SIZE);
+        }
+      }
+      final ByteBuffer part = buffer.duplicate();
+      part.limit(part.position() + Math.min(_partial.remaining(), buffer.remaining()));
+      _partial.put(part);
+      buffer.position(part.position());
+      if (!_partial.hasRemaining()) {
+        final int size = frameSize(_partial, 0);
+        if (size > _partial.capacity()) {
+          // Only had the header; now the size is known
+          final ByteBuffer whole = ByteBuffer.allocate(size);
+          _partial.flip();
+          whole.put(_partial);
+          _partial = whole;
+        } else {
+          final ByteBuffer frame = _partial;
+          _partial = null;
+          frame.flip();
+          received(frame);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes as much of the pending data as the channel will take, coalescing pending messages into the write buffer. Called from the
+   * selector thread.
+   *
+   * @param buffer the selector's write buffer, not null
+   * @throws IOException if the write fails
+   */
+  /* package */void write(final ByteBuffer buffer) throws IOException {
+    if ((_key == null) || isClosed()) {
+      return;
+    }
+    while (true) {
+      buffer.clear();
+      for (ByteBuffer message : _pending) {
+        final ByteBuffer part = message.duplicate();
+        if (part.remaining() > buffer.remaining()) {
+          part.limit(part.position() + buffer.remaining());
+        }
+        buffer.put(part);
+        if (!buffer.hasRemaining()) {
+          break;
+        }
+      }
+      if (buffer.position() == 0) {
+        // Nothing left; check for a message queued after the loop above but before the flag was cleared
+        _key.interestOps(SelectionKey.OP_READ);
+        _writeScheduled.set(false);
+        if (_pending.isEmpty() || !_writeScheduled.compareAndSet(false, true)) {
+          return;
+        }
+        continue;
+      }
+      buffer.flip();
+      int written = _channel.write(buffer);
+      while (written > 0) {
+        final ByteBuffer message = _pending.peek();
+        if (message.remaining() <= written) {
+          written -= message.remaining();
+          _pending.poll();
+        } else {
+          message.position(message.position() + written);
+          written = 0;
+        }
+      }
+      if (buffer.hasRemaining()) {
+        // Socket buffer is full; continue when the channel is writable
+        _key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Closes the connection after an error and notifies the state listener.
+   *
+   * @param cause the error, null if the remote end closed the connection
+   */
+  /* package */void failed(final Exception cause) {
+    if (close()) {
+      if ((cause != null) && !(cause instanceof ClosedChannelException)) {
+        s_logger.warn("I/O error on {} - closing connection", new Object[] {this }, cause);
+      }
+      final FudgeConnectionStateListener listener = _listener;
+      if (listener != null) {
+        try {
+          listener.connectionFailed(this, cause);
+        } catch (Exception e) {
+          s_logger.warn("Error notifying state listener of connection failure", e);
+        }
+      }
+    }
+  }
+
+  // FudgeConnection
+
+  @Override
+  public void setFudgeMessageReceiver(final FudgeMessageReceiver receiver) {
+    _receiver = receiver;
+  }
+
+  @Override
+  public FudgeMessageSender getFudgeMessageSender() {
+    return _sender;
+  }
+
+  @Override
+  public void setConnectionStateListener(final FudgeConnectionStateListener listener) {
+    _listener = listener;
+  }
+
+  @Override
+  public String toString() {
+    return "FudgeConnection to " + _remoteAddress;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Per-thread buffer for encoding messages. The buffer is kept between messages unless it grew unusually large.
+   */
+  private static final class MessageEncoder extends ByteArrayOutputStream {
+
+    private static final int INITIAL_SIZE = 1024;
+    private static final int RETAINED_SIZE = 1024 * 1024;
+
+    private FudgeContext _fudgeContext;
+    private FudgeMsgWriter _writer;
+
+    private MessageEncoder() {
+      super(INITIAL_SIZE);
+    }
+
+    public ByteBuffer encode(final FudgeContext fudgeContext, final FudgeMsg message) {
+      if (fudgeContext != _fudgeContext) {
+        final FudgeDataOutputStreamWriter writer = new FudgeDataOutputStreamWriter(fudgeContext, this);
+        writer.setFlushOnEnvelopeComplete(false);
+        _writer = new FudgeMsgWriter(writer);
+        _fudgeContext = fudgeContext;
+      }
+      reset();
+      _writer.writeMessage(message);
+      _writer.flush();
+      final ByteBuffer encoded = ByteBuffer.wrap(toByteArray());
+      if (buf.length > RETAINED_SIZE) {
+        buf = new byte[INITIAL_SIZE];
+      }
+      return encoded;
+    }
+
+  }
+
+  /**
+   * Reads a message directly from a buffer.
+   */
+  private static final class BufferInputStream extends InputStream {
+
+    private final ByteBuffer _buffer;
+
+    private BufferInputStream(final ByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return _buffer.hasRemaining() ? (_buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!_buffer.hasRemaining()) {
+        return -1;
+      }
+      final int count = Math.min(len, _buffer.remaining());
+      _buffer.get(b, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return _buffer.remaining();
+    }
+
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Listens on a server socket and passes FudgeConnections to an underlying FudgeConnectionReceiver. Unlike
+ * {@link ServerSocketFudgeConnectionReceiver}, which runs a thread for each connection, all accepted connections are serviced by a
+ * single {@link NioSocketSelector}.
+ * <p>
+ * The end point description advertises the NIO transport so that clients created by {@link FudgeConnectionFactoryBean} will use
+ * {@link NioSocketFudgeConnection}. The wire format is unchanged so blocking clients may still connect. Messages from each connection
+ * are dispatched off the selector thread, through the executor service if one is given.
+ */
+public class NioServerSocketFudgeConnectionReceiver extends AbstractServerSocketProcess {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioServerSocketFudgeConnectionReceiver.class);
+
+  private final FudgeConnectionReceiver _underlying;
+  private final FudgeContext _fudgeContext;
+  private final NioSocketSelector _selector = new NioSocketSelector("NIO connection selector");
+  private final Set<NioFudgeConnection> _connections = Collections.newSetFromMap(new ConcurrentHashMap<NioFudgeConnection, Boolean>());
+  private volatile int _maxFrameSize = NioFudgeConnection.DEFAULT_MAX_FRAME_SIZE;
+
+  public NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying) {
+    _fudgeContext = fudgeContext;
+    _underlying = underlying;
+  }
+
+  public NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying,
+      final ExecutorService executorService) {
+    super(executorService);
+    _fudgeContext = fudgeContext;
+    _underlying = underlying;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public FudgeConnectionReceiver getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Sets the largest message that will be accepted from a client. A connection that sends a larger one is closed.
+   *
+   * @param maxFrameSize the maximum message size, in bytes
+   */
+  public void setMaxFrameSize(final int maxFrameSize) {
+    ArgumentChecker.isTrue(maxFrameSize >= NioFudgeConnection.HEADER_SIZE, "maxFrameSize");
+    _maxFrameSize = maxFrameSize;
+  }
+
+  public int getMaxFrameSize() {
+    return _maxFrameSize;
+  }
+
+  @Override
+  protected ServerSocket createServerSocket() throws IOException {
+    final ServerSocketChannel channel = ServerSocketChannel.open();
+    try {
+      // NOTE kirk 2010-05-12 -- Backlog of 50 from ServerSocket.
+      channel.socket().bind(new InetSocketAddress(getBindAddress(), getPortNumber()), 50);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return channel.socket();
+  }
+
+  @Override
+  protected void socketOpened(final Socket socket) {
+    ArgumentChecker.notNull(socket, "socket");
+    s_logger.info("Opened socket to remote side {}", socket.getRemoteSocketAddress());
+    final SocketChannel channel = socket.getChannel();
+    final NioFudgeConnection connection = new NioFudgeConnection(getFudgeContext(), _selector, channel, getExecutorService()) {
+
+      @Override
+      protected void unhandledMessage(final FudgeMsgEnvelope envelope) {
+        try {
+          getUnderlying().connectionReceived(getFudgeContext(), envelope, this);
+        } catch (Exception e) {
+          s_logger.warn("Unable to dispatch connection to receiver", e);
+        }
+      }
+
+      @Override
+      public boolean close() {
+        _connections.remove(this);
+        return super.close();
+      }
+
+      @Override
+      public String toString() {
+        return "FudgeConnection from " + socket.getRemoteSocketAddress();
+      }
+
+    };
+    connection.setMaxFrameSize(getMaxFrameSize());
+    _connections.add(connection);
+    _selector.register(connection);
+  }
+
+  @Override
+  public synchronized void start() {
+    _selector.start();
+    super.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    super.stop();
+    _selector.stop();
+    for (NioFudgeConnection connection : _connections) {
+      connection.close();
+    }
+  }
+
+  @Override
+  public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
+    final MutableFudgeMsg desc = fudgeContext.newMessage(super.getEndPointDescription(fudgeContext));
+    desc.add(SocketEndPointDescriptionProvider.TRANSPORT_KEY, SocketEndPointDescriptionProvider.TRANSPORT_NIO);
+    return desc;
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A non-blocking socket implementation of FudgeConnection.
+ * <p>
+ * The connection is serviced by a {@link NioSocketSelector} rather than a dedicated reader thread, so a process with many connections
+ * (for example a calculation node talking to several job and cache servers) does not need a thread for each. Messages may be sent
+ * concurrently; sending never blocks on the socket.
+ */
+public class NioSocketFudgeConnection extends AbstractClientSocketProcess implements FudgeConnection {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioSocketFudgeConnection.class);
+
+  private final FudgeContext _fudgeContext;
+  private final ExecutorService _executorService;
+  private final NioSocketSelector _selector;
+  private volatile int _maxFrameSize = NioFudgeConnection.DEFAULT_MAX_FRAME_SIZE;
+
+  private volatile NioFudgeConnection _connection;
+  private volatile FudgeMessageReceiver _receiver;
+  private volatile FudgeConnectionStateListener _stateListener;
+
+  private final FudgeMessageSender _sender = new FudgeMessageSender() {
+
+    @Override
+    public FudgeContext getFudgeContext() {
+      return _fudgeContext;
+    }
+
+    @Override
+    public void send(final FudgeMsg message) {
+      NioFudgeConnection connection = _connection;
+      if ((connection == null) || connection.isClosed()) {
+        try {
+          startIfNecessary();
+        } catch (OpenGammaRuntimeException e) {
+          notifyConnectionFailed(e);
+          throw e;
+        }
+        connection = _connection;
+      }
+      connection.getFudgeMessageSender().send(message);
+    }
+
+  };
+
+  /**
+   * Creates a connection serviced by the shared default selector. Received messages are dispatched in order from a shared pool.
+   *
+   * @param fudgeContext the Fudge context, not null
+   */
+  public NioSocketFudgeConnection(final FudgeContext fudgeContext) {
+    this(fudgeContext, null, NioSocketSelector.getDefault());
+  }
+
+  /**
+   * Creates a connection where received messages are run using the given {@link ExecutorService}.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param executorService an executor service to run received messages via, not null
+   */
+  public NioSocketFudgeConnection(final FudgeContext fudgeContext, final ExecutorService executorService) {
+    this(fudgeContext, ArgumentChecker.notNull(executorService, "executorService"), NioSocketSelector.getDefault());
+  }
+
+  /**
+   * Creates a connection serviced by the given selector.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param executorService an executor service to run received messages via, null to dispatch them in order from a shared pool
+   * @param selector the selector to service the connection, not null
+   */
+  public NioSocketFudgeConnection(final FudgeContext fudgeContext, final ExecutorService executorService, final NioSocketSelector selector) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(selector, "selector");
+    _fudgeContext = fudgeContext;
+    _executorService = executorService;
+    _selector = selector;
+  }
+
+  /**
+   * Sets the largest message that will be accepted. The connection is closed if a larger one is received.
+   *
+   * @param maxFrameSize the maximum message size, in bytes
+   */
+  public void setMaxFrameSize(final int maxFrameSize) {
+    ArgumentChecker.isTrue(maxFrameSize >= NioFudgeConnection.HEADER_SIZE, "maxFrameSize");
+    _maxFrameSize = maxFrameSize;
+  }
+
+  public int getMaxFrameSize() {
+    return _maxFrameSize;
+  }
+
+  /**
+   * Note that the message sender may be called concurrently. Messages are queued for the selector thread to write so successful
+   * completion of a {@link FudgeMessageSender#send} does not guarantee message arrival or that it has even been passed to the
+   * transport.
+   *
+   * @return the Fudge message sender component of the connection
+   */
+  @Override
+  public FudgeMessageSender getFudgeMessageSender() {
+    return _sender;
+  }
+
+  @Override
+  public void setFudgeMessageReceiver(final FudgeMessageReceiver receiver) {
+    _receiver = receiver;
+    final NioFudgeConnection connection = _connection;
+    if (connection != null) {
+      connection.setFudgeMessageReceiver(receiver);
+    }
+  }
+
+  @Override
+  public void setConnectionStateListener(final FudgeConnectionStateListener listener) {
+    _stateListener = listener;
+  }
+
+  @Override
+  protected Socket openSocket(final InetSocketAddress address) throws IOException {
+    final SocketChannel channel = SocketChannel.open();
+    try {
+      channel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+      channel.socket().setTcpNoDelay(true);
+      return channel.socket();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  protected void socketOpened(final Socket socket) {
+    final NioFudgeConnection connection = new NioFudgeConnection(_fudgeContext, _selector, socket.getChannel(), _executorService);
+    connection.setMaxFrameSize(getMaxFrameSize());
+    connection.setFudgeMessageReceiver(_receiver);
+    connection.setConnectionStateListener(new FudgeConnectionStateListener() {
+
+      @Override
+      public void connectionReset(final FudgeConnection connection) {
+        // Not used by NioFudgeConnection
+      }
+
+      @Override
+      public void connectionFailed(final FudgeConnection connection, final Exception cause) {
+        if (_connection == connection) {
+          stop();
+          notifyConnectionFailed(cause);
+        }
+      }
+
+    });
+    _connection = connection;
+    _selector.register(connection);
+    final FudgeConnectionStateListener stateListener = _stateListener;
+    if (stateListener != null) {
+      stateListener.connectionReset(this);
+    }
+  }
+
+  @Override
+  protected void socketClosed() {
+    final NioFudgeConnection connection = _connection;
+    if (connection != null) {
+      connection.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("FudgeConnection to ");
+    sb.append(getInetAddresses());
+    sb.append(':');
+    sb.append(getPortNumber());
+    if (!isRunning()) {
+      sb.append(" (not connected)");
+    }
+    return sb.toString();
+  }
+
+  protected void notifyConnectionFailed(final Exception e) {
+    final FudgeConnectionStateListener stateListener = _stateListener;
+    if (stateListener != null) {
+      try {
+        stateListener.connectionFailed(this, e);
+      } catch (Exception e2) {
+        s_logger.warn("Error notifying state listener of connection failure", e2);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.ThreadUtils;
+
+/**
+ * Services the reads and writes of any number of {@link NioFudgeConnection} instances from a single thread.
+ * <p>
+ * The selector has one direct buffer for reads and one for writes. These are reused for every connection it services so the memory
+ * cost of an idle connection is only the connection object itself.
+ */
+public class NioSocketSelector implements Lifecycle {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioSocketSelector.class);
+
+  /**
+   * The default size of the read and write buffers.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static NioSocketSelector s_default;
+
+  private final String _name;
+  private final int _bufferSize;
+  private final Queue<NioFudgeConnection> _registrations = new ConcurrentLinkedQueue<NioFudgeConnection>();
+  private final Queue<NioFudgeConnection> _writes = new ConcurrentLinkedQueue<NioFudgeConnection>();
+
+  private volatile Selector _selector;
+  private Thread _thread;
+  private volatile boolean _running;
+
+  /**
+   * Creates a new selector with default size buffers.
+   *
+   * @param name the name of the selector thread, not null
+   */
+  public NioSocketSelector(final String name) {
+    this(name, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a new selector.
+   *
+   * @param name the name of the selector thread, not null
+   * @param bufferSize the size of the read and write buffers, in bytes
+   */
+  public NioSocketSelector(final String name, final int bufferSize) {
+    ArgumentChecker.notNull(name, "name");
+    ArgumentChecker.isTrue(bufferSize >= NioFudgeConnection.HEADER_SIZE, "bufferSize");
+    _name = name;
+    _bufferSize = bufferSize;
+  }
+
+  /**
+   * Returns a started selector shared by any connections that are not given one explicitly.
+   *
+   * @return the shared selector, not null
+   */
+  public static synchronized NioSocketSelector getDefault() {
+    if (s_default == null) {
+      s_default = new NioSocketSelector("NIO socket selector");
+      s_default.start();
+    }
+    return s_default;
+  }
+
+  public String getName() {
+    return _name;
+  }
+
+  public int getBufferSize() {
+    return _bufferSize;
+  }
+
+  /**
+   * Adds a connection to the set serviced by this selector.
+   *
+   * @param connection the connection, not null
+   */
+  public void register(final NioFudgeConnection connection) {
+    ArgumentChecker.notNull(connection, "connection");
+    _registrations.add(connection);
+    wakeup();
+  }
+
+  /**
+   * Schedules a connection to write its pending messages.
+   *
+   * @param connection the connection, not null
+   */
+  /* package */void requestWrite(final NioFudgeConnection connection) {
+    _writes.add(connection);
+    wakeup();
+  }
+
+  private void wakeup() {
+    final Selector selector = _selector;
+    if (selector != null) {
+      selector.wakeup();
+    }
+  }
+
+  // Lifecycle
+
+  @Override
+  public synchronized void start() {
+    if (_running) {
+      return;
+    }
+    try {
+      _selector = Selector.open();
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Unable to open selector", e);
+    }
+    _running = true;
+    _thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        runSelector();
+      }
+    }, getName());
+    _thread.setDaemon(true);
+    _thread.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!_running) {
+      return;
+    }
+    _running = false;
+    _selector.wakeup();
+    ThreadUtils.safeJoin(_thread, 60 * 1000L);
+    _thread = null;
+    _selector = null;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return _running;
+  }
+
+  //-------------------------------------------------------------------------
+  private void runSelector() {
+    s_logger.info("Started {}", getName());
+    final Selector selector = _selector;
+    final ByteBuffer readBuffer = ByteBuffer.allocateDirect(getBufferSize());
+    final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(getBufferSize());
+    while (_running) {
+      NioFudgeConnection connection = _registrations.poll();
+      while (connection != null) {
+        try {
+          connection.register(selector, writeBuffer);
+        } catch (IOException | RuntimeException e) {
+          connection.failed(e);
+        }
+        connection = _registrations.poll();
+      }
+      connection = _writes.poll();
+      while (connection != null) {
+        try {
+          connection.write(writeBuffer);
+        } catch (IOException | RuntimeException e) {
+          connection.failed(e);
+        }
+        connection = _writes.poll();
+      }
+      try {
+        selector.select();
+      } catch (IOException e) {
+        s_logger.warn("Error in select", e);
+        continue;
+      }
+      final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        final SelectionKey key = keys.next();
+        keys.remove();
+        connection = (NioFudgeConnection) key.attachment();
+        try {
+          if (key.isReadable()) {
+            connection.read(readBuffer);
+          }
+          if (key.isValid() && key.isWritable()) {
+            connection.write(writeBuffer);
+          }
+        } catch (IOException | RuntimeException e) {
+          connection.failed(e);
+        }
+      }
+    }
+    for (SelectionKey key : selector.keys()) {
+      ((NioFudgeConnection) key.attachment()).close();
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      s_logger.warn("Unable to close selector", e);
+    }
+    s_logger.info("Stopped {}", getName());
+  }
+
+}
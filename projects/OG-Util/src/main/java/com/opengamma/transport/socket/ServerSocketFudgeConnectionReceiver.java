@@ -57,6 +57,23 @@ public class ServerSocketFudgeConnectionReceiver extends AbstractServerSocketPro
     _underlying = underlying;
   }
 
+  /**
+   * Creates a receiver using either the blocking or the NIO transport. The two are interchangeable on the wire; the NIO receiver
+   * services every connection from one selector thread rather than a thread for each.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param underlying the receiver to pass connections to, not null
+   * @param nioTransport true to create a {@link NioServerSocketFudgeConnectionReceiver}, false for a {@link ServerSocketFudgeConnectionReceiver}
+   * @return the receiver, not started
+   */
+  public static AbstractServerSocketProcess create(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying, final boolean nioTransport) {
+    if (nioTransport) {
+      return new NioServerSocketFudgeConnectionReceiver(fudgeContext, underlying);
+    } else {
+      return new ServerSocketFudgeConnectionReceiver(fudgeContext, underlying);
+    }
+  }
+
   public FudgeContext getFudgeContext() {
     return _fudgeContext;
   }
@@ -37,6 +37,16 @@ public class SocketEndPointDescriptionProvider implements EndPointDescriptionPro
    */
   public static final String PORT_KEY = "port";
 
+  /**
+   * Preferred client transport. If omitted, a blocking socket is used. The wire format is the same for all transports.
+   */
+  public static final String TRANSPORT_KEY = "transport";
+
+  /**
+   * Value of the preferred client transport to use a {@link NioSocketFudgeConnection}.
+   */
+  public static final String TRANSPORT_NIO = "NIO";
+
   /**
    * The address to connect to. Defaults to the local host.
    */
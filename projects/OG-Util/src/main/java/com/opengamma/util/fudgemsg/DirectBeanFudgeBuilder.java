@@ -8,6 +8,7 @@ package com.opengamma.util.fudgemsg;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -18,6 +19,8 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
@@ -44,15 +47,33 @@ import com.google.common.collect.TreeMultimap;
 
 /**
  * Builder to convert DirectBean to and from Fudge.
+ * <p>
+ * The properties of the bean are analysed once, when the builder is created, rather than on each message. The kind of
+ * collection each property holds and the generic types of its content are resolved up front, and incoming messages are
+ * matched to properties with a single pass over their fields.
  *
  * @param <T> the bean type
  */
 public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilder<T> {
 
+  /**
+   * The analysed properties, keyed by meta-bean. Shared between builders as the factories may create more than one for a
+   * bean type.
+   */
+  private static final ConcurrentMap<MetaBean, Property[]> s_properties = new ConcurrentHashMap<MetaBean, Property[]>();
+
   /**
    * The meta bean for this instance.
    */
   private final MetaBean _metaBean;
+  /**
+   * The properties of the bean, in meta-bean order.
+   */
+  private final Property[] _properties;
+  /**
+   * The index into {@link #_properties} of each buildable property, keyed by name.
+   */
+  private final Map<String, Integer> _buildable;
 
   /**
    * Creates a builder from a class, using reflection to find the meta-bean.
@@ -71,6 +92,29 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
    */
   public DirectBeanFudgeBuilder(MetaBean metaBean) {
     _metaBean = metaBean;
+    _properties = properties(metaBean);
+    _buildable = new HashMap<String, Integer>();
+    for (int i = 0; i < _properties.length; i++) {
+      if (_properties[i]._buildable) {
+        _buildable.put(_properties[i]._name, i);
+      }
+    }
+  }
+
+  private static Property[] properties(final MetaBean metaBean) {
+    Property[] properties = s_properties.get(metaBean);
+    if (properties == null) {
+      final List<Property> list = new ArrayList<Property>();
+      for (MetaProperty<?> prop : metaBean.metaPropertyIterable()) {
+        list.add(new Property(prop, metaBean.beanType()));
+      }
+      properties = list.toArray(new Property[list.size()]);
+      final Property[] existing = s_properties.putIfAbsent(metaBean, properties);
+      if (existing != null) {
+        properties = existing;
+      }
+    }
+    return properties;
   }
 
   //-------------------------------------------------------------------------
@@ -79,25 +123,26 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, T bean) {
     try {
+      final MetaBean metaBean = bean.metaBean();
+      final Property[] properties = (metaBean == _metaBean) ? _properties : properties(metaBean);
       MutableFudgeMsg msg = serializer.newMessage();
-      for (MetaProperty<?> prop : bean.metaBean().metaPropertyIterable()) {
-        if (prop.style().isReadable()) {
-          Object obj = prop.get(bean);
+      for (Property prop : properties) {
+        if (prop._readable) {
+          Object obj = prop._metaProperty.get(bean);
           if (obj instanceof List<?>) {
-            MutableFudgeMsg subMsg = buildMessageCollection(serializer, prop, bean.getClass(), (List<?>) obj);
-            msg.add(prop.name(), null, FudgeWireType.SUB_MESSAGE, subMsg);
+            MutableFudgeMsg subMsg = buildMessageCollection(serializer, prop, (List<?>) obj);
+            msg.add(prop._name, null, FudgeWireType.SUB_MESSAGE, subMsg);
           } else if (obj instanceof Set<?>) {
-            MutableFudgeMsg subMsg = buildMessageCollection(
-                serializer, prop, bean.getClass(), new ArrayList<Object>((Set<?>) obj));
-            msg.add(prop.name(), null, FudgeWireType.SUB_MESSAGE, subMsg);
+            MutableFudgeMsg subMsg = buildMessageCollection(serializer, prop, new ArrayList<Object>((Set<?>) obj));
+            msg.add(prop._name, null, FudgeWireType.SUB_MESSAGE, subMsg);
           } else if (obj instanceof Map<?, ?>) {
-            MutableFudgeMsg subMsg = buildMessageMap(serializer, bean.getClass(), prop, (Map<?, ?>) obj);
-            msg.add(prop.name(), null, FudgeWireType.SUB_MESSAGE, subMsg);
+            MutableFudgeMsg subMsg = buildMessageMapFromEntries(((Map<?, ?>) obj).entrySet(), serializer, prop);
+            msg.add(prop._name, null, FudgeWireType.SUB_MESSAGE, subMsg);
           } else if (obj instanceof Multimap<?, ?>) {
-            MutableFudgeMsg subMsg = buildMessageMultimap(serializer, bean.getClass(), prop, (Multimap<?, ?>) obj);
-            msg.add(prop.name(), null, FudgeWireType.SUB_MESSAGE, subMsg);
+            MutableFudgeMsg subMsg = buildMessageMapFromEntries(((Multimap<?, ?>) obj).entries(), serializer, prop);
+            msg.add(prop._name, null, FudgeWireType.SUB_MESSAGE, subMsg);
           } else {
-            serializer.addToMessageWithClassHeaders(msg, prop.name(), null, obj, prop.propertyType()); // ignores null
+            serializer.addToMessageWithClassHeaders(msg, prop._name, null, obj, prop._type); // ignores null
           }
         }
       }
@@ -107,10 +152,8 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
     }
   }
 
-  private MutableFudgeMsg buildMessageCollection(
-      FudgeSerializer serializer, MetaProperty<?> prop, Class<?> beanType, List<?> list) {
-    
-    Class<?> contentType = JodaBeanUtils.collectionType(prop, beanType);
+  private MutableFudgeMsg buildMessageCollection(FudgeSerializer serializer, Property prop, List<?> list) {
+    Class<?> contentType = prop.collectionType();
     MutableFudgeMsg msg = serializer.newMessage();
     for (Object entry : list) {
       if (entry == null) {
@@ -124,22 +167,11 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
     return msg;
   }
 
-  private MutableFudgeMsg buildMessageMap(FudgeSerializer serializer, Class<?> beanType, MetaProperty<?> prop,
-                                          Map<?, ?> map) {
-    return buildMessageMapFromEntries(map.entrySet(), serializer, beanType, prop);
-  }
-
-  private MutableFudgeMsg buildMessageMultimap(FudgeSerializer serializer, Class<?> beanType, MetaProperty<?> prop,
-                                               Multimap<?, ?> multimap) {
-    return buildMessageMapFromEntries(multimap.entries(), serializer, beanType, prop);
-  }
-
   private MutableFudgeMsg buildMessageMapFromEntries(Collection<? extends Map.Entry<?, ?>> entries,
                                                      FudgeSerializer serializer,
-                                                     Class<?> beanType,
-                                                     MetaProperty<?> prop) {
-    Class<?> keyType = JodaBeanUtils.mapKeyType(prop, beanType);
-    Class<?> valueType = JodaBeanUtils.mapValueType(prop, beanType);
+                                                     Property prop) {
+    Class<?> keyType = prop.mapKeyType();
+    Class<?> valueType = prop.mapValueType();
     MutableFudgeMsg msg = serializer.newMessage();
     for (Map.Entry<?, ?> entry : entries) {
       if (entry.getKey() == null) {
@@ -165,73 +197,86 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
   @Override
   public T buildObject(FudgeDeserializer deserializer, FudgeMsg msg) {
     try {
+      // Match fields to properties in one pass; the first field with a property's name is used
+      final FudgeField[] fields = new FudgeField[_properties.length];
+      for (FudgeField field : msg) {
+        final String name = field.getName();
+        if (name != null) {
+          final Integer index = _buildable.get(name);
+          if ((index != null) && (fields[index] == null)) {
+            fields[index] = field;
+          }
+        }
+      }
       BeanBuilder<T> builder = (BeanBuilder<T>) _metaBean.builder();
-      for (MetaProperty<?> mp : _metaBean.metaPropertyIterable()) {
-        if (mp.style().isBuildable()) {
-          final FudgeField field = msg.getByName(mp.name());
-          if (field != null) {
-            Object value = null;
-            if (List.class.isAssignableFrom(mp.propertyType())) {
+      for (int i = 0; i < fields.length; i++) {
+        final FudgeField field = fields[i];
+        if (field != null) {
+          final Property mp = _properties[i];
+          Object value = null;
+          switch (mp._kind) {
+            case LIST:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectList(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value);
+                value = buildObjectList(deserializer, mp, (FudgeMsg) value);
               }
-            } else if (SortedSet.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case SORTED_SET:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectSet(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value, new TreeSet<>());
+                value = buildObjectSet(deserializer, mp, (FudgeMsg) value, new TreeSet<>());
               }
-            } else if (Set.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case SET:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectSet(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value, new LinkedHashSet<>());
+                value = buildObjectSet(deserializer, mp, (FudgeMsg) value, new LinkedHashSet<>());
               }
-            } else if (Map.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case MAP:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectMap(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value);
+                value = buildObjectMap(deserializer, mp, (FudgeMsg) value);
               }
-            } else if (ListMultimap.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case LIST_MULTIMAP:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectMultimap(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value, ArrayListMultimap.create());
+                value = buildObjectMultimap(deserializer, mp, (FudgeMsg) value, ArrayListMultimap.create());
               }
-            } else if (SortedSetMultimap.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case SORTED_SET_MULTIMAP:
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectMultimap(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value, TreeMultimap.create());
+                value = buildObjectMultimap(deserializer, mp, (FudgeMsg) value, TreeMultimap.create());
               }
-            } else if (Multimap.class.isAssignableFrom(mp.propertyType())) {
+              break;
+            case MULTIMAP:
               // In the absence of other information we'll create a hash multimap
               value = field.getValue();
               if (value instanceof FudgeMsg) {
-                value = buildObjectMultimap(
-                    deserializer, mp, _metaBean.beanType(), (FudgeMsg) value, HashMultimap.create());
+                value = buildObjectMultimap(deserializer, mp, (FudgeMsg) value, HashMultimap.create());
               }
-            }
-            if (value == null) {
-              try {
-                if (mp.propertyType() == Object.class) {
-                  value = deserializer.fieldValueToObject(field);
-                } else {
-                  value = deserializer.fieldValueToObject(mp.propertyType(), field);
-                }
-              } catch (IllegalArgumentException ex) {
-                if (field.getValue() instanceof String == false) {
-                  throw ex;
-                }
-                value = JodaBeanUtils.stringConverter().convertFromString(mp.propertyType(), (String) field.getValue());
+              break;
+            default:
+              break;
+          }
+          if (value == null) {
+            try {
+              if (mp._type == Object.class) {
+                value = deserializer.fieldValueToObject(field);
+              } else {
+                value = deserializer.fieldValueToObject(mp._type, field);
               }
+            } catch (IllegalArgumentException ex) {
+              if (field.getValue() instanceof String == false) {
+                throw ex;
+              }
+              value = JodaBeanUtils.stringConverter().convertFromString(mp._type, (String) field.getValue());
             }
-            if (value != null || mp.propertyType().isPrimitive() == false) {
-              builder.set(mp.name(), value);
-            }
+          }
+          if (value != null || mp._type.isPrimitive() == false) {
+            builder.set(mp._name, value);
           }
         }
       }
@@ -241,8 +286,8 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
     }
   }
 
-  private List<Object> buildObjectList(FudgeDeserializer deserializer, MetaProperty<?> prop, Class<?> type, FudgeMsg msg) {
-    Class<?> contentType = JodaBeanUtils.collectionType(prop, type);
+  private List<Object> buildObjectList(FudgeDeserializer deserializer, Property prop, FudgeMsg msg) {
+    Class<?> contentType = prop.collectionType();
     List<Object> list = new ArrayList<Object>();  // should be List<contentType>
     for (FudgeField field : msg) {
       if (field.getOrdinal() != null && field.getOrdinal() != 1) {
@@ -254,8 +299,8 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
     return list;
   }
 
-  private Set<Object> buildObjectSet(FudgeDeserializer deserializer, MetaProperty<?> prop, Class<?> type, FudgeMsg msg, Set<Object> set) {
-    Class<?> contentType = JodaBeanUtils.collectionType(prop, type);
+  private Set<Object> buildObjectSet(FudgeDeserializer deserializer, Property prop, FudgeMsg msg, Set<Object> set) {
+    Class<?> contentType = prop.collectionType();
     for (FudgeField field : msg) {
       if (field.getOrdinal() != null && field.getOrdinal() != 1) {
         throw new IllegalArgumentException("Sub-message doesn't contain a set (bad field " + field + ")");
@@ -266,11 +311,11 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
     return set;
   }
 
-  private Map<Object, Object> buildObjectMap(FudgeDeserializer deserializer, MetaProperty<?> prop, Class<?> type, FudgeMsg msg) {
-    Class<?> keyType = JodaBeanUtils.mapKeyType(prop, type);
-    Class<?> valueType = JodaBeanUtils.mapValueType(prop, type);
+  private Map<Object, Object> buildObjectMap(FudgeDeserializer deserializer, Property prop, FudgeMsg msg) {
+    Class<?> keyType = prop.mapKeyType();
+    Class<?> valueType = prop.mapValueType();
     Map<Object, Object> map; // should be Map<keyType,contentType>
-    if (SortedMap.class.isAssignableFrom(prop.propertyType())) {
+    if (SortedMap.class.isAssignableFrom(prop._type)) {
       map = new TreeMap<>();
     } else {
       map = Maps.newHashMap();  
@@ -311,13 +356,12 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
 
   @SuppressWarnings({"unchecked", "rawtypes" })
   private Multimap<Object, Object> buildObjectMultimap(FudgeDeserializer deserializer,
-                                                       MetaProperty<?> prop,
-                                                       Class<?> type,
+                                                       Property prop,
                                                        FudgeMsg msg,
                                                        Multimap multimap) {
 
-    Class<?> keyType = JodaBeanUtils.mapKeyType(prop, type);
-    Class<?> valueType = JodaBeanUtils.mapValueType(prop, type);
+    Class<?> keyType = prop.mapKeyType();
+    Class<?> valueType = prop.mapValueType();
     Queue<Object> keys = new LinkedList<>();
     Queue<Object> values = new LinkedList<>();
     for (FudgeField field : msg) {
@@ -366,4 +410,92 @@ public final class DirectBeanFudgeBuilder<T extends Bean> implements FudgeBuilde
         type == Object.class;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * The kind of container a property is deserialized as, from its declared type.
+   */
+  private enum Kind {
+    LIST, SORTED_SET, SET, MAP, LIST_MULTIMAP, SORTED_SET_MULTIMAP, MULTIMAP, OTHER;
+
+    static Kind of(final Class<?> type) {
+      if (List.class.isAssignableFrom(type)) {
+        return LIST;
+      } else if (SortedSet.class.isAssignableFrom(type)) {
+        return SORTED_SET;
+      } else if (Set.class.isAssignableFrom(type)) {
+        return SET;
+      } else if (Map.class.isAssignableFrom(type)) {
+        return MAP;
+      } else if (ListMultimap.class.isAssignableFrom(type)) {
+        return LIST_MULTIMAP;
+      } else if (SortedSetMultimap.class.isAssignableFrom(type)) {
+        return SORTED_SET_MULTIMAP;
+      } else if (Multimap.class.isAssignableFrom(type)) {
+        return MULTIMAP;
+      } else {
+        return OTHER;
+      }
+    }
+  }
+
+  /**
+   * A property of the bean with the details needed to encode and decode it.
+   * <p>
+   * The generic content types are resolved on first use as most properties are never containers.
+   */
+  private static final class Property {
+
+    private static final Class<?> UNRESOLVED = Property.class;
+
+    private final MetaProperty<?> _metaProperty;
+    private final Class<?> _beanType;
+    private final String _name;
+    private final Class<?> _type;
+    private final boolean _readable;
+    private final boolean _buildable;
+    private final Kind _kind;
+    // Benign races; each thread resolves the same value
+    private Class<?> _collectionType = UNRESOLVED;
+    private Class<?> _mapKeyType = UNRESOLVED;
+    private Class<?> _mapValueType = UNRESOLVED;
+
+    Property(final MetaProperty<?> metaProperty, final Class<?> beanType) {
+      _metaProperty = metaProperty;
+      _beanType = beanType;
+      _name = metaProperty.name();
+      _type = metaProperty.propertyType();
+      _readable = metaProperty.style().isReadable();
+      _buildable = metaProperty.style().isBuildable();
+      _kind = Kind.of(_type);
+    }
+
+    Class<?> collectionType() {
+      Class<?> type = _collectionType;
+      if (type == UNRESOLVED) {
+        type = JodaBeanUtils.collectionType(_metaProperty, _beanType);
+        _collectionType = type;
+      }
+      return type;
+    }
+
+    Class<?> mapKeyType() {
+      Class<?> type = _mapKeyType;
+      if (type == UNRESOLVED) {
+        type = JodaBeanUtils.mapKeyType(_metaProperty, _beanType);
+        _mapKeyType = type;
+      }
+      return type;
+    }
+
+    Class<?> mapValueType() {
+      Class<?> type = _mapValueType;
+      if (type == UNRESOLVED) {
+        type = JodaBeanUtils.mapValueType(_metaProperty, _beanType);
+        _mapValueType = type;
+      }
+      return type;
+    }
+
+  }
+
 }
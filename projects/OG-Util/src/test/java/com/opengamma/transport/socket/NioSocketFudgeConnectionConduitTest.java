@@ -0,0 +1,344 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.transport.CollectingFudgeMessageReceiver;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionFactoryBean;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the NioSocketFudgeConnection and NioServerSocketFudgeConnectionReceiver classes
+ */
+@Test(groups = TestGroup.INTEGRATION, singleThreaded = true)
+public class NioSocketFudgeConnectionConduitTest {
+
+  private final AtomicInteger _counter = new AtomicInteger();
+
+  private FudgeMsg createMessage() {
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("counter", _counter.incrementAndGet());
+    return message;
+  }
+
+  private FudgeMsg createLargeMessage(final int bytes) {
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("counter", _counter.incrementAndGet());
+    final byte[] data = new byte[bytes];
+    for (int i = 0; i < bytes; i++) {
+      data[i] = (byte) i;
+    }
+    message.add("data", data);
+    return message;
+  }
+
+  private static FudgeConnectionReceiver echoReceiver() {
+    return new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope message, final FudgeConnection connection) {
+        connection.getFudgeMessageSender().send(message.getMessage());
+      }
+    };
+  }
+
+  private static void echo(final FudgeConnection client, final FudgeMsg message) throws Exception {
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    client.getFudgeMessageSender().send(message);
+    final FudgeMsgEnvelope envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(message, envelope.getMessage());
+  }
+
+  public void simpleTest() throws Exception {
+    final FudgeMsg testMessage1 = createMessage();
+    final FudgeMsg testMessage2 = createMessage();
+    // receiver will respond to testMessage1 with testMessage2
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(FudgeContext fudgeContext, FudgeMsgEnvelope message, FudgeConnection connection) {
+        assertNotNull(fudgeContext);
+        assertNotNull(message);
+        assertNotNull(connection);
+        assertEquals(testMessage1, message.getMessage());
+        connection.getFudgeMessageSender().send(testMessage2);
+      }
+    };
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    // connect and send testMessage1, then verify that testMessage2 was sent back
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    client.getFudgeMessageSender().send(testMessage1);
+    final FudgeMsgEnvelope envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage2, envelope.getMessage());
+    client.stop();
+    server.stop();
+  }
+
+  public void messageReceiverTest() throws Exception {
+    final FudgeMsg testMessage1 = createMessage();
+    final FudgeMsg testMessage2 = createMessage();
+    final FudgeMsg testMessage3 = createMessage();
+    final CollectingFudgeMessageReceiver message3Receiver = new CollectingFudgeMessageReceiver();
+    // receiver will ignore testMessage1
+    // after receiving testMessage2, will set the message receiver on the connection
+    // it shouldn't be called again - messages should be dispatched to the connection's receiver
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      private int _count;
+
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope message, final FudgeConnection connection) {
+        switch (_count++) {
+          case 0:
+            assertEquals(testMessage1, message.getMessage());
+            break;
+          case 1:
+            assertEquals(testMessage2, message.getMessage());
+            connection.setFudgeMessageReceiver(message3Receiver);
+            break;
+          default:
+            fail("Shouldn't have been called a third time");
+            break;
+        }
+      }
+    };
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    // send messages 1, 2, 3 and verify 3 went to the test receiver
+    client.getFudgeMessageSender().send(testMessage1);
+    client.getFudgeMessageSender().send(testMessage2);
+    client.getFudgeMessageSender().send(testMessage3);
+    final FudgeMsgEnvelope envelope = message3Receiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage3, envelope.getMessage());
+    server.stop();
+    client.stop();
+  }
+
+  public void largeMessageTest() throws Exception {
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver());
+    server.start();
+    // A small buffer forces headers and messages to be split across reads and writes
+    final NioSocketSelector selector = new NioSocketSelector("Test selector", 13);
+    selector.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT, null, selector);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    echo(client, createMessage());
+    echo(client, createLargeMessage(1000));
+    echo(client, createLargeMessage(4 * NioSocketSelector.DEFAULT_BUFFER_SIZE));
+    client.stop();
+    selector.stop();
+    server.stop();
+  }
+
+  public void blockingClientTest() throws Exception {
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver());
+    server.start();
+    final SocketFudgeConnection client = new SocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    echo(client, createMessage());
+    echo(client, createLargeMessage(4 * NioSocketSelector.DEFAULT_BUFFER_SIZE));
+    client.stop();
+    server.stop();
+  }
+
+  public void blockingServerTest() throws Exception {
+    final ServerSocketFudgeConnectionReceiver server = new ServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver());
+    server.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    echo(client, createMessage());
+    echo(client, createLargeMessage(4 * NioSocketSelector.DEFAULT_BUFFER_SIZE));
+    client.stop();
+    server.stop();
+  }
+
+  public void endPointTest() throws Exception {
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver());
+    server.setBindAddress(InetAddress.getLocalHost());
+    server.start();
+    final FudgeConnectionFactoryBean factory = new FudgeConnectionFactoryBean();
+    factory.setFudgeContext(FudgeContext.GLOBAL_DEFAULT);
+    factory.setEndPointDescription(server);
+    final FudgeConnection client = factory.getObjectCreating();
+    assertTrue(client instanceof NioSocketFudgeConnection);
+    echo(client, createMessage());
+    ((NioSocketFudgeConnection) client).stop();
+    server.stop();
+  }
+
+  public void createTest() throws Exception {
+    assertTrue(ServerSocketFudgeConnectionReceiver.create(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), true) instanceof NioServerSocketFudgeConnectionReceiver);
+    assertTrue(ServerSocketFudgeConnectionReceiver.create(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), false) instanceof ServerSocketFudgeConnectionReceiver);
+  }
+
+  public void maxFrameSizeTest() throws Exception {
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver());
+    server.setMaxFrameSize(1024);
+    server.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    final CountDownLatch failed = new CountDownLatch(1);
+    client.setConnectionStateListener(new FudgeConnectionStateListener() {
+
+      @Override
+      public void connectionReset(final FudgeConnection connection) {
+      }
+
+      @Override
+      public void connectionFailed(final FudgeConnection connection, final Exception cause) {
+        failed.countDown();
+      }
+
+    });
+    echo(client, createMessage());
+    // The server closes the connection rather than allocate a buffer for the oversized message
+    client.getFudgeMessageSender().send(createLargeMessage(4096));
+    assertTrue(failed.await(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS));
+    client.stop();
+    server.stop();
+  }
+
+  public void dispatchTest() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope message, final FudgeConnection connection) {
+        assertFalse(Thread.currentThread().getName().startsWith("NIO connection selector"));
+        if (message.getMessage().hasField("block")) {
+          try {
+            release.await(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        connection.getFudgeMessageSender().send(message.getMessage());
+      }
+    };
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.start();
+    final NioSocketFudgeConnection blocked = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    blocked.setInetAddress(InetAddress.getLocalHost());
+    blocked.setPortNumber(server.getPortNumber());
+    final MutableFudgeMsg blocking = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    blocking.add("block", true);
+    final CollectingFudgeMessageReceiver blockedReceiver = new CollectingFudgeMessageReceiver();
+    blocked.setFudgeMessageReceiver(blockedReceiver);
+    blocked.getFudgeMessageSender().send(blocking);
+    // A receiver blocked on one connection doesn't hold up another connection on the same selector
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    echo(client, createMessage());
+    release.countDown();
+    assertNotNull(blockedReceiver.waitForMessage(Timeout.standardTimeoutMillis()));
+    client.stop();
+    blocked.stop();
+    server.stop();
+  }
+
+  private class MessageReadWrite extends Thread implements FudgeMessageReceiver {
+
+    private static final int NUM_MESSAGES = 1000;
+
+    private FudgeMessageSender _sender;
+    private int _received;
+
+    @Override
+    public void run() {
+      for (int i = 0; i < NUM_MESSAGES; i++) {
+        final FudgeMsg message = createMessage();
+        _sender.send(message);
+      }
+    }
+
+    @Override
+    public synchronized void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+      _received++;
+      if (_received == NUM_MESSAGES) {
+        notify();
+      } else if (_received > NUM_MESSAGES) {
+        fail("Too many messages received");
+      }
+    }
+
+    public synchronized boolean waitForMessages() throws InterruptedException {
+      final long period = Timeout.standardTimeoutMillis();
+      final long timeout = System.currentTimeMillis() + period;
+      while ((_received < NUM_MESSAGES) && (System.currentTimeMillis() < timeout)) {
+        wait(period);
+      }
+      return _received == NUM_MESSAGES;
+    }
+
+  }
+
+  public void parallelIOTest() throws Exception {
+    final MessageReadWrite serverThread = new MessageReadWrite();
+    // receiver will attach the serverThread to the connection and start the thread
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope envelope, final FudgeConnection connection) {
+        // pass on the first message
+        serverThread.messageReceived(fudgeContext, envelope);
+        // and let it receive all others as they arrive
+        serverThread._sender = connection.getFudgeMessageSender();
+        connection.setFudgeMessageReceiver(serverThread);
+        serverThread.start();
+      }
+    };
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.start();
+    final NioSocketFudgeConnection client = new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    // client thread will send a stream of messages, and receive those back from the server
+    final MessageReadWrite clientThread = new MessageReadWrite();
+    clientThread._sender = client.getFudgeMessageSender();
+    client.setFudgeMessageReceiver(clientThread);
+    clientThread.start();
+    // wait to see if both have behaved
+    assertTrue(serverThread.waitForMessages());
+    assertTrue(clientThread.waitForMessages());
+    server.stop();
+    client.stop();
+  }
+
+}
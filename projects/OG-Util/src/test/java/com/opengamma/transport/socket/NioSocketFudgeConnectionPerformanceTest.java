@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeMessageReceiver;
+
+/**
+ * Compares the throughput and round trip latency of the blocking and NIO socket transports over the loopback interface.
+ */
+@Test(enabled = false)
+public class NioSocketFudgeConnectionPerformanceTest {
+
+  private static final int WARMUP = 10000;
+  private static final int MESSAGES = 100000;
+  private static final int ROUND_TRIPS = 10000;
+
+  private static FudgeMsg createMessage(final int i) {
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("counter", i);
+    message.add("name", "Message " + i);
+    message.add("value", (double) i);
+    return message;
+  }
+
+  private static FudgeConnectionReceiver echoReceiver() {
+    return new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope message, final FudgeConnection connection) {
+        connection.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+          @Override
+          public void messageReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope msgEnvelope) {
+            connection.getFudgeMessageSender().send(msgEnvelope.getMessage());
+          }
+        });
+        connection.getFudgeMessageSender().send(message.getMessage());
+      }
+    };
+  }
+
+  private static long throughput(final FudgeConnection client, final int count) throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(count);
+    client.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+      @Override
+      public void messageReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope msgEnvelope) {
+        latch.countDown();
+      }
+    });
+    final long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      client.getFudgeMessageSender().send(createMessage(i));
+    }
+    latch.await(1, TimeUnit.MINUTES);
+    return System.nanoTime() - start;
+  }
+
+  private static long roundTrip(final FudgeConnection client, final int count) throws InterruptedException {
+    final long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      final CountDownLatch latch = new CountDownLatch(1);
+      client.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+        @Override
+        public void messageReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope msgEnvelope) {
+          latch.countDown();
+        }
+      });
+      client.getFudgeMessageSender().send(createMessage(i));
+      latch.await(1, TimeUnit.MINUTES);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void run(final String name, final AbstractServerSocketProcess server, final AbstractClientSocketProcess client) throws InterruptedException {
+    server.start();
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    final FudgeConnection connection = (FudgeConnection) client;
+    throughput(connection, WARMUP);
+    roundTrip(connection, WARMUP / 10);
+    final long throughput = throughput(connection, MESSAGES);
+    final long roundTrip = roundTrip(connection, ROUND_TRIPS);
+    System.out.println(name + ": " + (MESSAGES * 1000000000L / throughput) + " messages/s, " + (roundTrip / ROUND_TRIPS / 1000L) + "us round trip");
+    client.stop();
+    server.stop();
+  }
+
+  public void blocking() throws InterruptedException {
+    run("Blocking", new ServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver()), new SocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT));
+  }
+
+  public void nio() throws InterruptedException {
+    run("NIO", new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver()), new NioSocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT));
+  }
+
+}
@@ -123,4 +123,17 @@ public class JodaBeanFudgeBuilderTest extends AbstractFudgeBuilderTestCase {
     }
   }
 
+  @Test
+  public void test_Joda_FirstFieldUsedAndUnknownFieldsIgnored() {
+    FudgeContext ctx = OpenGammaFudgeContext.getInstance();
+    MutableFudgeMsg msg = ctx.newMessage();
+    msg.add("unknown", "x");
+    msg.add("object", "first");
+    msg.add("object", "second");
+    msg.add(null, 3, "ordinal");
+    JodaTestBean bean = DirectBeanFudgeBuilder.of(JodaTestBean.class).buildObject(new FudgeDeserializer(ctx), msg);
+    assertEquals(bean.getObject(), "first");
+    assertEquals(bean.getMap(), null);
+  }
+
 }
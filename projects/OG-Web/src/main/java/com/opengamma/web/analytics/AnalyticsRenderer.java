@@ -44,6 +44,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
                                             cacheResult.getHistory(),
                                             cacheResult.getAggregatedExecutionLog(),
                                             cacheResult.isUpdated(),
+                                            cacheResult.getUpdateId(),
                                             columnType,
                                             inlineKey, format);
     } else {
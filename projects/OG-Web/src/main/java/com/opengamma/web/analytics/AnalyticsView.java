@@ -138,6 +138,32 @@ public interface AnalyticsView {
    */
   ViewportResults getData(GridType gridType, int viewportId);
 
+  /**
+   * Returns the current data for a viewport for a client that tracks the updates it has received. The client
+   * acknowledges the update ID of the last data it applied and only the cells updated since then need to be
+   * sent. The acknowledgement is recorded so it applies to subsequent requests.
+   * 
+   * @param gridType  the required grid structure, not null
+   * @param viewportId  the ID of the viewport
+   * @param viewportVersion  the version of the viewport definition the client's data was created for
+   * @param acknowledgedUpdateId  the update ID of the client's data, {@link ViewportResults#NOT_ACKNOWLEDGED} if it has none
+   * @return the current data for the viewport
+   */
+  ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId);
+
+  /**
+   * Aggregates the values in a column over groups of positions. The aggregation is calculated in the server from the
+   * latest results so the view doesn't have to be recompiled to aggregate the portfolio in a different way.
+   *
+   * @param gridType  the grid containing the column, only the portfolio grid can be aggregated
+   * @param aggregatorName  the name of the aggregation function used to group the positions
+   * @param columnIndex  the index of the column
+   * @param rowCount  the maximum number of positions to return, ordered by value
+   * @param ascending  true to return the positions with the lowest values, false for the highest
+   * @return the aggregated values
+   */
+  GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending);
+
   // -------- dependency graph grids --------
 
   // TODO specifying by row and col is a problem for two reasons
@@ -15,6 +15,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -74,6 +75,16 @@ public class AnalyticsViewManager {
   private final PositionMaster _positionMaster;
   private final ExecutorService _portfolioResolutionExecutor;
 
+  /**
+   * Registers the metrics of the results caches used by the views.
+   * @param summaryRegistry The registry for summary metrics
+   * @param detailRegistry The registry for detailed metrics
+   * @param namePrefix The prefix for the metric names
+   */
+  public static void registerMetricsStatic(MetricRegistry summaryRegistry, MetricRegistry detailRegistry, String namePrefix) {
+    ResultsCache.registerMetricsStatic(summaryRegistry, detailRegistry, namePrefix);
+  }
+
   public AnalyticsViewManager(ViewProcessor viewProcessor, ExecutionFlags.ParallelRecompilationMode parallelViewRecompilation, AggregatedViewDefinitionManager aggregatedViewDefManager,
       ComputationTargetResolver targetResolver, FunctionRepositoryFactory functions, NamedMarketDataSpecificationRepository marketDataSpecificationRepository,
       SecurityAttributeMapper blotterColumnMapper, PositionSource positionSource, ConfigSource configSource, SecuritySource securitySource, SecurityMaster securityMaster,
@@ -188,7 +199,8 @@ public class AnalyticsViewManager {
     boolean primitivesOnly = portfolioId == null;
     ErrorManager errorManager = new ErrorManager(errorId);
     AnalyticsView view = new SimpleAnalyticsView(aggregatedViewDef.getUniqueId(), primitivesOnly, versionCorrection, viewId, portfolioGridId, primitivesGridId, _targetResolver, _functions,
-        viewportListener, _blotterColumnMapper, portfolioSupplier, entityExtractor, request.showBlotterColumns(), errorManager);
+        viewportListener, _blotterColumnMapper, portfolioSupplier, entityExtractor, request.showBlotterColumns(), errorManager,
+        _aggregatedViewDefManager.getAggregationFunctions());
     AnalyticsView lockingView = new LockingAnalyticsView(view);
     AnalyticsView notifyingView = new NotifyingAnalyticsView(lockingView, clientConnection);
     AnalyticsView timingView = new TimingAnalyticsView(notifyingView);
@@ -48,14 +48,17 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     Security security;
     ResultsCache.Result result;
     boolean updated;
+    long updateId;
     if (securityId != null) {
       result = cache.getEntity(securityId.getObjectId());
       security = (Security) result.getValue();
       updated = result.isUpdated();
+      updateId = result.getUpdateId();
     } else {
       security = null;
       updated = false;
+      updateId = ResultsCell.STATIC_UPDATE_ID;
     }
-    return ResultsCell.forStaticValue(_columnMappings.valueFor(_column, security), columnType, format, updated);
+    return ResultsCell.forStaticValue(_columnMappings.valueFor(_column, security), columnType, format, updated, updateId);
   }
 }
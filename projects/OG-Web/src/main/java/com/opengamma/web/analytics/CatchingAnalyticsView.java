@@ -142,6 +142,28 @@ import com.opengamma.web.analytics.push.UpdateListener;
     }
   }
 
+  @Override
+  public ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId) {
+    try {
+      return _delegate.getData(gridType, viewportId, viewportVersion, acknowledgedUpdateId);
+    } catch (Exception e) {
+      String id = _errorManager.add(e);
+      _listener.itemUpdated(id);
+      throw e;
+    }
+  }
+
+  @Override
+  public GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending) {
+    try {
+      return _delegate.getAggregation(gridType, aggregatorName, columnIndex, rowCount, ascending);
+    } catch (Exception e) {
+      String id = _errorManager.add(e);
+      _listener.itemUpdated(id);
+      throw e;
+    }
+  }
+
   @Override
   public GridStructure getGridStructure(GridType gridType, int graphId, int viewportId) {
     try {
@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.opengamma.core.position.Position;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.financial.aggregation.AggregationFunction;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Aggregates the calculated values in the portfolio grid over groups of positions without compiling an aggregated
+ * view. The positions are classified with an {@link AggregationFunction} once, when the aggregator is created.
+ * <p>
+ * Values are held in columns, one primitive array for each grid column that has been requested with a slot for
+ * each position. When new results arrive only the values with a newer update ID than the column's last update are
+ * applied and the group totals are adjusted by the difference. The order of the positions by value is only
+ * recalculated when a column is requested after its values have changed.
+ * <p>
+ * An aggregator is only valid for the grid structure it was created for. This class isn't thread safe.
+ */
+/* package */ class ColumnarAggregator {
+
+  /** Name of the group for positions that can't be classified. */
+  /* package */ static final String UNKNOWN_GROUP = "N/A";
+
+  /** Name of the aggregation function used to group the positions. */
+  private final String _aggregatorName;
+  /** The grid structure containing the positions. */
+  private final PortfolioGridStructure _gridStructure;
+  /** Grid row index of each position. */
+  private final int[] _rows;
+  /** Group index of each position. */
+  private final int[] _groups;
+  /** Group names, in order. */
+  private final String[] _groupNames;
+  /** The columns that have been requested, keyed by column index. */
+  private final Map<Integer, Column> _columns = Maps.newHashMap();
+
+  /**
+   * @param aggregatorName Name of the aggregation function
+   * @param aggregationFunction For grouping the positions
+   * @param gridStructure The grid structure containing the positions
+   * @param cache The cache containing the positions
+   */
+  /* package */ ColumnarAggregator(String aggregatorName,
+                                   AggregationFunction<?> aggregationFunction,
+                                   PortfolioGridStructure gridStructure,
+                                   ResultsCache cache) {
+    ArgumentChecker.notNull(aggregatorName, "aggregatorName");
+    ArgumentChecker.notNull(aggregationFunction, "aggregationFunction");
+    ArgumentChecker.notNull(gridStructure, "gridStructure");
+    ArgumentChecker.notNull(cache, "cache");
+    _aggregatorName = aggregatorName;
+    _gridStructure = gridStructure;
+    TargetLookup targetLookup = gridStructure.getTargetLookup();
+    List<Integer> rows = Lists.newArrayList();
+    List<String> rowGroups = Lists.newArrayList();
+    for (int rowIndex = 0; rowIndex < targetLookup.getRowCount(); rowIndex++) {
+      MainGridStructure.Row row = targetLookup.getRow(rowIndex);
+      // trade rows aren't included, their values are already part of their position's value
+      if (row instanceof PortfolioGridRow && row.getTarget().getType().isTargetType(ComputationTargetType.POSITION)) {
+        Object position = cache.getEntity(((PortfolioGridRow) row).getPositionId().getObjectId()).getValue();
+        String group = null;
+        if (position instanceof Position) {
+          Object classification = aggregationFunction.classifyPosition((Position) position);
+          if (classification != null) {
+            group = classification.toString();
+          }
+        }
+        rows.add(rowIndex);
+        rowGroups.add(group != null ? group : UNKNOWN_GROUP);
+      }
+    }
+    SortedSet<String> groupNames = Sets.newTreeSet(rowGroups);
+    _groupNames = groupNames.toArray(new String[groupNames.size()]);
+    _rows = new int[rows.size()];
+    _groups = new int[rows.size()];
+    for (int i = 0; i < _rows.length; i++) {
+      _rows[i] = rows.get(i);
+      _groups[i] = Arrays.binarySearch(_groupNames, rowGroups.get(i));
+    }
+  }
+
+  /**
+   * @return The grid structure containing the positions
+   */
+  /* package */ PortfolioGridStructure getGridStructure() {
+    return _gridStructure;
+  }
+
+  /**
+   * Applies the latest results to the columns that have been requested. This is invoked when each calculation
+   * cycle completes so the cost of building the aggregation is spread over the cycles.
+   *
+   * @param cache The cache containing the latest results
+   */
+  /* package */ void update(ResultsCache cache) {
+    for (Column column : _columns.values()) {
+      column.update(cache);
+    }
+  }
+
+  /**
+   * Returns the values of a column aggregated by group and the positions with the highest or lowest values.
+   *
+   * @param columnIndex Index of the column
+   * @param rowCount Maximum number of positions to return
+   * @param ascending true to return the positions with the lowest values, false for the highest
+   * @param cache The cache containing the latest results
+   * @return The aggregated values
+   * @throws IllegalArgumentException If the column doesn't exist or doesn't contain calculated values
+   */
+  /* package */ GridAggregation aggregate(int columnIndex, int rowCount, boolean ascending, ResultsCache cache) {
+    ArgumentChecker.notNegative(rowCount, "rowCount");
+    Column column = _columns.get(columnIndex);
+    if (column == null) {
+      if (columnIndex < 0 || columnIndex >= _gridStructure.getColumnCount()) {
+        throw new IllegalArgumentException("Column is outside grid bounds: col=" + columnIndex + ", colCount=" + _gridStructure.getColumnCount());
+      }
+      GridColumn gridColumn = _gridStructure.getColumnStructure().getColumn(columnIndex);
+      if (gridColumn.getSpecification() == null) {
+        throw new IllegalArgumentException("Column " + columnIndex + " doesn't contain calculated values");
+      }
+      column = new Column(gridColumn);
+      _columns.put(columnIndex, column);
+    }
+    column.update(cache);
+    List<GridAggregation.Group> groups = Lists.newArrayListWithCapacity(_groupNames.length);
+    for (int i = 0; i < _groupNames.length; i++) {
+      groups.add(new GridAggregation.Group(_groupNames[i], column._totals[i], column._counts[i]));
+    }
+    int[] order = column.getOrder();
+    int count = Math.min(rowCount, order.length);
+    List<GridAggregation.Row> rows = Lists.newArrayListWithCapacity(count);
+    TargetLookup targetLookup = _gridStructure.getTargetLookup();
+    for (int i = 0; i < count; i++) {
+      int position = ascending ? order[order.length - 1 - i] : order[i];
+      int rowIndex = _rows[position];
+      rows.add(new GridAggregation.Row(rowIndex,
+                                       targetLookup.getRow(rowIndex).getName(),
+                                       _groupNames[_groups[position]],
+                                       column._values[position]));
+    }
+    return new GridAggregation(_aggregatorName, columnIndex, column._gridColumn.getHeader(), groups, rows, column._updateId);
+  }
+
+  /**
+   * @param value A calculated value
+   * @return The value as a double or NaN if it isn't numeric
+   */
+  private static double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof CurrencyAmount) {
+      return ((CurrencyAmount) value).getAmount();
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * The values of one grid column for every position and their totals for every group.
+   */
+  private final class Column {
+
+    private final GridColumn _gridColumn;
+    /** Calculation configuration and specification of the value for each position, null if there isn't one. */
+    private final List<Pair<String, ValueSpecification>> _targets;
+    /** The value of each position, NaN if it doesn't have a numeric value. */
+    private final double[] _values;
+    /** The total of the values in each group. */
+    private final double[] _totals;
+    /** The number of values in each group. */
+    private final int[] _counts;
+    /** Position indices ordered by descending value, null if the values have changed since it was calculated. */
+    private int[] _order;
+    /** ID of the last update applied to the values. */
+    private long _updateId = ResultsCell.STATIC_UPDATE_ID;
+
+    private Column(GridColumn gridColumn) {
+      _gridColumn = gridColumn;
+      _targets = Lists.newArrayListWithCapacity(_rows.length);
+      for (int rowIndex : _rows) {
+        _targets.add(_gridStructure.getTargetLookup().getTargetForCell(rowIndex, gridColumn.getSpecification()));
+      }
+      _values = new double[_rows.length];
+      Arrays.fill(_values, Double.NaN);
+      _totals = new double[_groupNames.length];
+      _counts = new int[_groupNames.length];
+    }
+
+    private void update(ResultsCache cache) {
+      long lastUpdateId = cache.getLastUpdateId();
+      if (lastUpdateId == _updateId) {
+        return;
+      }
+      for (int i = 0; i < _values.length; i++) {
+        Pair<String, ValueSpecification> target = _targets.get(i);
+        if (target != null) {
+          ResultsCache.Result result = cache.peekResult(target.getFirst(), target.getSecond());
+          if (result.getUpdateId() > _updateId) {
+            setValue(i, toDouble(result.getValue()));
+          }
+        }
+      }
+      _updateId = lastUpdateId;
+    }
+
+    private void setValue(int position, double value) {
+      double previous = _values[position];
+      if (Double.compare(previous, value) == 0) {
+        return;
+      }
+      int group = _groups[position];
+      if (!Double.isNaN(previous)) {
+        _counts[group]--;
+        // start again from zero when the group is empty so rounding errors don't accumulate
+        _totals[group] = (_counts[group] == 0) ? 0 : _totals[group] - previous;
+      }
+      if (!Double.isNaN(value)) {
+        _counts[group]++;
+        _totals[group] += value;
+      }
+      _values[position] = value;
+      _order = null;
+    }
+
+    private int[] getOrder() {
+      if (_order == null) {
+        List<Integer> positions = Lists.newArrayListWithCapacity(_values.length);
+        for (int i = 0; i < _values.length; i++) {
+          if (!Double.isNaN(_values[i])) {
+            positions.add(i);
+          }
+        }
+        Collections.sort(positions, new Comparator<Integer>() {
+          @Override
+          public int compare(Integer position1, Integer position2) {
+            return Double.compare(_values[position2], _values[position1]);
+          }
+        });
+        int[] order = new int[positions.size()];
+        for (int i = 0; i < order.length; i++) {
+          order[i] = positions.get(i);
+        }
+        _order = order;
+      }
+      return _order;
+    }
+  }
+}
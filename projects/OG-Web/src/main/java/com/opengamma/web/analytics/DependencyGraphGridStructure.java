@@ -122,7 +122,8 @@ public class DependencyGraphGridStructure implements GridStructure {
     ViewportResults newResults = new ViewportResults(results,
                                                      viewportDefinition,
                                                      _columnGroups,
-                                                     cache.getLastCalculationDuration(), cache.getValuationTime());
+                                                     cache.getLastCalculationDuration(), cache.getValuationTime(),
+                                                     cache.getLastUpdateId());
     Viewport.State state;
     if (previousResults != null && results.equals(previousResults.getResults())) {
       state = Viewport.State.STALE_DATA;
@@ -274,7 +275,8 @@ public class DependencyGraphGridStructure implements GridStructure {
           Collection<Object> history = cacheResult.getHistory();
           Object value = cacheResult.getValue();
           AggregatedExecutionLog executionLog = cacheResult.getAggregatedExecutionLog();
-          return ResultsCell.forCalculatedValue(value, valueSpec, history, executionLog, cacheResult.isUpdated(), columnType, format);
+          return ResultsCell.forCalculatedValue(value, valueSpec, history, executionLog, cacheResult.isUpdated(), cacheResult.getUpdateId(), columnType,
+              format);
         case FUNCTION_NAME_COL:
           String fnName = _fnNames.get(rowIndex);
           return ResultsCell.forStaticValue(fnName, columnType, format);
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The values of a column in the portfolio grid aggregated over groups of positions. Contains the total and the
+ * number of values in each group and the positions with the highest (or lowest) values.
+ */
+public class GridAggregation {
+
+  /** Name of the aggregation function used to group the positions. */
+  private final String _aggregatorName;
+  /** Index of the aggregated column. */
+  private final int _columnIndex;
+  /** Header of the aggregated column. */
+  private final String _columnHeader;
+  /** The groups, ordered by name. */
+  private final List<Group> _groups;
+  /** The positions ordered by value. */
+  private final List<Row> _rows;
+  /** ID of the last update included in the values. */
+  private final long _updateId;
+
+  /* package */ GridAggregation(String aggregatorName,
+                                int columnIndex,
+                                String columnHeader,
+                                List<Group> groups,
+                                List<Row> rows,
+                                long updateId) {
+    ArgumentChecker.notNull(aggregatorName, "aggregatorName");
+    ArgumentChecker.notNull(columnHeader, "columnHeader");
+    ArgumentChecker.notNull(groups, "groups");
+    ArgumentChecker.notNull(rows, "rows");
+    _aggregatorName = aggregatorName;
+    _columnIndex = columnIndex;
+    _columnHeader = columnHeader;
+    _groups = ImmutableList.copyOf(groups);
+    _rows = ImmutableList.copyOf(rows);
+    _updateId = updateId;
+  }
+
+  /**
+   * @return Name of the aggregation function used to group the positions
+   */
+  public String getAggregatorName() {
+    return _aggregatorName;
+  }
+
+  /**
+   * @return Index of the aggregated column
+   */
+  public int getColumnIndex() {
+    return _columnIndex;
+  }
+
+  /**
+   * @return Header of the aggregated column
+   */
+  public String getColumnHeader() {
+    return _columnHeader;
+  }
+
+  /**
+   * @return The groups, ordered by name
+   */
+  public List<Group> getGroups() {
+    return _groups;
+  }
+
+  /**
+   * @return The positions with the highest or lowest values, in order
+   */
+  public List<Row> getRows() {
+    return _rows;
+  }
+
+  /**
+   * @return ID of the last update from the calculation engine included in the values
+   */
+  public long getUpdateId() {
+    return _updateId;
+  }
+
+  @Override
+  public String toString() {
+    return "GridAggregation [" +
+        "_aggregatorName='" + _aggregatorName + "'" +
+        ", _columnIndex=" + _columnIndex +
+        ", _groups=" + _groups +
+        ", _rows=" + _rows +
+        ", _updateId=" + _updateId +
+        "]";
+  }
+
+  /**
+   * The total of the values for a group of positions.
+   */
+  public static final class Group {
+
+    private final String _name;
+    private final double _total;
+    private final int _count;
+
+    /* package */ Group(String name, double total, int count) {
+      ArgumentChecker.notNull(name, "name");
+      _name = name;
+      _total = total;
+      _count = count;
+    }
+
+    /**
+     * @return The group name
+     */
+    public String getName() {
+      return _name;
+    }
+
+    /**
+     * @return The total of the values in the group
+     */
+    public double getTotal() {
+      return _total;
+    }
+
+    /**
+     * @return The number of positions in the group with a value
+     */
+    public int getCount() {
+      return _count;
+    }
+
+    @Override
+    public String toString() {
+      return "Group [_name='" + _name + "', _total=" + _total + ", _count=" + _count + "]";
+    }
+  }
+
+  /**
+   * The value of a position.
+   */
+  public static final class Row {
+
+    private final int _rowIndex;
+    private final String _name;
+    private final String _group;
+    private final double _value;
+
+    /* package */ Row(int rowIndex, String name, String group, double value) {
+      ArgumentChecker.notNull(name, "name");
+      ArgumentChecker.notNull(group, "group");
+      _rowIndex = rowIndex;
+      _name = name;
+      _group = group;
+      _value = value;
+    }
+
+    /**
+     * @return Index of the position's row in the grid
+     */
+    public int getRowIndex() {
+      return _rowIndex;
+    }
+
+    /**
+     * @return The row label
+     */
+    public String getName() {
+      return _name;
+    }
+
+    /**
+     * @return Name of the position's group
+     */
+    public String getGroup() {
+      return _group;
+    }
+
+    /**
+     * @return The value
+     */
+    public double getValue() {
+      return _value;
+    }
+
+    @Override
+    public String toString() {
+      return "Row [_rowIndex=" + _rowIndex + ", _name='" + _name + "', _group='" + _group + "', _value=" + _value + "]";
+    }
+  }
+}
@@ -126,6 +126,28 @@ import com.opengamma.web.analytics.formatting.TypeFormatter.Format;
     }
   }
 
+  @Override
+  public ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId) {
+    try {
+      // the acknowledgement is recorded atomically by the results cache so the read lock is sufficient
+      _lock.readLock().lock();
+      return _delegate.getData(gridType, viewportId, viewportVersion, acknowledgedUpdateId);
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending) {
+    try {
+      // the aggregators are created on demand
+      _lock.writeLock().lock();
+      return _delegate.getAggregation(gridType, aggregatorName, columnIndex, rowCount, ascending);
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
   @Override
   public void openDependencyGraph(int requestId, GridType gridType, int graphId, String callbackId, int row, int col) {
     try {
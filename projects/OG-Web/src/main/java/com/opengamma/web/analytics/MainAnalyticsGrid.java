@@ -5,16 +5,23 @@
  */
 package com.opengamma.web.analytics;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.opengamma.DataNotFoundException;
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.core.change.DummyChangeManager;
 import com.opengamma.core.security.SecuritySource;
@@ -31,6 +38,7 @@ import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.cycle.ViewCycle;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.tuple.Pair;
 import com.opengamma.web.analytics.formatting.TypeFormatter;
 
@@ -41,6 +49,12 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
 
   private static final Logger s_logger = LoggerFactory.getLogger(MainAnalyticsGrid.class);
 
+  /** Whether the viewports of a grid are populated in parallel when new results arrive, set with the {@code MainAnalyticsGrid.parallelViewports} property. */
+  private static final boolean PARALLEL_VIEWPORTS = System.getProperty("MainAnalyticsGrid.parallelViewports", "TRUE").equalsIgnoreCase("TRUE");
+  /** Populates viewports with new results, shared by all grids. */
+  private static final ExecutorService s_viewportExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+      new NamedThreadPoolFactory("ViewportUpdate", true));
+
   /** Type of data in the grid, portfolio or primitives. */
   private final AnalyticsView.GridType _gridType;
   /** Dependency graph grids for cells in this grid, keyed by grid ID. */
@@ -85,8 +99,15 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
   /* package */List<String> updateResults(ResultsCache cache, ViewCycle cycle) {
     _cycle = cycle;
     List<String> updatedIds = Lists.newArrayList();
-    for (MainGridViewport viewport : getViewports().values()) {
-      viewport.updateResults(cache);
+    Collection<T> viewports = getViewports().values();
+    if (PARALLEL_VIEWPORTS && viewports.size() > 1) {
+      updateViewportsInParallel(viewports, cache);
+    } else {
+      for (MainGridViewport viewport : viewports) {
+        viewport.updateResults(cache);
+      }
+    }
+    for (MainGridViewport viewport : viewports) {
       if (viewport.getState() == Viewport.State.FRESH_DATA) {
         updatedIds.add(viewport.getCallbackId());
       }
@@ -97,6 +118,36 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     return updatedIds;
   }
 
+  /**
+   * Updates the data in a set of viewports concurrently. The viewports are independent of each other and only read
+   * from the cache so there's no need for any locking. Returns when all the viewports have been updated.
+   *
+   * @param viewports The viewports
+   * @param cache Cache of calculation results
+   */
+  private static void updateViewportsInParallel(Collection<? extends MainGridViewport> viewports, final ResultsCache cache) {
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(viewports.size());
+    for (final MainGridViewport viewport : viewports) {
+      futures.add(s_viewportExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          viewport.updateResults(cache);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OpenGammaRuntimeException("Interrupted updating viewports", e);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause());
+        throw new OpenGammaRuntimeException("Failed to update viewport", e.getCause());
+      }
+    }
+  }
+
   // -------- dependency graph grids --------
 
   /**
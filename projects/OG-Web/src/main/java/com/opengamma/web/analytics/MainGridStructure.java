@@ -185,7 +185,8 @@ import com.opengamma.util.tuple.Pairs;
     ViewportResults viewportResults = new ViewportResults(results,
                                                           viewportDefinition,
                                                           _columnGroups,
-                                                          cache.getLastCalculationDuration(), cache.getValuationTime());
+                                                          cache.getLastCalculationDuration(), cache.getValuationTime(),
+                                                          cache.getLastUpdateId());
     return Pairs.of(viewportResults, state);
   }
 
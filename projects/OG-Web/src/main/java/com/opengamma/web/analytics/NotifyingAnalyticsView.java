@@ -103,6 +103,16 @@ import com.opengamma.web.analytics.push.UpdateListener;
     return _delegate.getData(gridType, viewportId);
   }
 
+  @Override
+  public ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId) {
+    return _delegate.getData(gridType, viewportId, viewportVersion, acknowledgedUpdateId);
+  }
+
+  @Override
+  public GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending) {
+    return _delegate.getAggregation(gridType, aggregatorName, columnIndex, rowCount, ascending);
+  }
+
   @Override
   public void openDependencyGraph(int requestId, GridType gridType, int graphId, String callbackId, int row, int col) {
     _delegate.openDependencyGraph(requestId, gridType, graphId, callbackId, row, col);
@@ -103,7 +103,7 @@ import com.opengamma.id.ObjectId;
   }
 
   @Override
-  MainGridStructure getGridStructure() {
+  PortfolioGridStructure getGridStructure() {
     return _gridStructure;
   }
 }
@@ -55,7 +55,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
         rowTarget = new PositionTarget(row.getName(), row.getNodeId(), row.getPositionId());
       }
       // TODO check the cache items for the position, security, underlying to find out whether they've been updated
-      return ResultsCell.forStaticValue(rowTarget, columnType, format);
+      return ResultsCell.forStaticValue(rowTarget, columnType, format, false, securityResult.getUpdateId());
     } else if (targetType.isTargetType(ComputationTargetType.PORTFOLIO_NODE)) {
       return ResultsCell.forStaticValue(new NodeTarget(row.getName(), row.getNodeId()), columnType, format);
     } else if (targetType.isTargetType(ComputationTargetType.TRADE)) {
@@ -6,18 +6,29 @@
 package com.opengamma.web.analytics;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.collections.buffer.CircularFifoBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.threeten.bp.Duration;
 import org.threeten.bp.Instant;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.opengamma.engine.value.ComputedValueResult;
 import com.opengamma.engine.value.ValueSpecification;
@@ -35,13 +46,33 @@ import com.opengamma.util.money.CurrencyAmount;
  * set of results is a full set and subsequent results are deltas. This cache maintains a full set of results
  * which includes every target that has ever had a value calculated. It also keeps track of which values were
  * updated in the previous calculation cycle.</p>
- * <p>This class isn't thread safe.</p>
+ * <p>Every item records the ID of the update that last changed it which acts as a version number for the cell(s)
+ * displaying it. The cache also records the latest update each viewport's client has acknowledged receiving so
+ * the client can be sent only the cells that have changed since then.</p>
+ * <p>Updates must be made by one thread at a time but reads don't need any locking and can happen concurrently
+ * with each other and with an update, so the viewports of a view can be populated in parallel. A read that
+ * overlaps an update sees each item either before or after the update.</p>
+ * <p>The memory used by the cache is estimated and kept within a budget, see {@link #MEMORY_BUDGET}. When the
+ * budget is exceeded the history of the results that were least recently read is evicted, starting with those
+ * that weren't updated by the latest calculation cycle. The latest value of a result is never evicted, the view
+ * client only receives the values that change so an evicted value wouldn't be seen again until it changed. An
+ * evicted history starts again from the next value after the result is read.</p>
  */
 /* package */ class ResultsCache {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(ResultsCache.class);
+
   /** Maximum number of history values stored for each item. */
   private static final int MAX_HISTORY_SIZE = 20;
 
+  /** Default memory budget for each cache in bytes, set with the {@code ResultsCache.memoryBudget} property. */
+  /* package */ static final long MEMORY_BUDGET = Long.parseLong(System.getProperty("ResultsCache.memoryBudget", Long.toString(64L * 1024L * 1024L)));
+
+  /** Estimated size of an item with no history: the key, item, snapshot, map entry and a share of the value. */
+  private static final long ITEM_SIZE = 256;
+  /** Estimated size of a reference to a history value which isn't a double, including a share of the value. */
+  private static final long HISTORY_OBJECT_SIZE = 64;
+
   // is this likely to change? will it ever by dynamic? i.e. client specifies what types it wants history for?
   /** Types of result values for which history is stored. */
   private static final Set<Class<?>> s_historyTypes =
@@ -51,19 +82,89 @@ import com.opengamma.util.money.CurrencyAmount;
   /** Empty result for types that have history, makes for cleaner code than using null. */
   private static final Result s_emptyResultWithHistory = Result.emptyWithHistory();
 
+  /** Reads of results that were in the cache, across all caches. */
+  private static final Meter s_hits = new Meter();
+  /** Reads of results that weren't in the cache, across all caches. */
+  private static final Meter s_misses = new Meter();
+  /** Histories evicted to stay within the memory budget, across all caches. */
+  private static final Meter s_evictions = new Meter();
+  /** All live caches, for reporting their total memory. */
+  private static final Set<ResultsCache> s_caches = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<ResultsCache, Boolean>()));
+
   /** The cached results. */
-  private final Map<ResultKey, CacheItem> _results = Maps.newHashMap();
+  private final ConcurrentMap<ResultKey, CacheItem> _results = new ConcurrentHashMap<>();
 
   /** Cache of portfolio entities, i.e. trades, positions, securities */
-  private final Map<ObjectId, CacheItem> _entities = Maps.newHashMap();
+  private final ConcurrentMap<ObjectId, CacheItem> _entities = new ConcurrentHashMap<>();
+
+  /** The last update acknowledged by the client for each viewport, keyed by the viewport's callback ID. */
+  private final ConcurrentMap<String, Acknowledgement> _acknowledgements = new ConcurrentHashMap<>();
+
+  /** The memory budget in bytes. */
+  private final long _memoryBudget;
+  /** Estimated memory used by the results. */
+  private final AtomicLong _memory = new AtomicLong();
+  /** Reads of results that were in the cache. */
+  private final Counter _hits = new Counter();
+  /** Reads of results that weren't in the cache. */
+  private final Counter _misses = new Counter();
+  /** Histories evicted to stay within the memory budget. */
+  private final Counter _evictions = new Counter();
 
   /** ID that's incremented each time results are received, used for keeping track of which items were updated. */
-  private long _lastUpdateId;
+  private volatile long _lastUpdateId;
 
   /** Duration of the last calculation cycle. */
-  private Duration _lastCalculationDuration = Duration.ZERO;
+  private volatile Duration _lastCalculationDuration = Duration.ZERO;
   /** Last valuation time */
-  private Instant _valuationTime = Instant.MIN;
+  private volatile Instant _valuationTime = Instant.MIN;
+
+  /**
+   * Creates a cache with the default memory budget.
+   */
+  /* package */ ResultsCache() {
+    this(MEMORY_BUDGET);
+  }
+
+  /**
+   * @param memoryBudget The estimated memory the results may use, in bytes
+   */
+  /* package */ ResultsCache(long memoryBudget) {
+    ArgumentChecker.isTrue(memoryBudget > 0, "memoryBudget");
+    _memoryBudget = memoryBudget;
+    s_caches.add(this);
+  }
+
+  /**
+   * Registers the metrics shared by all caches. The memory metric is the total estimated memory of the caches
+   * that are still reachable.
+   * @param summaryRegistry The registry for summary metrics
+   * @param detailRegistry The registry for detailed metrics
+   * @param namePrefix The prefix for the metric names
+   */
+  public static void registerMetricsStatic(MetricRegistry summaryRegistry, MetricRegistry detailRegistry, String namePrefix) {
+    register(summaryRegistry, namePrefix + ".hits", s_hits);
+    register(summaryRegistry, namePrefix + ".misses", s_misses);
+    register(summaryRegistry, namePrefix + ".evictions", s_evictions);
+    register(summaryRegistry, namePrefix + ".memory", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        long memory = 0;
+        synchronized (s_caches) {
+          for (ResultsCache cache : s_caches) {
+            memory += cache.getEstimatedMemory();
+          }
+        }
+        return memory;
+      }
+    });
+  }
+
+  private static void register(MetricRegistry registry, String name, Metric metric) {
+    // replace any metric left by an earlier registration, e.g. if the component is restarted
+    registry.remove(name);
+    registry.register(name, metric);
+  }
 
   /**
    * Puts a set of main grid results into the cache.
@@ -71,21 +172,24 @@ import com.opengamma.util.money.CurrencyAmount;
    */
   /* package */ void put(ViewResultModel results) {
     ArgumentChecker.notNull(results, "results");
-    _lastUpdateId++;
-    _lastCalculationDuration = results.getCalculationDuration();
-    _valuationTime = results.getViewCycleExecutionOptions().getValuationTime();
+    long updateId = _lastUpdateId + 1;
     List<ViewResultEntry> allResults = results.getAllResults();
     Set<ResultKey> updatedKeys = Sets.newHashSet();
     for (ViewResultEntry result : allResults) {
-      put(result.getCalculationConfiguration(), result.getComputedValue());
-      updatedKeys.add(new ResultKey(result.getCalculationConfiguration(), result.getComputedValue().getSpecification()));
+      ResultKey key = new ResultKey(result.getCalculationConfiguration(), result.getComputedValue().getSpecification());
+      put(key, result.getComputedValue(), updateId);
+      updatedKeys.add(key);
     }
     // duplicate the last history item for anything that hasn't changed this cycle
     for (Map.Entry<ResultKey, CacheItem> entry : _results.entrySet()) {
-      if (entry.getValue().getHistory() != null && !updatedKeys.contains(entry.getKey())) {
-        entry.getValue().valueUnchanged();
+      if (!updatedKeys.contains(entry.getKey())) {
+        addMemory(entry.getValue().valueUnchanged());
       }
     }
+    _lastCalculationDuration = results.getCalculationDuration();
+    _valuationTime = results.getViewCycleExecutionOptions().getValuationTime();
+    _lastUpdateId = updateId;
+    evict();
   }
 
   /**
@@ -95,69 +199,74 @@ import com.opengamma.util.money.CurrencyAmount;
    * @param duration Duration of the calculation cycle that produced the results
    */
   /* package */ void put(String calcConfigName, Map<ValueSpecification, ComputedValueResult> results, Duration duration) {
-    _lastUpdateId++;
-    _lastCalculationDuration = duration;
+    long updateId = _lastUpdateId + 1;
     for (ComputedValueResult result : results.values()) {
-      put(calcConfigName, result);
+      put(new ResultKey(calcConfigName, result.getSpecification()), result, updateId);
     }
+    _lastCalculationDuration = duration;
+    _lastUpdateId = updateId;
+    evict();
   }
 
   /**
    * Puts a single value into the cache.
-   * @param calcConfigName The name of the calculation configuration used to calculate the results
+   * @param key The key of the result
    * @param result The result value and associated data
+   * @param updateId The ID of the update
    */
-  private void put(String calcConfigName, ComputedValueResult result) {
-    ValueSpecification spec = result.getSpecification();
-    Object value = result.getValue();
-    ResultKey key = new ResultKey(calcConfigName, spec);
+  private void put(ResultKey key, ComputedValueResult result, long updateId) {
     CacheItem cacheResult = _results.get(key);
     if (cacheResult == null) {
-      _results.put(key, new CacheItem(value, result.getAggregatedExecutionLog(), _lastUpdateId));
+      cacheResult = new CacheItem(result.getValue(), result.getAggregatedExecutionLog(), updateId);
+      _results.put(key, cacheResult);
+      addMemory(cacheResult.estimateSize());
     } else {
-      cacheResult.setLatestValue(value, result.getAggregatedExecutionLog(), _lastUpdateId);
+      addMemory(cacheResult.setLatestValue(result.getValue(), result.getAggregatedExecutionLog(), updateId));
     }
   }
 
   /* package */ void put(List<UniqueIdentifiable> entities) {
     ArgumentChecker.notNull(entities, "entities");
-    _lastUpdateId++;
+    long updateId = _lastUpdateId + 1;
     for (UniqueIdentifiable entity : entities) {
       // TODO why is this failing sometimes?
       //ArgumentChecker.notNull(entity, "entity");
       if (entity != null) {
-        putEntity(entity);
+        putEntity(entity, updateId);
       }
     }
+    _lastUpdateId = updateId;
   }
 
   /* package */ void put(UniqueIdentifiable entity) {
     ArgumentChecker.notNull(entity, "entity");
-    ++_lastUpdateId;
-    putEntity(entity);
+    long updateId = _lastUpdateId + 1;
+    putEntity(entity, updateId);
+    _lastUpdateId = updateId;
   }
 
   /* package */ void remove(ObjectId id) {
-    ++_lastUpdateId;
     _entities.remove(id);
+    _lastUpdateId++;
   }
 
-  private void putEntity(UniqueIdentifiable entity) {
+  private void putEntity(UniqueIdentifiable entity, long updateId) {
     ObjectId id = entity.getUniqueId().getObjectId();
     CacheItem cacheResult = _entities.get(id);
     if (cacheResult == null) {
-      _entities.put(id, new CacheItem(entity, null, _lastUpdateId));
+      _entities.put(id, new CacheItem(entity, null, updateId));
     } else {
-      cacheResult.setLatestValue(entity, null, _lastUpdateId);
+      cacheResult.setLatestValue(entity, null, updateId);
     }
   }
 
   /* package */ Result getEntity(ObjectId id) {
     CacheItem item = _entities.get(id);
     if (item != null) {
+      Snapshot snapshot = item.getSnapshot();
       // flag whether this result was updated by the last set of results that were put into the cache
-      boolean updatedByLastResults = (item.getLastUpdateId() == _lastUpdateId);
-      return Result.forValue(item.getValue(), null, null, updatedByLastResults);
+      boolean updatedByLastResults = (snapshot._updateId == _lastUpdateId);
+      return Result.forValue(snapshot._value, null, null, updatedByLastResults, snapshot._updateId);
     } else {
       return s_emptyResult;
     }
@@ -174,11 +283,20 @@ import com.opengamma.util.money.CurrencyAmount;
    */
   /* package */ Result getResult(String calcConfigName, ValueSpecification valueSpec, Class<?> columnType) {
     CacheItem item = _results.get(new ResultKey(calcConfigName, valueSpec));
+    long lastUpdateId = _lastUpdateId;
     if (item != null) {
+      _hits.inc();
+      s_hits.mark();
+      // the history is read first, reading the item restarts an evicted history
+      Collection<Object> history = item.getHistory();
+      item.accessed(lastUpdateId);
+      Snapshot snapshot = item.getSnapshot();
       // flag whether this result was updated by the last set of results that were put into the cache
-      boolean updatedByLastResults = (item.getLastUpdateId() == _lastUpdateId);
-      return Result.forValue(item.getValue(), item.getHistory(), item.getAggregatedExecutionLog(), updatedByLastResults);
+      boolean updatedByLastResults = (snapshot._updateId == lastUpdateId);
+      return Result.forValue(snapshot._value, history, snapshot._aggregatedExecutionLog, updatedByLastResults, snapshot._updateId);
     } else {
+      _misses.inc();
+      s_misses.mark();
       if (s_historyTypes.contains(columnType)) {
         return s_emptyResultWithHistory;
       } else {
@@ -187,13 +305,93 @@ import com.opengamma.util.money.CurrencyAmount;
     }
   }
 
+  /**
+   * Returns a cached value for a value specification and calculation configuration without recording the read.
+   * This is for internal consumers such as aggregation that read every result each cycle. The read isn't
+   * counted as a hit or miss, doesn't affect which histories are evicted and the result doesn't include any history.
+   * The latest values are never evicted so every calculated result is available.
+   * @param calcConfigName The calculation configuration name
+   * @param valueSpec The value specification
+   * @return A cache result, not null
+   */
+  /* package */ Result peekResult(String calcConfigName, ValueSpecification valueSpec) {
+    CacheItem item = _results.get(new ResultKey(calcConfigName, valueSpec));
+    if (item != null) {
+      Snapshot snapshot = item.getSnapshot();
+      boolean updatedByLastResults = (snapshot._updateId == _lastUpdateId);
+      return Result.forValue(snapshot._value, null, snapshot._aggregatedExecutionLog, updatedByLastResults, snapshot._updateId);
+    } else {
+      return s_emptyResult;
+    }
+  }
+
+  /**
+   * @return ID of the most recent update to the cache, items updated by it have this as their update ID
+   */
+  /* package */ long getLastUpdateId() {
+    return _lastUpdateId;
+  }
+
+  /**
+   * Records that the client has received and applied a viewport's data as of an update. Acknowledgements never
+   * move backwards so a stale or duplicated message from the client can't cause cells to be missed.
+   * <p>
+   * This is safe to call concurrently with itself and with updates to the results, the acknowledgement is
+   * replaced atomically so concurrent requests for the same viewport can't overwrite a later acknowledgement.
+   * @param callbackId The viewport's callback ID, not null
+   * @param viewportVersion The version of the viewport definition the client's data was created for
+   * @param updateId The ID of the update the client acknowledges
+   */
+  /* package */ void acknowledge(String callbackId, long viewportVersion, long updateId) {
+    ArgumentChecker.notNull(callbackId, "callbackId");
+    Acknowledgement acknowledgement = new Acknowledgement(viewportVersion, Math.min(updateId, _lastUpdateId));
+    while (true) {
+      Acknowledgement previous = _acknowledgements.get(callbackId);
+      if (previous == null) {
+        if (_acknowledgements.putIfAbsent(callbackId, acknowledgement) == null) {
+          return;
+        }
+      } else if (previous._viewportVersion == viewportVersion && previous._updateId >= acknowledgement._updateId) {
+        return;
+      } else if (_acknowledgements.replace(callbackId, previous, acknowledgement)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @param callbackId The viewport's callback ID, not null
+   * @param viewportVersion The current version of the viewport definition
+   * @return The last update ID acknowledged by the viewport's client, {@link ViewportResults#NOT_ACKNOWLEDGED}
+   * if the client needs all the viewport's data. This is always the case if the client's data was created for a
+   * different version of the viewport definition
+   */
+  /* package */ long getAcknowledgedUpdateId(String callbackId, long viewportVersion) {
+    ArgumentChecker.notNull(callbackId, "callbackId");
+    Acknowledgement acknowledgement = _acknowledgements.get(callbackId);
+    if (acknowledgement != null && acknowledgement._viewportVersion == viewportVersion) {
+      return acknowledgement._updateId;
+    } else {
+      return ViewportResults.NOT_ACKNOWLEDGED;
+    }
+  }
+
+  /**
+   * Discards the acknowledgement for a viewport when it's deleted.
+   * @param callbackId The viewport's callback ID, not null
+   */
+  /* package */ void clearAcknowledgement(String callbackId) {
+    ArgumentChecker.notNull(callbackId, "callbackId");
+    _acknowledgements.remove(callbackId);
+  }
+
   /**
    * @return Duration of the last calculation cycle
    */
   /* package */ Duration getLastCalculationDuration() {
     return _lastCalculationDuration;
   }
-  
+
   /**
    * Gets the lastCalculationTime.
    * @return the lastCalculationTime
@@ -216,6 +414,101 @@ import com.opengamma.util.money.CurrencyAmount;
     }
   }
 
+  /**
+   * @return The number of reads of results that were in the cache
+   */
+  /* package */ long getHitCount() {
+    return _hits.getCount();
+  }
+
+  /**
+   * @return The number of reads of results that weren't in the cache
+   */
+  /* package */ long getMissCount() {
+    return _misses.getCount();
+  }
+
+  /**
+   * @return The number of histories evicted to stay within the memory budget
+   */
+  /* package */ long getEvictionCount() {
+    return _evictions.getCount();
+  }
+
+  /**
+   * @return The estimated memory used by the results in bytes
+   */
+  /* package */ long getEstimatedMemory() {
+    return _memory.get();
+  }
+
+  private void addMemory(long delta) {
+    if (delta != 0) {
+      _memory.addAndGet(delta);
+    }
+  }
+
+  /**
+   * Evicts the history of the least recently read results if the memory budget has been exceeded. The histories
+   * of results that were updated by the latest update are only evicted if evicting everything else doesn't bring
+   * the memory within the budget. The latest values are kept, if they alone exceed the budget it can't be met.
+   */
+  private void evict() {
+    if (_memory.get() <= _memoryBudget) {
+      return;
+    }
+    // evict down to 90% of the budget so this doesn't happen on every cycle
+    long target = _memoryBudget - _memoryBudget / 10;
+    final long lastUpdateId = _lastUpdateId;
+    // the sort keys are copied because readers can update the access times while the candidates are being sorted
+    List<EvictionCandidate> candidates = new ArrayList<>(_results.size());
+    for (Map.Entry<ResultKey, CacheItem> entry : _results.entrySet()) {
+      if (entry.getValue().hasHistory()) {
+        candidates.add(new EvictionCandidate(entry.getValue(), lastUpdateId));
+      }
+    }
+    Collections.sort(candidates);
+    int evicted = 0;
+    for (EvictionCandidate candidate : candidates) {
+      if (_memory.get() <= target) {
+        break;
+      }
+      addMemory(-candidate._item.evictHistory());
+      evicted++;
+    }
+    _evictions.inc(evicted);
+    s_evictions.mark(evicted);
+    if (_memory.get() > _memoryBudget) {
+      s_logger.warn("Latest results use {} bytes, more than the memory budget of {} bytes", _memory.get(), _memoryBudget);
+    }
+    s_logger.debug("Evicted {} histories to stay within memory budget of {} bytes", evicted, _memoryBudget);
+  }
+
+  /**
+   * A result whose history could be evicted. Results that weren't updated by the latest update sort first, then
+   * results in order of when they were last read.
+   */
+  private static final class EvictionCandidate implements Comparable<EvictionCandidate> {
+
+    private final CacheItem _item;
+    private final boolean _updated;
+    private final long _lastAccess;
+
+    private EvictionCandidate(CacheItem item, long lastUpdateId) {
+      _item = item;
+      _updated = item.getSnapshot()._updateId == lastUpdateId;
+      _lastAccess = item.getLastAccess();
+    }
+
+    @Override
+    public int compareTo(EvictionCandidate other) {
+      if (_updated != other._updated) {
+        return _updated ? 1 : -1;
+      }
+      return Long.compare(_lastAccess, other._lastAccess);
+    }
+  }
+
   /**
    * An item from the cache including its history and a flag indicating whether it was updated by the most recent
    * calculation cycle. Instances of this class are intended for users of the cache.
@@ -225,13 +518,15 @@ import com.opengamma.util.money.CurrencyAmount;
     private final Object _value;
     private final Collection<Object> _history;
     private final boolean _updated;
+    private final long _updateId;
     private final AggregatedExecutionLog _aggregatedExecutionLog;
 
-    private Result(Object value, Collection<Object> history, AggregatedExecutionLog aggregatedExecutionLog, boolean updated) {
+    private Result(Object value, Collection<Object> history, AggregatedExecutionLog aggregatedExecutionLog, boolean updated, long updateId) {
       _value = value;
       _history = history;
       _aggregatedExecutionLog = aggregatedExecutionLog;
       _updated = updated;
+      _updateId = updateId;
     }
 
     /**
@@ -256,26 +551,34 @@ import com.opengamma.util.money.CurrencyAmount;
       return _updated;
     }
 
+    /**
+     * @return ID of the update that last changed the value, -1 if no value has ever been calculated
+     */
+    /* package */ long getUpdateId() {
+      return _updateId;
+    }
+
     private static Result forValue(Object value,
                                    Collection<Object> history,
                                    AggregatedExecutionLog aggregatedExecutionLog,
-                                   boolean updated) {
+                                   boolean updated,
+                                   long updateId) {
       ArgumentChecker.notNull(value, "value");
-      return new Result(value, history, aggregatedExecutionLog, updated);
+      return new Result(value, history, aggregatedExecutionLog, updated, updateId);
     }
 
     /**
      * @return A result with no value and no history, for value requirements that never have history
      */
     private static Result empty() {
-      return new Result(null, null, null, false);
+      return new Result(null, null, null, false, -1);
     }
 
     /**
      * @return A result with no value and empty history, for value requirements that can have history
      */
     private static Result emptyWithHistory() {
-      return new Result(null, Collections.emptyList(), null, false);
+      return new Result(null, Collections.emptyList(), null, false, -1);
     }
 
     /* package */ AggregatedExecutionLog getAggregatedExecutionLog() {
@@ -283,18 +586,38 @@ import com.opengamma.util.money.CurrencyAmount;
     }
   }
 
+  /**
+   * The latest value of an item and the update that set it. This is immutable so readers always see a consistent
+   * value, log and update ID.
+   */
+  private static final class Snapshot {
+
+    private final Object _value;
+    private final AggregatedExecutionLog _aggregatedExecutionLog;
+    private final long _updateId;
+
+    private Snapshot(Object value, AggregatedExecutionLog aggregatedExecutionLog, long updateId) {
+      _value = value;
+      _aggregatedExecutionLog = aggregatedExecutionLog;
+      _updateId = updateId;
+    }
+  }
+
   /**
    * An item stored in the cache, this is an internal implementation detail.
    */
   private static final class CacheItem {
 
-    private Collection<Object> _history;
-    private Object _latestValue;
-    private long _lastUpdateId = -1;
-    private AggregatedExecutionLog _aggregatedExecutionLog;
+    private volatile Snapshot _snapshot;
+    private volatile History _history;
+    /** The last update ID when the item was read, used to decide which histories to evict. */
+    private volatile long _lastAccess;
+    /** Whether the history was evicted and hasn't been restarted because the item hasn't been read since. */
+    private volatile boolean _historyEvicted;
 
     private CacheItem(Object value, AggregatedExecutionLog executionLog, long lastUpdateId) {
       setLatestValue(value, executionLog, lastUpdateId);
+      _lastAccess = lastUpdateId;
     }
 
     /**
@@ -302,55 +625,204 @@ import com.opengamma.util.money.CurrencyAmount;
      * @param latestValue The value
      * @param executionLog The execution log associated generated when calculating the value
      * @param lastUpdateId ID of the set of results that calculated it
+     * @return The change in the estimated size of the item
      */
-    @SuppressWarnings("unchecked")
-    private void setLatestValue(Object latestValue, AggregatedExecutionLog executionLog, long lastUpdateId) {
+    private long setLatestValue(Object latestValue, AggregatedExecutionLog executionLog, long lastUpdateId) {
       ArgumentChecker.notNull(latestValue, "latestValue");
-      _latestValue = latestValue;
-      _lastUpdateId = lastUpdateId;
-      _aggregatedExecutionLog = executionLog;
+      long sizeChange = 0;
       // this can happen if the first value is an error and then real values arrive. this is possible if market
       // data subscriptions take time to set up. in that case the history will initially be null (because error
       // sentinel types aren't in s_historyTypes) and then when a valid value arrives the type can be checked and
       // history created if required
-      if (_history == null && s_historyTypes.contains(latestValue.getClass())) {
-        _history = new CircularFifoBuffer(MAX_HISTORY_SIZE);
+      if (_history == null && !_historyEvicted && s_historyTypes.contains(latestValue.getClass())) {
+        History history = new History(MAX_HISTORY_SIZE, latestValue instanceof Double);
+        sizeChange = history.estimateSize();
+        _history = history;
       }
       if (_history != null) {
-        _history.add(latestValue);
+        sizeChange += _history.add(latestValue);
       }
+      _snapshot = new Snapshot(latestValue, executionLog, lastUpdateId);
+      return sizeChange;
     }
 
-    private Object getValue() {
-      return _latestValue;
+    private Snapshot getSnapshot() {
+      return _snapshot;
     }
 
-    /* package */ Collection<Object> getHistory() {
-      if (_history != null) {
-        return Collections.unmodifiableCollection(_history);
+    private Collection<Object> getHistory() {
+      History history = _history;
+      if (history != null) {
+        return history.values();
+      } else if (_historyEvicted) {
+        return Collections.emptyList();
       } else {
         return null;
       }
     }
 
+    private boolean hasHistory() {
+      return _history != null;
+    }
+
+    private void accessed(long updateId) {
+      // avoid writing to the shared fields on every read
+      if (_lastAccess != updateId) {
+        _lastAccess = updateId;
+      }
+      if (_historyEvicted) {
+        // the history starts again with the next value
+        _historyEvicted = false;
+      }
+    }
+
     /**
-     * @return ID of the set of results that updated this item, used to decide whether the item was updated by
-     * the most recent calculation cycle.
+     * Discards the history, keeping the latest value. The history isn't recreated until the item is next read.
+     * @return The estimated size of the discarded history
      */
-    private long getLastUpdateId() {
-      return _lastUpdateId;
+    private long evictHistory() {
+      History history = _history;
+      if (history == null) {
+        return 0;
+      }
+      _historyEvicted = true;
+      _history = null;
+      return history.estimateSize();
     }
 
-    private AggregatedExecutionLog getAggregatedExecutionLog() {
-      return _aggregatedExecutionLog;
+    private long getLastAccess() {
+      return _lastAccess;
+    }
+
+    private long estimateSize() {
+      History history = _history;
+      return ITEM_SIZE + ((history != null) ? history.estimateSize() : 0);
     }
 
     /**
      * Invoked when a calculation cycle completes and doesn't update the value for an item. The latest value is
      * inserted into the history again to ensure the history is up to date.
+     * @return The change in the estimated size of the item
      */
-    private void valueUnchanged() {
-      _history.add(_latestValue);
+    private long valueUnchanged() {
+      History history = _history;
+      if (history != null) {
+        return history.add(_snapshot._value);
+      } else {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Fixed size ring buffer of the most recent values of an item. Numeric values are stored as primitives, other
+   * values (including errors in the history of a numeric item) as references. There is a single writer, readers
+   * copy the buffer without locking and retry if it was written to while they were copying. The buffer has one
+   * more slot than its capacity so the slot being written is never one that a reader is copying.
+   */
+  private static final class History {
+
+    private final double[] _doubles;
+    private Object[] _objects;
+    /** The number of values ever added, the next value goes in slot {@code _count % capacity}. */
+    private volatile long _count;
+    /** The number of slots holding values that aren't stored as primitives. */
+    private int _objectCount;
+
+    private History(int capacity, boolean numeric) {
+      if (numeric) {
+        _doubles = new double[capacity + 1];
+      } else {
+        _doubles = null;
+        _objects = new Object[capacity + 1];
+      }
+    }
+
+    private int slots() {
+      return (_doubles != null) ? _doubles.length : _objects.length;
+    }
+
+    /**
+     * Adds a value, overwriting the oldest if the buffer is full.
+     * @param value The value
+     * @return The change in the estimated size of the buffer
+     */
+    private long add(Object value) {
+      long sizeChange = 0;
+      long count = _count;
+      int slot = (int) (count % slots());
+      if (_doubles != null && value instanceof Double) {
+        _doubles[slot] = (Double) value;
+        if (_objects != null && _objects[slot] != null) {
+          _objects[slot] = null;
+          _objectCount--;
+          sizeChange -= HISTORY_OBJECT_SIZE;
+        }
+      } else {
+        if (_objects == null) {
+          _objects = new Object[_doubles.length];
+          sizeChange += 8L * _doubles.length;
+        }
+        if (_objects[slot] == null) {
+          _objectCount++;
+          sizeChange += HISTORY_OBJECT_SIZE;
+        }
+        _objects[slot] = value;
+      }
+      // publishes the value to readers
+      _count = count + 1;
+      return sizeChange;
+    }
+
+    /**
+     * @return A copy of the values, oldest first
+     */
+    private Collection<Object> values() {
+      final int slots = slots();
+      while (true) {
+        final long count = _count;
+        final int size = (int) Math.min(count, slots - 1);
+        final Object[] values = new Object[size];
+        final double[] doubles = _doubles;
+        final Object[] objects = _objects;
+        for (int i = 0; i < size; i++) {
+          int slot = (int) ((count - size + i) % slots);
+          Object value = (objects != null) ? objects[slot] : null;
+          if (value == null && doubles != null) {
+            value = doubles[slot];
+          }
+          values[i] = value;
+        }
+        if (_count == count) {
+          return Collections.unmodifiableList(Arrays.asList(values));
+        }
+        // the writer overwrote slots while they were being copied
+      }
+    }
+
+    private long estimateSize() {
+      long size = 32;
+      if (_doubles != null) {
+        size += 8L * _doubles.length;
+      }
+      if (_objects != null) {
+        size += 8L * _objects.length + HISTORY_OBJECT_SIZE * _objectCount;
+      }
+      return size;
+    }
+  }
+
+  /**
+   * The update a client has acknowledged for a viewport and the version of the viewport definition it applied to.
+   */
+  private static final class Acknowledgement {
+
+    private final long _viewportVersion;
+    private final long _updateId;
+
+    private Acknowledgement(long viewportVersion, long updateId) {
+      _viewportVersion = viewportVersion;
+      _updateId = updateId;
     }
   }
 
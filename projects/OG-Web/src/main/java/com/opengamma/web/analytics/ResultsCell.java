@@ -17,11 +17,15 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
  */
 /* package */ final class ResultsCell {
 
+  /** Update ID of cells whose value doesn't depend on the calculation results, e.g. row labels. */
+  /* package */ static final long STATIC_UPDATE_ID = -1;
+
   private final Object _value;
   private final ValueSpecification _valueSpecification;
   private final Collection<Object> _history;
   private final AggregatedExecutionLog _executionLog;
   private final boolean _updated;
+  private final long _updateId;
   private final Class<?> _type;
   private final Object _inlineKey;
   private final TypeFormatter.Format _format;
@@ -31,6 +35,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
                       Collection<Object> history,
                       AggregatedExecutionLog executionLog,
                       boolean updated,
+                      long updateId,
                       Class<?> type,
                       Object inlineKey,
                       TypeFormatter.Format format) {
@@ -39,6 +44,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     _history = history;
     _executionLog = executionLog;
     _updated = updated;
+    _updateId = updateId;
     _type = type;
     _inlineKey = inlineKey;
     _format = format;
@@ -51,8 +57,8 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
    * @param type TODO remove
    * @return A cell for displaying the value
    */
-  /* package */ static ResultsCell forStaticValue(Object value, Class<?> type, TypeFormatter.Format format, boolean updated) {
-    return new ResultsCell(value, null, null, null, updated, type, null, format);
+  /* package */ static ResultsCell forStaticValue(Object value, Class<?> type, TypeFormatter.Format format, boolean updated, long updateId) {
+    return new ResultsCell(value, null, null, null, updated, updateId, type, null, format);
   }
 
   // TODO is this version still required? or should all callers be specifying whether the value was updated?
@@ -63,7 +69,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
    * @return A cell for displaying the value
    */
   /* package */ static ResultsCell forStaticValue(Object value, Class<?> type, TypeFormatter.Format format) {
-    return forStaticValue(value, type, format, false);
+    return forStaticValue(value, type, format, false, STATIC_UPDATE_ID);
   }
 
   /**
@@ -80,9 +86,10 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
                                                       Collection<Object> history,
                                                       AggregatedExecutionLog executionLog,
                                                       boolean updated,
+                                                      long updateId,
                                                       Class<?> type,
                                                       TypeFormatter.Format format) {
-    return new ResultsCell(value, valueSpecification, history, executionLog, updated, type, null, format);
+    return new ResultsCell(value, valueSpecification, history, executionLog, updated, updateId, type, null, format);
   }
 
   /* package */ static ResultsCell forCalculatedValue(Object value,
@@ -90,10 +97,11 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
                                                       Collection<Object> history,
                                                       AggregatedExecutionLog executionLog,
                                                       boolean updated,
+                                                      long updateId,
                                                       Class<?> type,
                                                       Object inlineKey,
                                                       TypeFormatter.Format format) {
-    return new ResultsCell(value, valueSpecification, history, executionLog, updated, type, inlineKey, format);
+    return new ResultsCell(value, valueSpecification, history, executionLog, updated, updateId, type, inlineKey, format);
   }
 
   /**
@@ -104,7 +112,7 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
    * @param type TODO remove
    */
   /* package */ static ResultsCell empty(Collection<Object> emptyHistory, Class<?> type) {
-    return new ResultsCell(null, null, emptyHistory, null, false, type, null, TypeFormatter.Format.CELL);
+    return new ResultsCell(null, null, emptyHistory, null, false, STATIC_UPDATE_ID, type, null, TypeFormatter.Format.CELL);
   }
 
   /**
@@ -143,6 +151,14 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     return _updated;
   }
 
+  /**
+   * @return ID of the {@link ResultsCache} update that last changed the cell's value, {@link #STATIC_UPDATE_ID}
+   * if the value isn't taken from the calculation results
+   */
+  /* package */ long getUpdateId() {
+    return _updateId;
+  }
+
   /* package */ Class<?> getType() {
     return _type;
   }
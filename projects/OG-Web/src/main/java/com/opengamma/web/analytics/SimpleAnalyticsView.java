@@ -6,7 +6,9 @@
 package com.opengamma.web.analytics;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,8 @@ import org.threeten.bp.Instant;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.ChangeEvent;
 import com.opengamma.core.change.ChangeType;
 import com.opengamma.core.position.Portfolio;
@@ -28,6 +32,7 @@ import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.view.ViewResultModel;
 import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.cycle.ViewCycle;
+import com.opengamma.financial.aggregation.AggregationFunction;
 import com.opengamma.financial.security.lookup.SecurityAttributeMapper;
 import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
@@ -60,6 +65,10 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
   private final PortfolioEntityExtractor _portfolioEntityExtractor;
   private final UniqueId _viewDefinitionId;
   private final ErrorManager _errorManager;
+  /** Functions for grouping the positions when aggregating the portfolio grid, keyed by name. */
+  private final Map<String, AggregationFunction<?>> _aggregationFunctions;
+  /** Aggregators for the portfolio grid, keyed by the name of their aggregation function. */
+  private final Map<String, ColumnarAggregator> _aggregators = Maps.newHashMap();
 
   private PortfolioAnalyticsGrid _portfolioGrid;
   private MainAnalyticsGrid<?> _primitivesGrid;
@@ -77,11 +86,12 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
    * @param portfolioSupplier Supplies an up to date version of the portfolio
    * @param showBlotterColumns Whether the blotter columns should be shown in the portfolio analytics grid
    * @param errorManager Holds information about errors that occur compiling and executing the view
+   * @param aggregationFunctions Functions for grouping the positions when aggregating the portfolio grid, keyed by name
    */
   /* package */SimpleAnalyticsView(UniqueId viewDefinitionId, boolean primitivesOnly, VersionCorrection versionCorrection, String viewId, String portfolioCallbackId,
       String primitivesCallbackId, ComputationTargetResolver targetResolver, FunctionRepositoryFactory functions, ViewportListener viewportListener,
       SecurityAttributeMapper blotterColumnMapper, Supplier<Portfolio> portfolioSupplier, PortfolioEntityExtractor portfolioEntityExtractor, boolean showBlotterColumns,
-      ErrorManager errorManager) {
+      ErrorManager errorManager, Map<String, AggregationFunction<?>> aggregationFunctions) {
     ArgumentChecker.notNull(viewDefinitionId, "viewDefinitionId");
     ArgumentChecker.notEmpty(viewId, "viewId");
     ArgumentChecker.notEmpty(portfolioCallbackId, "portfolioCallbackId");
@@ -94,6 +104,8 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     ArgumentChecker.notNull(portfolioSupplier, "portfolioSupplier");
     ArgumentChecker.notNull(portfolioEntityExtractor, "portfolioEntityExtractor");
     ArgumentChecker.notNull(errorManager, "errorManager");
+    ArgumentChecker.notNull(aggregationFunctions, "aggregationFunctions");
+    _aggregationFunctions = aggregationFunctions;
     _errorManager = errorManager;
     _viewDefinitionId = viewDefinitionId;
     _versionCorrection = versionCorrection;
@@ -194,9 +206,25 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
       }
       updatedIds.addAll(_primitivesGrid.updateResults(_cache, viewCycle));
     }
+    updateAggregators();
     return updatedIds;
   }
 
+  /**
+   * Applies the latest results to the portfolio aggregators, discarding any that were created for a different
+   * grid structure.
+   */
+  private void updateAggregators() {
+    for (Iterator<ColumnarAggregator> it = _aggregators.values().iterator(); it.hasNext(); ) {
+      ColumnarAggregator aggregator = it.next();
+      if (aggregator.getGridStructure() == _portfolioGrid.getGridStructure()) {
+        aggregator.update(_cache);
+      } else {
+        it.remove();
+      }
+    }
+  }
+
   private MainAnalyticsGrid<?> getGrid(GridType gridType) {
     switch (gridType) {
       case PORTFOLIO:
@@ -238,7 +266,10 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
   @Override
   public void deleteViewport(GridType gridType, int viewportId) {
     s_logger.debug("View {} deleting viewport {} from the {} grid", _viewId, viewportId, gridType);
-    getGrid(gridType).deleteViewport(viewportId);
+    MainAnalyticsGrid<?> grid = getGrid(gridType);
+    String callbackId = grid.getViewport(viewportId).getCallbackId();
+    grid.deleteViewport(viewportId);
+    _cache.clearAcknowledgement(callbackId);
   }
 
   @Override
@@ -247,6 +278,40 @@ import com.opengamma.web.analytics.formatting.TypeFormatter;
     return getGrid(gridType).getData(viewportId);
   }
 
+  @Override
+  public ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId) {
+    s_logger.debug("View {} getting data for viewport {} of the {} grid since update {}", _viewId, viewportId, gridType, acknowledgedUpdateId);
+    MainGridViewport viewport = getGrid(gridType).getViewport(viewportId);
+    ViewportResults results = viewport.getData();
+    if (results == null) {
+      return null;
+    }
+    String callbackId = viewport.getCallbackId();
+    if (acknowledgedUpdateId > ViewportResults.NOT_ACKNOWLEDGED) {
+      _cache.acknowledge(callbackId, viewportVersion, acknowledgedUpdateId);
+    }
+    return results.withAcknowledgedUpdateId(_cache.getAcknowledgedUpdateId(callbackId, results.getVersion()));
+  }
+
+  @Override
+  public GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending) {
+    ArgumentChecker.notNull(aggregatorName, "aggregatorName");
+    if (gridType != GridType.PORTFOLIO) {
+      throw new IllegalArgumentException("Only the portfolio grid can be aggregated");
+    }
+    s_logger.debug("View {} aggregating column {} of the {} grid using {}", _viewId, columnIndex, gridType, aggregatorName);
+    ColumnarAggregator aggregator = _aggregators.get(aggregatorName);
+    if (aggregator == null || aggregator.getGridStructure() != _portfolioGrid.getGridStructure()) {
+      AggregationFunction<?> aggregationFunction = _aggregationFunctions.get(aggregatorName);
+      if (aggregationFunction == null) {
+        throw new DataNotFoundException("No aggregator found named " + aggregatorName);
+      }
+      aggregator = new ColumnarAggregator(aggregatorName, aggregationFunction, _portfolioGrid.getGridStructure(), _cache);
+      _aggregators.put(aggregatorName, aggregator);
+    }
+    return aggregator.aggregate(columnIndex, rowCount, ascending, _cache);
+  }
+
   @Override
   public void openDependencyGraph(int requestId, GridType gridType, int graphId, String callbackId, int row, int col) {
     s_logger.debug("View {} opening dependency graph {} for cell ({}, {}) of the {} grid", _viewId, graphId, row, col, gridType);
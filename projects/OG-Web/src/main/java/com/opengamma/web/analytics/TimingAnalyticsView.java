@@ -122,6 +122,24 @@ import com.opengamma.web.analytics.formatting.TypeFormatter.Format;
     return retVal;
   }
 
+  @Override
+  public ViewportResults getData(GridType gridType, int viewportId, long viewportVersion, long acknowledgedUpdateId) {
+    long startTime = System.currentTimeMillis();
+    s_logger.trace("Executing AnalyticsView.getData");
+    ViewportResults retVal = _delegate.getData(gridType, viewportId, viewportVersion, acknowledgedUpdateId);
+    s_logger.trace("getData completed in " + (System.currentTimeMillis() - startTime) + "ms");
+    return retVal;
+  }
+
+  @Override
+  public GridAggregation getAggregation(GridType gridType, String aggregatorName, int columnIndex, int rowCount, boolean ascending) {
+    long startTime = System.currentTimeMillis();
+    s_logger.trace("Executing AnalyticsView.getAggregation");
+    GridAggregation retVal = _delegate.getAggregation(gridType, aggregatorName, columnIndex, rowCount, ascending);
+    s_logger.trace("getAggregation completed in " + (System.currentTimeMillis() - startTime) + "ms");
+    return retVal;
+  }
+
   @Override
   public void openDependencyGraph(int requestId,
                                   GridType gridType,
@@ -20,6 +20,11 @@ import com.opengamma.util.ArgumentChecker;
  */
 public class ViewportResults {
 
+  /** Acknowledged update ID for results that must be sent to the client in full. */
+  public static final long NOT_ACKNOWLEDGED = -1;
+  /** Acknowledged update ID for clients that don't track updates and always receive the full results. */
+  private static final long UNTRACKED = Long.MIN_VALUE;
+
   /** The result values by row. */
   private final List<ResultsCell> _allResults;
   /** The grid columns. */
@@ -30,6 +35,10 @@ public class ViewportResults {
   private final Duration _calculationDuration;
   /** The time at which these results became available. */
   private final Instant _valuationTime;
+  /** ID of the latest {@link ResultsCache} update included in the results. */
+  private final long _lastUpdateId;
+  /** ID of the update the client has already received, only cells updated after it need to be sent. */
+  private final long _acknowledgedUpdateId;
 
   /**
    * @param allResults Cells in the viewport containing the data, history and the value specification. The outer
@@ -41,6 +50,29 @@ public class ViewportResults {
                                 ViewportDefinition viewportDefinition,
                                 GridColumnGroups columns,
                                 Duration calculationDuration, Instant valuationTime) {
+    this(allResults, viewportDefinition, columns, calculationDuration, valuationTime, 0);
+  }
+
+  /**
+   * @param allResults Cells in the viewport containing the data, history and the value specification. The outer
+   * list contains the data by rows and the inner lists contain the data for each row
+   * @param viewportDefinition Definition of the rows and columns in the viewport
+   * @param columns The columns in the viewport's grid
+   * @param lastUpdateId ID of the latest {@link ResultsCache} update included in the results
+   */
+  /* package */ ViewportResults(List<ResultsCell> allResults,
+                                ViewportDefinition viewportDefinition,
+                                GridColumnGroups columns,
+                                Duration calculationDuration, Instant valuationTime,
+                                long lastUpdateId) {
+    this(allResults, viewportDefinition, columns, calculationDuration, valuationTime, lastUpdateId, UNTRACKED);
+  }
+
+  private ViewportResults(List<ResultsCell> allResults,
+                          ViewportDefinition viewportDefinition,
+                          GridColumnGroups columns,
+                          Duration calculationDuration, Instant valuationTime,
+                          long lastUpdateId, long acknowledgedUpdateId) {
     ArgumentChecker.notNull(allResults, "allResults");
     ArgumentChecker.notNull(columns, "columns");
     ArgumentChecker.notNull(viewportDefinition, "viewportDefinition");
@@ -51,6 +83,20 @@ public class ViewportResults {
     _columns = columns;
     _calculationDuration = calculationDuration;
     _valuationTime = valuationTime;
+    _lastUpdateId = lastUpdateId;
+    _acknowledgedUpdateId = acknowledgedUpdateId;
+  }
+
+  /**
+   * Returns a copy of these results that only needs to contain the cells updated since the client last
+   * acknowledged receiving the viewport's data.
+   * @param acknowledgedUpdateId ID of the update acknowledged by the client, {@link #NOT_ACKNOWLEDGED} if the
+   * client needs all the cells
+   * @return The results
+   */
+  /* package */ ViewportResults withAcknowledgedUpdateId(long acknowledgedUpdateId) {
+    return new ViewportResults(_allResults, _viewportDefinition, _columns, _calculationDuration, _valuationTime,
+                               _lastUpdateId, acknowledgedUpdateId);
   }
 
   /**
@@ -84,6 +130,36 @@ public class ViewportResults {
     return _valuationTime;
   }
   
+  /**
+   * @return ID of the latest {@link ResultsCache} update included in the results. The client acknowledges it
+   * to receive only the cells that changed after it in the next set of results
+   */
+  /* package */ long getLastUpdateId() {
+    return _lastUpdateId;
+  }
+
+  /**
+   * @return ID of the update the client has already received, {@link #NOT_ACKNOWLEDGED} or less if all the cells
+   * must be sent
+   */
+  /* package */ long getAcknowledgedUpdateId() {
+    return _acknowledgedUpdateId;
+  }
+
+  /**
+   * @return true if the client tracks the update IDs of the results it receives so it can request deltas
+   */
+  /* package */ boolean isTracked() {
+    return _acknowledgedUpdateId != UNTRACKED;
+  }
+
+  /**
+   * @return true if only the cells updated since the acknowledged update need to be sent to the client
+   */
+  /* package */ boolean isDelta() {
+    return _acknowledgedUpdateId > NOT_ACKNOWLEDGED;
+  }
+
   /* package */ ViewportDefinition getViewportDefinition() {
     return _viewportDefinition;
   }
@@ -46,6 +46,8 @@ public class ViewportResultsJsonCsvWriter {
   private static final String HISTORY = "h";
   private static final String TYPE = "t";
   private static final String DATA = "data";
+  private static final String DELTA = "delta";
+  private static final String UPDATE_ID = "updateId";
   private static final String ERROR = "error";
   private static final String CALCULATION_DURATION = "calculationDuration";
   private static final String LOG_LEVEL = "logLevel";
@@ -115,47 +117,79 @@ public class ViewportResultsJsonCsvWriter {
   }
 
   // TODO use a Freemarker template - will that perform well enough?
+  /**
+   * Formats viewport results as JSON. If the results are a delta (see {@link ViewportResults#isDelta()}) only the
+   * cells updated since the client's acknowledged update are included, keyed by their index in the viewport:
+   * {@code {"version": ..., "updateId": ..., "delta": {"3": {...}, "7": {...}}}}. Otherwise every cell in the
+   * viewport is included in order: {@code {"version": ..., "updateId": ..., "data": [{...}, {...}, ...]}}.
+   * The client acknowledges the {@code updateId} when requesting the next set of results. The {@code updateId}
+   * is omitted for clients that don't track updates.
+   *
+   * @param viewportResults The results
+   * @return The JSON
+   */
   public String getJson(ViewportResults viewportResults) {
     List<ResultsCell> viewportCells = viewportResults.getResults();
-    List<Object> results = Lists.newArrayListWithCapacity(viewportCells.size());
-    for (ResultsCell cell : viewportCells) {
-      Object cellValue = cell.getValue();
-      ValueSpecification cellValueSpec = cell.getValueSpecification();
-      Object formattedValue = _formatter.format(cellValue, cellValueSpec, cell.getFormat(), cell.getInlineKey());
-      Collection<Object> history = cell.getHistory();
-      Class<?> columnType = cell.getType();
-      DataType columnFormat = _formatter.getDataType(columnType);
-      Map<String, Object> valueMap = Maps.newHashMap();
-      AggregatedExecutionLog executionLog = cell.getExecutionLog();
-      LogLevel logLevel = maxLogLevel(executionLog);
-
-      valueMap.put(VALUE, formattedValue);
-      if (columnFormat == UNKNOWN) {
-        // if the the column type isn't known then send the type with the value
-        valueMap.put(TYPE, _formatter.getDataTypeForValue(cellValue, cellValueSpec).name());
-      }
-      if (history != null) {
-        List<Object> formattedHistoy = formatHistory(cellValueSpec, cell.getInlineKey(), history);
-        if (formattedHistoy != null) {
-          valueMap.put(HISTORY, formattedHistoy);
+    String duration = _durationFormatter.format(new BigDecimal(viewportResults.getCalculationDuration().toMillis()));
+    ImmutableMap.Builder<String, Object> resultsMap = ImmutableMap.builder();
+    resultsMap.put(VERSION, viewportResults.getVersion());
+    if (viewportResults.isTracked()) {
+      resultsMap.put(UPDATE_ID, viewportResults.getLastUpdateId());
+    }
+    resultsMap.put(CALCULATION_DURATION, duration);
+    if (viewportResults.isDelta()) {
+      long acknowledgedUpdateId = viewportResults.getAcknowledgedUpdateId();
+      Map<String, Object> results = Maps.newLinkedHashMap();
+      int index = 0;
+      for (ResultsCell cell : viewportCells) {
+        if (cell.getUpdateId() > acknowledgedUpdateId) {
+          results.put(Integer.toString(index), formatCell(cell));
         }
+        index++;
       }
-      if (cell.isError() || isError(formattedValue)) {
-        valueMap.put(ERROR, true);
-      }
-      if (logLevel != null) {
-        valueMap.put(LOG_LEVEL, logLevel);
+      resultsMap.put(DELTA, results);
+    } else {
+      List<Object> results = Lists.newArrayListWithCapacity(viewportCells.size());
+      for (ResultsCell cell : viewportCells) {
+        results.add(formatCell(cell));
       }
-      if (hasLogOutput(executionLog)) {
-        valueMap.put(LOG_OUTPUT, formatLogOutput(executionLog));
+      resultsMap.put(DATA, results);
+    }
+    return new JSONObject(resultsMap.build()).toString();
+  }
+
+  private Map<String, Object> formatCell(ResultsCell cell) {
+    Object cellValue = cell.getValue();
+    ValueSpecification cellValueSpec = cell.getValueSpecification();
+    Object formattedValue = _formatter.format(cellValue, cellValueSpec, cell.getFormat(), cell.getInlineKey());
+    Collection<Object> history = cell.getHistory();
+    Class<?> columnType = cell.getType();
+    DataType columnFormat = _formatter.getDataType(columnType);
+    Map<String, Object> valueMap = Maps.newHashMap();
+    AggregatedExecutionLog executionLog = cell.getExecutionLog();
+    LogLevel logLevel = maxLogLevel(executionLog);
+
+    valueMap.put(VALUE, formattedValue);
+    if (columnFormat == UNKNOWN) {
+      // if the the column type isn't known then send the type with the value
+      valueMap.put(TYPE, _formatter.getDataTypeForValue(cellValue, cellValueSpec).name());
+    }
+    if (history != null) {
+      List<Object> formattedHistoy = formatHistory(cellValueSpec, cell.getInlineKey(), history);
+      if (formattedHistoy != null) {
+        valueMap.put(HISTORY, formattedHistoy);
       }
-      results.add(valueMap);
     }
-    String duration = _durationFormatter.format(new BigDecimal(viewportResults.getCalculationDuration().toMillis()));
-    ImmutableMap<String, Object> resultsMap = ImmutableMap.of(VERSION, viewportResults.getVersion(),
-                                                              CALCULATION_DURATION, duration,
-                                                              DATA, results);
-    return new JSONObject(resultsMap).toString();
+    if (cell.isError() || isError(formattedValue)) {
+      valueMap.put(ERROR, true);
+    }
+    if (logLevel != null) {
+      valueMap.put(LOG_LEVEL, logLevel);
+    }
+    if (hasLogOutput(executionLog)) {
+      valueMap.put(LOG_OUTPUT, formatLogOutput(executionLog));
+    }
+    return valueMap;
   }
 
   private static boolean isError(Object value) {
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.json.JSONObject;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.opengamma.web.analytics.GridAggregation;
+
+/**
+ * Writes a {@link GridAggregation} to JSON.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class GridAggregationMessageBodyWriter implements MessageBodyWriter<GridAggregation> {
+
+  private static final String AGGREGATOR = "aggregator";
+  private static final String COLUMN = "column";
+  private static final String HEADER = "header";
+  private static final String GROUPS = "groups";
+  private static final String ROWS = "rows";
+  private static final String UPDATE_ID = "updateId";
+  private static final String NAME = "name";
+  private static final String TOTAL = "total";
+  private static final String COUNT = "count";
+  private static final String ROW = "row";
+  private static final String GROUP = "group";
+  private static final String VALUE = "value";
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return type.equals(GridAggregation.class);
+  }
+
+  @Override
+  public long getSize(GridAggregation aggregation,
+                      Class<?> type,
+                      Type genericType,
+                      Annotation[] annotations,
+                      MediaType mediaType) {
+    return -1; // unknown
+  }
+
+  @Override
+  public void writeTo(GridAggregation aggregation,
+                      Class<?> type,
+                      Type genericType,
+                      Annotation[] annotations,
+                      MediaType mediaType,
+                      MultivaluedMap<String, Object> httpHeaders,
+                      OutputStream entityStream) throws IOException, WebApplicationException {
+    entityStream.write(getJson(aggregation).getBytes());
+  }
+
+  /* package */ static String getJson(GridAggregation aggregation) {
+    List<Map<String, Object>> groups = Lists.newArrayListWithCapacity(aggregation.getGroups().size());
+    for (GridAggregation.Group group : aggregation.getGroups()) {
+      groups.add(ImmutableMap.<String, Object>of(NAME, group.getName(), TOTAL, group.getTotal(), COUNT, group.getCount()));
+    }
+    List<Map<String, Object>> rows = Lists.newArrayListWithCapacity(aggregation.getRows().size());
+    for (GridAggregation.Row row : aggregation.getRows()) {
+      rows.add(ImmutableMap.<String, Object>of(ROW, row.getRowIndex(), NAME, row.getName(), GROUP, row.getGroup(), VALUE, row.getValue()));
+    }
+    Map<String, Object> json = ImmutableMap.<String, Object>builder()
+        .put(AGGREGATOR, aggregation.getAggregatorName())
+        .put(COLUMN, aggregation.getColumnIndex())
+        .put(HEADER, aggregation.getColumnHeader())
+        .put(GROUPS, groups)
+        .put(ROWS, rows)
+        .put(UPDATE_ID, aggregation.getUpdateId())
+        .build();
+    return new JSONObject(json).toString();
+  }
+}
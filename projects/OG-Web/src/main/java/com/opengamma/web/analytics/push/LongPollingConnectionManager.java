@@ -13,7 +13,7 @@ import org.eclipse.jetty.continuation.Continuation;
 import com.google.common.base.Objects;
 
 /**
- * Maps client IDs to Jetty continuations associated with a client connection.
+ * Maps client IDs to the Jetty continuations and web sockets associated with a client connection.
  */
 public class LongPollingConnectionManager {
 
@@ -57,6 +57,56 @@ public class LongPollingConnectionManager {
     }
   }
 
+  /**
+   * Associates a web socket with a client connection so updates can be pushed to the client without it polling.
+   *
+   * @param userId The ID of the user
+   * @param clientId The client ID of the connection
+   * @param webSocket The client's web socket
+   * @return true if the connection was successful, false if the client ID doesn't correspond to
+   * an existing connection
+   */
+  /* package */ boolean webSocketConnect(String userId, String clientId, WebSocketPushConnection webSocket) {
+    LongPollingUpdateListener listener = _updateListeners.get(clientId);
+    if (listener != null) {
+      if (!Objects.equal(userId, listener.getUserId())) {
+        throw new IllegalArgumentException("User ID " + userId + " doesn't correspond to client ID: " + clientId);
+      }
+      listener.connect(webSocket);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Called when a message is received from a client's web socket.
+   *
+   * @param clientId The client ID associated with the socket
+   * @param webSocket The socket
+   * @param acknowledgement true if the message acknowledges an update, false if it's a heartbeat
+   */
+  /* package */ void webSocketReceived(String clientId, WebSocketPushConnection webSocket, boolean acknowledgement) {
+    LongPollingUpdateListener listener = _updateListeners.get(clientId);
+    if (listener != null) {
+      listener.received(webSocket, acknowledgement);
+    }
+  }
+
+  /**
+   * Called when a client's web socket closes. This doesn't end the client's connection or remove the associated
+   * client ID, the client can continue to receive updates by long polling.
+   *
+   * @param clientId The client ID associated with the socket
+   * @param webSocket The socket that closed
+   */
+  /* package */ void webSocketDisconnect(String clientId, WebSocketPushConnection webSocket) {
+    LongPollingUpdateListener listener = _updateListeners.get(clientId);
+    if (listener != null) {
+      listener.disconnect(webSocket);
+    }
+  }
+
   // for testing
   /* package */ boolean isClientConnected(String clientId) {
     LongPollingUpdateListener listener = _updateListeners.get(clientId);
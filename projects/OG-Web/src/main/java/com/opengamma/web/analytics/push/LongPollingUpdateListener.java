@@ -5,6 +5,7 @@
  */
 package com.opengamma.web.analytics.push;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Set;
 
@@ -22,6 +23,12 @@ import com.opengamma.util.ArgumentChecker;
  * If any updates arrive while there is no connection they are queued and sent as soon as the connection
  * is re-established.  If multiple updates for the same object are queued only one is sent.  All updates
  * only contain the REST URL of the updated object so they are identical.
+ * <p>
+ * If the client has opened a {@link WebSocketPushConnection} the updates are written to the socket as soon as
+ * they arrive instead of waiting for the next long-polling request. The socket is flow controlled: at most
+ * {@link #MAX_UNACKNOWLEDGED} messages are sent without the client acknowledging them and updates arriving
+ * in the meantime are queued and coalesced exactly as they are for a disconnected long-polling client. If the
+ * socket closes or fails the listener falls back to long polling.
  */
 /* package */ class LongPollingUpdateListener implements UpdateListener {
 
@@ -29,14 +36,18 @@ import com.opengamma.util.ArgumentChecker;
 
   /** Key for the array of updated URLs in the JSON */
   static final String UPDATES = "updates";
+  /** Maximum number of messages written to a web socket before the client must acknowledge one. */
+  static final int MAX_UNACKNOWLEDGED = 2;
 
   private final Object _lock = new Object();
-  private final Set<Object> _updates = Sets.newHashSet();
+  private final Set<Object> _updates = Sets.newLinkedHashSet();
   private final String _userId;
   private final ConnectionTimeoutTask _timeoutTask;
   private final String _clientId;
 
   private Continuation _continuation;
+  private WebSocketPushConnection _webSocket;
+  private int _unacknowledged;
 
   /**
    * Creates a new listener for a user.
@@ -62,8 +73,12 @@ import com.opengamma.util.ArgumentChecker;
   @Override
   public void itemUpdated(Object callbackId) {
     ArgumentChecker.notNull(callbackId, "url");
+    WebSocketUpdate webSocketUpdate = null;
     synchronized (_lock) {
-      if (_continuation != null) {
+      if (_webSocket != null) {
+        _updates.add(callbackId);
+        webSocketUpdate = prepareWebSocketUpdate();
+      } else if (_continuation != null) {
         try {
           sendUpdate(formatUpdate(callbackId));
         } catch (JSONException e) {
@@ -74,6 +89,7 @@ import com.opengamma.util.ArgumentChecker;
         _updates.add(callbackId);
       }
     }
+    sendWebSocketUpdate(webSocketUpdate);
   }
 
   /**
@@ -88,8 +104,12 @@ import com.opengamma.util.ArgumentChecker;
     if (callbackIds.isEmpty()) {
       return;
     }
+    WebSocketUpdate webSocketUpdate = null;
     synchronized (_lock) {
-      if (_continuation != null) {
+      if (_webSocket != null) {
+        _updates.addAll(callbackIds);
+        webSocketUpdate = prepareWebSocketUpdate();
+      } else if (_continuation != null) {
         try {
           sendUpdate(formatUpdate(callbackIds));
         } catch (JSONException e) {
@@ -100,6 +120,7 @@ import com.opengamma.util.ArgumentChecker;
         _updates.addAll(callbackIds);
       }
     }
+    sendWebSocketUpdate(webSocketUpdate);
   }
 
   /**
@@ -136,10 +157,133 @@ import com.opengamma.util.ArgumentChecker;
     s_logger.debug("Sent update to client {}: {}", _clientId, update);
   }
 
+  /**
+   * Invoked when a client opens a web socket for its updates. Any queued updates are sent immediately and
+   * subsequent updates are written to the socket until it closes.
+   * @param webSocket The client's web socket
+   */
+  /* package */ void connect(WebSocketPushConnection webSocket) {
+    WebSocketUpdate webSocketUpdate;
+    synchronized (_lock) {
+      s_logger.debug("Web socket connection established for client {}", _clientId);
+      _timeoutTask.reset();
+      if (_continuation != null && _continuation.isSuspended()) {
+        // the client won't poll again once its socket is open, end the outstanding request
+        _continuation.complete();
+      }
+      _continuation = null;
+      _webSocket = webSocket;
+      _unacknowledged = 0;
+      webSocketUpdate = prepareWebSocketUpdate();
+    }
+    sendWebSocketUpdate(webSocketUpdate);
+  }
+
+  /**
+   * Invoked when the client acknowledges a message written to its web socket or sends a heartbeat. Both reset
+   * the connection timeout, an acknowledgement also allows any queued updates to be sent.
+   * @param webSocket The client's web socket
+   * @param acknowledgement true if the message acknowledges an update, false if it's a heartbeat
+   */
+  /* package */ void received(WebSocketPushConnection webSocket, boolean acknowledgement) {
+    WebSocketUpdate webSocketUpdate = null;
+    synchronized (_lock) {
+      _timeoutTask.reset();
+      if (webSocket == _webSocket && acknowledgement && _unacknowledged > 0) {
+        _unacknowledged--;
+        webSocketUpdate = prepareWebSocketUpdate();
+      }
+    }
+    sendWebSocketUpdate(webSocketUpdate);
+  }
+
+  /**
+   * Invoked when a client's web socket closes. Updates are queued until the client establishes a new long-polling
+   * connection or opens another socket.
+   * @param webSocket The socket that closed - should be this listener's socket
+   */
+  /* package */ void disconnect(WebSocketPushConnection webSocket) {
+    synchronized (_lock) {
+      if (webSocket == _webSocket) {
+        s_logger.debug("Web socket connection closed for client {}", _clientId);
+        _webSocket = null;
+      }
+    }
+  }
+
+  /**
+   * Takes all queued updates for writing to the web socket as a single message if the client has acknowledged
+   * enough of the previous messages. Must be called holding the lock. The message must be written by
+   * {@link #sendWebSocketUpdate} after releasing the lock.
+   * @return The message to write, null if there is nothing to write
+   */
+  private WebSocketUpdate prepareWebSocketUpdate() {
+    if (_updates.isEmpty() || _unacknowledged >= MAX_UNACKNOWLEDGED) {
+      return null;
+    }
+    String update;
+    try {
+      update = formatUpdate(_updates);
+    } catch (JSONException e) {
+      // this shouldn't ever happen, the updates are all URLs
+      s_logger.warn("Unable to format updates as JSON. updates: " + _updates, e);
+      return null;
+    }
+    WebSocketUpdate webSocketUpdate = new WebSocketUpdate(_webSocket, update, Sets.newLinkedHashSet(_updates));
+    _updates.clear();
+    _unacknowledged++;
+    return webSocketUpdate;
+  }
+
+  /**
+   * Writes a message to the web socket. Must be called without holding the lock as the write can block.
+   * If the write fails the updates are queued again and the listener falls back to long polling.
+   * @param webSocketUpdate The message to write, null if there is nothing to write
+   */
+  private void sendWebSocketUpdate(WebSocketUpdate webSocketUpdate) {
+    if (webSocketUpdate == null) {
+      return;
+    }
+    try {
+      webSocketUpdate._webSocket.send(webSocketUpdate._update);
+    } catch (IOException e) {
+      s_logger.debug("Unable to write to web socket for client " + _clientId + ", falling back to long polling", e);
+      webSocketUpdate._webSocket.close();
+      synchronized (_lock) {
+        if (webSocketUpdate._webSocket == _webSocket) {
+          _webSocket = null;
+        }
+        // leave the updates queued for the next connection, ahead of any that arrived during the write
+        Set<Object> updates = Sets.newLinkedHashSet(webSocketUpdate._callbackIds);
+        updates.addAll(_updates);
+        _updates.clear();
+        _updates.addAll(updates);
+      }
+      return;
+    }
+    s_logger.debug("Sent update to client {} over web socket: {}", _clientId, webSocketUpdate._update);
+  }
+
+  /**
+   * A message taken from the queue for writing to a web socket.
+   */
+  private static final class WebSocketUpdate {
+
+    private final WebSocketPushConnection _webSocket;
+    private final String _update;
+    private final Set<Object> _callbackIds;
+
+    private WebSocketUpdate(WebSocketPushConnection webSocket, String update, Set<Object> callbackIds) {
+      _webSocket = webSocket;
+      _update = update;
+      _callbackIds = callbackIds;
+    }
+  }
+
   // for testing
   /* package */ boolean isConnected() {
     synchronized (_lock) {
-      return _continuation != null;
+      return _continuation != null || _webSocket != null;
     }
   }
 
@@ -172,6 +316,10 @@ import com.opengamma.util.ArgumentChecker;
         _continuation.complete();
       }
       _continuation = null;
+      if (_webSocket != null) {
+        _webSocket.close();
+        _webSocket = null;
+      }
     }
   }
 
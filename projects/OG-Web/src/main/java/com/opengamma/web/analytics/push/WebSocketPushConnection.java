@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics.push;
+
+import java.io.IOException;
+
+import org.eclipse.jetty.websocket.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Web socket over which updates are pushed to a client. The messages sent to the client have the same
+ * format as the long-polling responses: {@code {"updates": [url1, url2, ...]}}. The client must reply
+ * to each one with {@link #ACK}, the server stops writing to the socket if too many messages are
+ * unacknowledged. Any other message from the client is treated as a heartbeat and keeps the connection
+ * alive when no updates are being published.
+ */
+/* package */ class WebSocketPushConnection implements WebSocket.OnTextMessage {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(WebSocketPushConnection.class);
+
+  /** Message sent by the client to acknowledge an update. */
+  /* package */ static final String ACK = "ack";
+
+  private final LongPollingConnectionManager _connectionManager;
+  private final String _userId;
+  private final String _clientId;
+
+  private volatile Connection _connection;
+
+  /**
+   * @param connectionManager The manager of the client connections
+   * @param userId The ID of the user who owns the connection, null if not known
+   * @param clientId The client ID of the connection
+   */
+  /* package */ WebSocketPushConnection(LongPollingConnectionManager connectionManager, String userId, String clientId) {
+    ArgumentChecker.notNull(connectionManager, "connectionManager");
+    ArgumentChecker.notEmpty(clientId, "clientId");
+    _connectionManager = connectionManager;
+    _userId = userId;
+    _clientId = clientId;
+  }
+
+  @Override
+  public void onOpen(Connection connection) {
+    _connection = connection;
+    if (!_connectionManager.webSocketConnect(_userId, _clientId, this)) {
+      s_logger.debug("Closing web socket for unknown client ID {}", _clientId);
+      connection.close();
+    }
+  }
+
+  @Override
+  public void onMessage(String data) {
+    _connectionManager.webSocketReceived(_clientId, this, ACK.equals(data));
+  }
+
+  @Override
+  public void onClose(int closeCode, String message) {
+    _connectionManager.webSocketDisconnect(_clientId, this);
+  }
+
+  /**
+   * Writes a message to the client.
+   * @param message The message
+   * @throws IOException If the message can't be written
+   */
+  /* package */ void send(String message) throws IOException {
+    Connection connection = _connection;
+    if (connection == null || !connection.isOpen()) {
+      throw new IOException("Web socket for client " + _clientId + " is closed");
+    }
+    connection.sendMessage(message);
+  }
+
+  /**
+   * Closes the socket.
+   */
+  /* package */ void close() {
+    Connection connection = _connection;
+    if (connection != null) {
+      connection.close();
+    }
+  }
+
+}
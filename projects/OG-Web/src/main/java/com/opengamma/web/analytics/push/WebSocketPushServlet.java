@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics.push;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.websocket.WebSocket;
+import org.eclipse.jetty.websocket.WebSocketServlet;
+
+import com.opengamma.util.auth.AuthUtils;
+
+/**
+ * Accepts web socket connections over which updates are pushed to a client. The URL is assumed to be
+ * {@code <servlet path>/{clientId}} where the client ID is the one returned by the handshake, the same as for
+ * {@link LongPollingServlet}. Clients that can't open a web socket continue to use long polling.
+ * <p>
+ * This is server-side support only. The web client still uses long polling and requests full viewport data,
+ * so this servlet isn't registered in the default {@code web.xml}. A client using it should register it at
+ * {@code /socket/*}, reply to each update with {@code "ack"}, and request viewport data with the {@code version}
+ * and {@code updateId} parameters to receive deltas.
+ */
+public class WebSocketPushServlet extends WebSocketServlet {
+
+  /** Serialization version. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Manages connections for each client.
+   */
+  private LongPollingConnectionManager _connectionManager;
+
+  @Override
+  public void init() throws ServletException {
+    super.init();
+    _connectionManager = WebPushServletContextUtils.getLongPollingConnectionManager(getServletContext());
+  }
+
+  @Override
+  public WebSocket doWebSocketConnect(HttpServletRequest request, String protocol) {
+    String clientId = LongPollingServlet.getClientId(request);
+    if (clientId == null) {
+      // rejects the upgrade
+      return null;
+    }
+    String userName = (AuthUtils.isPermissive() ? null : AuthUtils.getUserName());
+    return new WebSocketPushConnection(_connectionManager, userName, clientId);
+  }
+
+}
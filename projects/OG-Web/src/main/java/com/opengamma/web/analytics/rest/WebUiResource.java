@@ -20,6 +20,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -48,6 +49,7 @@ import com.opengamma.util.tuple.Pair;
 import com.opengamma.web.analytics.AnalyticsView;
 import com.opengamma.web.analytics.AnalyticsViewManager;
 import com.opengamma.web.analytics.ErrorInfo;
+import com.opengamma.web.analytics.GridAggregation;
 import com.opengamma.web.analytics.GridCell;
 import com.opengamma.web.analytics.GridStructure;
 import com.opengamma.web.analytics.MarketDataSpecificationJsonReader;
@@ -69,6 +71,8 @@ public class WebUiResource {
 
   private static final Logger s_logger = LoggerFactory.getLogger(WebUiResource.class);
   private static final DateTimeFormatter CSV_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM_dd_HH_mm_ss");
+  /** Number of positions returned with an aggregation if the client doesn't specify. */
+  private static final int DEFAULT_AGGREGATION_ROWS = 20;
 
   /** For generating IDs for the views. */
   private static final AtomicLong s_nextViewId = new AtomicLong(0);
@@ -255,8 +259,32 @@ public class WebUiResource {
   @GET
   public ViewportResults getViewportData(@PathParam("viewId") String viewId,
                                          @PathParam("gridType") String gridType,
-                                         @PathParam("viewportId") int viewportId) {
-    return _viewManager.getView(viewId).getData(gridType(gridType), viewportId);
+                                         @PathParam("viewportId") int viewportId,
+                                         @QueryParam("version") Long viewportVersion,
+                                         @QueryParam("updateId") Long acknowledgedUpdateId) {
+    AnalyticsView view = _viewManager.getView(viewId);
+    if (acknowledgedUpdateId == null) {
+      // clients that don't track updates always get the full viewport
+      return view.getData(gridType(gridType), viewportId);
+    }
+    long version = (viewportVersion != null) ? viewportVersion : ViewportResults.NOT_ACKNOWLEDGED;
+    return view.getData(gridType(gridType), viewportId, version, acknowledgedUpdateId);
+  }
+
+  /**
+   * Returns the values in a column of the portfolio grid aggregated over groups of positions, with the positions
+   * ordered by value. No view is compiled, the aggregation is calculated from the view's latest results.
+   */
+  @Path("{viewId}/{gridType}/aggregation")
+  @GET
+  public GridAggregation getAggregation(@PathParam("viewId") String viewId,
+                                        @PathParam("gridType") String gridType,
+                                        @QueryParam("aggregator") String aggregatorName,
+                                        @QueryParam("column") int columnIndex,
+                                        @QueryParam("rows") Integer rowCount,
+                                        @QueryParam("ascending") boolean ascending) {
+    int rows = (rowCount != null) ? rowCount : DEFAULT_AGGREGATION_ROWS;
+    return _viewManager.getView(viewId).getAggregation(gridType(gridType), aggregatorName, columnIndex, rows, ascending);
   }
 
   @Path("{viewId}/{gridType}/viewports/{viewportId}")
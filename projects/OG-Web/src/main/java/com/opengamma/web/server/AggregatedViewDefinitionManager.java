@@ -76,6 +76,13 @@ public class AggregatedViewDefinitionManager {
   public Set<String> getAggregatorNames() {
     return ImmutableSet.copyOf(_portfolioAggregators.keySet());
   }
+
+  /**
+   * @return The functions for aggregating portfolios, keyed by name
+   */
+  public Map<String, AggregationFunction<?>> getAggregationFunctions() {
+    return Collections.unmodifiableMap(_portfolioAggregators);
+  }
   
   public UniqueId getViewDefinitionId(UniqueId baseViewDefinitionId, String aggregatorName) {
     List<String> aggregators;
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.core.security.impl.SimpleSecurity;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.financial.aggregation.AggregationFunction;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.UniqueIdentifiable;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarAggregatorTest {
+
+  private static final String CALC_CONFIG = "Default";
+  private static final String VALUE_NAME = "PV";
+  private static final String BOOK = "book";
+  /** Index of the analytics column, the label column comes first. */
+  private static final int COLUMN = 1;
+
+  /** Groups positions by their book attribute. */
+  private static final AggregationFunction<String> BOOK_AGGREGATOR = new AggregationFunction<String>() {
+    @Override
+    public Collection<String> getRequiredEntries() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public String classifyPosition(Position position) {
+      return position.getAttributes().get(BOOK);
+    }
+
+    @Override
+    public Comparator<Position> getPositionComparator() {
+      return null;
+    }
+
+    @Override
+    public String getName() {
+      return BOOK;
+    }
+
+    @Override
+    public int compare(String o1, String o2) {
+      return o1.compareTo(o2);
+    }
+  };
+
+  private ResultsCache _cache;
+  private PortfolioGridStructure _gridStructure;
+  private List<UniqueIdentifiable> _positions;
+
+  @BeforeMethod
+  public void setUp() {
+    SimplePortfolioNode root = new SimplePortfolioNode(UniqueId.of("node", "root"), "root");
+    root.addPosition(position("pos1", "A"));
+    root.addPosition(position("pos2", "B"));
+    root.addPosition(position("pos3", "A"));
+    root.addPosition(position("pos4", null));
+    SimplePortfolio portfolio = new SimplePortfolio(UniqueId.of("port", "1"), "portfolio", root);
+    // every requirement is satisfied by a value with the same name and target
+    UnversionedValueMappings valueMappings = new UnversionedValueMappings() {
+      @Override
+      public ValueSpecification getValueSpecification(String calcConfigName, ValueRequirement valueReq) {
+        return new ValueSpecification(valueReq.getValueName(),
+                                      valueReq.getTargetReference().getSpecification(),
+                                      ValueProperties.with(ValuePropertyNames.FUNCTION, "fn").get());
+      }
+    };
+    List<PortfolioGridRow> rows = PortfolioGridStructure.buildRows(portfolio);
+    TargetLookup targetLookup = new TargetLookup(valueMappings, rows);
+    ColumnSpecification columnSpec = new ColumnSpecification(CALC_CONFIG, VALUE_NAME, ValueProperties.none());
+    GridColumn column = GridColumn.forSpec(columnSpec, Double.class, targetLookup);
+    GridColumnGroups nonFixedColumns = new GridColumnGroups(ImmutableList.of(new GridColumnGroup(CALC_CONFIG, ImmutableList.of(column), true)));
+    _gridStructure = new PortfolioGridStructure(rows,
+                                                PortfolioGridStructure.buildFixedColumns(rows),
+                                                nonFixedColumns,
+                                                AnalyticsNode.portfolioRoot(portfolio),
+                                                targetLookup,
+                                                valueMappings,
+                                                new ViewDefinition("view", "user"));
+    _positions = ImmutableList.<UniqueIdentifiable>copyOf(root.getPositions());
+    _cache = new ResultsCache();
+    _cache.put(_positions);
+  }
+
+  private static Position position(String id, String book) {
+    SimpleSecurity security = new SimpleSecurity(UniqueId.of("sec", id), ExternalIdBundle.EMPTY, "EQUITY", id);
+    SimplePosition position = new SimplePosition(UniqueId.of("pos", id), BigDecimal.ONE, security);
+    if (book != null) {
+      position.addAttribute(BOOK, book);
+    }
+    return position;
+  }
+
+  /**
+   * Puts values into the cache for positions.
+   * @param values Row index followed by value, repeated
+   */
+  private void putValues(Object... values) {
+    InMemoryViewComputationResultModel results = new InMemoryViewComputationResultModel();
+    results.setViewCycleExecutionOptions(ViewCycleExecutionOptions.builder().setValuationTime(Instant.now()).create());
+    for (int i = 0; i < values.length; i += 2) {
+      ValueSpecification spec = _gridStructure.getValueSpecificationForCell((Integer) values[i], COLUMN).getSecond();
+      results.addValue(CALC_CONFIG, new ComputedValueResult(spec, values[i + 1], AggregatedExecutionLog.EMPTY));
+    }
+    _cache.put(results);
+  }
+
+  private static void assertGroup(GridAggregation.Group group, String name, double total, int count) {
+    assertEquals(name, group.getName());
+    assertEquals(total, group.getTotal(), 1e-12);
+    assertEquals(count, group.getCount());
+  }
+
+  private static void assertRow(GridAggregation.Row row, int rowIndex, String name, String groupName, double value) {
+    assertEquals(rowIndex, row.getRowIndex());
+    assertEquals(name, row.getName());
+    assertEquals(groupName, row.getGroup());
+    assertEquals(value, row.getValue(), 1e-12);
+  }
+
+  @Test
+  public void aggregate() {
+    // row 0 is the root node, rows 1 to 4 are the positions
+    putValues(1, 10d, 2, 5d, 3, 20d, 4, 1d);
+    ColumnarAggregator aggregator = new ColumnarAggregator(BOOK, BOOK_AGGREGATOR, _gridStructure, _cache);
+    GridAggregation aggregation = aggregator.aggregate(COLUMN, 2, false, _cache);
+    assertEquals(BOOK, aggregation.getAggregatorName());
+    assertEquals(3, aggregation.getGroups().size());
+    assertGroup(aggregation.getGroups().get(0), "A", 30, 2);
+    assertGroup(aggregation.getGroups().get(1), "B", 5, 1);
+    assertGroup(aggregation.getGroups().get(2), ColumnarAggregator.UNKNOWN_GROUP, 1, 1);
+    assertEquals(2, aggregation.getRows().size());
+    assertRow(aggregation.getRows().get(0), 3, "pos3", "A", 20);
+    assertRow(aggregation.getRows().get(1), 1, "pos1", "A", 10);
+
+    GridAggregation ascending = aggregator.aggregate(COLUMN, 10, true, _cache);
+    assertEquals(4, ascending.getRows().size());
+    assertRow(ascending.getRows().get(0), 4, "pos4", ColumnarAggregator.UNKNOWN_GROUP, 1);
+    assertRow(ascending.getRows().get(3), 3, "pos3", "A", 20);
+  }
+
+  @Test
+  public void incrementalUpdate() {
+    putValues(1, 10d, 2, 5d, 3, 20d);
+    ColumnarAggregator aggregator = new ColumnarAggregator(BOOK, BOOK_AGGREGATOR, _gridStructure, _cache);
+    aggregator.aggregate(COLUMN, 1, false, _cache);
+
+    putValues(3, 2d, 4, 7d);
+    aggregator.update(_cache);
+    GridAggregation aggregation = aggregator.aggregate(COLUMN, 1, false, _cache);
+    assertGroup(aggregation.getGroups().get(0), "A", 12, 2);
+    assertGroup(aggregation.getGroups().get(1), "B", 5, 1);
+    assertGroup(aggregation.getGroups().get(2), ColumnarAggregator.UNKNOWN_GROUP, 7, 1);
+    assertRow(aggregation.getRows().get(0), 1, "pos1", "A", 10);
+    assertEquals(_cache.getLastUpdateId(), aggregation.getUpdateId());
+
+    // values that aren't numbers are left out of the totals
+    putValues(1, "error");
+    aggregator.update(_cache);
+    aggregation = aggregator.aggregate(COLUMN, 10, false, _cache);
+    assertGroup(aggregation.getGroups().get(0), "A", 2, 1);
+    assertEquals(3, aggregation.getRows().size());
+  }
+
+  @Test
+  public void aggregateFromCacheOverBudget() {
+    // the cache evicts everything it can on every update but the aggregator still sees every value
+    _cache = new ResultsCache(1);
+    _cache.put(_positions);
+    putValues(1, 10d, 2, 5d, 3, 20d, 4, 1d);
+    putValues(3, 2d);
+    assertEquals(4, _cache.getEvictionCount());
+
+    ColumnarAggregator aggregator = new ColumnarAggregator(BOOK, BOOK_AGGREGATOR, _gridStructure, _cache);
+    GridAggregation aggregation = aggregator.aggregate(COLUMN, 10, false, _cache);
+    assertGroup(aggregation.getGroups().get(0), "A", 12, 2);
+    assertGroup(aggregation.getGroups().get(1), "B", 5, 1);
+    assertGroup(aggregation.getGroups().get(2), ColumnarAggregator.UNKNOWN_GROUP, 1, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void columnWithoutValues() {
+    new ColumnarAggregator(BOOK, BOOK_AGGREGATOR, _gridStructure, _cache).aggregate(0, 10, false, _cache);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void columnOutOfBounds() {
+    new ColumnarAggregator(BOOK, BOOK_AGGREGATOR, _gridStructure, _cache).aggregate(2, 10, false, _cache);
+  }
+}
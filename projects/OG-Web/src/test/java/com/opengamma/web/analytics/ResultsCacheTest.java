@@ -140,4 +140,152 @@ public class ResultsCacheTest {
     assertEquals(1d, history.get(0));
     assertEquals(MissingOutput.EVALUATION_ERROR, history.get(1));
   }
+
+  @Test
+  public void updateIds() {
+    final InMemoryViewComputationResultModel results1 = new InMemoryViewComputationResultModel();
+    results1.setViewCycleExecutionOptions(ViewCycleExecutionOptions.builder().setValuationTime(Instant.now()).create());
+    results1.addValue(CALC_CONFIG, new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY));
+    results1.addValue(CALC_CONFIG, new ComputedValueResult(_spec2, 2d, AggregatedExecutionLog.EMPTY));
+    final ResultsCache cache = new ResultsCache();
+    cache.put(results1);
+    assertEquals(1, cache.getLastUpdateId());
+
+    final InMemoryViewComputationResultModel results2 = new InMemoryViewComputationResultModel();
+    results2.setViewCycleExecutionOptions(ViewCycleExecutionOptions.builder().setValuationTime(Instant.now()).create());
+    results2.addValue(CALC_CONFIG, new ComputedValueResult(_spec1, 3d, AggregatedExecutionLog.EMPTY));
+    cache.put(results2);
+    assertEquals(2, cache.getLastUpdateId());
+    assertEquals(2, cache.getResult(CALC_CONFIG, _spec1, Double.class).getUpdateId());
+    assertEquals(1, cache.getResult(CALC_CONFIG, _spec2, Double.class).getUpdateId());
+    final ValueSpecification missing = new ValueSpecification("missing", _target1, ValueProperties.builder().with(ValuePropertyNames.FUNCTION, "fn1").get());
+    assertEquals(-1, cache.getResult(CALC_CONFIG, missing, Double.class).getUpdateId());
+  }
+
+  @Test
+  public void acknowledgements() {
+    final InMemoryViewComputationResultModel results = new InMemoryViewComputationResultModel();
+    results.setViewCycleExecutionOptions(ViewCycleExecutionOptions.builder().setValuationTime(Instant.now()).create());
+    results.addValue(CALC_CONFIG, new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY));
+    final ResultsCache cache = new ResultsCache();
+    cache.put(results);
+    cache.put(results);
+    assertEquals(ViewportResults.NOT_ACKNOWLEDGED, cache.getAcknowledgedUpdateId("vp", 0));
+    cache.acknowledge("vp", 0, 1);
+    assertEquals(1, cache.getAcknowledgedUpdateId("vp", 0));
+    // acknowledgements don't move backwards
+    cache.acknowledge("vp", 0, 0);
+    assertEquals(1, cache.getAcknowledgedUpdateId("vp", 0));
+    // or past the last update
+    cache.acknowledge("vp", 0, 10);
+    assertEquals(2, cache.getAcknowledgedUpdateId("vp", 0));
+    // data for a different version of the viewport isn't acknowledged
+    assertEquals(ViewportResults.NOT_ACKNOWLEDGED, cache.getAcknowledgedUpdateId("vp", 1));
+    cache.acknowledge("vp", 1, 1);
+    assertEquals(1, cache.getAcknowledgedUpdateId("vp", 1));
+    assertEquals(ViewportResults.NOT_ACKNOWLEDGED, cache.getAcknowledgedUpdateId("vp", 0));
+    cache.clearAcknowledgement("vp");
+    assertEquals(ViewportResults.NOT_ACKNOWLEDGED, cache.getAcknowledgedUpdateId("vp", 1));
+  }
+
+  private static InMemoryViewComputationResultModel results(ComputedValueResult... values) {
+    final InMemoryViewComputationResultModel results = new InMemoryViewComputationResultModel();
+    results.setViewCycleExecutionOptions(ViewCycleExecutionOptions.builder().setValuationTime(Instant.now()).create());
+    for (ComputedValueResult value : values) {
+      results.addValue(CALC_CONFIG, value);
+    }
+    return results;
+  }
+
+  @Test
+  public void historyRingBuffer() {
+    final ResultsCache cache = new ResultsCache();
+    for (int i = 1; i <= 25; i++) {
+      final Object value = (i == 23) ? MissingOutput.EVALUATION_ERROR : (Object) (double) i;
+      cache.put(results(new ComputedValueResult(_spec1, value, AggregatedExecutionLog.EMPTY)));
+    }
+    final List<Object> history = Lists.newArrayList(cache.getResult(CALC_CONFIG, _spec1, Double.class).getHistory());
+    assertEquals(20, history.size());
+    for (int i = 0; i < 20; i++) {
+      final int value = i + 6;
+      if (value == 23) {
+        assertEquals(MissingOutput.EVALUATION_ERROR, history.get(i));
+      } else {
+        assertEquals((double) value, history.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void hitsAndMisses() {
+    final ResultsCache cache = new ResultsCache();
+    cache.put(results(new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY)));
+    cache.getResult(CALC_CONFIG, _spec1, Double.class);
+    cache.getResult(CALC_CONFIG, _spec1, Double.class);
+    cache.getResult(CALC_CONFIG, _spec2, Double.class);
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void peekIsNotRecorded() {
+    final ResultsCache cache = new ResultsCache();
+    cache.put(results(new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY)));
+    assertEquals(1d, cache.peekResult(CALC_CONFIG, _spec1).getValue());
+    assertEquals(1, cache.peekResult(CALC_CONFIG, _spec1).getUpdateId());
+    assertNull(cache.peekResult(CALC_CONFIG, _spec2).getValue());
+    assertEquals(0, cache.getHitCount());
+    assertEquals(0, cache.getMissCount());
+  }
+
+  @Test
+  public void evictLeastRecentlyReadHistory() {
+    final ComputationTargetSpecification target3 = ComputationTargetSpecification.of(UniqueId.of("fake", "id3"));
+    final ValueSpecification spec3 = new ValueSpecification("req3", target3, ValueProperties.builder().with(ValuePropertyNames.FUNCTION, "fn3").get());
+    final ResultsCache unbounded = new ResultsCache();
+    unbounded.put(results(new ComputedValueResult(_spec1, "a", AggregatedExecutionLog.EMPTY)));
+    final long valueSize = unbounded.getEstimatedMemory();
+    unbounded.put(results(new ComputedValueResult(_spec2, 1d, AggregatedExecutionLog.EMPTY)));
+    final long itemSize = unbounded.getEstimatedMemory() - valueSize;
+    final long historySize = itemSize - valueSize;
+    // room for three values and two histories but not three histories
+    final ResultsCache cache = new ResultsCache(itemSize * 3 - historySize / 4);
+
+    cache.put(results(new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY),
+                      new ComputedValueResult(_spec2, 2d, AggregatedExecutionLog.EMPTY)));
+    cache.put(results(new ComputedValueResult(_spec1, 3d, AggregatedExecutionLog.EMPTY)));
+    // spec1 was updated more recently but spec2 was read more recently
+    cache.getResult(CALC_CONFIG, _spec2, Double.class);
+    // peeking doesn't count as a read
+    cache.peekResult(CALC_CONFIG, _spec1);
+    cache.put(results(new ComputedValueResult(spec3, 4d, AggregatedExecutionLog.EMPTY)));
+
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(itemSize * 2 + valueSize, cache.getEstimatedMemory());
+    // the latest value is kept, only the history is evicted
+    assertEquals(3d, cache.peekResult(CALC_CONFIG, _spec1).getValue());
+    final ResultsCache.Result result1 = cache.getResult(CALC_CONFIG, _spec1, Double.class);
+    assertEquals(3d, result1.getValue());
+    assertTrue(result1.getHistory().isEmpty());
+    assertEquals(3, cache.getResult(CALC_CONFIG, _spec2, Double.class).getHistory().size());
+    assertEquals(4d, cache.getResult(CALC_CONFIG, spec3, Double.class).getValue());
+    // the history starts again after the result has been read
+    cache.put(results(new ComputedValueResult(_spec1, 5d, AggregatedExecutionLog.EMPTY)));
+    final ResultsCache.Result result2 = cache.getResult(CALC_CONFIG, _spec1, Double.class);
+    assertEquals(5d, result2.getValue());
+    assertEquals(Lists.newArrayList((Object) 5d), Lists.newArrayList(result2.getHistory()));
+  }
+
+  @Test
+  public void memoryEstimateFollowsHistory() {
+    final ResultsCache cache = new ResultsCache();
+    cache.put(results(new ComputedValueResult(_spec1, 1d, AggregatedExecutionLog.EMPTY)));
+    final long initial = cache.getEstimatedMemory();
+    // numeric history is preallocated so adding numbers doesn't change the estimate
+    cache.put(results(new ComputedValueResult(_spec1, 2d, AggregatedExecutionLog.EMPTY)));
+    assertEquals(initial, cache.getEstimatedMemory());
+    // errors are stored as references which are allocated on demand
+    cache.put(results(new ComputedValueResult(_spec1, MissingOutput.EVALUATION_ERROR, AggregatedExecutionLog.EMPTY)));
+    assertTrue(cache.getEstimatedMemory() > initial);
+  }
 }
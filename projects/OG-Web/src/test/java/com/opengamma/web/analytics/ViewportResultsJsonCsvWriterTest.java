@@ -60,7 +60,7 @@ public class ViewportResultsJsonCsvWriterTest {
   }
 
   private List<ResultsCell> createResults(Object value, List<Object> history, Class<?> columnType) {
-    return ImmutableList.of(ResultsCell.forCalculatedValue(value, _valueSpec, history, null, false, columnType, TypeFormatter.Format.CELL));
+    return ImmutableList.of(ResultsCell.forCalculatedValue(value, _valueSpec, history, null, false, 1, columnType, TypeFormatter.Format.CELL));
   }
 
   @Test
@@ -137,6 +137,29 @@ public class ViewportResultsJsonCsvWriterTest {
     assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
   }
 
+  @Test
+  public void trackedResults() throws JSONException {
+    List<ResultsCell> results = createResults("val", null, String.class);
+    ViewportResults viewportResults = new ViewportResults(results, _viewportDefinition, createColumns(String.class), DURATION, CALC_TIME, 3)
+        .withAcknowledgedUpdateId(ViewportResults.NOT_ACKNOWLEDGED);
+    String json = _writer.getJson(viewportResults);
+    String expectedJson = "{\"version\":0, \"updateId\":3, \"calculationDuration\":\"1,234\", \"data\":[{\"v\":\"val\"}]}";
+    assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
+  }
+
+  @Test
+  public void deltaResults() throws JSONException {
+    List<ResultsCell> results = ImmutableList.of(
+        ResultsCell.forStaticValue("label", String.class, TypeFormatter.Format.CELL),
+        ResultsCell.forCalculatedValue("old", _valueSpec, null, null, false, 1, String.class, TypeFormatter.Format.CELL),
+        ResultsCell.forCalculatedValue("new", _valueSpec, null, null, true, 3, String.class, TypeFormatter.Format.CELL));
+    ViewportResults viewportResults = new ViewportResults(results, _viewportDefinition, createColumns(String.class), DURATION, CALC_TIME, 3)
+        .withAcknowledgedUpdateId(2);
+    String json = _writer.getJson(viewportResults);
+    String expectedJson = "{\"version\":0, \"updateId\":3, \"calculationDuration\":\"1,234\", \"delta\":{\"2\":{\"v\":\"new\"}}}";
+    assertTrue(JsonTestUtils.equal(new JSONObject(expectedJson), new JSONObject(json)));
+  }
+
   private static class TestCellRenderer implements GridColumn.CellRenderer {
 
     @Override
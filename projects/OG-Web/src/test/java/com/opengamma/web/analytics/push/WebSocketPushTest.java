@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.web.analytics.push;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+
+import org.eclipse.jetty.continuation.Continuation;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests pushing updates to a web socket, including flow control and falling back to long polling.
+ */
+@Test(groups = TestGroup.UNIT)
+public class WebSocketPushTest {
+
+  private LongPollingConnectionManager _connectionManager;
+  private LongPollingUpdateListener _listener;
+  private WebSocketPushConnection _webSocket;
+
+  @BeforeMethod
+  public void setUp() {
+    _connectionManager = new LongPollingConnectionManager();
+    _listener = _connectionManager.handshake(null, "CLIENT_ID", mock(ConnectionTimeoutTask.class));
+    _webSocket = mock(WebSocketPushConnection.class);
+  }
+
+  private static String updates(Object... urls) throws JSONException {
+    return new JSONObject().put(LongPollingUpdateListener.UPDATES, ImmutableList.copyOf(urls)).toString();
+  }
+
+  @Test
+  public void queuedUpdatesSentOnConnect() throws Exception {
+    _listener.itemUpdated("URL1");
+    assertTrue(_connectionManager.webSocketConnect(null, "CLIENT_ID", _webSocket));
+    verify(_webSocket).send(updates("URL1"));
+    assertTrue(_connectionManager.isClientConnected("CLIENT_ID"));
+  }
+
+  @Test
+  public void unknownClient() {
+    assertFalse(_connectionManager.webSocketConnect(null, "UNKNOWN", _webSocket));
+  }
+
+  @Test
+  public void flowControl() throws Exception {
+    _connectionManager.webSocketConnect(null, "CLIENT_ID", _webSocket);
+    for (int i = 0; i < LongPollingUpdateListener.MAX_UNACKNOWLEDGED; i++) {
+      _listener.itemUpdated("URL" + i);
+      verify(_webSocket).send(updates("URL" + i));
+    }
+    // nothing else is sent until the client acknowledges, duplicate updates are coalesced
+    _listener.itemUpdated("URLA");
+    _listener.itemsUpdated(ImmutableList.of("URLA", "URLB"));
+    _connectionManager.webSocketReceived("CLIENT_ID", _webSocket, false);
+    verifyNoMoreInteractions(_webSocket);
+    _connectionManager.webSocketReceived("CLIENT_ID", _webSocket, true);
+    verify(_webSocket).send(updates("URLA", "URLB"));
+    verifyNoMoreInteractions(_webSocket);
+  }
+
+  @Test
+  public void fallBackToLongPolling() throws Exception {
+    _connectionManager.webSocketConnect(null, "CLIENT_ID", _webSocket);
+    _connectionManager.webSocketDisconnect("CLIENT_ID", _webSocket);
+    assertFalse(_connectionManager.isClientConnected("CLIENT_ID"));
+    _listener.itemUpdated("URL1");
+    verify(_webSocket, never()).send(anyString());
+    Continuation continuation = mock(Continuation.class);
+    _connectionManager.longPollHttpConnect(null, "CLIENT_ID", continuation);
+    verify(continuation).setAttribute(LongPollingServlet.RESULTS, updates("URL1"));
+    verify(continuation).resume();
+  }
+
+  @Test
+  public void sendFailure() throws Exception {
+    _connectionManager.webSocketConnect(null, "CLIENT_ID", _webSocket);
+    doThrow(new IOException()).when(_webSocket).send(anyString());
+    _listener.itemUpdated("URL1");
+    verify(_webSocket).close();
+    assertFalse(_connectionManager.isClientConnected("CLIENT_ID"));
+    // the update that couldn't be written is sent to the next connection
+    WebSocketPushConnection webSocket = mock(WebSocketPushConnection.class);
+    _connectionManager.webSocketConnect(null, "CLIENT_ID", webSocket);
+    verify(webSocket).send(updates("URL1"));
+  }
+
+  @Test
+  public void sendWithoutHoldingLock() throws Exception {
+    _connectionManager.webSocketConnect(null, "CLIENT_ID", _webSocket);
+    final Thread[] updater = new Thread[1];
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        // another update arriving while the socket is being written mustn't have to wait for the write
+        updater[0] = new Thread() {
+          @Override
+          public void run() {
+            _listener.itemUpdated("URL2");
+          }
+        };
+        updater[0].start();
+        updater[0].join(5000);
+        return null;
+      }
+    }).when(_webSocket).send(updates("URL1"));
+    _listener.itemUpdated("URL1");
+    assertFalse(updater[0].isAlive());
+    verify(_webSocket).send(updates("URL2"));
+  }
+
+}
@@ -40,10 +40,14 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
   @PropertyDefinition(validate = "notNull")
   private JmsConnector _jmsConnector;
 
+  /** Whether to receive conflated ticks rather than every tick, default false. */
+  @PropertyDefinition
+  private boolean _conflatedTicks;
+
   @Override
   public void init(ComponentRepository repo, LinkedHashMap<String, String> configuration) throws Exception {
     Collection<LiveDataMetaDataProvider> providers = repo.getInstances(LiveDataMetaDataProvider.class);
-    LiveMarketDataFactory factory = new LiveMarketDataFactory(providers, _jmsConnector);
+    LiveMarketDataFactory factory = new LiveMarketDataFactory(providers, _jmsConnector, _conflatedTicks);
     repo.registerComponent(LiveMarketDataFactory.class, _classifier, factory);
   }
   //------------------------- AUTOGENERATED START -------------------------
@@ -117,6 +121,31 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
     return metaBean().jmsConnector().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets whether to receive conflated ticks rather than every tick, default false.
+   * @return the value of the property
+   */
+  public boolean isConflatedTicks() {
+    return _conflatedTicks;
+  }
+
+  /**
+   * Sets whether to receive conflated ticks rather than every tick, default false.
+   * @param conflatedTicks  the new value of the property
+   */
+  public void setConflatedTicks(boolean conflatedTicks) {
+    this._conflatedTicks = conflatedTicks;
+  }
+
+  /**
+   * Gets the the {@code conflatedTicks} property.
+   * @return the property, not null
+   */
+  public final Property<Boolean> conflatedTicks() {
+    return metaBean().conflatedTicks().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   @Override
   public LiveMarketDataFactoryComponentFactory clone() {
@@ -132,6 +161,7 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
       LiveMarketDataFactoryComponentFactory other = (LiveMarketDataFactoryComponentFactory) obj;
       return JodaBeanUtils.equal(getClassifier(), other.getClassifier()) &&
           JodaBeanUtils.equal(getJmsConnector(), other.getJmsConnector()) &&
+          (isConflatedTicks() == other.isConflatedTicks()) &&
           super.equals(obj);
     }
     return false;
@@ -142,12 +172,13 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
     int hash = 7;
     hash = hash * 31 + JodaBeanUtils.hashCode(getClassifier());
     hash = hash * 31 + JodaBeanUtils.hashCode(getJmsConnector());
+    hash = hash * 31 + JodaBeanUtils.hashCode(isConflatedTicks());
     return hash ^ super.hashCode();
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(96);
+    StringBuilder buf = new StringBuilder(128);
     buf.append("LiveMarketDataFactoryComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -163,6 +194,7 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
     super.toString(buf);
     buf.append("classifier").append('=').append(JodaBeanUtils.toString(getClassifier())).append(',').append(' ');
     buf.append("jmsConnector").append('=').append(JodaBeanUtils.toString(getJmsConnector())).append(',').append(' ');
+    buf.append("conflatedTicks").append('=').append(JodaBeanUtils.toString(isConflatedTicks())).append(',').append(' ');
   }
 
   //-----------------------------------------------------------------------
@@ -185,13 +217,19 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
      */
     private final MetaProperty<JmsConnector> _jmsConnector = DirectMetaProperty.ofReadWrite(
         this, "jmsConnector", LiveMarketDataFactoryComponentFactory.class, JmsConnector.class);
+    /**
+     * The meta-property for the {@code conflatedTicks} property.
+     */
+    private final MetaProperty<Boolean> _conflatedTicks = DirectMetaProperty.ofReadWrite(
+        this, "conflatedTicks", LiveMarketDataFactoryComponentFactory.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
     private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
         this, (DirectMetaPropertyMap) super.metaPropertyMap(),
         "classifier",
-        "jmsConnector");
+        "jmsConnector",
+        "conflatedTicks");
 
     /**
      * Restricted constructor.
@@ -206,6 +244,8 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
           return _classifier;
         case -1495762275:  // jmsConnector
           return _jmsConnector;
+        case 1111892156:  // conflatedTicks
+          return _conflatedTicks;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -242,6 +282,14 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
       return _jmsConnector;
     }
 
+    /**
+     * The meta-property for the {@code conflatedTicks} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Boolean> conflatedTicks() {
+      return _conflatedTicks;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
@@ -250,6 +298,8 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
           return ((LiveMarketDataFactoryComponentFactory) bean).getClassifier();
         case -1495762275:  // jmsConnector
           return ((LiveMarketDataFactoryComponentFactory) bean).getJmsConnector();
+        case 1111892156:  // conflatedTicks
+          return ((LiveMarketDataFactoryComponentFactory) bean).isConflatedTicks();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -263,6 +313,9 @@ public class LiveMarketDataFactoryComponentFactory extends AbstractComponentFact
         case -1495762275:  // jmsConnector
           ((LiveMarketDataFactoryComponentFactory) bean).setJmsConnector((JmsConnector) newValue);
           return;
+        case 1111892156:  // conflatedTicks
+          ((LiveMarketDataFactoryComponentFactory) bean).setConflatedTicks((Boolean) newValue);
+          return;
       }
       super.propertySet(bean, propertyName, newValue, quiet);
     }
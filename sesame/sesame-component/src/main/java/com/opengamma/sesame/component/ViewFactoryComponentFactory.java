@@ -139,6 +139,12 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
   @PropertyDefinition
   private long _maxCacheEntries = MAX_CACHE_ENTRIES;
 
+  /**
+   * Estimated memory in bytes the cache may use, zero to limit the cache to {@code maxCacheEntries} values.
+   */
+  @PropertyDefinition
+  private long _cacheMemoryBudget;
+
   /**
    * The set of function services to be enabled for the server for
    * most runs of the engine. These can be overridden at run time
@@ -191,7 +197,9 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
                                               functionServices,
                                               cacheBuilder,
                                               cacheInvalidator,
-                                              Optional.fromNullable(_metricRegistry));
+                                              Optional.fromNullable(_metricRegistry),
+                                              ViewFactory.DEFAULT_MAX_VIEWS,
+                                              _cacheMemoryBudget);
 
     repo.registerComponent(ViewFactory.class, getClassifier(), viewFactory);
     repo.registerComponent(AvailableOutputs.class, getClassifier(), availableOutputs);
@@ -482,6 +490,31 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
     return metaBean().maxCacheEntries().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets estimated memory in bytes the cache may use, zero to limit the cache to {@code maxCacheEntries} values.
+   * @return the value of the property
+   */
+  public long getCacheMemoryBudget() {
+    return _cacheMemoryBudget;
+  }
+
+  /**
+   * Sets estimated memory in bytes the cache may use, zero to limit the cache to {@code maxCacheEntries} values.
+   * @param cacheMemoryBudget  the new value of the property
+   */
+  public void setCacheMemoryBudget(long cacheMemoryBudget) {
+    this._cacheMemoryBudget = cacheMemoryBudget;
+  }
+
+  /**
+   * Gets the the {@code cacheMemoryBudget} property.
+   * @return the property, not null
+   */
+  public final Property<Long> cacheMemoryBudget() {
+    return metaBean().cacheMemoryBudget().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   /**
    * Gets the set of function services to be enabled for the server for
@@ -560,6 +593,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
       return JodaBeanUtils.equal(getClassifier(), other.getClassifier()) &&
           JodaBeanUtils.equal(getLiveMarketDataProviderFactory(), other.getLiveMarketDataProviderFactory()) &&
           (getMaxCacheEntries() == other.getMaxCacheEntries()) &&
+          (getCacheMemoryBudget() == other.getCacheMemoryBudget()) &&
           JodaBeanUtils.equal(getDefaultFunctionServices(), other.getDefaultFunctionServices()) &&
           JodaBeanUtils.equal(getMetricRegistry(), other.getMetricRegistry()) &&
           super.equals(obj);
@@ -573,6 +607,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
     hash = hash * 31 + JodaBeanUtils.hashCode(getClassifier());
     hash = hash * 31 + JodaBeanUtils.hashCode(getLiveMarketDataProviderFactory());
     hash = hash * 31 + JodaBeanUtils.hashCode(getMaxCacheEntries());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getCacheMemoryBudget());
     hash = hash * 31 + JodaBeanUtils.hashCode(getDefaultFunctionServices());
     hash = hash * 31 + JodaBeanUtils.hashCode(getMetricRegistry());
     return hash ^ super.hashCode();
@@ -580,7 +615,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(192);
+    StringBuilder buf = new StringBuilder(224);
     buf.append("ViewFactoryComponentFactory{");
     int len = buf.length();
     toString(buf);
@@ -597,6 +632,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
     buf.append("classifier").append('=').append(JodaBeanUtils.toString(getClassifier())).append(',').append(' ');
     buf.append("liveMarketDataProviderFactory").append('=').append(JodaBeanUtils.toString(getLiveMarketDataProviderFactory())).append(',').append(' ');
     buf.append("maxCacheEntries").append('=').append(JodaBeanUtils.toString(getMaxCacheEntries())).append(',').append(' ');
+    buf.append("cacheMemoryBudget").append('=').append(JodaBeanUtils.toString(getCacheMemoryBudget())).append(',').append(' ');
     buf.append("defaultFunctionServices").append('=').append(JodaBeanUtils.toString(getDefaultFunctionServices())).append(',').append(' ');
     buf.append("metricRegistry").append('=').append(JodaBeanUtils.toString(getMetricRegistry())).append(',').append(' ');
   }
@@ -626,6 +662,11 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
      */
     private final MetaProperty<Long> _maxCacheEntries = DirectMetaProperty.ofReadWrite(
         this, "maxCacheEntries", ViewFactoryComponentFactory.class, Long.TYPE);
+    /**
+     * The meta-property for the {@code cacheMemoryBudget} property.
+     */
+    private final MetaProperty<Long> _cacheMemoryBudget = DirectMetaProperty.ofReadWrite(
+        this, "cacheMemoryBudget", ViewFactoryComponentFactory.class, Long.TYPE);
     /**
      * The meta-property for the {@code defaultFunctionServices} property.
      */
@@ -645,6 +686,7 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
         "classifier",
         "liveMarketDataProviderFactory",
         "maxCacheEntries",
+        "cacheMemoryBudget",
         "defaultFunctionServices",
         "metricRegistry");
 
@@ -663,6 +705,8 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
           return _liveMarketDataProviderFactory;
         case -949200334:  // maxCacheEntries
           return _maxCacheEntries;
+        case 1536009288:  // cacheMemoryBudget
+          return _cacheMemoryBudget;
         case -544798537:  // defaultFunctionServices
           return _defaultFunctionServices;
         case 1925437965:  // metricRegistry
@@ -711,6 +755,14 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
       return _maxCacheEntries;
     }
 
+    /**
+     * The meta-property for the {@code cacheMemoryBudget} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Long> cacheMemoryBudget() {
+      return _cacheMemoryBudget;
+    }
+
     /**
      * The meta-property for the {@code defaultFunctionServices} property.
      * @return the meta-property, not null
@@ -737,6 +789,8 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
           return ((ViewFactoryComponentFactory) bean).getLiveMarketDataProviderFactory();
         case -949200334:  // maxCacheEntries
           return ((ViewFactoryComponentFactory) bean).getMaxCacheEntries();
+        case 1536009288:  // cacheMemoryBudget
+          return ((ViewFactoryComponentFactory) bean).getCacheMemoryBudget();
         case -544798537:  // defaultFunctionServices
           return ((ViewFactoryComponentFactory) bean).getDefaultFunctionServices();
         case 1925437965:  // metricRegistry
@@ -758,6 +812,9 @@ public class ViewFactoryComponentFactory extends AbstractComponentFactory {
         case -949200334:  // maxCacheEntries
           ((ViewFactoryComponentFactory) bean).setMaxCacheEntries((Long) newValue);
           return;
+        case 1536009288:  // cacheMemoryBudget
+          ((ViewFactoryComponentFactory) bean).setCacheMemoryBudget((Long) newValue);
+          return;
         case -544798537:  // defaultFunctionServices
           ((ViewFactoryComponentFactory) bean).setDefaultFunctionServices((List<String>) newValue);
           return;
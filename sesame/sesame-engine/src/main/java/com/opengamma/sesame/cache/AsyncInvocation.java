@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Allows a calculation to be suspended instead of blocking when it needs a cached value that is being calculated
+ * by another thread.
+ * <p>
+ * Non-blocking invocation is enabled for the current thread by calling {@link #begin()}. While it is enabled,
+ * a caching proxy that needs a value being calculated by another thread throws {@link CalculationPendingException}
+ * instead of waiting for it. The exception unwinds the calculation and frees the thread to do other work.
+ * {@link #end()} returns a future that completes when the value is no longer being calculated, at which point
+ * the calculation can be retried. Values calculated before the suspension are in the cache so the retry only
+ * repeats the work that was interrupted.
+ * <p>
+ * A function might catch the exception and return a failure so the suspension is also recorded for the thread.
+ * A value calculated after the thread was suspended is never cached and the result of the calculation
+ * must be discarded by the caller of {@code end()}.
+ */
+public final class AsyncInvocation {
+
+  /** The state of the calculation running on the current thread. */
+  private static final ThreadLocal<State> s_state = new ThreadLocal<State>() {
+    @Override
+    protected State initialValue() {
+      return new State();
+    }
+  };
+
+  private AsyncInvocation() {
+  }
+
+  /**
+   * Enables non-blocking invocation for the current thread.
+   */
+  public static void begin() {
+    State state = s_state.get();
+    state._enabled = true;
+    state._pending = null;
+  }
+
+  /**
+   * Disables non-blocking invocation for the current thread.
+   *
+   * @return a future that completes when the calculation can be retried, null if the calculation
+   *   wasn't suspended
+   */
+  public static ListenableFuture<?> end() {
+    State state = s_state.get();
+    ListenableFuture<?> pending = state._pending;
+    state._enabled = false;
+    state._pending = null;
+    return pending;
+  }
+
+  /**
+   * @return true if non-blocking invocation is enabled for the current thread
+   */
+  public static boolean isEnabled() {
+    return s_state.get()._enabled;
+  }
+
+  /**
+   * Records that the calculation on the current thread is waiting for a value calculated by another thread.
+   *
+   * @param future completes when the value is no longer being calculated
+   * @return an exception to throw to unwind the calculation
+   */
+  static CalculationPendingException suspend(ListenableFuture<?> future) {
+    State state = s_state.get();
+
+    // the first suspension is the one the calculation needs to wait for
+    if (state._pending == null) {
+      state._pending = future;
+    }
+    return new CalculationPendingException(future);
+  }
+
+  /**
+   * Throws an exception if the calculation on the current thread has been suspended. This is called
+   * before a value is put in the cache so a value calculated using a failure caused by the suspension
+   * isn't cached.
+   *
+   * @throws CalculationPendingException if the calculation has been suspended
+   */
+  static void checkNotSuspended() {
+    ListenableFuture<?> pending = s_state.get()._pending;
+
+    if (pending != null) {
+      throw new CalculationPendingException(pending);
+    }
+  }
+
+  /**
+   * Mutable state of the calculation running on a thread.
+   */
+  private static final class State {
+
+    private boolean _enabled;
+    private ListenableFuture<?> _pending;
+  }
+}
@@ -7,15 +7,20 @@ package com.opengamma.sesame.cache;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.opengamma.sesame.Environment;
 import com.opengamma.sesame.config.EngineUtils;
 import com.opengamma.sesame.function.scenarios.FilteredScenarioDefinition;
@@ -28,7 +33,10 @@ import com.opengamma.sesame.graph.NodeDecorator;
 import com.opengamma.sesame.graph.ProxyNode;
 import com.opengamma.sesame.proxy.AbstractProxyInvocationHandler;
 import com.opengamma.sesame.proxy.InvocationHandlerFactory;
+import com.opengamma.sesame.proxy.ProxyGenerator;
 import com.opengamma.sesame.proxy.ProxyInvocationHandler;
+import com.opengamma.sesame.proxy.ProxyMethod;
+import com.opengamma.sesame.proxy.ProxyMethodInvocationHandler;
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -40,6 +48,7 @@ public class CachingProxyDecorator extends NodeDecorator {
 
   private final ExecutingMethodsThreadLocal _executingMethods;
   private final CacheProvider _cacheProvider;
+  private final InFlightCalculations _inFlightCalculations;
 
   /**
    * Constructs an instance for throwaway uses where the cache doesn't need to be invalidated (e.g. tools)
@@ -55,8 +64,20 @@ public class CachingProxyDecorator extends NodeDecorator {
    * @param executingMethods records the currently executing methods and allows cache entries to be removed when
    */
   public CachingProxyDecorator(CacheProvider cacheProvider, ExecutingMethodsThreadLocal executingMethods) {
+    this(cacheProvider, executingMethods, new InFlightCalculations());
+  }
+
+  /**
+   * @param cacheProvider provider of a cache used to store the calculated values
+   * @param executingMethods records the currently executing methods and allows cache entries to be removed when
+   * @param inFlightCalculations the values being calculated, shared by everything using the same cache
+   */
+  public CachingProxyDecorator(CacheProvider cacheProvider,
+                               ExecutingMethodsThreadLocal executingMethods,
+                               InFlightCalculations inFlightCalculations) {
     _cacheProvider = cacheProvider;
     _executingMethods = ArgumentChecker.notNull(executingMethods, "executingMethods");
+    _inFlightCalculations = ArgumentChecker.notNull(inFlightCalculations, "inFlightCalculations");
   }
 
   @Override
@@ -77,7 +98,8 @@ public class CachingProxyDecorator extends NodeDecorator {
         EngineUtils.hasMethodAnnotation(implementationType, Cacheable.class)) {
       Set<Class<?>> subtreeTypes = subtreeImplementationTypes(node);
       CachingHandlerFactory handlerFactory =
-          new CachingHandlerFactory(implementationType, interfaceType, _cacheProvider, _executingMethods, subtreeTypes);
+          new CachingHandlerFactory(implementationType, interfaceType, _cacheProvider, _executingMethods,
+                                    _inFlightCalculations, subtreeTypes);
       return createProxyNode(node, interfaceType, implementationType, handlerFactory);
     }
     return node;
@@ -119,14 +141,17 @@ public class CachingProxyDecorator extends NodeDecorator {
     private final ExecutingMethodsThreadLocal _executingMethods;
     private final Set<Class<?>> _subtreeTypes;
     private final CacheProvider _cacheProvider;
+    private final InFlightCalculations _inFlightCalculations;
 
     private CachingHandlerFactory(Class<?> implementationType,
                                   Class<?> interfaceType,
                                   CacheProvider cacheProvider,
                                   ExecutingMethodsThreadLocal executingMethods,
+                                  InFlightCalculations inFlightCalculations,
                                   Set<Class<?>> subtreeTypes) {
       _cacheProvider = ArgumentChecker.notNull(cacheProvider, "cacheProvider");
       _executingMethods = ArgumentChecker.notNull(executingMethods, "executingMethods");
+      _inFlightCalculations = ArgumentChecker.notNull(inFlightCalculations, "inFlightCalculations");
       _subtreeTypes = ArgumentChecker.notNull(subtreeTypes, "subtreeTypes");
       _implementationType = ArgumentChecker.notNull(implementationType, "implementationType");
       _interfaceType = ArgumentChecker.notNull(interfaceType, "interfaceType");
@@ -155,7 +180,19 @@ public class CachingProxyDecorator extends NodeDecorator {
           }
         }
       }
-      return new Handler(delegate, cachedMethods, _cacheProvider, _executingMethods, _subtreeTypes, functionIdProvider);
+      // the @Cacheable check for generated proxies is a lookup by method index instead of a hash lookup
+      boolean[] cacheable;
+      if (node.isGeneratedProxy()) {
+        List<ProxyMethod> proxyMethods = ProxyGenerator.getProxyMethods(_interfaceType);
+        cacheable = new boolean[proxyMethods.size()];
+        for (ProxyMethod proxyMethod : proxyMethods) {
+          cacheable[proxyMethod.getIndex()] = cachedMethods.contains(proxyMethod.getMethod());
+        }
+      } else {
+        cacheable = new boolean[0];
+      }
+      return new Handler(delegate, cachedMethods, cacheable, _cacheProvider, _executingMethods, _inFlightCalculations,
+                         _subtreeTypes, functionIdProvider);
     }
 
     @Override
@@ -186,29 +223,39 @@ public class CachingProxyDecorator extends NodeDecorator {
    * If the cache doesn't contain an element the underlying object is called and the cache is populated.
    * The values in the cache are futures. This allows multiple threads to request the same value and for all of
    * them to block while the first thread calculates it.
+   * If {@link AsyncInvocation} is enabled for the thread it doesn't block. If the value is being calculated by
+   * another thread the calculation is suspended and can be retried when the value is available.
    * This is package scoped for testing.
    */
-  /* package */ static final class Handler extends AbstractProxyInvocationHandler {
+  /* package */ static final class Handler extends AbstractProxyInvocationHandler implements ProxyMethodInvocationHandler {
 
     private final Object _delegate;
     private final Set<Method> _cachedMethods;
+    /** Whether each method of a generated proxy is cacheable, indexed by {@link ProxyMethod#getIndex()}. */
+    private final boolean[] _cacheable;
     private final CacheProvider _cacheProvider;
     private final ExecutingMethodsThreadLocal _executingMethods;
     private final Set<Class<?>> _subtreeTypes;
     private final FunctionId _functionId;
+    /** The values being calculated by threads using non-blocking invocation, shared by all users of the cache. */
+    private final InFlightCalculations _inFlight;
 
     private Handler(Object delegate,
                     Set<Method> cachedMethods,
+                    boolean[] cacheable,
                     CacheProvider cacheProvider,
                     ExecutingMethodsThreadLocal executingMethods,
+                    InFlightCalculations inFlight,
                     Set<Class<?>> subtreeTypes,
                     FunctionIdProvider functionIdProvider) {
       super(delegate);
       _subtreeTypes = ArgumentChecker.notNull(subtreeTypes, "subtreeTypes");
       _cacheProvider = ArgumentChecker.notNull(cacheProvider, "cache");
       _executingMethods = ArgumentChecker.notNull(executingMethods, "executingMethods");
+      _inFlight = ArgumentChecker.notNull(inFlight, "inFlight");
       _delegate = ArgumentChecker.notNull(delegate, "delegate");
       _cachedMethods = ArgumentChecker.notNull(cachedMethods, "cachedMethods");
+      _cacheable = ArgumentChecker.notNull(cacheable, "cacheable");
       Object proxiedObject = EngineUtils.getProxiedObject(delegate);
       _functionId = functionIdProvider.getFunctionId(proxiedObject);
     }
@@ -237,7 +284,7 @@ public class CachingProxyDecorator extends NodeDecorator {
         // create a task to calculate the value if it's not in the cache - calls the underlying method
         CallableMethod calculationTask = new CallableMethod(key, method, args);
         // get the value from the cache - if it's not already present it's calculated
-        return _cacheProvider.get().get(key, calculationTask);
+        return getCachedValue(key, calculationTask);
       } else {
         // the method isn't annotated with @Cacheable, call it
         try {
@@ -249,6 +296,81 @@ public class CachingProxyDecorator extends NodeDecorator {
       }
     }
 
+    /**
+     * Handles a method invocation from a generated proxy. This has the same behaviour as
+     * {@link #invoke(Object, Method, Object[])} but the delegate is called without reflection.
+     *
+     * @param proxy  the proxy on which the method was invoked
+     * @param method  the method which was invoked
+     * @param args  the method arguments
+     * @return  the return value of the underlying method or a previously cached value
+     * @throws Throwable  if the underlying method throws an exception
+     */
+    @Override
+    public Object invoke(Object proxy, ProxyMethod method, Object[] args) throws Throwable {
+      int index = method.getIndex();
+      boolean cacheable = index < _cacheable.length ? _cacheable[index] : _cachedMethods.contains(method.getMethod());
+
+      if (cacheable) {
+        Object[] keyArgs = getArgumentsForCacheKey(args);
+        MethodInvocationKey key = new MethodInvocationKey(_functionId, method.getMethod(), keyArgs);
+        return getCachedValue(key, new CallableProxyMethod(key, method, args));
+      } else {
+        return method.invoke(_delegate, args);
+      }
+    }
+
+    /**
+     * Returns a value from the cache, calculating it if it's not present.
+     * <p>
+     * If non-blocking invocation isn't enabled for the thread this blocks if another thread is calculating the value.
+     * Otherwise the thread claims the calculation before calculating the value. If the value has been claimed by
+     * another thread a {@link CalculationPendingException} is thrown instead of waiting for it.
+     *
+     * <p>
+     * If the market data used by the calculation is being recorded, the data used to calculate the value is
+     * added to it. See {@link DependencyRecorder}.
+     *
+     * @param key the key of the value
+     * @param calculationTask calculates the value if it isn't in the cache
+     * @return the value
+     * @throws Throwable if the value can't be calculated
+     */
+    private Object getCachedValue(MethodInvocationKey key, Callable<Object> calculationTask) throws Throwable {
+      try {
+        return lookUpValue(key, calculationTask);
+      } finally {
+        // a failure depends on the data read by the calculation as much as a value does
+        DependencyRecorder.valueUsed(key);
+      }
+    }
+
+    private Object lookUpValue(MethodInvocationKey key, Callable<Object> calculationTask) throws Throwable {
+      Cache<Object, Object> cache = _cacheProvider.get();
+
+      if (!AsyncInvocation.isEnabled()) {
+        return cache.get(key, calculationTask);
+      }
+      Object value = cache.getIfPresent(key);
+
+      if (value != null) {
+        return value;
+      }
+      InFlightCalculations.Claim claim = _inFlight.claim(key);
+
+      try {
+        return cache.get(key, calculationTask);
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        // unwrap the exception so it isn't treated as a failure of this function
+        if (e.getCause() instanceof CalculationPendingException) {
+          throw e.getCause();
+        }
+        throw e;
+      } finally {
+        claim.release();
+      }
+    }
+
     /**
      * <p>Returns the method call arguments that should be used in the cache key for the call's return value.
      * If the input arguments don't have an {@link Environment} as their first element they are returned.
@@ -304,7 +426,11 @@ public class CachingProxyDecorator extends NodeDecorator {
       public Object call() throws Exception {
         try {
           _executingMethods.push(_key);
-          return _method.invoke(_delegate, _args);
+          DependencyRecorder.startCalculation();
+          Object value = _method.invoke(_delegate, _args);
+          // a value calculated after the calculation was suspended mustn't be cached
+          AsyncInvocation.checkNotSuspended();
+          return value;
         } catch (IllegalAccessException | InvocationTargetException e) {
           Throwable cause = e.getCause();
           if (cause instanceof Error) {
@@ -313,6 +439,42 @@ public class CachingProxyDecorator extends NodeDecorator {
             throw ((Exception) cause);
           }
         } finally {
+          DependencyRecorder.endCalculation(_key);
+          _executingMethods.pop();
+        }
+      }
+    }
+
+    /**
+     * Calls a method of a generated proxy to calculate a value for the cache.
+     */
+    private class CallableProxyMethod implements Callable<Object> {
+
+      private final MethodInvocationKey _key;
+      private final ProxyMethod _method;
+      private final Object[] _args;
+
+      private CallableProxyMethod(MethodInvocationKey key, ProxyMethod method, Object[] args) {
+        _key = key;
+        _method = method;
+        _args = args;
+      }
+
+      @Override
+      public Object call() throws Exception {
+        try {
+          _executingMethods.push(_key);
+          DependencyRecorder.startCalculation();
+          Object value = _method.invoke(_delegate, _args);
+          // a value calculated after the calculation was suspended mustn't be cached
+          AsyncInvocation.checkNotSuspended();
+          return value;
+        } catch (Exception | Error e) {
+          throw e;
+        } catch (Throwable t) {
+          throw new UndeclaredThrowableException(t);
+        } finally {
+          DependencyRecorder.endCalculation(_key);
           _executingMethods.pop();
         }
       }
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Thrown to unwind a calculation that needs a value being calculated by another thread.
+ * <p>
+ * This is only thrown when non-blocking invocation has been enabled for the thread using
+ * {@link AsyncInvocation#begin()}. The calculation should be retried when the future completes.
+ * The exception is thrown for control flow and doesn't fill in its stack trace.
+ */
+public final class CalculationPendingException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Completes when the value is no longer being calculated. */
+  private final transient ListenableFuture<?> _future;
+
+  /**
+   * @param future completes when the value is no longer being calculated
+   */
+  CalculationPendingException(ListenableFuture<?> future) {
+    super("Calculation suspended waiting for a value calculated by another thread", null, false, false);
+    _future = ArgumentChecker.notNull(future, "future");
+  }
+
+  /**
+   * @return a future that completes when the value is no longer being calculated
+   */
+  public ListenableFuture<?> getFuture() {
+    return _future;
+  }
+}
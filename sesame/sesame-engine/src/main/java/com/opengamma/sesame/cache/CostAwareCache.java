@@ -0,0 +1,454 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Cache for function return values which evicts entries based on their cost and size to stay within a memory budget.
+ * <p>
+ * The time taken to calculate each value and an estimate of its size are recorded when the value is added to
+ * the cache. When the estimated size of the cache exceeds its budget the entries with the lowest priority are
+ * evicted until it is comfortably within the budget. The priority of an entry is
+ * <pre>
+ *   inflation + hits * calculationTime / size
+ * </pre>
+ * so values which are expensive to calculate, small and frequently used are kept in preference to values that are
+ * cheap, large or rarely used. The inflation is the priority of the most recently evicted entry and is added to
+ * the priority of an entry whenever it is used, so entries that were popular in the past but haven't been used
+ * recently are eventually evicted. This is the Greedy-Dual-Size-Frequency policy.
+ * <p>
+ * If a metric registry is provided the hits, misses, evictions and the calculation time saved by cache hits are
+ * recorded for each cached function method.
+ */
+public class CostAwareCache extends AbstractCache<Object, Object> {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CostAwareCache.class);
+
+  /** The fraction of the budget the cache is reduced to when it exceeds the budget, so evictions happen in batches. */
+  private static final double EVICTION_TARGET = 0.9;
+
+  /** Estimated size of the map entry, cache entry and future holding each value, excluding the key and value. */
+  private static final long ENTRY_OVERHEAD = 128;
+
+  /** Orders eviction candidates with the lowest priority first. */
+  private static final Comparator<Candidate> PRIORITY_ORDER = new Comparator<Candidate>() {
+    @Override
+    public int compare(Candidate c1, Candidate c2) {
+      return Double.compare(c1._priority, c2._priority);
+    }
+  };
+
+  private final ConcurrentMap<Object, Entry> _entries;
+  private final long _memoryBudget;
+  private final Weigher<Object, Object> _sizeEstimator;
+  private final Optional<MetricRegistry> _metricRegistry;
+  private final ConcurrentMap<Method, FunctionMetrics> _functionMetrics = new ConcurrentHashMap<>();
+  private final SimpleStatsCounter _stats = new SimpleStatsCounter();
+
+  /** The estimated size of all the entries in the cache. */
+  private final AtomicLong _size = new AtomicLong();
+
+  /** Held by the thread evicting entries. Other threads don't wait for it, one thread evicting is enough. */
+  private final Lock _evictionLock = new ReentrantLock();
+
+  /** The priority of the most recently evicted entry. */
+  private volatile double _inflation;
+
+  /**
+   * Creates a cache which estimates the size of its values using {@link ObjectSizeEstimator}.
+   *
+   * @param memoryBudget the estimated memory the cache may use, in bytes
+   * @param concurrencyLevel the estimated number of threads that will update the cache concurrently
+   * @param metricRegistry for recording the hits, misses, evictions and time saved for each function
+   */
+  public CostAwareCache(long memoryBudget, int concurrencyLevel, Optional<MetricRegistry> metricRegistry) {
+    this(memoryBudget, concurrencyLevel, metricRegistry, ObjectSizeEstimator.INSTANCE);
+  }
+
+  /**
+   * @param memoryBudget the estimated memory the cache may use, in bytes
+   * @param concurrencyLevel the estimated number of threads that will update the cache concurrently
+   * @param metricRegistry for recording the hits, misses, evictions and time saved for each function
+   * @param sizeEstimator estimates the size of the keys and values in bytes
+   */
+  public CostAwareCache(long memoryBudget,
+                        int concurrencyLevel,
+                        Optional<MetricRegistry> metricRegistry,
+                        Weigher<Object, Object> sizeEstimator) {
+    ArgumentChecker.notNegativeOrZero(memoryBudget, "memoryBudget");
+    ArgumentChecker.notNegativeOrZero(concurrencyLevel, "concurrencyLevel");
+    _memoryBudget = memoryBudget;
+    _metricRegistry = ArgumentChecker.notNull(metricRegistry, "metricRegistry");
+    _sizeEstimator = ArgumentChecker.notNull(sizeEstimator, "sizeEstimator");
+    _entries = new ConcurrentHashMap<>(16, 0.75f, concurrencyLevel);
+  }
+
+  @Nullable
+  @Override
+  public Object getIfPresent(Object key) {
+    Entry entry = _entries.get(key);
+
+    if (entry == null || !entry._future.isDone()) {
+      _stats.recordMisses(1);
+      return null;
+    }
+    try {
+      return hit(entry);
+    } catch (ExecutionException | RuntimeException | ExecutionError e) {
+      // the calculation failed and the entry will be removed
+      return null;
+    }
+  }
+
+  @Override
+  public Object get(Object key, Callable<?> valueLoader) throws ExecutionException {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(valueLoader, "valueLoader");
+    Entry entry = _entries.get(key);
+
+    if (entry != null) {
+      return hit(entry);
+    }
+    Entry newEntry = new Entry(functionMetrics(key));
+    entry = _entries.putIfAbsent(key, newEntry);
+
+    if (entry != null) {
+      return hit(entry);
+    }
+    return load(key, newEntry, valueLoader);
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(value, "value");
+    Entry entry = new Entry(functionMetrics(key));
+    Entry previous = _entries.put(key, entry);
+
+    if (previous != null) {
+      removed(previous);
+    }
+    // the calculation time isn't known so the entry has the lowest priority
+    loaded(key, entry, value, 0);
+  }
+
+  @Override
+  public void invalidate(Object key) {
+    Entry entry = _entries.remove(key);
+
+    if (entry != null) {
+      removed(entry);
+    }
+  }
+
+  @Override
+  public void invalidateAll() {
+    for (Object key : _entries.keySet()) {
+      invalidate(key);
+    }
+  }
+
+  @Override
+  public long size() {
+    return _entries.size();
+  }
+
+  @Override
+  public CacheStats stats() {
+    return _stats.snapshot();
+  }
+
+  /**
+   * @return the estimated memory used by the entries in the cache, in bytes
+   */
+  public long getEstimatedSize() {
+    return _size.get();
+  }
+
+  /**
+   * @return the estimated memory the cache may use, in bytes
+   */
+  public long getMemoryBudget() {
+    return _memoryBudget;
+  }
+
+  //-------------------------------------------------------------------------
+  private Object hit(Entry entry) throws ExecutionException {
+    Object value = getValue(entry);
+    _stats.recordHits(1);
+    entry.hit(_inflation);
+    return value;
+  }
+
+  private Object load(Object key, Entry entry, Callable<?> valueLoader) throws ExecutionException {
+    _stats.recordMisses(1);
+
+    if (entry._metrics != null) {
+      entry._metrics._misses.inc();
+    }
+    long start = System.nanoTime();
+    Object value;
+
+    try {
+      value = valueLoader.call();
+    } catch (RuntimeException e) {
+      failed(key, entry, e, start);
+      throw new UncheckedExecutionException(e);
+    } catch (Error e) {
+      failed(key, entry, e, start);
+      throw new ExecutionError(e);
+    } catch (Exception e) {
+      failed(key, entry, e, start);
+      throw new ExecutionException(e);
+    }
+    if (value == null) {
+      CacheLoader.InvalidCacheLoadException e =
+          new CacheLoader.InvalidCacheLoadException("Value loader returned null for key " + key);
+      failed(key, entry, e, start);
+      throw e;
+    }
+    long calculationTime = System.nanoTime() - start;
+    _stats.recordLoadSuccess(calculationTime);
+    loaded(key, entry, value, calculationTime);
+    return value;
+  }
+
+  /**
+   * Removes an entry whose value couldn't be calculated. Threads waiting for the value receive the exception.
+   */
+  private void failed(Object key, Entry entry, Throwable cause, long start) {
+    _stats.recordLoadException(System.nanoTime() - start);
+    _entries.remove(key, entry);
+    entry._future.setException(cause);
+  }
+
+  /**
+   * Records the value, size and calculation time of a new entry and evicts entries if the cache is over budget.
+   */
+  private void loaded(Object key, Entry entry, Object value, long calculationTime) {
+    long size = ENTRY_OVERHEAD + _sizeEstimator.weigh(key, value);
+
+    synchronized (entry) {
+      entry._size = size;
+      entry._calculationTime = calculationTime;
+      entry._priority = _inflation + (double) calculationTime / size;
+
+      if (!entry._removed) {
+        _size.addAndGet(size);
+      }
+    }
+    entry._future.set(value);
+
+    if (_size.get() > _memoryBudget) {
+      evict();
+    }
+  }
+
+  private void removed(Entry entry) {
+    synchronized (entry) {
+      if (!entry._removed) {
+        entry._removed = true;
+        _size.addAndGet(-entry._size);
+      }
+    }
+  }
+
+  /**
+   * Evicts the entries with the lowest priority until the cache is below its eviction target.
+   */
+  private void evict() {
+    if (!_evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      long target = (long) (_memoryBudget * EVICTION_TARGET);
+
+      if (_size.get() <= target) {
+        return;
+      }
+      // the priorities are copied because they can change while the candidates are sorted
+      List<Candidate> candidates = new ArrayList<>(_entries.size());
+
+      for (Map.Entry<Object, Entry> mapEntry : _entries.entrySet()) {
+        Entry entry = mapEntry.getValue();
+
+        if (entry._future.isDone()) {
+          candidates.add(new Candidate(mapEntry.getKey(), entry));
+        }
+      }
+      Collections.sort(candidates, PRIORITY_ORDER);
+      int evictionCount = 0;
+
+      for (Candidate candidate : candidates) {
+        if (_size.get() <= target) {
+          break;
+        }
+        if (_entries.remove(candidate._key, candidate._entry)) {
+          removed(candidate._entry);
+          _inflation = Math.max(_inflation, candidate._priority);
+          _stats.recordEviction();
+          evictionCount++;
+
+          if (candidate._entry._metrics != null) {
+            candidate._entry._metrics._evictions.inc();
+          }
+        }
+      }
+      s_logger.debug("Evicted {} entries, estimated size {} bytes", evictionCount, _size.get());
+    } finally {
+      _evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the metrics for the function method in a cache key, creating them if necessary.
+   *
+   * @param key a cache key
+   * @return the metrics for the function method in the key, null if there is no registry or the key isn't
+   *   a {@link MethodInvocationKey}
+   */
+  @Nullable
+  private FunctionMetrics functionMetrics(Object key) {
+    if (!_metricRegistry.isPresent() || !(key instanceof MethodInvocationKey)) {
+      return null;
+    }
+    Method method = ((MethodInvocationKey) key).getMethod();
+    FunctionMetrics metrics = _functionMetrics.get(method);
+
+    if (metrics == null) {
+      // the registry returns the existing counters if another thread or a previous cache created them
+      metrics = new FunctionMetrics(_metricRegistry.get(), method);
+      _functionMetrics.putIfAbsent(method, metrics);
+    }
+    return metrics;
+  }
+
+  /**
+   * Returns the value of an entry, waiting if it is being calculated by another thread. Exceptions from the
+   * calculation are wrapped in the same way as by the Guava cache.
+   */
+  private static Object getValue(Entry entry) throws ExecutionException {
+    try {
+      return Uninterruptibles.getUninterruptibly(entry._future);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof CacheLoader.InvalidCacheLoadException) {
+        throw (CacheLoader.InvalidCacheLoadException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw new UncheckedExecutionException(cause);
+      }
+      if (cause instanceof Error) {
+        throw new ExecutionError((Error) cause);
+      }
+      throw e;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A value in the cache and the data used to decide when to evict it.
+   * <p>
+   * The hit count and priority are updated without locking so concurrent hits can be lost. This only makes the
+   * priority approximate.
+   */
+  private static final class Entry {
+
+    private final SettableFuture<Object> _future = SettableFuture.create();
+    private final FunctionMetrics _metrics;
+    private volatile long _size;
+    private volatile long _calculationTime;
+    private volatile int _hits = 1;
+    private volatile double _priority;
+    private boolean _removed;
+
+    private Entry(@Nullable FunctionMetrics metrics) {
+      _metrics = metrics;
+    }
+
+    private void hit(double inflation) {
+      int hits = _hits + 1;
+      _hits = hits;
+      long size = _size;
+
+      if (size > 0) {
+        _priority = inflation + (double) hits * _calculationTime / size;
+      }
+      if (_metrics != null) {
+        _metrics._hits.inc();
+        _metrics._timeSaved.inc(_calculationTime);
+      }
+    }
+  }
+
+  /**
+   * An entry considered for eviction and its priority when the eviction started.
+   */
+  private static final class Candidate {
+
+    private final Object _key;
+    private final Entry _entry;
+    private final double _priority;
+
+    private Candidate(Object key, Entry entry) {
+      _key = key;
+      _entry = entry;
+      _priority = entry._priority;
+    }
+  }
+
+  /**
+   * Counters recording the cache behaviour for one function method.
+   */
+  private static final class FunctionMetrics {
+
+    private final Counter _hits;
+    private final Counter _misses;
+    private final Counter _evictions;
+    /** The total calculation time in nanoseconds of the values returned by cache hits. */
+    private final Counter _timeSaved;
+
+    private FunctionMetrics(MetricRegistry registry, Method method) {
+      String name = method.getDeclaringClass().getCanonicalName() + "." + method.getName();
+      _hits = registry.counter(MetricRegistry.name(CostAwareCache.class, name, "hits"));
+      _misses = registry.counter(MetricRegistry.name(CostAwareCache.class, name, "misses"));
+      _evictions = registry.counter(MetricRegistry.name(CostAwareCache.class, name, "evictions"));
+      _timeSaved = registry.counter(MetricRegistry.name(CostAwareCache.class, name, "timeSavedNanos"));
+    }
+  }
+}
@@ -5,18 +5,29 @@
  */
 package com.opengamma.sesame.cache;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Provider;
 
 import org.threeten.bp.ZonedDateTime;
 
 import com.google.common.cache.Cache;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ObjectId;
@@ -27,54 +38,103 @@ import com.opengamma.util.tuple.Pair;
 import com.opengamma.util.tuple.Pairs;
 
 /**
- * TODO if this turns out to be a point of contention will need to remove the locking and make thread safe
- * or have multiple thread local copies and merge them at the end of the cycle before the invalidation step
+ * Records which cache entries depend on market data, database objects and the valuation time and invalidates
+ * them when the data changes.
+ * <p>
+ * Dependencies are registered by many threads while a cycle is running. To avoid contention each thread appends
+ * its dependencies to its own log. The logs are merged into the dependency maps at the start of
+ * {@link #invalidate}, which is called between cycles. The log of a thread that has died is discarded once
+ * its dependencies have been merged. If there are many changed IDs the cache entries that depend on them are
+ * invalidated in parallel.
+ * <p>
  * TODO review which of the register methods are still needed with MarketDataBundle
  */
 public class DefaultCacheInvalidator implements CacheInvalidator {
 
+  /** The minimum number of changed IDs for the invalidation to be split into parallel tasks. */
+  private static final int PARALLEL_THRESHOLD = 1000;
+
   private final Provider<Collection<MethodInvocationKey>> _executingMethods;
-  private final SetMultimap<ObjectId, MethodInvocationKey> _objectIdsToKeys = HashMultimap.create();
-  private final SetMultimap<ExternalId, MethodInvocationKey> _externalIdsToKeys = HashMultimap.create();
+  private final ConcurrentMap<ObjectId, Set<MethodInvocationKey>> _objectIdsToKeys = new ConcurrentHashMap<>();
+  private final ConcurrentMap<ExternalId, Set<MethodInvocationKey>> _externalIdsToKeys = new ConcurrentHashMap<>();
   private final List<Pair<MethodInvocationKey, ValuationTimeCacheEntry>> _valuationTimeEntries = Lists.newArrayList();
   private final Cache<Object, Object> _cache;
+  /** For invalidating cache entries in parallel. */
+  private final ExecutorService _executor;
+  /** The number of tasks the invalidation is split into when it runs in parallel. */
+  private final int _parallelism;
+
+  /** The logs of every live thread that has registered a dependency. */
+  private final Collection<DependencyLog> _logs = new ConcurrentLinkedQueue<>();
+
+  /** The dependency log for the current thread. */
+  private final ThreadLocal<DependencyLog> _log = new ThreadLocal<DependencyLog>() {
+    @Override
+    protected DependencyLog initialValue() {
+      DependencyLog log = new DependencyLog(Thread.currentThread());
+      _logs.add(log);
+      return log;
+    }
+  };
 
-  private VersionCorrection _configVersionCorrection;
+  private volatile VersionCorrection _configVersionCorrection;
 
   /**
+   * Creates an invalidator that invalidates entries on the calling thread.
+   *
    * @param executingMethods provides the keys representing the cacheable methods that are currently executing
    * @param cache the cache whose entries should be invalidated when data changes
    */
   public DefaultCacheInvalidator(Provider<Collection<MethodInvocationKey>> executingMethods,
                                  Cache<Object, Object> cache) {
+    this(executingMethods, cache, MoreExecutors.sameThreadExecutor(), 1);
+  }
+
+  /**
+   * @param executingMethods provides the keys representing the cacheable methods that are currently executing
+   * @param cache the cache whose entries should be invalidated when data changes
+   * @param executor for invalidating entries in parallel when many IDs have changed
+   */
+  public DefaultCacheInvalidator(Provider<Collection<MethodInvocationKey>> executingMethods,
+                                 Cache<Object, Object> cache,
+                                 ExecutorService executor) {
+    this(executingMethods, cache, executor, Runtime.getRuntime().availableProcessors());
+  }
+
+  private DefaultCacheInvalidator(Provider<Collection<MethodInvocationKey>> executingMethods,
+                                  Cache<Object, Object> cache,
+                                  ExecutorService executor,
+                                  int parallelism) {
     _cache = ArgumentChecker.notNull(cache, "cache");
     _executingMethods = ArgumentChecker.notNull(executingMethods, "executingMethods");
+    _executor = ArgumentChecker.notNull(executor, "executor");
+    _parallelism = parallelism;
   }
 
   @Override
-  public synchronized void register(ExternalId id) {
-    _externalIdsToKeys.putAll(id, _executingMethods.get());
+  public void register(ExternalId id) {
+    _log.get().addExternalId(id, _executingMethods.get());
   }
 
   @Override
-  public synchronized void register(ExternalIdBundle bundle) {
+  public void register(ExternalIdBundle bundle) {
+    DependencyLog log = _log.get();
+    Collection<MethodInvocationKey> keys = _executingMethods.get();
     for (ExternalId id : bundle.getExternalIds()) {
-      register(id);
+      log.addExternalId(id, keys);
     }
   }
 
   @Override
-  public synchronized void register(ObjectId id) {
+  public void register(ObjectId id) {
     if (VersionCorrection.LATEST.equals(_configVersionCorrection)) {
-      _objectIdsToKeys.putAll(id, _executingMethods.get());
+      _log.get().addObjectId(id, _executingMethods.get());
     }
   }
 
   @Override
-  public synchronized void register(ValuationTimeCacheEntry entry) {
-    for (MethodInvocationKey key : _executingMethods.get()) {
-      _valuationTimeEntries.add(Pairs.of(key, entry));
-    }
+  public void register(ValuationTimeCacheEntry entry) {
+    _log.get().addValuationTimeEntry(entry, _executingMethods.get());
   }
 
   @Override
@@ -93,16 +153,100 @@ public class DefaultCacheInvalidator implements CacheInvalidator {
     ArgumentChecker.notNull(marketData, "marketData");
     ArgumentChecker.notNull(dbIds, "dbIds");
 
+    mergeLogs();
     invalidateValuationTime(valuationTime);
 
     // TODO if the new VC isn't the same as the old then clear all DB dependent entries
     _configVersionCorrection = configVersionCorrection;
 
-    for (ExternalId externalId : marketData) {
-      _cache.invalidateAll(_externalIdsToKeys.removeAll(externalId));
+    if (marketData.size() + dbIds.size() < PARALLEL_THRESHOLD || _parallelism < 2) {
+      invalidate(marketData, _externalIdsToKeys);
+      invalidate(dbIds, _objectIdsToKeys);
+    } else {
+      invalidateInParallel(marketData, dbIds);
+    }
+  }
+
+  /**
+   * Moves the dependencies from the thread logs into the dependency maps and discards the logs of threads
+   * that have died.
+   */
+  private void mergeLogs() {
+    for (Iterator<DependencyLog> itr = _logs.iterator(); itr.hasNext(); ) {
+      DependencyLog log = itr.next();
+      // checked before draining, a thread that has died can't add anything to its log after it's drained
+      boolean ownerAlive = log.isOwnerAlive();
+      log.drainTo(this);
+      if (!ownerAlive) {
+        itr.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the number of thread logs, for testing
+   */
+  /* package */ int getLogCount() {
+    return _logs.size();
+  }
+
+  private static <K> void addAll(ConcurrentMap<K, Set<MethodInvocationKey>> idsToKeys,
+                                 List<K> ids,
+                                 List<MethodInvocationKey> keys) {
+    for (int i = 0; i < ids.size(); i++) {
+      K id = ids.get(i);
+      Set<MethodInvocationKey> idKeys = idsToKeys.get(id);
+      if (idKeys == null) {
+        Set<MethodInvocationKey> newKeys = Collections.newSetFromMap(new ConcurrentHashMap<MethodInvocationKey, Boolean>());
+        idKeys = idsToKeys.putIfAbsent(id, newKeys);
+        if (idKeys == null) {
+          idKeys = newKeys;
+        }
+      }
+      idKeys.add(keys.get(i));
+    }
+  }
+
+  private <K> void invalidate(Collection<K> ids, ConcurrentMap<K, Set<MethodInvocationKey>> idsToKeys) {
+    for (K id : ids) {
+      Set<MethodInvocationKey> keys = idsToKeys.remove(id);
+      if (keys != null) {
+        _cache.invalidateAll(keys);
+      }
+    }
+  }
+
+  /**
+   * Splits the changed IDs into batches and invalidates the entries for each batch in a separate task.
+   */
+  private void invalidateInParallel(Collection<ExternalId> marketData, Collection<ObjectId> dbIds) {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    addTasks(tasks, marketData, _externalIdsToKeys);
+    addTasks(tasks, dbIds, _objectIdsToKeys);
+    try {
+      for (Future<Void> future : _executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to invalidate cache entries", e);
+    }
+  }
+
+  private <K> void addTasks(List<Callable<Void>> tasks,
+                            Collection<K> ids,
+                            final ConcurrentMap<K, Set<MethodInvocationKey>> idsToKeys) {
+    if (ids.isEmpty()) {
+      return;
     }
-    for (ObjectId objectId : dbIds) {
-      _cache.invalidateAll(_objectIdsToKeys.removeAll(objectId));
+    int batchSize = Math.max(1, (ids.size() + _parallelism - 1) / _parallelism);
+    for (final List<K> batch : Lists.partition(new ArrayList<>(ids), batchSize)) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          invalidate(batch, idsToKeys);
+          return null;
+        }
+      });
     }
   }
 
@@ -117,4 +261,84 @@ public class DefaultCacheInvalidator implements CacheInvalidator {
       }
     }
   }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The dependencies registered by one thread since the last invalidation.
+   * <p>
+   * The log is only written by its own thread so its lock is uncontended except while the log is being merged.
+   */
+  private static final class DependencyLog {
+
+    /** The thread that writes to the log, weakly referenced so the log doesn't keep it reachable. */
+    private final WeakReference<Thread> _owner;
+    private List<ExternalId> _externalIds = new ArrayList<>();
+    private List<MethodInvocationKey> _externalIdKeys = new ArrayList<>();
+    private List<ObjectId> _objectIds = new ArrayList<>();
+    private List<MethodInvocationKey> _objectIdKeys = new ArrayList<>();
+    private List<Pair<MethodInvocationKey, ValuationTimeCacheEntry>> _valuationTimeEntries = new ArrayList<>();
+
+    private DependencyLog(Thread owner) {
+      _owner = new WeakReference<>(owner);
+    }
+
+    /**
+     * @return true if the thread that writes to the log is still running
+     */
+    private boolean isOwnerAlive() {
+      Thread owner = _owner.get();
+      return owner != null && owner.isAlive();
+    }
+
+    private synchronized void addExternalId(ExternalId id, Collection<MethodInvocationKey> keys) {
+      for (MethodInvocationKey key : keys) {
+        _externalIds.add(id);
+        _externalIdKeys.add(key);
+      }
+    }
+
+    private synchronized void addObjectId(ObjectId id, Collection<MethodInvocationKey> keys) {
+      for (MethodInvocationKey key : keys) {
+        _objectIds.add(id);
+        _objectIdKeys.add(key);
+      }
+    }
+
+    private synchronized void addValuationTimeEntry(ValuationTimeCacheEntry entry, Collection<MethodInvocationKey> keys) {
+      for (MethodInvocationKey key : keys) {
+        _valuationTimeEntries.add(Pairs.of(key, entry));
+      }
+    }
+
+    /**
+     * Adds the dependencies to the invalidator's maps and clears the log. The lists are swapped for empty ones
+     * while the lock is held and merged after it's released so the thread that owns the log isn't blocked.
+     */
+    private void drainTo(DefaultCacheInvalidator invalidator) {
+      List<ExternalId> externalIds;
+      List<MethodInvocationKey> externalIdKeys;
+      List<ObjectId> objectIds;
+      List<MethodInvocationKey> objectIdKeys;
+      List<Pair<MethodInvocationKey, ValuationTimeCacheEntry>> valuationTimeEntries;
+
+      synchronized (this) {
+        if (_externalIds.isEmpty() && _objectIds.isEmpty() && _valuationTimeEntries.isEmpty()) {
+          return;
+        }
+        externalIds = _externalIds;
+        externalIdKeys = _externalIdKeys;
+        objectIds = _objectIds;
+        objectIdKeys = _objectIdKeys;
+        valuationTimeEntries = _valuationTimeEntries;
+        _externalIds = new ArrayList<>();
+        _externalIdKeys = new ArrayList<>();
+        _objectIds = new ArrayList<>();
+        _objectIdKeys = new ArrayList<>();
+        _valuationTimeEntries = new ArrayList<>();
+      }
+      addAll(invalidator._externalIdsToKeys, externalIds, externalIdKeys);
+      addAll(invalidator._objectIdsToKeys, objectIds, objectIdKeys);
+      invalidator._valuationTimeEntries.addAll(valuationTimeEntries);
+    }
+  }
 }
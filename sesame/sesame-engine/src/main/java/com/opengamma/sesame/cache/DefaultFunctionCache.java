@@ -8,6 +8,7 @@ package com.opengamma.sesame.cache;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.util.ArgumentChecker;
 
@@ -17,6 +18,9 @@ import com.opengamma.util.ArgumentChecker;
  * If the user clears the cache, a new cache is created and the existing cache is discarded at the end of the
  * calculation cycle. Therefore the cache is looked up every time it is used to ensure this class always
  * uses the current cache.
+ * <p>
+ * If {@link AsyncInvocation} is enabled and the calculation is suspended while the supplier is running,
+ * the supplied value isn't cached and the {@link CalculationPendingException} is rethrown.
  */
 public class DefaultFunctionCache implements FunctionCache {
 
@@ -32,11 +36,28 @@ public class DefaultFunctionCache implements FunctionCache {
 
   @SuppressWarnings("unchecked")
   @Override
-  public <T> T get(CacheKey key, Callable<T> valueSupplier) {
+  public <T> T get(CacheKey key, final Callable<T> valueSupplier) {
+    Callable<T> supplier = valueSupplier;
+
+    if (AsyncInvocation.isEnabled()) {
+      supplier = new Callable<T>() {
+        @Override
+        public T call() throws Exception {
+          T value = valueSupplier.call();
+          AsyncInvocation.checkNotSuspended();
+          return value;
+        }
+      };
+    }
     try {
-      return (T) _cacheProvider.get().get(key, valueSupplier);
+      return (T) _cacheProvider.get().get(key, supplier);
     } catch (ExecutionException e) {
       throw new OpenGammaRuntimeException("Failed to create value for cache", e);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof CalculationPendingException) {
+        throw (CalculationPendingException) e.getCause();
+      }
+      throw e;
     }
   }
 }
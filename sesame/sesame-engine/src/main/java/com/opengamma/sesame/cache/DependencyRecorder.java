@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.sesame.marketdata.MarketDataId;
+
+/**
+ * Records the market data read by a calculation, including the data read when calculating any cached values
+ * it uses.
+ * <p>
+ * Recording is started for a calculation on the current thread by {@link #begin()} and finished by
+ * {@link #end()}, which returns the IDs of the market data read between the two calls. Market data bundles
+ * report reads using {@link #recordRead(MarketDataId)}.
+ * <p>
+ * A calculation that uses a cached value depends on the data read when the value was calculated. The caching
+ * proxy reports when a value is calculated and used, and the recorder keeps the data read by each cached
+ * calculation. If a calculation uses a cached value whose dependencies aren't known, for example because it was
+ * calculated without recording, the dependencies of the calculation are unknown.
+ * <p>
+ * The data read by a cached calculation is also added to the calculation that triggered it, even if it fails.
+ * A calculation that gets a failure from a cached calculation on another thread depends on the data read by that
+ * calculation, so its dependencies are unknown unless they were recorded.
+ */
+public final class DependencyRecorder {
+
+  /** The maximum number of cached calculations whose dependencies are kept. */
+  private static final int MAX_CALCULATIONS = 1_000_000;
+
+  /** The innermost calculation being recorded on the current thread. */
+  private static final ThreadLocal<Frame> s_frame = new ThreadLocal<>();
+
+  /** The market data read by each cached calculation, keyed by the cache key of its value. */
+  private final Cache<Object, Set<MarketDataId<?>>> _calculationReads =
+      CacheBuilder.newBuilder().maximumSize(MAX_CALCULATIONS).build();
+
+  /**
+   * Starts recording the market data read by a calculation on the current thread.
+   */
+  public void begin() {
+    s_frame.set(new Frame(this, null));
+  }
+
+  /**
+   * Stops recording on the current thread.
+   *
+   * @return the IDs of the market data read by the calculation, null if they couldn't be determined
+   */
+  public static Set<MarketDataId<?>> end() {
+    Frame frame = s_frame.get();
+    s_frame.remove();
+
+    if (frame == null || frame._unknown) {
+      return null;
+    }
+    return ImmutableSet.copyOf(frame._reads);
+  }
+
+  /**
+   * Records that the calculation on the current thread has read a market data value.
+   * This has no effect if recording isn't enabled for the thread.
+   *
+   * @param id the ID of the market data
+   */
+  public static void recordRead(MarketDataId<?> id) {
+    Frame frame = s_frame.get();
+
+    if (frame != null) {
+      frame._reads.add(id);
+    }
+  }
+
+  /**
+   * Called by the caching proxy before it calculates a value.
+   */
+  static void startCalculation() {
+    Frame frame = s_frame.get();
+
+    if (frame != null) {
+      s_frame.set(new Frame(frame._recorder, frame));
+    }
+  }
+
+  /**
+   * Called by the caching proxy after it calculates a value, before the value is put in the cache. This is
+   * called whether or not the calculation succeeds. The data read by the calculation is added to the calculation
+   * that triggered it.
+   *
+   * @param key the cache key of the value
+   */
+  static void endCalculation(Object key) {
+    Frame frame = s_frame.get();
+
+    if (frame != null && frame._parent != null) {
+      Frame parent = frame._parent;
+
+      if (frame._unknown) {
+        parent._unknown = true;
+      } else {
+        frame._recorder._calculationReads.put(key, ImmutableSet.copyOf(frame._reads));
+        parent._reads.addAll(frame._reads);
+      }
+      s_frame.set(parent);
+    }
+  }
+
+  /**
+   * Called by the caching proxy when a cached value is returned, whether or not it was calculated by this call.
+   * This is also called if getting the value failed because the failure might depend on the data read by the
+   * calculation.
+   *
+   * @param key the cache key of the value
+   */
+  static void valueUsed(Object key) {
+    Frame frame = s_frame.get();
+
+    if (frame == null) {
+      return;
+    }
+    Set<MarketDataId<?>> reads = frame._recorder._calculationReads.getIfPresent(key);
+
+    if (reads == null) {
+      frame._unknown = true;
+    } else {
+      frame._reads.addAll(reads);
+    }
+  }
+
+  /**
+   * The market data read by a calculation.
+   */
+  private static final class Frame {
+
+    private final DependencyRecorder _recorder;
+    private final Frame _parent;
+    private final Set<MarketDataId<?>> _reads = new HashSet<>();
+    private boolean _unknown;
+
+    private Frame(DependencyRecorder recorder, Frame parent) {
+      _recorder = recorder;
+      _parent = parent;
+    }
+  }
+}
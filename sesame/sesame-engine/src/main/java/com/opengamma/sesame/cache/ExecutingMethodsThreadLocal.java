@@ -5,9 +5,10 @@
  */
 package com.opengamma.sesame.cache;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.RandomAccess;
 
 import javax.inject.Provider;
 
@@ -18,19 +19,31 @@ import com.opengamma.util.ArgumentChecker;
  * When a cacheable method is executed the corresponding cache key is {@link #push}ed into this object.
  * This makes it available to {@link DefaultCacheInvalidator} to associate with any subscriptions that occur
  * while it's executing.
+ * <p>
+ * The stack for each thread is held in an array which only grows when the call depth exceeds its previous
+ * maximum, so pushing and popping keys doesn't allocate. {@link #get()} returns a view of the stack for the
+ * current thread without copying it, the most recently pushed key is first.
  */
 public class ExecutingMethodsThreadLocal implements Provider<Collection<MethodInvocationKey>> {
 
-  private final ThreadLocal<LinkedList<MethodInvocationKey>> _executingMethods = new ThreadLocal<LinkedList<MethodInvocationKey>>() {
+  private final ThreadLocal<KeyStack> _executingMethods = new ThreadLocal<KeyStack>() {
     @Override
-    protected LinkedList<MethodInvocationKey> initialValue() {
-      return new LinkedList<>();
+    protected KeyStack initialValue() {
+      return new KeyStack();
     }
   };
 
+  /**
+   * Returns the keys of the cacheable methods executing on the current thread, the most recent first.
+   * <p>
+   * The returned list is a read-only view of the stack, not a copy. It must only be used on the current thread
+   * and it will change when methods are pushed or popped.
+   *
+   * @return the keys of the methods executing on the current thread
+   */
   @Override
   public Collection<MethodInvocationKey> get() {
-    return Collections.unmodifiableList(_executingMethods.get());
+    return _executingMethods.get();
   }
 
   /* package */ void push(MethodInvocationKey key) {
@@ -40,4 +53,43 @@ public class ExecutingMethodsThreadLocal implements Provider<Collection<MethodIn
   /* package */ void pop() {
     _executingMethods.get().pop();
   }
+
+  /**
+   * A stack of keys in an array, viewed as a list with the top of the stack first.
+   */
+  private static final class KeyStack extends AbstractList<MethodInvocationKey> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private MethodInvocationKey[] _keys = new MethodInvocationKey[INITIAL_CAPACITY];
+    private int _size;
+
+    private void push(MethodInvocationKey key) {
+      if (_size == _keys.length) {
+        _keys = Arrays.copyOf(_keys, _size * 2);
+      }
+      _keys[_size++] = key;
+    }
+
+    private void pop() {
+      if (_size == 0) {
+        throw new IllegalStateException("No executing methods");
+      }
+      // clear the reference so the key can be garbage collected
+      _keys[--_size] = null;
+    }
+
+    @Override
+    public MethodInvocationKey get(int index) {
+      if (index < 0 || index >= _size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", size: " + _size);
+      }
+      return _keys[_size - 1 - index];
+    }
+
+    @Override
+    public int size() {
+      return _size;
+    }
+  }
 }
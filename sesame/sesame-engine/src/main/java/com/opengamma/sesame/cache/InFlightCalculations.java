@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Records the cached values that are being calculated and the threads calculating them.
+ * <p>
+ * A thread claims a value before calculating it and releases the claim when the calculation finishes,
+ * successfully or not. A thread that tries to claim a value claimed by another thread is suspended
+ * using {@link AsyncInvocation} instead of blocking in the cache. Its calculation can be retried when the
+ * claim is released.
+ * <p>
+ * Cache keys are shared by all the functions using a cache, so one instance must be shared by all the caching
+ * proxies using the same cache. Otherwise a thread could block waiting for a value claimed through a different
+ * proxy.
+ */
+public final class InFlightCalculations {
+
+  /** Returned when a thread claims a value it's already calculating. Releasing it has no effect. */
+  private static final Claim REENTRANT = new Claim(null, null, null);
+
+  private final ConcurrentMap<Object, Claim> _claims = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an instance with no values being calculated.
+   */
+  public InFlightCalculations() {
+  }
+
+  /**
+   * Claims the calculation of a value for the current thread.
+   *
+   * @param key the cache key of the value
+   * @return the claim which must be released when the calculation finishes
+   * @throws CalculationPendingException if another thread is calculating the value
+   */
+  Claim claim(Object key) {
+    Thread thread = Thread.currentThread();
+    Claim claim = new Claim(this, key, thread);
+    Claim existing = _claims.putIfAbsent(key, claim);
+
+    if (existing == null) {
+      return claim;
+    }
+    if (existing._thread == thread) {
+      // the cache will report the recursive calculation
+      return REENTRANT;
+    }
+    throw AsyncInvocation.suspend(existing._released);
+  }
+
+  /**
+   * A claim on the calculation of a value.
+   */
+  static final class Claim {
+
+    private final InFlightCalculations _owner;
+    private final Object _key;
+    private final Thread _thread;
+    private final SettableFuture<Void> _released = SettableFuture.create();
+
+    private Claim(InFlightCalculations owner, Object key, Thread thread) {
+      _owner = owner;
+      _key = key;
+      _thread = thread;
+    }
+
+    /**
+     * Releases the claim, allowing suspended calculations waiting for the value to be retried.
+     */
+    void release() {
+      if (_owner != null) {
+        _owner._claims.remove(_key, this);
+        _released.set(null);
+      }
+    }
+  }
+}
@@ -27,6 +27,13 @@ public class MethodInvocationKey {
     _args = args;
   }
 
+  /**
+   * @return the method that was invoked
+   */
+  Method getMethod() {
+    return _method;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(_functionId, _method, Arrays.deepHashCode(_args));
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.result.Result;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Estimates the memory retained by a cached value by walking the graph of objects reachable from it.
+ * <p>
+ * The estimate assumes a 64-bit JVM using compressed references. It is approximate: objects shared with other
+ * values are counted in every value that refers to them and the walk stops after {@link #MAX_OBJECTS} objects,
+ * so very large values are underestimated. Classes, class loaders, threads, references and enum constants aren't
+ * followed because they are shared rather than part of the value.
+ * <p>
+ * Walking the graph is too expensive to do for every value added to the cache. {@link #weigh} only walks the
+ * first {@link #SAMPLE_COUNT} values of each type and one in every {@link #SAMPLE_INTERVAL} after that. Other
+ * values are assumed to be the average size of the sampled values of the same type. Almost every cached value
+ * is a {@link Result}, so the type of a result is the type of the value it wraps, and values returned by a
+ * function method are sampled separately from the values returned by every other method.
+ */
+public final class ObjectSizeEstimator implements Weigher<Object, Object> {
+
+  /** The maximum number of objects visited when estimating the size of a value. */
+  private static final int MAX_OBJECTS = 10_000;
+  /** The number of values of each type whose size is measured before the average size is used. */
+  /* package */ static final int SAMPLE_COUNT = 16;
+  /** The interval between values whose size is measured once the first values of a type have been measured. */
+  private static final int SAMPLE_INTERVAL = 128;
+  /** The maximum number of value types whose sampled sizes are kept. */
+  private static final int MAX_SAMPLE_TYPES = 10_000;
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE_SIZE = 4;
+
+  /** The shared instance. */
+  public static final ObjectSizeEstimator INSTANCE = new ObjectSizeEstimator();
+
+  /** The size and reference fields of each class whose instances have been measured. */
+  private static final Cache<Class<?>, ClassLayout> s_layouts = CacheBuilder.newBuilder().weakKeys().build();
+
+  /** The sizes of the sampled values of each type, keyed by the value type and method if known, see {@link #sampleType}. */
+  private final Cache<Object, TypeSizes> _typeSizes = CacheBuilder.newBuilder().maximumSize(MAX_SAMPLE_TYPES).build();
+
+  /* package */ ObjectSizeEstimator() {
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by a value, using the average size of values of the
+   * same type unless the value is sampled.
+   *
+   * @param key the key, a {@link MethodInvocationKey} if the value was returned by a function method
+   * @param value the value, may be null
+   * @return the estimated number of bytes retained by the value
+   */
+  @Override
+  public int weigh(Object key, Object value) {
+    if (value == null) {
+      return 0;
+    }
+    TypeSizes typeSizes = typeSizes(sampleType(key, value));
+    long instanceCount = typeSizes._instanceCount.incrementAndGet();
+    long sampleCount = typeSizes._sampleCount.get();
+
+    if (instanceCount > SAMPLE_COUNT && instanceCount % SAMPLE_INTERVAL != 0 && sampleCount > 0) {
+      return (int) Math.min(Integer.MAX_VALUE, typeSizes._totalSize.get() / sampleCount);
+    }
+    long size = estimateSize(value);
+    typeSizes._totalSize.addAndGet(size);
+    typeSizes._sampleCount.incrementAndGet();
+    return (int) Math.min(Integer.MAX_VALUE, size);
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by an object by walking the objects reachable from it.
+   *
+   * @param value the object, may be null
+   * @return the estimated number of bytes retained by the object
+   */
+  public long estimateSize(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    Deque<Object> pending = new ArrayDeque<>();
+    pending.add(value);
+    visited.add(value);
+    long size = 0;
+
+    while (!pending.isEmpty() && visited.size() <= MAX_OBJECTS) {
+      Object obj = pending.poll();
+      Class<?> type = obj.getClass();
+
+      if (type.isArray()) {
+        Class<?> componentType = type.getComponentType();
+        int length = Array.getLength(obj);
+
+        if (componentType.isPrimitive()) {
+          size += align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        } else {
+          size += align(ARRAY_HEADER + (long) length * REFERENCE_SIZE);
+          for (Object element : (Object[]) obj) {
+            follow(element, visited, pending);
+          }
+        }
+      } else {
+        ClassLayout layout = layout(type);
+        size += layout._size;
+
+        for (Field field : layout._referenceFields) {
+          try {
+            follow(field.get(obj), visited, pending);
+          } catch (IllegalAccessException e) {
+            throw new OpenGammaRuntimeException("Failed to read field " + field, e);
+          }
+        }
+      }
+    }
+    return size;
+  }
+
+  private static void follow(Object obj, Set<Object> visited, Deque<Object> pending) {
+    if (obj == null || obj instanceof Class || obj instanceof ClassLoader ||
+        obj instanceof Thread || obj instanceof Reference || obj instanceof Enum) {
+      return;
+    }
+    if (visited.add(obj)) {
+      pending.add(obj);
+    }
+  }
+
+  private static ClassLayout layout(final Class<?> type) {
+    try {
+      return s_layouts.get(type, new Callable<ClassLayout>() {
+        @Override
+        public ClassLayout call() {
+          return new ClassLayout(type);
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to analyze class " + type.getName(), e.getCause());
+    }
+  }
+
+  /**
+   * Returns the type under which the size of a value is sampled. This is the class of the value or, for a
+   * successful result, the class of the value it wraps, combined with the method that returned the value if
+   * the key is a method invocation.
+   *
+   * @param key the key, may be null
+   * @param value the value, not null
+   * @return the sample type, not null
+   */
+  /* package */ static Object sampleType(Object key, Object value) {
+    Class<?> valueType = value.getClass();
+
+    if (value instanceof Result && ((Result<?>) value).isSuccess()) {
+      Object resultValue = ((Result<?>) value).getValue();
+
+      if (resultValue != null) {
+        valueType = resultValue.getClass();
+      }
+    }
+    if (key instanceof MethodInvocationKey) {
+      return Pairs.of(((MethodInvocationKey) key).getMethod(), valueType);
+    }
+    return valueType;
+  }
+
+  private TypeSizes typeSizes(Object type) {
+    try {
+      return _typeSizes.get(type, new Callable<TypeSizes>() {
+        @Override
+        public TypeSizes call() {
+          return new TypeSizes();
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to create sizes for " + type, e.getCause());
+    }
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    } else {
+      return 1;
+    }
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  /**
+   * The number of values of a type that have been weighed and the sizes of the sampled values.
+   * The counts are updated independently so the average is approximate while values are being weighed.
+   */
+  private static final class TypeSizes {
+
+    private final AtomicLong _instanceCount = new AtomicLong();
+    private final AtomicLong _sampleCount = new AtomicLong();
+    private final AtomicLong _totalSize = new AtomicLong();
+  }
+
+  /**
+   * The shallow size of instances of a class and its fields that refer to other objects.
+   */
+  private static final class ClassLayout {
+
+    private final long _size;
+    private final List<Field> _referenceFields = new ArrayList<>();
+
+    private ClassLayout(Class<?> type) {
+      long size = OBJECT_HEADER;
+
+      for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+        for (Field field : cls.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          Class<?> fieldType = field.getType();
+
+          if (fieldType.isPrimitive()) {
+            size += primitiveSize(fieldType);
+          } else {
+            size += REFERENCE_SIZE;
+            field.setAccessible(true);
+            _referenceFields.add(field);
+          }
+        }
+      }
+      _size = align(size);
+    }
+  }
+}
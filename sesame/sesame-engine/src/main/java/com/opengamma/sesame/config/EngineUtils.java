@@ -30,6 +30,8 @@ import com.google.common.collect.Sets;
 import com.opengamma.core.config.Config;
 import com.opengamma.sesame.function.FunctionMetadata;
 import com.opengamma.sesame.function.Parameter;
+import com.opengamma.sesame.proxy.GeneratedProxy;
+import com.opengamma.sesame.proxy.ProxyGenerator;
 import com.opengamma.sesame.proxy.ProxyInvocationHandler;
 import com.opengamma.util.ArgumentChecker;
 import com.thoughtworks.paranamer.AdaptiveParanamer;
@@ -285,11 +287,35 @@ public final class EngineUtils {
    */
   public static Object getProxiedObject(Object object) {
     // if object isn't a proxy then we've reached the end of the chain of proxies
-    if (!Proxy.isProxyClass(object.getClass())) {
+    if (!isProxy(object)) {
       return object;
     }
-    ProxyInvocationHandler invocationHandler = (ProxyInvocationHandler) Proxy.getInvocationHandler(object);
-    return invocationHandler.getProxiedObject();
+    return getInvocationHandler(object).getProxiedObject();
+  }
+
+  /**
+   * Indicates whether an object is a proxy in the function graph, either a JDK dynamic proxy or a proxy
+   * generated by {@link ProxyGenerator}.
+   *
+   * @param object  an object, not null
+   * @return true if the object is a proxy
+   */
+  public static boolean isProxy(Object object) {
+    return ProxyGenerator.isProxy(object) || Proxy.isProxyClass(object.getClass());
+  }
+
+  /**
+   * Returns the invocation handler of a proxy in the function graph.
+   *
+   * @param proxy  a JDK dynamic proxy or a proxy generated by {@link ProxyGenerator}, not null
+   * @return the proxy's invocation handler, not null
+   * @throws IllegalArgumentException if the object isn't a proxy
+   */
+  public static ProxyInvocationHandler getInvocationHandler(Object proxy) {
+    if (proxy instanceof GeneratedProxy) {
+      return ((GeneratedProxy) proxy).getInvocationHandler();
+    }
+    return (ProxyInvocationHandler) Proxy.getInvocationHandler(proxy);
   }
 
   /**
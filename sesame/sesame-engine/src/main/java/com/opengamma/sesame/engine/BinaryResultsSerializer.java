@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.google.common.collect.Maps;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Serializes {@link Results} to and from a compact binary format.
+ * <p>
+ * The portfolio results are written column by column. Each column is written as a bitmap of the cells
+ * containing numeric results, a bitmap of the cells containing failures, the numeric values as raw doubles
+ * and the remaining results as Fudge messages. The inputs, non-portfolio results, timer and view inputs are
+ * written as Fudge messages.
+ * <p>
+ * For results containing mostly numeric values this is much smaller and faster than serializing the results
+ * as a bean because there is no per-cell object to walk and no per-cell field metadata to write.
+ */
+public final class BinaryResultsSerializer {
+
+  /** Identifies the format, incremented whenever the format changes. */
+  private static final int VERSION = 1;
+
+  private BinaryResultsSerializer() {
+  }
+
+  /**
+   * Writes results to a stream. The stream isn't closed.
+   *
+   * @param results the results
+   * @param outputStream the stream to write to
+   */
+  public static void serialize(Results results, OutputStream outputStream) {
+    ArgumentChecker.notNull(results, "results");
+    ArgumentChecker.notNull(outputStream, "outputStream");
+    ResultColumns columns = results.getColumns();
+    List<ResultRow> rows = results.getRows();
+    FudgeContext ctx = OpenGammaFudgeContext.getInstance();
+    FudgeSerializer serializer = new FudgeSerializer(ctx);
+
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+      out.writeInt(VERSION);
+      out.writeInt(results.getColumnNames().size());
+
+      for (String columnName : results.getColumnNames()) {
+        out.writeUTF(columnName);
+      }
+      out.writeInt(rows.size());
+
+      for (ResultRow row : rows) {
+        writeObject(row.getInput(), out, serializer, ctx);
+      }
+      for (int columnIndex = 0; columnIndex < columns.getColumnCount(); columnIndex++) {
+        BitSet numericCells = columns.getNumericCells(columnIndex);
+        writeBitSet(numericCells, out);
+        writeBitSet(columns.getFailedCells(columnIndex), out);
+
+        for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+          if (numericCells.get(rowIndex)) {
+            out.writeDouble(columns.getValue(rowIndex, columnIndex));
+          }
+        }
+        for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+          if (!numericCells.get(rowIndex)) {
+            writeObject(columns.get(rowIndex, columnIndex), out, serializer, ctx);
+          }
+        }
+      }
+      Map<String, ResultItem> nonPortfolioResults = results.getNonPortfolioResults();
+      out.writeInt(nonPortfolioResults.size());
+
+      for (Map.Entry<String, ResultItem> entry : nonPortfolioResults.entrySet()) {
+        out.writeUTF(entry.getKey());
+        writeObject(entry.getValue(), out, serializer, ctx);
+      }
+      out.writeBoolean(results.isPendingMarketData());
+      writeObject(results.getViewTimer(), out, serializer, ctx);
+      writeObject(results.getViewInputs(), out, serializer, ctx);
+      out.flush();
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Error whilst serializing", e);
+    }
+  }
+
+  /**
+   * Reads results from a stream written by {@link #serialize}. The stream isn't closed.
+   *
+   * @param inputStream the stream to read from
+   * @return the results
+   */
+  public static Results deserialize(InputStream inputStream) {
+    ArgumentChecker.notNull(inputStream, "inputStream");
+    FudgeContext ctx = OpenGammaFudgeContext.getInstance();
+    FudgeDeserializer deserializer = new FudgeDeserializer(ctx);
+
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+      int version = in.readInt();
+
+      if (version != VERSION) {
+        throw new OpenGammaRuntimeException("Unsupported results format version " + version);
+      }
+      int columnCount = in.readInt();
+      List<String> columnNames = new ArrayList<>(columnCount);
+
+      for (int i = 0; i < columnCount; i++) {
+        columnNames.add(in.readUTF());
+      }
+      int rowCount = in.readInt();
+      List<Object> inputs = new ArrayList<>(rowCount);
+
+      for (int i = 0; i < rowCount; i++) {
+        inputs.add(readObject(in, deserializer, ctx));
+      }
+      ResultColumns columns = new ResultColumns(rowCount, columnCount);
+
+      for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+        BitSet numericCells = readBitSet(in);
+        // the failure bitmap is rebuilt from the items as they are added
+        readBitSet(in);
+
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+          if (numericCells.get(rowIndex)) {
+            columns.setValue(rowIndex, columnIndex, in.readDouble());
+          }
+        }
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+          if (!numericCells.get(rowIndex)) {
+            ResultItem item = (ResultItem) readObject(in, deserializer, ctx);
+
+            if (item != null) {
+              columns.set(rowIndex, columnIndex, item);
+            }
+          }
+        }
+      }
+      int nonPortfolioCount = in.readInt();
+      Map<String, ResultItem> nonPortfolioResults = Maps.newHashMapWithExpectedSize(nonPortfolioCount);
+
+      for (int i = 0; i < nonPortfolioCount; i++) {
+        String name = in.readUTF();
+        nonPortfolioResults.put(name, (ResultItem) readObject(in, deserializer, ctx));
+      }
+      boolean pendingMarketData = in.readBoolean();
+      ViewTimer timer = (ViewTimer) readObject(in, deserializer, ctx);
+      ViewInputs viewInputs = (ViewInputs) readObject(in, deserializer, ctx);
+      Results results = new Results(columnNames, inputs, columns, nonPortfolioResults, pendingMarketData, timer);
+      return viewInputs == null ? results : results.withViewInputs(viewInputs);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Error whilst deserializing", e);
+    }
+  }
+
+  private static void writeBitSet(BitSet bits, DataOutputStream out) throws IOException {
+    long[] words = bits.toLongArray();
+    out.writeInt(words.length);
+
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  private static BitSet readBitSet(DataInputStream in) throws IOException {
+    long[] words = new long[in.readInt()];
+
+    for (int i = 0; i < words.length; i++) {
+      words[i] = in.readLong();
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Writes an object as a length-prefixed Fudge message. A null object is written as a length of -1.
+   */
+  private static void writeObject(Object object,
+                                  DataOutputStream out,
+                                  FudgeSerializer serializer,
+                                  FudgeContext ctx) throws IOException {
+    if (object == null) {
+      out.writeInt(-1);
+      return;
+    }
+    MutableFudgeMsg msg = serializer.newMessage();
+    serializer.addToMessageWithClassHeaders(msg, null, 1, object);
+    byte[] bytes = ctx.toByteArray(msg);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static Object readObject(DataInputStream in,
+                                   FudgeDeserializer deserializer,
+                                   FudgeContext ctx) throws IOException {
+    int length = in.readInt();
+
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    FudgeMsg msg = ctx.deserialize(bytes).getMessage();
+    return deserializer.fieldValueToObject(Object.class, msg.getByOrdinal(1));
+  }
+}
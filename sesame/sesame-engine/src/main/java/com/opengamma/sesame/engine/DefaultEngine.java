@@ -42,15 +42,31 @@ import com.opengamma.util.tuple.Pairs;
  */
 public class DefaultEngine implements Engine {
 
+  /**
+   * Whether scenarios are calculated as a single batch by default. Can be disabled by setting the system property
+   * {@code DefaultEngine.batchScenarios} to {@code false}.
+   */
+  private static final boolean BATCH_SCENARIOS =
+      System.getProperty("DefaultEngine.batchScenarios", "TRUE").equalsIgnoreCase("TRUE");
+
   /** Builds market data in response to requirements gathered from the functions. */
   private final MarketDataEnvironmentFactory _environmentFactory;
 
-  /** For creating views for performing calculations using configuration passed into the run methods. */
+  /**
+   * For creating views for performing calculations using configuration passed into the run methods.
+   * Views are shared between requests with the same configuration and input types.
+   */
   private final ViewFactory _viewFactory;
 
   /** Runs tasks to gather market data requirements and build the data. */
   private final ListeningExecutorService _executor;
 
+  /**
+   * Whether scenarios are calculated as a single batch, sharing a cache and calculating scenarios with identical
+   * market data once. If this is false each scenario is run as a separate cycle.
+   */
+  private final boolean _batchScenarios;
+
   /**
    * @param viewFactory for creating views for performing calculations using configuration passed into the run methods
    * @param environmentFactory builds market data in response to requirements gathered from the functions
@@ -60,7 +76,22 @@ public class DefaultEngine implements Engine {
       ViewFactory viewFactory,
       MarketDataEnvironmentFactory environmentFactory,
       ExecutorService executor) {
+    this(viewFactory, environmentFactory, executor, BATCH_SCENARIOS);
+  }
 
+  /**
+   * @param viewFactory for creating views for performing calculations using configuration passed into the run methods
+   * @param environmentFactory builds market data in response to requirements gathered from the functions
+   * @param executor run tasks to gather market data requirements and build the data
+   * @param batchScenarios whether scenarios are calculated as a single batch instead of one cycle per scenario
+   */
+  public DefaultEngine(
+      ViewFactory viewFactory,
+      MarketDataEnvironmentFactory environmentFactory,
+      ExecutorService executor,
+      boolean batchScenarios) {
+
+    _batchScenarios = batchScenarios;
     _environmentFactory = ArgumentChecker.notNull(environmentFactory, "bundleBuilder");
     _viewFactory = ArgumentChecker.notNull(viewFactory, "viewFactory");
     _executor = MoreExecutors.listeningDecorator(ArgumentChecker.notNull(executor, "executor"));
@@ -73,10 +104,21 @@ public class DefaultEngine implements Engine {
       MarketDataEnvironment marketData,
       List<?> portfolio) {
 
-    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
     return view.run(calculationArguments, marketData, portfolio);
   }
 
+  @Override
+  public ListenableFuture<Results> runViewAsync(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment marketData,
+      List<?> portfolio) {
+
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    return view.runAsync(calculationArguments, marketData, portfolio);
+  }
+
   @Override
   public ScenarioResults runScenarios(
       ViewConfig viewConfig,
@@ -85,7 +127,15 @@ public class DefaultEngine implements Engine {
       List<?> portfolio) {
 
     // the outer set is the cycles, the list holds the perturbations to apply in that cycle
-    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
+
+    if (_batchScenarios) {
+      try {
+        return view.runScenariosAsync(calculationArguments, scenarioMarketData.getData(), portfolio).get();
+      } catch (InterruptedException | ExecutionException e) {
+        throw new OpenGammaRuntimeException("Failed to run scenarios", e);
+      }
+    }
     List<ListenableFuture<Pair<String, Results>>> resultFutures = new ArrayList<>();
 
     for (Map.Entry<String, MarketDataEnvironment> entry : scenarioMarketData.getData().entrySet()) {
@@ -117,7 +167,7 @@ public class DefaultEngine implements Engine {
       CalculationArguments calculationArguments,
       List<?> portfolio) {
 
-    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
     Set<MarketDataRequirement> requirements = view.gatherRequirements(suppliedData, calculationArguments, portfolio);
     return _environmentFactory.build(
         suppliedData,
@@ -135,7 +185,7 @@ public class DefaultEngine implements Engine {
       CalculationArguments calculationArguments,
       List<?> portfolio) {
 
-    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
     // TODO when multiple valuation times are supported, gather one set of requirements for each valuation time
     Set<MarketDataRequirement> requirements = view.gatherRequirements(baseData, calculationArguments, portfolio);
     List<SingleScenarioDefinition> scenarios = scenarioDefinition.getScenarios();
@@ -277,7 +327,7 @@ public class DefaultEngine implements Engine {
     Map.Entry<String, MarketDataEnvironment> firstScenario = scenarioData.entrySet().iterator().next();
     MarketDataEnvironment firstScenarioData = firstScenario.getValue();
 
-    View view = _viewFactory.createView(viewConfig, EngineUtils.getInputTypes(portfolio));
+    View view = _viewFactory.getView(viewConfig, EngineUtils.getInputTypes(portfolio));
     Set<MarketDataRequirement> requirements = view.gatherRequirements(firstScenarioData, calculationArguments, portfolio);
     MarketDataSpecification marketDataSpecification = calculationArguments.getMarketDataSpecification();
     ZonedDateTime valuationTime = calculationArguments.getValuationTime();
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.threeten.bp.ZonedDateTime;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.opengamma.sesame.cache.DependencyRecorder;
+import com.opengamma.sesame.marketdata.MarketDataEnvironment;
+import com.opengamma.sesame.marketdata.MarketDataId;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The results of a delta calculation cycle, together with the state needed to calculate the next cycle
+ * incrementally.
+ * <p>
+ * Instances are created by {@link View#runDeltaAsync} and passed to the next call to {@code runDeltaAsync}.
+ * The state is updated in place by the next cycle so that the work done in a cycle depends on the number of
+ * results affected by the changes in the market data rather than the size of the portfolio.
+ * Therefore each instance can only be used once to calculate the next cycle. If it's used again the next cycle
+ * recalculates all the results.
+ */
+public final class DeltaResults {
+
+  private final View _view;
+  /** The calculation arguments of the cycle without the valuation time, which is compared separately. */
+  private final CalculationArguments _calculationArguments;
+  private final ZonedDateTime _valuationTime;
+  private final MarketDataEnvironment _marketData;
+  private final List<?> _inputs;
+  private final Results _results;
+  private final ResultsDelta _delta;
+  private final DependencyRecorder _recorder;
+  private final Dependencies<Cell> _cellDependencies;
+  private final Dependencies<String> _outputDependencies;
+
+  /** Whether the dependencies have been taken by the next cycle. */
+  private final AtomicBoolean _used = new AtomicBoolean();
+
+  DeltaResults(View view,
+               CalculationArguments calculationArguments,
+               ZonedDateTime valuationTime,
+               MarketDataEnvironment marketData,
+               List<?> inputs,
+               Results results,
+               ResultsDelta delta,
+               DependencyRecorder recorder,
+               Dependencies<Cell> cellDependencies,
+               Dependencies<String> outputDependencies) {
+    _view = ArgumentChecker.notNull(view, "view");
+    _calculationArguments = withoutValuationTime(ArgumentChecker.notNull(calculationArguments, "calculationArguments"));
+    _valuationTime = ArgumentChecker.notNull(valuationTime, "valuationTime");
+    _marketData = ArgumentChecker.notNull(marketData, "marketData");
+    _inputs = ArgumentChecker.notNull(inputs, "inputs");
+    _results = ArgumentChecker.notNull(results, "results");
+    _delta = ArgumentChecker.notNull(delta, "delta");
+    _recorder = ArgumentChecker.notNull(recorder, "recorder");
+    _cellDependencies = ArgumentChecker.notNull(cellDependencies, "cellDependencies");
+    _outputDependencies = ArgumentChecker.notNull(outputDependencies, "outputDependencies");
+  }
+
+  /**
+   * @return all the results of the cycle, including results copied from previous cycles
+   */
+  public Results getResults() {
+    return _results;
+  }
+
+  /**
+   * @return the results that changed in this cycle, relative to the previous cycle
+   */
+  public ResultsDelta getDelta() {
+    return _delta;
+  }
+
+  /**
+   * Checks whether the next cycle can be calculated incrementally from this one and if so marks this instance
+   * as used. This is the case if the cycle uses the same view, inputs and arguments, its valuation time is on
+   * the same date and this instance hasn't already been used to calculate a cycle.
+   * <p>
+   * Live cycles normally use the current time as the valuation time so it changes in every cycle. Only a change
+   * of valuation date causes a full recalculation. Results whose calculations read the valuation time are recorded
+   * as depending on {@link ValuationTimeId} and are recalculated whenever the time changes, results that only read
+   * the valuation date are copied.
+   *
+   * @return true if the next cycle can be calculated incrementally from this one
+   */
+  boolean useForNextCycle(View view,
+                          CalculationArguments calculationArguments,
+                          ZonedDateTime valuationTime,
+                          List<?> inputs) {
+    return _view == view &&
+        _calculationArguments.equals(withoutValuationTime(calculationArguments)) &&
+        _valuationTime.toLocalDate().equals(valuationTime.toLocalDate()) &&
+        (_inputs == inputs || _inputs.equals(inputs)) &&
+        _used.compareAndSet(false, true);
+  }
+
+  private static CalculationArguments withoutValuationTime(CalculationArguments calculationArguments) {
+    if (calculationArguments.getValuationTime() == null) {
+      return calculationArguments;
+    }
+    return calculationArguments.toBuilder().valuationTime(null).build();
+  }
+
+  ZonedDateTime getValuationTime() {
+    return _valuationTime;
+  }
+
+  MarketDataEnvironment getMarketData() {
+    return _marketData;
+  }
+
+  DependencyRecorder getRecorder() {
+    return _recorder;
+  }
+
+  Dependencies<Cell> getCellDependencies() {
+    return _cellDependencies;
+  }
+
+  Dependencies<String> getOutputDependencies() {
+    return _outputDependencies;
+  }
+
+  /**
+   * The market data read by the calculation of each result, keyed by cell or output name.
+   * <p>
+   * This isn't thread safe. It's only updated when a cycle completes and cycles using the same instance
+   * run one after another.
+   *
+   * @param <K> the type of the keys identifying the results
+   */
+  static final class Dependencies<K> {
+
+    /** The market data read by each result whose dependencies are known. */
+    private final Map<K, Set<MarketDataId<?>>> _reads = new HashMap<>();
+
+    /** The results that read each market data value. */
+    private final SetMultimap<MarketDataId<?>, K> _readers = HashMultimap.create();
+
+    /** The results whose dependencies are unknown. These are recalculated in every cycle. */
+    private final Set<K> _unknown = new HashSet<>();
+
+    /**
+     * Returns the results affected by changes to market data.
+     *
+     * @param changedIds the IDs of the market data that changed
+     * @return the results that read any of the market data or whose dependencies are unknown
+     */
+    Set<K> affectedBy(Set<MarketDataId<?>> changedIds) {
+      Set<K> affected = new HashSet<>(_unknown);
+
+      for (MarketDataId<?> id : changedIds) {
+        affected.addAll(_readers.get(id));
+      }
+      return affected;
+    }
+
+    /**
+     * Records the market data read when calculating a result, replacing the data read in previous cycles.
+     *
+     * @param key the key identifying the result
+     * @param reads the IDs of the market data read when calculating the result, null if unknown
+     */
+    void update(K key, Set<MarketDataId<?>> reads) {
+      Set<MarketDataId<?>> previousReads = _reads.remove(key);
+
+      if (previousReads != null) {
+        for (MarketDataId<?> id : previousReads) {
+          _readers.remove(id, key);
+        }
+      }
+      if (reads == null) {
+        _unknown.add(key);
+      } else {
+        _unknown.remove(key);
+        _reads.put(key, reads);
+
+        for (MarketDataId<?> id : reads) {
+          _readers.put(id, key);
+        }
+      }
+    }
+  }
+}
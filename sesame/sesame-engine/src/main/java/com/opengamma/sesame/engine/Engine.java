@@ -7,6 +7,7 @@ package com.opengamma.sesame.engine;
 
 import java.util.List;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.opengamma.sesame.config.ViewConfig;
 import com.opengamma.sesame.marketdata.MarketDataEnvironment;
 import com.opengamma.sesame.marketdata.ScenarioMarketDataEnvironment;
@@ -88,6 +89,24 @@ public interface Engine {
       MarketDataEnvironment marketData,
       List<?> portfolio);
 
+  /**
+   * Starts performing the calculations defined in a view and returns a future of the results without waiting for
+   * the calculations to complete.
+   * <p>
+   * This allows a caller to run multiple calculation cycles concurrently without blocking a thread for each cycle.
+   *
+   * @param viewConfig configuration of the view that performs the calculations
+   * @param calculationArguments options used when performing calculations
+   * @param marketData market data to be used in the calculations
+   * @param portfolio the trades, securities (or anything else) that are the inputs to the calculations
+   * @return a future of the calculation results
+   */
+  ListenableFuture<Results> runViewAsync(
+      ViewConfig viewConfig,
+      CalculationArguments calculationArguments,
+      MarketDataEnvironment marketData,
+      List<?> portfolio);
+
   /**
    * Performs the calculations defined in a view multiple times, using data from a different scenario each time.
    * <p>
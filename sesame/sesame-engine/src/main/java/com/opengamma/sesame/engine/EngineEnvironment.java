@@ -13,6 +13,7 @@ import org.threeten.bp.ZonedDateTime;
 
 import com.opengamma.sesame.Environment;
 import com.opengamma.sesame.cache.CacheInvalidator;
+import com.opengamma.sesame.cache.DependencyRecorder;
 import com.opengamma.sesame.cache.ValuationTimeCacheEntry;
 import com.opengamma.sesame.function.scenarios.FilteredScenarioDefinition;
 import com.opengamma.sesame.function.scenarios.ScenarioArgument;
@@ -73,6 +74,7 @@ final class EngineEnvironment implements Environment {
   @Override
   public ZonedDateTime getValuationTime() {
     _cacheInvalidator.register(new ValuationTimeCacheEntry.ValidAtCalculationInstant(_valuationTime));
+    DependencyRecorder.recordRead(ValuationTimeId.INSTANCE);
     return _valuationTime;
   }
 
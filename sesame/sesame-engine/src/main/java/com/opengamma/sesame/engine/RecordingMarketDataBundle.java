@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.Objects;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.sesame.cache.DependencyRecorder;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataId;
+import com.opengamma.timeseries.date.DateTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.result.Result;
+import com.opengamma.util.time.LocalDateRange;
+
+/**
+ * Market data bundle that reports every request it receives to the {@link DependencyRecorder} for the
+ * current thread before delegating to another bundle.
+ * <p>
+ * The bundle has no state apart from its delegate so two bundles are equal if their delegates are equal.
+ * This allows values calculated using bundles with the same data to be shared in the cache.
+ */
+final class RecordingMarketDataBundle implements MarketDataBundle {
+
+  private final MarketDataBundle _delegate;
+
+  RecordingMarketDataBundle(MarketDataBundle delegate) {
+    _delegate = ArgumentChecker.notNull(delegate, "delegate");
+  }
+
+  @Override
+  public <T, I extends MarketDataId<T>> Result<T> get(I id, Class<T> dataType) {
+    DependencyRecorder.recordRead(id);
+    return _delegate.get(id, dataType);
+  }
+
+  @Override
+  public <T, I extends MarketDataId<T>> Result<DateTimeSeries<LocalDate, T>> get(
+      I id,
+      Class<T> dataType,
+      LocalDateRange dateRange) {
+
+    DependencyRecorder.recordRead(id);
+    return _delegate.get(id, dataType, dateRange);
+  }
+
+  @Override
+  public MarketDataBundle withTime(ZonedDateTime time) {
+    return new RecordingMarketDataBundle(_delegate.withTime(time));
+  }
+
+  @Override
+  public MarketDataBundle withDate(LocalDate date) {
+    return new RecordingMarketDataBundle(_delegate.withDate(date));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    return _delegate.equals(((RecordingMarketDataBundle) obj)._delegate);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), _delegate);
+  }
+}
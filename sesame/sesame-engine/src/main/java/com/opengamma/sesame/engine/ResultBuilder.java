@@ -5,15 +5,13 @@
  */
 package com.opengamma.sesame.engine;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
 import org.threeten.bp.Instant;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Table;
-import com.google.common.collect.TreeBasedTable;
 import com.opengamma.sesame.trace.CallGraph;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.result.Failure;
@@ -22,23 +20,45 @@ import com.opengamma.util.result.Result;
 
 /**
  * Mutable builder for the immutable {@link Results} class.
+ * <p>
+ * The portfolio results are stored in columns. Numeric results are stored as primitives and the items
+ * for them are only created if they are requested from the results.
  */
 final class ResultBuilder {
 
-  private final Table<Integer, Integer, ResultItem> _table = TreeBasedTable.create();
+  private final ResultColumns _columns;
   private final List<?> _inputs;
   private final List<String> _columnNames;
   private final Map<String, ResultItem> _nonPortfolioResults = Maps.newHashMap();
   private boolean _isPendingMarketData;
+  /** Whether the builder was created with the results of a previous cycle. */
+  private final boolean _copied;
 
   ResultBuilder(List<?> inputs, List<String> columnNames) {
     _inputs = inputs;
     _columnNames = columnNames;
+    _columns = new ResultColumns(inputs.size(), columnNames.size());
+    _copied = false;
+  }
+
+  /**
+   * Creates a builder containing the portfolio results of a previous cycle for the same inputs and columns.
+   * Results added to the builder replace the previous results for the same cells.
+   */
+  ResultBuilder(List<?> inputs, List<String> columnNames, ResultColumns previous) {
+    _inputs = inputs;
+    _columnNames = columnNames;
+    _columns = previous.copy();
+    _copied = true;
   }
 
   void add(int rowIndex, int columnIndex, Result<?> result, CallGraph callGraph) {
-    _table.put(rowIndex, columnIndex, new ResultItem(result, callGraph));
-    checkForPendingData(result);
+    if (result.isSuccess() && callGraph == null && result.getValue() instanceof Double) {
+      _columns.setValue(rowIndex, columnIndex, (Double) result.getValue());
+    } else {
+      _columns.set(rowIndex, columnIndex, new ResultItem(result, callGraph));
+      checkForPendingData(result);
+    }
   }
 
   void add(String outputName, Result<?> result, CallGraph callGraph) {
@@ -46,6 +66,14 @@ final class ResultBuilder {
     checkForPendingData(result);
   }
 
+  /**
+   * Adds a non-portfolio result calculated in a previous cycle.
+   */
+  void add(String outputName, ResultItem item) {
+    _nonPortfolioResults.put(ArgumentChecker.notEmpty(outputName, "outputName"), item);
+    checkForPendingData(item.getResult());
+  }
+
   private void checkForPendingData(Result<?> result) {
 
     if (!_isPendingMarketData && !result.isSuccess()) {
@@ -58,14 +86,27 @@ final class ResultBuilder {
     }
   }
 
+  /**
+   * Checks whether any of the failures in the columns, including those copied from a previous cycle, are
+   * caused by pending market data. Only the failed cells are checked.
+   */
+  private void checkFailedCellsForPendingData() {
+    for (int columnIndex = 0; columnIndex < _columns.getColumnCount() && !_isPendingMarketData; columnIndex++) {
+      BitSet failures = _columns.getFailedCells(columnIndex);
+
+      for (int rowIndex = failures.nextSetBit(0);
+           rowIndex >= 0 && !_isPendingMarketData;
+           rowIndex = failures.nextSetBit(rowIndex + 1)) {
+        checkForPendingData(_columns.get(rowIndex, columnIndex).getResult());
+      }
+    }
+  }
+
   Results build(Instant start, long startExecution, long startInitialization, long startResultsBuild) {
-    Map<Integer, Map<Integer, ResultItem>> rowMap = _table.rowMap();
-    List<ResultRow> rows = Lists.newArrayListWithCapacity(rowMap.size());
-    int index = 0;
-    for (Map<Integer, ResultItem> row : rowMap.values()) {
-      rows.add(new ResultRow(_inputs.get(index++), Lists.newArrayList(row.values())));
+    if (_copied) {
+      checkFailedCellsForPendingData();
     }
     ViewTimer timer = new ViewTimer(start, startInitialization, startExecution, startResultsBuild, System.nanoTime());
-    return new Results(_columnNames, rows, _nonPortfolioResults, _isPendingMarketData, timer);
+    return new Results(_columnNames, _inputs, _columns, _nonPortfolioResults, _isPendingMarketData, timer);
   }
 }
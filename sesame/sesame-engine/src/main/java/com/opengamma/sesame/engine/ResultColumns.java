@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.result.Result;
+
+/**
+ * Column-oriented storage for the portfolio results of a view cycle.
+ * <p>
+ * Successful results whose value is a {@code Double} and which have no call graph are stored in a primitive
+ * {@code double[]} for their column. All other results are stored as {@link ResultItem} instances. The cells
+ * containing failures are also recorded in a bitmap for each column so they can be found without looking
+ * at the items.
+ * <p>
+ * The {@link ResultItem} and {@link ResultRow} instances for numeric results aren't stored, they are created
+ * when they are requested.
+ * <p>
+ * Instances are populated by {@link ResultBuilder} and aren't modified after the results have been built.
+ */
+final class ResultColumns {
+
+  /** The number of columns. */
+  private final int _columnCount;
+
+  /** The number of rows that can be stored. */
+  private final int _capacity;
+
+  /** The values of the numeric results in each column, null for columns without any numeric results. */
+  private final double[][] _values;
+
+  /** The cells in each column whose results are stored in {@link #_values}. */
+  private final BitSet[] _numeric;
+
+  /** The cells in each column whose results are failures. */
+  private final BitSet[] _failures;
+
+  /** The items for the non-numeric results in each column, null for columns with only numeric results. */
+  private final ResultItem[][] _items;
+
+  /** The number of rows, one more than the highest row index containing a result. */
+  private int _rowCount;
+
+  /**
+   * @param capacity the number of rows that can be stored
+   * @param columnCount the number of columns
+   */
+  ResultColumns(int capacity, int columnCount) {
+    _capacity = ArgumentChecker.notNegative(capacity, "capacity");
+    _columnCount = ArgumentChecker.notNegative(columnCount, "columnCount");
+    _values = new double[columnCount][];
+    _items = new ResultItem[columnCount][];
+    _numeric = new BitSet[columnCount];
+    _failures = new BitSet[columnCount];
+
+    for (int i = 0; i < columnCount; i++) {
+      _numeric[i] = new BitSet(capacity);
+      _failures[i] = new BitSet(capacity);
+    }
+  }
+
+  /**
+   * Creates a copy of some column storage. The arrays and bitmaps are copied so the copy can be modified
+   * without affecting the original, the items are shared.
+   *
+   * @param other the storage to copy
+   */
+  private ResultColumns(ResultColumns other) {
+    _capacity = other._capacity;
+    _columnCount = other._columnCount;
+    _rowCount = other._rowCount;
+    _values = new double[_columnCount][];
+    _items = new ResultItem[_columnCount][];
+    _numeric = new BitSet[_columnCount];
+    _failures = new BitSet[_columnCount];
+
+    for (int i = 0; i < _columnCount; i++) {
+      _values[i] = other._values[i] == null ? null : other._values[i].clone();
+      _items[i] = other._items[i] == null ? null : other._items[i].clone();
+      _numeric[i] = (BitSet) other._numeric[i].clone();
+      _failures[i] = (BitSet) other._failures[i].clone();
+    }
+  }
+
+  /**
+   * Creates column storage containing the results in some rows.
+   *
+   * @param rows the rows of results
+   * @param columnCount the number of columns
+   * @return storage containing the results
+   */
+  static ResultColumns of(List<ResultRow> rows, int columnCount) {
+    ResultColumns columns = new ResultColumns(rows.size(), columnCount);
+
+    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+      List<ResultItem> items = rows.get(rowIndex).getItems();
+
+      for (int columnIndex = 0; columnIndex < items.size(); columnIndex++) {
+        columns.set(rowIndex, columnIndex, items.get(columnIndex));
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Returns a modifiable copy of this storage, used to build the results of a cycle that only recalculates
+   * some of the results of a previous cycle.
+   *
+   * @return a copy of this storage
+   */
+  ResultColumns copy() {
+    return new ResultColumns(this);
+  }
+
+  /**
+   * Stores a result, replacing any existing result for the cell.
+   *
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @param item the result
+   */
+  void set(int rowIndex, int columnIndex, ResultItem item) {
+    checkIndices(rowIndex, columnIndex, _capacity);
+    Result<Object> result = item.getResult();
+
+    if (result.isSuccess() && item.getCallGraph() == null && result.getValue() instanceof Double) {
+      setValue(rowIndex, columnIndex, (Double) result.getValue());
+    } else {
+      if (_items[columnIndex] == null) {
+        _items[columnIndex] = new ResultItem[_capacity];
+      }
+      _items[columnIndex][rowIndex] = item;
+      _numeric[columnIndex].clear(rowIndex);
+      _failures[columnIndex].set(rowIndex, !result.isSuccess());
+      _rowCount = Math.max(_rowCount, rowIndex + 1);
+    }
+  }
+
+  /**
+   * Stores a numeric result, replacing any existing result for the cell.
+   *
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @param value the value of the result
+   */
+  void setValue(int rowIndex, int columnIndex, double value) {
+    checkIndices(rowIndex, columnIndex, _capacity);
+
+    if (_values[columnIndex] == null) {
+      _values[columnIndex] = new double[_capacity];
+    }
+    _values[columnIndex][rowIndex] = value;
+    _numeric[columnIndex].set(rowIndex);
+    _failures[columnIndex].clear(rowIndex);
+
+    if (_items[columnIndex] != null) {
+      _items[columnIndex][rowIndex] = null;
+    }
+    _rowCount = Math.max(_rowCount, rowIndex + 1);
+  }
+
+  /**
+   * @return the number of rows
+   */
+  int getRowCount() {
+    return _rowCount;
+  }
+
+  /**
+   * @return the number of columns
+   */
+  int getColumnCount() {
+    return _columnCount;
+  }
+
+  /**
+   * Returns the result in a cell.
+   *
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @return the result, null if no result was added for the cell
+   * @throws IndexOutOfBoundsException if the indices aren't valid
+   */
+  ResultItem get(int rowIndex, int columnIndex) {
+    checkIndices(rowIndex, columnIndex, _rowCount);
+
+    if (_numeric[columnIndex].get(rowIndex)) {
+      return new ResultItem(Result.success(_values[columnIndex][rowIndex]), null);
+    }
+    ResultItem[] items = _items[columnIndex];
+    return items == null ? null : items[rowIndex];
+  }
+
+  /**
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @return true if the cell contains a numeric result stored as a primitive
+   */
+  boolean isNumeric(int rowIndex, int columnIndex) {
+    checkIndices(rowIndex, columnIndex, _rowCount);
+    return _numeric[columnIndex].get(rowIndex);
+  }
+
+  /**
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @return true if the cell contains a failure
+   */
+  boolean isFailure(int rowIndex, int columnIndex) {
+    checkIndices(rowIndex, columnIndex, _rowCount);
+    return _failures[columnIndex].get(rowIndex);
+  }
+
+  /**
+   * @param rowIndex the row index of the cell
+   * @param columnIndex the column index of the cell
+   * @return the value of a numeric result, only valid if {@link #isNumeric} returns true for the cell
+   */
+  double getValue(int rowIndex, int columnIndex) {
+    checkIndices(rowIndex, columnIndex, _rowCount);
+    double[] values = _values[columnIndex];
+    return values == null ? 0 : values[rowIndex];
+  }
+
+  /**
+   * @param columnIndex the column index
+   * @return the cells in the column containing numeric results. The returned set mustn't be modified
+   */
+  BitSet getNumericCells(int columnIndex) {
+    return _numeric[columnIndex];
+  }
+
+  /**
+   * @param columnIndex the column index
+   * @return the cells in the column containing failures. The returned set mustn't be modified
+   */
+  BitSet getFailedCells(int columnIndex) {
+    return _failures[columnIndex];
+  }
+
+  /**
+   * Returns a view of a row of results. The items for numeric results are created when they are requested.
+   *
+   * @param rowIndex the row index
+   * @return the results in the row
+   */
+  List<ResultItem> row(final int rowIndex) {
+    checkIndices(rowIndex, 0, _rowCount);
+    return new RowItems(rowIndex);
+  }
+
+  /**
+   * Returns a view of the rows of results. The rows are created when they are requested.
+   *
+   * @param inputs the inputs for each row, must contain at least as many items as there are rows
+   * @return the rows of results
+   */
+  List<ResultRow> rows(List<?> inputs) {
+    if (inputs.size() < _rowCount) {
+      throw new IllegalArgumentException("Expected at least " + _rowCount + " inputs but there are " + inputs.size());
+    }
+    return new Rows(inputs.subList(0, _rowCount));
+  }
+
+  private void checkIndices(int rowIndex, int columnIndex, int rowCount) {
+    if (rowIndex < 0 || rowIndex >= rowCount) {
+      throw new IndexOutOfBoundsException("Index " + rowIndex + " is out of bounds. row count = " + rowCount);
+    }
+    if (columnIndex < 0 || columnIndex >= _columnCount) {
+      throw new IndexOutOfBoundsException("Index " + columnIndex + " is out of bounds. column count = " +
+                                              _columnCount);
+    }
+  }
+
+  /**
+   * Immutable view of the results in a row.
+   */
+  private final class RowItems extends AbstractList<ResultItem> implements RandomAccess {
+
+    private final int _rowIndex;
+
+    private RowItems(int rowIndex) {
+      _rowIndex = rowIndex;
+    }
+
+    @Override
+    public ResultItem get(int columnIndex) {
+      return ResultColumns.this.get(_rowIndex, columnIndex);
+    }
+
+    @Override
+    public int size() {
+      return _columnCount;
+    }
+  }
+
+  /**
+   * Immutable view of the rows of results.
+   */
+  private final class Rows extends AbstractList<ResultRow> implements RandomAccess {
+
+    private final List<?> _inputs;
+
+    private Rows(List<?> inputs) {
+      _inputs = inputs;
+    }
+
+    @Override
+    public ResultRow get(int rowIndex) {
+      return new ResultRow(_inputs.get(rowIndex), ResultColumns.this, rowIndex);
+    }
+
+    @Override
+    public int size() {
+      return _inputs.size();
+    }
+  }
+}
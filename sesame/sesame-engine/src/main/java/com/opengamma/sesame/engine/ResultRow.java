@@ -46,6 +46,18 @@ public final class ResultRow implements ImmutableBean {
     _items = ImmutableList.copyOf(ArgumentChecker.notNull(items, "items"));
   }
 
+  /**
+   * Creates a row whose items are a view of a row in column storage.
+   *
+   * @param input the input for the row
+   * @param columns the column storage containing the results
+   * @param rowIndex the index of the row in the column storage
+   */
+  /* package */ ResultRow(Object input, ResultColumns columns, int rowIndex) {
+    _input = ArgumentChecker.notNull(input, "input");
+    _items = columns.row(rowIndex);
+  }
+
   public ResultItem get(int columnIndex) {
     if (columnIndex < 0 || columnIndex >= _items.size()) {
       throw new IndexOutOfBoundsException("Index " + columnIndex + " is out of bounds. column count = " + _items.size());
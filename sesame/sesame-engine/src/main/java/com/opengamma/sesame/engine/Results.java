@@ -75,12 +75,30 @@ public final class Results implements ImmutableBean {
   /** Column indices keyed by name. */
   private final Map<String, Integer> _columnIndices = Maps.newHashMap();
 
+  /** Column storage backing the rows, null if the results weren't created by a {@link ResultBuilder}. */
+  private final ResultColumns _columns;
+
   Results(List<String> columnNames, List<ResultRow> rows,
           Map<String, ResultItem> nonPortfolioResults, boolean isPendingMarketData,
           ViewTimer timer) {
     this(columnNames, rows, nonPortfolioResults, isPendingMarketData, timer, null);
   }
 
+  Results(List<String> columnNames,
+          List<?> inputs,
+          ResultColumns columns,
+          Map<String, ResultItem> nonPortfolioResults,
+          boolean isPendingMarketData,
+          ViewTimer timer) {
+    this(columnNames,
+         ArgumentChecker.notNull(columns, "columns").rows(ArgumentChecker.notNull(inputs, "inputs")),
+         columns,
+         nonPortfolioResults,
+         isPendingMarketData,
+         timer,
+         null);
+  }
+
   @ImmutableConstructor
   private Results(List<String> columnNames,
                   List<ResultRow> rows,
@@ -88,8 +106,25 @@ public final class Results implements ImmutableBean {
                   boolean isPendingMarketData,
                   ViewTimer timer,
                   ViewInputs viewInputs) {
+    this(columnNames,
+         ImmutableList.copyOf(ArgumentChecker.notNull(rows, "rows")),
+         null,
+         nonPortfolioResults,
+         isPendingMarketData,
+         timer,
+         viewInputs);
+  }
+
+  private Results(List<String> columnNames,
+                  List<ResultRow> rows,
+                  ResultColumns columns,
+                  Map<String, ResultItem> nonPortfolioResults,
+                  boolean isPendingMarketData,
+                  ViewTimer timer,
+                  ViewInputs viewInputs) {
 
-    _rows = ImmutableList.copyOf(ArgumentChecker.notNull(rows, "rows"));
+    _rows = rows;
+    _columns = columns;
     _columnNames = ImmutableList.copyOf(ArgumentChecker.notNull(columnNames, "columnNames"));
     _nonPortfolioResults = ImmutableMap.copyOf(ArgumentChecker.notNull(nonPortfolioResults, "nonPortfolioResults"));
     _pendingMarketData = isPendingMarketData;
@@ -112,7 +147,8 @@ public final class Results implements ImmutableBean {
    * @return copy of the original results with updated view inputs
    */
   public Results withViewInputs(ViewInputs viewInputs) {
-    return new Results(_columnNames, _rows, _nonPortfolioResults, _pendingMarketData, _viewTimer, viewInputs);
+    return new Results(_columnNames, _rows, _columns, _nonPortfolioResults, _pendingMarketData, _viewTimer,
+                       viewInputs);
   }
 
   /**
@@ -139,9 +175,43 @@ public final class Results implements ImmutableBean {
     if (columnIndex < 0 || columnIndex >= _columnNames.size()) {
       throw new IndexOutOfBoundsException("Index " + columnIndex + " is out of bounds. column count = " + _columnNames.size());
     }
+    if (_columns != null) {
+      if (rowIndex < 0 || rowIndex >= _rows.size()) {
+        throw new IndexOutOfBoundsException("Index " + rowIndex + " is out of bounds. row count = " + _rows.size());
+      }
+      return _columns.get(rowIndex, columnIndex);
+    }
     return get(rowIndex).get(columnIndex);
   }
 
+  /**
+   * Returns whether the result in a cell is a failure.
+   * <p>
+   * This doesn't create the item for the result so it is cheaper than calling {@link #get(int, int)} and
+   * checking the result.
+   *
+   * @param rowIndex The row index
+   * @param columnIndex The column index
+   * @return true if the result is a failure
+   * @throws IndexOutOfBoundsException If the indices aren't valid
+   */
+  public boolean isFailure(int rowIndex, int columnIndex) {
+    if (_columns != null) {
+      return _columns.isFailure(rowIndex, columnIndex);
+    }
+    return !get(rowIndex, columnIndex).getResult().isSuccess();
+  }
+
+  /**
+   * Returns the column storage for the results, creating it from the rows if the results weren't built
+   * by a {@link ResultBuilder}.
+   *
+   * @return the column storage for the results
+   */
+  ResultColumns getColumns() {
+    return _columns != null ? _columns : ResultColumns.of(_rows, _columnNames.size());
+  }
+
   /**
    * Returns a value from a row and a named column
    * @param rowIndex The row index
@@ -151,7 +221,7 @@ public final class Results implements ImmutableBean {
    * @throws IllegalArgumentException If the row index is invalid
    */
   public ResultItem get(int rowIndex, String columnName) {
-    return get(rowIndex).get(getColumnIndex(columnName));
+    return get(rowIndex, getColumnIndex(columnName));
   }
 
   public ResultItem get(String nonPortfolioOutputName) {
@@ -189,6 +259,14 @@ public final class Results implements ImmutableBean {
     return new ResultBuilder(inputs, columnNames);
   }
 
+  /**
+   * Returns a builder containing the portfolio results of a previous cycle with the same inputs and columns.
+   * Only the results that are recalculated need to be added to the builder.
+   */
+  static ResultBuilder builder(List<?> inputs, List<String> columnNames, Results previous) {
+    return new ResultBuilder(inputs, columnNames, previous.getColumns());
+  }
+
   //------------------------- AUTOGENERATED START -------------------------
   ///CLOVER:OFF
   /**
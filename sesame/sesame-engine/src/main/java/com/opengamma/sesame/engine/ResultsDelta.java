@@ -0,0 +1,430 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.beans.Bean;
+import org.joda.beans.BeanDefinition;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.ImmutableConstructor;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The results that changed in a calculation cycle, relative to the previous cycle.
+ * <p>
+ * If the delta is for a full cycle it contains every result and replaces the previous results.
+ * Otherwise the results that aren't in the delta are unchanged.
+ */
+@BeanDefinition
+public final class ResultsDelta implements ImmutableBean {
+
+  /** The portfolio results that changed, keyed by cell. */
+  @PropertyDefinition(validate = "notNull")
+  private final ImmutableMap<Cell, ResultItem> _changedItems;
+
+  /** The non-portfolio results that changed, keyed by output name. */
+  @PropertyDefinition(validate = "notNull")
+  private final ImmutableMap<String, ResultItem> _changedOutputs;
+
+  /** Whether every result was calculated, in which case the delta replaces the previous results. */
+  @PropertyDefinition
+  private final boolean _fullCycle;
+
+  /**
+   * @param changedItems the portfolio results that changed, keyed by cell
+   * @param changedOutputs the non-portfolio results that changed, keyed by output name
+   * @param fullCycle whether every result was calculated, in which case the delta replaces the previous results
+   */
+  @ImmutableConstructor
+  public ResultsDelta(Map<Cell, ResultItem> changedItems, Map<String, ResultItem> changedOutputs, boolean fullCycle) {
+    _changedItems = ImmutableMap.copyOf(ArgumentChecker.notNull(changedItems, "changedItems"));
+    _changedOutputs = ImmutableMap.copyOf(ArgumentChecker.notNull(changedOutputs, "changedOutputs"));
+    _fullCycle = fullCycle;
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  ///CLOVER:OFF
+  /**
+   * The meta-bean for {@code ResultsDelta}.
+   * @return the meta-bean, not null
+   */
+  public static ResultsDelta.Meta meta() {
+    return ResultsDelta.Meta.INSTANCE;
+  }
+
+  static {
+    JodaBeanUtils.registerMetaBean(ResultsDelta.Meta.INSTANCE);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static ResultsDelta.Builder builder() {
+    return new ResultsDelta.Builder();
+  }
+
+  @Override
+  public ResultsDelta.Meta metaBean() {
+    return ResultsDelta.Meta.INSTANCE;
+  }
+
+  @Override
+  public <R> Property<R> property(String propertyName) {
+    return metaBean().<R>metaProperty(propertyName).createProperty(this);
+  }
+
+  @Override
+  public Set<String> propertyNames() {
+    return metaBean().metaPropertyMap().keySet();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the portfolio results that changed, keyed by cell.
+   * @return the value of the property, not null
+   */
+  public ImmutableMap<Cell, ResultItem> getChangedItems() {
+    return _changedItems;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the non-portfolio results that changed, keyed by output name.
+   * @return the value of the property, not null
+   */
+  public ImmutableMap<String, ResultItem> getChangedOutputs() {
+    return _changedOutputs;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets whether every result was calculated, in which case the delta replaces the previous results.
+   * @return the value of the property
+   */
+  public boolean isFullCycle() {
+    return _fullCycle;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      ResultsDelta other = (ResultsDelta) obj;
+      return JodaBeanUtils.equal(getChangedItems(), other.getChangedItems()) &&
+          JodaBeanUtils.equal(getChangedOutputs(), other.getChangedOutputs()) &&
+          (isFullCycle() == other.isFullCycle());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(getChangedItems());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getChangedOutputs());
+    hash = hash * 31 + JodaBeanUtils.hashCode(isFullCycle());
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(128);
+    buf.append("ResultsDelta{");
+    buf.append("changedItems").append('=').append(getChangedItems()).append(',').append(' ');
+    buf.append("changedOutputs").append('=').append(getChangedOutputs()).append(',').append(' ');
+    buf.append("fullCycle").append('=').append(JodaBeanUtils.toString(isFullCycle()));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code ResultsDelta}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code changedItems} property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private final MetaProperty<ImmutableMap<Cell, ResultItem>> _changedItems = DirectMetaProperty.ofImmutable(
+        this, "changedItems", ResultsDelta.class, (Class) ImmutableMap.class);
+    /**
+     * The meta-property for the {@code changedOutputs} property.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes" })
+    private final MetaProperty<ImmutableMap<String, ResultItem>> _changedOutputs = DirectMetaProperty.ofImmutable(
+        this, "changedOutputs", ResultsDelta.class, (Class) ImmutableMap.class);
+    /**
+     * The meta-property for the {@code fullCycle} property.
+     */
+    private final MetaProperty<Boolean> _fullCycle = DirectMetaProperty.ofImmutable(
+        this, "fullCycle", ResultsDelta.class, Boolean.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "changedItems",
+        "changedOutputs",
+        "fullCycle");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 354755948:  // changedItems
+          return _changedItems;
+        case -1604285890:  // changedOutputs
+          return _changedOutputs;
+        case -1702705257:  // fullCycle
+          return _fullCycle;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public ResultsDelta.Builder builder() {
+      return new ResultsDelta.Builder();
+    }
+
+    @Override
+    public Class<? extends ResultsDelta> beanType() {
+      return ResultsDelta.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return _metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code changedItems} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ImmutableMap<Cell, ResultItem>> changedItems() {
+      return _changedItems;
+    }
+
+    /**
+     * The meta-property for the {@code changedOutputs} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ImmutableMap<String, ResultItem>> changedOutputs() {
+      return _changedOutputs;
+    }
+
+    /**
+     * The meta-property for the {@code fullCycle} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Boolean> fullCycle() {
+      return _fullCycle;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 354755948:  // changedItems
+          return ((ResultsDelta) bean).getChangedItems();
+        case -1604285890:  // changedOutputs
+          return ((ResultsDelta) bean).getChangedOutputs();
+        case -1702705257:  // fullCycle
+          return ((ResultsDelta) bean).isFullCycle();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code ResultsDelta}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<ResultsDelta> {
+
+    private Map<Cell, ResultItem> _changedItems = new HashMap<Cell, ResultItem>();
+    private Map<String, ResultItem> _changedOutputs = new HashMap<String, ResultItem>();
+    private boolean _fullCycle;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(ResultsDelta beanToCopy) {
+      this._changedItems = new HashMap<Cell, ResultItem>(beanToCopy.getChangedItems());
+      this._changedOutputs = new HashMap<String, ResultItem>(beanToCopy.getChangedOutputs());
+      this._fullCycle = beanToCopy.isFullCycle();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 354755948:  // changedItems
+          return _changedItems;
+        case -1604285890:  // changedOutputs
+          return _changedOutputs;
+        case -1702705257:  // fullCycle
+          return _fullCycle;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 354755948:  // changedItems
+          this._changedItems = (Map<Cell, ResultItem>) newValue;
+          break;
+        case -1604285890:  // changedOutputs
+          this._changedOutputs = (Map<String, ResultItem>) newValue;
+          break;
+        case -1702705257:  // fullCycle
+          this._fullCycle = (Boolean) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(String propertyName, String value) {
+      setString(meta().metaProperty(propertyName), value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(MetaProperty<?> property, String value) {
+      super.setString(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setAll(Map<String, ? extends Object> propertyValueMap) {
+      super.setAll(propertyValueMap);
+      return this;
+    }
+
+    @Override
+    public ResultsDelta build() {
+      return new ResultsDelta(
+          _changedItems,
+          _changedOutputs,
+          _fullCycle);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the {@code changedItems} property in the builder.
+     * @param changedItems  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder changedItems(Map<Cell, ResultItem> changedItems) {
+      JodaBeanUtils.notNull(changedItems, "changedItems");
+      this._changedItems = changedItems;
+      return this;
+    }
+
+    /**
+     * Sets the {@code changedOutputs} property in the builder.
+     * @param changedOutputs  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder changedOutputs(Map<String, ResultItem> changedOutputs) {
+      JodaBeanUtils.notNull(changedOutputs, "changedOutputs");
+      this._changedOutputs = changedOutputs;
+      return this;
+    }
+
+    /**
+     * Sets the {@code fullCycle} property in the builder.
+     * @param fullCycle  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder fullCycle(boolean fullCycle) {
+      this._fullCycle = fullCycle;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(128);
+      buf.append("ResultsDelta.Builder{");
+      buf.append("changedItems").append('=').append(JodaBeanUtils.toString(_changedItems)).append(',').append(' ');
+      buf.append("changedOutputs").append('=').append(JodaBeanUtils.toString(_changedOutputs)).append(',').append(' ');
+      buf.append("fullCycle").append('=').append(JodaBeanUtils.toString(_fullCycle));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  ///CLOVER:ON
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.OpenGammaRuntimeException;
+
+/**
+ * Fudge builder for {@link Results}.
+ * <p>
+ * The results are written in the columnar format of {@link BinaryResultsSerializer} and carried as a single
+ * byte array field. This is the representation used whenever results are sent as Fudge, including the
+ * results returned by the remote view runner and function server REST resources.
+ */
+@FudgeBuilderFor(Results.class)
+public class ResultsFudgeBuilder implements FudgeBuilder<Results> {
+
+  /** Field containing the serialized results. */
+  public static final String DATA_FIELD_NAME = "data";
+
+  @Override
+  public MutableFudgeMsg buildMessage(FudgeSerializer serializer, Results results) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryResultsSerializer.serialize(results, out);
+    MutableFudgeMsg msg = serializer.newMessage();
+    msg.add(DATA_FIELD_NAME, out.toByteArray());
+    return msg;
+  }
+
+  @Override
+  public Results buildObject(FudgeDeserializer deserializer, FudgeMsg msg) {
+    byte[] data = msg.getValue(byte[].class, DATA_FIELD_NAME);
+
+    if (data == null) {
+      throw new OpenGammaRuntimeException("No " + DATA_FIELD_NAME + " field in results message " + msg);
+    }
+    return BinaryResultsSerializer.deserialize(new ByteArrayInputStream(data));
+  }
+}
@@ -24,6 +24,7 @@ import org.joda.beans.impl.direct.DirectMetaProperty;
 import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 
 import com.google.common.collect.ImmutableMap;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * A collection of calculation results for multiple scenarios, keyed by scenario name.
@@ -35,12 +36,27 @@ public final class ScenarioResults implements ImmutableBean {
   @PropertyDefinition(validate = "notNull")
   private final ImmutableMap<String, Results> _results;
 
+  /**
+   * Timings and statistics for the scenarios, null if the scenarios weren't calculated as a batch.
+   */
+  @PropertyDefinition
+  private final ScenarioTimer _timer;
+
   /**
    * @param results the calculation results for each scenario, keyed by scenario name
    */
-  @ImmutableConstructor
   public ScenarioResults(Map<String, Results> results) {
-    _results = ImmutableMap.copyOf(results);
+    this(results, null);
+  }
+
+  /**
+   * @param results the calculation results for each scenario, keyed by scenario name
+   * @param timer timings and statistics for the scenarios, null if the scenarios weren't calculated as a batch
+   */
+  @ImmutableConstructor
+  public ScenarioResults(Map<String, Results> results, ScenarioTimer timer) {
+    _results = ImmutableMap.copyOf(ArgumentChecker.notNull(results, "results"));
+    _timer = timer;
   }
 
   //------------------------- AUTOGENERATED START -------------------------
@@ -89,6 +105,15 @@ public final class ScenarioResults implements ImmutableBean {
     return _results;
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets timings and statistics for the scenarios, null if the scenarios weren't calculated as a batch.
+   * @return the value of the property
+   */
+  public ScenarioTimer getTimer() {
+    return _timer;
+  }
+
   //-----------------------------------------------------------------------
   /**
    * Returns a builder that allows this bean to be mutated.
@@ -105,7 +130,8 @@ public final class ScenarioResults implements ImmutableBean {
     }
     if (obj != null && obj.getClass() == this.getClass()) {
       ScenarioResults other = (ScenarioResults) obj;
-      return JodaBeanUtils.equal(getResults(), other.getResults());
+      return JodaBeanUtils.equal(getResults(), other.getResults()) &&
+          JodaBeanUtils.equal(getTimer(), other.getTimer());
     }
     return false;
   }
@@ -114,14 +140,16 @@ public final class ScenarioResults implements ImmutableBean {
   public int hashCode() {
     int hash = getClass().hashCode();
     hash = hash * 31 + JodaBeanUtils.hashCode(getResults());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getTimer());
     return hash;
   }
 
   @Override
   public String toString() {
-    StringBuilder buf = new StringBuilder(64);
+    StringBuilder buf = new StringBuilder(96);
     buf.append("ScenarioResults{");
-    buf.append("results").append('=').append(JodaBeanUtils.toString(getResults()));
+    buf.append("results").append('=').append(getResults()).append(',').append(' ');
+    buf.append("timer").append('=').append(JodaBeanUtils.toString(getTimer()));
     buf.append('}');
     return buf.toString();
   }
@@ -142,12 +170,18 @@ public final class ScenarioResults implements ImmutableBean {
     @SuppressWarnings({"unchecked", "rawtypes" })
     private final MetaProperty<ImmutableMap<String, Results>> _results = DirectMetaProperty.ofImmutable(
         this, "results", ScenarioResults.class, (Class) ImmutableMap.class);
+    /**
+     * The meta-property for the {@code timer} property.
+     */
+    private final MetaProperty<ScenarioTimer> _timer = DirectMetaProperty.ofImmutable(
+        this, "timer", ScenarioResults.class, ScenarioTimer.class);
     /**
      * The meta-properties.
      */
     private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
         this, null,
-        "results");
+        "results",
+        "timer");
 
     /**
      * Restricted constructor.
@@ -160,6 +194,8 @@ public final class ScenarioResults implements ImmutableBean {
       switch (propertyName.hashCode()) {
         case 1097546742:  // results
           return _results;
+        case 110364485:  // timer
+          return _timer;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -188,12 +224,22 @@ public final class ScenarioResults implements ImmutableBean {
       return _results;
     }
 
+    /**
+     * The meta-property for the {@code timer} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ScenarioTimer> timer() {
+      return _timer;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
       switch (propertyName.hashCode()) {
         case 1097546742:  // results
           return ((ScenarioResults) bean).getResults();
+        case 110364485:  // timer
+          return ((ScenarioResults) bean).getTimer();
       }
       return super.propertyGet(bean, propertyName, quiet);
     }
@@ -216,6 +262,7 @@ public final class ScenarioResults implements ImmutableBean {
   public static final class Builder extends DirectFieldsBeanBuilder<ScenarioResults> {
 
     private Map<String, Results> _results = new HashMap<String, Results>();
+    private ScenarioTimer _timer;
 
     /**
      * Restricted constructor.
@@ -229,6 +276,7 @@ public final class ScenarioResults implements ImmutableBean {
      */
     private Builder(ScenarioResults beanToCopy) {
       this._results = new HashMap<String, Results>(beanToCopy.getResults());
+      this._timer = beanToCopy.getTimer();
     }
 
     //-----------------------------------------------------------------------
@@ -237,6 +285,8 @@ public final class ScenarioResults implements ImmutableBean {
       switch (propertyName.hashCode()) {
         case 1097546742:  // results
           return _results;
+        case 110364485:  // timer
+          return _timer;
         default:
           throw new NoSuchElementException("Unknown property: " + propertyName);
       }
@@ -249,6 +299,9 @@ public final class ScenarioResults implements ImmutableBean {
         case 1097546742:  // results
           this._results = (Map<String, Results>) newValue;
           break;
+        case 110364485:  // timer
+          this._timer = (ScenarioTimer) newValue;
+          break;
         default:
           throw new NoSuchElementException("Unknown property: " + propertyName);
       }
@@ -282,7 +335,8 @@ public final class ScenarioResults implements ImmutableBean {
     @Override
     public ScenarioResults build() {
       return new ScenarioResults(
-          _results);
+          _results,
+          _timer);
     }
 
     //-----------------------------------------------------------------------
@@ -297,12 +351,23 @@ public final class ScenarioResults implements ImmutableBean {
       return this;
     }
 
+    /**
+     * Sets the {@code timer} property in the builder.
+     * @param timer  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder timer(ScenarioTimer timer) {
+      this._timer = timer;
+      return this;
+    }
+
     //-----------------------------------------------------------------------
     @Override
     public String toString() {
-      StringBuilder buf = new StringBuilder(64);
+      StringBuilder buf = new StringBuilder(96);
       buf.append("ScenarioResults.Builder{");
-      buf.append("results").append('=').append(JodaBeanUtils.toString(_results));
+      buf.append("results").append('=').append(JodaBeanUtils.toString(_results)).append(',').append(' ');
+      buf.append("timer").append('=').append(JodaBeanUtils.toString(_timer));
       buf.append('}');
       return buf.toString();
     }
@@ -0,0 +1,520 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.beans.Bean;
+import org.joda.beans.BeanDefinition;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Holds timings and statistics for a batch of scenarios that were calculated together.
+ * <p>
+ * Scenarios whose market data is identical are only calculated once and share their results. The ratio of
+ * the number of scenarios to the number that were calculated shows how much work was saved.
+ */
+@BeanDefinition
+public final class ScenarioTimer implements ImmutableBean {
+
+  /**
+   * The time at which the calculations for the scenarios were started.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private final Instant _start;
+
+  /**
+   * The total duration of the calculations for all the scenarios.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private final Duration _totalDuration;
+
+  /**
+   * The number of scenarios in the batch.
+   */
+  @PropertyDefinition
+  private final int _scenarioCount;
+
+  /**
+   * The number of scenarios that were calculated. Scenarios with the same market data as a scenario
+   * that was calculated share its results.
+   */
+  @PropertyDefinition
+  private final int _calculatedScenarioCount;
+
+  /**
+   * Creates timings for a batch of scenarios.
+   *
+   * @param start the time at which the calculations were started
+   * @param startNanos the start time of the calculations (system nano time)
+   * @param endNanos the end time of the calculations (system nano time)
+   * @param scenarioCount the number of scenarios in the batch
+   * @param calculatedScenarioCount the number of scenarios that were calculated
+   * @return timings for the batch
+   */
+  public static ScenarioTimer of(Instant start,
+                                 long startNanos,
+                                 long endNanos,
+                                 int scenarioCount,
+                                 int calculatedScenarioCount) {
+    ArgumentChecker.notNegative(scenarioCount, "scenarioCount");
+    ArgumentChecker.notNegative(calculatedScenarioCount, "calculatedScenarioCount");
+    return new ScenarioTimer(start, Duration.ofNanos(endNanos - startNanos), scenarioCount, calculatedScenarioCount);
+  }
+
+  /**
+   * Returns the ratio of the number of scenarios to the number that were calculated. A ratio of one
+   * means every scenario was calculated.
+   *
+   * @return the ratio of the number of scenarios to the number that were calculated
+   */
+  public double getDeduplicationRatio() {
+    return _calculatedScenarioCount == 0 ? 1 : (double) _scenarioCount / _calculatedScenarioCount;
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  ///CLOVER:OFF
+  /**
+   * The meta-bean for {@code ScenarioTimer}.
+   * @return the meta-bean, not null
+   */
+  public static ScenarioTimer.Meta meta() {
+    return ScenarioTimer.Meta.INSTANCE;
+  }
+
+  static {
+    JodaBeanUtils.registerMetaBean(ScenarioTimer.Meta.INSTANCE);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static ScenarioTimer.Builder builder() {
+    return new ScenarioTimer.Builder();
+  }
+
+  private ScenarioTimer(
+      Instant start,
+      Duration totalDuration,
+      int scenarioCount,
+      int calculatedScenarioCount) {
+    JodaBeanUtils.notNull(start, "start");
+    JodaBeanUtils.notNull(totalDuration, "totalDuration");
+    this._start = start;
+    this._totalDuration = totalDuration;
+    this._scenarioCount = scenarioCount;
+    this._calculatedScenarioCount = calculatedScenarioCount;
+  }
+
+  @Override
+  public ScenarioTimer.Meta metaBean() {
+    return ScenarioTimer.Meta.INSTANCE;
+  }
+
+  @Override
+  public <R> Property<R> property(String propertyName) {
+    return metaBean().<R>metaProperty(propertyName).createProperty(this);
+  }
+
+  @Override
+  public Set<String> propertyNames() {
+    return metaBean().metaPropertyMap().keySet();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the time at which the calculations for the scenarios were started.
+   * @return the value of the property, not null
+   */
+  public Instant getStart() {
+    return _start;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the total duration of the calculations for all the scenarios.
+   * @return the value of the property, not null
+   */
+  public Duration getTotalDuration() {
+    return _totalDuration;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of scenarios in the batch.
+   * @return the value of the property
+   */
+  public int getScenarioCount() {
+    return _scenarioCount;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of scenarios that were calculated. Scenarios with the same market data as a scenario
+   * that was calculated share its results.
+   * @return the value of the property
+   */
+  public int getCalculatedScenarioCount() {
+    return _calculatedScenarioCount;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      ScenarioTimer other = (ScenarioTimer) obj;
+      return JodaBeanUtils.equal(getStart(), other.getStart()) &&
+          JodaBeanUtils.equal(getTotalDuration(), other.getTotalDuration()) &&
+          (getScenarioCount() == other.getScenarioCount()) &&
+          (getCalculatedScenarioCount() == other.getCalculatedScenarioCount());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(getStart());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getTotalDuration());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getScenarioCount());
+    hash = hash * 31 + JodaBeanUtils.hashCode(getCalculatedScenarioCount());
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(160);
+    buf.append("ScenarioTimer{");
+    buf.append("start").append('=').append(getStart()).append(',').append(' ');
+    buf.append("totalDuration").append('=').append(getTotalDuration()).append(',').append(' ');
+    buf.append("scenarioCount").append('=').append(getScenarioCount()).append(',').append(' ');
+    buf.append("calculatedScenarioCount").append('=').append(JodaBeanUtils.toString(getCalculatedScenarioCount()));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code ScenarioTimer}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code start} property.
+     */
+    private final MetaProperty<Instant> _start = DirectMetaProperty.ofImmutable(
+        this, "start", ScenarioTimer.class, Instant.class);
+    /**
+     * The meta-property for the {@code totalDuration} property.
+     */
+    private final MetaProperty<Duration> _totalDuration = DirectMetaProperty.ofImmutable(
+        this, "totalDuration", ScenarioTimer.class, Duration.class);
+    /**
+     * The meta-property for the {@code scenarioCount} property.
+     */
+    private final MetaProperty<Integer> _scenarioCount = DirectMetaProperty.ofImmutable(
+        this, "scenarioCount", ScenarioTimer.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code calculatedScenarioCount} property.
+     */
+    private final MetaProperty<Integer> _calculatedScenarioCount = DirectMetaProperty.ofImmutable(
+        this, "calculatedScenarioCount", ScenarioTimer.class, Integer.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "start",
+        "totalDuration",
+        "scenarioCount",
+        "calculatedScenarioCount");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 109757538:  // start
+          return _start;
+        case -1965553416:  // totalDuration
+          return _totalDuration;
+        case -1203198113:  // scenarioCount
+          return _scenarioCount;
+        case -688737727:  // calculatedScenarioCount
+          return _calculatedScenarioCount;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public ScenarioTimer.Builder builder() {
+      return new ScenarioTimer.Builder();
+    }
+
+    @Override
+    public Class<? extends ScenarioTimer> beanType() {
+      return ScenarioTimer.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return _metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code start} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Instant> start() {
+      return _start;
+    }
+
+    /**
+     * The meta-property for the {@code totalDuration} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Duration> totalDuration() {
+      return _totalDuration;
+    }
+
+    /**
+     * The meta-property for the {@code scenarioCount} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> scenarioCount() {
+      return _scenarioCount;
+    }
+
+    /**
+     * The meta-property for the {@code calculatedScenarioCount} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<Integer> calculatedScenarioCount() {
+      return _calculatedScenarioCount;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 109757538:  // start
+          return ((ScenarioTimer) bean).getStart();
+        case -1965553416:  // totalDuration
+          return ((ScenarioTimer) bean).getTotalDuration();
+        case -1203198113:  // scenarioCount
+          return ((ScenarioTimer) bean).getScenarioCount();
+        case -688737727:  // calculatedScenarioCount
+          return ((ScenarioTimer) bean).getCalculatedScenarioCount();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code ScenarioTimer}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<ScenarioTimer> {
+
+    private Instant _start;
+    private Duration _totalDuration;
+    private int _scenarioCount;
+    private int _calculatedScenarioCount;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(ScenarioTimer beanToCopy) {
+      this._start = beanToCopy.getStart();
+      this._totalDuration = beanToCopy.getTotalDuration();
+      this._scenarioCount = beanToCopy.getScenarioCount();
+      this._calculatedScenarioCount = beanToCopy.getCalculatedScenarioCount();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 109757538:  // start
+          return _start;
+        case -1965553416:  // totalDuration
+          return _totalDuration;
+        case -1203198113:  // scenarioCount
+          return _scenarioCount;
+        case -688737727:  // calculatedScenarioCount
+          return _calculatedScenarioCount;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 109757538:  // start
+          this._start = (Instant) newValue;
+          break;
+        case -1965553416:  // totalDuration
+          this._totalDuration = (Duration) newValue;
+          break;
+        case -1203198113:  // scenarioCount
+          this._scenarioCount = (Integer) newValue;
+          break;
+        case -688737727:  // calculatedScenarioCount
+          this._calculatedScenarioCount = (Integer) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(String propertyName, String value) {
+      setString(meta().metaProperty(propertyName), value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(MetaProperty<?> property, String value) {
+      super.setString(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setAll(Map<String, ? extends Object> propertyValueMap) {
+      super.setAll(propertyValueMap);
+      return this;
+    }
+
+    @Override
+    public ScenarioTimer build() {
+      return new ScenarioTimer(
+          _start,
+          _totalDuration,
+          _scenarioCount,
+          _calculatedScenarioCount);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the {@code start} property in the builder.
+     * @param start  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder start(Instant start) {
+      JodaBeanUtils.notNull(start, "start");
+      this._start = start;
+      return this;
+    }
+
+    /**
+     * Sets the {@code totalDuration} property in the builder.
+     * @param totalDuration  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder totalDuration(Duration totalDuration) {
+      JodaBeanUtils.notNull(totalDuration, "totalDuration");
+      this._totalDuration = totalDuration;
+      return this;
+    }
+
+    /**
+     * Sets the {@code scenarioCount} property in the builder.
+     * @param scenarioCount  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder scenarioCount(int scenarioCount) {
+      this._scenarioCount = scenarioCount;
+      return this;
+    }
+
+    /**
+     * Sets the {@code calculatedScenarioCount} property in the builder.
+     * @param calculatedScenarioCount  the new value
+     * @return this, for chaining, not null
+     */
+    public Builder calculatedScenarioCount(int calculatedScenarioCount) {
+      this._calculatedScenarioCount = calculatedScenarioCount;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(160);
+      buf.append("ScenarioTimer.Builder{");
+      buf.append("start").append('=').append(JodaBeanUtils.toString(_start)).append(',').append(' ');
+      buf.append("totalDuration").append('=').append(JodaBeanUtils.toString(_totalDuration)).append(',').append(' ');
+      buf.append("scenarioCount").append('=').append(JodaBeanUtils.toString(_scenarioCount)).append(',').append(' ');
+      buf.append("calculatedScenarioCount").append('=').append(JodaBeanUtils.toString(_calculatedScenarioCount));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  ///CLOVER:ON
+  //-------------------------- AUTOGENERATED END --------------------------
+}
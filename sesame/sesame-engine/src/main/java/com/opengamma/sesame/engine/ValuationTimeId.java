@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.engine;
+
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.sesame.marketdata.MarketDataId;
+
+/**
+ * Identifies the valuation time in the data read by a calculation.
+ * <p>
+ * The engine environment records a read of this ID whenever a function asks for the valuation time, in the same
+ * way that market data reads are recorded. In a delta cycle it is treated as changed if the valuation time differs
+ * from the previous cycle, so the results that depend on the time are recalculated and the others are copied.
+ */
+enum ValuationTimeId implements MarketDataId<ZonedDateTime> {
+
+  /** The singleton instance. */
+  INSTANCE;
+
+  @Override
+  public Class<ZonedDateTime> getMarketDataType() {
+    return ZonedDateTime.class;
+  }
+}
@@ -8,8 +8,12 @@ package com.opengamma.sesame.engine;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -21,6 +25,7 @@ import org.apache.shiro.authz.AuthorizationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
 import org.threeten.bp.ZonedDateTime;
 
 import com.codahale.metrics.MetricRegistry;
@@ -29,11 +34,13 @@ import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.analytics.env.AnalyticsEnvironment;
 import com.opengamma.core.position.PositionOrTrade;
@@ -43,12 +50,16 @@ import com.opengamma.service.ServiceContext;
 import com.opengamma.service.ThreadLocalServiceContext;
 import com.opengamma.service.VersionCorrectionProvider;
 import com.opengamma.sesame.Environment;
+import com.opengamma.sesame.cache.AsyncInvocation;
 import com.opengamma.sesame.cache.CacheInvalidator;
 import com.opengamma.sesame.cache.CacheProvider;
 import com.opengamma.sesame.cache.CachingProxyDecorator;
+import com.opengamma.sesame.cache.CalculationPendingException;
 import com.opengamma.sesame.cache.DefaultFunctionCache;
+import com.opengamma.sesame.cache.DependencyRecorder;
 import com.opengamma.sesame.cache.ExecutingMethodsThreadLocal;
 import com.opengamma.sesame.cache.FunctionCache;
+import com.opengamma.sesame.cache.InFlightCalculations;
 import com.opengamma.sesame.config.FunctionArguments;
 import com.opengamma.sesame.config.FunctionModelConfig;
 import com.opengamma.sesame.config.NonPortfolioOutput;
@@ -69,13 +80,17 @@ import com.opengamma.sesame.graph.GraphBuilder;
 import com.opengamma.sesame.graph.GraphModel;
 import com.opengamma.sesame.graph.NodeDecorator;
 import com.opengamma.sesame.marketdata.GatheringMarketDataBundle;
+import com.opengamma.sesame.marketdata.MarketDataBundle;
 import com.opengamma.sesame.marketdata.MarketDataEnvironment;
+import com.opengamma.sesame.marketdata.MarketDataId;
 import com.opengamma.sesame.marketdata.MarketDataRequirement;
+import com.opengamma.sesame.marketdata.SingleValueRequirement;
 import com.opengamma.sesame.proxy.ExceptionWrappingProxy;
 import com.opengamma.sesame.proxy.MetricsProxy;
 import com.opengamma.sesame.trace.CallGraph;
 import com.opengamma.sesame.trace.Tracer;
 import com.opengamma.sesame.trace.TracingProxy;
+import com.opengamma.timeseries.date.DateTimeSeries;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.result.Result;
 
@@ -91,11 +106,22 @@ import com.opengamma.util.result.Result;
  * <p>
  * A view is executed by calling one of the {@code run} or {@code runAsync} methods. A view can be run
  * repeatedly and can execute multiple runs concurrently.
+ * <p>
+ * If asynchronous invocation is enabled a task never blocks waiting for a cached value calculated by another
+ * task. Instead the task is suspended, freeing its thread, and it is resubmitted to the executor when the value
+ * is available. See {@link AsyncInvocation}. This allows the view to run on a small number of threads.
  */
 public class View {
 
   private static final Logger s_logger = LoggerFactory.getLogger(View.class);
 
+  /**
+   * Whether tasks use asynchronous invocation by default. Can be enabled by setting the system property
+   * {@code View.asyncInvocation} to {@code true}.
+   */
+  private static final boolean ASYNC_INVOCATION =
+      System.getProperty("View.asyncInvocation", "FALSE").equalsIgnoreCase("TRUE");
+
   private final Graph _graph;
   private final ViewConfig _viewConfig;
   private final ListeningExecutorService _executor;
@@ -131,6 +157,9 @@ public class View {
   /** Whether caching is enabled. */
   private final boolean _cachingEnabled;
 
+  /** Whether tasks are suspended instead of blocking when they need a value calculated by another task. */
+  private final boolean _asyncInvocation;
+
   View(ViewConfig viewConfig,
        ExecutorService executor,
        FunctionModelConfig systemDefaultConfig,
@@ -143,7 +172,28 @@ public class View {
        CacheProvider cacheFactory,
        CacheBuilder<Object, Object> cacheBuilder,
        CacheInvalidator cacheInvalidator,
+       InFlightCalculations inFlightCalculations,
        Optional<MetricRegistry> metricRegistry) {
+    this(viewConfig, executor, systemDefaultConfig, functionBuilder, services, componentMap, inputTypes,
+         availableOutputs, availableImplementations, cacheFactory, cacheBuilder, cacheInvalidator,
+         inFlightCalculations, metricRegistry, ASYNC_INVOCATION);
+  }
+
+  View(ViewConfig viewConfig,
+       ExecutorService executor,
+       FunctionModelConfig systemDefaultConfig,
+       FunctionBuilder functionBuilder,
+       EnumSet<FunctionService> services,
+       ComponentMap componentMap,
+       Set<Class<?>> inputTypes,
+       AvailableOutputs availableOutputs,
+       AvailableImplementations availableImplementations,
+       CacheProvider cacheFactory,
+       CacheBuilder<Object, Object> cacheBuilder,
+       CacheInvalidator cacheInvalidator,
+       InFlightCalculations inFlightCalculations,
+       Optional<MetricRegistry> metricRegistry,
+       boolean asyncInvocation) {
 
     // Provider that supplies the cache to the caching decorators
     // the field is updated with a cache from _cacheFactory at the start of each cycle
@@ -156,6 +206,7 @@ public class View {
     FunctionCache cache = new DefaultFunctionCache(cacheProvider);
     _cacheBuilder = ArgumentChecker.notNull(cacheBuilder, "cacheBuilder");
     _cachingEnabled = services.contains(FunctionService.CACHING);
+    _asyncInvocation = asyncInvocation;
     _cacheInvalidator = ArgumentChecker.notNull(cacheInvalidator, "cacheInvalidator");
     _componentMap = ArgumentChecker.notNull(componentMap, "componentMap").with(FunctionCache.class, cache);
     _viewConfig = ArgumentChecker.notNull(viewConfig, "viewConfig");
@@ -167,7 +218,7 @@ public class View {
 
     ExecutingMethodsThreadLocal executingMethods = new ExecutingMethodsThreadLocal();
 
-    NodeDecorator decorator = createNodeDecorator(services, cacheProvider, executingMethods);
+    NodeDecorator decorator = createNodeDecorator(services, cacheProvider, executingMethods, inFlightCalculations);
 
     s_logger.debug("building graph model");
     GraphBuilder graphBuilder = new GraphBuilder(availableOutputs,
@@ -183,7 +234,8 @@ public class View {
 
   private NodeDecorator createNodeDecorator(EnumSet<FunctionService> services,
                                             CacheProvider cacheProvider,
-                                            ExecutingMethodsThreadLocal executingMethods) {
+                                            ExecutingMethodsThreadLocal executingMethods,
+                                            InFlightCalculations inFlightCalculations) {
 
     ImmutableList.Builder<NodeDecorator> decorators = new ImmutableList.Builder<>();
 
@@ -204,7 +256,7 @@ public class View {
     // expensive calculations are not performed more
     // frequently than they need to be
     if (services.contains(FunctionService.CACHING)) {
-      decorators.add(new CachingProxyDecorator(cacheProvider, executingMethods));
+      decorators.add(new CachingProxyDecorator(cacheProvider, executingMethods, inFlightCalculations));
     }
 
     // Metrics records time taken to execute each function. This
@@ -365,6 +417,356 @@ public class View {
     });
   }
 
+  /**
+   * Runs a calculation cycle for each scenario asynchronously, returning a future representing the pending results.
+   * <p>
+   * The scenarios are calculated as a batch. Scenarios whose market data is identical are only calculated once
+   * and share their results. All the scenarios use the same cache, so a value that doesn't depend on the
+   * perturbed data is only calculated once for the whole batch. The tasks for a cell are submitted for all
+   * scenarios before the tasks for the next cell, so the calculations that share values run close together.
+   * <p>
+   * If the arguments request the inputs to be captured each distinct scenario is run as a separate cycle.
+   *
+   * @param calculationArguments settings for running the calculations
+   * @param scenarioMarketData the market data for each scenario, keyed by scenario name
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @return a future representing the calculation results for all the scenarios
+   * @throws IllegalStateException if ThreadLocalServiceContext not set
+   */
+  public ListenableFuture<ScenarioResults> runScenariosAsync(CalculationArguments calculationArguments,
+                                                              final Map<String, MarketDataEnvironment> scenarioMarketData,
+                                                              List<?> inputs) {
+    ArgumentChecker.notNull(calculationArguments, "calculationArguments");
+    ArgumentChecker.notNull(scenarioMarketData, "scenarioMarketData");
+    final Instant start = Instant.now();
+    final long startInitialization = System.nanoTime();
+
+    // group the scenarios by market data, only one scenario in each group needs to be calculated
+    final Map<MarketDataEnvironment, List<String>> scenarioNames = new LinkedHashMap<>();
+
+    for (Map.Entry<String, MarketDataEnvironment> entry : scenarioMarketData.entrySet()) {
+      List<String> names = scenarioNames.get(entry.getValue());
+
+      if (names == null) {
+        names = new ArrayList<>();
+        scenarioNames.put(entry.getValue(), names);
+      }
+      names.add(entry.getKey());
+    }
+    List<MarketDataEnvironment> marketData = new ArrayList<>(scenarioNames.keySet());
+    ListenableFuture<List<Results>> resultsFuture = calculationArguments.isCaptureInputs() ?
+        runEachAsync(calculationArguments, marketData, inputs) :
+        runBatchAsync(calculationArguments, marketData, inputs, start, startInitialization);
+
+    return Futures.transform(resultsFuture, new Function<List<Results>, ScenarioResults>() {
+      @Override
+      public ScenarioResults apply(List<Results> calculatedResults) {
+        Map<String, Results> resultsByName = new HashMap<>();
+        int i = 0;
+
+        for (List<String> names : scenarioNames.values()) {
+          Results results = calculatedResults.get(i++);
+
+          for (String name : names) {
+            resultsByName.put(name, results);
+          }
+        }
+        // the results are returned in the same order as the scenarios
+        ImmutableMap.Builder<String, Results> builder = ImmutableMap.builder();
+
+        for (String name : scenarioMarketData.keySet()) {
+          builder.put(name, resultsByName.get(name));
+        }
+        ScenarioTimer timer =
+            ScenarioTimer.of(start, startInitialization, System.nanoTime(), scenarioMarketData.size(), i);
+        s_logger.debug("Calculated {} scenarios, {} distinct, deduplication ratio {}",
+                       timer.getScenarioCount(), timer.getCalculatedScenarioCount(), timer.getDeduplicationRatio());
+        return new ScenarioResults(builder.build(), timer);
+      }
+    });
+  }
+
+  /**
+   * Runs a separate calculation cycle for each set of market data.
+   *
+   * @param calculationArguments settings for running the calculations
+   * @param marketData the market data for each cycle
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @return a future representing the results of the cycles, in the same order as the market data
+   */
+  private ListenableFuture<List<Results>> runEachAsync(CalculationArguments calculationArguments,
+                                                       List<MarketDataEnvironment> marketData,
+                                                       List<?> inputs) {
+    List<ListenableFuture<Results>> resultsFutures = new ArrayList<>(marketData.size());
+
+    for (MarketDataEnvironment environment : marketData) {
+      resultsFutures.add(runAsync(calculationArguments, environment, inputs));
+    }
+    return Futures.allAsList(resultsFutures);
+  }
+
+  /**
+   * Runs the calculations for each set of market data as a single batch of tasks using one cache.
+   *
+   * @param calculationArguments settings for running the calculations
+   * @param marketData the market data for each scenario
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @param start the start time of the calculations
+   * @param startInitialization the start time of the calculations (system nano time)
+   * @return a future representing the results of the scenarios, in the same order as the market data
+   */
+  private ListenableFuture<List<Results>> runBatchAsync(CalculationArguments calculationArguments,
+                                                        List<MarketDataEnvironment> marketData,
+                                                        final List<?> inputs,
+                                                        final Instant start,
+                                                        final long startInitialization) {
+    Cache<Object, Object> cache = getCache();
+    VersionCorrectionProvider vcProvider = getVersionCorrectionProvider(calculationArguments);
+    ServiceContext originalContext = getThreadLocalServiceContext();
+    ServiceContext context = originalContext.with(VersionCorrectionProvider.class, vcProvider);
+    final CycleInitializer cycleInitializer = new StandardCycleInitializer(context, _graph, cache);
+    ThreadLocalWrapper threadLocalWrapper =
+        new ThreadLocalWrapper(cycleInitializer.getServiceContext(),
+                               originalContext,
+                               cycleInitializer.getCache(),
+                               _cacheThreadLocal,
+                               AnalyticsEnvironment.getInstance());
+    Graph graph = cycleInitializer.getGraph();
+    ScenarioDefinition scenario = _viewConfig.getScenarioDefinition();
+    List<List<Task>> scenarioTasks = new ArrayList<>(marketData.size());
+
+    for (MarketDataEnvironment environment : marketData) {
+      List<Task> tasks = new ArrayList<>();
+      tasks.addAll(portfolioTasks(calculationArguments, environment, inputs, graph, scenario, threadLocalWrapper));
+      tasks.addAll(nonPortfolioTasks(calculationArguments, environment, graph, scenario, threadLocalWrapper));
+      scenarioTasks.add(tasks);
+    }
+    // every scenario has the same cells so the tasks lists are the same size
+    int taskCount = scenarioTasks.isEmpty() ? 0 : scenarioTasks.get(0).size();
+    List<List<ListenableFuture<TaskResult>>> taskFutures = new ArrayList<>(marketData.size());
+
+    for (int i = 0; i < marketData.size(); i++) {
+      taskFutures.add(new ArrayList<ListenableFuture<TaskResult>>(taskCount));
+    }
+    for (int taskIndex = 0; taskIndex < taskCount; taskIndex++) {
+      for (int scenarioIndex = 0; scenarioIndex < marketData.size(); scenarioIndex++) {
+        Task task = scenarioTasks.get(scenarioIndex).get(taskIndex);
+        taskFutures.get(scenarioIndex).add(submit(task));
+      }
+    }
+    final long startExecution = System.nanoTime();
+    List<ListenableFuture<Results>> resultsFutures = new ArrayList<>(marketData.size());
+
+    for (List<ListenableFuture<TaskResult>> futures : taskFutures) {
+      resultsFutures.add(Futures.transform(Futures.allAsList(futures), new Function<List<TaskResult>, Results>() {
+        @Override
+        public Results apply(List<TaskResult> taskResults) {
+          return buildResults(inputs, taskResults, start, startInitialization, startExecution, cycleInitializer);
+        }
+      }));
+    }
+    return Futures.allAsList(resultsFutures);
+  }
+
+  /**
+   * Runs a calculation cycle that only recalculates the results affected by changes to the market data since
+   * the previous cycle, returning a future representing the pending results.
+   * <p>
+   * The market data read by each calculation is recorded, including the data read when calculating any cached
+   * values it uses. If {@code previous} was calculated by this view with the same arguments and inputs, only the
+   * results that read market data that has changed since the previous cycle are recalculated, and the other
+   * results are copied from the previous cycle. Otherwise all the results are calculated. This is intended for
+   * streaming cycles using live market data where a small amount of the data changes between cycles.
+   * <p>
+   * Reading the valuation time from the environment is recorded like a market data read. If the valuation time
+   * changes within the same date, the results that read it are recalculated along with those affected by market data.
+   *
+   * @param calculationArguments settings for running the calculations, the inputs can't be captured
+   * @param marketData the market data used in the calculations
+   * @param inputs the inputs to the calculation, e.g. trades, positions, securities
+   * @param previous the results of the previous cycle, null if this is the first cycle
+   * @return a future representing the results of the cycle
+   * @throws IllegalArgumentException if the calculation arguments request the inputs to be captured
+   */
+  public ListenableFuture<DeltaResults> runDeltaAsync(final CalculationArguments calculationArguments,
+                                                      final MarketDataEnvironment marketData,
+                                                      final List<?> inputs,
+                                                      @Nullable DeltaResults previous) {
+    ArgumentChecker.notNull(calculationArguments, "calculationArguments");
+    ArgumentChecker.notNull(marketData, "marketData");
+    ArgumentChecker.notNull(inputs, "inputs");
+    ArgumentChecker.isFalse(calculationArguments.isCaptureInputs(), "Inputs can't be captured in delta cycles");
+    final Instant start = Instant.now();
+    final long startInitialization = System.nanoTime();
+    final ZonedDateTime valuationTime = valuationTime(calculationArguments, marketData);
+    final boolean fullCycle =
+        previous == null || !previous.useForNextCycle(this, calculationArguments, valuationTime, inputs);
+
+    final DependencyRecorder recorder;
+    final DeltaResults.Dependencies<Cell> cellDependencies;
+    final DeltaResults.Dependencies<String> outputDependencies;
+    final Results previousResults;
+    // the cells and outputs to calculate, null to calculate all of them
+    final Set<Cell> cells;
+    final Set<String> outputNames;
+
+    if (fullCycle) {
+      recorder = new DependencyRecorder();
+      cellDependencies = new DeltaResults.Dependencies<>();
+      outputDependencies = new DeltaResults.Dependencies<>();
+      previousResults = null;
+      cells = null;
+      outputNames = null;
+    } else {
+      recorder = previous.getRecorder();
+      cellDependencies = previous.getCellDependencies();
+      outputDependencies = previous.getOutputDependencies();
+      previousResults = previous.getResults();
+      Set<MarketDataId<?>> changedIds = changedMarketData(previous.getMarketData(), marketData);
+
+      if (!previous.getValuationTime().equals(valuationTime)) {
+        changedIds.add(ValuationTimeId.INSTANCE);
+      }
+      cells = cellDependencies.affectedBy(changedIds);
+      outputNames = outputDependencies.affectedBy(changedIds);
+      s_logger.debug("{} market data values changed, recalculating {} cells and {} outputs",
+                     changedIds.size(), cells.size(), outputNames.size());
+    }
+    Cache<Object, Object> cache = getCache();
+    VersionCorrectionProvider vcProvider = getVersionCorrectionProvider(calculationArguments);
+    ServiceContext originalContext = getThreadLocalServiceContext();
+    ServiceContext context = originalContext.with(VersionCorrectionProvider.class, vcProvider);
+    final CycleInitializer cycleInitializer = new StandardCycleInitializer(context, _graph, cache);
+
+    ThreadLocalWrapper threadLocalWrapper =
+        new ThreadLocalWrapper(cycleInitializer.getServiceContext(),
+                               originalContext,
+                               cycleInitializer.getCache(),
+                               _cacheThreadLocal,
+                               AnalyticsEnvironment.getInstance());
+
+    MarketDataBundle bundle = new RecordingMarketDataBundle(marketData.toBundle());
+    Graph graph = cycleInitializer.getGraph();
+    ScenarioDefinition scenario = _viewConfig.getScenarioDefinition();
+    final List<Task> portfolioTasks = portfolioTasks(calculationArguments, valuationTime, bundle, inputs, graph,
+                                                     scenario, threadLocalWrapper, cells, recorder);
+    final List<Task> outputTasks = nonPortfolioTasks(calculationArguments, valuationTime, bundle, graph,
+                                                     scenario, threadLocalWrapper, outputNames, recorder);
+    List<Task> tasks = new ArrayList<>(portfolioTasks);
+    tasks.addAll(outputTasks);
+    ListenableFuture<List<TaskResult>> tasksFuture = Futures.allAsList(invokeTasks(tasks));
+    final long startExecution = System.nanoTime();
+
+    return Futures.transform(tasksFuture, new Function<List<TaskResult>, DeltaResults>() {
+      @Override
+      public DeltaResults apply(List<TaskResult> taskResults) {
+        ResultBuilder resultBuilder;
+
+        if (previousResults == null) {
+          resultBuilder = Results.builder(inputs, _columnNames);
+        } else {
+          // start from the previous results, the recalculated results replace them
+          resultBuilder = Results.builder(inputs, _columnNames, previousResults);
+          copyNonPortfolioResults(previousResults, outputNames, resultBuilder);
+        }
+        for (TaskResult taskResult : taskResults) {
+          taskResult.addToResults(resultBuilder);
+        }
+        long startResultsBuild = System.nanoTime();
+        Results results = resultBuilder.build(start, startExecution, startInitialization, startResultsBuild);
+        results = cycleInitializer.complete(results);
+        Map<Cell, ResultItem> changedItems = new HashMap<>();
+        Map<String, ResultItem> changedOutputs = new HashMap<>();
+
+        for (Task task : portfolioTasks) {
+          PortfolioTask portfolioTask = (PortfolioTask) task;
+          int rowIndex = portfolioTask._rowIndex;
+          int columnIndex = portfolioTask._columnIndex;
+          Cell cell = Cell.of(rowIndex, columnIndex);
+          cellDependencies.update(cell, task._reads);
+          ResultItem item = results.get(rowIndex, columnIndex);
+
+          if (previousResults == null || !item.equals(previousResults.get(rowIndex, columnIndex))) {
+            changedItems.put(cell, item);
+          }
+        }
+        for (Task task : outputTasks) {
+          String outputName = ((NonPortfolioTask) task)._outputValueName;
+          outputDependencies.update(outputName, task._reads);
+          ResultItem item = results.get(outputName);
+
+          if (previousResults == null || !item.equals(previousResults.get(outputName))) {
+            changedOutputs.put(outputName, item);
+          }
+        }
+        ResultsDelta delta = new ResultsDelta(changedItems, changedOutputs, fullCycle);
+        return new DeltaResults(View.this, calculationArguments, valuationTime, marketData, inputs, results, delta,
+                                recorder, cellDependencies, outputDependencies);
+      }
+    });
+  }
+
+  /**
+   * Copies non-portfolio results calculated in a previous cycle that aren't being recalculated.
+   *
+   * @param previousResults the results of the previous cycle
+   * @param outputNames the names of the non-portfolio outputs being recalculated
+   * @param resultBuilder the builder for the results of the current cycle
+   */
+  private static void copyNonPortfolioResults(Results previousResults,
+                                              Set<String> outputNames,
+                                              ResultBuilder resultBuilder) {
+    for (Map.Entry<String, ResultItem> entry : previousResults.getNonPortfolioResults().entrySet()) {
+      if (!outputNames.contains(entry.getKey())) {
+        resultBuilder.add(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the IDs of the market data whose values are different in two market data environments.
+   *
+   * @param previous the market data used in the previous cycle
+   * @param current the market data used in the current cycle
+   * @return the IDs of the market data whose values are different, including data only in one of the environments
+   */
+  @SuppressWarnings("unchecked")
+  private static Set<MarketDataId<?>> changedMarketData(MarketDataEnvironment previous,
+                                                        MarketDataEnvironment current) {
+    Set<MarketDataId<?>> changedIds = new HashSet<>();
+
+    if (previous == current) {
+      return changedIds;
+    }
+    Map<SingleValueRequirement, Object> previousData = previous.getData();
+    Map<SingleValueRequirement, Object> currentData = current.getData();
+
+    for (Map.Entry<SingleValueRequirement, Object> entry : currentData.entrySet()) {
+      if (!Objects.equals(entry.getValue(), previousData.get(entry.getKey()))) {
+        changedIds.add(entry.getKey().getMarketDataId());
+      }
+    }
+    for (SingleValueRequirement requirement : previousData.keySet()) {
+      if (!currentData.containsKey(requirement)) {
+        changedIds.add(requirement.getMarketDataId());
+      }
+    }
+    Map<MarketDataId<?>, DateTimeSeries<LocalDate, ?>> previousTimeSeries = previous.getTimeSeries();
+    Map<MarketDataId<?>, DateTimeSeries<LocalDate, ?>> currentTimeSeries = current.getTimeSeries();
+
+    for (Map.Entry<MarketDataId<?>, DateTimeSeries<LocalDate, ?>> entry : currentTimeSeries.entrySet()) {
+      if (!Objects.equals(entry.getValue(), previousTimeSeries.get(entry.getKey()))) {
+        changedIds.add(entry.getKey());
+      }
+    }
+    for (MarketDataId<?> id : previousTimeSeries.keySet()) {
+      if (!currentTimeSeries.containsKey(id)) {
+        changedIds.add(id);
+      }
+    }
+    return changedIds;
+  }
+
   /**
    * Collects requirements for market data that must be provided for running the calculations in this view for
    * a portfolio.
@@ -501,11 +903,26 @@ public class View {
     List<ListenableFuture<TaskResult>> results = new ArrayList<>(tasks.size());
 
     for (Task task : tasks) {
-      results.add(_executor.submit(task));
+      results.add(submit(task));
     }
     return results;
   }
 
+  /**
+   * Submits a task to the executor, using asynchronous invocation if it's enabled.
+   *
+   * @param task the task to execute
+   * @return a future representing the pending result of the task
+   */
+  private ListenableFuture<TaskResult> submit(Task task) {
+    if (!_asyncInvocation) {
+      return _executor.submit(task);
+    }
+    AsyncTaskRunner runner = new AsyncTaskRunner(task);
+    _executor.execute(runner);
+    return runner._result;
+  }
+
   /**
    * Returns the {@link FunctionModel} of the function used to calculate the value in a column.
    * @param columnName the name of the column
@@ -533,20 +950,47 @@ public class View {
                                     Graph graph,
                                     ScenarioDefinition scenarioDefinition,
                                     ThreadLocalWrapper threadLocalWrapper) {
+    return portfolioTasks(calculationArguments,
+                          valuationTime(calculationArguments, marketDataEnvironment),
+                          marketDataEnvironment.toBundle(),
+                          inputs,
+                          graph,
+                          scenarioDefinition,
+                          threadLocalWrapper,
+                          null,
+                          null);
+  }
+
+  /**
+   * Creates tasks for the portfolio outputs.
+   *
+   * @param cells the cells whose tasks should be created, null for all cells
+   * @param recorder records the market data read by the tasks, null if it isn't recorded
+   */
+  private List<Task> portfolioTasks(CalculationArguments calculationArguments,
+                                    ZonedDateTime valuationTime,
+                                    MarketDataBundle marketDataBundle,
+                                    List<?> inputs,
+                                    Graph graph,
+                                    ScenarioDefinition scenarioDefinition,
+                                    ThreadLocalWrapper threadLocalWrapper,
+                                    @Nullable Set<Cell> cells,
+                                    @Nullable DependencyRecorder recorder) {
     // create tasks for the portfolio outputs
     int colIndex = 0;
     List<Task> portfolioTasks = Lists.newArrayList();
     for (ViewColumn column : _viewConfig.getColumns()) {
       FilteredScenarioDefinition filteredDef = scenarioDefinition.filter(column.getName());
-      Environment env =
-          new EngineEnvironment(valuationTime(calculationArguments, marketDataEnvironment),
-                                marketDataEnvironment.toBundle(),
-                                _cacheInvalidator);
+      Environment env = new EngineEnvironment(valuationTime, marketDataBundle, _cacheInvalidator);
       Environment columnEnv = env.withScenarioDefinition(filteredDef);
       Map<Class<?>, InvokableFunction> functions = graph.getFunctionsForColumn(column.getName());
 
       int rowIndex = 0;
       for (Object input : inputs) {
+        if (cells != null && !cells.contains(Cell.of(rowIndex, colIndex))) {
+          rowIndex++;
+          continue;
+        }
         // the function that is determined from the input
         InvokableFunction function;
         // the input to the function that is determined, which can be a security when the input is a position or trade
@@ -593,7 +1037,7 @@ public class View {
         Map<Class<?>, FunctionArguments> functionArguments = calculationArguments.getFunctionArguments();
         FunctionArguments args = functionArguments(functionArguments, implType, declaringType, functionModelConfig);
         portfolioTasks.add(new PortfolioTask(columnEnv, functionInput, args, rowIndex++,
-                                             colIndex, function, tracer, threadLocalWrapper));
+                                             colIndex, function, tracer, threadLocalWrapper, recorder));
       }
       colIndex++;
     }
@@ -606,8 +1050,35 @@ public class View {
                                        Graph graph,
                                        ScenarioDefinition scenarioDefinition,
                                        ThreadLocalWrapper cache) {
+    return nonPortfolioTasks(calculationArguments,
+                             valuationTime(calculationArguments, marketDataEnvironment),
+                             marketDataEnvironment.toBundle(),
+                             graph,
+                             scenarioDefinition,
+                             cache,
+                             null,
+                             null);
+  }
+
+  /**
+   * Creates tasks for the non-portfolio outputs.
+   *
+   * @param outputNames the names of the outputs whose tasks should be created, null for all outputs
+   * @param recorder records the market data read by the tasks, null if it isn't recorded
+   */
+  private List<Task> nonPortfolioTasks(CalculationArguments calculationArguments,
+                                       ZonedDateTime valuationTime,
+                                       MarketDataBundle marketDataBundle,
+                                       Graph graph,
+                                       ScenarioDefinition scenarioDefinition,
+                                       ThreadLocalWrapper cache,
+                                       @Nullable Set<String> outputNames,
+                                       @Nullable DependencyRecorder recorder) {
     List<Task> tasks = Lists.newArrayList();
     for (NonPortfolioOutput output : _viewConfig.getNonPortfolioOutputs()) {
+      if (outputNames != null && !outputNames.contains(output.getName())) {
+        continue;
+      }
       InvokableFunction function = graph.getNonPortfolioFunction(output.getName());
       Tracer tracer = Tracer.create(calculationArguments.traceType(output.getName()));
 
@@ -621,11 +1092,9 @@ public class View {
       FunctionArguments args = functionArguments(functionArguments, implType, declaringType, functionModelConfig);
       // create an environment with scenario arguments filtered for the output
       FilteredScenarioDefinition filteredDef = scenarioDefinition.filter(output.getName());
-      Environment env = new EngineEnvironment(valuationTime(calculationArguments, marketDataEnvironment), 
-                                              marketDataEnvironment.toBundle(),
-                                              _cacheInvalidator);
+      Environment env = new EngineEnvironment(valuationTime, marketDataBundle, _cacheInvalidator);
       Environment outputEnv = env.withScenarioDefinition(filteredDef);
-      tasks.add(new NonPortfolioTask(outputEnv, args, output.getName(), function, tracer, cache));
+      tasks.add(new NonPortfolioTask(outputEnv, args, output.getName(), function, tracer, cache, recorder));
     } return tasks;
   }
 
@@ -687,27 +1156,42 @@ public class View {
     private final Tracer _tracer;
     private final FunctionArguments _args;
     private final ThreadLocalWrapper _threadLocalWrapper;
+    private final DependencyRecorder _recorder;
+
+    /** The market data read by the function, null if it wasn't recorded or couldn't be determined. */
+    private volatile Set<MarketDataId<?>> _reads;
 
     private Task(Environment env,
                  @Nullable Object input,
                  FunctionArguments args,
                  InvokableFunction invokableFunction,
                  Tracer tracer,
-                 ThreadLocalWrapper threadLocalWrapper) {
+                 ThreadLocalWrapper threadLocalWrapper,
+                 @Nullable DependencyRecorder recorder) {
       _env = env;
       _input = input;
       _args = args;
       _invokableFunction = invokableFunction;
       _tracer = tracer;
       _threadLocalWrapper = threadLocalWrapper;
+      _recorder = recorder;
     }
 
     @Override
     public TaskResult call() throws Exception {
-      TracingProxy.start(_tracer);
-      Result<?> result = invokeFunction();
-      CallGraph callGraph = TracingProxy.end();
-      return createResult(result, callGraph);
+      if (_recorder != null) {
+        _recorder.begin();
+      }
+      try {
+        TracingProxy.start(_tracer);
+        Result<?> result = invokeFunction();
+        CallGraph callGraph = TracingProxy.end();
+        return createResult(result, callGraph);
+      } finally {
+        if (_recorder != null) {
+          _reads = DependencyRecorder.end();
+        }
+      }
     }
 
     private Result<?> invokeFunction() {
@@ -719,6 +1203,9 @@ public class View {
       try {
         Object retVal = _invokableFunction.invoke(_env, _input, _args);
         return retVal instanceof Result ? (Result<?>) retVal : Result.success(retVal);
+      } catch (CalculationPendingException e) {
+        // the task will be retried, the result is discarded
+        return Result.failure(e);
       } catch (RuntimeException e) {
         s_logger.warn("Failed to execute function", e);
         return Result.failure(e);
@@ -732,6 +1219,43 @@ public class View {
     protected abstract TaskResult createResult(Result<?> result, CallGraph callGraph);
   }
 
+  //----------------------------------------------------------
+  /**
+   * Runs a task using asynchronous invocation. If the task is suspended waiting for a value calculated by
+   * another task its result is discarded and the runner resubmits itself to the executor when the value
+   * is available.
+   */
+  private final class AsyncTaskRunner implements Runnable {
+
+    private final Task _task;
+    private final SettableFuture<TaskResult> _result = SettableFuture.create();
+
+    private AsyncTaskRunner(Task task) {
+      _task = task;
+    }
+
+    @Override
+    public void run() {
+      if (_result.isCancelled()) {
+        return;
+      }
+      AsyncInvocation.begin();
+      try {
+        TaskResult taskResult = _task.call();
+        ListenableFuture<?> pending = AsyncInvocation.end();
+
+        if (pending == null) {
+          _result.set(taskResult);
+        } else {
+          pending.addListener(this, _executor);
+        }
+      } catch (Exception | Error e) {
+        AsyncInvocation.end();
+        _result.setException(e);
+      }
+    }
+  }
+
   //----------------------------------------------------------
   private static final class PortfolioTask extends Task {
 
@@ -745,8 +1269,9 @@ public class View {
                           int columnIndex,
                           InvokableFunction invokableFunction,
                           Tracer tracer,
-                          ThreadLocalWrapper threadLocalWrapper) {
-      super(env, input, args, invokableFunction, tracer, threadLocalWrapper);
+                          ThreadLocalWrapper threadLocalWrapper,
+                          @Nullable DependencyRecorder recorder) {
+      super(env, input, args, invokableFunction, tracer, threadLocalWrapper, recorder);
       _rowIndex = rowIndex;
       _columnIndex = columnIndex;
     }
@@ -772,8 +1297,9 @@ public class View {
                              String outputValueName,
                              InvokableFunction invokableFunction,
                              Tracer tracer,
-                             ThreadLocalWrapper threadLocalWrapper) {
-      super(env, null, args, invokableFunction, tracer, threadLocalWrapper);
+                             ThreadLocalWrapper threadLocalWrapper,
+                             @Nullable DependencyRecorder recorder) {
+      super(env, null, args, invokableFunction, tracer, threadLocalWrapper, recorder);
       _outputValueName = ArgumentChecker.notEmpty(outputValueName, "outputValueName");
     }
 
@@ -7,7 +7,10 @@
 package com.opengamma.sesame.engine;
 
 import java.util.EnumSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -20,10 +23,14 @@ import com.google.common.base.Optional;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.position.PositionOrTrade;
 import com.opengamma.core.security.Security;
 import com.opengamma.sesame.cache.CacheInvalidator;
 import com.opengamma.sesame.cache.CacheProvider;
+import com.opengamma.sesame.cache.CostAwareCache;
+import com.opengamma.sesame.cache.InFlightCalculations;
 import com.opengamma.sesame.config.FunctionModelConfig;
 import com.opengamma.sesame.config.ViewConfig;
 import com.opengamma.sesame.function.AvailableImplementations;
@@ -41,11 +48,20 @@ import com.opengamma.util.ArgumentChecker;
  * the cache in the view factory is replaced with a new, empty cache. When each view starts its next calculation
  * cycle it will request a cache and be given the new one. The previous cache is unchanged so any views that
  * are still using it are unaffected.
+ * <p>
+ * Building a view is expensive because it builds the function graph for every column and output. The
+ * {@link #getView} methods return views from a bounded cache keyed by the view configuration, the function services
+ * and the input types so views can be shared between calculations that use the same configuration. Views are safe
+ * to use for concurrent calculation cycles. The cached views must be discarded using {@link #clearViews()} if the
+ * available functions or their configuration are changed after the view factory is created.
  */
 public class ViewFactory implements ViewFactoryMonitor {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ViewFactory.class);
 
+  /** The default maximum number of views held in the view cache. */
+  public static final int DEFAULT_MAX_VIEWS = 100;
+
   private final ExecutorService _executor;
   private final AvailableOutputs _availableOutputs;
   private final AvailableImplementations _availableImplementations;
@@ -72,12 +88,40 @@ public class ViewFactory implements ViewFactoryMonitor {
     }
   };
 
+  /**
+   * The values being calculated by views using non-blocking invocation. This is shared by all the views because
+   * they share the cache and its keys.
+   */
+  private final InFlightCalculations _inFlightCalculations = new InFlightCalculations();
+
   /** For building new caches. A new cache is created whenever data in the existing cache becomes invalid. */
   private final CacheBuilder<Object, Object> _cacheBuilder;
+
+  /**
+   * The estimated memory the shared cache may use in bytes. If this is zero the cache is built by
+   * {@link #_cacheBuilder}, otherwise it is a {@link CostAwareCache} that evicts values based on their cost and size.
+   */
+  private final long _cacheMemoryBudget;
   private final Optional<MetricRegistry> _metricRegistry;
   private final ComponentMap _componentMap;
   private final CacheInvalidator _cacheInvalidator;
 
+  /** Views that have been built, keyed by the arguments used to build them. */
+  private final Cache<ViewKey, View> _views;
+
+  /**
+   * Creates a view factory whose view cache holds up to {@link #DEFAULT_MAX_VIEWS} views.
+   *
+   * @param executor for running the tasks in calculation cycles
+   * @param componentMap the components available to the functions
+   * @param availableOutputs the outputs available in the system
+   * @param availableImplementations the function implementations available in the system
+   * @param defaultConfig the default function configuration
+   * @param defaultServices the services used by views unless others are specified
+   * @param cacheBuilder for building the cache shared by the views
+   * @param cacheInvalidator for invalidating cache entries when market data or configuration change
+   * @param metricRegistry for recording metrics
+   */
   public ViewFactory(ExecutorService executor,
                      ComponentMap componentMap,
                      AvailableOutputs availableOutputs,
@@ -87,6 +131,62 @@ public class ViewFactory implements ViewFactoryMonitor {
                      CacheBuilder<Object, Object> cacheBuilder,
                      CacheInvalidator cacheInvalidator,
                      Optional<MetricRegistry> metricRegistry) {
+    this(executor, componentMap, availableOutputs, availableImplementations, defaultConfig, defaultServices,
+         cacheBuilder, cacheInvalidator, metricRegistry, DEFAULT_MAX_VIEWS);
+  }
+
+  /**
+   * @param executor for running the tasks in calculation cycles
+   * @param componentMap the components available to the functions
+   * @param availableOutputs the outputs available in the system
+   * @param availableImplementations the function implementations available in the system
+   * @param defaultConfig the default function configuration
+   * @param defaultServices the services used by views unless others are specified
+   * @param cacheBuilder for building the cache shared by the views
+   * @param cacheInvalidator for invalidating cache entries when market data or configuration change
+   * @param metricRegistry for recording metrics
+   * @param maxViews the maximum number of views held in the view cache, zero disables caching of views
+   */
+  public ViewFactory(ExecutorService executor,
+                     ComponentMap componentMap,
+                     AvailableOutputs availableOutputs,
+                     AvailableImplementations availableImplementations,
+                     FunctionModelConfig defaultConfig,
+                     EnumSet<FunctionService> defaultServices,
+                     CacheBuilder<Object, Object> cacheBuilder,
+                     CacheInvalidator cacheInvalidator,
+                     Optional<MetricRegistry> metricRegistry,
+                     int maxViews) {
+    this(executor, componentMap, availableOutputs, availableImplementations, defaultConfig, defaultServices,
+         cacheBuilder, cacheInvalidator, metricRegistry, maxViews, 0);
+  }
+
+  /**
+   * @param executor for running the tasks in calculation cycles
+   * @param componentMap the components available to the functions
+   * @param availableOutputs the outputs available in the system
+   * @param availableImplementations the function implementations available in the system
+   * @param defaultConfig the default function configuration
+   * @param defaultServices the services used by views unless others are specified
+   * @param cacheBuilder for building the cache shared by the views if there is no memory budget, and the caches
+   *   used by cycles that capture their inputs
+   * @param cacheInvalidator for invalidating cache entries when market data or configuration change
+   * @param metricRegistry for recording metrics
+   * @param maxViews the maximum number of views held in the view cache, zero disables caching of views
+   * @param cacheMemoryBudget the estimated memory the shared cache may use in bytes. If this is zero the cache
+   *   is built by the cache builder, otherwise values are evicted based on their calculation time and size
+   */
+  public ViewFactory(ExecutorService executor,
+                     ComponentMap componentMap,
+                     AvailableOutputs availableOutputs,
+                     AvailableImplementations availableImplementations,
+                     FunctionModelConfig defaultConfig,
+                     EnumSet<FunctionService> defaultServices,
+                     CacheBuilder<Object, Object> cacheBuilder,
+                     CacheInvalidator cacheInvalidator,
+                     Optional<MetricRegistry> metricRegistry,
+                     int maxViews,
+                     long cacheMemoryBudget) {
     _availableOutputs = ArgumentChecker.notNull(availableOutputs, "availableOutputs");
     _availableImplementations = ArgumentChecker.notNull(availableImplementations, "availableImplementations");
     _defaultServices = ArgumentChecker.notNull(defaultServices, "defaultServices");
@@ -95,9 +195,12 @@ public class ViewFactory implements ViewFactoryMonitor {
     _cacheBuilder = ArgumentChecker.notNull(cacheBuilder, "cacheBuilder");
     _componentMap = ArgumentChecker.notNull(componentMap, "componentMap");
     _cacheInvalidator = ArgumentChecker.notNull(cacheInvalidator, "cacheInvalidator");
-    // create an initial empty cache
-    _cacheRef = new AtomicReference<>(_cacheBuilder.<Object, Object>build());
     _metricRegistry = ArgumentChecker.notNull(metricRegistry, "metricRegistry");
+    _cacheMemoryBudget = ArgumentChecker.notNegative(cacheMemoryBudget, "cacheMemoryBudget");
+    // create an initial empty cache
+    _cacheRef = new AtomicReference<>(createCache());
+    ArgumentChecker.notNegative(maxViews, "maxViews");
+    _views = CacheBuilder.newBuilder().maximumSize(maxViews).build();
   }
 
   /**
@@ -149,7 +252,58 @@ public class ViewFactory implements ViewFactoryMonitor {
   public View createView(ViewConfig viewConfig, EnumSet<FunctionService> services, Set<Class<?>> inputTypes) {
     return new View(viewConfig, _executor, _defaultConfig, _functionBuilder, services,
                     _componentMap, inputTypes, _availableOutputs, _availableImplementations,
-                    _cacheProvider, _cacheBuilder, _cacheInvalidator, _metricRegistry);
+                    _cacheProvider, _cacheBuilder, _cacheInvalidator, _inFlightCalculations, _metricRegistry);
+  }
+
+  /**
+   * Returns a view for the configuration, creating it if there isn't a suitable view in the view cache.
+   * The view is built using the default function services.
+   *
+   * @param viewConfig  the configuration to use, not null
+   * @param inputTypes  the types of the inputs to the calculations, e.g. trades, positions, securities
+   * @return the view, not null
+   */
+  public View getView(ViewConfig viewConfig, Set<Class<?>> inputTypes) {
+    return getView(viewConfig, _defaultServices, inputTypes);
+  }
+
+  /**
+   * Returns a view for the configuration, creating it if there isn't a suitable view in the view cache.
+   * <p>
+   * The returned view may be shared with other callers that request a view with the same arguments.
+   *
+   * @param viewConfig  the configuration to use, not null
+   * @param services  the services to run, not null
+   * @param inputTypes  the types of the inputs to the calculations, e.g. trades, positions, securities
+   * @return the view, not null
+   */
+  public View getView(final ViewConfig viewConfig,
+                      final EnumSet<FunctionService> services,
+                      final Set<Class<?>> inputTypes) {
+    ArgumentChecker.notNull(viewConfig, "viewConfig");
+    ArgumentChecker.notNull(services, "services");
+    ArgumentChecker.notNull(inputTypes, "inputTypes");
+    ViewKey key = new ViewKey(viewConfig, services, inputTypes);
+    try {
+      return _views.get(key, new Callable<View>() {
+        @Override
+        public View call() {
+          s_logger.debug("Building view {}", viewConfig.getName());
+          return createView(viewConfig, services, inputTypes);
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new OpenGammaRuntimeException("Failed to create view " + viewConfig.getName(), e.getCause());
+    }
+  }
+
+  @Override
+  public void clearViews() {
+    s_logger.info("Clearing views");
+    _views.invalidateAll();
   }
 
   /**
@@ -160,7 +314,18 @@ public class ViewFactory implements ViewFactoryMonitor {
    */
   public void clearCache() {
     s_logger.info("Clearing cache");
-    _cacheRef.set(_cacheBuilder.<Object, Object>build());
+    _cacheRef.set(createCache());
+  }
+
+  /**
+   * @return a new, empty cache for sharing between the views
+   */
+  private Cache<Object, Object> createCache() {
+    if (_cacheMemoryBudget == 0) {
+      return _cacheBuilder.build();
+    }
+    int concurrencyLevel = Runtime.getRuntime().availableProcessors() * 8;
+    return new CostAwareCache(_cacheMemoryBudget, concurrencyLevel, _metricRegistry);
   }
 
   @Override
@@ -170,4 +335,40 @@ public class ViewFactory implements ViewFactoryMonitor {
       _metricRegistry.get().removeMatching(MetricFilter.ALL);
     }
   }
+
+  /**
+   * Key for the view cache. The arguments used to build a view.
+   */
+  private static final class ViewKey {
+
+    private final ViewConfig _viewConfig;
+    private final EnumSet<FunctionService> _services;
+    private final Set<Class<?>> _inputTypes;
+
+    private ViewKey(ViewConfig viewConfig, EnumSet<FunctionService> services, Set<Class<?>> inputTypes) {
+      _viewConfig = viewConfig;
+      // copies so changes to the arguments can't change the key once it's in the cache
+      _services = EnumSet.copyOf(services);
+      _inputTypes = ImmutableSet.copyOf(inputTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_viewConfig, _services, _inputTypes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      ViewKey other = (ViewKey) obj;
+      return Objects.equals(_viewConfig, other._viewConfig) &&
+          Objects.equals(_services, other._services) &&
+          Objects.equals(_inputTypes, other._inputTypes);
+    }
+  }
 }
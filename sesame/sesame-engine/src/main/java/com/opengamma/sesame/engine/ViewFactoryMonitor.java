@@ -22,6 +22,14 @@ public interface ViewFactoryMonitor {
    */
   void clearCache();
 
+  /**
+   * Discards all views from the view cache.
+   * <p>
+   * This must be invoked if the available functions or their configuration change. Views that are running
+   * a calculation cycle are unaffected, new views are built the next time they are requested.
+   */
+  void clearViews();
+
   /**
    * Discards all entries from the metrics registry.
    */
@@ -50,7 +50,29 @@ public abstract class NodeDecorator {
    * @return a new proxy node, not null
    */
   protected ProxyNode createProxyNode(FunctionModelNode node, Class<?> interfaceType, Class<?> implementationType, InvocationHandlerFactory handlerFactory) {
-    return new ProxyNode(node, interfaceType, implementationType, handlerFactory);
+    return createProxyNode(node, interfaceType, implementationType, handlerFactory, ProxyNode.GENERATED_PROXIES);
+  }
+
+  /**
+   * Creates a proxy node, specifying whether the proxy is generated or a JDK dynamic proxy.
+   * <p>
+   * A generated proxy is only used if the handler created by the factory is a
+   * {@link com.opengamma.sesame.proxy.ProxyMethodInvocationHandler ProxyMethodInvocationHandler}.
+   *
+   * @param node  the underlying concrete node, not null
+   * @param interfaceType  the expected type of the object created by this node, not null
+   * @param implementationType  the implementation type to create, may be null
+   * @param handlerFactory  the proxy invocation factory, not null
+   * @param generatedProxy  true to use a proxy generated by {@link com.opengamma.sesame.proxy.ProxyGenerator},
+   *   false to use a JDK dynamic proxy
+   * @return a new proxy node, not null
+   */
+  protected ProxyNode createProxyNode(FunctionModelNode node,
+                                      Class<?> interfaceType,
+                                      Class<?> implementationType,
+                                      InvocationHandlerFactory handlerFactory,
+                                      boolean generatedProxy) {
+    return new ProxyNode(node, interfaceType, implementationType, handlerFactory, generatedProxy);
   }
 
 }
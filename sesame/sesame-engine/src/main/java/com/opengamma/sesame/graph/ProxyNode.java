@@ -12,15 +12,26 @@ import java.util.Objects;
 
 import com.opengamma.sesame.engine.ComponentMap;
 import com.opengamma.sesame.proxy.InvocationHandlerFactory;
+import com.opengamma.sesame.proxy.ProxyGenerator;
+import com.opengamma.sesame.proxy.ProxyMethodInvocationHandler;
 import com.opengamma.util.ArgumentChecker;
 
 /**
  * A node in the function model that inserts a dynamic proxy.
  * <p>
  * Dynamic proxies are used to add additional behaviour to the node tree.
+ * <p>
+ * The proxy is a class generated by {@link ProxyGenerator} if the node was created to use generated proxies and
+ * the handler is a {@link ProxyMethodInvocationHandler}. Otherwise it is a JDK dynamic proxy. Generated proxies
+ * call the proxied object without reflection. Whether nodes use generated proxies by default is controlled by the
+ * system property {@code ProxyNode.generatedProxies}.
  */
 public class ProxyNode extends DependentNode {
 
+  /** Whether proxy nodes use generated proxies unless their decorator specifies otherwise. */
+  /* package */ static final boolean GENERATED_PROXIES =
+      System.getProperty("ProxyNode.generatedProxies", "TRUE").equalsIgnoreCase("TRUE");
+
   /**
    * The implementation type.
    */
@@ -34,6 +45,10 @@ public class ProxyNode extends DependentNode {
    */
   // TODO should this be a Class<?> and the instance can be retrieved from the ComponentMap? that could be serialized
   private final InvocationHandlerFactory _handlerFactory;
+  /**
+   * Whether the proxy should be generated by {@link ProxyGenerator} rather than being a JDK dynamic proxy.
+   */
+  private final boolean _generatedProxy;
 
   /**
    * Creates an instance.
@@ -42,12 +57,18 @@ public class ProxyNode extends DependentNode {
    * @param interfaceType  the expected type of the object created by this node, not null
    * @param implementationType  the implementation type to create, may be null
    * @param handlerFactory  the proxy invocation factory, not null
+   * @param generatedProxy  whether the proxy should be generated by {@link ProxyGenerator}
    */
-  ProxyNode(FunctionModelNode delegateNode, Class<?> interfaceType, Class<?> implementationType, InvocationHandlerFactory handlerFactory) {
+  ProxyNode(FunctionModelNode delegateNode,
+            Class<?> interfaceType,
+            Class<?> implementationType,
+            InvocationHandlerFactory handlerFactory,
+            boolean generatedProxy) {
     super(interfaceType, delegateNode.getParameter(), delegateNode);
     _implementationType = ArgumentChecker.notNull(implementationType, "implementationType");
     _delegateNode = ArgumentChecker.notNull(delegateNode, "delegate");
     _handlerFactory = ArgumentChecker.notNull(handlerFactory, "handlerFactory");
+    _generatedProxy = generatedProxy;
   }
 
   //-------------------------------------------------------------------------
@@ -69,6 +90,16 @@ public class ProxyNode extends DependentNode {
     return _implementationType;
   }
 
+  /**
+   * Indicates whether the proxy should be generated by {@link ProxyGenerator}. The proxy is a JDK dynamic proxy
+   * if this is false or if a proxy class can't be generated for the interface.
+   *
+   * @return true if the proxy should be generated by {@link ProxyGenerator}
+   */
+  public boolean isGeneratedProxy() {
+    return _generatedProxy;
+  }
+
   /**
    * Gets the underlying concrete node.
    * <p>
@@ -86,6 +117,11 @@ public class ProxyNode extends DependentNode {
   protected Object doCreate(ComponentMap componentMap, List<Object> dependencies, FunctionIdProvider idProvider) {
     Object delegate = dependencies.get(0);
     InvocationHandler invocationHandler = _handlerFactory.create(delegate, this, idProvider);
+    if (_generatedProxy &&
+        invocationHandler instanceof ProxyMethodInvocationHandler &&
+        ProxyGenerator.isSupported(getType())) {
+      return ProxyGenerator.newProxyInstance(getType(), (ProxyMethodInvocationHandler) invocationHandler);
+    }
     return Proxy.newProxyInstance(getType().getClassLoader(), new Class<?>[]{getType()}, invocationHandler);
   }
 
@@ -110,12 +146,13 @@ public class ProxyNode extends DependentNode {
     return
         Objects.equals(this._implementationType, other._implementationType) &&
         Objects.equals(this._delegateNode, other._delegateNode) &&
-        Objects.equals(this._handlerFactory, other._handlerFactory);
+        Objects.equals(this._handlerFactory, other._handlerFactory) &&
+        this._generatedProxy == other._generatedProxy;
   }
 
   @Override
   public int hashCode() {
-    return 31 * super.hashCode() + Objects.hash(_implementationType, _delegateNode, _handlerFactory);
+    return 31 * super.hashCode() + Objects.hash(_implementationType, _delegateNode, _handlerFactory, _generatedProxy);
   }
 
 }
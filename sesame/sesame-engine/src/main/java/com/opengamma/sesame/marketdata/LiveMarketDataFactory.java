@@ -33,10 +33,22 @@ public class LiveMarketDataFactory implements MarketDataFactory<LiveMarketDataSp
    * @param jmsConnector for connecting to the live data sources
    */
   public LiveMarketDataFactory(Collection<LiveDataMetaDataProvider> providers, JmsConnector jmsConnector) {
+    this(providers, jmsConnector, false);
+  }
+
+  /**
+   * @param providers meta data about the live data sources
+   * @param jmsConnector for connecting to the live data sources
+   * @param conflatedTicks whether to receive conflated ticks rather than every tick. Views only read the
+   *   latest values at the start of each cycle so they don't need every tick
+   */
+  public LiveMarketDataFactory(Collection<LiveDataMetaDataProvider> providers,
+                               JmsConnector jmsConnector,
+                               boolean conflatedTicks) {
     ImmutableMap.Builder<String, LiveDataManager> builder = ImmutableMap.builder();
 
     for (LiveDataMetaDataProvider provider : providers) {
-      LiveDataClient liveDataClient = MarketDataUtils.createLiveDataClient(provider, jmsConnector);
+      LiveDataClient liveDataClient = MarketDataUtils.createLiveDataClient(provider, jmsConnector, conflatedTicks);
       builder.put(provider.metaData().getDescription(), new DefaultLiveDataManager(liveDataClient));
     }
     _liveDataManagerBySource = builder.build();
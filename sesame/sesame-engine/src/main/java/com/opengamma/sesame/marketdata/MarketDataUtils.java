@@ -67,10 +67,13 @@ public class MarketDataUtils {
    *
    * @param provider the metadata provider
    * @param jmsConnector the JMS connector
+   * @param conflatedTicks whether the client should receive conflated ticks rather than every tick
    * @return the client
    */
   @SuppressWarnings("deprecation")
-  static LiveDataClient createLiveDataClient(LiveDataMetaDataProvider provider, JmsConnector jmsConnector) {
+  static LiveDataClient createLiveDataClient(LiveDataMetaDataProvider provider,
+                                             JmsConnector jmsConnector,
+                                             boolean conflatedTicks) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     ArgumentChecker.notNull(provider, "provider");
 
@@ -110,6 +113,7 @@ public class MarketDataUtils {
                                                              OpenGammaFudgeContext.getInstance(),
                                                              JmsLiveDataClient.DEFAULT_NUM_SESSIONS);
     liveDataClient.setFudgeContext(OpenGammaFudgeContext.getInstance());
+    liveDataClient.setConflated(conflatedTicks);
 
     if (metaData.getJmsHeartbeatTopic() != null) {
       JmsByteArrayMessageSender jmsHeartbeatSender =
@@ -7,6 +7,7 @@ package com.opengamma.sesame.proxy;
 
 import java.lang.reflect.Method;
 
+import com.opengamma.sesame.cache.CalculationPendingException;
 import com.opengamma.sesame.config.EngineUtils;
 import com.opengamma.util.result.FailureResult;
 import com.opengamma.util.result.Result;
@@ -78,7 +79,40 @@ public class ExceptionWrappingProxy extends ProxyNodeDecorator {
       return method.invoke(delegate, args);
     } catch (Exception ex) {
       Exception cause = EngineUtils.getCause(ex);
-      if (methodHasResultReturnType(method)) {
+      if (cause instanceof CalculationPendingException) {
+        // the calculation has been suspended and will be retried, it's not a failure
+        throw cause;
+      } else if (methodHasResultReturnType(method)) {
+        return Result.failure(cause);
+      } else {
+        throw cause;
+      }
+    }
+  }
+
+  /**
+   * Called when a method on a generated proxy is invoked. This has the same behaviour as
+   * {@link #invoke(Object, Object, Method, Object[])} but invokes the delegate without reflection.
+   *
+   * @param proxy  the proxy whose method was invoked, not null
+   * @param delegate  the object being proxied, not null
+   * @param method  the method that was invoked, not null
+   * @param args  the method arguments, null if the method takes
+   * no arguments
+   * @return the return value of the call
+   * @throws Throwable if something goes wrong with the underlying call and
+   * it cannot be safely wrapped in a {@link FailureResult}
+   */
+  @Override
+  protected Object invoke(Object proxy, Object delegate, ProxyMethod method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(delegate, args);
+    } catch (Exception ex) {
+      Exception cause = EngineUtils.getCause(ex);
+      if (cause instanceof CalculationPendingException) {
+        // the calculation has been suspended and will be retried, it's not a failure
+        throw cause;
+      } else if (methodHasResultReturnType(method.getMethod())) {
         return Result.failure(cause);
       } else {
         throw cause;
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+/**
+ * Implemented by all proxy classes generated by {@link ProxyGenerator}.
+ * <p>
+ * This interface is only public so it is visible to the generated classes.
+ */
+public interface GeneratedProxy {
+
+  /**
+   * Gets the handler invoked by the proxy.
+   *
+   * @return the handler invoked by the proxy, not null
+   */
+  ProxyInvocationHandler getInvocationHandler();
+}
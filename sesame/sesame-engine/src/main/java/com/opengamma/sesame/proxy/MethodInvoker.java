@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+/**
+ * Invokes the methods of an interface on a receiver without using reflection.
+ * <p>
+ * Implementations are generated by {@link ProxyGenerator}, one for each proxied interface. This interface is
+ * only public so it is visible to the generated classes.
+ */
+public interface MethodInvoker {
+
+  /**
+   * Invokes a method on a receiver.
+   * <p>
+   * Any exception thrown by the method is propagated unchanged, it isn't wrapped in an
+   * {@code InvocationTargetException}.
+   *
+   * @param index  the index of the method, see {@link ProxyMethod#getIndex()}
+   * @param receiver  the object whose method is invoked, not null
+   * @param args  the method arguments, null if the method takes no arguments
+   * @return the return value of the method, boxed if it is primitive, null if the method is void
+   * @throws Throwable if the method throws an exception
+   */
+  Object invoke(int index, Object receiver, Object[] args) throws Throwable;
+}
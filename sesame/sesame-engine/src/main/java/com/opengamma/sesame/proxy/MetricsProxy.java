@@ -48,6 +48,18 @@ public final class MetricsProxy extends ProxyNodeDecorator {
     }
   }
 
+  @Override
+  protected Object invoke(Object proxy, Object delegate, ProxyMethod method, Object[] args) throws Throwable {
+    if (method.getMethod().getDeclaringClass() != Object.class) {
+      String name = generateName(delegate, method.getMethod());
+      try (Timer.Context ignored = _metricRegistry.timer(name).time()) {
+        return method.invoke(delegate, args);
+      }
+    } else {
+      return method.invoke(delegate, args);
+    }
+  }
+
   private String generateName(Object delegate, Method method) {
     Object proxiedObject = EngineUtils.getProxiedObject(delegate);
     return proxiedObject.getClass().getCanonicalName() + "." + method.getName();
@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.LoaderClassPath;
+
+/**
+ * Generates proxy classes that can be used instead of JDK dynamic proxies.
+ * <p>
+ * A JDK dynamic proxy looks up the {@code Method} for each call and its handler must invoke the receiver
+ * using reflection. The classes generated here pass a {@link ProxyMethod} to a {@link ProxyMethodInvocationHandler}.
+ * The proxy method calls the receiver directly using a generated {@link MethodInvoker}, so a call through a chain
+ * of proxies doesn't involve any reflection.
+ * <p>
+ * One proxy class and one invoker class are generated for each interface, the first time the interface is proxied.
+ * They are defined in the same package and class loader as the interface so package-private interfaces can
+ * be proxied. If a class can't be generated for an interface a warning is logged and
+ * {@link #isSupported(Class)} returns false. Callers should fall back to a JDK dynamic proxy.
+ * <p>
+ * The proxies behave like JDK dynamic proxies. The {@code equals}, {@code hashCode} and {@code toString} methods
+ * are passed to the handler, the arguments are null for methods with no arguments and checked exceptions
+ * that aren't declared by the method are wrapped in an {@code UndeclaredThrowableException}.
+ */
+public final class ProxyGenerator {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ProxyGenerator.class);
+
+  /** Suffix of the names of the generated proxy classes. */
+  private static final String PROXY_SUFFIX = "$$GeneratedProxy";
+  /** Suffix of the names of the generated invoker classes. */
+  private static final String INVOKER_SUFFIX = "$$GeneratedInvoker";
+
+  /** The generated classes keyed by interface, absent if a class couldn't be generated. */
+  private static final Cache<Class<?>, Optional<ProxyClass>> s_proxyClasses = CacheBuilder.newBuilder().weakKeys().build();
+
+  /**
+   * Restricted constructor.
+   */
+  private ProxyGenerator() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Indicates whether a proxy class can be generated for an interface.
+   * <p>
+   * This generates the class if it hasn't already been generated.
+   *
+   * @param interfaceType  the interface, not null
+   * @return true if proxies can be generated for the interface
+   */
+  public static boolean isSupported(Class<?> interfaceType) {
+    return proxyClass(interfaceType).isPresent();
+  }
+
+  /**
+   * Returns the methods of a proxied interface, ordered by index.
+   * <p>
+   * These are the only {@link ProxyMethod} instances that are passed to handlers by proxies of the interface,
+   * so handlers can precompute information about each method and look it up by index.
+   *
+   * @param interfaceType  the interface, not null
+   * @return the methods of the interface, empty if proxies can't be generated for the interface
+   */
+  public static List<ProxyMethod> getProxyMethods(Class<?> interfaceType) {
+    Optional<ProxyClass> proxyClass = proxyClass(interfaceType);
+    return proxyClass.isPresent() ? proxyClass.get()._methods : Collections.<ProxyMethod>emptyList();
+  }
+
+  /**
+   * Creates a proxy for an interface.
+   *
+   * @param interfaceType  the interface, not null
+   * @param handler  the handler invoked by the proxy, not null
+   * @return a proxy implementing the interface, not null
+   * @throws IllegalArgumentException if proxies can't be generated for the interface
+   */
+  public static Object newProxyInstance(Class<?> interfaceType, ProxyMethodInvocationHandler handler) {
+    ArgumentChecker.notNull(handler, "handler");
+    Optional<ProxyClass> proxyClass = proxyClass(interfaceType);
+    if (!proxyClass.isPresent()) {
+      throw new IllegalArgumentException("Proxies can't be generated for " + interfaceType.getName());
+    }
+    try {
+      return proxyClass.get()._constructor.newInstance(handler, proxyClass.get()._methodArray);
+    } catch (ReflectiveOperationException e) {
+      throw new OpenGammaRuntimeException("Failed to create proxy for " + interfaceType.getName(), e);
+    }
+  }
+
+  /**
+   * Indicates whether an object is a proxy generated by this class.
+   *
+   * @param object  an object, not null
+   * @return true if the object is a generated proxy
+   */
+  public static boolean isProxy(Object object) {
+    return object instanceof GeneratedProxy;
+  }
+
+  //-------------------------------------------------------------------------
+  private static Optional<ProxyClass> proxyClass(final Class<?> interfaceType) {
+    ArgumentChecker.notNull(interfaceType, "interfaceType");
+    try {
+      return s_proxyClasses.get(interfaceType, new Callable<Optional<ProxyClass>>() {
+        @Override
+        public Optional<ProxyClass> call() {
+          return generate(interfaceType);
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to generate proxy for " + interfaceType.getName(), e.getCause());
+    }
+  }
+
+  private static Optional<ProxyClass> generate(Class<?> interfaceType) {
+    if (!interfaceType.isInterface() || interfaceType.getClassLoader() == null) {
+      return Optional.absent();
+    }
+    try {
+      List<Method> methods = proxiedMethods(interfaceType);
+      ClassLoader classLoader = interfaceType.getClassLoader();
+      ClassPool pool = new ClassPool(true);
+      pool.insertClassPath(new ClassClassPath(ProxyGenerator.class));
+      pool.insertClassPath(new LoaderClassPath(classLoader));
+
+      CtClass invokerClass = createInvokerClass(pool, interfaceType, methods);
+      MethodInvoker invoker = (MethodInvoker) invokerClass.toClass(classLoader, interfaceType.getProtectionDomain()).newInstance();
+      invokerClass.detach();
+
+      ProxyMethod[] proxyMethods = new ProxyMethod[methods.size()];
+      for (int i = 0; i < proxyMethods.length; i++) {
+        proxyMethods[i] = new ProxyMethod(i, methods.get(i), invoker);
+      }
+      CtClass proxyClass = createProxyClass(pool, interfaceType, methods);
+      Class<?> cls = proxyClass.toClass(classLoader, interfaceType.getProtectionDomain());
+      proxyClass.detach();
+      // initializes the class so any problem with the generated code is found here instead of when it's first used
+      Class.forName(cls.getName(), true, classLoader);
+      Constructor<?> constructor = cls.getConstructor(ProxyMethodInvocationHandler.class, ProxyMethod[].class);
+      s_logger.debug("Generated proxy class {}", cls.getName());
+      return Optional.of(new ProxyClass(constructor, proxyMethods));
+    } catch (Exception | LinkageError e) {
+      s_logger.warn("Failed to generate proxy for " + interfaceType.getName() + ", a JDK proxy will be used", e);
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * Returns the methods that are passed to the handler, the interface methods followed by the methods of
+   * {@code Object} that JDK proxies pass to their handlers. Methods with the same signature are only included once.
+   */
+  private static List<Method> proxiedMethods(Class<?> interfaceType) {
+    Map<String, Method> methods = new LinkedHashMap<>();
+    for (Method method : Object.class.getMethods()) {
+      String name = method.getName();
+      if ((name.equals("equals") || name.equals("hashCode") || name.equals("toString")) &&
+          !Modifier.isStatic(method.getModifiers())) {
+        methods.put(signature(method), method);
+      }
+    }
+    // sorted so the indices are the same every time the class is generated
+    Method[] interfaceMethods = interfaceType.getMethods();
+    Arrays.sort(interfaceMethods, new Comparator<Method>() {
+      @Override
+      public int compare(Method method1, Method method2) {
+        return signature(method1).compareTo(signature(method2));
+      }
+    });
+    Map<String, Method> result = new LinkedHashMap<>();
+    for (Method method : interfaceMethods) {
+      if (Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      String signature = signature(method);
+      Method existing = result.get(signature);
+      if (existing != null && !existing.getReturnType().equals(method.getReturnType())) {
+        throw new IllegalArgumentException("Methods with covariant return types aren't supported: " + method);
+      }
+      if (existing == null) {
+        // an interface redeclaring equals, hashCode or toString replaces the Object method
+        methods.remove(signature);
+        result.put(signature, method);
+      }
+    }
+    result.putAll(methods);
+    return ImmutableList.copyOf(result.values());
+  }
+
+  private static String signature(Method method) {
+    StringBuilder builder = new StringBuilder(method.getName()).append('(');
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      builder.append(sourceName(parameterType)).append(',');
+    }
+    return builder.append(')').toString();
+  }
+
+  private static CtClass createInvokerClass(ClassPool pool, Class<?> interfaceType, List<Method> methods) throws Exception {
+    CtClass ctClass = pool.makeClass(interfaceType.getName() + INVOKER_SUFFIX);
+    ctClass.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+    ctClass.addInterface(pool.get(MethodInvoker.class.getName()));
+    ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+
+    StringBuilder body = new StringBuilder("{ switch ($1) {");
+    for (int i = 0; i < methods.size(); i++) {
+      Method method = methods.get(i);
+      Class<?> receiverType = method.getDeclaringClass() == Object.class ? Object.class : interfaceType;
+      StringBuilder call = new StringBuilder("((").append(sourceName(receiverType)).append(") $2).")
+          .append(method.getName()).append('(');
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      for (int j = 0; j < parameterTypes.length; j++) {
+        if (j > 0) {
+          call.append(", ");
+        }
+        call.append(unbox("$3[" + j + "]", parameterTypes[j]));
+      }
+      call.append(')');
+      body.append(" case ").append(i).append(": ");
+      if (method.getReturnType() == void.class) {
+        body.append(call).append("; return null;");
+      } else {
+        body.append("return ").append(box(call.toString(), method.getReturnType())).append(';');
+      }
+    }
+    body.append(" } throw new java.lang.IllegalArgumentException(\"Unknown method index \" + $1); }");
+
+    CtMethod invoke = new CtMethod(pool.get(Object.class.getName()),
+                                   "invoke",
+                                   new CtClass[]{CtClass.intType, pool.get(Object.class.getName()), pool.get("java.lang.Object[]")},
+                                   ctClass);
+    invoke.setModifiers(Modifier.PUBLIC);
+    invoke.setExceptionTypes(new CtClass[]{pool.get(Throwable.class.getName())});
+    invoke.setBody(body.toString());
+    ctClass.addMethod(invoke);
+    return ctClass;
+  }
+
+  private static CtClass createProxyClass(ClassPool pool, Class<?> interfaceType, List<Method> methods) throws Exception {
+    CtClass ctClass = pool.makeClass(interfaceType.getName() + PROXY_SUFFIX);
+    ctClass.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+    ctClass.addInterface(pool.get(interfaceType.getName()));
+    ctClass.addInterface(pool.get(GeneratedProxy.class.getName()));
+
+    CtClass handlerType = pool.get(ProxyMethodInvocationHandler.class.getName());
+    CtClass methodsType = pool.get(ProxyMethod.class.getName() + "[]");
+    CtField handlerField = new CtField(handlerType, "_handler", ctClass);
+    handlerField.setModifiers(Modifier.PRIVATE | Modifier.FINAL);
+    ctClass.addField(handlerField);
+    CtField methodsField = new CtField(methodsType, "_methods", ctClass);
+    methodsField.setModifiers(Modifier.PRIVATE | Modifier.FINAL);
+    ctClass.addField(methodsField);
+
+    CtConstructor constructor = new CtConstructor(new CtClass[]{handlerType, methodsType}, ctClass);
+    constructor.setModifiers(Modifier.PUBLIC);
+    constructor.setBody("{ super(); _handler = $1; _methods = $2; }");
+    ctClass.addConstructor(constructor);
+
+    CtMethod getHandler = new CtMethod(pool.get(ProxyInvocationHandler.class.getName()), "getInvocationHandler", new CtClass[0], ctClass);
+    getHandler.setModifiers(Modifier.PUBLIC);
+    getHandler.setBody("{ return _handler; }");
+    ctClass.addMethod(getHandler);
+
+    for (int i = 0; i < methods.size(); i++) {
+      Method method = methods.get(i);
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      CtClass[] ctParameterTypes = new CtClass[parameterTypes.length];
+      for (int j = 0; j < parameterTypes.length; j++) {
+        ctParameterTypes[j] = pool.get(sourceName(parameterTypes[j]));
+      }
+      Class<?>[] exceptionTypes = method.getExceptionTypes();
+      CtClass[] ctExceptionTypes = new CtClass[exceptionTypes.length];
+      for (int j = 0; j < exceptionTypes.length; j++) {
+        ctExceptionTypes[j] = pool.get(sourceName(exceptionTypes[j]));
+      }
+      CtMethod ctMethod = new CtMethod(pool.get(sourceName(method.getReturnType())), method.getName(), ctParameterTypes, ctClass);
+      ctMethod.setModifiers(Modifier.PUBLIC);
+      ctMethod.setExceptionTypes(ctExceptionTypes);
+
+      // the same exception handling as a JDK proxy, undeclared checked exceptions are wrapped
+      String args = parameterTypes.length == 0 ? "null" : "$args";
+      StringBuilder body = new StringBuilder("{ try { return ($r) _handler.invoke(this, _methods[")
+          .append(i).append("], ").append(args).append("); }")
+          .append(" catch (java.lang.RuntimeException e) { throw e; }")
+          .append(" catch (java.lang.Error e) { throw e; }");
+      for (Class<?> exceptionType : exceptionTypes) {
+        body.append(" catch (").append(sourceName(exceptionType)).append(" e) { throw e; }");
+      }
+      body.append(" catch (java.lang.Throwable t) { throw new java.lang.reflect.UndeclaredThrowableException(t); } }");
+      ctMethod.setBody(body.toString());
+      ctClass.addMethod(ctMethod);
+    }
+    return ctClass;
+  }
+
+  /**
+   * Returns the name of a type as it appears in source code.
+   */
+  private static String sourceName(Class<?> type) {
+    if (type.isArray()) {
+      return sourceName(type.getComponentType()) + "[]";
+    }
+    return type.getName();
+  }
+
+  /**
+   * Returns an expression that converts an argument of type {@code Object} to a parameter type.
+   */
+  private static String unbox(String expression, Class<?> type) {
+    if (!type.isPrimitive()) {
+      return "(" + sourceName(type) + ") " + expression;
+    }
+    return "((" + wrapperType(type).getName() + ") " + expression + ")." + type.getName() + "Value()";
+  }
+
+  /**
+   * Returns an expression that converts a return value to an {@code Object}.
+   */
+  private static String box(String expression, Class<?> type) {
+    if (!type.isPrimitive()) {
+      return expression;
+    }
+    return wrapperType(type).getName() + ".valueOf(" + expression + ")";
+  }
+
+  private static Class<?> wrapperType(Class<?> primitiveType) {
+    if (primitiveType == int.class) {
+      return Integer.class;
+    } else if (primitiveType == long.class) {
+      return Long.class;
+    } else if (primitiveType == double.class) {
+      return Double.class;
+    } else if (primitiveType == boolean.class) {
+      return Boolean.class;
+    } else if (primitiveType == float.class) {
+      return Float.class;
+    } else if (primitiveType == short.class) {
+      return Short.class;
+    } else if (primitiveType == byte.class) {
+      return Byte.class;
+    } else if (primitiveType == char.class) {
+      return Character.class;
+    }
+    throw new IllegalArgumentException("Unexpected type " + primitiveType);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The generated proxy class for an interface and its methods.
+   */
+  private static final class ProxyClass {
+
+    private final Constructor<?> _constructor;
+    private final ProxyMethod[] _methodArray;
+    private final List<ProxyMethod> _methods;
+
+    private ProxyClass(Constructor<?> constructor, ProxyMethod[] methods) {
+      _constructor = constructor;
+      _methodArray = methods;
+      _methods = ImmutableList.copyOf(methods);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+import java.lang.reflect.Method;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A method of an interface proxied by a class generated by {@link ProxyGenerator}.
+ * <p>
+ * Each method has an index which is unique within its interface. Handlers can use it to look up
+ * information about the method in an array instead of a map. The method can be invoked on a receiver
+ * with a direct call instead of using reflection.
+ */
+public final class ProxyMethod {
+
+  /** Index of the method in the proxied interface. */
+  private final int _index;
+  /** The method. */
+  private final Method _method;
+  /** Invokes the method on a receiver. */
+  private final MethodInvoker _invoker;
+
+  /* package */ ProxyMethod(int index, Method method, MethodInvoker invoker) {
+    _index = index;
+    _method = ArgumentChecker.notNull(method, "method");
+    _invoker = ArgumentChecker.notNull(invoker, "invoker");
+  }
+
+  /**
+   * Gets the index of the method, unique among the methods of the proxied interface.
+   *
+   * @return the index of the method
+   */
+  public int getIndex() {
+    return _index;
+  }
+
+  /**
+   * Gets the method.
+   *
+   * @return the method, not null
+   */
+  public Method getMethod() {
+    return _method;
+  }
+
+  /**
+   * Invokes the method on a receiver.
+   * <p>
+   * Unlike {@link Method#invoke} any exception thrown by the method is propagated unchanged.
+   *
+   * @param receiver  the object whose method is invoked, not null
+   * @param args  the method arguments, null if the method takes no arguments
+   * @return the return value of the method, boxed if it is primitive, null if the method is void
+   * @throws Throwable if the method throws an exception
+   */
+  public Object invoke(Object receiver, Object[] args) throws Throwable {
+    return _invoker.invoke(_index, receiver, args);
+  }
+
+  @Override
+  public String toString() {
+    return "ProxyMethod [_index=" + _index + ", _method=" + _method + "]";
+  }
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+/**
+ * Handler that can be invoked by the proxies generated by {@link ProxyGenerator} as well as JDK dynamic proxies.
+ * <p>
+ * Generated proxies pass a {@link ProxyMethod} instead of a {@code Method}. This allows the handler to call the
+ * receiver directly rather than using reflection and to find information about the method using its index.
+ */
+public interface ProxyMethodInvocationHandler extends ProxyInvocationHandler {
+
+  /**
+   * Called when a method is invoked on a generated proxy.
+   *
+   * @param proxy  the proxy whose method was invoked, not null
+   * @param method  the method that was invoked, not null
+   * @param args  the method arguments, null if the method takes no arguments
+   * @return the return value of the call
+   * @throws Throwable if something goes wrong with the underlying call
+   */
+  Object invoke(Object proxy, ProxyMethod method, Object[] args) throws Throwable;
+}
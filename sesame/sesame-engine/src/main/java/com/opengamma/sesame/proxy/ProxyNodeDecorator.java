@@ -43,17 +43,8 @@ public abstract class ProxyNodeDecorator extends NodeDecorator implements Invoca
   }
 
   @Override
-  public ProxyInvocationHandler create(final Object delegate, ProxyNode node, FunctionIdProvider functionIdProvider) {
-    return new AbstractProxyInvocationHandler(delegate) {
-      @Override
-      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        try {
-          return ProxyNodeDecorator.this.invoke(proxy, delegate, method, args);
-        } catch (InvocationTargetException e) {
-          throw e.getCause();
-        }
-      }
-    };
+  public ProxyInvocationHandler create(Object delegate, ProxyNode node, FunctionIdProvider functionIdProvider) {
+    return new Handler(delegate);
   }
 
   //-------------------------------------------------------------------------
@@ -83,4 +74,54 @@ public abstract class ProxyNodeDecorator extends NodeDecorator implements Invoca
    */
   protected abstract Object invoke(Object proxy, Object delegate, Method method, Object[] args) throws Throwable;
 
+  /**
+   * Called when a method on a generated proxy is invoked.
+   * <p>
+   * The method can be invoked on the delegate without reflection using {@link ProxyMethod#invoke}.
+   * This implementation calls {@link #invoke(Object, Object, Method, Object[])}, subclasses should override it
+   * to avoid the cost of reflection.
+   *
+   * @param proxy  the proxy whose method was invoked, not null
+   * @param delegate  the object being proxied, not null
+   * @param method  the method that was invoked, not null
+   * @param args  the method arguments, null if the method takes
+   * no arguments
+   * @return the return value of the call
+   * @throws Throwable if something goes wrong with the underlying call
+   */
+  protected Object invoke(Object proxy, Object delegate, ProxyMethod method, Object[] args) throws Throwable {
+    try {
+      return invoke(proxy, delegate, method.getMethod(), args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Handler that passes method calls to the decorator.
+   */
+  private final class Handler extends AbstractProxyInvocationHandler implements ProxyMethodInvocationHandler {
+
+    private final Object _delegate;
+
+    private Handler(Object delegate) {
+      super(delegate);
+      _delegate = delegate;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      try {
+        return ProxyNodeDecorator.this.invoke(proxy, _delegate, method, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, ProxyMethod method, Object[] args) throws Throwable {
+      return ProxyNodeDecorator.this.invoke(proxy, _delegate, method, args);
+    }
+  }
 }
@@ -7,9 +7,13 @@ package com.opengamma.sesame.server;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.sesame.engine.CalculationArguments;
 import com.opengamma.sesame.engine.Engine;
 import com.opengamma.sesame.engine.Results;
@@ -18,54 +22,97 @@ import com.opengamma.sesame.marketdata.MarketDataEnvironmentBuilder;
 
 /**
  * Server capable of executing view requests.
+ * <p>
+ * The cycles in a multiple cycle request are run one after another unless the server is created in concurrent mode.
+ * In concurrent mode all the cycles are started at once and run in parallel using the engine's executor.
+ * The results are returned in the same order as the cycle options in both modes. The default mode is set with the
+ * system property {@code DefaultFunctionServer.concurrentCycles}.
  *
  * @deprecated use {@link Engine} directly
  */
 @Deprecated
 public class DefaultFunctionServer implements FunctionServer {
 
+  /** Whether cycles are run concurrently unless the constructor specifies otherwise. */
+  private static final boolean CONCURRENT_CYCLES =
+      System.getProperty("DefaultFunctionServer.concurrentCycles", "FALSE").equalsIgnoreCase("TRUE");
+
   private final Engine _engine;
 
+  /** Whether the cycles in a multiple cycle request are run concurrently. */
+  private final boolean _concurrentCycles;
+
   /**
    * @param engine engine that performs the calculation cycles
    */
   @Inject
   public DefaultFunctionServer(Engine engine) {
+    this(engine, CONCURRENT_CYCLES);
+  }
+
+  /**
+   * @param engine engine that performs the calculation cycles
+   * @param concurrentCycles whether the cycles in a multiple cycle request are run concurrently
+   */
+  public DefaultFunctionServer(Engine engine, boolean concurrentCycles) {
     _engine = engine;
+    _concurrentCycles = concurrentCycles;
   }
 
   @Override
   public Results executeSingleCycle(FunctionServerRequest<IndividualCycleOptions> request) {
-    IndividualCycleOptions cycleOptions = request.getCycleOptions();
-    CalculationArguments calculationArguments =
-        CalculationArguments.builder()
-            .valuationTime(cycleOptions.getValuationTime())
-            .captureInputs(cycleOptions.isCaptureInputs())
-            .marketDataSpecification(CompositeMarketDataSpecification.of(cycleOptions.getMarketDataSpecs()))
-            .build();
     return _engine.runView(request.getViewConfig(),
-                           calculationArguments,
+                           calculationArguments(request.getCycleOptions()),
                            MarketDataEnvironmentBuilder.empty(),
                            request.getInputs());
   }
 
   @Override
   public List<Results> executeMultipleCycles(FunctionServerRequest<GlobalCycleOptions> request) {
+    if (_concurrentCycles) {
+      return executeConcurrentCycles(request);
+    }
     List<Results> resultsList = new ArrayList<>();
 
     for (IndividualCycleOptions cycleOptions : request.getCycleOptions()) {
-      CalculationArguments calculationArguments =
-          CalculationArguments.builder()
-              .valuationTime(cycleOptions.getValuationTime())
-              .captureInputs(cycleOptions.isCaptureInputs())
-              .marketDataSpecification(CompositeMarketDataSpecification.of(cycleOptions.getMarketDataSpecs()))
-              .build();
       Results results = _engine.runView(request.getViewConfig(),
-                                        calculationArguments,
+                                        calculationArguments(cycleOptions),
                                         MarketDataEnvironmentBuilder.empty(),
                                         request.getInputs());
       resultsList.add(results);
     }
     return resultsList;
   }
+
+  /**
+   * Starts all the cycles in a request and waits for them to complete.
+   *
+   * @param request the request
+   * @return the results of the cycles in the same order as the cycle options
+   */
+  private List<Results> executeConcurrentCycles(FunctionServerRequest<GlobalCycleOptions> request) {
+    List<ListenableFuture<Results>> futures = new ArrayList<>();
+
+    for (IndividualCycleOptions cycleOptions : request.getCycleOptions()) {
+      futures.add(_engine.runViewAsync(request.getViewConfig(),
+                                       calculationArguments(cycleOptions),
+                                       MarketDataEnvironmentBuilder.empty(),
+                                       request.getInputs()));
+    }
+    try {
+      // the combined list is in the same order as the futures
+      return Futures.allAsList(futures).get();
+    } catch (InterruptedException | ExecutionException e) {
+      // this will only happen if there's a bug in the engine, all exceptions should be caught and converted to results
+      throw new OpenGammaRuntimeException("Failed to run cycles", e);
+    }
+  }
+
+  private static CalculationArguments calculationArguments(IndividualCycleOptions cycleOptions) {
+    return CalculationArguments.builder()
+        .valuationTime(cycleOptions.getValuationTime())
+        .captureInputs(cycleOptions.isCaptureInputs())
+        .marketDataSpecification(CompositeMarketDataSpecification.of(cycleOptions.getMarketDataSpecs()))
+        .build();
+  }
 }
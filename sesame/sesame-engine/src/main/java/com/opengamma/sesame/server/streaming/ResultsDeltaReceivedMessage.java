@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.server.streaming;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.joda.beans.Bean;
+import org.joda.beans.BeanDefinition;
+import org.joda.beans.ImmutableBean;
+import org.joda.beans.ImmutableConstructor;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectFieldsBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaBean;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.base.Function;
+import com.opengamma.sesame.engine.ResultsDelta;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Immutable bean indicating that the changes to the results in a cycle have been received.
+ */
+@BeanDefinition
+public final class ResultsDeltaReceivedMessage implements Function<StreamingClientResultListener, Object>, ImmutableBean {
+
+  /**
+   * The changes to the results that were received.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private final ResultsDelta _delta;
+
+  /**
+   * Constructs a message with the received changes to the results.
+   *
+   * @param delta the changes to the results that have been received
+   */
+  @ImmutableConstructor
+  public ResultsDeltaReceivedMessage(ResultsDelta delta) {
+    _delta = ArgumentChecker.notNull(delta, "delta");
+  }
+
+  @Override
+  public Object apply(StreamingClientResultListener input) {
+    input.resultsDeltaReceived(_delta);
+    return null;
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  ///CLOVER:OFF
+  /**
+   * The meta-bean for {@code ResultsDeltaReceivedMessage}.
+   * @return the meta-bean, not null
+   */
+  public static ResultsDeltaReceivedMessage.Meta meta() {
+    return ResultsDeltaReceivedMessage.Meta.INSTANCE;
+  }
+
+  static {
+    JodaBeanUtils.registerMetaBean(ResultsDeltaReceivedMessage.Meta.INSTANCE);
+  }
+
+  /**
+   * Returns a builder used to create an instance of the bean.
+   * @return the builder, not null
+   */
+  public static ResultsDeltaReceivedMessage.Builder builder() {
+    return new ResultsDeltaReceivedMessage.Builder();
+  }
+
+  @Override
+  public ResultsDeltaReceivedMessage.Meta metaBean() {
+    return ResultsDeltaReceivedMessage.Meta.INSTANCE;
+  }
+
+  @Override
+  public <R> Property<R> property(String propertyName) {
+    return metaBean().<R>metaProperty(propertyName).createProperty(this);
+  }
+
+  @Override
+  public Set<String> propertyNames() {
+    return metaBean().metaPropertyMap().keySet();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the changes to the results that were received.
+   * @return the value of the property, not null
+   */
+  public ResultsDelta getDelta() {
+    return _delta;
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Returns a builder that allows this bean to be mutated.
+   * @return the mutable builder, not null
+   */
+  public Builder toBuilder() {
+    return new Builder(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      ResultsDeltaReceivedMessage other = (ResultsDeltaReceivedMessage) obj;
+      return JodaBeanUtils.equal(getDelta(), other.getDelta());
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = getClass().hashCode();
+    hash = hash * 31 + JodaBeanUtils.hashCode(getDelta());
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(64);
+    buf.append("ResultsDeltaReceivedMessage{");
+    buf.append("delta").append('=').append(JodaBeanUtils.toString(getDelta()));
+    buf.append('}');
+    return buf.toString();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code ResultsDeltaReceivedMessage}.
+   */
+  public static final class Meta extends DirectMetaBean {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code delta} property.
+     */
+    private final MetaProperty<ResultsDelta> _delta = DirectMetaProperty.ofImmutable(
+        this, "delta", ResultsDeltaReceivedMessage.class, ResultsDelta.class);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, null,
+        "delta");
+
+    /**
+     * Restricted constructor.
+     */
+    private Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 95468472:  // delta
+          return _delta;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public ResultsDeltaReceivedMessage.Builder builder() {
+      return new ResultsDeltaReceivedMessage.Builder();
+    }
+
+    @Override
+    public Class<? extends ResultsDeltaReceivedMessage> beanType() {
+      return ResultsDeltaReceivedMessage.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return _metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code delta} property.
+     * @return the meta-property, not null
+     */
+    public MetaProperty<ResultsDelta> delta() {
+      return _delta;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    protected Object propertyGet(Bean bean, String propertyName, boolean quiet) {
+      switch (propertyName.hashCode()) {
+        case 95468472:  // delta
+          return ((ResultsDeltaReceivedMessage) bean).getDelta();
+      }
+      return super.propertyGet(bean, propertyName, quiet);
+    }
+
+    @Override
+    protected void propertySet(Bean bean, String propertyName, Object newValue, boolean quiet) {
+      metaProperty(propertyName);
+      if (quiet) {
+        return;
+      }
+      throw new UnsupportedOperationException("Property cannot be written: " + propertyName);
+    }
+
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The bean-builder for {@code ResultsDeltaReceivedMessage}.
+   */
+  public static final class Builder extends DirectFieldsBeanBuilder<ResultsDeltaReceivedMessage> {
+
+    private ResultsDelta _delta;
+
+    /**
+     * Restricted constructor.
+     */
+    private Builder() {
+    }
+
+    /**
+     * Restricted copy constructor.
+     * @param beanToCopy  the bean to copy from, not null
+     */
+    private Builder(ResultsDeltaReceivedMessage beanToCopy) {
+      this._delta = beanToCopy.getDelta();
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public Object get(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 95468472:  // delta
+          return _delta;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+    }
+
+    @Override
+    public Builder set(String propertyName, Object newValue) {
+      switch (propertyName.hashCode()) {
+        case 95468472:  // delta
+          this._delta = (ResultsDelta) newValue;
+          break;
+        default:
+          throw new NoSuchElementException("Unknown property: " + propertyName);
+      }
+      return this;
+    }
+
+    @Override
+    public Builder set(MetaProperty<?> property, Object value) {
+      super.set(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(String propertyName, String value) {
+      setString(meta().metaProperty(propertyName), value);
+      return this;
+    }
+
+    @Override
+    public Builder setString(MetaProperty<?> property, String value) {
+      super.setString(property, value);
+      return this;
+    }
+
+    @Override
+    public Builder setAll(Map<String, ? extends Object> propertyValueMap) {
+      super.setAll(propertyValueMap);
+      return this;
+    }
+
+    @Override
+    public ResultsDeltaReceivedMessage build() {
+      return new ResultsDeltaReceivedMessage(
+          _delta);
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Sets the {@code delta} property in the builder.
+     * @param delta  the new value, not null
+     * @return this, for chaining, not null
+     */
+    public Builder delta(ResultsDelta delta) {
+      JodaBeanUtils.notNull(delta, "delta");
+      this._delta = delta;
+      return this;
+    }
+
+    //-----------------------------------------------------------------------
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(64);
+      buf.append("ResultsDeltaReceivedMessage.Builder{");
+      buf.append("delta").append('=').append(JodaBeanUtils.toString(_delta));
+      buf.append('}');
+      return buf.toString();
+    }
+
+  }
+
+  ///CLOVER:ON
+  //-------------------------- AUTOGENERATED END --------------------------
+}
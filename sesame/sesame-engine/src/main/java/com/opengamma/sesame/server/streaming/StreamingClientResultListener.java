@@ -6,6 +6,7 @@
 package com.opengamma.sesame.server.streaming;
 
 import com.opengamma.sesame.engine.Results;
+import com.opengamma.sesame.engine.ResultsDelta;
 
 /**
  * Listener interface for use with a streaming client. Once the
@@ -22,6 +23,14 @@ public interface StreamingClientResultListener {
    */
   void resultsReceived(Results results);
 
+  /**
+   * Called when the changes to the results in a cycle have been received from
+   * the streaming client.
+   *
+   * @param delta the changes to the results, not null.
+   */
+  void resultsDeltaReceived(ResultsDelta delta);
+
   /**
    * Called when the streaming client has successfully produced all
    * the results it was originally asked to. No further results
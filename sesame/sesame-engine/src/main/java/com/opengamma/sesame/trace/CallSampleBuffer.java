@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.trace;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import com.opengamma.sesame.trace.SamplingProfiler.StackNode;
+
+/**
+ * Preallocated buffer recording the timings of the sampled calls made by one thread.
+ * <p>
+ * Recording a call doesn't allocate any objects once the call stack has been seen by the profiler.
+ * The timings are added to the profiler when the buffer is full and when the sampled cell has been calculated.
+ * <p>
+ * This isn't thread safe, each instance must only be used by one thread.
+ */
+final class CallSampleBuffer {
+
+  /** The number of calls recorded before the buffer is added to the profiler. */
+  private static final int CAPACITY = 4096;
+
+  /** The maximum depth of the recorded call stacks. Calls below this depth aren't recorded. */
+  static final int MAX_DEPTH = 256;
+
+  private final SamplingProfiler _profiler;
+
+  /** The nodes for the current call stack. */
+  private final StackNode[] _stack = new StackNode[MAX_DEPTH];
+
+  /** The time spent in the calls made by each call in the current stack. */
+  private final long[] _childNanos = new long[MAX_DEPTH];
+
+  /** The call stack of each recorded call. */
+  private final StackNode[] _nodes = new StackNode[CAPACITY];
+
+  /** The duration of each recorded call. */
+  private final long[] _durations = new long[CAPACITY];
+
+  /** The duration of each recorded call excluding the calls it made. */
+  private final long[] _selfDurations = new long[CAPACITY];
+
+  /** The depth of the current call stack, including calls that aren't recorded. */
+  private int _depth;
+
+  /** The number of recorded calls. */
+  private int _size;
+
+  CallSampleBuffer(SamplingProfiler profiler) {
+    _profiler = profiler;
+  }
+
+  /**
+   * Records that a method is about to be called.
+   *
+   * @param method the method
+   */
+  void called(Method method) {
+    if (_depth < MAX_DEPTH) {
+      StackNode parent = _depth == 0 ? _profiler.getRoot() : _stack[_depth - 1];
+      _stack[_depth] = _profiler.child(parent, method);
+      _childNanos[_depth] = 0;
+    }
+    _depth++;
+  }
+
+  /**
+   * Records that the most recent call completed.
+   *
+   * @param durationNanos the duration of the call in nanoseconds
+   */
+  void completed(long durationNanos) {
+    if (_depth == 0) {
+      return;
+    }
+    _depth--;
+
+    if (_depth >= MAX_DEPTH) {
+      // the call isn't recorded but its time is excluded from the self time of the deepest recorded call
+      if (_depth == MAX_DEPTH) {
+        _childNanos[MAX_DEPTH - 1] += durationNanos;
+      }
+      return;
+    }
+    if (_depth > 0) {
+      _childNanos[_depth - 1] += durationNanos;
+    }
+    _nodes[_size] = _stack[_depth];
+    _durations[_size] = durationNanos;
+    _selfDurations[_size] = Math.max(0, durationNanos - _childNanos[_depth]);
+    _stack[_depth] = null;
+    _size++;
+
+    if (_size == CAPACITY) {
+      flush();
+    }
+  }
+
+  /**
+   * Adds the recorded calls to the profiler and discards the current call stack.
+   */
+  void ended() {
+    flush();
+    Arrays.fill(_stack, 0, Math.min(_depth, MAX_DEPTH), null);
+    _depth = 0;
+  }
+
+  private void flush() {
+    if (_size > 0) {
+      _profiler.record(_nodes, _durations, _selfDurations, _size);
+      Arrays.fill(_nodes, 0, _size, null);
+      _size = 0;
+    }
+  }
+}
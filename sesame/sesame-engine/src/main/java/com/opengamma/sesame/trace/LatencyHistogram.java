@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.trace;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Histogram of the durations of the calls to a function.
+ * <p>
+ * The durations are counted in buckets whose bounds are powers of two nanoseconds. Bucket {@code i}
+ * contains the calls whose duration is at least 2<sup>i-1</sup> and less than 2<sup>i</sup> nanoseconds,
+ * bucket zero contains the calls that took no measurable time.
+ * <p>
+ * Instances returned by the {@link SamplingProfiler} are snapshots and aren't modified after they are returned.
+ */
+public final class LatencyHistogram {
+
+  /** The number of buckets, enough for any non-negative long. */
+  private static final int BUCKET_COUNT = 64;
+
+  private final long[] _buckets;
+  private long _count;
+  private long _totalNanos;
+  private long _maxNanos;
+
+  LatencyHistogram() {
+    _buckets = new long[BUCKET_COUNT];
+  }
+
+  private LatencyHistogram(LatencyHistogram histogram) {
+    _buckets = histogram._buckets.clone();
+    _count = histogram._count;
+    _totalNanos = histogram._totalNanos;
+    _maxNanos = histogram._maxNanos;
+  }
+
+  /**
+   * Records the duration of a call.
+   *
+   * @param durationNanos the duration of the call in nanoseconds
+   */
+  void record(long durationNanos) {
+    long nanos = Math.max(0, durationNanos);
+    _buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(nanos)]++;
+    _count++;
+    _totalNanos += nanos;
+    _maxNanos = Math.max(_maxNanos, nanos);
+  }
+
+  /**
+   * @return a copy of the histogram
+   */
+  LatencyHistogram copy() {
+    return new LatencyHistogram(this);
+  }
+
+  /**
+   * @return the number of calls
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  /**
+   * @return the total duration of the calls in nanoseconds
+   */
+  public long getTotalNanos() {
+    return _totalNanos;
+  }
+
+  /**
+   * @return the duration of the longest call in nanoseconds
+   */
+  public long getMaxNanos() {
+    return _maxNanos;
+  }
+
+  /**
+   * @return the mean duration of the calls in nanoseconds, zero if there were no calls
+   */
+  public double getMeanNanos() {
+    return _count == 0 ? 0 : (double) _totalNanos / _count;
+  }
+
+  /**
+   * Returns the number of calls in each bucket. Bucket {@code i} contains the calls whose duration was less
+   * than 2<sup>i</sup> nanoseconds and not in a lower bucket.
+   *
+   * @return the number of calls in each bucket
+   */
+  public long[] getBuckets() {
+    return _buckets.clone();
+  }
+
+  /**
+   * Returns an upper bound for a percentile of the call durations. The bound is the upper bound of the bucket
+   * containing the percentile, so it is at most twice the actual value.
+   *
+   * @param percentile the percentile, from zero to one hundred
+   * @return an upper bound for the percentile in nanoseconds, zero if there were no calls
+   */
+  public long getPercentileNanos(double percentile) {
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0, 100, percentile),
+                           "percentile must be between 0 and 100, {}", percentile);
+
+    if (_count == 0) {
+      return 0;
+    }
+    long threshold = (long) Math.ceil(_count * percentile / 100);
+    long cumulative = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += _buckets[i];
+
+      if (cumulative >= threshold && cumulative > 0) {
+        return i == BUCKET_COUNT - 1 ? _maxNanos : Math.min(_maxNanos, (1L << i) - 1);
+      }
+    }
+    return _maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram [" +
+        "_count=" + _count +
+        ", _totalNanos=" + _totalNanos +
+        ", _maxNanos=" + _maxNanos +
+        ", _buckets=" + Arrays.toString(_buckets) +
+        "]";
+  }
+}
@@ -7,8 +7,6 @@ package com.opengamma.sesame.trace;
 
 import java.lang.reflect.Method;
 
-import org.threeten.bp.Duration;
-
 /**
  * Tracer implementation that does nothing.
  */
@@ -32,12 +30,12 @@ final class NoOpTracer extends Tracer {
   }
 
   @Override
-  void returned(Object returnValue, Duration duration) {
+  void returned(Object returnValue, long durationNanos) {
     // do nothing
   }
 
   @Override
-  void threw(Throwable ex, Duration duration) {
+  void threw(Throwable ex, long durationNanos) {
     // do nothing
   }
 
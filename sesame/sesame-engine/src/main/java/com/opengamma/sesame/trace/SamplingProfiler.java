@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.trace;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Profiler that records the timings of function calls for a sample of the cells and outputs calculated
+ * by views.
+ * <p>
+ * Cells and outputs are sampled if they aren't being traced by a {@link StandardTracer}. One in every
+ * {@code sampleInterval} of them is sampled, sampling is disabled if the interval is zero. Sampling only
+ * takes effect if the functions are decorated with the {@link TracingProxy}, i.e. if the view is built
+ * with the tracing service.
+ * <p>
+ * Sampled calls don't build a call graph. Their timings are recorded in a preallocated buffer for each
+ * thread without allocating any objects. The buffer is added to the profiler's totals when it is full
+ * or when the sampled cell has been calculated.
+ * <p>
+ * The profiler provides a latency histogram for each function and the time spent in each function call
+ * stack. The stacks are available in the collapsed stack format used to create flame graphs.
+ * <p>
+ * The initial sampling interval of the shared instance is set by the system property
+ * {@code SamplingProfiler.sampleInterval}.
+ */
+public final class SamplingProfiler {
+
+  /**
+   * The number of cells and outputs between each sampled cell or output used by the shared instance.
+   * Zero disables sampling.
+   */
+  private static final int SAMPLE_INTERVAL =
+      Integer.parseInt(System.getProperty("SamplingProfiler.sampleInterval", "0"));
+
+  /**
+   * The shared profiler used by the engine.
+   */
+  public static final SamplingProfiler INSTANCE = new SamplingProfiler(SAMPLE_INTERVAL);
+
+  /** The number of cells and outputs considered for sampling. */
+  private final AtomicLong _cellCount = new AtomicLong();
+
+  /** The tracer used for the sampled cells and outputs. */
+  private final SamplingTracer _tracer = new SamplingTracer(this);
+
+  /** The root of the tree of call stacks, doesn't represent a call. */
+  private final StackNode _root = new StackNode(null);
+
+  /** Lock guarding the timings and the creation of stack nodes. */
+  private final Object _lock = new Object();
+
+  /** The latency histograms for the functions, keyed by function name. Guarded by {@link #_lock}. */
+  private final Map<String, LatencyHistogram> _histograms = new TreeMap<>();
+
+  /** The number of cells and outputs between each sampled cell or output, zero if sampling is disabled. */
+  private volatile int _sampleInterval;
+
+  /**
+   * @param sampleInterval the number of cells and outputs between each sampled cell or output,
+   *   zero disables sampling
+   */
+  public SamplingProfiler(int sampleInterval) {
+    _sampleInterval = ArgumentChecker.notNegative(sampleInterval, "sampleInterval");
+  }
+
+  /**
+   * @return the number of cells and outputs between each sampled cell or output, zero if sampling is disabled
+   */
+  public int getSampleInterval() {
+    return _sampleInterval;
+  }
+
+  /**
+   * Sets the number of cells and outputs between each sampled cell or output.
+   *
+   * @param sampleInterval the number of cells and outputs between each sampled cell or output,
+   *   zero disables sampling
+   */
+  public void setSampleInterval(int sampleInterval) {
+    _sampleInterval = ArgumentChecker.notNegative(sampleInterval, "sampleInterval");
+  }
+
+  /**
+   * Returns a histogram of the call durations of each function. The functions are named
+   * {@code fully.qualified.InterfaceName.methodName}, so interfaces with the same simple name are kept apart.
+   *
+   * @return a snapshot of the histogram of the call durations of each function, keyed by function name
+   */
+  public Map<String, LatencyHistogram> getLatencies() {
+    synchronized (_lock) {
+      Map<String, LatencyHistogram> latencies = new TreeMap<>();
+
+      for (Map.Entry<String, LatencyHistogram> entry : _histograms.entrySet()) {
+        latencies.put(entry.getKey(), entry.getValue().copy());
+      }
+      return latencies;
+    }
+  }
+
+  /**
+   * Returns the time spent in each call stack in the collapsed stack format used to create flame graphs.
+   * <p>
+   * There is a line for each stack with the names of the functions in the stack separated by semicolons,
+   * starting with the outermost function. This is followed by a space and the time spent in the innermost
+   * function in nanoseconds, excluding the time spent in the functions it called.
+   *
+   * @return the time spent in each call stack in collapsed stack format
+   */
+  public String getCollapsedStacks() {
+    StringBuilder builder = new StringBuilder();
+
+    synchronized (_lock) {
+      for (StackNode child : _root._children) {
+        appendCollapsedStacks(child, "", builder);
+      }
+    }
+    return builder.toString();
+  }
+
+  private static void appendCollapsedStacks(StackNode node, String parentStack, StringBuilder builder) {
+    String stack = parentStack.isEmpty() ? node._name : parentStack + ";" + node._name;
+
+    if (node._selfNanos > 0) {
+      builder.append(stack).append(' ').append(node._selfNanos).append('\n');
+    }
+    for (StackNode child : node._children) {
+      appendCollapsedStacks(child, stack, builder);
+    }
+  }
+
+  /**
+   * Discards all the timings recorded by the profiler.
+   */
+  public void reset() {
+    synchronized (_lock) {
+      _histograms.clear();
+      reset(_root);
+    }
+  }
+
+  private static void reset(StackNode node) {
+    node._selfNanos = 0;
+
+    for (StackNode child : node._children) {
+      reset(child);
+    }
+  }
+
+  /**
+   * Returns the tracer to use for a cell or output that isn't being traced.
+   *
+   * @return the sampling tracer if the cell or output should be sampled, null if not
+   */
+  Tracer sampleTracer() {
+    int sampleInterval = _sampleInterval;
+
+    if (sampleInterval == 0) {
+      return null;
+    }
+    return _cellCount.incrementAndGet() % sampleInterval == 0 ? _tracer : null;
+  }
+
+  /**
+   * @return the tracer used for the sampled cells and outputs
+   */
+  Tracer getTracer() {
+    return _tracer;
+  }
+
+  /**
+   * @return the root of the tree of call stacks
+   */
+  StackNode getRoot() {
+    return _root;
+  }
+
+  /**
+   * Returns the node for a call made from a call stack, creating it if this is the first such call.
+   *
+   * @param parent the node for the calling stack
+   * @param method the method called
+   * @return the node for the stack containing the call
+   */
+  StackNode child(StackNode parent, Method method) {
+    StackNode child = parent.child(method);
+
+    if (child != null) {
+      return child;
+    }
+    synchronized (_lock) {
+      child = parent.child(method);
+
+      if (child == null) {
+        child = new StackNode(method);
+        StackNode[] children = Arrays.copyOf(parent._children, parent._children.length + 1);
+        children[children.length - 1] = child;
+        parent._children = children;
+      }
+      return child;
+    }
+  }
+
+  /**
+   * Adds the timings of some calls to the totals.
+   *
+   * @param nodes the call stack of each call
+   * @param durations the duration of each call in nanoseconds
+   * @param selfDurations the duration of each call in nanoseconds, excluding the calls it made
+   * @param count the number of calls
+   */
+  void record(StackNode[] nodes, long[] durations, long[] selfDurations, int count) {
+    synchronized (_lock) {
+      for (int i = 0; i < count; i++) {
+        StackNode node = nodes[i];
+        node._selfNanos += selfDurations[i];
+        LatencyHistogram histogram = _histograms.get(node._name);
+
+        if (histogram == null) {
+          histogram = new LatencyHistogram();
+          _histograms.put(node._name, histogram);
+        }
+        histogram.record(durations[i]);
+      }
+    }
+  }
+
+  /**
+   * A node in the tree of call stacks. The path from the root to a node is the call stack.
+   */
+  static final class StackNode {
+
+    private static final StackNode[] NO_CHILDREN = new StackNode[0];
+
+    /** The method called, null for the root. */
+    private final Method _method;
+
+    /** The name of the function called, null for the root. */
+    private final String _name;
+
+    /** The nodes for the calls made from this stack. Replaced rather than modified when a node is added. */
+    private volatile StackNode[] _children = NO_CHILDREN;
+
+    /** The time spent in this stack excluding the calls it made. Guarded by the profiler's lock. */
+    private long _selfNanos;
+
+    private StackNode(Method method) {
+      _method = method;
+      _name = method == null ? null : method.getDeclaringClass().getName() + "." + method.getName();
+    }
+
+    private StackNode child(Method method) {
+      for (StackNode child : _children) {
+        if (child._method.equals(method)) {
+          return child;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.trace;
+
+import java.lang.reflect.Method;
+
+/**
+ * Tracer implementation that records call timings in a {@link SamplingProfiler} and doesn't create a call graph.
+ * <p>
+ * The tracer has no state of its own, the timings are recorded in a buffer for the current thread.
+ * This allows a single instance to be shared by all the sampled cells.
+ */
+final class SamplingTracer extends Tracer {
+
+  /**
+   * The buffer for each thread.
+   */
+  private final ThreadLocal<CallSampleBuffer> _buffers;
+
+  /**
+   * @param profiler  the profiler that receives the timings, not null
+   */
+  SamplingTracer(final SamplingProfiler profiler) {
+    _buffers = new ThreadLocal<CallSampleBuffer>() {
+      @Override
+      protected CallSampleBuffer initialValue() {
+        return new CallSampleBuffer(profiler);
+      }
+    };
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  void called(Method method, Object[] args) {
+    _buffers.get().called(method);
+  }
+
+  @Override
+  void returned(Object returnValue, long durationNanos) {
+    _buffers.get().completed(durationNanos);
+  }
+
+  @Override
+  void threw(Throwable ex, long durationNanos) {
+    _buffers.get().completed(durationNanos);
+  }
+
+  @Override
+  void ended() {
+    _buffers.get().ended();
+  }
+
+  @Override
+  public CallGraphBuilder getRoot() {
+    return null;
+  }
+
+}
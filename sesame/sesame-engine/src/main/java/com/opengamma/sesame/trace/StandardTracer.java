@@ -50,13 +50,13 @@ class StandardTracer extends Tracer {
   }
 
   @Override
-  void returned(Object returnValue, Duration duration) {
-    _stack.pop().returned(returnValue, duration);
+  void returned(Object returnValue, long durationNanos) {
+    _stack.pop().returned(returnValue, Duration.ofNanos(durationNanos));
   }
 
   @Override
-  void threw(Throwable ex, Duration duration) {
-    _stack.pop().threw(ex, duration);
+  void threw(Throwable ex, long durationNanos) {
+    _stack.pop().threw(ex, Duration.ofNanos(durationNanos));
   }
 
   @Override
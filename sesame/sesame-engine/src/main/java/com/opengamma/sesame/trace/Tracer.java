@@ -8,8 +8,6 @@ package com.opengamma.sesame.trace;
 
 import java.lang.reflect.Method;
 
-import org.threeten.bp.Duration;
-
 import com.opengamma.sesame.engine.TraceType;
 
 /**
@@ -30,12 +28,20 @@ public abstract class Tracer {
    * <p>
    * An active tracer will trace the call graph.
    * An inactive tracer will do nothing and return no call graph.
+   * <p>
+   * If the trace type is {@link TraceType#NONE} and the {@link SamplingProfiler} is enabled
+   * the tracer may be a sampling tracer. This records the timings of the calls in the profiler
+   * but returns no call graph.
    * 
    * @param traceType  the type of tracing to be activated
    * @return the tracer, not null
    */
   public static Tracer create(TraceType traceType) {
-    return traceType == TraceType.NONE ? NoOpTracer.INSTANCE : new StandardTracer(traceType);
+    if (traceType == TraceType.NONE) {
+      Tracer samplingTracer = SamplingProfiler.INSTANCE.sampleTracer();
+      return samplingTracer == null ? NoOpTracer.INSTANCE : samplingTracer;
+    }
+    return new StandardTracer(traceType);
   }
 
   //-------------------------------------------------------------------------
@@ -65,9 +71,9 @@ public abstract class Tracer {
    * This method must not throw an exception.
    *
    * @param returnValue  the return value of the method, may be null
-   * @param duration  the duration of the method call
+   * @param durationNanos  the duration of the method call in nanoseconds
    */
-  abstract void returned(Object returnValue, Duration duration);
+  abstract void returned(Object returnValue, long durationNanos);
 
   /**
    * Handles the tracing event when a method call threw an exception.
@@ -75,9 +81,18 @@ public abstract class Tracer {
    * This method must not throw an exception.
    *
    * @param ex  the exception that was thrown
-   * @param duration  the duration of the method call
+   * @param durationNanos  the duration of the method call in nanoseconds
+   */
+  abstract void threw(Throwable ex, long durationNanos);
+
+  /**
+   * Handles the tracing event when the process of tracing ends.
+   * <p>
+   * This method must not throw an exception.
    */
-  abstract void threw(Throwable ex, Duration duration);
+  void ended() {
+    // do nothing by default
+  }
 
   /**
    * Gets the root of the call graph.
@@ -7,9 +7,8 @@ package com.opengamma.sesame.trace;
 
 import java.lang.reflect.Method;
 
-import org.threeten.bp.Duration;
-
 import com.opengamma.sesame.config.EngineUtils;
+import com.opengamma.sesame.proxy.ProxyMethod;
 import com.opengamma.sesame.proxy.ProxyNodeDecorator;
 import com.opengamma.util.ArgumentChecker;
 
@@ -53,6 +52,7 @@ public final class TracingProxy extends ProxyNodeDecorator {
   public static CallGraph end() {
     Tracer tracer = s_tracer.get();
     s_tracer.remove();
+    tracer.ended();
     CallGraphBuilder callGraphBuilder = tracer.getRoot();
     return callGraphBuilder == null ? null : callGraphBuilder.createTrace();
   }
@@ -81,14 +81,33 @@ public final class TracingProxy extends ProxyNodeDecorator {
     long start = System.nanoTime();
     try {
       Object retVal = method.invoke(delegate, args);
-      tracer.returned(retVal, Duration.ofNanos(System.nanoTime() - start));
+      tracer.returned(retVal, System.nanoTime() - start);
       return retVal;
     } catch (Exception ex) {
       long end = System.nanoTime();
       Throwable cause = EngineUtils.getCause(ex);
-      tracer.threw(cause, Duration.ofNanos(end - start));
+      tracer.threw(cause, end - start);
       throw cause;
     }
   }
 
+  @Override
+  protected Object invoke(Object proxy, Object delegate, ProxyMethod proxyMethod, Object[] args) throws Throwable {
+    Method method = proxyMethod.getMethod();
+    if (method.getName().equals("toString")) {
+      return proxyMethod.invoke(delegate, args);
+    }
+    Tracer tracer = s_tracer.get();
+    tracer.called(method, args);
+    long start = System.nanoTime();
+    try {
+      Object retVal = proxyMethod.invoke(delegate, args);
+      tracer.returned(retVal, System.nanoTime() - start);
+      return retVal;
+    } catch (Exception ex) {
+      tracer.threw(ex, System.nanoTime() - start);
+      throw ex;
+    }
+  }
+
 }
@@ -5,6 +5,7 @@
  */
 package com.opengamma.sesame.cache;
 
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 
@@ -13,7 +14,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 
 import javax.inject.Provider;
@@ -185,4 +189,150 @@ public class CacheInvalidatorTest {
         Collections.<ObjectId>emptyList());
     assertNull(_cache.getIfPresent(METHOD_KEY_2));
   }
+
+  /**
+   * dependencies registered on other threads are merged when the invalidator is next invoked
+   */
+  @Test
+  public void registerOnMultipleThreads() throws Exception {
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    final ExecutingMethodsThreadLocal executingMethods = new ExecutingMethodsThreadLocal();
+    final CacheInvalidator invalidator = new DefaultCacheInvalidator(executingMethods, _cache);
+    invalidator.invalidate(
+        valuationTime,
+        VersionCorrection.LATEST,
+        Collections.<ExternalId>emptyList(),
+        Collections.<ObjectId>emptyList());
+    final ExternalId id1 = ExternalId.of("abc", "1");
+    final ExternalId id2 = ExternalId.of("abc", "2");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          executingMethods.push(METHOD_KEY_1);
+          invalidator.register(id1);
+          executingMethods.pop();
+        }
+      }).get();
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          executingMethods.push(METHOD_KEY_2);
+          executingMethods.push(METHOD_KEY_3);
+          invalidator.register(id2);
+          executingMethods.pop();
+          executingMethods.pop();
+        }
+      }).get();
+    } finally {
+      executor.shutdown();
+    }
+
+    populateCache();
+    invalidator.invalidate(
+        valuationTime,
+        VersionCorrection.LATEST,
+        Lists.newArrayList(id2),
+        Collections.<ObjectId>emptyList());
+    assertNotNull(_cache.getIfPresent(METHOD_KEY_1));
+    assertNull(_cache.getIfPresent(METHOD_KEY_2));
+    assertNull(_cache.getIfPresent(METHOD_KEY_3));
+
+    populateCache();
+    invalidator.invalidate(
+        valuationTime,
+        VersionCorrection.LATEST,
+        Lists.newArrayList(id1),
+        Collections.<ObjectId>emptyList());
+    assertNull(_cache.getIfPresent(METHOD_KEY_1));
+    assertNotNull(_cache.getIfPresent(METHOD_KEY_2));
+    assertNotNull(_cache.getIfPresent(METHOD_KEY_3));
+  }
+
+  /**
+   * the log of a thread that has died is discarded after its dependencies are merged
+   */
+  @Test
+  public void logsOfDeadThreadsDiscarded() throws Exception {
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    final ExecutingMethodsThreadLocal executingMethods = new ExecutingMethodsThreadLocal();
+    final DefaultCacheInvalidator invalidator = new DefaultCacheInvalidator(executingMethods, _cache);
+    invalidator.invalidate(
+        valuationTime,
+        VersionCorrection.LATEST,
+        Collections.<ExternalId>emptyList(),
+        Collections.<ObjectId>emptyList());
+    final ExternalId id = ExternalId.of("abc", "1");
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        executingMethods.push(METHOD_KEY_1);
+        invalidator.register(id);
+        executingMethods.pop();
+      }
+    });
+    thread.start();
+    thread.join();
+    assertEquals(1, invalidator.getLogCount());
+
+    populateCache();
+    invalidator.invalidate(
+        valuationTime,
+        VersionCorrection.LATEST,
+        Lists.newArrayList(id),
+        Collections.<ObjectId>emptyList());
+    // the dependency registered by the dead thread isn't lost
+    assertNull(_cache.getIfPresent(METHOD_KEY_1));
+    assertNotNull(_cache.getIfPresent(METHOD_KEY_2));
+    assertEquals(0, invalidator.getLogCount());
+  }
+
+  /**
+   * invalidating enough IDs for the work to be split into parallel tasks
+   */
+  @Test
+  public void invalidateInParallel() {
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    final LinkedList<MethodInvocationKey> keys = Lists.newLinkedList();
+    Provider<Collection<MethodInvocationKey>> provider = new Provider<Collection<MethodInvocationKey>>() {
+      @Override
+      public Collection<MethodInvocationKey> get() {
+        return keys;
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      CacheInvalidator invalidator = new DefaultCacheInvalidator(provider, _cache, executor);
+      invalidator.invalidate(
+          valuationTime,
+          VersionCorrection.LATEST,
+          Collections.<ExternalId>emptyList(),
+          Collections.<ObjectId>emptyList());
+      List<ExternalId> ids = new ArrayList<>();
+
+      for (int i = 0; i < 5000; i++) {
+        ids.add(ExternalId.of("abc", Integer.toString(i)));
+      }
+      keys.add(METHOD_KEY_1);
+      invalidator.register(ids.get(10));
+      keys.clear();
+      keys.add(METHOD_KEY_2);
+      invalidator.register(ids.get(4000));
+
+      populateCache();
+      invalidator.invalidate(
+          valuationTime,
+          VersionCorrection.LATEST,
+          ids,
+          Collections.<ObjectId>emptyList());
+      assertNull(_cache.getIfPresent(METHOD_KEY_1));
+      assertNull(_cache.getIfPresent(METHOD_KEY_2));
+      assertNotNull(_cache.getIfPresent(METHOD_KEY_3));
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
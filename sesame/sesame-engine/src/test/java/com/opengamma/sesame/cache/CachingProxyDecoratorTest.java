@@ -11,15 +11,22 @@ import static com.opengamma.sesame.config.ConfigBuilder.config;
 import static com.opengamma.sesame.config.ConfigBuilder.function;
 import static com.opengamma.sesame.config.ConfigBuilder.implementations;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
@@ -29,6 +36,7 @@ import org.threeten.bp.ZonedDateTime;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.opengamma.sesame.EngineTestUtils;
 import com.opengamma.sesame.Environment;
 import com.opengamma.sesame.SimpleEnvironment;
@@ -70,7 +78,7 @@ public class CachingProxyDecoratorTest {
     FunctionModel functionModel = FunctionModel.forFunction(metadata, config, NO_COMPONENTS, cachingDecorator);
     TestFn fn = (TestFn) functionModel.build(functionBuilder, ComponentMap.EMPTY).getReceiver();
     Method foo = EngineUtils.getMethod(TestFn.class, "foo");
-    CachingProxyDecorator.Handler invocationHandler = (CachingProxyDecorator.Handler) Proxy.getInvocationHandler(fn);
+    CachingProxyDecorator.Handler invocationHandler = (CachingProxyDecorator.Handler) EngineUtils.getInvocationHandler(fn);
     Impl delegate = (Impl) invocationHandler.getDelegate();
     FunctionId functionId = functionBuilder.getFunctionId(delegate);
     MethodInvocationKey key = new MethodInvocationKey(functionId, foo, new Object[]{"bar"});
@@ -135,6 +143,80 @@ public class CachingProxyDecoratorTest {
     assertTrue(val1 != val2);
   }
 
+  /** check a thread using async invocation is suspended instead of blocking on a value calculated by another thread */
+  @Test
+  public void asyncInvocation() throws Exception {
+    FunctionModelConfig config = config(implementations(SlowFn.class, SlowImpl.class));
+    CachingProxyDecorator cachingDecorator = new CachingProxyDecorator(_cacheProvider);
+    FunctionMetadata metadata = EngineUtils.createMetadata(SlowFn.class, "calculate");
+    FunctionModel functionModel = FunctionModel.forFunction(metadata, config, NO_COMPONENTS, cachingDecorator);
+    final SlowFn fn = (SlowFn) functionModel.build(new FunctionBuilder(), ComponentMap.EMPTY).getReceiver();
+    SlowImpl.s_started = new CountDownLatch(1);
+    SlowImpl.s_finish = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      Future<Object> first = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() {
+          AsyncInvocation.begin();
+          try {
+            return fn.calculate("key");
+          } finally {
+            AsyncInvocation.end();
+          }
+        }
+      });
+      SlowImpl.s_started.await();
+
+      AsyncInvocation.begin();
+      try {
+        fn.calculate("key");
+        fail("Expected the calculation to be suspended");
+      } catch (CalculationPendingException e) {
+        // expected
+      }
+      ListenableFuture<?> pending = AsyncInvocation.end();
+      assertNotNull(pending);
+      assertFalse(pending.isDone());
+
+      SlowImpl.s_finish.countDown();
+      Object value = first.get();
+      // the future completes when the other thread has finished calculating the value
+      pending.get();
+
+      AsyncInvocation.begin();
+      assertSame(value, fn.calculate("key"));
+      assertNull(AsyncInvocation.end());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  interface SlowFn {
+
+    @Cacheable
+    @Output("Slow")
+    Object calculate(String arg);
+  }
+
+  public static class SlowImpl implements SlowFn {
+
+    private static volatile CountDownLatch s_started;
+    private static volatile CountDownLatch s_finish;
+
+    @Override
+    public Object calculate(String arg) {
+      s_started.countDown();
+      try {
+        s_finish.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return new Object();
+    }
+  }
+
   interface TestFn {
 
     @Cacheable
@@ -272,7 +354,7 @@ public class CachingProxyDecoratorTest {
     FunctionBuilder functionBuilder = new FunctionBuilder();
     TestFn2 fn = (TestFn2) functionModel.build(functionBuilder, ComponentMap.EMPTY).getReceiver();
     Method foo = EngineUtils.getMethod(TestFn2.class, "foo");
-    CachingProxyDecorator.Handler invocationHandler = (CachingProxyDecorator.Handler) Proxy.getInvocationHandler(fn);
+    CachingProxyDecorator.Handler invocationHandler = (CachingProxyDecorator.Handler) EngineUtils.getInvocationHandler(fn);
     Impl2 delegate = (Impl2) invocationHandler.getDelegate();
     MethodInvocationKey key = new MethodInvocationKey(functionBuilder.getFunctionId(delegate), foo, new Object[]{"bar"});
 
@@ -335,7 +417,7 @@ public class CachingProxyDecoratorTest {
       _i2 = i2;
       _functionIdProvider = functionIdProvider;
       // this is a bit grubby but necessary so the method keys can be checked
-      CachingProxyDecorator.Handler handler = (CachingProxyDecorator.Handler) Proxy.getInvocationHandler(i2);
+      CachingProxyDecorator.Handler handler = (CachingProxyDecorator.Handler) EngineUtils.getInvocationHandler(i2);
       ExecutingMethodsC2 c2 = (ExecutingMethodsC2) handler.getDelegate();
       c2._c1 = this;
       _executingMethods = executingMethods;
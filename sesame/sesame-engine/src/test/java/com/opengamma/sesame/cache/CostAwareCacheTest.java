@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.opengamma.sesame.config.EngineUtils;
+import com.opengamma.sesame.graph.FunctionId;
+import com.opengamma.util.result.Result;
+import com.opengamma.util.test.TestGroup;
+
+@Test(groups = TestGroup.UNIT)
+public class CostAwareCacheTest {
+
+  /** Estimated size of every entry including the overhead added by the cache. */
+  private static final long ENTRY_SIZE = 100 + 128;
+
+  /** Every value has the same size so the eviction order only depends on the calculation time. */
+  private static final Weigher<Object, Object> FIXED_SIZE = new Weigher<Object, Object>() {
+    @Override
+    public int weigh(Object key, Object value) {
+      return 100;
+    }
+  };
+
+  private static final Optional<MetricRegistry> NO_METRICS = Optional.absent();
+
+  public void cheapEntriesAreEvictedFirst() throws ExecutionException {
+    CostAwareCache cache = new CostAwareCache(ENTRY_SIZE * 3, 1, NO_METRICS, FIXED_SIZE);
+    cache.get("expensive", new SlowLoader("expensive value", 50));
+    cache.get("cheap1", new SlowLoader("cheap value 1", 0));
+    cache.get("cheap2", new SlowLoader("cheap value 2", 0));
+    assertEquals(3, cache.size());
+    assertEquals(ENTRY_SIZE * 3, cache.getEstimatedSize());
+
+    // this takes the cache over budget so it is reduced to 90% of the budget by evicting the cheap entries
+    cache.get("cheap3", new SlowLoader("cheap value 3", 0));
+    assertEquals("expensive value", cache.getIfPresent("expensive"));
+    assertTrue(cache.getEstimatedSize() <= ENTRY_SIZE * 3);
+    assertEquals(2, cache.stats().evictionCount());
+  }
+
+  public void valuesAreCalculatedOnce() throws ExecutionException {
+    CostAwareCache cache = new CostAwareCache(1_000_000, 1, NO_METRICS, FIXED_SIZE);
+    SlowLoader loader = new SlowLoader("value", 0);
+    assertEquals("value", cache.get("key", loader));
+    assertEquals("value", cache.get("key", loader));
+    assertEquals(1, loader._calls);
+    assertEquals(1, cache.stats().hitCount());
+    assertEquals(1, cache.stats().missCount());
+  }
+
+  public void invalidate() throws ExecutionException {
+    CostAwareCache cache = new CostAwareCache(1_000_000, 1, NO_METRICS, FIXED_SIZE);
+    cache.get("key1", new SlowLoader("value1", 0));
+    cache.put("key2", "value2");
+    assertEquals(ENTRY_SIZE * 2, cache.getEstimatedSize());
+
+    cache.invalidate("key1");
+    assertNull(cache.getIfPresent("key1"));
+    assertNotNull(cache.getIfPresent("key2"));
+    assertEquals(ENTRY_SIZE, cache.getEstimatedSize());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getEstimatedSize());
+  }
+
+  public void failedCalculationIsNotCached() throws ExecutionException {
+    CostAwareCache cache = new CostAwareCache(1_000_000, 1, NO_METRICS, FIXED_SIZE);
+    try {
+      cache.get("key", new Callable<Object>() {
+        @Override
+        public Object call() {
+          throw new IllegalStateException("failed");
+        }
+      });
+      fail("Expected an exception");
+    } catch (UncheckedExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getEstimatedSize());
+    assertEquals("value", cache.get("key", new SlowLoader("value", 0)));
+  }
+
+  public void functionMetrics() throws ExecutionException {
+    MetricRegistry registry = new MetricRegistry();
+    CostAwareCache cache = new CostAwareCache(1_000_000, 1, Optional.of(registry), FIXED_SIZE);
+    Method method = EngineUtils.getMethod(ArrayList.class, "size");
+    MethodInvocationKey key = new MethodInvocationKey(FunctionId.of(1), method, null);
+    cache.get(key, new SlowLoader(1, 0));
+    cache.get(key, new SlowLoader(1, 0));
+    cache.get(key, new SlowLoader(1, 0));
+
+    String name = method.getDeclaringClass().getCanonicalName() + ".size";
+    assertEquals(2, registry.counter(MetricRegistry.name(CostAwareCache.class, name, "hits")).getCount());
+    assertEquals(1, registry.counter(MetricRegistry.name(CostAwareCache.class, name, "misses")).getCount());
+    assertEquals(0, registry.counter(MetricRegistry.name(CostAwareCache.class, name, "evictions")).getCount());
+  }
+
+  public void estimateSize() {
+    ObjectSizeEstimator estimator = ObjectSizeEstimator.INSTANCE;
+    // array header plus 100 doubles
+    assertEquals(816, estimator.estimateSize(new double[100]));
+    // shared objects are only counted once
+    double[] values = new double[100];
+    assertEquals(estimator.estimateSize(new Object[]{values}), estimator.estimateSize(new Object[]{values, values}));
+    assertEquals(0, estimator.estimateSize(null));
+  }
+
+  public void weighSamplesEachType() {
+    ObjectSizeEstimator estimator = new ObjectSizeEstimator();
+    long smallSize = estimator.estimateSize(new Object[]{new double[10]});
+    for (int i = 0; i < ObjectSizeEstimator.SAMPLE_COUNT; i++) {
+      assertEquals(smallSize, estimator.weigh(null, new Object[]{new double[10]}));
+    }
+    // once the type has been sampled its average size is used
+    assertEquals(smallSize, estimator.weigh(null, new Object[]{new double[1000]}));
+    // other types are sampled separately
+    assertEquals(816, estimator.weigh(null, new double[100]));
+    assertEquals(0, estimator.weigh(null, null));
+  }
+
+  public void weighSamplesResultValuesByMethod() {
+    ObjectSizeEstimator estimator = new ObjectSizeEstimator();
+    MethodInvocationKey key = new MethodInvocationKey(FunctionId.of(1), EngineUtils.getMethod(ArrayList.class, "size"), null);
+    long smallSize = estimator.estimateSize(Result.success(new double[10]));
+    for (int i = 0; i < ObjectSizeEstimator.SAMPLE_COUNT; i++) {
+      assertEquals(smallSize, estimator.weigh(key, Result.success(new double[10])));
+    }
+    assertEquals(smallSize, estimator.weigh(key, Result.success(new double[1000])));
+    // results wrapping other types are sampled separately
+    Result<Object[]> other = Result.success(new Object[]{new double[1000]});
+    assertEquals(estimator.estimateSize(other), estimator.weigh(key, other));
+    // as are results of other methods
+    MethodInvocationKey otherKey = new MethodInvocationKey(FunctionId.of(1), EngineUtils.getMethod(ArrayList.class, "isEmpty"), null);
+    Result<double[]> large = Result.success(new double[1000]);
+    assertEquals(estimator.estimateSize(large), estimator.weigh(otherKey, large));
+  }
+
+  /**
+   * Loader that waits before returning its value and counts how many times it's called.
+   */
+  private static final class SlowLoader implements Callable<Object> {
+
+    private final Object _value;
+    private final long _delayMillis;
+    private int _calls;
+
+    private SlowLoader(Object value, long delayMillis) {
+      _value = value;
+      _delayMillis = delayMillis;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      _calls++;
+      if (_delayMillis > 0) {
+        Thread.sleep(_delayMillis);
+      }
+      return _value;
+    }
+  }
+}
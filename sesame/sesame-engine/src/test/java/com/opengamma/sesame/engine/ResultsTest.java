@@ -6,15 +6,26 @@
 package com.opengamma.sesame.engine;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
 import java.util.List;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.result.FailureStatus;
 import com.opengamma.util.result.Result;
 import com.opengamma.util.test.TestGroup;
 
@@ -75,6 +86,100 @@ public class ResultsTest {
     RESULTS.get(2, "col1");
   }
 
+  @Test
+  public void columns() {
+    Results results = columnResults();
+
+    assertEquals(1d, results.get(0, 0).getResult().getValue());
+    assertEquals("item12", results.get(0, 1).getResult().getValue());
+    assertEquals(2d, results.get(1, "col1").getResult().getValue());
+    assertFalse(results.isFailure(0, 0));
+    assertFalse(results.isFailure(0, 1));
+    assertTrue(results.isFailure(1, 1));
+    assertTrue(results.isPendingMarketData());
+    assertEquals(row("input1", 1d, "item12"), results.get(0));
+    assertEquals(2, results.getRows().size());
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void columnsInvalidRowIndex() {
+    columnResults().get(2, 0);
+  }
+
+  @Test
+  public void builderFromPreviousResults() {
+    Results previous = columnResults();
+    ImmutableList<String> inputs = ImmutableList.of("input1", "input2");
+    ImmutableList<String> columnNames = ImmutableList.of("col1", "col2");
+
+    // the copied failure is still pending
+    assertTrue(Results.builder(inputs, columnNames, previous).build(Instant.EPOCH, 0, 0, 0).isPendingMarketData());
+
+    ResultBuilder builder = Results.builder(inputs, columnNames, previous);
+    builder.add(1, 1, Result.success("item22"), null);
+    Results results = builder.build(Instant.EPOCH, 0, 0, 0);
+
+    assertEquals(1d, results.get(0, 0).getResult().getValue());
+    assertEquals("item12", results.get(0, 1).getResult().getValue());
+    assertEquals(2d, results.get(1, 0).getResult().getValue());
+    assertEquals("item22", results.get(1, 1).getResult().getValue());
+    assertFalse(results.isPendingMarketData());
+    // the previous results aren't modified
+    assertFalse(previous.get(1, 1).getResult().isSuccess());
+  }
+
+  @Test
+  public void binarySerialization() {
+    Results results = columnResults();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryResultsSerializer.serialize(results, out);
+    Results deserialized = BinaryResultsSerializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(results.getColumnNames(), deserialized.getColumnNames());
+    assertEquals(results.get(0), deserialized.get(0));
+    assertEquals("input2", deserialized.get(1).getInput());
+    assertEquals(2d, deserialized.get(1, 0).getResult().getValue());
+    assertTrue(deserialized.isFailure(1, 1));
+    assertEquals(FailureStatus.PENDING_DATA, deserialized.get(1, 1).getResult().getStatus());
+    assertEquals("foo", deserialized.get("output").getResult().getValue());
+    assertTrue(deserialized.isPendingMarketData());
+    assertEquals(results.getViewTimer(), deserialized.getViewTimer());
+  }
+
+  @Test
+  public void binarySerializationOfBeanResults() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Results results = RESULTS.toBuilder().viewTimer(new ViewTimer(Instant.EPOCH, 0, 0, 0, 0)).build();
+    BinaryResultsSerializer.serialize(results, out);
+    Results deserialized = BinaryResultsSerializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(results.getRows(), deserialized.getRows());
+  }
+
+  @Test
+  public void fudgeSerialization() {
+    Results results = columnResults();
+    FudgeContext ctx = OpenGammaFudgeContext.getInstance();
+    FudgeMsg msg = new FudgeSerializer(ctx).objectToFudgeMsg(results);
+
+    assertTrue(msg.hasField(ResultsFudgeBuilder.DATA_FIELD_NAME));
+    Results deserialized = new FudgeDeserializer(ctx).fudgeMsgToObject(Results.class, ctx.deserialize(ctx.toByteArray(msg)).getMessage());
+    assertEquals(results.getRows(), deserialized.getRows());
+    assertEquals(2d, deserialized.get(1, 0).getResult().getValue());
+    assertTrue(deserialized.isFailure(1, 1));
+    assertEquals("foo", deserialized.get("output").getResult().getValue());
+  }
+
+  private static Results columnResults() {
+    ResultBuilder builder = Results.builder(ImmutableList.of("input1", "input2"), ImmutableList.of("col1", "col2"));
+    builder.add(0, 0, Result.success(1d), null);
+    builder.add(0, 1, Result.success("item12"), null);
+    builder.add(1, 0, Result.success(2d), null);
+    builder.add(1, 1, Result.failure(FailureStatus.PENDING_DATA, "no data"), null);
+    builder.add("output", Result.success("foo"), null);
+    return builder.build(Instant.EPOCH, 0, 0, 0);
+  }
+
   private static ResultRow row(Object input, Object... results) {
     List<ResultItem> items = Lists.newArrayListWithCapacity(results.length);
     for (Object result : results) {
@@ -19,6 +19,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.EnumSet;
@@ -34,6 +36,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.opengamma.core.id.ExternalSchemes;
 import com.opengamma.core.position.Trade;
 import com.opengamma.core.position.impl.SimpleTrade;
@@ -185,6 +188,43 @@ public class ViewFactoryTest {
                            Optional.<MetricRegistry>absent());
   }
 
+  @Test
+  public void viewsAreReused() {
+    ViewConfig viewConfig = createTrivialEquityTestViewConfig();
+    ViewFactory viewFactory = createViewFactory(EquityDescriptionFn.class);
+    ImmutableSet<Class<?>> inputTypes = ImmutableSet.<Class<?>>of(EquitySecurity.class);
+    View view = viewFactory.getView(viewConfig, inputTypes);
+    assertSame(view, viewFactory.getView(createTrivialEquityTestViewConfig(), inputTypes));
+    assertNotSame(view, viewFactory.getView(viewConfig, ImmutableSet.<Class<?>>of(EquitySecurity.class, Trade.class)));
+    assertNotSame(view, viewFactory.getView(viewConfig, EnumSet.noneOf(FunctionService.class), inputTypes));
+
+    viewFactory.clearViews();
+    View newView = viewFactory.getView(viewConfig, inputTypes);
+    assertNotSame(view, newView);
+    List<SimpleTrade> trades = ImmutableList.of(EngineTestUtils.createEquityTrade());
+    Results results = newView.run(createCycleArguments(), trades);
+    assertEquals(EngineTestUtils.EQUITY_NAME, results.get(0, 0).getResult().getValue());
+  }
+
+  @Test
+  public void viewCacheDisabled() {
+    AvailableOutputs availableOutputs = new AvailableOutputsImpl();
+    availableOutputs.register(EquityDescriptionFn.class);
+    ViewFactory viewFactory = new ViewFactory(new DirectExecutorService(),
+                                              ComponentMap.EMPTY,
+                                              availableOutputs,
+                                              new AvailableImplementationsImpl(),
+                                              FunctionModelConfig.EMPTY,
+                                              FunctionService.DEFAULT_SERVICES,
+                                              EngineTestUtils.createCacheBuilder(),
+                                              new NoOpCacheInvalidator(),
+                                              Optional.<MetricRegistry>absent(),
+                                              0);
+    ViewConfig viewConfig = createTrivialEquityTestViewConfig();
+    ImmutableSet<Class<?>> inputTypes = ImmutableSet.<Class<?>>of(EquitySecurity.class);
+    assertNotSame(viewFactory.getView(viewConfig, inputTypes), viewFactory.getView(viewConfig, inputTypes));
+  }
+
   //-------------------------------------------------------------------------
   @Test
   public void simpleFunctionWithMarketData() {
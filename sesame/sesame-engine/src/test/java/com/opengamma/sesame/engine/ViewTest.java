@@ -8,12 +8,26 @@ package com.opengamma.sesame.engine;
 import static com.opengamma.sesame.config.ConfigBuilder.column;
 import static com.opengamma.sesame.config.ConfigBuilder.configureView;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZoneOffset;
 import org.threeten.bp.ZonedDateTime;
 
 import com.codahale.metrics.MetricRegistry;
@@ -22,12 +36,15 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.service.ServiceContext;
 import com.opengamma.service.ThreadLocalServiceContext;
 import com.opengamma.sesame.EngineTestUtils;
 import com.opengamma.sesame.Environment;
+import com.opengamma.sesame.cache.Cacheable;
+import com.opengamma.sesame.cache.InFlightCalculations;
 import com.opengamma.sesame.cache.NoOpCacheInvalidator;
 import com.opengamma.sesame.config.FunctionModelConfig;
 import com.opengamma.sesame.config.ViewConfig;
@@ -50,9 +67,13 @@ import com.opengamma.util.time.LocalDateRange;
 public class ViewTest {
 
   private static final String FOO = "Foo";
+  private static final String BAZ = "Baz";
+  private static final String QUX = "Qux";
+  private static final String TIME = "Time";
   private static final RawId<Double> ID1 = RawId.of(ExternalIdBundle.of("s", "1"));
   private static final RawId<Double> ID2 = RawId.of(ExternalIdBundle.of("s", "2"));
   private static final RawId<Double> ID3 = RawId.of(ExternalIdBundle.of("s", "3"));
+  private static final RawId<Double> ID4 = RawId.of(ExternalIdBundle.of("s", "4"));
   private static final LocalDateRange DATE_RANGE1 =
       LocalDateRange.of(
           LocalDate.of(2011, 3, 8),
@@ -130,19 +151,238 @@ public class ViewTest {
     assertEquals(expected, requirements);
   }
 
+  public void runScenariosAsync() throws Exception {
+    ViewConfig config = configureView("test view", column(FOO));
+    View view = view(config);
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(valuationTime).build();
+    Map<String, MarketDataEnvironment> scenarioData = new LinkedHashMap<>();
+    scenarioData.put("base", new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build());
+    scenarioData.put("shifted", new MarketDataEnvironmentBuilder().add(ID1, 2d).valuationTime(valuationTime).build());
+    // identical to the base scenario so it should share its results
+    scenarioData.put("copy", new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build());
+
+    ScenarioResults scenarioResults =
+        view.runScenariosAsync(calculationArguments, scenarioData, ImmutableList.of("a string")).get();
+    Map<String, Results> results = scenarioResults.getResults();
+
+    assertEquals(ImmutableList.of("base", "shifted", "copy"), ImmutableList.copyOf(results.keySet()));
+    assertSame(results.get("base"), results.get("copy"));
+    assertNotSame(results.get("base"), results.get("shifted"));
+    assertEquals(3, scenarioResults.getTimer().getScenarioCount());
+    assertEquals(2, scenarioResults.getTimer().getCalculatedScenarioCount());
+    assertEquals(1.5, scenarioResults.getTimer().getDeduplicationRatio(), 1e-10);
+  }
+
+  public void asyncInvocation() {
+    ViewConfig config = configureView("test view", column(FOO));
+    // a single thread is enough to run the cells because a task waiting for a value never blocks the thread
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      View view = view(config, executor, true);
+      ZonedDateTime valuationTime = ZonedDateTime.now();
+      CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(valuationTime).build();
+      MarketDataEnvironment marketData =
+          new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build();
+      Results results = view.run(calculationArguments, marketData, ImmutableList.of("a", "b", "c"));
+
+      assertEquals(3, results.getRows().size());
+
+      for (int i = 0; i < 3; i++) {
+        assertEquals("BAR", results.get(i, 0).getResult().getValue());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void asyncInvocationSharedCachedFunction() throws Exception {
+    // the two columns have separate instances of the cached function which share cache keys
+    ViewConfig config = configureView("test view", column("A", BAZ), column("B", BAZ));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    SlowImpl.reset();
+    Impl3.s_calls.set(0);
+
+    try {
+      View view = view(config, executor, true, EnumSet.of(FunctionService.CACHING));
+      ZonedDateTime valuationTime = ZonedDateTime.now();
+      CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(valuationTime).build();
+      MarketDataEnvironment marketData = new MarketDataEnvironmentBuilder().valuationTime(valuationTime).build();
+      ListenableFuture<Results> future = view.runAsync(calculationArguments, marketData, ImmutableList.of("a"));
+
+      try {
+        assertTrue(SlowImpl.s_started.await(10, TimeUnit.SECONDS));
+        // the task waiting for the value must free its thread while the value is calculated on the other thread
+        Future<?> probe = executor.submit(new Runnable() {
+          @Override
+          public void run() {
+          }
+        });
+        probe.get(10, TimeUnit.SECONDS);
+      } finally {
+        SlowImpl.s_release.countDown();
+      }
+      Results results = future.get(10, TimeUnit.SECONDS);
+
+      assertEquals("SLOW", results.get(0, 0).getResult().getValue());
+      assertEquals("SLOW", results.get(0, 1).getResult().getValue());
+      assertEquals(1, SlowImpl.s_calls.get());
+      // the suspended task is retried once the value is available
+      assertEquals(3, Impl3.s_calls.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void runDeltaAsync() throws Exception {
+    ViewConfig config = configureView("test view", column(FOO));
+    View view = view(config);
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(valuationTime).build();
+    ImmutableList<String> inputs = ImmutableList.of("a", "b", "c");
+    MarketDataEnvironment marketData1 =
+        new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build();
+    DeltaResults first = view.runDeltaAsync(calculationArguments, marketData1, inputs, null).get();
+
+    assertTrue(first.getDelta().isFullCycle());
+    assertEquals(3, first.getDelta().getChangedItems().size());
+    assertEquals("BAR", first.getResults().get(0, 0).getResult().getValue());
+
+    // none of the cells read ID4 so the results should be copied from the previous cycle
+    MarketDataEnvironment marketData2 =
+        new MarketDataEnvironmentBuilder().add(ID1, 1d).add(ID4, 1d).valuationTime(valuationTime).build();
+    DeltaResults second = view.runDeltaAsync(calculationArguments, marketData2, inputs, first).get();
+
+    assertFalse(second.getDelta().isFullCycle());
+    assertTrue(second.getDelta().getChangedItems().isEmpty());
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(first.getResults().get(i, 0), second.getResults().get(i, 0));
+    }
+    // all the cells read ID1 so they should be recalculated, but their values are unchanged
+    MarketDataEnvironment marketData3 =
+        new MarketDataEnvironmentBuilder().add(ID1, 2d).add(ID4, 1d).valuationTime(valuationTime).build();
+    DeltaResults third = view.runDeltaAsync(calculationArguments, marketData3, inputs, second).get();
+
+    assertFalse(third.getDelta().isFullCycle());
+    assertTrue(third.getDelta().getChangedItems().isEmpty());
+
+    for (int i = 0; i < 3; i++) {
+      assertNotSame(second.getResults().get(i, 0), third.getResults().get(i, 0));
+      assertEquals("BAR", third.getResults().get(i, 0).getResult().getValue());
+    }
+    // the results of a cycle can only be used once to calculate the next cycle
+    DeltaResults fourth = view.runDeltaAsync(calculationArguments, marketData3, inputs, second).get();
+
+    assertTrue(fourth.getDelta().isFullCycle());
+  }
+
+  public void runDeltaAsyncValuationTime() throws Exception {
+    ViewConfig config = configureView("test view", column(FOO));
+    View view = view(config);
+    ZonedDateTime valuationTime = ZonedDateTime.of(2015, 6, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+    ImmutableList<String> inputs = ImmutableList.of("a", "b", "c");
+    MarketDataEnvironment marketData =
+        new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build();
+    DeltaResults first = view.runDeltaAsync(arguments(valuationTime), marketData, inputs, null).get();
+
+    // a later valuation time on the same date doesn't cause a full recalculation
+    DeltaResults second = view.runDeltaAsync(arguments(valuationTime.plusHours(1)), marketData, inputs, first).get();
+
+    assertFalse(second.getDelta().isFullCycle());
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(first.getResults().get(i, 0), second.getResults().get(i, 0));
+    }
+    // a different valuation date does
+    DeltaResults third = view.runDeltaAsync(arguments(valuationTime.plusDays(1)), marketData, inputs, second).get();
+
+    assertTrue(third.getDelta().isFullCycle());
+  }
+
+  public void runDeltaAsyncValuationTimeRead() throws Exception {
+    ViewConfig config = configureView("test view", column(FOO), column(TIME));
+    View view = view(config);
+    ZonedDateTime valuationTime = ZonedDateTime.of(2015, 6, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+    ImmutableList<String> inputs = ImmutableList.of("a", "b", "c");
+    MarketDataEnvironment marketData =
+        new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build();
+    DeltaResults first = view.runDeltaAsync(arguments(valuationTime), marketData, inputs, null).get();
+
+    // the cells that read the valuation time are recalculated when it changes, the others are copied
+    ZonedDateTime laterTime = valuationTime.plusHours(1);
+    DeltaResults second = view.runDeltaAsync(arguments(laterTime), marketData, inputs, first).get();
+
+    assertFalse(second.getDelta().isFullCycle());
+    assertEquals(3, second.getDelta().getChangedItems().size());
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(first.getResults().get(i, 0), second.getResults().get(i, 0));
+      assertEquals(laterTime, second.getResults().get(i, 1).getResult().getValue());
+    }
+    // nothing is recalculated if the valuation time and market data are unchanged
+    DeltaResults third = view.runDeltaAsync(arguments(laterTime), marketData, inputs, second).get();
+
+    assertFalse(third.getDelta().isFullCycle());
+    assertTrue(third.getDelta().getChangedItems().isEmpty());
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(second.getResults().get(i, 1), third.getResults().get(i, 1));
+    }
+  }
+
+  public void runDeltaAsyncCachedFailure() throws Exception {
+    ViewConfig config = configureView("test view", column(QUX));
+    View view = view(config, MoreExecutors.sameThreadExecutor(), false, EnumSet.of(FunctionService.CACHING));
+    ZonedDateTime valuationTime = ZonedDateTime.now();
+    CalculationArguments calculationArguments = CalculationArguments.builder().valuationTime(valuationTime).build();
+    ImmutableList<String> inputs = ImmutableList.of("a");
+    MarketDataEnvironment marketData1 =
+        new MarketDataEnvironmentBuilder().add(ID1, 1d).valuationTime(valuationTime).build();
+    DeltaResults first = view.runDeltaAsync(calculationArguments, marketData1, inputs, null).get();
+
+    assertFalse(first.getResults().get(0, 0).getResult().isSuccess());
+
+    // the failed cached calculation read ID1 so the cell must be recalculated when it changes
+    MarketDataEnvironment marketData2 =
+        new MarketDataEnvironmentBuilder().add(ID1, 2d).valuationTime(valuationTime).build();
+    DeltaResults second = view.runDeltaAsync(calculationArguments, marketData2, inputs, first).get();
+
+    assertFalse(second.getDelta().isFullCycle());
+    assertEquals(1, second.getDelta().getChangedItems().size());
+    assertEquals(2d, second.getResults().get(0, 0).getResult().getValue());
+  }
+
+  private static CalculationArguments arguments(ZonedDateTime valuationTime) {
+    return CalculationArguments.builder().valuationTime(valuationTime).build();
+  }
+
   private static View view(ViewConfig config) {
+    return view(config, MoreExecutors.sameThreadExecutor(), false);
+  }
+
+  private static View view(ViewConfig config, ExecutorService executor, boolean asyncInvocation) {
+    return view(config, executor, asyncInvocation, FunctionService.NONE);
+  }
+
+  private static View view(ViewConfig config,
+                           ExecutorService executor,
+                           boolean asyncInvocation,
+                           EnumSet<FunctionService> services) {
     ImmutableSet<Class<?>> inputTypes = ImmutableSet.<Class<?>>of(String.class);
     AvailableOutputsImpl availableOutputs = new AvailableOutputsImpl(inputTypes);
-    availableOutputs.register(Fn1.class);
+    availableOutputs.register(Fn1.class, Fn3.class, Fn4.class, Fn5.class);
     AvailableImplementationsImpl availableImplementations = new AvailableImplementationsImpl();
-    availableImplementations.register(Impl1.class, Impl2.class);
+    availableImplementations.register(Impl1.class, Impl2.class, Impl3.class, SlowImpl.class, Impl4.class,
+                                      CheckedImpl.class, Impl5.class);
 
     return new View(
         config,
-        MoreExecutors.sameThreadExecutor(),
+        executor,
         FunctionModelConfig.EMPTY,
         new FunctionBuilder(),
-        FunctionService.NONE,
+        services,
         ComponentMap.EMPTY,
         inputTypes,
         availableOutputs,
@@ -150,7 +390,9 @@ public class ViewTest {
         EngineTestUtils.createCacheProvider(),
         CacheBuilder.newBuilder(),
         new NoOpCacheInvalidator(),
-        Optional.<MetricRegistry>absent()
+        new InFlightCalculations(),
+        Optional.<MetricRegistry>absent(),
+        asyncInvocation
     );
   }
 
@@ -189,4 +431,111 @@ public class ViewTest {
       return "BAR";
     }
   }
+
+  public interface Fn3 {
+
+    @Output(BAZ)
+    Object baz(Environment env, String s);
+  }
+
+  public static class Impl3 implements Fn3 {
+
+    private static final AtomicInteger s_calls = new AtomicInteger();
+
+    private final SlowFn _slowFn;
+
+    public Impl3(SlowFn slowFn) {
+      _slowFn = slowFn;
+    }
+
+    @Override
+    public Object baz(Environment env, String s) {
+      s_calls.incrementAndGet();
+      return _slowFn.slow();
+    }
+  }
+
+  public interface SlowFn {
+
+    @Cacheable
+    String slow();
+  }
+
+  public static class SlowImpl implements SlowFn {
+
+    private static final AtomicInteger s_calls = new AtomicInteger();
+    private static CountDownLatch s_started;
+    private static CountDownLatch s_release;
+
+    private static void reset() {
+      s_calls.set(0);
+      s_started = new CountDownLatch(1);
+      s_release = new CountDownLatch(1);
+    }
+
+    @Override
+    public String slow() {
+      s_calls.incrementAndGet();
+      s_started.countDown();
+      try {
+        s_release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "SLOW";
+    }
+  }
+
+  public interface Fn4 {
+
+    @Output(QUX)
+    Object qux(Environment env, String s);
+  }
+
+  public static class Impl4 implements Fn4 {
+
+    private final CheckedFn _checkedFn;
+
+    public Impl4(CheckedFn checkedFn) {
+      _checkedFn = checkedFn;
+    }
+
+    @Override
+    public Object qux(Environment env, String s) {
+      return _checkedFn.check(env);
+    }
+  }
+
+  public interface CheckedFn {
+
+    @Cacheable
+    Double check(Environment env);
+  }
+
+  public static class CheckedImpl implements CheckedFn {
+
+    @Override
+    public Double check(Environment env) {
+      Double value = env.getMarketDataBundle().get(ID1, Double.class).getValue();
+
+      if (value < 2) {
+        throw new IllegalStateException("Value too small: " + value);
+      }
+      return value;
+    }
+  }
+
+  public interface Fn5 {
+
+    @Output(TIME)
+    Object time(Environment env, String s);
+  }
+
+  public static class Impl5 implements Fn5 {
+
+    @Override
+    public Object time(Environment env, String s) {
+      return env.getValuationTime();
+    }
+  }
 }
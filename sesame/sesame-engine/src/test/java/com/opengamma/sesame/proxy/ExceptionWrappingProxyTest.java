@@ -11,8 +11,6 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 
-import java.lang.reflect.Proxy;
-
 import org.testng.annotations.Test;
 
 import com.opengamma.sesame.config.EngineUtils;
@@ -40,14 +38,14 @@ public class ExceptionWrappingProxyTest {
                                   ExceptionWrappingProxy.INSTANCE);
     Object fn = functionModel.build(new FunctionBuilder(), ComponentMap.EMPTY).getReceiver();
     assertThat(fn instanceof MockSingleFn, is(true));
-    assertThat(Proxy.isProxyClass(fn.getClass()), is(false));
+    assertThat(EngineUtils.isProxy(fn), is(false));
   }
 
   @Test
   public void testProxyCreatedWhenMethodsReturnResult() {
     // Counterpoint to the test above
     MockFn fn = createHappyResultReturner();
-    assertThat(Proxy.isProxyClass(fn.getClass()), is(true));
+    assertThat(EngineUtils.isProxy(fn), is(true));
   }
 
   @Test
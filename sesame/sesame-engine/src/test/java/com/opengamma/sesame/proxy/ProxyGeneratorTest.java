@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+import static com.opengamma.sesame.config.ConfigBuilder.config;
+import static com.opengamma.sesame.config.ConfigBuilder.implementations;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.sesame.config.EngineUtils;
+import com.opengamma.sesame.engine.ComponentMap;
+import com.opengamma.sesame.function.FunctionMetadata;
+import com.opengamma.sesame.function.Output;
+import com.opengamma.sesame.graph.FunctionBuilder;
+import com.opengamma.sesame.graph.FunctionModel;
+import com.opengamma.util.result.FailureStatus;
+import com.opengamma.util.result.Result;
+import com.opengamma.util.test.TestGroup;
+
+@Test(groups = TestGroup.UNIT)
+public class ProxyGeneratorTest {
+
+  @Test
+  public void callsDelegate() {
+    RecordingHandler handler = new RecordingHandler(new CalcImpl());
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, handler);
+
+    assertTrue(ProxyGenerator.isProxy(calc));
+    assertEquals(3, calc.add(1, 2));
+    assertEquals(1.5, calc.half(3), 0);
+    assertEquals("calc", calc.name());
+    long[] values = {1, 2};
+    assertSame(values, calc.same(values));
+    calc.run();
+    assertEquals(5, handler._calls.size());
+    assertEquals("add", handler._calls.get(0).getName());
+    assertEquals("run", handler._calls.get(4).getName());
+  }
+
+  @Test
+  public void noArgumentsIsNull() {
+    RecordingHandler handler = new RecordingHandler(new CalcImpl());
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, handler);
+    calc.name();
+    assertNull(handler._lastArgs);
+  }
+
+  @Test
+  public void objectMethodsAreProxied() {
+    CalcImpl delegate = new CalcImpl();
+    RecordingHandler handler = new RecordingHandler(delegate);
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, handler);
+    assertEquals(delegate.toString(), calc.toString());
+    assertEquals(delegate.hashCode(), calc.hashCode());
+    assertEquals(Object.class, handler._calls.get(0).getDeclaringClass());
+  }
+
+  @Test
+  public void methodIndices() {
+    List<ProxyMethod> methods = ProxyGenerator.getProxyMethods(Calc.class);
+    // 6 interface methods plus equals, hashCode and toString
+    assertEquals(9, methods.size());
+    for (int i = 0; i < methods.size(); i++) {
+      assertEquals(i, methods.get(i).getIndex());
+    }
+  }
+
+  @Test
+  public void proxiedObject() {
+    CalcImpl delegate = new CalcImpl();
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, new RecordingHandler(delegate));
+    assertTrue(EngineUtils.isProxy(calc));
+    assertSame(delegate, EngineUtils.getProxiedObject(calc));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void declaredExceptionIsPropagated() throws IOException {
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, new RecordingHandler(new CalcImpl()));
+    calc.fail(true);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void runtimeExceptionIsPropagated() throws IOException {
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, new RecordingHandler(new CalcImpl()));
+    calc.fail(false);
+  }
+
+  @Test(expectedExceptions = UndeclaredThrowableException.class)
+  public void undeclaredExceptionIsWrapped() {
+    RecordingHandler handler = new RecordingHandler(new CalcImpl()) {
+      @Override
+      public Object invoke(Object proxy, ProxyMethod method, Object[] args) throws Throwable {
+        throw new Exception();
+      }
+    };
+    Calc calc = (Calc) ProxyGenerator.newProxyInstance(Calc.class, handler);
+    calc.run();
+  }
+
+  @Test
+  public void classIsNotSupported() {
+    assertFalse(ProxyGenerator.isSupported(CalcImpl.class));
+    assertTrue(ProxyGenerator.getProxyMethods(CalcImpl.class).isEmpty());
+  }
+
+  @Test
+  public void proxyNode() {
+    FunctionMetadata metadata = EngineUtils.createMetadata(TestFn.class, "foo");
+    FunctionModel functionModel = FunctionModel.forFunction(metadata,
+                                                            config(implementations(TestFn.class, TestFnImpl.class)),
+                                                            ComponentMap.EMPTY.getComponentTypes(),
+                                                            ExceptionWrappingProxy.INSTANCE);
+    TestFn fn = (TestFn) functionModel.build(new FunctionBuilder(), ComponentMap.EMPTY).getReceiver();
+    assertTrue(ProxyGenerator.isProxy(fn));
+    assertTrue(EngineUtils.getProxiedObject(fn) instanceof TestFnImpl);
+    // the exception thrown by the function is converted to a failure by the proxy
+    assertEquals(FailureStatus.ERROR, fn.foo().getStatus());
+  }
+
+  //-------------------------------------------------------------------------
+  /** Handler that records the invoked methods. */
+  private static class RecordingHandler extends AbstractProxyInvocationHandler implements ProxyMethodInvocationHandler {
+
+    private final List<Method> _calls = new ArrayList<>();
+    private Object[] _lastArgs;
+
+    private RecordingHandler(Object receiver) {
+      super(receiver);
+    }
+
+    @Override
+    public Object invoke(Object proxy, ProxyMethod method, Object[] args) throws Throwable {
+      _calls.add(method.getMethod());
+      _lastArgs = args;
+      return method.invoke(getReceiver(), args);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  interface Calc {
+
+    int add(int a, int b);
+
+    double half(long a);
+
+    String name();
+
+    long[] same(long[] values);
+
+    void run();
+
+    Object fail(boolean checked) throws IOException;
+  }
+
+  public static class CalcImpl implements Calc {
+
+    @Override
+    public int add(int a, int b) {
+      return a + b;
+    }
+
+    @Override
+    public double half(long a) {
+      return a / 2d;
+    }
+
+    @Override
+    public String name() {
+      return "calc";
+    }
+
+    @Override
+    public long[] same(long[] values) {
+      return values;
+    }
+
+    @Override
+    public void run() {
+    }
+
+    @Override
+    public Object fail(boolean checked) throws IOException {
+      if (checked) {
+        throw new IOException();
+      }
+      throw new IllegalStateException();
+    }
+  }
+
+  public interface TestFn {
+
+    @Output("foo")
+    Result<String> foo();
+  }
+
+  public static class TestFnImpl implements TestFn {
+
+    @Override
+    public Result<String> foo() {
+      throw new IllegalStateException("failed");
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.proxy;
+
+import static com.opengamma.sesame.config.ConfigBuilder.config;
+import static com.opengamma.sesame.config.ConfigBuilder.implementations;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.opengamma.sesame.config.EngineUtils;
+import com.opengamma.sesame.engine.ComponentMap;
+import com.opengamma.sesame.function.FunctionMetadata;
+import com.opengamma.sesame.function.Output;
+import com.opengamma.sesame.graph.FunctionBuilder;
+import com.opengamma.sesame.graph.FunctionModel;
+import com.opengamma.sesame.graph.FunctionModelNode;
+import com.opengamma.sesame.graph.ProxyNode;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Compares the per-call overhead of a stack of generated proxies with a stack of JDK dynamic proxies.
+ * <p>
+ * This is a rough benchmark rather than a test of behaviour, the timings are logged and the only assertions are
+ * that both stacks return the same results.
+ */
+@Test(groups = TestGroup.UNIT_SLOW)
+public class ProxyOverheadTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(ProxyOverheadTest.class);
+
+  private static final int DECORATOR_COUNT = 4;
+  private static final int WARMUP_CALLS = 200_000;
+  private static final int CALLS = 2_000_000;
+
+  @Test
+  public void perCallOverhead() {
+    TestFn generated = build(true);
+    TestFn jdk = build(false);
+    assertTrue(ProxyGenerator.isProxy(generated));
+    assertFalse(ProxyGenerator.isProxy(jdk));
+
+    // alternate the runs so JIT compilation affects both proxy types in the same way
+    for (int i = 0; i < 3; i++) {
+      long generatedTotal = run(generated, WARMUP_CALLS);
+      long jdkTotal = run(jdk, WARMUP_CALLS);
+      assertEquals(generatedTotal, jdkTotal);
+    }
+    long start = System.nanoTime();
+    long generatedTotal = run(generated, CALLS);
+    long generatedTime = System.nanoTime() - start;
+    start = System.nanoTime();
+    long jdkTotal = run(jdk, CALLS);
+    long jdkTime = System.nanoTime() - start;
+    assertEquals(generatedTotal, jdkTotal);
+
+    s_logger.info("{} proxies per call, generated: {}ns/call, JDK: {}ns/call",
+                  DECORATOR_COUNT, (double) generatedTime / CALLS, (double) jdkTime / CALLS);
+  }
+
+  private static long run(TestFn fn, int calls) {
+    long total = 0;
+    for (int i = 0; i < calls; i++) {
+      total += fn.foo(i);
+    }
+    return total;
+  }
+
+  private static TestFn build(boolean generatedProxies) {
+    PassThroughDecorator[] decorators = new PassThroughDecorator[DECORATOR_COUNT];
+    for (int i = 0; i < decorators.length; i++) {
+      decorators[i] = new PassThroughDecorator(generatedProxies);
+    }
+    FunctionMetadata metadata = EngineUtils.createMetadata(TestFn.class, "foo");
+    FunctionModel functionModel = FunctionModel.forFunction(metadata,
+                                                            config(implementations(TestFn.class, Impl.class)),
+                                                            ComponentMap.EMPTY.getComponentTypes(),
+                                                            decorators);
+    return (TestFn) functionModel.build(new FunctionBuilder(), ComponentMap.EMPTY).getReceiver();
+  }
+
+  /**
+   * Decorator whose proxies call the delegate and return its result, so the timing is the cost of the proxies.
+   */
+  private static final class PassThroughDecorator extends ProxyNodeDecorator {
+
+    private final boolean _generatedProxies;
+
+    private PassThroughDecorator(boolean generatedProxies) {
+      _generatedProxies = generatedProxies;
+    }
+
+    @Override
+    protected ProxyNode createProxyNode(FunctionModelNode node,
+                                        Class<?> interfaceType,
+                                        Class<?> implementationType,
+                                        InvocationHandlerFactory handlerFactory) {
+      return createProxyNode(node, interfaceType, implementationType, handlerFactory, _generatedProxies);
+    }
+
+    @Override
+    protected boolean decorate(Class<?> interfaceType, Class<?> implementationType) {
+      return true;
+    }
+
+    @Override
+    protected Object invoke(Object proxy, Object delegate, Method method, Object[] args) throws Throwable {
+      return method.invoke(delegate, args);
+    }
+
+    @Override
+    protected Object invoke(Object proxy, Object delegate, ProxyMethod method, Object[] args) throws Throwable {
+      return method.invoke(delegate, args);
+    }
+  }
+
+  public interface TestFn {
+
+    @Output("foo")
+    int foo(int i);
+  }
+
+  public static class Impl implements TestFn {
+
+    @Override
+    public int foo(int i) {
+      return i;
+    }
+  }
+}
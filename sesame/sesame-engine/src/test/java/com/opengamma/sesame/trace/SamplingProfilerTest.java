@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.trace;
+
+import static com.opengamma.sesame.config.ConfigBuilder.config;
+import static com.opengamma.sesame.config.ConfigBuilder.implementations;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.sesame.config.FunctionModelConfig;
+import com.opengamma.sesame.engine.ComponentMap;
+import com.opengamma.sesame.graph.FunctionModel;
+import com.opengamma.sesame.trace.StandardTracerTest.C1;
+import com.opengamma.sesame.trace.StandardTracerTest.C2;
+import com.opengamma.sesame.trace.StandardTracerTest.I1;
+import com.opengamma.sesame.trace.StandardTracerTest.I2;
+import com.opengamma.util.test.TestGroup;
+
+@Test(groups = TestGroup.UNIT)
+public class SamplingProfilerTest {
+
+  private static final String I1_METHOD1 = I1.class.getName() + ".method1";
+  private static final String I2_METHOD2 = I2.class.getName() + ".method2";
+
+  private I1 buildFunction() {
+    FunctionModelConfig functionModelConfig = config(implementations(I1.class, C1.class, I2.class, C2.class));
+    return FunctionModel.build(I1.class, functionModelConfig, ComponentMap.EMPTY, TracingProxy.INSTANCE);
+  }
+
+  @Test
+  public void latencies() {
+    SamplingProfiler profiler = new SamplingProfiler(1);
+    I1 i1 = buildFunction();
+    TracingProxy.start(profiler.getTracer());
+    i1.method1(2);
+    assertNull(TracingProxy.end());
+
+    Map<String, LatencyHistogram> latencies = profiler.getLatencies();
+    assertEquals(2, latencies.size());
+    assertEquals(1, latencies.get(I1_METHOD1).getCount());
+    assertEquals(2, latencies.get(I2_METHOD2).getCount());
+    assertTrue(latencies.get(I1_METHOD1).getTotalNanos() >= latencies.get(I2_METHOD2).getTotalNanos());
+  }
+
+  @Test
+  public void stacks() {
+    SamplingProfiler profiler = new SamplingProfiler(1);
+    I1 i1 = buildFunction();
+    TracingProxy.start(profiler.getTracer());
+    i1.method1(1);
+    TracingProxy.end();
+
+    String stacks = profiler.getCollapsedStacks();
+    assertTrue(stacks, stacks.matches("(?sm).*^" + Pattern.quote(I1_METHOD1) + " \\d+$.*"));
+    assertTrue(stacks, stacks.matches("(?sm).*^" + Pattern.quote(I1_METHOD1 + ";" + I2_METHOD2) + " \\d+$.*"));
+  }
+
+  @Test
+  public void exception() {
+    SamplingProfiler profiler = new SamplingProfiler(1);
+    I1 i1 = buildFunction();
+    TracingProxy.start(profiler.getTracer());
+    try {
+      i1.method1(3);
+      fail("Expected exception");
+    } catch (OpenGammaRuntimeException e) {
+      // expected
+    }
+    TracingProxy.end();
+
+    Map<String, LatencyHistogram> latencies = profiler.getLatencies();
+    assertEquals(1, latencies.get(I1_METHOD1).getCount());
+    assertEquals(1, latencies.get(I2_METHOD2).getCount());
+  }
+
+  @Test
+  public void callsBelowMaxDepth() throws Exception {
+    SamplingProfiler profiler = new SamplingProfiler(1);
+    CallSampleBuffer buffer = new CallSampleBuffer(profiler);
+    Method method = Object.class.getMethod("hashCode");
+
+    for (int i = 0; i <= CallSampleBuffer.MAX_DEPTH; i++) {
+      buffer.called(method);
+    }
+    // the call below the maximum depth isn't recorded but it isn't part of the self time of its parent
+    buffer.completed(100);
+
+    for (int i = 0; i < CallSampleBuffer.MAX_DEPTH; i++) {
+      buffer.completed(150);
+    }
+    buffer.ended();
+
+    String stacks = profiler.getCollapsedStacks();
+    assertEquals(1, stacks.split("\n").length);
+    assertTrue(stacks, stacks.endsWith(" 50\n"));
+    assertEquals(CallSampleBuffer.MAX_DEPTH, profiler.getLatencies().get("java.lang.Object.hashCode").getCount());
+  }
+
+  @Test
+  public void reset() {
+    SamplingProfiler profiler = new SamplingProfiler(1);
+    I1 i1 = buildFunction();
+    TracingProxy.start(profiler.getTracer());
+    i1.method1(1);
+    TracingProxy.end();
+    profiler.reset();
+
+    assertTrue(profiler.getLatencies().isEmpty());
+    assertEquals("", profiler.getCollapsedStacks());
+  }
+
+  @Test
+  public void sampleInterval() {
+    SamplingProfiler profiler = new SamplingProfiler(3);
+    assertNull(profiler.sampleTracer());
+    assertNull(profiler.sampleTracer());
+    assertSame(profiler.getTracer(), profiler.sampleTracer());
+
+    profiler.setSampleInterval(0);
+    assertNull(profiler.sampleTracer());
+    assertNull(profiler.sampleTracer());
+    assertNull(profiler.sampleTracer());
+  }
+
+  @Test
+  public void histogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1);
+    histogram.record(100);
+    histogram.record(1000);
+
+    assertEquals(3, histogram.getCount());
+    assertEquals(1000, histogram.getMaxNanos());
+    assertEquals(1, histogram.getPercentileNanos(10));
+    assertEquals(127, histogram.getPercentileNanos(50));
+    assertEquals(1000, histogram.getPercentileNanos(100));
+  }
+}
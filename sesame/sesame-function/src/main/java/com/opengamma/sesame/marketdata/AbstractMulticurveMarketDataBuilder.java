@@ -10,6 +10,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -251,6 +252,8 @@ abstract class AbstractMulticurveMarketDataBuilder<T> implements MarketDataBuild
     Multimap<String, IborIndex> iborIndexByCurveName = ArrayListMultimap.create();
     Multimap<String, IndexON> onIndexByCurveName = ArrayListMultimap.create();
     List<MultiCurveBundle<GeneratorYDCurve>> curveBundles = new ArrayList<>();
+    Map<String, SnapshotDataBundle> curveData = new LinkedHashMap<>();
+    Map<String, SnapshotDataBundle> unperturbedCurveData = new LinkedHashMap<>();
     // the market data perturbations that apply to this curve bundle
     Collection<FilteredPerturbation> filteredPerturbations = cyclePerturbations.getPerturbations(bundleRequirement);
     // market data perturbations that perturb the data in a SnapshotDataBundle
@@ -274,6 +277,8 @@ abstract class AbstractMulticurveMarketDataBuilder<T> implements MarketDataBuild
         SnapshotDataBundle dataBundle = createDataBundle(marketDataBundle, bundleRequirement, curveNodes);
         String curveName = curveDefinition.getName();
         SnapshotDataBundle perturbedData = perturbCurveData(curveNodes, dataBundle, curveName, dataBundlePerturbations);
+        curveData.put(curveName, perturbedData);
+        unperturbedCurveData.put(curveName, dataBundle);
         Map<CurveNodeWithIdentifier, InstrumentDefinition> definitionMap =
             createInstrumentDefinition(perturbedData, fxMatrix, valuationTime, curveNodes);
         List<InstrumentDerivative> derivatives =
@@ -298,7 +303,9 @@ abstract class AbstractMulticurveMarketDataBuilder<T> implements MarketDataBuild
                                    iborIndexByCurveName,
                                    onIndexByCurveName,
                                    configTypes,
-                                   curveBundles);
+                                   curveBundles,
+                                   curveData,
+                                   unperturbedCurveData);
   }
 
   /**
@@ -584,17 +591,23 @@ abstract class AbstractMulticurveMarketDataBuilder<T> implements MarketDataBuild
     private final Multimap<String, IndexON> _onIndexByCurveName;
     private final Multimap<String, CurveTypeConfiguration> _configTypes;
     private final List<MultiCurveBundle<GeneratorYDCurve>> _curveBundles;
+    private final Map<String, SnapshotDataBundle> _curveData;
+    private final Map<String, SnapshotDataBundle> _unperturbedCurveData;
 
     private IntermediateResults(Map<String, Currency> currenciesByCurveName,
                                 Multimap<String, IborIndex> iborIndexByCurveName,
                                 Multimap<String, IndexON> onIndexByCurveName,
                                 Multimap<String, CurveTypeConfiguration> configTypes,
-                                List<MultiCurveBundle<GeneratorYDCurve>> curveBundles) {
+                                List<MultiCurveBundle<GeneratorYDCurve>> curveBundles,
+                                Map<String, SnapshotDataBundle> curveData,
+                                Map<String, SnapshotDataBundle> unperturbedCurveData) {
       _currenciesByCurveName = currenciesByCurveName;
       _iborIndexByCurveName = iborIndexByCurveName;
       _onIndexByCurveName = onIndexByCurveName;
       _curveBundles = curveBundles;
       _configTypes = configTypes;
+      _curveData = curveData;
+      _unperturbedCurveData = unperturbedCurveData;
     }
 
     Map<String, Currency> getCurrenciesByCurveName() {
@@ -616,5 +629,20 @@ abstract class AbstractMulticurveMarketDataBuilder<T> implements MarketDataBuild
     List<MultiCurveBundle<GeneratorYDCurve>> getCurveBundles() {
       return _curveBundles;
     }
+
+    /**
+     * @return the market data used to create the instruments for each curve, keyed by curve name,
+     *   including any perturbations
+     */
+    Map<String, SnapshotDataBundle> getCurveData() {
+      return _curveData;
+    }
+
+    /**
+     * @return the market data for each curve before any perturbations were applied, keyed by curve name
+     */
+    Map<String, SnapshotDataBundle> getUnperturbedCurveData() {
+      return _unperturbedCurveData;
+    }
   }
 }
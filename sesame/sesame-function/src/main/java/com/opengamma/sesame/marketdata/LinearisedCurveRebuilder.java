@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.marketdata;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import com.opengamma.analytics.financial.curve.interestrate.generator.GeneratorYDCurve;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexON;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlock;
+import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle;
+import com.opengamma.analytics.financial.provider.curve.MultiCurveBundle;
+import com.opengamma.analytics.financial.provider.curve.SingleCurveBundle;
+import com.opengamma.analytics.financial.provider.curve.multicurve.GeneratorMulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.curve.DoublesCurve;
+import com.opengamma.analytics.math.curve.DoublesCurveInterpolatedAnchor;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.core.marketdatasnapshot.SnapshotDataBundle;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Derives the curves for a scenario from a base calibration instead of calibrating them from scratch.
+ * <p>
+ * Curves are calibrated by finding the parameters for which the par spread of every node instrument is zero.
+ * The {@link CurveBuildingBlockBundle} produced by the base calibration contains the inverse Jacobian for each
+ * curve, which is the sensitivity of the curve parameters to the market quotes of the node instruments.
+ * The par spread of a scenario instrument priced using the base curves is minus the change in its quote, so the
+ * scenario parameters are approximately the base parameters plus the inverse Jacobian multiplied by minus the
+ * par spreads. An optional second step applies the same update to the par spreads priced using the linearised
+ * curves, which is a Newton step using the base Jacobian.
+ * <p>
+ * The residual of the result is the largest absolute par spread of the scenario instruments priced using the
+ * derived curves. It's zero, to within the calibration tolerance, for a full calibration.
+ * <p>
+ * Only curves whose parameters are the values of an interpolated yield curve at its nodes are supported.
+ * Bundles containing other curves must be calibrated in full.
+ */
+final class LinearisedCurveRebuilder {
+
+  private static final ParSpreadMarketQuoteDiscountingCalculator PAR_SPREAD_CALCULATOR =
+      ParSpreadMarketQuoteDiscountingCalculator.getInstance();
+
+  /** The largest change in the curve market data for which the curves are derived from the base calibration. */
+  private final double _maxShift;
+
+  /** The number of linear update steps, one for the linearised curves, two with a Newton correction. */
+  private final int _steps;
+
+  /** The largest residual for which the derived curves are used instead of a full calibration. */
+  private final double _maxResidual;
+
+  /**
+   * @param maxShift the largest change in the curve market data for which the curves are derived from the
+   *   base calibration
+   * @param newtonStep whether a Newton correction step is applied to the linearised curves
+   * @param maxResidual the largest residual for which the derived curves are used instead of a full calibration
+   */
+  LinearisedCurveRebuilder(double maxShift, boolean newtonStep, double maxResidual) {
+    _maxShift = ArgumentChecker.notNegative(maxShift, "maxShift");
+    _steps = newtonStep ? 2 : 1;
+    _maxResidual = ArgumentChecker.notNegative(maxResidual, "maxResidual");
+  }
+
+  /**
+   * @return the largest change in the curve market data for which the curves are derived from the base calibration
+   */
+  double getMaxShift() {
+    return _maxShift;
+  }
+
+  /**
+   * @return the largest residual for which the derived curves are used instead of a full calibration
+   */
+  double getMaxResidual() {
+    return _maxResidual;
+  }
+
+  /**
+   * Creates a base calibration from the results of a full calibration.
+   *
+   * @param multicurve the calibrated curves
+   * @param blockBundle the curve building blocks and inverse Jacobians from the calibration
+   * @param intermediateResults the data used to calibrate the curves
+   * @return the base calibration, null if the parameters of the curves can't be determined
+   */
+  @Nullable
+  static BaseCalibration baseCalibration(MulticurveProviderDiscount multicurve,
+                                         CurveBuildingBlockBundle blockBundle,
+                                         AbstractMulticurveMarketDataBuilder.IntermediateResults intermediateResults) {
+    Map<String, double[]> parameters = new LinkedHashMap<>();
+
+    for (MultiCurveBundle<GeneratorYDCurve> unit : intermediateResults.getCurveBundles()) {
+      for (int i = 0; i < unit.size(); i++) {
+        String curveName = unit.getCurveBundle(i).getCurveName();
+        double[] curveParameters = curveParameters(multicurve.getCurve(curveName));
+
+        if (curveParameters == null || !blockBundle.getData().containsKey(curveName)) {
+          return null;
+        }
+        parameters.put(curveName, curveParameters);
+      }
+    }
+    return new BaseCalibration(multicurve, blockBundle, parameters);
+  }
+
+  /**
+   * Returns the largest absolute change in the market data used to build the curves.
+   *
+   * @param curveData the market data for each curve, keyed by curve name
+   * @param baseCurveData the market data used in the base calibration, keyed by curve name
+   * @return the largest absolute change in the data, infinity if the data points aren't the same
+   */
+  static double maxShift(Map<String, SnapshotDataBundle> curveData, Map<String, SnapshotDataBundle> baseCurveData) {
+    if (!curveData.keySet().equals(baseCurveData.keySet())) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double maxShift = 0;
+
+    for (Map.Entry<String, SnapshotDataBundle> entry : curveData.entrySet()) {
+      Map<ExternalIdBundle, Double> dataPoints = entry.getValue().getDataPoints();
+      Map<ExternalIdBundle, Double> baseDataPoints = baseCurveData.get(entry.getKey()).getDataPoints();
+
+      if (!dataPoints.keySet().equals(baseDataPoints.keySet())) {
+        return Double.POSITIVE_INFINITY;
+      }
+      for (Map.Entry<ExternalIdBundle, Double> dataPoint : dataPoints.entrySet()) {
+        Double value = dataPoint.getValue();
+        Double baseValue = baseDataPoints.get(dataPoint.getKey());
+
+        if (value == null || baseValue == null) {
+          return Double.POSITIVE_INFINITY;
+        }
+        maxShift = Math.max(maxShift, Math.abs(value - baseValue));
+      }
+    }
+    return maxShift;
+  }
+
+  /**
+   * Derives the curves for a scenario from a base calibration.
+   *
+   * @param base the base calibration
+   * @param intermediateResults the data for calibrating the scenario curves
+   * @param knownData the parent curves and FX rates, which must be the same as in the base calibration
+   * @return the scenario curves, null if they can't be derived from the base calibration
+   */
+  @Nullable
+  LinearisedCurves rebuild(BaseCalibration base,
+                           AbstractMulticurveMarketDataBuilder.IntermediateResults intermediateResults,
+                           MulticurveProviderDiscount knownData) {
+    ArgumentChecker.notNull(base, "base");
+    ArgumentChecker.notNull(intermediateResults, "intermediateResults");
+    ArgumentChecker.notNull(knownData, "knownData");
+
+    LinkedHashMap<String, GeneratorYDCurve> generators = new LinkedHashMap<>();
+    Map<String, InstrumentDerivative[]> instruments = new LinkedHashMap<>();
+
+    for (MultiCurveBundle<GeneratorYDCurve> unit : intermediateResults.getCurveBundles()) {
+      for (int i = 0; i < unit.size(); i++) {
+        SingleCurveBundle<GeneratorYDCurve> curveBundle = unit.getCurveBundle(i);
+        InstrumentDerivative[] derivatives = curveBundle.getDerivatives();
+        generators.put(curveBundle.getCurveName(), curveBundle.getCurveGenerator().finalGenerator(derivatives));
+        instruments.put(curveBundle.getCurveName(), derivatives);
+      }
+    }
+    if (!generators.keySet().equals(base._parameters.keySet())) {
+      return null;
+    }
+    // the parameters are updated in place by each step
+    Map<String, double[]> parameters = new LinkedHashMap<>();
+    int parameterCount = 0;
+
+    for (Map.Entry<String, GeneratorYDCurve> entry : generators.entrySet()) {
+      double[] baseParameters = base._parameters.get(entry.getKey());
+
+      if (baseParameters.length != entry.getValue().getNumberOfParameter()) {
+        return null;
+      }
+      parameters.put(entry.getKey(), baseParameters.clone());
+      parameterCount += baseParameters.length;
+    }
+    GeneratorMulticurveProviderDiscount generator =
+        new GeneratorMulticurveProviderDiscount(
+            knownData,
+            new LinkedHashMap<>(intermediateResults.getCurrenciesByCurveName()),
+            indexArrays(intermediateResults.getIborIndexByCurveName(), IborIndex.class),
+            indexArrays(intermediateResults.getOnIndexByCurveName(), IndexON.class),
+            generators);
+    MulticurveProviderDiscount multicurve = base._multicurve;
+
+    for (int step = 0; step < _steps; step++) {
+      Map<String, double[]> parSpreads = parSpreads(instruments, multicurve);
+
+      for (Map.Entry<String, double[]> entry : parameters.entrySet()) {
+        Pair<CurveBuildingBlock, DoubleMatrix2D> block = base._blockBundle.getBlock(entry.getKey());
+        double[] quoteChanges = quoteChanges(block.getFirst(), parSpreads);
+
+        if (quoteChanges == null) {
+          return null;
+        }
+        double[][] inverseJacobian = block.getSecond().getData();
+        double[] curveParameters = entry.getValue();
+
+        for (int i = 0; i < curveParameters.length; i++) {
+          for (int j = 0; j < quoteChanges.length; j++) {
+            curveParameters[i] += inverseJacobian[i][j] * quoteChanges[j];
+          }
+        }
+      }
+      multicurve = generator.evaluate(new DoubleMatrix1D(concatenate(parameters.values(), parameterCount)));
+    }
+    double residual = 0;
+
+    for (double[] curveSpreads : parSpreads(instruments, multicurve).values()) {
+      for (double parSpread : curveSpreads) {
+        residual = Math.max(residual, Math.abs(parSpread));
+      }
+    }
+    return new LinearisedCurves(multicurve, residual);
+  }
+
+  /**
+   * Returns the change in the market quotes of the instruments used to build the curves in a block.
+   * The change in the quote of an instrument is minus its par spread.
+   *
+   * @param block the curves whose quotes are required
+   * @param parSpreads the par spreads of the instruments, keyed by curve name
+   * @return the changes in the quotes in the order used by the block, null if the par spreads don't match the block
+   */
+  @Nullable
+  private static double[] quoteChanges(CurveBuildingBlock block, Map<String, double[]> parSpreads) {
+    int size = 0;
+
+    for (String curveName : block.getAllNames()) {
+      size = Math.max(size, block.getStart(curveName) + block.getNbParameters(curveName));
+    }
+    double[] quoteChanges = new double[size];
+
+    for (String curveName : block.getAllNames()) {
+      double[] curveSpreads = parSpreads.get(curveName);
+      int start = block.getStart(curveName);
+
+      if (curveSpreads == null || curveSpreads.length != block.getNbParameters(curveName)) {
+        return null;
+      }
+      for (int i = 0; i < curveSpreads.length; i++) {
+        quoteChanges[start + i] = -curveSpreads[i];
+      }
+    }
+    return quoteChanges;
+  }
+
+  /**
+   * Calculates the par spread of each curve instrument.
+   *
+   * @param instruments the instruments used to build each curve, keyed by curve name
+   * @param multicurve the curves used to price the instruments
+   * @return the par spreads of the instruments, keyed by curve name
+   */
+  private static Map<String, double[]> parSpreads(Map<String, InstrumentDerivative[]> instruments,
+                                                  MulticurveProviderDiscount multicurve) {
+    Map<String, double[]> parSpreads = new LinkedHashMap<>();
+
+    for (Map.Entry<String, InstrumentDerivative[]> entry : instruments.entrySet()) {
+      InstrumentDerivative[] derivatives = entry.getValue();
+      double[] curveSpreads = new double[derivatives.length];
+
+      for (int i = 0; i < derivatives.length; i++) {
+        curveSpreads[i] = derivatives[i].accept(PAR_SPREAD_CALCULATOR, multicurve);
+      }
+      parSpreads.put(entry.getKey(), curveSpreads);
+    }
+    return parSpreads;
+  }
+
+  /**
+   * Returns the parameters of a curve, the values at the nodes of an interpolated yield curve.
+   *
+   * @param curve a curve
+   * @return the curve parameters, null if the curve type isn't supported
+   */
+  @Nullable
+  private static double[] curveParameters(@Nullable YieldAndDiscountCurve curve) {
+    if (!(curve instanceof YieldCurve)) {
+      return null;
+    }
+    DoublesCurve doublesCurve = ((YieldCurve) curve).getCurve();
+
+    // the anchor node isn't a parameter of the curve
+    if (doublesCurve instanceof DoublesCurveInterpolatedAnchor || !(doublesCurve instanceof InterpolatedDoublesCurve)) {
+      return null;
+    }
+    return ((InterpolatedDoublesCurve) doublesCurve).getYDataAsPrimitive().clone();
+  }
+
+  private static double[] concatenate(Collection<double[]> arrays, int length) {
+    double[] result = new double[length];
+    int index = 0;
+
+    for (double[] array : arrays) {
+      System.arraycopy(array, 0, result, index, array.length);
+      index += array.length;
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> LinkedHashMap<String, T[]> indexArrays(Multimap<String, T> indicesByCurveName, Class<T> type) {
+    LinkedHashMap<String, T[]> indexArrays = new LinkedHashMap<>();
+
+    for (Map.Entry<String, Collection<T>> entry : indicesByCurveName.asMap().entrySet()) {
+      Collection<T> indices = entry.getValue();
+      T[] array = (T[]) Array.newInstance(type, indices.size());
+      indexArrays.put(entry.getKey(), indices.toArray(array));
+    }
+    return indexArrays;
+  }
+
+  /**
+   * The results of a full calibration used for deriving scenario curves.
+   */
+  static final class BaseCalibration {
+
+    private final MulticurveProviderDiscount _multicurve;
+    private final CurveBuildingBlockBundle _blockBundle;
+    private final Map<String, double[]> _parameters;
+
+    private BaseCalibration(MulticurveProviderDiscount multicurve,
+                            CurveBuildingBlockBundle blockBundle,
+                            Map<String, double[]> parameters) {
+      _multicurve = multicurve;
+      _blockBundle = blockBundle;
+      _parameters = ImmutableMap.copyOf(parameters);
+    }
+
+    MulticurveProviderDiscount getMulticurve() {
+      return _multicurve;
+    }
+
+    CurveBuildingBlockBundle getBlockBundle() {
+      return _blockBundle;
+    }
+  }
+
+  /**
+   * Curves derived from a base calibration.
+   */
+  static final class LinearisedCurves {
+
+    private final MulticurveProviderDiscount _multicurve;
+    private final double _residual;
+
+    private LinearisedCurves(MulticurveProviderDiscount multicurve, double residual) {
+      _multicurve = multicurve;
+      _residual = residual;
+    }
+
+    /**
+     * @return the derived curves
+     */
+    MulticurveProviderDiscount getMulticurve() {
+      return _multicurve;
+    }
+
+    /**
+     * @return the largest absolute par spread of the scenario instruments priced using the derived curves
+     */
+    double getResidual() {
+      return _residual;
+    }
+  }
+}
@@ -9,15 +9,26 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.ZonedDateTime;
 
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.analytics.financial.forex.method.FXMatrix;
 import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator;
@@ -26,6 +37,7 @@ import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle
 import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountBuildingRepository;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
 import com.opengamma.analytics.financial.provider.description.interestrate.ProviderUtils;
+import com.opengamma.core.marketdatasnapshot.SnapshotDataBundle;
 import com.opengamma.financial.analytics.curve.AbstractCurveDefinition;
 import com.opengamma.financial.analytics.curve.CurveConstructionConfiguration;
 import com.opengamma.financial.analytics.curve.CurveDefinition;
@@ -40,6 +52,7 @@ import com.opengamma.sesame.MulticurveBundle;
 import com.opengamma.sesame.TenorCurveNodeId;
 import com.opengamma.sesame.marketdata.builders.MarketDataBuilder;
 import com.opengamma.sesame.marketdata.scenarios.CyclePerturbations;
+import com.opengamma.sesame.marketdata.scenarios.SingleScenarioDefinition;
 import com.opengamma.timeseries.date.DateTimeSeries;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
@@ -49,19 +62,59 @@ import com.opengamma.util.tuple.Pair;
 
 /**
  * Market data builder for multicurve bundles.
+ * <p>
+ * Scenario curves can optionally be derived from a base calibration using the inverse Jacobians of the base
+ * curves instead of calibrating them in full, see {@link LinearisedCurveRebuilder}. This is enabled by setting
+ * the system property {@code MulticurveMarketDataBuilder.linearisedScenarios} to {@code true}. It only applies
+ * to bundles whose input data is perturbed by less than {@code MulticurveMarketDataBuilder.maxLinearisedShift}
+ * (default 0.001). A Newton correction step is applied unless {@code MulticurveMarketDataBuilder.linearisedNewtonStep}
+ * is {@code false}. If the residual of the derived curves is more than
+ * {@code MulticurveMarketDataBuilder.maxLinearisedResidual} (default 1e-6) the curves are calibrated in full.
  */
 public class MulticurveMarketDataBuilder
     extends AbstractMulticurveMarketDataBuilder<MulticurveBundle>
     implements MarketDataBuilder {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(MulticurveMarketDataBuilder.class);
+
   private static final ParSpreadMarketQuoteDiscountingCalculator DISCOUNTING_CALCULATOR =
       ParSpreadMarketQuoteDiscountingCalculator.getInstance();
 
   private static final ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator CURVE_SENSITIVITY_CALCULATOR =
       ParSpreadMarketQuoteCurveSensitivityDiscountingCalculator.getInstance();
 
+  /** Whether scenario curves are derived from a base calibration when possible. */
+  private static final boolean LINEARISED_SCENARIOS =
+      System.getProperty("MulticurveMarketDataBuilder.linearisedScenarios", "FALSE").equalsIgnoreCase("TRUE");
+
+  /** The largest change in the curve input data for which scenario curves are derived from a base calibration. */
+  private static final double MAX_LINEARISED_SHIFT =
+      Double.parseDouble(System.getProperty("MulticurveMarketDataBuilder.maxLinearisedShift", "0.001"));
+
+  /** Whether a Newton correction step is applied to linearised scenario curves. */
+  private static final boolean LINEARISED_NEWTON_STEP =
+      System.getProperty("MulticurveMarketDataBuilder.linearisedNewtonStep", "TRUE").equalsIgnoreCase("TRUE");
+
+  /** The largest residual for which linearised scenario curves are used instead of a full calibration. */
+  private static final double MAX_LINEARISED_RESIDUAL =
+      Double.parseDouble(System.getProperty("MulticurveMarketDataBuilder.maxLinearisedResidual", "1e-6"));
+
+  /** The maximum number of base calibrations kept for deriving scenario curves. */
+  private static final int MAX_BASE_CALIBRATIONS = 100;
+
+  /** Perturbations used when calibrating base curves, which never apply to any market data. */
+  private static final CyclePerturbations NO_PERTURBATIONS =
+      new CyclePerturbations(ImmutableSet.<MarketDataRequirement>of(), SingleScenarioDefinition.base());
+
   private final MulticurveDiscountBuildingRepository _curveBuilder;
 
+  /** Derives scenario curves from base calibrations, null if scenario curves are always calibrated in full. */
+  private final LinearisedCurveRebuilder _linearisedRebuilder;
+
+  /** Base calibrations, keyed by the data used to calibrate them. Absent if the curves aren't supported. */
+  private final Cache<BaseCalibrationKey, Optional<LinearisedCurveRebuilder.BaseCalibration>> _baseCalibrations =
+      CacheBuilder.newBuilder().maximumSize(MAX_BASE_CALIBRATIONS).build();
+
   /**
    * @param curveSpecBuilder for building curve specifications
    * @param curveNodeConverter for converting curve node instruments to derivatives
@@ -72,8 +125,31 @@ public class MulticurveMarketDataBuilder
                                      CurveNodeConverterFn curveNodeConverter,
                                      CurveNodeInstrumentDefinitionFactory definitionFactory,
                                      MulticurveDiscountBuildingRepository curveBuilder) {
+    this(curveSpecBuilder,
+         curveNodeConverter,
+         definitionFactory,
+         curveBuilder,
+         LINEARISED_SCENARIOS ?
+             new LinearisedCurveRebuilder(MAX_LINEARISED_SHIFT, LINEARISED_NEWTON_STEP, MAX_LINEARISED_RESIDUAL) :
+             null);
+  }
+
+  /**
+   * @param curveSpecBuilder for building curve specifications
+   * @param curveNodeConverter for converting curve node instruments to derivatives
+   * @param definitionFactory creates instrument definitions for curve node instruments
+   * @param curveBuilder analytics object for building and calibrating the curve bundle
+   * @param linearisedRebuilder derives scenario curves from base calibrations, null if scenario curves
+   *   should always be calibrated in full
+   */
+  MulticurveMarketDataBuilder(CurveSpecificationBuilder curveSpecBuilder,
+                              CurveNodeConverterFn curveNodeConverter,
+                              CurveNodeInstrumentDefinitionFactory definitionFactory,
+                              MulticurveDiscountBuildingRepository curveBuilder,
+                              @Nullable LinearisedCurveRebuilder linearisedRebuilder) {
     super(curveSpecBuilder, curveNodeConverter, definitionFactory);
     _curveBuilder = ArgumentChecker.notNull(curveBuilder, "curveBuilder");
+    _linearisedRebuilder = linearisedRebuilder;
   }
 
   @Override
@@ -172,19 +248,158 @@ public class MulticurveMarketDataBuilder
             bundleRequirement,
             cyclePerturbations);
 
+    if (_linearisedRebuilder != null) {
+      MulticurveBundle linearisedBundle =
+          linearisedBundle(
+              marketDataBundle,
+              valuationTime,
+              bundleConfig,
+              bundleRequirement,
+              parentBundle,
+              intermediateResults,
+              nodeIds);
+
+      if (linearisedBundle != null) {
+        return Result.success(linearisedBundle);
+      }
+    }
     Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> calibratedCurves =
-        _curveBuilder.makeCurvesFromDerivatives(
-            intermediateResults.getCurveBundles(),
-            parentBundle,
-            intermediateResults.getCurrenciesByCurveName(),
-            intermediateResults.getIborIndexByCurveName(),
-            intermediateResults.getOnIndexByCurveName(),
-            DISCOUNTING_CALCULATOR,
-            CURVE_SENSITIVITY_CALCULATOR);
+        calibrate(parentBundle, intermediateResults);
 
     return Result.success(new MulticurveBundle(calibratedCurves.getFirst(), nodeIds, calibratedCurves.getSecond()));
   }
 
+  /**
+   * Calibrates the curves in a bundle.
+   *
+   * @param parentBundle the parent curves and FX rates
+   * @param intermediateResults the data needed to calibrate the curves
+   * @return the calibrated curves and the curve building blocks containing their inverse Jacobians
+   */
+  private Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> calibrate(
+      MulticurveProviderDiscount parentBundle,
+      IntermediateResults intermediateResults) {
+
+    return _curveBuilder.makeCurvesFromDerivatives(
+        intermediateResults.getCurveBundles(),
+        parentBundle,
+        intermediateResults.getCurrenciesByCurveName(),
+        intermediateResults.getIborIndexByCurveName(),
+        intermediateResults.getOnIndexByCurveName(),
+        DISCOUNTING_CALCULATOR,
+        CURVE_SENSITIVITY_CALCULATOR);
+  }
+
+  /**
+   * Derives a multicurve bundle from the calibration of the bundle using the unperturbed input data.
+   * <p>
+   * If the input data isn't perturbed the base calibration is returned. If it is perturbed by less than the
+   * maximum shift the curves are derived from the base calibration, and are used if their residual is below the
+   * maximum residual. The curve building blocks of the derived bundle are the ones from the base calibration.
+   *
+   * @param marketDataBundle the market data
+   * @param valuationTime the valuation time for which the curve bundle should be built
+   * @param bundleConfig the configuration for the multicurve bundle
+   * @param bundleRequirement the requirement for the multicurve bundle
+   * @param parentBundle the parent curves and FX rates
+   * @param intermediateResults the data for calibrating the curves, including any perturbations
+   * @param nodeIds the IDs of the curve nodes, keyed by curve name
+   * @return the multicurve bundle, null if the curves must be calibrated in full
+   */
+  @Nullable
+  private MulticurveBundle linearisedBundle(MarketDataBundle marketDataBundle,
+                                            ZonedDateTime valuationTime,
+                                            CurveConstructionConfiguration bundleConfig,
+                                            MarketDataRequirement bundleRequirement,
+                                            MulticurveProviderDiscount parentBundle,
+                                            IntermediateResults intermediateResults,
+                                            Map<String, List<? extends CurveNodeId>> nodeIds) {
+    double shift =
+        LinearisedCurveRebuilder.maxShift(
+            intermediateResults.getCurveData(),
+            intermediateResults.getUnperturbedCurveData());
+
+    if (shift > _linearisedRebuilder.getMaxShift()) {
+      return null;
+    }
+    LinearisedCurveRebuilder.BaseCalibration base =
+        baseCalibration(
+            marketDataBundle,
+            valuationTime,
+            bundleConfig,
+            bundleRequirement,
+            parentBundle,
+            intermediateResults.getUnperturbedCurveData());
+
+    if (base == null) {
+      return null;
+    }
+    if (shift == 0) {
+      return new MulticurveBundle(base.getMulticurve(), nodeIds, base.getBlockBundle());
+    }
+    LinearisedCurveRebuilder.LinearisedCurves curves =
+        _linearisedRebuilder.rebuild(base, intermediateResults, parentBundle);
+
+    if (curves == null) {
+      return null;
+    }
+    if (curves.getResidual() > _linearisedRebuilder.getMaxResidual()) {
+      s_logger.info("Residual {} of linearised curve bundle {} is above the maximum {}, calibrating in full",
+                    curves.getResidual(), bundleConfig.getName(), _linearisedRebuilder.getMaxResidual());
+      return null;
+    }
+    s_logger.debug("Derived curve bundle {} from its base calibration for a shift of {}, residual {}",
+                   bundleConfig.getName(), shift, curves.getResidual());
+    return new MulticurveBundle(curves.getMulticurve(), nodeIds, base.getBlockBundle());
+  }
+
+  /**
+   * Returns the calibration of a curve bundle using unperturbed input data, calibrating the curves if they
+   * haven't already been calibrated using the same data.
+   *
+   * @param marketDataBundle the market data
+   * @param valuationTime the valuation time for which the curve bundle should be built
+   * @param bundleConfig the configuration for the multicurve bundle
+   * @param bundleRequirement the requirement for the multicurve bundle
+   * @param parentBundle the parent curves and FX rates
+   * @param baseCurveData the unperturbed input data for each curve, keyed by curve name
+   * @return the base calibration, null if scenario curves can't be derived from it
+   */
+  @Nullable
+  private LinearisedCurveRebuilder.BaseCalibration baseCalibration(
+      final MarketDataBundle marketDataBundle,
+      final ZonedDateTime valuationTime,
+      final CurveConstructionConfiguration bundleConfig,
+      final MarketDataRequirement bundleRequirement,
+      final MulticurveProviderDiscount parentBundle,
+      Map<String, SnapshotDataBundle> baseCurveData) {
+
+    BaseCalibrationKey key = new BaseCalibrationKey(bundleConfig, valuationTime, parentBundle, baseCurveData);
+    try {
+      return _baseCalibrations.get(key, new Callable<Optional<LinearisedCurveRebuilder.BaseCalibration>>() {
+        @Override
+        public Optional<LinearisedCurveRebuilder.BaseCalibration> call() {
+          IntermediateResults baseResults =
+              buildIntermediateResults(
+                  marketDataBundle,
+                  valuationTime,
+                  bundleConfig,
+                  bundleRequirement,
+                  NO_PERTURBATIONS);
+          Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> calibratedCurves =
+              calibrate(parentBundle, baseResults);
+          return Optional.fromNullable(
+              LinearisedCurveRebuilder.baseCalibration(
+                  calibratedCurves.getFirst(),
+                  calibratedCurves.getSecond(),
+                  baseResults));
+        }
+      }).orNull();
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw new OpenGammaRuntimeException("Failed to calibrate base curves for " + bundleConfig.getName(), e.getCause());
+    }
+  }
+
   /**
    * Creates the parent curve bundle for a curve bundle.
    *
@@ -245,4 +460,45 @@ public class MulticurveMarketDataBuilder
     }
     return nodeMapBuilder.build();
   }
+
+  /**
+   * Identifies the data used to calibrate a curve bundle without perturbations.
+   */
+  private static final class BaseCalibrationKey {
+
+    private final CurveConstructionConfiguration _bundleConfig;
+    private final ZonedDateTime _valuationTime;
+    private final MulticurveProviderDiscount _parentBundle;
+    private final Map<String, SnapshotDataBundle> _curveData;
+
+    private BaseCalibrationKey(CurveConstructionConfiguration bundleConfig,
+                               ZonedDateTime valuationTime,
+                               MulticurveProviderDiscount parentBundle,
+                               Map<String, SnapshotDataBundle> curveData) {
+      _bundleConfig = bundleConfig;
+      _valuationTime = valuationTime;
+      _parentBundle = parentBundle;
+      _curveData = curveData;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      BaseCalibrationKey other = (BaseCalibrationKey) obj;
+      return _bundleConfig.equals(other._bundleConfig) &&
+          _valuationTime.equals(other._valuationTime) &&
+          _parentBundle.equals(other._parentBundle) &&
+          _curveData.equals(other._curveData);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_bundleConfig, _valuationTime, _parentBundle, _curveData);
+    }
+  }
 }
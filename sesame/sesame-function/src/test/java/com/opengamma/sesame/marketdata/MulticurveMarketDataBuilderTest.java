@@ -11,7 +11,13 @@ import static com.opengamma.sesame.config.ConfigBuilder.config;
 import static com.opengamma.sesame.config.ConfigBuilder.function;
 import static com.opengamma.sesame.config.ConfigBuilder.implementations;
 import static com.opengamma.util.result.ResultTestUtils.assertSuccess;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 
@@ -25,7 +31,9 @@ import org.threeten.bp.ZonedDateTime;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
 import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
 import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
 import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountBuildingRepository;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
@@ -42,6 +50,7 @@ import com.opengamma.service.VersionCorrectionProvider;
 import com.opengamma.sesame.CurrencyPairsFn;
 import com.opengamma.sesame.CurveDefinitionFn;
 import com.opengamma.sesame.CurveNodeConverterFn;
+import com.opengamma.sesame.CurveNodeInstrumentDefinitionFactory;
 import com.opengamma.sesame.CurveSpecificationFn;
 import com.opengamma.sesame.CurveSpecificationMarketDataFn;
 import com.opengamma.sesame.DefaultCurrencyPairsFn;
@@ -80,7 +89,22 @@ import com.opengamma.util.time.DateUtils;
 public class MulticurveMarketDataBuilderTest {
 
   private static MarketDataBuilder curveBuilder() {
-    FunctionModelConfig curveBuilderConfig =
+    return FunctionModel.build(MulticurveMarketDataBuilder.class, curveBuilderConfig(), componentMap());
+  }
+
+  private static MarketDataBuilder linearisedCurveBuilder(MulticurveDiscountBuildingRepository curveBuildingRepository) {
+    FunctionModelConfig config = curveBuilderConfig();
+    ComponentMap componentMap = componentMap();
+    return new MulticurveMarketDataBuilder(
+        FunctionModel.build(ConfigDBCurveSpecificationBuilder.class, config, componentMap),
+        FunctionModel.build(DefaultCurveNodeConverterFn.class, config, componentMap),
+        FunctionModel.build(CurveNodeInstrumentDefinitionFactory.class, config, componentMap),
+        curveBuildingRepository,
+        new LinearisedCurveRebuilder(0.001, true, 1e-6));
+  }
+
+  private static FunctionModelConfig curveBuilderConfig() {
+    return
         config(
             arguments(
                 function(
@@ -98,13 +122,14 @@ public class MulticurveMarketDataBuilderTest {
                 CurveSpecificationBuilder.class, ConfigDBCurveSpecificationBuilder.class,
                 CurveNodeConverterFn.class, DefaultCurveNodeConverterFn.class,
                 HistoricalMarketDataFn.class, DefaultHistoricalMarketDataFn.class));
+  }
 
+  private static ComponentMap componentMap() {
     Map<Class<?>, Object> components = InterestRateMockSources.generateBaseComponents();
     VersionCorrectionProvider vcProvider = new FixedInstantVersionCorrectionProvider(Instant.now());
     ServiceContext serviceContext = ServiceContext.of(components).with(VersionCorrectionProvider.class, vcProvider);
     ThreadLocalServiceContext.init(serviceContext);
-    ComponentMap componentMap = ComponentMap.of(components);
-    return FunctionModel.build(MulticurveMarketDataBuilder.class, curveBuilderConfig, componentMap);
+    return ComponentMap.of(components);
   }
 
   private static MarketDataBundle createMarketDataBundle() {
@@ -234,6 +259,66 @@ public class MulticurveMarketDataBuilderTest {
     assertEquals(unshiftedRate + shiftAmount, shiftedRate, 1e-4);
   }
 
+  /**
+   * Compares curves derived from the base calibration for a small shift to curves calibrated in full.
+   */
+  @SuppressWarnings("unchecked")
+  public void linearisedParallelShiftInputs() {
+    MarketDataEnvironment baseMarketData = InterestRateMockSources.createMarketDataEnvironment();
+    MarketDataEnvironment marketData =
+        baseMarketData.toBuilder().add(FxMatrixId.of(Currency.USD), new FXMatrix()).build();
+    SingleValueRequirement curveReq = SingleValueRequirement.of(MulticurveId.of("USD_ON-OIS_LIBOR3M-FRAIRS_1U"));
+    SinglePerturbationMapping mapping =
+        SinglePerturbationMapping.builder()
+            .filter(new CurveNameMulticurveFilter("USD-ON-OIS"))
+            .perturbation(MulticurveInputParallelShift.absolute(0.0005))
+            .build();
+    SingleScenarioDefinition scenario = SingleScenarioDefinition.of("scenarioName", ImmutableList.of(mapping));
+    CyclePerturbations perturbations = new CyclePerturbations(ImmutableSet.of(curveReq), scenario);
+
+    MulticurveBundle calibratedBundle = buildBundle(curveBuilder(), marketData, curveReq, perturbations);
+    MulticurveDiscountBuildingRepository curveBuildingRepository =
+        spy(new MulticurveDiscountBuildingRepository(1e-9, 1e-9, 1000));
+    MarketDataBuilder linearisedCurveBuilder = linearisedCurveBuilder(curveBuildingRepository);
+    MulticurveBundle linearisedBundle = buildBundle(linearisedCurveBuilder, marketData, curveReq, perturbations);
+    MulticurveProviderDiscount calibratedCurves = calibratedBundle.getMulticurveProvider();
+    MulticurveProviderDiscount linearisedCurves = linearisedBundle.getMulticurveProvider();
+
+    assertEquals(calibratedCurves.getAllCurveNames(), linearisedCurves.getAllCurveNames());
+
+    for (String curveName : calibratedCurves.getAllCurveNames()) {
+      for (double time : new double[] {0.25, 1, 2, 5, 10}) {
+        assertEquals(calibratedCurves.getCurve(curveName).getInterestRate(time),
+                     linearisedCurves.getCurve(curveName).getInterestRate(time),
+                     1e-6);
+      }
+    }
+    // the only root-finding calibration is the base calibration, the shifted curves are derived from it
+    verify(curveBuildingRepository, times(1)).makeCurvesFromDerivatives(
+        anyList(),
+        any(MulticurveProviderDiscount.class),
+        anyMap(),
+        any(Multimap.class),
+        any(Multimap.class),
+        any(InstrumentDerivativeVisitor.class),
+        any(InstrumentDerivativeVisitor.class));
+  }
+
+  private static MulticurveBundle buildBundle(MarketDataBuilder curveBuilder,
+                                              MarketDataEnvironment marketData,
+                                              SingleValueRequirement curveReq,
+                                              CyclePerturbations perturbations) {
+    Map<SingleValueRequirement, Result<?>> results =
+        curveBuilder.buildSingleValues(marketData.toBundle(),
+                                       marketData.getValuationTime(),
+                                       ImmutableSet.of(curveReq),
+                                       new EmptyMarketDataFactory.DataSource(),
+                                       perturbations);
+    Result<?> result = results.get(curveReq);
+    assertSuccess(result);
+    return (MulticurveBundle) result.getValue();
+  }
+
   /**
    * Tests that missing FX rates are handled correctly and a failure is returned and no exception is thrown.
    */
@@ -9,8 +9,10 @@ import com.opengamma.component.ComponentRepository;
 import com.opengamma.component.factory.AbstractComponentFactory;
 import com.opengamma.sesame.engine.ViewRunner;
 import com.opengamma.sesame.marketdata.builders.MarketDataEnvironmentFactory;
+import com.opengamma.sesame.trace.SamplingProfiler;
 import com.opengamma.sesame.web.curves.CurveBundleResource;
 import com.opengamma.sesame.web.pricing.SwapPricingResource;
+import com.opengamma.sesame.web.trace.SamplingProfilerResource;
 import org.joda.beans.Bean;
 import org.joda.beans.BeanBuilder;
 import org.joda.beans.BeanDefinition;
@@ -45,6 +47,7 @@ public class WebComponentFactory extends AbstractComponentFactory {
   public void init(ComponentRepository repo, LinkedHashMap<String, String> configuration) throws Exception {
     repo.getRestComponents().publishResource(new SwapPricingResource(_marketDataEnvironmentFactory, _viewRunner, _currencyMatrix));
     repo.getRestComponents().publishResource(new CurveBundleResource(_marketDataEnvironmentFactory));
+    repo.getRestComponents().publishResource(new SamplingProfilerResource(SamplingProfiler.INSTANCE));
   }
   //------------------------- AUTOGENERATED START -------------------------
   ///CLOVER:OFF
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2015 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.sesame.web.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+import com.google.gson.Gson;
+import com.opengamma.sesame.trace.LatencyHistogram;
+import com.opengamma.sesame.trace.SamplingProfiler;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * REST endpoints to control the sampling profiler and obtain the function timings it has recorded.
+ */
+@Path("sampling")
+public class SamplingProfilerResource {
+
+  /** The profiler recording the function timings */
+  private final SamplingProfiler _profiler;
+
+  /**
+   * @param profiler the profiler recording the function timings
+   */
+  public SamplingProfilerResource(SamplingProfiler profiler) {
+    _profiler = ArgumentChecker.notNull(profiler, "profiler");
+  }
+
+  /**
+   * Rest endpoint to obtain the latency of each function
+   * @return a json representation of the count, total, mean, max and percentile durations of the calls
+   *   to each function, keyed by function name. The durations are in nanoseconds
+   */
+  @GET
+  @Path("latencies")
+  @Produces("application/json")
+  public String getLatencies() {
+    Map<String, Map<String, Object>> latencies = new LinkedHashMap<>();
+
+    for (Map.Entry<String, LatencyHistogram> entry : _profiler.getLatencies().entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      Map<String, Object> data = new LinkedHashMap<>();
+      data.put("count", histogram.getCount());
+      data.put("total", histogram.getTotalNanos());
+      data.put("mean", histogram.getMeanNanos());
+      data.put("max", histogram.getMaxNanos());
+      data.put("p50", histogram.getPercentileNanos(50));
+      data.put("p90", histogram.getPercentileNanos(90));
+      data.put("p99", histogram.getPercentileNanos(99));
+      data.put("buckets", histogram.getBuckets());
+      latencies.put(entry.getKey(), data);
+    }
+    Gson gson = new Gson();
+    return gson.toJson(latencies);
+  }
+
+  /**
+   * Rest endpoint to obtain the time spent in each function call stack
+   * @return the time spent in each stack in the collapsed stack format used to create flame graphs
+   */
+  @GET
+  @Path("stacks")
+  @Produces("text/plain")
+  public String getStacks() {
+    return _profiler.getCollapsedStacks();
+  }
+
+  /**
+   * Rest endpoint to obtain the sampling interval
+   * @return the number of cells between each sampled cell, zero if sampling is disabled
+   */
+  @GET
+  @Path("interval")
+  @Produces("text/plain")
+  public String getSampleInterval() {
+    return Integer.toString(_profiler.getSampleInterval());
+  }
+
+  /**
+   * Rest endpoint to set the sampling interval
+   * @param interval the number of cells between each sampled cell, zero disables sampling
+   */
+  @PUT
+  @Path("interval/{interval}")
+  public void setSampleInterval(@PathParam("interval") int interval) {
+    _profiler.setSampleInterval(interval);
+  }
+
+  /**
+   * Rest endpoint to discard the recorded timings
+   */
+  @DELETE
+  public void reset() {
+    _profiler.reset();
+  }
+}